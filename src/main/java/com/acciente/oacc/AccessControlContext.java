@@ -17,6 +17,7 @@
  */
 package com.acciente.oacc;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -1004,6 +1005,47 @@ public interface AccessControlContext {
                                                            ResourcePermission resourcePermission,
                                                            ResourcePermission... resourcePermissions);
 
+   /**
+    * Returns a page of the resources that have the specified permissions to the specified accessed resource,
+    * in ascending order of their resource ids.
+    * <p/>
+    * Unlike {@link #getAccessorResourcesByResourcePermissions}, this method can optionally also take into account
+    * indirect accessors, namely those that hold the permissions via global permissions or SUPER-USER privileges on
+    * the domain of the accessed resource (or any of its ancestors), and all resources that inherit from any accessor,
+    * such as the members of a role that holds the permissions. An accessor is returned only if it has all
+    * the specified permissions.
+    * <p/>
+    * The accessors are paged by their resource ids: the first page is requested without a preceding accessor
+    * resource, and each subsequent page by specifying the last resource of the previous page. A page with fewer
+    * than <code>pageSize</code> resources is the last one. Only the resource id of the preceding accessor resource
+    * is used, so paging continues even if that resource has been deleted since its page was returned.
+    *
+    * @param accessedResource          the resource relative to which accessor resources are sought
+    * @param resourcePermissions       the permissions to check
+    * @param includeIndirectAccessors  if true, also returns the accessors that have the permissions via inheritance,
+    *                                  global permissions or SUPER-USER privileges,
+    *                                  otherwise only the accessors that have direct permissions
+    * @param afterAccessorResource     the last accessor resource of the previous page, or null for the first page;
+    *                                  a resource without a resource id is resolved by its external id
+    * @param pageSize                  the maximum number of accessor resources to return
+    * @return a list of accessor resources to the accessedResource, in ascending order of their resource ids
+    * @throws java.lang.IllegalArgumentException if accessedResource does not exist, or
+    *                                            if afterAccessorResource only has an external id that does not
+    *                                            exist, or
+    *                                            if any resourcePermission is invalid for the resource class of
+    *                                            the accessed resource, or
+    *                                            if pageSize is less than 1
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessed resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessed resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   List<Resource> getAccessorResourcesByResourcePermissionsPaged(Resource accessedResource,
+                                                                 Set<ResourcePermission> resourcePermissions,
+                                                                 boolean includeIndirectAccessors,
+                                                                 Resource afterAccessorResource,
+                                                                 int pageSize);
+
    /**
     * Returns the domain to which the specified resource belongs.
     *
@@ -1237,6 +1279,44 @@ public interface AccessControlContext {
     */
    boolean deleteResource(Resource obsoleteResource);
 
+   /**
+    * Deletes the specified resources.
+    * <p/>
+    * This method is equivalent to calling {@link #deleteResource(Resource)} for each of the specified resources, but
+    * removes the permissions of all the resources with a few set-based statements, instead of with separate
+    * statements for every resource, which makes it considerably faster for large numbers of resources.
+    * <p/>
+    * The session resource has to be authorized to delete every one of the specified resources, which is verified
+    * before any resource is deleted.
+    *
+    * @param obsoleteResources the resources to be deleted
+    * @return the number of resources deleted as a result of this call, which excludes any of the specified
+    *         resources that did not exist
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not authorized to delete any one of
+    *                                                  the specified obsolete resources
+    */
+   int deleteResources(Collection<Resource> obsoleteResources);
+
+   /**
+    * Returns the fully resolved resource references of the specified resources, i.e. with both resourceId and
+    * externalId, in the same order as the specified resources.
+    * <p/>
+    * This method is equivalent to resolving each of the specified resources individually, as every other method of
+    * this interface does with the resources passed to it, but resolves all of them with a few set-based queries.
+    * <p/>
+    * The returned resources also carry their resource class and domain, and are trusted by the other methods of
+    * this access control context, which neither verify that such a resource exists nor look up its resource class
+    * or domain again. A returned resource should therefore not be used after it was deleted, nor with an access
+    * control context that operates on a different data store. A returned resource is equal to any other resource
+    * with the same resourceId and externalId.
+    *
+    * @param resources the resources to resolve, each identified by its resourceId and/or its externalId
+    * @return a list of the fully resolved resources, in the same order as the specified resources
+    * @throws java.lang.IllegalArgumentException if any one of the specified resources does not exist, or if the
+    *                                            resourceId and externalId of a specified resource do not match
+    */
+   List<Resource> resolveResources(Collection<Resource> resources);
+
    /**
     * Sets the domain permissions the specified accessor resource will receive if it created a domain.
     * <p/>
@@ -2117,6 +2197,29 @@ public interface AccessControlContext {
    Set<ResourcePermission> getEffectiveResourcePermissions(Resource accessorResource,
                                                            Resource accessedResource);
 
+   /**
+    * Gets the effective resource permissions that the specified accessor resource has to each of the
+    * specified accessed resources, mapped by accessed resource.
+    * <p/>
+    * This method is equivalent to calling {@link #getEffectiveResourcePermissions(Resource, Resource)} for each of
+    * the specified accessed resources, but determines the accessor's super-user privileges and global permissions
+    * only once for each distinct resource class and domain of the accessed resources, and collects the accessor's
+    * direct and inherited permissions to all the accessed resources with a few set-based queries.
+    * The result is returned as a map keyed by the accessed resources as they were specified, where each value
+    * is the (possibly empty) set of effective permissions for the accessed resource of the key.
+    *
+    * @param accessorResource  the resource relative to which the permissions should be returned
+    * @param accessedResources the resources on which the privileges were granted
+    * @return the sets of effective resource permissions, mapped by accessed resource
+    * @throws java.lang.IllegalArgumentException if accessorResource or any one of the accessed resources does not exist
+    * @throws com.acciente.oacc.NotAuthorizedException if the session resource is not the accessor resource and
+    *                                                  the session resource does not have query authorization on
+    *                                                  the accessor resource (explicitly via QUERY or implicitly via
+    *                                                  IMPERSONATE permissions)
+    */
+   Map<Resource, Set<ResourcePermission>> getEffectiveResourcePermissionsMap(Resource accessorResource,
+                                                                             Collection<Resource> accessedResources);
+
    /**
     * Sets the global resource permissions a resource has on any resource of the specified
     * resource class in the specified domain.
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The pending result of an access control call made through an {@link AsyncAccessControlContext}.
+ * <p/>
+ * In addition to the blocking {@link java.util.concurrent.Future} methods, listeners can be registered to be notified
+ * upon completion, which allows bridging to other asynchronous abstractions without blocking a thread, for example:
+ * <pre><code>
+ *    final AccessControlFuture&lt;Boolean&gt; future = asyncAccessControlContext.hasResourcePermissions(...);
+ *    future.addListener(new Runnable() {
+ *       public void run() {
+ *          // future.get() will not block here
+ *       }
+ *    }, eventLoopExecutor);
+ * </code></pre>
+ *
+ * @param <T> the type of the result
+ */
+public class AccessControlFuture<T> extends FutureTask<T> {
+   private static final Callable<Object> NO_CALLABLE = new Callable<Object>() {
+      @Override
+      public Object call() {
+         throw new IllegalStateException("This future is completed externally");
+      }
+   };
+
+   private List<Listener> listeners = new ArrayList<>(1);
+
+   AccessControlFuture(Callable<T> callable) {
+      super(callable);
+   }
+
+   /**
+    * Creates a future that is not run, but completed by a call to {@link #complete} or {@link #completeExceptionally}.
+    */
+   @SuppressWarnings("unchecked")
+   AccessControlFuture() {
+      super((Callable<T>) NO_CALLABLE);
+   }
+
+   /**
+    * Registers a listener to be run on the specified executor when this future completes, whether normally,
+    * exceptionally or by cancellation. If this future has already completed, the listener is run immediately.
+    *
+    * @param listener the listener to run
+    * @param executor the executor on which to run the listener
+    */
+   public void addListener(Runnable listener, Executor executor) {
+      if (listener == null) {
+         throw new NullPointerException("Listener required, none specified");
+      }
+      if (executor == null) {
+         throw new NullPointerException("Executor required, none specified");
+      }
+
+      synchronized (this) {
+         if (listeners != null) {
+            listeners.add(new Listener(listener, executor));
+            return;
+         }
+      }
+      executor.execute(listener);
+   }
+
+   void complete(T value) {
+      set(value);
+   }
+
+   void completeExceptionally(Throwable throwable) {
+      setException(throwable);
+   }
+
+   @Override
+   protected void done() {
+      final List<Listener> listenersToNotify;
+      synchronized (this) {
+         listenersToNotify = listeners;
+         listeners = null;
+      }
+      for (Listener listener : listenersToNotify) {
+         listener.executor.execute(listener.runnable);
+      }
+   }
+
+   private static class Listener {
+      private final Runnable runnable;
+      private final Executor executor;
+
+      private Listener(Runnable runnable, Executor executor) {
+         this.runnable = runnable;
+         this.executor = executor;
+      }
+   }
+}
@@ -0,0 +1,658 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An asynchronous view of an {@link AccessControlContext}, whose query methods return immediately with an
+ * {@link AccessControlFuture} and run the corresponding blocking call of the underlying access control context
+ * on an executor.
+ * <p/>
+ * At most <code>maxConcurrency</code> calls of this view run on the executor at the same time, while additional calls
+ * wait in a queue without occupying an executor thread. The limit would typically be matched to the size of the
+ * connection pool of the data source backing the underlying access control context.
+ * <p/>
+ * In addition, {@link #hasResourcePermissionsCoalesced} answers concurrent permission checks of the same accessor on
+ * resources of the same resource class with a single set-based query, see the method for details.
+ * <p/>
+ * The view issues concurrent calls to the underlying access control context, which therefore has to be backed by a
+ * data source rather than a single connection. All calls are executed in the security session of the underlying
+ * access control context at the time they run, so the session should not be re-authenticated or impersonated while
+ * calls of this view are pending.
+ */
+public class AsyncAccessControlContext {
+   private final AccessControlContext accessControlContext;
+   private final Executor             executor;
+   private final int                  maxConcurrency;
+
+   private final AtomicInteger                     runningCount;
+   private final Queue<AccessControlFuture<?>>     pendingFutures;
+   private final Map<CoalescingKey, CoalescedBatch> openBatches;
+
+   private AsyncAccessControlContext(AccessControlContext accessControlContext,
+                                     Executor executor,
+                                     int maxConcurrency) {
+      this.accessControlContext = accessControlContext;
+      this.executor = executor;
+      this.maxConcurrency = maxConcurrency;
+      this.runningCount = new AtomicInteger();
+      this.pendingFutures = new ConcurrentLinkedQueue<>();
+      this.openBatches = new HashMap<>();
+   }
+
+   /**
+    * Creates an asynchronous view of the specified access control context.
+    *
+    * @param accessControlContext the access control context to which all calls are delegated
+    * @param executor             the executor on which the calls are run
+    * @param maxConcurrency       the maximum number of calls that run on the executor at the same time
+    * @return an asynchronous view of the specified access control context
+    * @throws java.lang.IllegalArgumentException if maxConcurrency is less than one
+    */
+   public static AsyncAccessControlContext newInstance(AccessControlContext accessControlContext,
+                                                       Executor executor,
+                                                       int maxConcurrency) {
+      if (accessControlContext == null) {
+         throw new IllegalArgumentException("Access control context required, none specified");
+      }
+      if (executor == null) {
+         throw new IllegalArgumentException("Executor required, none specified");
+      }
+      if (maxConcurrency < 1) {
+         throw new IllegalArgumentException("Max concurrency must be at least 1");
+      }
+
+      return new AsyncAccessControlContext(accessControlContext, executor, maxConcurrency);
+   }
+
+   /**
+    * Returns the access control context to which this view delegates.
+    *
+    * @return the underlying access control context
+    */
+   public AccessControlContext getAccessControlContext() {
+      return accessControlContext;
+   }
+
+   /**
+    * Runs an arbitrary call against the underlying access control context, subject to the same concurrency limit
+    * as the other methods of this view.
+    *
+    * @param call the call to run
+    * @param <T>  the type of the result of the call
+    * @return the pending result of the call
+    */
+   public <T> AccessControlFuture<T> submit(Callable<T> call) {
+      if (call == null) {
+         throw new IllegalArgumentException("Call required, none specified");
+      }
+
+      final AccessControlFuture<T> future = new AccessControlFuture<>(call);
+      pendingFutures.add(future);
+      drainPendingFutures();
+      return future;
+   }
+
+   /**
+    * Authenticates the underlying access control context without blocking the calling thread, which is useful when
+    * password hashing is slow or bounded, such as with a {@link com.acciente.oacc.encryptor.BoundedPasswordEncryptor}.
+    * <p/>
+    * Authentication changes the security session in which all calls of this view run, so it should only be called
+    * while no other calls of this view are pending.
+    *
+    * @see AccessControlContext#authenticate(Resource, Credentials)
+    */
+   public AccessControlFuture<Void> authenticate(final Resource resource,
+                                                 final Credentials credentials) {
+      return submit(new Callable<Void>() {
+         @Override
+         public Void call() {
+            accessControlContext.authenticate(resource, credentials);
+            return null;
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#hasDomainPermissions(Resource, String, Set)
+    */
+   public AccessControlFuture<Boolean> hasDomainPermissions(final Resource accessorResource,
+                                                            final String domainName,
+                                                            final Set<DomainPermission> domainPermissions) {
+      return submit(new Callable<Boolean>() {
+         @Override
+         public Boolean call() {
+            return accessControlContext.hasDomainPermissions(accessorResource, domainName, domainPermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#hasDomainCreatePermissions(Resource, Set)
+    */
+   public AccessControlFuture<Boolean> hasDomainCreatePermissions(final Resource accessorResource,
+                                                                  final Set<DomainCreatePermission> domainCreatePermissions) {
+      return submit(new Callable<Boolean>() {
+         @Override
+         public Boolean call() {
+            return accessControlContext.hasDomainCreatePermissions(accessorResource, domainCreatePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#hasGlobalResourcePermissions(Resource, String, String, Set)
+    */
+   public AccessControlFuture<Boolean> hasGlobalResourcePermissions(final Resource accessorResource,
+                                                                    final String resourceClassName,
+                                                                    final String domainName,
+                                                                    final Set<ResourcePermission> resourcePermissions) {
+      return submit(new Callable<Boolean>() {
+         @Override
+         public Boolean call() {
+            return accessControlContext.hasGlobalResourcePermissions(accessorResource,
+                                                                     resourceClassName,
+                                                                     domainName,
+                                                                     resourcePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#hasResourcePermissions(Resource, Resource, Set)
+    */
+   public AccessControlFuture<Boolean> hasResourcePermissions(final Resource accessorResource,
+                                                              final Resource accessedResource,
+                                                              final Set<ResourcePermission> resourcePermissions) {
+      return submit(new Callable<Boolean>() {
+         @Override
+         public Boolean call() {
+            return accessControlContext.hasResourcePermissions(accessorResource, accessedResource, resourcePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#hasResourceCreatePermissions(Resource, String, String, Set)
+    */
+   public AccessControlFuture<Boolean> hasResourceCreatePermissions(final Resource accessorResource,
+                                                                    final String resourceClassName,
+                                                                    final String domainName,
+                                                                    final Set<ResourceCreatePermission> resourceCreatePermissions) {
+      return submit(new Callable<Boolean>() {
+         @Override
+         public Boolean call() {
+            return accessControlContext.hasResourceCreatePermissions(accessorResource,
+                                                                     resourceClassName,
+                                                                     domainName,
+                                                                     resourceCreatePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveDomainPermissions(Resource, String)
+    */
+   public AccessControlFuture<Set<DomainPermission>> getEffectiveDomainPermissions(final Resource accessorResource,
+                                                                                   final String domainName) {
+      return submit(new Callable<Set<DomainPermission>>() {
+         @Override
+         public Set<DomainPermission> call() {
+            return accessControlContext.getEffectiveDomainPermissions(accessorResource, domainName);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveDomainPermissionsMap(Resource)
+    */
+   public AccessControlFuture<Map<String, Set<DomainPermission>>> getEffectiveDomainPermissionsMap(final Resource accessorResource) {
+      return submit(new Callable<Map<String, Set<DomainPermission>>>() {
+         @Override
+         public Map<String, Set<DomainPermission>> call() {
+            return accessControlContext.getEffectiveDomainPermissionsMap(accessorResource);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveDomainCreatePermissions(Resource)
+    */
+   public AccessControlFuture<Set<DomainCreatePermission>> getEffectiveDomainCreatePermissions(final Resource accessorResource) {
+      return submit(new Callable<Set<DomainCreatePermission>>() {
+         @Override
+         public Set<DomainCreatePermission> call() {
+            return accessControlContext.getEffectiveDomainCreatePermissions(accessorResource);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveResourcePermissions(Resource, Resource)
+    */
+   public AccessControlFuture<Set<ResourcePermission>> getEffectiveResourcePermissions(final Resource accessorResource,
+                                                                                       final Resource accessedResource) {
+      return submit(new Callable<Set<ResourcePermission>>() {
+         @Override
+         public Set<ResourcePermission> call() {
+            return accessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveResourcePermissionsMap(Resource, Collection)
+    */
+   public AccessControlFuture<Map<Resource, Set<ResourcePermission>>> getEffectiveResourcePermissionsMap(final Resource accessorResource,
+                                                                                                         final Collection<Resource> accessedResources) {
+      return submit(new Callable<Map<Resource, Set<ResourcePermission>>>() {
+         @Override
+         public Map<Resource, Set<ResourcePermission>> call() {
+            return accessControlContext.getEffectiveResourcePermissionsMap(accessorResource, accessedResources);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveGlobalResourcePermissions(Resource, String, String)
+    */
+   public AccessControlFuture<Set<ResourcePermission>> getEffectiveGlobalResourcePermissions(final Resource accessorResource,
+                                                                                             final String resourceClassName,
+                                                                                             final String domainName) {
+      return submit(new Callable<Set<ResourcePermission>>() {
+         @Override
+         public Set<ResourcePermission> call() {
+            return accessControlContext.getEffectiveGlobalResourcePermissions(accessorResource,
+                                                                              resourceClassName,
+                                                                              domainName);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveGlobalResourcePermissionsMap(Resource)
+    */
+   public AccessControlFuture<Map<String, Map<String, Set<ResourcePermission>>>> getEffectiveGlobalResourcePermissionsMap(
+         final Resource accessorResource) {
+      return submit(new Callable<Map<String, Map<String, Set<ResourcePermission>>>>() {
+         @Override
+         public Map<String, Map<String, Set<ResourcePermission>>> call() {
+            return accessControlContext.getEffectiveGlobalResourcePermissionsMap(accessorResource);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveResourceCreatePermissions(Resource, String, String)
+    */
+   public AccessControlFuture<Set<ResourceCreatePermission>> getEffectiveResourceCreatePermissions(final Resource accessorResource,
+                                                                                                   final String resourceClassName,
+                                                                                                   final String domainName) {
+      return submit(new Callable<Set<ResourceCreatePermission>>() {
+         @Override
+         public Set<ResourceCreatePermission> call() {
+            return accessControlContext.getEffectiveResourceCreatePermissions(accessorResource,
+                                                                              resourceClassName,
+                                                                              domainName);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getEffectiveResourceCreatePermissionsMap(Resource)
+    */
+   public AccessControlFuture<Map<String, Map<String, Set<ResourceCreatePermission>>>> getEffectiveResourceCreatePermissionsMap(
+         final Resource accessorResource) {
+      return submit(new Callable<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+         @Override
+         public Map<String, Map<String, Set<ResourceCreatePermission>>> call() {
+            return accessControlContext.getEffectiveResourceCreatePermissionsMap(accessorResource);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getResourcesByResourcePermissions(Resource, String, Set)
+    */
+   public AccessControlFuture<Set<Resource>> getResourcesByResourcePermissions(final Resource accessorResource,
+                                                                               final String resourceClassName,
+                                                                               final Set<ResourcePermission> resourcePermissions) {
+      return submit(new Callable<Set<Resource>>() {
+         @Override
+         public Set<Resource> call() {
+            return accessControlContext.getResourcesByResourcePermissions(accessorResource,
+                                                                          resourceClassName,
+                                                                          resourcePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getResourcesByResourcePermissionsAndDomain(Resource, String, String, Set)
+    */
+   public AccessControlFuture<Set<Resource>> getResourcesByResourcePermissionsAndDomain(final Resource accessorResource,
+                                                                                        final String resourceClassName,
+                                                                                        final String domainName,
+                                                                                        final Set<ResourcePermission> resourcePermissions) {
+      return submit(new Callable<Set<Resource>>() {
+         @Override
+         public Set<Resource> call() {
+            return accessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                   resourceClassName,
+                                                                                   domainName,
+                                                                                   resourcePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getAccessorResourcesByResourcePermissions(Resource, String, Set)
+    */
+   public AccessControlFuture<Set<Resource>> getAccessorResourcesByResourcePermissions(final Resource accessedResource,
+                                                                                       final String resourceClassName,
+                                                                                       final Set<ResourcePermission> resourcePermissions) {
+      return submit(new Callable<Set<Resource>>() {
+         @Override
+         public Set<Resource> call() {
+            return accessControlContext.getAccessorResourcesByResourcePermissions(accessedResource,
+                                                                                  resourceClassName,
+                                                                                  resourcePermissions);
+         }
+      });
+   }
+
+   /**
+    * @see AccessControlContext#getAccessorResourcesByResourcePermissionsPaged(Resource, Set, boolean, Resource, int)
+    */
+   public AccessControlFuture<List<Resource>> getAccessorResourcesByResourcePermissionsPaged(final Resource accessedResource,
+                                                                                             final Set<ResourcePermission> resourcePermissions,
+                                                                                             final boolean includeIndirectAccessors,
+                                                                                             final Resource afterAccessorResource,
+                                                                                             final int pageSize) {
+      return submit(new Callable<List<Resource>>() {
+         @Override
+         public List<Resource> call() {
+            return accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                       resourcePermissions,
+                                                                                       includeIndirectAccessors,
+                                                                                       afterAccessorResource,
+                                                                                       pageSize);
+         }
+      });
+   }
+
+   /**
+    * Checks if the specified accessor resource has the specified permissions to the specified accessed resource,
+    * which must be of the specified resource class, coalescing concurrent checks into set-based queries.
+    * <p/>
+    * All checks with the same accessor resource, resource class and permissions, that are issued before the first
+    * of them starts running on the executor, are answered together with a single call to
+    * {@link AccessControlContext#getResourcesByResourcePermissions(Resource, String, Set)}, after the accessed
+    * resources of all of them were resolved with a single call to
+    * {@link AccessControlContext#resolveResources(Collection)}. The result of each check is equivalent to
+    * {@link AccessControlContext#hasResourcePermissions(Resource, Resource, Set)}, provided that the accessed resource
+    * is indeed of the specified resource class; otherwise the check returns false.
+    * <p/>
+    * Like {@link AccessControlContext#hasResourcePermissions(Resource, Resource, Set)}, the check fails with an
+    * IllegalArgumentException if the accessed resource does not exist, or if its resourceId and externalId do not
+    * match. Such a failure only affects the check of that resource, not the others answered by the same query.
+    * <p/>
+    * Coalescing pays off when many resources of the same class are checked for the same accessor at the same time
+    * (for example, when rendering a list), and the accessor has access to a moderate number of resources of that class.
+    *
+    * @param accessorResource    the resource requesting the access
+    * @param accessedResource    the resource on which access is being requested
+    * @param resourceClassName   the resource class of the accessed resource
+    * @param resourcePermissions the permissions to be checked
+    * @return the pending result of the check
+    * @throws java.lang.IllegalArgumentException if any argument is null, or if the accessed resource specifies neither
+    *                                            a resourceId nor an externalId
+    */
+   public AccessControlFuture<Boolean> hasResourcePermissionsCoalesced(Resource accessorResource,
+                                                                       Resource accessedResource,
+                                                                       String resourceClassName,
+                                                                       Set<ResourcePermission> resourcePermissions) {
+      if (accessorResource == null) {
+         throw new IllegalArgumentException("Accessor resource required, none specified");
+      }
+      if (accessedResource == null) {
+         throw new IllegalArgumentException("Accessed resource required, none specified");
+      }
+      if (accessedResource.getId() == null && accessedResource.getExternalId() == null) {
+         throw new IllegalArgumentException("A resource id and/or external id is required, but neither was specified");
+      }
+      if (resourceClassName == null) {
+         throw new IllegalArgumentException("Resource class required, none specified");
+      }
+      if (resourcePermissions == null) {
+         throw new IllegalArgumentException("Set of permissions required, none specified");
+      }
+
+      final CoalescingKey key
+            = new CoalescingKey(accessorResource, resourceClassName, new HashSet<>(resourcePermissions));
+      final AccessControlFuture<Boolean> future = new AccessControlFuture<>();
+
+      final CoalescedBatch newBatch;
+      synchronized (openBatches) {
+         final CoalescedBatch openBatch = openBatches.get(key);
+         if (openBatch != null) {
+            openBatch.add(accessedResource, future);
+            return future;
+         }
+         newBatch = new CoalescedBatch(key);
+         newBatch.add(accessedResource, future);
+         openBatches.put(key, newBatch);
+      }
+
+      final AccessControlFuture<Void> batchFuture = submit(newBatch);
+      batchFuture.addListener(new Runnable() {
+         @Override
+         public void run() {
+            if (batchFuture.isCancelled()) {
+               newBatch.cancel();
+            }
+         }
+      }, DirectExecutor.INSTANCE);
+
+      return future;
+   }
+
+   private void drainPendingFutures() {
+      while (!pendingFutures.isEmpty()) {
+         final int currentRunningCount = runningCount.get();
+         if (currentRunningCount >= maxConcurrency) {
+            // a running call will drain the queue when it completes
+            return;
+         }
+         if (!runningCount.compareAndSet(currentRunningCount, currentRunningCount + 1)) {
+            continue;
+         }
+
+         final AccessControlFuture<?> future = pendingFutures.poll();
+         if (future == null) {
+            runningCount.decrementAndGet();
+            continue;
+         }
+
+         try {
+            executor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     future.run();
+                  }
+                  finally {
+                     runningCount.decrementAndGet();
+                     drainPendingFutures();
+                  }
+               }
+            });
+         }
+         catch (RejectedExecutionException e) {
+            runningCount.decrementAndGet();
+            future.completeExceptionally(e);
+         }
+      }
+   }
+
+   private enum DirectExecutor implements Executor {
+      INSTANCE;
+
+      @Override
+      public void execute(Runnable command) {
+         command.run();
+      }
+   }
+
+   private static class CoalescingKey {
+      private final Resource                accessorResource;
+      private final String                  resourceClassName;
+      private final Set<ResourcePermission> resourcePermissions;
+
+      private CoalescingKey(Resource accessorResource,
+                            String resourceClassName,
+                            Set<ResourcePermission> resourcePermissions) {
+         this.accessorResource = accessorResource;
+         this.resourceClassName = resourceClassName;
+         this.resourcePermissions = resourcePermissions;
+      }
+
+      @Override
+      public boolean equals(Object other) {
+         if (this == other) {
+            return true;
+         }
+         if (other == null || getClass() != other.getClass()) {
+            return false;
+         }
+
+         CoalescingKey otherKey = (CoalescingKey) other;
+
+         return accessorResource.equals(otherKey.accessorResource)
+               && resourceClassName.equals(otherKey.resourceClassName)
+               && resourcePermissions.equals(otherKey.resourcePermissions);
+      }
+
+      @Override
+      public int hashCode() {
+         int result = accessorResource.hashCode();
+         result = 31 * result + resourceClassName.hashCode();
+         result = 31 * result + resourcePermissions.hashCode();
+         return result;
+      }
+   }
+
+   private class CoalescedBatch implements Callable<Void> {
+      private final CoalescingKey                      key;
+      private final List<Resource>                     accessedResources;
+      private final List<AccessControlFuture<Boolean>> futures;
+
+      private CoalescedBatch(CoalescingKey key) {
+         this.key = key;
+         this.accessedResources = new ArrayList<>();
+         this.futures = new ArrayList<>();
+      }
+
+      // only called while holding the lock on openBatches
+      private void add(Resource accessedResource, AccessControlFuture<Boolean> future) {
+         accessedResources.add(accessedResource);
+         futures.add(future);
+      }
+
+      private void close() {
+         synchronized (openBatches) {
+            if (openBatches.get(key) == this) {
+               openBatches.remove(key);
+            }
+         }
+      }
+
+      private void cancel() {
+         close();
+         for (AccessControlFuture<Boolean> future : futures) {
+            future.cancel(false);
+         }
+      }
+
+      @Override
+      public Void call() {
+         // stop accepting new checks before we query, so that every check is answered by a query started after it
+         close();
+
+         List<Resource> resolvedResources;
+         final Set<Resource> resources;
+         try {
+            try {
+               resolvedResources = accessControlContext.resolveResources(accessedResources);
+            }
+            catch (IllegalArgumentException e) {
+               // at least one of the accessed resources is invalid, which we find out below for each of them
+               resolvedResources = null;
+            }
+            resources = accessControlContext.getResourcesByResourcePermissions(key.accessorResource,
+                                                                               key.resourceClassName,
+                                                                               key.resourcePermissions);
+         }
+         catch (RuntimeException | Error e) {
+            for (AccessControlFuture<Boolean> future : futures) {
+               future.completeExceptionally(e);
+            }
+            throw e;
+         }
+
+         final Set<Long> resourceIds = new HashSet<>(resources.size());
+         for (Resource resource : resources) {
+            resourceIds.add(resource.getId());
+         }
+
+         for (int i = 0; i < futures.size(); i++) {
+            final Resource resolvedResource;
+            if (resolvedResources != null) {
+               resolvedResource = resolvedResources.get(i);
+            }
+            else {
+               try {
+                  resolvedResource = accessControlContext
+                        .resolveResources(Collections.singletonList(accessedResources.get(i))).get(0);
+               }
+               catch (RuntimeException e) {
+                  futures.get(i).completeExceptionally(e);
+                  continue;
+               }
+            }
+            futures.get(i).complete(resourceIds.contains(resolvedResource.getId()));
+         }
+
+         return null;
+      }
+   }
+}
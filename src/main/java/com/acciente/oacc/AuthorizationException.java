@@ -31,4 +31,11 @@ public class AuthorizationException extends OaccException {
    public AuthorizationException(Throwable cause) {
       super(cause);
    }
+
+   protected AuthorizationException(String message,
+                                    Throwable cause,
+                                    boolean enableSuppression,
+                                    boolean writableStackTrace) {
+      super(message, cause, enableSuppression, writableStackTrace);
+   }
 }
\ No newline at end of file
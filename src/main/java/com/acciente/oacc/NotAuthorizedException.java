@@ -17,157 +17,171 @@
  */
 package com.acciente.oacc;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Thrown when a resource is not authorized to perform an action, or does not have the requested permissions.
+ * <p/>
+ * The exceptions created by the static factory methods keep the accessor, the accessed resource, the action or
+ * permissions, and the domain and resource class involved as fields, and only format their message when it is
+ * first requested. The same factory methods are available on the instances returned by {@link #getFactory(boolean)},
+ * which can additionally create these exceptions without capturing a stack trace.
+ */
 public class NotAuthorizedException extends AuthorizationException {
    private static final long serialVersionUID = 1L;
 
+   private static final Factory FACTORY_WITH_STACK_TRACE    = new Factory(true);
+   private static final Factory FACTORY_WITHOUT_STACK_TRACE = new Factory(false);
+
+   private enum Reason {
+      ACTION,
+      ACTION_ON_RESOURCE,
+      DOMAIN_CREATE_PERMISSIONS,
+      DOMAIN_PERMISSIONS,
+      POST_CREATE_DOMAIN_PERMISSIONS,
+      RESOURCE_CREATE_PERMISSIONS,
+      RESOURCE_PERMISSIONS,
+      GLOBAL_RESOURCE_PERMISSIONS,
+      POST_CREATE_RESOURCE_PERMISSIONS,
+   }
+
+   private final    Details details;
+   private volatile String  formattedMessage;
+
    public NotAuthorizedException(String message) {
-      super(message);
+      this(message, null, true, null);
    }
 
    public NotAuthorizedException(String message, Throwable cause) {
-      super(message, cause);
+      this(message, cause, true, null);
    }
 
    public NotAuthorizedException(Throwable cause) {
-      super(cause);
+      this(cause == null ? null : cause.toString(), cause, true, null);
+   }
+
+   private NotAuthorizedException(String message, Throwable cause, boolean writableStackTrace, Details details) {
+      // the message of the exceptions with details is formatted on demand, see getMessage()
+      super(message, cause, true, writableStackTrace);
+      this.details = details;
+   }
+
+   /**
+    * Returns a factory of the exceptions created by the static factory methods of this class.
+    * <p/>
+    * Stack traces are captured by the static factory methods. Turning them off makes denials considerably cheaper,
+    * at the cost of exceptions that do not show where they were thrown.
+    *
+    * @param stackTraceEnabled <code>false</code> to create the exceptions without a stack trace
+    * @return a factory of not authorized exceptions
+    */
+   public static Factory getFactory(boolean stackTraceEnabled) {
+      return stackTraceEnabled ? FACTORY_WITH_STACK_TRACE : FACTORY_WITHOUT_STACK_TRACE;
    }
 
    // custom static factory methods to help craft uniform error messages
    public static NotAuthorizedException newInstanceForAction(Resource accessorResource,
                                                              String action) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " is not authorized to "
-                                              + action);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForAction(accessorResource, action);
    }
 
    public static NotAuthorizedException newInstanceForActionOnResource(Resource accessorResource,
                                                                        String action,
                                                                        Resource accessedResource) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " is not authorized to "
-                                              + action
-                                              + " resource "
-                                              + String.valueOf(accessedResource));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForActionOnResource(accessorResource, action, accessedResource);
    }
 
    public static NotAuthorizedException newInstanceForDomainCreatePermissions(Resource accessorResource,
                                                                               Set<DomainCreatePermission> domainCreatePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have domain create permission(s) "
-                                              + String.valueOf(domainCreatePermissions));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForDomainCreatePermissions(accessorResource,
+                                                                            domainCreatePermissions);
    }
 
    public static NotAuthorizedException newInstanceForDomainCreatePermissions(Resource accessorResource,
                                                                               DomainCreatePermission domainCreatePermission,
                                                                               DomainCreatePermission... domainCreatePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have domain create permission(s) "
-                                              + toString(domainCreatePermission, domainCreatePermissions));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForDomainCreatePermissions(accessorResource,
+                                                                            domainCreatePermission,
+                                                                            domainCreatePermissions);
    }
 
    public static NotAuthorizedException newInstanceForDomainPermissions(Resource accessorResource,
                                                                         String domainName,
                                                                         Set<DomainPermission> domainPermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have domain permission(s) "
-                                              + String.valueOf(domainPermissions)
-                                              + " on domain "
-                                              + domainName);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForDomainPermissions(accessorResource,
+                                                                      domainName,
+                                                                      domainPermissions);
    }
 
    public static NotAuthorizedException newInstanceForDomainPermissions(Resource accessorResource,
                                                                         String domainName,
                                                                         DomainPermission domainPermission,
                                                                         DomainPermission... domainPermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have domain permission(s) "
-                                              + toString(domainPermission, domainPermissions)
-                                              + " on domain "
-                                              + domainName);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForDomainPermissions(accessorResource,
+                                                                      domainName,
+                                                                      domainPermission,
+                                                                      domainPermissions);
    }
 
    public static NotAuthorizedException newInstanceForPostCreateDomainPermissions(Resource accessorResource,
                                                                                   Set<DomainPermission> domainPermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " is not authorized to receive "
-                                              + String.valueOf(domainPermissions)
-                                              + " domain permission(s) after creating a domain");
+      return FACTORY_WITH_STACK_TRACE.newInstanceForPostCreateDomainPermissions(accessorResource,
+                                                                                domainPermissions);
    }
 
    public static NotAuthorizedException newInstanceForPostCreateDomainPermissions(Resource accessorResource,
                                                                                   DomainPermission domainPermission,
                                                                                   DomainPermission... domainPermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " is not authorized to receive "
-                                              + toString(domainPermission, domainPermissions)
-                                              + " domain permission(s) after creating a domain");
+      return FACTORY_WITH_STACK_TRACE.newInstanceForPostCreateDomainPermissions(accessorResource,
+                                                                                domainPermission,
+                                                                                domainPermissions);
    }
 
    public static NotAuthorizedException newInstanceForResourceCreatePermissions(Resource accessorResource,
                                                                                 Set<ResourceCreatePermission> resourceCreatePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have resource create permission(s) "
-                                              + String.valueOf(resourceCreatePermissions));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForResourceCreatePermissions(accessorResource,
+                                                                              resourceCreatePermissions);
    }
 
    public static NotAuthorizedException newInstanceForResourceCreatePermissions(Resource accessorResource,
                                                                                 ResourceCreatePermission resourceCreatePermission,
                                                                                 ResourceCreatePermission... resourceCreatePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have resource create permission(s) "
-                                              + toString(resourceCreatePermission, resourceCreatePermissions));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForResourceCreatePermissions(accessorResource,
+                                                                              resourceCreatePermission,
+                                                                              resourceCreatePermissions);
    }
 
    public static NotAuthorizedException newInstanceForResourcePermissions(Resource accessorResource,
                                                                           Resource accessedResource,
                                                                           Set<ResourcePermission> resourcePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have permission(s) "
-                                              + String.valueOf(resourcePermissions)
-                                              + " on resource "
-                                              + String.valueOf(accessedResource));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForResourcePermissions(accessorResource,
+                                                                        accessedResource,
+                                                                        resourcePermissions);
    }
 
    public static NotAuthorizedException newInstanceForResourcePermissions(Resource accessorResource,
                                                                           Resource accessedResource,
                                                                           ResourcePermission resourcePermission,
                                                                           ResourcePermission... resourcePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have permission(s) "
-                                              + toString(resourcePermission, resourcePermissions)
-                                              + " on resource "
-                                              + String.valueOf(accessedResource));
+      return FACTORY_WITH_STACK_TRACE.newInstanceForResourcePermissions(accessorResource,
+                                                                        accessedResource,
+                                                                        resourcePermission,
+                                                                        resourcePermissions);
    }
 
    public static NotAuthorizedException newInstanceForGlobalResourcePermissions(Resource accessorResource,
                                                                                 String resourceClassName,
                                                                                 String domainName,
                                                                                 Set<ResourcePermission> resourcePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have global permission(s) "
-                                              + String.valueOf(resourcePermissions)
-                                              + " on resources of class "
-                                              + resourceClassName
-                                              + " in domain "
-                                              + domainName);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForGlobalResourcePermissions(accessorResource,
+                                                                              resourceClassName,
+                                                                              domainName,
+                                                                              resourcePermissions);
    }
 
    public static NotAuthorizedException newInstanceForGlobalResourcePermissions(Resource accessorResource,
@@ -175,27 +189,21 @@ public class NotAuthorizedException extends AuthorizationException {
                                                                                 String domainName,
                                                                                 ResourcePermission resourcePermission,
                                                                                 ResourcePermission... resourcePermissions) {
-      return new NotAuthorizedException("Resource "
-                                              + String.valueOf(accessorResource)
-                                              + " does not have global permission(s) "
-                                              + toString(resourcePermission, resourcePermissions)
-                                              + " on resources of class "
-                                              + resourceClassName
-                                              + " in domain "
-                                              + domainName);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForGlobalResourcePermissions(accessorResource,
+                                                                              resourceClassName,
+                                                                              domainName,
+                                                                              resourcePermission,
+                                                                              resourcePermissions);
    }
 
    public static NotAuthorizedException newInstanceForPostCreateResourcePermissions(Resource accessorResource,
                                                                                     String resourceClassName,
                                                                                     String domainName,
                                                                                     Set<ResourcePermission> resourcePermissions) {
-      return new NotAuthorizedException(accessorResource
-                                              + "receive "
-                                              + String.valueOf(resourcePermissions)
-                                              + " permission(s) after creating a "
-                                              + resourceClassName
-                                              + " resource in domain "
-                                              + domainName);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForPostCreateResourcePermissions(accessorResource,
+                                                                                  resourceClassName,
+                                                                                  domainName,
+                                                                                  resourcePermissions);
    }
 
    public static NotAuthorizedException newInstanceForPostCreateResourcePermissions(Resource accessorResource,
@@ -203,18 +211,338 @@ public class NotAuthorizedException extends AuthorizationException {
                                                                                     String domainName,
                                                                                     ResourcePermission resourcePermission,
                                                                                     ResourcePermission... resourcePermissions) {
-      return new NotAuthorizedException(accessorResource
-                                              + "receive "
-                                              + toString(resourcePermission, resourcePermissions)
-                                              + " permission(s) after creating a "
-                                              + resourceClassName
-                                              + " resource in domain "
-                                              + domainName);
+      return FACTORY_WITH_STACK_TRACE.newInstanceForPostCreateResourcePermissions(accessorResource,
+                                                                                  resourceClassName,
+                                                                                  domainName,
+                                                                                  resourcePermission,
+                                                                                  resourcePermissions);
+   }
+
+   /**
+    * Returns the resource that was denied, if this exception was created by one of the static factory methods.
+    */
+   public Resource getAccessorResource() {
+      return details == null ? null : details.accessorResource;
+   }
+
+   /**
+    * Returns the resource to which access was denied, if any.
+    */
+   public Resource getAccessedResource() {
+      return details == null ? null : details.accessedResource;
+   }
+
+   /**
+    * Returns the action that was denied, if this exception was not caused by missing permissions.
+    */
+   public String getAction() {
+      return details == null ? null : details.action;
+   }
+
+   public String getResourceClassName() {
+      return details == null ? null : details.resourceClassName;
+   }
+
+   public String getDomainName() {
+      return details == null ? null : details.domainName;
+   }
+
+   /**
+    * Returns the permissions that were requested, or an empty collection if this exception was not caused by
+    * missing permissions.
+    */
+   public Collection<?> getPermissions() {
+      return details == null || details.permissions == null
+             ? Collections.emptyList()
+             : details.permissions;
+   }
+
+   @Override
+   public String getMessage() {
+      if (details == null) {
+         return super.getMessage();
+      }
+
+      String message = formattedMessage;
+      if (message == null) {
+         formattedMessage = message = details.formatMessage();
+      }
+      return message;
    }
 
+   /**
+    * Creates the exceptions of the static factory methods of {@link NotAuthorizedException}, either with or without
+    * capturing a stack trace, see {@link NotAuthorizedException#getFactory(boolean)}.
+    */
+   public static final class Factory implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final boolean stackTraceEnabled;
+
+      private Factory(boolean stackTraceEnabled) {
+         this.stackTraceEnabled = stackTraceEnabled;
+      }
+
+      private Object readResolve() {
+         return getFactory(stackTraceEnabled);
+      }
+
+      public NotAuthorizedException newInstanceForAction(Resource accessorResource,
+                                                         String action) {
+         return newInstance(new Details(Reason.ACTION, accessorResource)
+                                  .withAction(action));
+      }
+
+      public NotAuthorizedException newInstanceForActionOnResource(Resource accessorResource,
+                                                                   String action,
+                                                                   Resource accessedResource) {
+         return newInstance(new Details(Reason.ACTION_ON_RESOURCE, accessorResource)
+                                  .withAction(action)
+                                  .withAccessedResource(accessedResource));
+      }
+
+      public NotAuthorizedException newInstanceForDomainCreatePermissions(Resource accessorResource,
+                                                                          Set<DomainCreatePermission> domainCreatePermissions) {
+         return newInstance(new Details(Reason.DOMAIN_CREATE_PERMISSIONS, accessorResource)
+                                  .withPermissions(domainCreatePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForDomainCreatePermissions(Resource accessorResource,
+                                                                          DomainCreatePermission domainCreatePermission,
+                                                                          DomainCreatePermission... domainCreatePermissions) {
+         return newInstance(new Details(Reason.DOMAIN_CREATE_PERMISSIONS, accessorResource)
+                                  .withPermissions(domainCreatePermission, domainCreatePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForDomainPermissions(Resource accessorResource,
+                                                                    String domainName,
+                                                                    Set<DomainPermission> domainPermissions) {
+         return newInstance(new Details(Reason.DOMAIN_PERMISSIONS, accessorResource)
+                                  .withDomainName(domainName)
+                                  .withPermissions(domainPermissions));
+      }
+
+      public NotAuthorizedException newInstanceForDomainPermissions(Resource accessorResource,
+                                                                    String domainName,
+                                                                    DomainPermission domainPermission,
+                                                                    DomainPermission... domainPermissions) {
+         return newInstance(new Details(Reason.DOMAIN_PERMISSIONS, accessorResource)
+                                  .withDomainName(domainName)
+                                  .withPermissions(domainPermission, domainPermissions));
+      }
+
+      public NotAuthorizedException newInstanceForPostCreateDomainPermissions(Resource accessorResource,
+                                                                              Set<DomainPermission> domainPermissions) {
+         return newInstance(new Details(Reason.POST_CREATE_DOMAIN_PERMISSIONS, accessorResource)
+                                  .withPermissions(domainPermissions));
+      }
+
+      public NotAuthorizedException newInstanceForPostCreateDomainPermissions(Resource accessorResource,
+                                                                              DomainPermission domainPermission,
+                                                                              DomainPermission... domainPermissions) {
+         return newInstance(new Details(Reason.POST_CREATE_DOMAIN_PERMISSIONS, accessorResource)
+                                  .withPermissions(domainPermission, domainPermissions));
+      }
+
+      public NotAuthorizedException newInstanceForResourceCreatePermissions(Resource accessorResource,
+                                                                            Set<ResourceCreatePermission> resourceCreatePermissions) {
+         return newInstance(new Details(Reason.RESOURCE_CREATE_PERMISSIONS, accessorResource)
+                                  .withPermissions(resourceCreatePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForResourceCreatePermissions(Resource accessorResource,
+                                                                            ResourceCreatePermission resourceCreatePermission,
+                                                                            ResourceCreatePermission... resourceCreatePermissions) {
+         return newInstance(new Details(Reason.RESOURCE_CREATE_PERMISSIONS, accessorResource)
+                                  .withPermissions(resourceCreatePermission, resourceCreatePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForResourcePermissions(Resource accessorResource,
+                                                                      Resource accessedResource,
+                                                                      Set<ResourcePermission> resourcePermissions) {
+         return newInstance(new Details(Reason.RESOURCE_PERMISSIONS, accessorResource)
+                                  .withAccessedResource(accessedResource)
+                                  .withPermissions(resourcePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForResourcePermissions(Resource accessorResource,
+                                                                      Resource accessedResource,
+                                                                      ResourcePermission resourcePermission,
+                                                                      ResourcePermission... resourcePermissions) {
+         return newInstance(new Details(Reason.RESOURCE_PERMISSIONS, accessorResource)
+                                  .withAccessedResource(accessedResource)
+                                  .withPermissions(resourcePermission, resourcePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForGlobalResourcePermissions(Resource accessorResource,
+                                                                            String resourceClassName,
+                                                                            String domainName,
+                                                                            Set<ResourcePermission> resourcePermissions) {
+         return newInstance(new Details(Reason.GLOBAL_RESOURCE_PERMISSIONS, accessorResource)
+                                  .withResourceClassName(resourceClassName)
+                                  .withDomainName(domainName)
+                                  .withPermissions(resourcePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForGlobalResourcePermissions(Resource accessorResource,
+                                                                            String resourceClassName,
+                                                                            String domainName,
+                                                                            ResourcePermission resourcePermission,
+                                                                            ResourcePermission... resourcePermissions) {
+         return newInstance(new Details(Reason.GLOBAL_RESOURCE_PERMISSIONS, accessorResource)
+                                  .withResourceClassName(resourceClassName)
+                                  .withDomainName(domainName)
+                                  .withPermissions(resourcePermission, resourcePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForPostCreateResourcePermissions(Resource accessorResource,
+                                                                                String resourceClassName,
+                                                                                String domainName,
+                                                                                Set<ResourcePermission> resourcePermissions) {
+         return newInstance(new Details(Reason.POST_CREATE_RESOURCE_PERMISSIONS, accessorResource)
+                                  .withResourceClassName(resourceClassName)
+                                  .withDomainName(domainName)
+                                  .withPermissions(resourcePermissions));
+      }
+
+      public NotAuthorizedException newInstanceForPostCreateResourcePermissions(Resource accessorResource,
+                                                                                String resourceClassName,
+                                                                                String domainName,
+                                                                                ResourcePermission resourcePermission,
+                                                                                ResourcePermission... resourcePermissions) {
+         return newInstance(new Details(Reason.POST_CREATE_RESOURCE_PERMISSIONS, accessorResource)
+                                  .withResourceClassName(resourceClassName)
+                                  .withDomainName(domainName)
+                                  .withPermissions(resourcePermission, resourcePermissions));
+      }
+
+      private NotAuthorizedException newInstance(Details details) {
+         return new NotAuthorizedException(null, null, stackTraceEnabled, details);
+      }
+   }
+
+   /**
+    * The structured fields of an exception created by a factory method, which are only set before the exception
+    * is created.
+    */
+   private static class Details implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final Reason   reason;
+      private final Resource accessorResource;
+      private Resource       accessedResource;
+      private String         action;
+      private String         resourceClassName;
+      private String         domainName;
+      private List<?>        permissions;
+
+      private Details(Reason reason, Resource accessorResource) {
+         this.reason = reason;
+         this.accessorResource = accessorResource;
+      }
+
+      private Details withAccessedResource(Resource accessedResource) {
+         this.accessedResource = accessedResource;
+         return this;
+      }
+
+      private Details withAction(String action) {
+         this.action = action;
+         return this;
+      }
+
+      private Details withResourceClassName(String resourceClassName) {
+         this.resourceClassName = resourceClassName;
+         return this;
+      }
+
+      private Details withDomainName(String domainName) {
+         this.domainName = domainName;
+         return this;
+      }
+
+      private Details withPermissions(Set<?> permissionSet) {
+         // copy the permissions, so that the exception does not change with the caller's set
+         this.permissions = permissionSet == null
+                            ? null
+                            : Collections.unmodifiableList(new ArrayList<>(permissionSet));
+         return this;
+      }
+
+      private Details withPermissions(Object firstPermission, Object[] otherPermissions) {
+         this.permissions = Collections.unmodifiableList(toList(firstPermission, otherPermissions));
+         return this;
+      }
+
+      private String formatMessage() {
+         switch (reason) {
+            case ACTION:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " is not authorized to "
+                     + action;
+            case ACTION_ON_RESOURCE:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " is not authorized to "
+                     + action
+                     + " resource "
+                     + String.valueOf(accessedResource);
+            case DOMAIN_CREATE_PERMISSIONS:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " does not have domain create permission(s) "
+                     + String.valueOf(permissions);
+            case DOMAIN_PERMISSIONS:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " does not have domain permission(s) "
+                     + String.valueOf(permissions)
+                     + " on domain "
+                     + domainName;
+            case POST_CREATE_DOMAIN_PERMISSIONS:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " is not authorized to receive "
+                     + String.valueOf(permissions)
+                     + " domain permission(s) after creating a domain";
+            case RESOURCE_CREATE_PERMISSIONS:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " does not have resource create permission(s) "
+                     + String.valueOf(permissions);
+            case RESOURCE_PERMISSIONS:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " does not have permission(s) "
+                     + String.valueOf(permissions)
+                     + " on resource "
+                     + String.valueOf(accessedResource);
+            case GLOBAL_RESOURCE_PERMISSIONS:
+               return "Resource "
+                     + String.valueOf(accessorResource)
+                     + " does not have global permission(s) "
+                     + String.valueOf(permissions)
+                     + " on resources of class "
+                     + resourceClassName
+                     + " in domain "
+                     + domainName;
+            case POST_CREATE_RESOURCE_PERMISSIONS:
+               return accessorResource
+                     + "receive "
+                     + String.valueOf(permissions)
+                     + " permission(s) after creating a "
+                     + resourceClassName
+                     + " resource in domain "
+                     + domainName;
+            default:
+               throw new IllegalStateException("Unsupported reason: " + reason);
+         }
+      }
+   }
 
    /**
-    * Returns a String representation of the specified vararg sequence with a mandatory first element.
+    * Returns a list of the specified vararg sequence with a mandatory first element.
     *
     * <pre><code>
     *    first | others    | result*
@@ -226,10 +554,10 @@ public class NotAuthorizedException extends AuthorizationException {
     *    a     | [b, a]    | [a, b, a]
     *    a     | [b, null] | [a, b, null]
     * </code></pre>
-    * (*) the returned String representation will not guarantee any order of elements and will not de-duplicate
+    * (*) the returned list will not guarantee any order of elements and will not de-duplicate
     */
    @SafeVarargs
-   private static <T> String toString(T first, T... others) {
+   private static <T> List<T> toList(T first, T... others) {
       List<T> resultList;
 
       if (others == null) {
@@ -243,6 +571,6 @@ public class NotAuthorizedException extends AuthorizationException {
 
       resultList.add(first);
 
-      return resultList.toString();
+      return resultList;
    }
-}
\ No newline at end of file
+}
@@ -31,4 +31,11 @@ public class OaccException extends RuntimeException {
    public OaccException(Throwable cause) {
       super(cause);
    }
+
+   protected OaccException(String message,
+                           Throwable cause,
+                           boolean enableSuppression,
+                           boolean writableStackTrace) {
+      super(message, cause, enableSuppression, writableStackTrace);
+   }
 }
\ No newline at end of file
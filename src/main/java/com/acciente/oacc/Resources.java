@@ -64,16 +64,17 @@ public class Resources {
          if (this == other) {
             return true;
          }
-         if (other == null || getClass() != other.getClass()) {
+         // resources resolved by OACC use their own implementation, but are equal to a resource built here
+         if (!(other instanceof Resource)) {
             return false;
          }
 
-         ResourceImpl otherResource = (ResourceImpl) other;
+         Resource otherResource = (Resource) other;
 
-         if (resourceId != null ? !resourceId.equals(otherResource.resourceId) : otherResource.resourceId != null) {
+         if (resourceId != null ? !resourceId.equals(otherResource.getId()) : otherResource.getId() != null) {
             return false;
          }
-         return !(externalId != null ? !externalId.equals(otherResource.externalId) : otherResource.externalId != null);
+         return !(externalId != null ? !externalId.equals(otherResource.getExternalId()) : otherResource.getExternalId() != null);
       }
 
       @Override
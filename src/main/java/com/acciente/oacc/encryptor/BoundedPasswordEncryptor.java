@@ -0,0 +1,313 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.encryptor;
+
+import java.io.Serializable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A password encryptor that runs the hashing of another password encryptor on a dedicated, bounded pool of threads,
+ * so that a burst of authentication attempts cannot occupy more than a fixed share of the CPU.
+ * <p/>
+ * At most <code>maxConcurrentHashes</code> passwords are hashed at the same time, and at most
+ * <code>queueCapacity</code> further requests wait for a hashing thread. Requests beyond that are rejected right
+ * away, and requests that did not complete within <code>timeoutMillis</code> fail, in both cases with a
+ * {@link PasswordHashingRejectedException}. The calling thread blocks until its password was hashed.
+ * <p/>
+ * All access control contexts created with the same instance share its pool. The pool is not serialized, so a
+ * deserialized instance creates its own pool on first use. The pool threads are daemon threads, and may be stopped
+ * with {@link #shutdown()}.
+ * <p/>
+ * Inspecting the format of a stored password does not hash, and is therefore delegated directly, without the pool.
+ */
+public class BoundedPasswordEncryptor implements RehashAwarePasswordEncryptor, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final AtomicInteger poolCount = new AtomicInteger();
+
+   private final PasswordEncryptor passwordEncryptor;
+   private final int               maxConcurrentHashes;
+   private final int               queueCapacity;
+   private final long              timeoutMillis;
+
+   private transient volatile ThreadPoolExecutor executor;
+   private transient volatile boolean            isShutdown;
+
+   // statistics
+   private final AtomicLong completedCount = new AtomicLong();
+   private final AtomicLong rejectedCount  = new AtomicLong();
+   private final AtomicLong timedOutCount  = new AtomicLong();
+   private final AtomicLong totalWaitNanos = new AtomicLong();
+   private final AtomicLong totalHashNanos = new AtomicLong();
+
+   /**
+    * Returns a password encryptor that runs the hashing of the specified password encryptor on a bounded pool.
+    *
+    * @param passwordEncryptor   the password encryptor that hashes and checks the passwords
+    * @param maxConcurrentHashes the number of pool threads, i.e. the number of CPUs that hashing may occupy
+    * @param queueCapacity       the number of requests that may wait for a pool thread, or 0 to reject all requests
+    *                            that find no idle pool thread
+    * @param timeoutMillis       the time after which a request that is still waiting or hashing fails
+    * @return a BoundedPasswordEncryptor instance configured as described above.
+    * @throws IllegalArgumentException if maxConcurrentHashes is less than one, queueCapacity is negative, or
+    *                                  timeoutMillis is not positive
+    */
+   public static BoundedPasswordEncryptor newInstance(PasswordEncryptor passwordEncryptor,
+                                                      int maxConcurrentHashes,
+                                                      int queueCapacity,
+                                                      long timeoutMillis) {
+      if (passwordEncryptor == null) {
+         throw new IllegalArgumentException("PasswordEncryptor required, none specified");
+      }
+      if (maxConcurrentHashes < 1) {
+         throw new IllegalArgumentException("Max concurrent hashes must be at least 1");
+      }
+      if (queueCapacity < 0) {
+         throw new IllegalArgumentException("Queue capacity cannot be negative");
+      }
+      if (timeoutMillis <= 0) {
+         throw new IllegalArgumentException("Timeout must be positive");
+      }
+      return new BoundedPasswordEncryptor(passwordEncryptor, maxConcurrentHashes, queueCapacity, timeoutMillis);
+   }
+
+   private BoundedPasswordEncryptor(PasswordEncryptor passwordEncryptor,
+                                    int maxConcurrentHashes,
+                                    int queueCapacity,
+                                    long timeoutMillis) {
+      this.passwordEncryptor = passwordEncryptor;
+      this.maxConcurrentHashes = maxConcurrentHashes;
+      this.queueCapacity = queueCapacity;
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   @Override
+   public String encryptPassword(final char[] password) {
+      return execute(new Callable<String>() {
+         @Override
+         public String call() {
+            return passwordEncryptor.encryptPassword(password);
+         }
+      });
+   }
+
+   @Override
+   public boolean checkPassword(final char[] plainPassword, final String encryptedPassword) {
+      return execute(new Callable<Boolean>() {
+         @Override
+         public Boolean call() {
+            return passwordEncryptor.checkPassword(plainPassword, encryptedPassword);
+         }
+      });
+   }
+
+   @Override
+   public boolean isPasswordFormatRecognized(String encryptedPassword) {
+      if (passwordEncryptor instanceof RehashAwarePasswordEncryptor) {
+         return ((RehashAwarePasswordEncryptor) passwordEncryptor).isPasswordFormatRecognized(encryptedPassword);
+      }
+      return true;
+   }
+
+   @Override
+   public boolean isRehashNeeded(String encryptedPassword) {
+      if (passwordEncryptor instanceof RehashAwarePasswordEncryptor) {
+         return ((RehashAwarePasswordEncryptor) passwordEncryptor).isRehashNeeded(encryptedPassword);
+      }
+      return false;
+   }
+
+   /**
+    * Returns the number of requests currently waiting for a pool thread.
+    *
+    * @return the queue depth
+    */
+   public int getQueueDepth() {
+      final ThreadPoolExecutor executor = this.executor;
+      return executor == null ? 0 : executor.getQueue().size();
+   }
+
+   /**
+    * Returns the number of passwords currently being hashed.
+    *
+    * @return the number of busy pool threads
+    */
+   public int getActiveCount() {
+      final ThreadPoolExecutor executor = this.executor;
+      return executor == null ? 0 : executor.getActiveCount();
+   }
+
+   public long getCompletedCount() {
+      return completedCount.get();
+   }
+
+   public long getRejectedCount() {
+      return rejectedCount.get();
+   }
+
+   public long getTimedOutCount() {
+      return timedOutCount.get();
+   }
+
+   /**
+    * Returns the mean time that completed requests waited for a pool thread.
+    *
+    * @return the mean queue wait, in microseconds
+    */
+   public long getMeanQueueWaitMicros() {
+      final long completed = completedCount.get();
+      return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get() / completed);
+   }
+
+   /**
+    * Returns the mean time that completed requests took to hash their password.
+    *
+    * @return the mean hashing time, in microseconds
+    */
+   public long getMeanHashMicros() {
+      final long completed = completedCount.get();
+      return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalHashNanos.get() / completed);
+   }
+
+   /**
+    * Stops the pool threads after the pending requests were processed. Subsequent requests are rejected.
+    */
+   public synchronized void shutdown() {
+      isShutdown = true;
+      if (executor != null) {
+         executor.shutdown();
+      }
+   }
+
+   private <T> T execute(final Callable<T> hashing) {
+      final long submittedAt = System.nanoTime();
+
+      final ThreadPoolExecutor executor;
+      final Future<T> future;
+      try {
+         executor = getExecutor();
+         future = executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+               final long startedAt = System.nanoTime();
+               try {
+                  return hashing.call();
+               }
+               finally {
+                  final long completedAt = System.nanoTime();
+                  totalWaitNanos.addAndGet(startedAt - submittedAt);
+                  totalHashNanos.addAndGet(completedAt - startedAt);
+                  completedCount.incrementAndGet();
+               }
+            }
+         });
+      }
+      catch (RejectedExecutionException e) {
+         rejectedCount.incrementAndGet();
+         if (isShutdown) {
+            throw new PasswordHashingRejectedException("Password hashing rejected, the encryptor was shut down", e);
+         }
+         throw new PasswordHashingRejectedException("Password hashing rejected, "
+                                                          + queueCapacity
+                                                          + " requests already waiting", e);
+      }
+
+      try {
+         return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e) {
+         // a request that has not started yet is removed from the queue; one that has started runs to completion
+         future.cancel(false);
+         executor.remove((Runnable) future);
+         timedOutCount.incrementAndGet();
+         throw new PasswordHashingRejectedException("Password hashing timed out after " + timeoutMillis + " ms", e);
+      }
+      catch (InterruptedException e) {
+         future.cancel(false);
+         executor.remove((Runnable) future);
+         Thread.currentThread().interrupt();
+         throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing", e);
+      }
+      catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new IllegalStateException(cause);
+      }
+   }
+
+   private ThreadPoolExecutor getExecutor() {
+      ThreadPoolExecutor executor = this.executor;
+      if (executor == null) {
+         synchronized (this) {
+            executor = this.executor;
+            if (executor == null) {
+               if (isShutdown) {
+                  // do not start a pool after the encryptor was shut down
+                  throw new RejectedExecutionException("Encryptor was shut down");
+               }
+               this.executor = executor = newExecutor();
+            }
+         }
+      }
+      return executor;
+   }
+
+   private ThreadPoolExecutor newExecutor() {
+      final String threadNamePrefix = "oacc-password-hashing-" + poolCount.incrementAndGet() + "-";
+      final ThreadPoolExecutor executor
+            = new ThreadPoolExecutor(maxConcurrentHashes,
+                                     maxConcurrentHashes,
+                                     60,
+                                     TimeUnit.SECONDS,
+                                     queueCapacity == 0
+                                     // only hand off to an idle thread, without any waiting requests
+                                     ? new SynchronousQueue<Runnable>()
+                                     : new ArrayBlockingQueue<Runnable>(queueCapacity),
+                                     new ThreadFactory() {
+                                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                                        @Override
+                                        public Thread newThread(Runnable runnable) {
+                                           final Thread thread
+                                                 = new Thread(runnable,
+                                                              threadNamePrefix + threadCount.incrementAndGet());
+                                           thread.setDaemon(true);
+                                           return thread;
+                                        }
+                                     });
+      // let idle hashing threads terminate, so that an idle encryptor does not hold on to threads
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+   }
+}
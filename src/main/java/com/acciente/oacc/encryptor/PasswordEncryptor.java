@@ -51,6 +51,8 @@ package com.acciente.oacc.encryptor;
  *    <li>{@link com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor#newInstance(int)
  *      newInstance(int costFactor)}</li>
  *    </ul>
+ *    The cost factor for a target hashing latency on the current host can be determined with
+ *    {@link com.acciente.oacc.encryptor.bcrypt.BCryptCostFactorCalibrator BCryptCostFactorCalibrator}.
  * </li>
  * <li>{@link TransitioningPasswordEncryptor} - provides a means to transition from
  *    an existing encryption scheme to a new one in an environment where OACC was
@@ -62,7 +64,19 @@ package com.acciente.oacc.encryptor;
  *      newInstance(PasswordEncryptor new, PasswordEncryptor old)}</li>
  *    </ul>
  * </li>
+ * <li>{@link BoundedPasswordEncryptor} - runs the hashing of another password encryptor on a
+ *    dedicated, bounded pool of threads, so that bursts of authentication attempts cannot starve
+ *    other work. The pool can be configured with the following static factory method:
+ *    <ul>
+ *    <li>{@link BoundedPasswordEncryptor#newInstance(PasswordEncryptor, int, int, long)
+ *      newInstance(PasswordEncryptor passwordEncryptor, int maxConcurrentHashes, int queueCapacity,
+ *      long timeoutMillis)}</li>
+ *    </ul>
+ * </li>
  * </ul>
+ * The password encryptors above also implement {@link RehashAwarePasswordEncryptor}, which lets the built-in
+ * authentication providers upgrade stored password hashes with outdated formats or settings on the next
+ * successful authentication.
  */
 public interface PasswordEncryptor {
    /**
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.encryptor;
+
+import com.acciente.oacc.OaccException;
+
+/**
+ * Thrown by a {@link BoundedPasswordEncryptor} when a password could not be hashed because the hashing pool was
+ * saturated, or because the hash did not complete within the configured timeout.
+ */
+public class PasswordHashingRejectedException extends OaccException {
+   private static final long serialVersionUID = 1L;
+
+   public PasswordHashingRejectedException(String message) {
+      super(message);
+   }
+
+   public PasswordHashingRejectedException(String message, Throwable cause) {
+      super(message, cause);
+   }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.encryptor;
+
+/**
+ * A password encryptor that can tell from the header of a stored password hash whether it created the hash, and
+ * whether the hash was created with its current settings.
+ * <p/>
+ * The built-in authentication providers use this information to re-encrypt a stored password hash with the current
+ * settings after the next successful authentication with that password, for example to upgrade legacy hashes
+ * during a transition to a new password encryptor, or after increasing a cost factor.
+ */
+public interface RehashAwarePasswordEncryptor extends PasswordEncryptor {
+   /**
+    * Checks if the specified encrypted password has the format of the password hashes created by this encryptor.
+    * <p/>
+    * This check only inspects the header of the encrypted password and does not verify the hash itself.
+    *
+    * @param encryptedPassword the encrypted password to inspect
+    * @return true if {@link #checkPassword(char[], String)} can check a password against the encrypted password,
+    * false otherwise.
+    */
+   boolean isPasswordFormatRecognized(String encryptedPassword);
+
+   /**
+    * Checks if the specified encrypted password should be replaced by a new hash of the same password, because it
+    * was not created by this encryptor, or was created with different settings than the current ones.
+    *
+    * @param encryptedPassword the encrypted password of a successfully checked password
+    * @return true if the password should be re-encrypted with {@link #encryptPassword(char[])}, false otherwise.
+    */
+   boolean isRehashNeeded(String encryptedPassword);
+}
@@ -24,17 +24,23 @@ import java.io.Serializable;
  * The purpose of this password encryptor is to provide a means to transition from an existing (aka "old") password
  * encryptor to a new password encryptor in an environment where OACC is already deployed -- where existing passwords
  * in the tables are encrypted using the old password encryptor.
+ * <p/>
+ * If the new password encryptor is a {@link RehashAwarePasswordEncryptor}, this password encryptor tells the
+ * password formats apart by their header, and reports all passwords not created by the new password encryptor as
+ * needing a rehash, so that the built-in authentication providers upgrade them on the next successful authentication.
  */
-public class TransitioningPasswordEncryptor implements PasswordEncryptor, Serializable {
+public class TransitioningPasswordEncryptor implements RehashAwarePasswordEncryptor, Serializable {
    private final PasswordEncryptor newPasswordEncryptor;
    private final PasswordEncryptor oldPasswordEncryptor;
 
    /**
     * Creates a password encryptor that delegates all password hash encryption to the password encryptor provided in the
     * <code>newPasswordEncryptor</code> parameter. For decryption/comparison of existing passwords this password
-    * encryptor first delegates to the password encryptor provided in the <code>newPasswordEncryptor</code> parameter if
-    * that attempts fails by throwing an {@link IllegalArgumentException}, this password encryptor retries by
-    * delegating to the password encryptor provided in the <code>oldPasswordEncryptor</code> parameter.
+    * encryptor delegates to the password encryptor provided in the <code>newPasswordEncryptor</code> parameter if
+    * that encryptor is a {@link RehashAwarePasswordEncryptor} that recognizes the format of the existing password,
+    * and otherwise to the password encryptor provided in the <code>oldPasswordEncryptor</code> parameter. If the new
+    * password encryptor cannot recognize password formats, this password encryptor first delegates to it, and if
+    * that attempt fails by throwing an {@link IllegalArgumentException}, retries by delegating to the old one.
     *
     * @param newPasswordEncryptor the new password encryptor to use for hashing all new passwords hashes for storage
     * @param oldPasswordEncryptor the password encryptor that was to hash the passwords already stored in the tables, in
@@ -61,6 +67,14 @@ public class TransitioningPasswordEncryptor implements PasswordEncryptor, Serial
 
    @Override
    public boolean checkPassword(char[] plainPassword, String encryptedPassword) {
+      if (newPasswordEncryptor instanceof RehashAwarePasswordEncryptor && encryptedPassword != null) {
+         // route by the password header, instead of paying for a failed attempt on every old password
+         if (isRecognizedByNewPasswordEncryptor(encryptedPassword)) {
+            return newPasswordEncryptor.checkPassword(plainPassword, encryptedPassword);
+         }
+         return oldPasswordEncryptor.checkPassword(plainPassword, encryptedPassword);
+      }
+
       try {
          // first try the new password encryptor, this will work if the password was created by new password encryptor
          return newPasswordEncryptor.checkPassword(plainPassword, encryptedPassword);
@@ -71,4 +85,37 @@ public class TransitioningPasswordEncryptor implements PasswordEncryptor, Serial
          return oldPasswordEncryptor.checkPassword(plainPassword, encryptedPassword);
       }
    }
+
+   @Override
+   public boolean isPasswordFormatRecognized(String encryptedPassword) {
+      if (isRecognizedByNewPasswordEncryptor(encryptedPassword)) {
+         return true;
+      }
+      if (oldPasswordEncryptor instanceof RehashAwarePasswordEncryptor) {
+         return ((RehashAwarePasswordEncryptor) oldPasswordEncryptor).isPasswordFormatRecognized(encryptedPassword);
+      }
+      // the old password encryptor might use any format, e.g. a legacy format without header
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * A password needs to be re-encrypted if it was not created by the new password encryptor, or if the new password
+    * encryptor reports that it needs to be re-encrypted. If the new password encryptor is not a
+    * {@link RehashAwarePasswordEncryptor}, the password formats cannot be told apart, and this method always
+    * returns false.
+    */
+   @Override
+   public boolean isRehashNeeded(String encryptedPassword) {
+      if (!(newPasswordEncryptor instanceof RehashAwarePasswordEncryptor)) {
+         return false;
+      }
+      return ((RehashAwarePasswordEncryptor) newPasswordEncryptor).isRehashNeeded(encryptedPassword);
+   }
+
+   private boolean isRecognizedByNewPasswordEncryptor(String encryptedPassword) {
+      return newPasswordEncryptor instanceof RehashAwarePasswordEncryptor
+            && ((RehashAwarePasswordEncryptor) newPasswordEncryptor).isPasswordFormatRecognized(encryptedPassword);
+   }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.encryptor.bcrypt;
+
+import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
+
+/**
+ * Benchmarks the OpenBSD BCrypt implementation on the current host to find the cost factor for a
+ * {@link BCryptPasswordEncryptor} that keeps the time to hash a password within a target latency.
+ * <p/>
+ * Each increment of the cost factor doubles the hashing time, so the calibration times a couple of hashes per cost
+ * factor, starting at the minimum cost factor, and stops at the first cost factor whose successor would exceed the
+ * target. The calibration therefore takes about four times the target latency, plus a short warm-up. The result depends on the
+ * load of the host at the time of the calibration, and should be calibrated on hardware that is representative of
+ * the production hosts.
+ */
+public class BCryptCostFactorCalibrator {
+   private static final char[] SAMPLE_PASSWORD = "calibration-sample-password".toCharArray();
+   private static final int    WARM_UP_COUNT   = 8;
+   private static final int    SAMPLE_COUNT    = 2;
+
+   private BCryptCostFactorCalibrator() {
+   }
+
+   /**
+    * Returns the highest BCrypt cost factor for which hashing a password on this host takes no longer than the
+    * specified target latency, or the minimum cost factor of 4 if even that exceeds the target latency.
+    *
+    * @param targetLatencyMillis the maximum time that hashing a single password should take, in milliseconds
+    * @return the calibrated cost factor, between 4 and 31 (inclusive).
+    * @throws IllegalArgumentException if the target latency is not positive
+    */
+   public static int calibrateCostFactor(long targetLatencyMillis) {
+      if (targetLatencyMillis <= 0) {
+         throw new IllegalArgumentException("Target latency must be positive");
+      }
+
+      // warm up the JIT compiler, so that the first measurements are not inflated by interpreted code
+      for (int i = 0; i < WARM_UP_COUNT; i++) {
+         OpenBSDBCrypt.generate(SAMPLE_PASSWORD, BCryptPasswordEncryptor.gensalt(),
+                                BCryptPasswordEncryptor.BCRYPT_COST_FACTOR_MIN);
+      }
+
+      final long targetLatencyNanos = targetLatencyMillis * 1000000L;
+
+      int costFactor = BCryptPasswordEncryptor.BCRYPT_COST_FACTOR_MIN;
+      long latencyNanos = measureHashNanos(costFactor);
+      // the next cost factor takes twice as long, so only step up while that still meets the target
+      while (costFactor < BCryptPasswordEncryptor.BCRYPT_COST_FACTOR_MAX && latencyNanos * 2 <= targetLatencyNanos) {
+         costFactor++;
+         latencyNanos = measureHashNanos(costFactor);
+      }
+
+      // a measurement may overshoot the doubling estimate, e.g. on a busy host
+      if (latencyNanos > targetLatencyNanos && costFactor > BCryptPasswordEncryptor.BCRYPT_COST_FACTOR_MIN) {
+         costFactor--;
+      }
+
+      return costFactor;
+   }
+
+   /**
+    * Returns a BCrypt password encryptor with the cost factor calibrated for the specified target latency, as
+    * described in {@link #calibrateCostFactor(long)}.
+    *
+    * @param targetLatencyMillis the maximum time that hashing a single password should take, in milliseconds
+    * @return a BCryptPasswordEncryptor instance with the calibrated cost factor.
+    * @throws IllegalArgumentException if the target latency is not positive
+    */
+   public static BCryptPasswordEncryptor newCalibratedPasswordEncryptor(long targetLatencyMillis) {
+      return BCryptPasswordEncryptor.newInstance(calibrateCostFactor(targetLatencyMillis));
+   }
+
+   private static long measureHashNanos(int costFactor) {
+      // use the fastest of a few samples to filter out pauses caused by other work on the host
+      long minNanos = Long.MAX_VALUE;
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+         final long start = System.nanoTime();
+         OpenBSDBCrypt.generate(SAMPLE_PASSWORD, BCryptPasswordEncryptor.gensalt(), costFactor);
+         minNanos = Math.min(minNanos, System.nanoTime() - start);
+      }
+      return minNanos;
+   }
+}
@@ -17,7 +17,7 @@
  */
 package com.acciente.oacc.encryptor.bcrypt;
 
-import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.RehashAwarePasswordEncryptor;
 import com.acciente.oacc.normalizer.TextNormalizer;
 import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
 
@@ -27,14 +27,17 @@ import java.security.SecureRandom;
 /**
  * Password encryptor implementation that uses the OpenBSD BCrypt algorithm for creating password hashes.
  */
-public class BCryptPasswordEncryptor implements PasswordEncryptor, Serializable {
+public class BCryptPasswordEncryptor implements RehashAwarePasswordEncryptor, Serializable {
    private static final long serialVersionUID = 1L;
 
    public static final String NAME = "bcrypt";
 
-   private static final int BCRYPT_COST_FACTOR_MIN = 4;
-   private static final int BCRYPT_COST_FACTOR_MAX = 31;
-   private static final int BCRYPT_SALT_SIZE       = 16;
+   static final int BCRYPT_COST_FACTOR_MIN = 4;
+   static final int BCRYPT_COST_FACTOR_MAX = 31;
+   static final int BCRYPT_SALT_SIZE       = 16;
+
+   // the cost factor is the two digits that follow the version in "$2y$10$..."
+   private static final int BCRYPT_COST_FACTOR_OFFSET = 4;
 
    private static final PasswordEncoderDecoder passwordEncoderDecoder = new PasswordEncoderDecoder();
    private static final SecureRandom           secureRandom           = new SecureRandom();
@@ -84,6 +87,24 @@ public class BCryptPasswordEncryptor implements PasswordEncryptor, Serializable
       return OpenBSDBCrypt.checkPassword(bcryptString, normalizedChars);
    }
 
+   @Override
+   public boolean isPasswordFormatRecognized(String encryptedPassword) {
+      return passwordEncoderDecoder.isEncoded(encryptedPassword);
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * A BCrypt password hash needs to be re-encrypted if its cost factor differs from the cost factor of this instance.
+    */
+   @Override
+   public boolean isRehashNeeded(String encryptedPassword) {
+      if (!passwordEncoderDecoder.isEncoded(encryptedPassword)) {
+         return true;
+      }
+      return getCostFactor(passwordEncoderDecoder.decode(encryptedPassword)) != costFactor;
+   }
+
    /**
     * Returns the cost factor in use by this instance.
     *
@@ -93,7 +114,16 @@ public class BCryptPasswordEncryptor implements PasswordEncryptor, Serializable
       return costFactor;
    }
 
-   private static byte[] gensalt() {
+   private static int getCostFactor(String bcryptString) {
+      try {
+         return Integer.parseInt(bcryptString.substring(BCRYPT_COST_FACTOR_OFFSET, BCRYPT_COST_FACTOR_OFFSET + 2));
+      }
+      catch (IndexOutOfBoundsException | NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   static byte[] gensalt() {
       final byte[] saltBytes = new byte[BCRYPT_SALT_SIZE];
       secureRandom.nextBytes(saltBytes);
       return saltBytes;
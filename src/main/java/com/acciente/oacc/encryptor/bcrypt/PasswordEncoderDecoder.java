@@ -36,6 +36,16 @@ public class PasswordEncoderDecoder {
 
    }
 
+   /**
+    * Checks if the specified password was encoded by {@link #encode(String)}.
+    *
+    * @param encodedPassword the password to check.
+    * @return true if the password has the header of an encoded BCrypt password, false otherwise.
+    */
+   boolean isEncoded(String encodedPassword) {
+      return encodedPassword != null && encodedPassword.startsWith(MARKER);
+   }
+
    /**
     * Decodes the encoded BCrypt string (OpenBSD standard BCrypt hash implementation) from an encoded password.
     *
@@ -17,7 +17,7 @@
  */
 package com.acciente.oacc.encryptor.jasypt;
 
-import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.RehashAwarePasswordEncryptor;
 import com.acciente.oacc.normalizer.TextNormalizer;
 
 import java.io.Serializable;
@@ -29,7 +29,7 @@ import java.util.Arrays;
 /**
  * Password encryptor implementation that uses the Jasypt digester for creating password hashes.
  */
-public final class JasyptPasswordEncryptor implements PasswordEncryptor, Serializable {
+public final class JasyptPasswordEncryptor implements RehashAwarePasswordEncryptor, Serializable {
    private static final long serialVersionUID = 1L;
 
    public static final String NAME = "jasypt";
@@ -95,6 +95,29 @@ public final class JasyptPasswordEncryptor implements PasswordEncryptor, Seriali
             .matches(getCleanedBytes(plainPassword), decodedPassword.getDigest());
    }
 
+   @Override
+   public boolean isPasswordFormatRecognized(String encryptedPassword) {
+      return passwordEncoderDecoder.isEncoded(encryptedPassword);
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * A Jasypt password hash needs to be re-encrypted if its algorithm, iterations or salt size differ from the
+    * settings of this instance.
+    */
+   @Override
+   public boolean isRehashNeeded(String encryptedPassword) {
+      if (!passwordEncoderDecoder.isEncoded(encryptedPassword)) {
+         return true;
+      }
+
+      final DecodedPassword decodedPassword = passwordEncoderDecoder.decode(encryptedPassword);
+      return !(algorithm.equals(decodedPassword.getAlgorithm())
+            && iterations == decodedPassword.getIterations()
+            && saltSizeBytes == decodedPassword.getSaltSizeBytes());
+   }
+
    private static byte[] getCleanedBytes(char[] password) {
       final char[] normalizedChars = TextNormalizer.getInstance().normalizeToNfc(password);
       final ByteBuffer byteBuffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(normalizedChars));
@@ -68,6 +68,16 @@ class PasswordEncoderDecoder {
       return encodedPassword.toString();
    }
 
+   /**
+    * Checks if the specified password was encoded by {@link #encode(String, int, int, byte[])}.
+    *
+    * @param encodedPassword the password to check.
+    * @return true if the password has the header of an encoded Jasypt password, false otherwise.
+    */
+   boolean isEncoded(String encodedPassword) {
+      return encodedPassword != null && encodedPassword.startsWith(MARKER);
+   }
+
    /**
     * Decodes a previously encoded Jasypt password into its constituent parts (algorithm, iterations, salt size, digest).
     *
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.internal;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of primitive long values, that uses open addressing with linear probing.
+ * <p/>
+ * Unlike a <code>HashSet&lt;Long&gt;</code>, this set does not box its elements and does not allocate an entry
+ * object per element. This class is not thread-safe.
+ */
+public class LongHashSet {
+   private static final long  FREE         = Long.MIN_VALUE;
+   private static final float LOAD_FACTOR  = 0.6f;
+
+   private long[]  elements;
+   private boolean containsFree;
+   private int     size;
+   private int     resizeThreshold;
+
+   public LongHashSet() {
+      this(0);
+   }
+
+   public LongHashSet(int expectedSize) {
+      allocate(LongObjectHashMap.capacityFor(expectedSize));
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   public boolean contains(long element) {
+      if (element == FREE) {
+         return containsFree;
+      }
+      return elements[indexOf(element)] == element;
+   }
+
+   public boolean add(long element) {
+      if (element == FREE) {
+         if (containsFree) {
+            return false;
+         }
+         containsFree = true;
+         size++;
+         return true;
+      }
+
+      final int index = indexOf(element);
+      if (elements[index] == element) {
+         return false;
+      }
+
+      elements[index] = element;
+      if (++size > resizeThreshold) {
+         allocateAndRehash(elements.length << 1);
+      }
+      return true;
+   }
+
+   public void addAll(long[] elementsToAdd) {
+      for (long element : elementsToAdd) {
+         add(element);
+      }
+   }
+
+   public boolean remove(long element) {
+      if (element == FREE) {
+         if (!containsFree) {
+            return false;
+         }
+         containsFree = false;
+         size--;
+         return true;
+      }
+
+      int index = indexOf(element);
+      if (elements[index] != element) {
+         return false;
+      }
+
+      // shift back the elements that follow in the same probe sequence, so that no lookup hits a free slot early
+      final int mask = elements.length - 1;
+      int nextIndex = (index + 1) & mask;
+      while (elements[nextIndex] != FREE) {
+         final int homeIndex = LongObjectHashMap.hash(elements[nextIndex]) & mask;
+         if (((nextIndex - homeIndex) & mask) >= ((nextIndex - index) & mask)) {
+            elements[index] = elements[nextIndex];
+            index = nextIndex;
+         }
+         nextIndex = (nextIndex + 1) & mask;
+      }
+      elements[index] = FREE;
+      size--;
+      return true;
+   }
+
+   /**
+    * Returns a copy of the elements of this set, in no particular order.
+    */
+   public long[] toArray() {
+      final long[] result = new long[size];
+      int resultIndex = 0;
+      if (containsFree) {
+         result[resultIndex++] = FREE;
+      }
+      for (long element : elements) {
+         if (element != FREE) {
+            result[resultIndex++] = element;
+         }
+      }
+      return result;
+   }
+
+   private int indexOf(long element) {
+      final int mask = elements.length - 1;
+      int index = LongObjectHashMap.hash(element) & mask;
+      while (elements[index] != FREE && elements[index] != element) {
+         index = (index + 1) & mask;
+      }
+      return index;
+   }
+
+   private void allocate(int capacity) {
+      elements = new long[capacity];
+      Arrays.fill(elements, FREE);
+      resizeThreshold = (int) (capacity * LOAD_FACTOR);
+   }
+
+   private void allocateAndRehash(int capacity) {
+      final long[] oldElements = elements;
+
+      allocate(capacity);
+
+      for (long element : oldElements) {
+         if (element != FREE) {
+            elements[indexOf(element)] = element;
+         }
+      }
+   }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from primitive long keys to non-null object values, that uses open addressing with linear probing.
+ * <p/>
+ * Unlike a <code>HashMap&lt;Long, V&gt;</code>, this map does not box its keys and does not allocate an entry
+ * object per mapping. This class is not thread-safe.
+ */
+public class LongObjectHashMap<V> {
+   private static final int   MIN_CAPACITY = 8;
+   private static final float LOAD_FACTOR  = 0.6f;
+
+   private long[]   keys;
+   private Object[] values;
+   private int      size;
+   private int      resizeThreshold;
+
+   public LongObjectHashMap() {
+      this(MIN_CAPACITY);
+   }
+
+   public LongObjectHashMap(int expectedSize) {
+      allocate(capacityFor(expectedSize));
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   public boolean containsKey(long key) {
+      return values[indexOf(key)] != null;
+   }
+
+   @SuppressWarnings("unchecked")
+   public V get(long key) {
+      return (V) values[indexOf(key)];
+   }
+
+   @SuppressWarnings("unchecked")
+   public V put(long key, V value) {
+      if (value == null) {
+         throw new NullPointerException("Value required, none specified");
+      }
+
+      final int index = indexOf(key);
+      final V previousValue = (V) values[index];
+
+      keys[index] = key;
+      values[index] = value;
+
+      if (previousValue == null && ++size > resizeThreshold) {
+         allocateAndRehash(keys.length << 1);
+      }
+
+      return previousValue;
+   }
+
+   @SuppressWarnings("unchecked")
+   public V remove(long key) {
+      int index = indexOf(key);
+      final V previousValue = (V) values[index];
+
+      if (previousValue != null) {
+         // shift back the entries that follow in the same probe sequence, so that no lookup hits an empty slot early
+         final int mask = keys.length - 1;
+         int nextIndex = (index + 1) & mask;
+         while (values[nextIndex] != null) {
+            final int homeIndex = hash(keys[nextIndex]) & mask;
+            if (((nextIndex - homeIndex) & mask) >= ((nextIndex - index) & mask)) {
+               keys[index] = keys[nextIndex];
+               values[index] = values[nextIndex];
+               index = nextIndex;
+            }
+            nextIndex = (nextIndex + 1) & mask;
+         }
+         values[index] = null;
+         size--;
+      }
+
+      return previousValue;
+   }
+
+   public void clear() {
+      Arrays.fill(values, null);
+      size = 0;
+   }
+
+   /**
+    * Returns a copy of the keys of this map, in no particular order.
+    */
+   public long[] keys() {
+      final long[] result = new long[size];
+      int resultIndex = 0;
+      for (int i = 0; i < values.length; i++) {
+         if (values[i] != null) {
+            result[resultIndex++] = keys[i];
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Returns a copy of the values of this map, in no particular order.
+    */
+   @SuppressWarnings("unchecked")
+   public List<V> values() {
+      final List<V> result = new ArrayList<>(size);
+      for (Object value : values) {
+         if (value != null) {
+            result.add((V) value);
+         }
+      }
+      return result;
+   }
+
+   private int indexOf(long key) {
+      final int mask = keys.length - 1;
+      int index = hash(key) & mask;
+      while (values[index] != null && keys[index] != key) {
+         index = (index + 1) & mask;
+      }
+      return index;
+   }
+
+   private void allocate(int capacity) {
+      keys = new long[capacity];
+      values = new Object[capacity];
+      resizeThreshold = (int) (capacity * LOAD_FACTOR);
+   }
+
+   private void allocateAndRehash(int capacity) {
+      final long[] oldKeys = keys;
+      final Object[] oldValues = values;
+
+      allocate(capacity);
+
+      for (int i = 0; i < oldValues.length; i++) {
+         if (oldValues[i] != null) {
+            final int index = indexOf(oldKeys[i]);
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+         }
+      }
+   }
+
+   /**
+    * Returns the power-of-two table capacity that holds the specified number of entries below the load factor.
+    */
+   public static int capacityFor(int expectedSize) {
+      int capacity = MIN_CAPACITY;
+      while (capacity * LOAD_FACTOR < expectedSize) {
+         capacity <<= 1;
+      }
+      return capacity;
+   }
+
+   /**
+    * Returns the hash of the specified key, which spreads sequential ids evenly over a power-of-two table.
+    */
+   public static int hash(long key) {
+      final long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+   }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.memory.internal.MemoryPasswordAuthenticationProvider;
+import com.acciente.oacc.memory.internal.MemoryPersisterSet;
+import com.acciente.oacc.sql.internal.SQLAccessControlContext;
+
+/**
+ * The factory that provides OACC's AccessControlContext implementation backed by a {@link MemoryAccessControlStore}
+ * instead of a database.
+ * <p/>
+ * The returned contexts implement the same semantics as the database-backed contexts. They can be serialized,
+ * but only deserialized in the JVM that holds their store.
+ */
+public class MemoryAccessControlContextFactory {
+
+   /**
+    * Creates an {@link AccessControlContext} instance backed by the specified in-memory store. The access control
+    * context returned by this method uses the built-in authentication provider for resource authentication, which
+    * keeps the resource passwords in the store, and delegates all password encryption and decryption to the
+    * {@link PasswordEncryptor} instance provided.
+    *
+    * @param store             the in-memory access control system
+    * @param passwordEncryptor a {@link PasswordEncryptor} instance to which the built-in authentication provider
+    *                          delegates all password encryption and decryption
+    * @return an {@link AccessControlContext} instance ready to receive API calls
+    */
+   public static AccessControlContext getAccessControlContext(MemoryAccessControlStore store,
+                                                              PasswordEncryptor passwordEncryptor) {
+      assertStoreSpecified(store);
+      assertPasswordEncryptorSpecified(passwordEncryptor);
+      return SQLAccessControlContext.getAccessControlContext(new MemoryPersisterSet(store.getMemoryStore()),
+                                                             new MemoryPasswordAuthenticationProvider(store.getMemoryStore(),
+                                                                                                      passwordEncryptor));
+   }
+
+   /**
+    * Creates an {@link AccessControlContext} instance backed by the specified in-memory store, that uses the
+    * specified custom authentication provider for resource authentication.
+    *
+    * @param store                  the in-memory access control system
+    * @param authenticationProvider a custom implementation of the {@link AuthenticationProvider} interface
+    * @return an {@link AccessControlContext} instance ready to receive API calls
+    */
+   public static AccessControlContext getAccessControlContext(MemoryAccessControlStore store,
+                                                              AuthenticationProvider authenticationProvider) {
+      assertStoreSpecified(store);
+      return SQLAccessControlContext.getAccessControlContext(new MemoryPersisterSet(store.getMemoryStore()),
+                                                             authenticationProvider);
+   }
+
+   /**
+    * Creates an instance of the built-in password authentication provider for the specified in-memory store, for
+    * use by a custom authentication provider that delegates password authentication, such as a
+    * {@link com.acciente.oacc.token.TokenAuthenticationProvider}.
+    *
+    * @param store             the in-memory access control system
+    * @param passwordEncryptor a {@link PasswordEncryptor} instance to which the authentication provider
+    *                          delegates all password encryption and decryption
+    * @return the built-in password {@link AuthenticationProvider}
+    */
+   public static AuthenticationProvider getPasswordAuthenticationProvider(MemoryAccessControlStore store,
+                                                                         PasswordEncryptor passwordEncryptor) {
+      assertStoreSpecified(store);
+      assertPasswordEncryptorSpecified(passwordEncryptor);
+      return new MemoryPasswordAuthenticationProvider(store.getMemoryStore(), passwordEncryptor);
+   }
+
+   private static void assertStoreSpecified(MemoryAccessControlStore store) {
+      if (store == null) {
+         throw new IllegalArgumentException("MemoryAccessControlStore required, none specified");
+      }
+   }
+
+   private static void assertPasswordEncryptorSpecified(PasswordEncryptor passwordEncryptor) {
+      if (passwordEncryptor == null) {
+         throw new IllegalArgumentException("PasswordEncryptor required, none specified");
+      }
+   }
+}
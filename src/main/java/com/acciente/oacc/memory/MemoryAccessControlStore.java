@@ -0,0 +1,180 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory;
+
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Credentials;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.memory.internal.MemoryAccessControlSystemInitializer;
+import com.acciente.oacc.memory.internal.MemoryPasswordAuthenticationProvider;
+import com.acciente.oacc.memory.internal.MemoryStore;
+
+import java.io.File;
+
+/**
+ * An OACC access control system that is held entirely in memory, for embedded and edge deployments that do not
+ * have a database.
+ * <p/>
+ * A store is either purely in-memory, in which case its contents are lost when it is garbage collected, or backed
+ * by an append-only journal file, to which every change is written before the changing call returns, and which is
+ * replayed when the store is opened again. The journal grows with every change, until it is compacted: when the
+ * store is opened, and whenever {@link #compact()} is called.
+ * <p/>
+ * Use {@link MemoryAccessControlContextFactory} to obtain access control contexts that operate on a store.
+ */
+public class MemoryAccessControlStore {
+   private final MemoryStore memoryStore;
+
+   private MemoryAccessControlStore(MemoryStore memoryStore) {
+      this.memoryStore = memoryStore;
+   }
+
+   /**
+    * Creates a new, initialized in-memory access control system, with the specified password for the OACC system
+    * resource, as the {@link com.acciente.oacc.sql.SQLAccessControlSystemInitializer} would for a database.
+    *
+    * @param oaccRootPwd       the password of the OACC system resource
+    * @param passwordEncryptor the {@link PasswordEncryptor} used to encrypt the password of the OACC system resource;
+    *                          contexts on this store using the built-in authentication provider need to use an
+    *                          encryptor that can check that password
+    * @return an initialized store
+    */
+   public static MemoryAccessControlStore newInstance(char[] oaccRootPwd,
+                                                      PasswordEncryptor passwordEncryptor) {
+      final MemoryStore memoryStore = new MemoryStore();
+      __initialize(memoryStore, oaccRootPwd, passwordEncryptor);
+      return new MemoryAccessControlStore(memoryStore);
+   }
+
+   /**
+    * Creates a new, initialized in-memory access control system, with the specified credentials for the OACC system
+    * resource, which are set using the specified custom authentication provider.
+    *
+    * @param oaccRootCredentials the credentials of the OACC system resource
+    * @param authProvider        the custom authentication provider with which the credentials are set
+    * @return an initialized store
+    */
+   public static MemoryAccessControlStore newInstance(Credentials oaccRootCredentials,
+                                                      AuthenticationProvider authProvider) {
+      final MemoryStore memoryStore = new MemoryStore();
+      __initialize(memoryStore, oaccRootCredentials, authProvider);
+      return new MemoryAccessControlStore(memoryStore);
+   }
+
+   /**
+    * Opens an in-memory access control system that is persisted to the specified journal file.
+    * <p/>
+    * If the journal file exists, the access control system is restored by replaying it, and the specified
+    * password is ignored; otherwise the journal file is created and the access control system is initialized
+    * with the specified password for the OACC system resource.
+    *
+    * @param journalFile       the journal file
+    * @param oaccRootPwd       the password of the OACC system resource, if the system is newly initialized
+    * @param passwordEncryptor the {@link PasswordEncryptor} used to encrypt the password of the OACC system resource
+    * @return an initialized store, which should be closed when no longer used
+    */
+   public static MemoryAccessControlStore open(File journalFile,
+                                               char[] oaccRootPwd,
+                                               PasswordEncryptor passwordEncryptor) {
+      __assertJournalFileSpecified(journalFile);
+      final MemoryStore memoryStore = new MemoryStore();
+      if (!memoryStore.openJournal(journalFile)) {
+         __initialize(memoryStore, oaccRootPwd, passwordEncryptor);
+      }
+      return new MemoryAccessControlStore(memoryStore);
+   }
+
+   /**
+    * Opens an in-memory access control system that is persisted to the specified journal file.
+    * <p/>
+    * If the journal file exists, the access control system is restored by replaying it, and the specified
+    * credentials are ignored; otherwise the journal file is created and the access control system is initialized
+    * with the specified credentials for the OACC system resource.
+    *
+    * @param journalFile         the journal file
+    * @param oaccRootCredentials the credentials of the OACC system resource, if the system is newly initialized
+    * @param authProvider        the custom authentication provider with which the credentials are set
+    * @return an initialized store, which should be closed when no longer used
+    */
+   public static MemoryAccessControlStore open(File journalFile,
+                                               Credentials oaccRootCredentials,
+                                               AuthenticationProvider authProvider) {
+      __assertJournalFileSpecified(journalFile);
+      final MemoryStore memoryStore = new MemoryStore();
+      if (!memoryStore.openJournal(journalFile)) {
+         __initialize(memoryStore, oaccRootCredentials, authProvider);
+      }
+      return new MemoryAccessControlStore(memoryStore);
+   }
+
+   /**
+    * Compacts the journal file of this store, if it has one, so that it only holds the records needed to restore
+    * the current contents of the store, instead of every change since the journal file was created or last
+    * compacted.
+    * <p/>
+    * The compacted journal is written to a temporary file next to the journal file, which then atomically replaces
+    * it. Changes to the store wait until the compaction completes.
+    */
+   public void compact() {
+      memoryStore.compactJournal();
+   }
+
+   /**
+    * Closes the journal file of this store, if it has one.
+    * <p/>
+    * The store remains usable after it was closed, but subsequent changes are no longer persisted.
+    */
+   public void close() {
+      memoryStore.closeJournal();
+   }
+
+   MemoryStore getMemoryStore() {
+      return memoryStore;
+   }
+
+   private static void __initialize(MemoryStore memoryStore,
+                                    char[] oaccRootPwd,
+                                    PasswordEncryptor passwordEncryptor) {
+      __assertPasswordEncryptorSpecified(passwordEncryptor);
+      __initialize(memoryStore,
+                   PasswordCredentials.newInstance(oaccRootPwd),
+                   new MemoryPasswordAuthenticationProvider(memoryStore, passwordEncryptor));
+   }
+
+   private static void __initialize(MemoryStore memoryStore,
+                                    Credentials oaccRootCredentials,
+                                    AuthenticationProvider authProvider) {
+      if (authProvider == null) {
+         throw new IllegalArgumentException("AuthenticationProvider required, none specified");
+      }
+      MemoryAccessControlSystemInitializer.initializeOACC(memoryStore, oaccRootCredentials, authProvider);
+   }
+
+   private static void __assertJournalFileSpecified(File journalFile) {
+      if (journalFile == null) {
+         throw new IllegalArgumentException("Journal file required, none specified");
+      }
+   }
+
+   private static void __assertPasswordEncryptorSpecified(PasswordEncryptor passwordEncryptor) {
+      if (passwordEncryptor == null) {
+         throw new IllegalArgumentException("PasswordEncryptor required, none specified");
+      }
+   }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+/**
+ * An immutable row of one of the grant tables of a {@link MemoryStore}.
+ * <p/>
+ * The meaning of the target id and the permission id depends on the table: the target is the accessed resource
+ * for resource permissions, the accessed domain for domain, global and resource create permissions, and always
+ * zero for domain create permissions; the permission id is either a system permission id or the id of a resource
+ * class permission (for create permissions it identifies the post-create permission).
+ */
+public final class Grant {
+   private final long    accessorId;
+   private final long    targetId;
+   private final long    resourceClassId;
+   private final long    permissionId;
+   private final long    grantorId;
+   private final boolean withGrant;
+   private final boolean postCreateWithGrant;
+
+   public Grant(long accessorId,
+                long targetId,
+                long resourceClassId,
+                long permissionId,
+                long grantorId,
+                boolean withGrant,
+                boolean postCreateWithGrant) {
+      this.accessorId = accessorId;
+      this.targetId = targetId;
+      this.resourceClassId = resourceClassId;
+      this.permissionId = permissionId;
+      this.grantorId = grantorId;
+      this.withGrant = withGrant;
+      this.postCreateWithGrant = postCreateWithGrant;
+   }
+
+   public long getAccessorId() {
+      return accessorId;
+   }
+
+   public long getTargetId() {
+      return targetId;
+   }
+
+   public long getResourceClassId() {
+      return resourceClassId;
+   }
+
+   public long getPermissionId() {
+      return permissionId;
+   }
+
+   public long getGrantorId() {
+      return grantorId;
+   }
+
+   public boolean isWithGrant() {
+      return withGrant;
+   }
+
+   public boolean isPostCreateWithGrant() {
+      return postCreateWithGrant;
+   }
+
+   boolean hasKey(long resourceClassId, long permissionId) {
+      return this.resourceClassId == resourceClassId && this.permissionId == permissionId;
+   }
+}
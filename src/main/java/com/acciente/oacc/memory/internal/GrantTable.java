@@ -0,0 +1,594 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One of the grant tables of a {@link MemoryStore}.
+ * <p/>
+ * Grants are indexed by accessor id and then by target id, with a reverse index from target id to the
+ * accessors that have grants on it. A table can optionally maintain an adjacency array of the distinct targets
+ * each accessor holds a specific permission on, which the store uses to walk the *INHERIT graph without
+ * visiting any other grants, together with the reverse adjacency and a {@link TopologicalOrder} of that graph.
+ * <p/>
+ * All methods acquire the lock of the owning store, and all mutations are written to its journal, if any.
+ */
+public class GrantTable {
+   private static final long NO_ADJACENCY = 0;
+
+   private final MemoryStore store;
+   private final int         tableIndex;
+   private final long        adjacencyPermissionId;
+
+   private final LongObjectHashMap<LongObjectHashMap<List<Grant>>> grantsByAccessorId = new LongObjectHashMap<>();
+   private final LongObjectHashMap<LongHashSet>                    accessorIdsByTargetId = new LongObjectHashMap<>();
+   private final LongObjectHashMap<long[]>                         adjacentTargetIdsByAccessorId = new LongObjectHashMap<>();
+   private final LongObjectHashMap<long[]>                         adjacentAccessorIdsByTargetId = new LongObjectHashMap<>();
+   private final TopologicalOrder                                  topologicalOrder;
+
+   GrantTable(MemoryStore store, int tableIndex) {
+      this(store, tableIndex, NO_ADJACENCY);
+   }
+
+   GrantTable(MemoryStore store, int tableIndex, long adjacencyPermissionId) {
+      this.store = store;
+      this.tableIndex = tableIndex;
+      this.adjacencyPermissionId = adjacencyPermissionId;
+      this.topologicalOrder = adjacencyPermissionId != NO_ADJACENCY ? new TopologicalOrder(this) : null;
+   }
+
+   // queries
+
+   public List<Grant> getByAccessor(long accessorId) {
+      store.lockForRead();
+      try {
+         final LongObjectHashMap<List<Grant>> grantsByTargetId = grantsByAccessorId.get(accessorId);
+         if (grantsByTargetId == null) {
+            return Collections.emptyList();
+         }
+         final List<Grant> result = new ArrayList<>();
+         for (List<Grant> grants : grantsByTargetId.values()) {
+            result.addAll(grants);
+         }
+         return result;
+      }
+      finally {
+         store.unlockForRead();
+      }
+   }
+
+   public List<Grant> getByAccessorAndTarget(long accessorId, long targetId) {
+      store.lockForRead();
+      try {
+         final List<Grant> grants = __getGrants(accessorId, targetId);
+         if (grants == null) {
+            return Collections.emptyList();
+         }
+         return new ArrayList<>(grants);
+      }
+      finally {
+         store.unlockForRead();
+      }
+   }
+
+   public List<Grant> getByTarget(long targetId) {
+      store.lockForRead();
+      try {
+         final LongHashSet accessorIds = accessorIdsByTargetId.get(targetId);
+         if (accessorIds == null) {
+            return Collections.emptyList();
+         }
+         final List<Grant> result = new ArrayList<>();
+         for (long accessorId : accessorIds.toArray()) {
+            result.addAll(__getGrants(accessorId, targetId));
+         }
+         return result;
+      }
+      finally {
+         store.unlockForRead();
+      }
+   }
+
+   /**
+    * Returns the sorted ids of the targets on which the specified accessor holds the adjacency permission of
+    * this table. The caller must hold the store lock and must not modify the returned array.
+    */
+   long[] getAdjacentTargetIds(long accessorId) {
+      return adjacentTargetIdsByAccessorId.get(accessorId);
+   }
+
+   /**
+    * Returns the sorted ids of the accessors that hold the adjacency permission of this table on the specified
+    * target. The caller must hold the store lock and must not modify the returned array.
+    */
+   long[] getAdjacentAccessorIds(long targetId) {
+      return adjacentAccessorIdsByTargetId.get(targetId);
+   }
+
+   /**
+    * Returns true if the specified target is transitively reachable from the specified accessor over the adjacency
+    * permission of this table, or if both ids are the same. Only the grants between the two nodes in the
+    * topological order of the graph are visited.
+    */
+   public boolean isReachable(long accessorId, long targetId) {
+      store.lockForRead();
+      try {
+         return topologicalOrder.isReachable(accessorId, targetId);
+      }
+      finally {
+         store.unlockForRead();
+      }
+   }
+
+   /**
+    * Returns all the grants of this table. The caller must hold the store lock.
+    */
+   List<Grant> getAll() {
+      final List<Grant> result = new ArrayList<>();
+      for (LongObjectHashMap<List<Grant>> grantsByTargetId : grantsByAccessorId.values()) {
+         for (List<Grant> grants : grantsByTargetId.values()) {
+            result.addAll(grants);
+         }
+      }
+      return result;
+   }
+
+   // mutations
+
+   public int insert(Grant grant) {
+      store.lockForWrite();
+      try {
+         final int rowCount = __insert(grant);
+         if (rowCount > 0 && store.isJournaled()) {
+            final DataOutput record = store.beginJournalRecord(Journal.OP_INSERT_GRANT);
+            record.writeByte(tableIndex);
+            writeGrant(record, grant);
+            store.endJournalRecord();
+         }
+         return rowCount;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         store.unlockForWrite();
+      }
+   }
+
+   public int update(Grant grant) {
+      store.lockForWrite();
+      try {
+         final int rowCount = __update(grant);
+         if (rowCount > 0 && store.isJournaled()) {
+            final DataOutput record = store.beginJournalRecord(Journal.OP_UPDATE_GRANT);
+            record.writeByte(tableIndex);
+            writeGrant(record, grant);
+            store.endJournalRecord();
+         }
+         return rowCount;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         store.unlockForWrite();
+      }
+   }
+
+   /**
+    * Inserts the specified grant, or upgrades an existing grant with the same key to the grant option and grantor
+    * of the specified grant; an existing grant with the grant option is never downgraded.
+    *
+    * @return 1 if a grant was inserted or upgraded, 0 otherwise
+    */
+   public int upsert(Grant grant) {
+      store.lockForWrite();
+      try {
+         final Grant existingGrant = __getGrant(grant);
+         final int rowCount;
+         final int operation;
+         if (existingGrant == null) {
+            rowCount = __insert(grant);
+            operation = Journal.OP_INSERT_GRANT;
+         }
+         else if (grant.isWithGrant() && !existingGrant.isWithGrant()) {
+            rowCount = __update(grant);
+            operation = Journal.OP_UPDATE_GRANT;
+         }
+         else {
+            return 0;
+         }
+
+         if (rowCount > 0 && store.isJournaled()) {
+            final DataOutput record = store.beginJournalRecord(operation);
+            record.writeByte(tableIndex);
+            writeGrant(record, grant);
+            store.endJournalRecord();
+         }
+         return rowCount;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         store.unlockForWrite();
+      }
+   }
+
+   public int remove(long accessorId, long targetId, long resourceClassId, long permissionId) {
+      store.lockForWrite();
+      try {
+         final int rowCount = __remove(accessorId, targetId, resourceClassId, permissionId);
+         if (rowCount > 0 && store.isJournaled()) {
+            final DataOutput record = store.beginJournalRecord(Journal.OP_REMOVE_GRANT);
+            record.writeByte(tableIndex);
+            record.writeLong(accessorId);
+            record.writeLong(targetId);
+            record.writeLong(resourceClassId);
+            record.writeLong(permissionId);
+            store.endJournalRecord();
+         }
+         return rowCount;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         store.unlockForWrite();
+      }
+   }
+
+   public int removeByAccessor(long accessorId) {
+      return removeMatching(Journal.OP_REMOVE_GRANTS_BY_ACCESSOR, accessorId, 0, 0);
+   }
+
+   public int removeByAccessorAndTarget(long accessorId, long targetId) {
+      return removeMatching(Journal.OP_REMOVE_GRANTS_BY_ACCESSOR_AND_TARGET, accessorId, targetId, 0);
+   }
+
+   public int removeByAccessorTargetAndClass(long accessorId, long targetId, long resourceClassId) {
+      return removeMatching(Journal.OP_REMOVE_GRANTS_BY_ACCESSOR_TARGET_AND_CLASS,
+                            accessorId,
+                            targetId,
+                            resourceClassId);
+   }
+
+   public int removeByTarget(long targetId) {
+      return removeMatching(Journal.OP_REMOVE_GRANTS_BY_TARGET, targetId, 0, 0);
+   }
+
+   public int removeByAccessorOrTarget(long resourceId) {
+      return removeMatching(Journal.OP_REMOVE_GRANTS_BY_ACCESSOR_OR_TARGET, resourceId, 0, 0);
+   }
+
+   private int removeMatching(int op, long id1, long id2, long id3) {
+      store.lockForWrite();
+      try {
+         final int rowCount = __removeMatching(op, id1, id2, id3);
+         if (rowCount > 0 && store.isJournaled()) {
+            final DataOutput record = store.beginJournalRecord(op);
+            record.writeByte(tableIndex);
+            record.writeLong(id1);
+            record.writeLong(id2);
+            record.writeLong(id3);
+            store.endJournalRecord();
+         }
+         return rowCount;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         store.unlockForWrite();
+      }
+   }
+
+   // journal replay, called by the store with the write lock held and journaling suspended
+
+   void replay(int op, DataInput record) throws IOException {
+      switch (op) {
+         case Journal.OP_INSERT_GRANT:
+            __insert(readGrant(record));
+            break;
+         case Journal.OP_UPDATE_GRANT:
+            __update(readGrant(record));
+            break;
+         case Journal.OP_REMOVE_GRANT:
+            __remove(record.readLong(), record.readLong(), record.readLong(), record.readLong());
+            break;
+         default:
+            __removeMatching(op, record.readLong(), record.readLong(), record.readLong());
+      }
+   }
+
+   /**
+    * Writes a record for each grant of this table, which inserts the grant when replayed. The caller must hold the
+    * store lock.
+    */
+   void writeJournalRecords(Journal journal) throws IOException {
+      for (Grant grant : getAll()) {
+         final DataOutput record = journal.beginRecord(Journal.OP_INSERT_GRANT);
+         record.writeByte(tableIndex);
+         writeGrant(record, grant);
+         journal.endRecord();
+      }
+   }
+
+   private static void writeGrant(DataOutput record, Grant grant) throws IOException {
+      record.writeLong(grant.getAccessorId());
+      record.writeLong(grant.getTargetId());
+      record.writeLong(grant.getResourceClassId());
+      record.writeLong(grant.getPermissionId());
+      record.writeLong(grant.getGrantorId());
+      record.writeBoolean(grant.isWithGrant());
+      record.writeBoolean(grant.isPostCreateWithGrant());
+   }
+
+   private static Grant readGrant(DataInput record) throws IOException {
+      return new Grant(record.readLong(),
+                       record.readLong(),
+                       record.readLong(),
+                       record.readLong(),
+                       record.readLong(),
+                       record.readBoolean(),
+                       record.readBoolean());
+   }
+
+   // private helpers, which expect the caller to hold the write lock
+
+   private List<Grant> __getGrants(long accessorId, long targetId) {
+      final LongObjectHashMap<List<Grant>> grantsByTargetId = grantsByAccessorId.get(accessorId);
+      return grantsByTargetId == null ? null : grantsByTargetId.get(targetId);
+   }
+
+   private Grant __getGrant(Grant grant) {
+      final List<Grant> grants = __getGrants(grant.getAccessorId(), grant.getTargetId());
+      if (grants != null) {
+         for (Grant existingGrant : grants) {
+            if (existingGrant.hasKey(grant.getResourceClassId(), grant.getPermissionId())) {
+               return existingGrant;
+            }
+         }
+      }
+      return null;
+   }
+
+   private int __insert(Grant grant) {
+      final long accessorId = grant.getAccessorId();
+      final long targetId = grant.getTargetId();
+
+      LongObjectHashMap<List<Grant>> grantsByTargetId = grantsByAccessorId.get(accessorId);
+      if (grantsByTargetId == null) {
+         grantsByTargetId = new LongObjectHashMap<>();
+         grantsByAccessorId.put(accessorId, grantsByTargetId);
+      }
+      List<Grant> grants = grantsByTargetId.get(targetId);
+      if (grants == null) {
+         grants = new ArrayList<>(2);
+         grantsByTargetId.put(targetId, grants);
+
+         LongHashSet accessorIds = accessorIdsByTargetId.get(targetId);
+         if (accessorIds == null) {
+            accessorIds = new LongHashSet();
+            accessorIdsByTargetId.put(targetId, accessorIds);
+         }
+         accessorIds.add(accessorId);
+      }
+      else {
+         for (Grant existingGrant : grants) {
+            if (existingGrant.hasKey(grant.getResourceClassId(), grant.getPermissionId())) {
+               return 0;
+            }
+         }
+      }
+      grants.add(grant);
+
+      if (adjacencyPermissionId != NO_ADJACENCY && grant.getPermissionId() == adjacencyPermissionId) {
+         addAdjacentTarget(accessorId, targetId);
+      }
+      return 1;
+   }
+
+   private int __update(Grant grant) {
+      final List<Grant> grants = __getGrants(grant.getAccessorId(), grant.getTargetId());
+      if (grants != null) {
+         for (int i = 0; i < grants.size(); i++) {
+            if (grants.get(i).hasKey(grant.getResourceClassId(), grant.getPermissionId())) {
+               grants.set(i, grant);
+               return 1;
+            }
+         }
+      }
+      return 0;
+   }
+
+   private int __remove(long accessorId, long targetId, long resourceClassId, long permissionId) {
+      final List<Grant> grants = __getGrants(accessorId, targetId);
+      if (grants != null) {
+         for (int i = 0; i < grants.size(); i++) {
+            if (grants.get(i).hasKey(resourceClassId, permissionId)) {
+               grants.remove(i);
+               afterRemove(accessorId, targetId, grants);
+               return 1;
+            }
+         }
+      }
+      return 0;
+   }
+
+   private int __removeMatching(int op, long id1, long id2, long id3) {
+      switch (op) {
+         case Journal.OP_REMOVE_GRANTS_BY_ACCESSOR:
+            return removeByAccessorAndTargets(id1, null, false, 0);
+         case Journal.OP_REMOVE_GRANTS_BY_ACCESSOR_AND_TARGET:
+            return removeByAccessorAndTargets(id1, new long[]{id2}, false, 0);
+         case Journal.OP_REMOVE_GRANTS_BY_ACCESSOR_TARGET_AND_CLASS:
+            return removeByAccessorAndTargets(id1, new long[]{id2}, true, id3);
+         case Journal.OP_REMOVE_GRANTS_BY_TARGET:
+            return removeByTargetInternal(id1);
+         case Journal.OP_REMOVE_GRANTS_BY_ACCESSOR_OR_TARGET:
+            return removeByAccessorAndTargets(id1, null, false, 0) + removeByTargetInternal(id1);
+         default:
+            throw new IllegalStateException("Unknown grant table operation: " + op);
+      }
+   }
+
+   private int removeByTargetInternal(long targetId) {
+      final LongHashSet accessorIds = accessorIdsByTargetId.get(targetId);
+      if (accessorIds == null) {
+         return 0;
+      }
+      int rowCount = 0;
+      for (long accessorId : accessorIds.toArray()) {
+         rowCount += removeByAccessorAndTargets(accessorId, new long[]{targetId}, false, 0);
+      }
+      return rowCount;
+   }
+
+   private int removeByAccessorAndTargets(long accessorId,
+                                          long[] targetIds,
+                                          boolean matchResourceClass,
+                                          long resourceClassId) {
+      final LongObjectHashMap<List<Grant>> grantsByTargetId = grantsByAccessorId.get(accessorId);
+      if (grantsByTargetId == null) {
+         return 0;
+      }
+      if (targetIds == null) {
+         targetIds = grantsByTargetId.keys();
+      }
+
+      int rowCount = 0;
+      for (long targetId : targetIds) {
+         final List<Grant> grants = grantsByTargetId.get(targetId);
+         if (grants != null) {
+            final int sizeBefore = grants.size();
+            if (matchResourceClass) {
+               for (int i = grants.size() - 1; i >= 0; i--) {
+                  if (grants.get(i).getResourceClassId() == resourceClassId) {
+                     grants.remove(i);
+                  }
+               }
+            }
+            else {
+               grants.clear();
+            }
+            if (grants.size() != sizeBefore) {
+               rowCount += sizeBefore - grants.size();
+               afterRemove(accessorId, targetId, grants);
+            }
+         }
+      }
+      return rowCount;
+   }
+
+   private void afterRemove(long accessorId, long targetId, List<Grant> remainingGrants) {
+      if (remainingGrants.isEmpty()) {
+         final LongObjectHashMap<List<Grant>> grantsByTargetId = grantsByAccessorId.get(accessorId);
+         grantsByTargetId.remove(targetId);
+         if (grantsByTargetId.isEmpty()) {
+            grantsByAccessorId.remove(accessorId);
+         }
+
+         final LongHashSet accessorIds = accessorIdsByTargetId.get(targetId);
+         accessorIds.remove(accessorId);
+         if (accessorIds.isEmpty()) {
+            accessorIdsByTargetId.remove(targetId);
+         }
+      }
+
+      if (adjacencyPermissionId != NO_ADJACENCY) {
+         for (Grant grant : remainingGrants) {
+            if (grant.getPermissionId() == adjacencyPermissionId) {
+               return;
+            }
+         }
+         removeAdjacentTarget(accessorId, targetId);
+      }
+   }
+
+   private void addAdjacentTarget(long accessorId, long targetId) {
+      if (addSorted(adjacentTargetIdsByAccessorId, accessorId, targetId)) {
+         addSorted(adjacentAccessorIdsByTargetId, targetId, accessorId);
+         topologicalOrder.addEdge(accessorId, targetId);
+      }
+   }
+
+   private void removeAdjacentTarget(long accessorId, long targetId) {
+      if (removeSorted(adjacentTargetIdsByAccessorId, accessorId, targetId)) {
+         removeSorted(adjacentAccessorIdsByTargetId, targetId, accessorId);
+         if (!adjacentTargetIdsByAccessorId.containsKey(accessorId)
+               && !adjacentAccessorIdsByTargetId.containsKey(accessorId)) {
+            topologicalOrder.removeNode(accessorId);
+         }
+         if (!adjacentTargetIdsByAccessorId.containsKey(targetId)
+               && !adjacentAccessorIdsByTargetId.containsKey(targetId)) {
+            topologicalOrder.removeNode(targetId);
+         }
+      }
+   }
+
+   private static boolean addSorted(LongObjectHashMap<long[]> idsByKey, long key, long id) {
+      final long[] ids = idsByKey.get(key);
+      if (ids == null) {
+         idsByKey.put(key, new long[]{id});
+         return true;
+      }
+      final int index = Arrays.binarySearch(ids, id);
+      if (index < 0) {
+         final int insertionIndex = -index - 1;
+         final long[] newIds = new long[ids.length + 1];
+         System.arraycopy(ids, 0, newIds, 0, insertionIndex);
+         newIds[insertionIndex] = id;
+         System.arraycopy(ids, insertionIndex, newIds, insertionIndex + 1, ids.length - insertionIndex);
+         idsByKey.put(key, newIds);
+         return true;
+      }
+      return false;
+   }
+
+   private static boolean removeSorted(LongObjectHashMap<long[]> idsByKey, long key, long id) {
+      final long[] ids = idsByKey.get(key);
+      if (ids == null) {
+         return false;
+      }
+      final int index = Arrays.binarySearch(ids, id);
+      if (index < 0) {
+         return false;
+      }
+      if (ids.length == 1) {
+         idsByKey.remove(key);
+      }
+      else {
+         final long[] newIds = new long[ids.length - 1];
+         System.arraycopy(ids, 0, newIds, 0, index);
+         System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+         idsByKey.put(key, newIds);
+      }
+      return true;
+   }
+}
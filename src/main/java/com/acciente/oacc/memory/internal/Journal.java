@@ -0,0 +1,222 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An append-only file of the mutations applied to a {@link MemoryStore}.
+ * <p/>
+ * The file starts with a header, followed by length-prefixed records that each hold one mutation, including any
+ * ids the store assigned. Every record is flushed as soon as it is written, and a trailing record that was only
+ * partially written (e.g. because the process died) is discarded when the journal is next opened.
+ * <p/>
+ * The size of the journal grows with the number of mutations, until it is compacted, which replaces its records
+ * with the fewest records that recreate the current contents of the store.
+ */
+class Journal implements Closeable {
+   private static final int MAGIC   = 0x4F414343;
+   // version 2 added OP_RESERVE_DOMAIN_ID, which is only written by compaction; version 1 journals are still read
+   private static final int VERSION = 2;
+
+   static final int OP_ADD_RESOURCE_CLASS                         = 1;
+   static final int OP_ADD_RESOURCE_CLASS_PERMISSION              = 2;
+   static final int OP_ADD_DOMAIN                                 = 3;
+   static final int OP_DELETE_DOMAIN                              = 4;
+   static final int OP_ADD_RESOURCE                               = 5;
+   static final int OP_SET_EXTERNAL_ID                            = 6;
+   static final int OP_DELETE_RESOURCE                            = 7;
+   static final int OP_SET_PASSWORD                               = 8;
+   static final int OP_REMOVE_PASSWORD                            = 9;
+   static final int OP_RESERVE_RESOURCE_ID                        = 10;
+   static final int OP_INSERT_GRANT                               = 11;
+   static final int OP_UPDATE_GRANT                               = 12;
+   static final int OP_REMOVE_GRANT                               = 13;
+   static final int OP_REMOVE_GRANTS_BY_ACCESSOR                  = 14;
+   static final int OP_REMOVE_GRANTS_BY_ACCESSOR_AND_TARGET       = 15;
+   static final int OP_REMOVE_GRANTS_BY_ACCESSOR_TARGET_AND_CLASS = 16;
+   static final int OP_REMOVE_GRANTS_BY_TARGET                    = 17;
+   static final int OP_REMOVE_GRANTS_BY_ACCESSOR_OR_TARGET        = 18;
+   static final int OP_RESERVE_DOMAIN_ID                          = 19;
+
+   interface RecordHandler {
+      void apply(int op, DataInputStream record) throws IOException;
+   }
+
+   interface RecordWriter {
+      void writeRecords(Journal journal) throws IOException;
+   }
+
+   private final File                  file;
+   private final boolean               isFlushedPerRecord;
+   private       DataOutputStream      out;
+   private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+   private final DataOutputStream      record      = new DataOutputStream(recordBytes);
+
+   private Journal(File file, DataOutputStream out, boolean isFlushedPerRecord) {
+      this.file = file;
+      this.out = out;
+      this.isFlushedPerRecord = isFlushedPerRecord;
+   }
+
+   /**
+    * Replays the records of the specified journal file, if it exists, and opens it for appending.
+    *
+    * @param file          the journal file
+    * @param recordHandler the handler to apply each replayed record
+    * @return the opened journal
+    * @throws IOException if the file could not be read or written
+    * @throws IllegalStateException if the file is not a journal
+    */
+   static Journal open(File file, RecordHandler recordHandler) throws IOException {
+      final boolean isNew = !file.exists() || file.length() == 0;
+
+      if (!isNew) {
+         replay(file, recordHandler);
+      }
+
+      final DataOutputStream out = openForAppend(file);
+      if (isNew) {
+         writeHeader(out);
+         out.flush();
+      }
+      return new Journal(file, out, true);
+   }
+
+   /**
+    * Replaces the records of this journal with the records written by the specified writer, which should recreate
+    * the current contents of the store, and then continues to append to the compacted journal.
+    * <p/>
+    * The records are written to a temporary file that then atomically replaces the journal file, so that the
+    * journal file holds either all the previous records or all the compacted ones, even if the process dies.
+    *
+    * @param recordWriter the writer of the records of the compacted journal
+    * @throws IOException if the compacted journal could not be written
+    */
+   void compact(RecordWriter recordWriter) throws IOException {
+      final File absoluteFile = file.getAbsoluteFile();
+      final File temporaryFile = File.createTempFile(absoluteFile.getName(), ".tmp", absoluteFile.getParentFile());
+      try {
+         try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile)) {
+            final DataOutputStream compactedOut
+                  = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 1 << 16));
+            writeHeader(compactedOut);
+            recordWriter.writeRecords(new Journal(file, compactedOut, false));
+            compactedOut.flush();
+            fileOutputStream.getFD().sync();
+         }
+
+         out.close();
+         try {
+            Files.move(temporaryFile.toPath(),
+                       absoluteFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+         }
+         finally {
+            // continue to append to the journal file, whether or not it was replaced
+            out = openForAppend(file);
+         }
+      }
+      finally {
+         Files.deleteIfExists(temporaryFile.toPath());
+      }
+   }
+
+   private static DataOutputStream openForAppend(File file) throws IOException {
+      return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+   }
+
+   private static void writeHeader(DataOutputStream out) throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+   }
+
+   private static void replay(File file, RecordHandler recordHandler) throws IOException {
+      try (RandomAccessFile in = new RandomAccessFile(file, "rw")) {
+         if (in.length() < 8 || in.readInt() != MAGIC) {
+            throw new IllegalStateException("Not an access control journal: " + file);
+         }
+         final int version = in.readInt();
+         if (version < 1 || version > VERSION) {
+            throw new IllegalStateException("Unsupported access control journal version: " + version);
+         }
+
+         long validLength = in.getFilePointer();
+         byte[] buffer = new byte[128];
+         while (true) {
+            final int recordLength;
+            try {
+               recordLength = in.readInt();
+               if (recordLength < 1 || recordLength > in.length() - in.getFilePointer()) {
+                  // a corrupt length can only be the result of a partially written record, so treat it like one
+                  break;
+               }
+               if (recordLength > buffer.length) {
+                  buffer = new byte[Math.max(recordLength, buffer.length << 1)];
+               }
+               in.readFully(buffer, 0, recordLength);
+            }
+            catch (EOFException e) {
+               break;
+            }
+
+            final DataInputStream record = new DataInputStream(new ByteArrayInputStream(buffer, 0, recordLength));
+            recordHandler.apply(record.readUnsignedByte(), record);
+            validLength = in.getFilePointer();
+         }
+
+         // discard a trailing record that was only partially written
+         if (in.length() > validLength) {
+            in.setLength(validLength);
+         }
+      }
+   }
+
+   DataOutputStream beginRecord(int op) throws IOException {
+      recordBytes.reset();
+      record.writeByte(op);
+      return record;
+   }
+
+   void endRecord() throws IOException {
+      record.flush();
+      out.writeInt(recordBytes.size());
+      recordBytes.writeTo(out);
+      if (isFlushedPerRecord) {
+         out.flush();
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      out.close();
+   }
+}
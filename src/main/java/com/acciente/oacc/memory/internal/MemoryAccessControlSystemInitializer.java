@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Credentials;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.Resources;
+
+public class MemoryAccessControlSystemInitializer {
+   public static void initializeOACC(MemoryStore store,
+                                     Credentials oaccRootCredentials,
+                                     AuthenticationProvider authProvider) {
+      // the store already holds the system domain, the system resource class and the system user
+
+      // set the system user's password
+      authProvider.setCredentials(Resources.getInstance(0), oaccRootCredentials);
+
+      // grant the system user [super user w/ grant] to the system domain
+      store.getDomainPermissionSysGrants()
+            .insert(new Grant(0, 0, 0, getDomainSysPermissionId(DomainPermissions.SUPER_USER), 0, true, false));
+
+      // grant the system user [create w/ grant], and [super user w/ grant] to any domains it creates
+      store.getDomainCreatePermissionSysGrants()
+            .insert(new Grant(0, 0, 0, getDomainCreateSysPermissionId(DomainCreatePermissions.CREATE), 0, true, false));
+      for (String domainPermissionName : new String[]{DomainPermissions.SUPER_USER,
+                                                      DomainPermissions.CREATE_CHILD_DOMAIN,
+                                                      DomainPermissions.DELETE}) {
+         store.getDomainCreatePermissionPostCreateSysGrants()
+               .insert(new Grant(0, 0, 0, getDomainSysPermissionId(domainPermissionName), 0, true, true));
+      }
+   }
+
+   private static long getDomainSysPermissionId(String domainPermissionName) {
+      return DomainPermissions.getInstance(domainPermissionName).getSystemPermissionId();
+   }
+
+   private static long getDomainCreateSysPermissionId(String domainCreatePermissionName) {
+      return DomainCreatePermissions.getInstance(domainCreatePermissionName).getSystemPermissionId();
+   }
+}
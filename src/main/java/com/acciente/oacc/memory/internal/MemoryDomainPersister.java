@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.internal.persister.DomainPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+public class MemoryDomainPersister extends MemoryPersister implements DomainPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryDomainPersister(MemoryStore store) {
+      super(store);
+   }
+
+   @Override
+   public Id<DomainId> getResourceDomainId(SQLConnection connection,
+                                           String resourceDomainName) {
+      if (resourceDomainName == null) {
+         throw new IllegalArgumentException("Domain name must not be null");
+      }
+
+      final MemoryStore.DomainRecord domain = getStore().getDomain(resourceDomainName.trim());
+
+      if (domain == null) {
+         return null;
+      }
+      return Id.from(domain.getId());
+   }
+
+   @Override
+   public String getResourceDomainNameByResourceId(SQLConnection connection,
+                                                   Resource resource) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resource.getId());
+      final MemoryStore.DomainRecord domain
+            = resourceRecord == null ? null : getStore().getDomain(resourceRecord.getDomainId());
+
+      if (domain == null) {
+         throw new IllegalArgumentException("Could not determine domain for resource: " + resource);
+      }
+      return domain.getName();
+   }
+
+   @Override
+   public Set<String> getResourceDomainNameDescendants(SQLConnection connection,
+                                                       String resourceDomainName) {
+      final Set<String> descendantDomainNames = new HashSet<>();
+      final MemoryStore.DomainRecord domain = getStore().getDomain(resourceDomainName);
+
+      if (domain != null) {
+         for (long descendantDomainId : getStore().getDescendantDomainIds(domain.getId())) {
+            descendantDomainNames.add(getDomainName(descendantDomainId));
+         }
+      }
+      return descendantDomainNames;
+   }
+
+   @Override
+   public void addResourceDomain(SQLConnection connection,
+                                 String resourceDomainName) {
+      getStore().addDomain(resourceDomainName, MemoryStore.NO_PARENT_DOMAIN_ID);
+   }
+
+   @Override
+   public void addResourceDomain(SQLConnection connection,
+                                 String resourceDomainName,
+                                 Id<DomainId> parentResourceDomainId) {
+      getStore().addDomain(resourceDomainName, parentResourceDomainId.getValue());
+   }
+
+   @Override
+   public void deleteDomain(SQLConnection connection,
+                            Id<DomainId> domainId) {
+      getStore().deleteDomain(domainId.getValue());
+   }
+}
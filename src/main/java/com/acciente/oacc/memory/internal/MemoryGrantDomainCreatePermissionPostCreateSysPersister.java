@@ -0,0 +1,164 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MemoryGrantDomainCreatePermissionPostCreateSysPersister extends MemoryPersister
+      implements GrantDomainCreatePermissionPostCreateSysPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   // domain create permissions are not granted to any specific target
+   private static final long NO_TARGET_ID = 0;
+
+   public MemoryGrantDomainCreatePermissionPostCreateSysPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getDomainCreatePermissionPostCreateSysGrants();
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreatePostCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                              Resource accessorResource) {
+      final List<Grant> grants = new ArrayList<>();
+      collectGrants(getGrantTable(),
+                    getStore().getInheritedAccessorIds(accessorResource.getId()),
+                    new long[]{NO_TARGET_ID},
+                    grants);
+
+      return getDomainCreatePostCreateSysPermissions(grants);
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                              Resource accessorResource) {
+      return getDomainCreatePostCreateSysPermissions(getGrantTable().getByAccessor(accessorResource.getId()));
+   }
+
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          Resource accessorResource) {
+      getGrantTable().removeByAccessor(accessorResource.getId());
+   }
+
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          List<Resource> accessorResources) {
+      for (Resource accessorResource : accessorResources) {
+         getGrantTable().removeByAccessor(accessorResource.getId());
+      }
+   }
+
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Set<DomainCreatePermission> domainCreatePermissions) {
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         if (isPostCreateSysPermission(domainCreatePermission)) {
+            assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                       NO_TARGET_ID,
+                                                       0,
+                                                       domainCreatePermission.getPostCreateDomainPermission()
+                                                             .getSystemPermissionId()));
+         }
+      }
+   }
+
+   @Override
+   public void addDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                       Resource accessorResource,
+                                                       Resource grantorResource,
+                                                       Set<DomainCreatePermission> domainCreatePermissions) {
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         if (isPostCreateSysPermission(domainCreatePermission)) {
+            assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                                 grantorResource,
+                                                                 domainCreatePermission)));
+         }
+      }
+   }
+
+   @Override
+   public void updateDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Resource grantorResource,
+                                                          Set<DomainCreatePermission> domainCreatePermissions) {
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         if (isPostCreateSysPermission(domainCreatePermission)) {
+            assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                                grantorResource,
+                                                                domainCreatePermission)));
+         }
+      }
+   }
+
+   private static boolean isPostCreateSysPermission(DomainCreatePermission domainCreatePermission) {
+      return !domainCreatePermission.isSystemPermission()
+            && domainCreatePermission.getPostCreateDomainPermission().isSystemPermission();
+   }
+
+   private static Grant newGrant(Resource accessorResource,
+                                 Resource grantorResource,
+                                 DomainCreatePermission domainCreatePermission) {
+      final DomainPermission postCreateDomainPermission = domainCreatePermission.getPostCreateDomainPermission();
+      return new Grant(accessorResource.getId(),
+                       NO_TARGET_ID,
+                       0,
+                       postCreateDomainPermission.getSystemPermissionId(),
+                       grantorResource.getId(),
+                       domainCreatePermission.isWithGrantOption(),
+                       postCreateDomainPermission.isWithGrantOption());
+   }
+
+   private static Set<DomainCreatePermission> getDomainCreatePostCreateSysPermissions(List<Grant> grants) {
+      final Set<DomainCreatePermission> domainCreatePermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         final DomainPermission postCreatePermission;
+         final String postCreateSysPermissionName = DomainPermissions.getSysPermissionName(grant.getPermissionId());
+
+         if (grant.isPostCreateWithGrant()) {
+            postCreatePermission = DomainPermissions.getInstanceWithGrantOption(postCreateSysPermissionName);
+         }
+         else {
+            postCreatePermission = DomainPermissions.getInstance(postCreateSysPermissionName);
+         }
+
+         if (grant.isWithGrant()) {
+            domainCreatePermissions.add(DomainCreatePermissions.getInstanceWithGrantOption(postCreatePermission));
+         }
+         else {
+            domainCreatePermissions.add(DomainCreatePermissions.getInstance(postCreatePermission));
+         }
+      }
+      return domainCreatePermissions;
+   }
+}
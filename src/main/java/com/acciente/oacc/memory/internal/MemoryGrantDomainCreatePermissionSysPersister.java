@@ -0,0 +1,147 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MemoryGrantDomainCreatePermissionSysPersister extends MemoryPersister
+      implements GrantDomainCreatePermissionSysPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   // domain create permissions are not granted to any specific target
+   private static final long NO_TARGET_ID = 0;
+
+   public MemoryGrantDomainCreatePermissionSysPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getDomainCreatePermissionSysGrants();
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                    Resource accessorResource) {
+      final List<Grant> grants = new ArrayList<>();
+      collectGrants(getGrantTable(),
+                    getStore().getInheritedAccessorIds(accessorResource.getId()),
+                    new long[]{NO_TARGET_ID},
+                    grants);
+
+      return getDomainCreateSysPermissions(grants);
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreateSysPermissions(SQLConnection connection,
+                                                                    Resource accessorResource) {
+      return getDomainCreateSysPermissions(getGrantTable().getByAccessor(accessorResource.getId()));
+   }
+
+   @Override
+   public void addDomainCreateSysPermissions(SQLConnection connection,
+                                             Resource accessorResource,
+                                             Resource grantorResource,
+                                             Set<DomainCreatePermission> domainCreatePermissions) {
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         if (domainCreatePermission.isSystemPermission()) {
+            assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                                 grantorResource,
+                                                                 domainCreatePermission)));
+         }
+      }
+   }
+
+   @Override
+   public void updateDomainCreateSysPermissions(SQLConnection connection,
+                                                Resource accessorResource,
+                                                Resource grantorResource,
+                                                Set<DomainCreatePermission> domainCreatePermissions) {
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         if (domainCreatePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                                grantorResource,
+                                                                domainCreatePermission)));
+         }
+      }
+   }
+
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                Resource accessorResource) {
+      getGrantTable().removeByAccessor(accessorResource.getId());
+   }
+
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                List<Resource> accessorResources) {
+      for (Resource accessorResource : accessorResources) {
+         getGrantTable().removeByAccessor(accessorResource.getId());
+      }
+   }
+
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                Resource accessorResource,
+                                                Set<DomainCreatePermission> domainCreatePermissions) {
+      for (DomainCreatePermission domainCreatePermission : domainCreatePermissions) {
+         if (domainCreatePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                       NO_TARGET_ID,
+                                                       0,
+                                                       domainCreatePermission.getSystemPermissionId()));
+         }
+      }
+   }
+
+   private static Grant newGrant(Resource accessorResource,
+                                 Resource grantorResource,
+                                 DomainCreatePermission domainCreatePermission) {
+      return new Grant(accessorResource.getId(),
+                       NO_TARGET_ID,
+                       0,
+                       domainCreatePermission.getSystemPermissionId(),
+                       grantorResource.getId(),
+                       domainCreatePermission.isWithGrantOption(),
+                       false);
+   }
+
+   private static Set<DomainCreatePermission> getDomainCreateSysPermissions(List<Grant> grants) {
+      final Set<DomainCreatePermission> domainCreatePermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         final String sysPermissionName = DomainCreatePermissions.getSysPermissionName(grant.getPermissionId());
+
+         if (grant.isWithGrant()) {
+            domainCreatePermissions.add(DomainCreatePermissions.getInstanceWithGrantOption(sysPermissionName));
+         }
+         else {
+            domainCreatePermissions.add(DomainCreatePermissions.getInstance(sysPermissionName));
+         }
+      }
+      return domainCreatePermissions;
+   }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.GrantDomainPermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MemoryGrantDomainPermissionSysPersister extends MemoryPersister
+      implements GrantDomainPermissionSysPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final long SUPER_USER_PERMISSION_ID
+         = DomainPermissions.getInstance(DomainPermissions.SUPER_USER).getSystemPermissionId();
+
+   public MemoryGrantDomainPermissionSysPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getDomainPermissionSysGrants();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByDomainSuperUserPermission(SQLConnection connection,
+                                                                Resource accessorResource,
+                                                                Id<ResourceClassId> resourceClassId) {
+      final LongHashSet accessibleDomainIds = getSuperUserDomainIds(accessorResource);
+
+      return getResources(getStore().getResourceIds(resourceClassId.getValue(),
+                                                    accessibleDomainIds.toArray()).toArray());
+   }
+
+   @Override
+   public Set<Resource> getResourcesByDomainSuperUserPermission(SQLConnection connection,
+                                                                Resource accessorResource,
+                                                                Id<ResourceClassId> resourceClassId,
+                                                                Id<DomainId> resourceDomainId) {
+      final LongHashSet accessibleDomainIds = getSuperUserDomainIds(accessorResource);
+
+      // filter the accessible domains by the descendants of the specified domain
+      final long[] domainIds = retainDescendantDomainIds(accessibleDomainIds, resourceDomainId.getValue());
+
+      return getResources(getStore().getResourceIds(resourceClassId.getValue(), domainIds).toArray());
+   }
+
+   @Override
+   public long[] getSuperUserDomainIds(SQLConnection connection,
+                                       Resource accessorResource) {
+      final long[] domainIds = getSuperUserDomainIds(accessorResource).toArray();
+      Arrays.sort(domainIds);
+      return domainIds;
+   }
+
+   private LongHashSet getSuperUserDomainIds(Resource accessorResource) {
+      // get the domains the accessor (or a resource it inherits from) directly has super-user permission to
+      final LongHashSet directDomainIds = new LongHashSet();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         for (Grant grant : getGrantTable().getByAccessor(accessorId)) {
+            if (grant.getPermissionId() == SUPER_USER_PERMISSION_ID) {
+               directDomainIds.add(grant.getTargetId());
+            }
+         }
+      }
+
+      // super-user permission to a domain also applies to all its descendants
+      return getDescendantDomainIds(directDomainIds);
+   }
+
+   @Override
+   public Set<DomainPermission> getDomainSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                        Resource accessorResource,
+                                                                        Id<DomainId> resourceDomainId) {
+      final List<Grant> grants = new ArrayList<>();
+      collectGrants(getGrantTable(),
+                    getStore().getInheritedAccessorIds(accessorResource.getId()),
+                    getStore().getAncestorDomainIds(resourceDomainId.getValue()),
+                    grants);
+
+      return getDomainPermissions(grants);
+   }
+
+   @Override
+   public Set<DomainPermission> getDomainSysPermissions(SQLConnection connection,
+                                                        Resource accessorResource,
+                                                        Id<DomainId> resourceDomainId) {
+      return getDomainPermissions(getGrantTable().getByAccessorAndTarget(accessorResource.getId(),
+                                                                         resourceDomainId.getValue()));
+   }
+
+   @Override
+   public Map<String, Set<DomainPermission>> getDomainSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                     Resource accessorResource) {
+      final LongObjectHashMap<Set<DomainPermission>> permissionsByDomainId = new LongObjectHashMap<>();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         for (Grant grant : getGrantTable().getByAccessor(accessorId)) {
+            addToDomainMap(permissionsByDomainId, grant.getTargetId(), getDomainPermission(grant));
+         }
+      }
+
+      // apply each domain's direct permissions to all its descendants
+      return toDomainNameMap(permissionsByDomainId, true);
+   }
+
+   @Override
+   public Map<String, Set<DomainPermission>> getDomainSysPermissions(SQLConnection connection,
+                                                                     Resource accessorResource) {
+      final LongObjectHashMap<Set<DomainPermission>> permissionsByDomainId = new LongObjectHashMap<>();
+      for (Grant grant : getGrantTable().getByAccessor(accessorResource.getId())) {
+         addToDomainMap(permissionsByDomainId, grant.getTargetId(), getDomainPermission(grant));
+      }
+
+      return toDomainNameMap(permissionsByDomainId, false);
+   }
+
+   @Override
+   public void addDomainSysPermissions(SQLConnection connection,
+                                       Resource accessorResource,
+                                       Resource grantorResource,
+                                       Id<DomainId> resourceDomainId,
+                                       Set<DomainPermission> requestedDomainPermissions) {
+      for (DomainPermission domainPermission : requestedDomainPermissions) {
+         assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                              grantorResource,
+                                                              resourceDomainId,
+                                                              domainPermission)));
+      }
+   }
+
+   @Override
+   public void updateDomainSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Resource grantorResource,
+                                          Id<DomainId> resourceDomainId,
+                                          Set<DomainPermission> requestedDomainPermissions) {
+      for (DomainPermission domainPermission : requestedDomainPermissions) {
+         assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                             grantorResource,
+                                                             resourceDomainId,
+                                                             domainPermission)));
+      }
+   }
+
+   @Override
+   public void upsertDomainSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Resource grantorResource,
+                                          Id<DomainId> resourceDomainId,
+                                          Set<DomainPermission> requestedDomainPermissions) {
+      for (DomainPermission domainPermission : requestedDomainPermissions) {
+         getGrantTable().upsert(newGrant(accessorResource,
+                                         grantorResource,
+                                         resourceDomainId,
+                                         domainPermission));
+      }
+   }
+
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             Resource accessorResource) {
+      getGrantTable().removeByAccessor(accessorResource.getId());
+   }
+
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             List<Resource> accessorResources) {
+      for (Resource accessorResource : accessorResources) {
+         getGrantTable().removeByAccessor(accessorResource.getId());
+      }
+   }
+
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             Id<DomainId> domainId) {
+      for (long descendantDomainId : getStore().getDescendantDomainIds(domainId.getValue())) {
+         getGrantTable().removeByTarget(descendantDomainId);
+      }
+   }
+
+   @Override
+   public void removeDomainSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<DomainId> resourceDomainId) {
+      getGrantTable().removeByAccessorAndTarget(accessorResource.getId(), resourceDomainId.getValue());
+   }
+
+   @Override
+   public void removeDomainSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<DomainId> resourceDomainId,
+                                          Set<DomainPermission> requestedDomainPermissions) {
+      for (DomainPermission domainPermission : requestedDomainPermissions) {
+         assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                    resourceDomainId.getValue(),
+                                                    0,
+                                                    domainPermission.getSystemPermissionId()));
+      }
+   }
+
+   private static Grant newGrant(Resource accessorResource,
+                                 Resource grantorResource,
+                                 Id<DomainId> resourceDomainId,
+                                 DomainPermission domainPermission) {
+      return new Grant(accessorResource.getId(),
+                       resourceDomainId.getValue(),
+                       0,
+                       domainPermission.getSystemPermissionId(),
+                       grantorResource.getId(),
+                       domainPermission.isWithGrantOption(),
+                       false);
+   }
+
+   private static Set<DomainPermission> getDomainPermissions(List<Grant> grants) {
+      final Set<DomainPermission> domainPermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         domainPermissions.add(getDomainPermission(grant));
+      }
+      return domainPermissions;
+   }
+
+   private static DomainPermission getDomainPermission(Grant grant) {
+      final String sysPermissionName = DomainPermissions.getSysPermissionName(grant.getPermissionId());
+
+      if (grant.isWithGrant()) {
+         return DomainPermissions.getInstanceWithGrantOption(sysPermissionName);
+      }
+      else {
+         return DomainPermissions.getInstance(sysPermissionName);
+      }
+   }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MemoryGrantGlobalResourcePermissionSysPersister extends MemoryPersister
+      implements GrantGlobalResourcePermissionSysPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryGrantGlobalResourcePermissionSysPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getGlobalResourcePermissionSysGrants();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByGlobalSysPermission(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> resourceClassId,
+                                                          ResourcePermission resourcePermission) {
+      if (!resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a system permission");
+      }
+
+      final LongHashSet accessibleDomainIds
+            = getGlobalDomainIds(accessorResource, resourceClassId, resourcePermission);
+
+      return getResources(getStore().getResourceIds(resourceClassId.getValue(),
+                                                    accessibleDomainIds.toArray()).toArray());
+   }
+
+   @Override
+   public Set<Resource> getResourcesByGlobalSysPermission(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> resourceClassId,
+                                                          Id<DomainId> resourceDomainId,
+                                                          ResourcePermission resourcePermission) {
+      if (!resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a system permission");
+      }
+
+      final LongHashSet accessibleDomainIds
+            = getGlobalDomainIds(accessorResource, resourceClassId, resourcePermission);
+
+      // filter the accessible domains by the descendants of the specified domain
+      final long[] domainIds = retainDescendantDomainIds(accessibleDomainIds, resourceDomainId.getValue());
+
+      return getResources(getStore().getResourceIds(resourceClassId.getValue(), domainIds).toArray());
+   }
+
+   private LongHashSet getGlobalDomainIds(Resource accessorResource,
+                                          Id<ResourceClassId> resourceClassId,
+                                          ResourcePermission resourcePermission) {
+      // get the domains to which the accessor (or a resource it inherits from) directly has the global permission
+      final LongHashSet directDomainIds = new LongHashSet();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         for (Grant grant : getGrantTable().getByAccessor(accessorId)) {
+            if (grant.getResourceClassId() == resourceClassId.getValue()
+                  && grant.getPermissionId() == resourcePermission.getSystemPermissionId()
+                  && isGrantOptionSatisfied(grant, resourcePermission.isWithGrantOption())) {
+               directDomainIds.add(grant.getTargetId());
+            }
+         }
+      }
+
+      // a global permission to a domain also applies to all its descendants
+      return getDescendantDomainIds(directDomainIds);
+   }
+
+   @Override
+   public Set<ResourcePermission> getGlobalSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                          Resource accessorResource,
+                                                                          Id<ResourceClassId> resourceClassId,
+                                                                          Id<DomainId> resourceDomainId) {
+      return getGlobalSysPermissions(getGrants(getGrantTable(),
+                                               getStore().getInheritedAccessorIds(accessorResource.getId()),
+                                               getStore().getAncestorDomainIds(resourceDomainId.getValue()),
+                                               resourceClassId.getValue()));
+   }
+
+   @Override
+   public Set<ResourcePermission> getGlobalSysPermissions(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> resourceClassId,
+                                                          Id<DomainId> resourceDomainId) {
+      return getGlobalSysPermissions(getGrants(getGrantTable(),
+                                               new long[]{accessorResource.getId()},
+                                               new long[]{resourceDomainId.getValue()},
+                                               resourceClassId.getValue()));
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourcePermission>>> getGlobalSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                    Resource accessorResource) {
+      final LongObjectHashMap<Map<String, Set<ResourcePermission>>> permissionsByDomainId = new LongObjectHashMap<>();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         addToPermissionsMap(permissionsByDomainId, getGrantTable().getByAccessor(accessorId));
+      }
+
+      // apply each domain's direct permissions to all its descendants
+      return toDomainNameAndClassNameMap(permissionsByDomainId, true);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourcePermission>>> getGlobalSysPermissions(SQLConnection connection,
+                                                                                    Resource accessorResource) {
+      final LongObjectHashMap<Map<String, Set<ResourcePermission>>> permissionsByDomainId = new LongObjectHashMap<>();
+      addToPermissionsMap(permissionsByDomainId, getGrantTable().getByAccessor(accessorResource.getId()));
+
+      return toDomainNameAndClassNameMap(permissionsByDomainId, false);
+   }
+
+   @Override
+   public void addGlobalSysPermissions(SQLConnection connection,
+                                       Resource accessorResource,
+                                       Id<ResourceClassId> accessedResourceClassId,
+                                       Id<DomainId> accessedResourceDomainId,
+                                       Set<ResourcePermission> requestedResourcePermissions,
+                                       Resource grantorResource) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (resourcePermission.isSystemPermission()) {
+            assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                                 accessedResourceClassId,
+                                                                 accessedResourceDomainId,
+                                                                 resourcePermission,
+                                                                 grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void updateGlobalSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<ResourceClassId> accessedResourceClassId,
+                                          Id<DomainId> accessedResourceDomainId,
+                                          Set<ResourcePermission> requestedResourcePermissions,
+                                          Resource grantorResource) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (resourcePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                                accessedResourceClassId,
+                                                                accessedResourceDomainId,
+                                                                resourcePermission,
+                                                                grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void upsertGlobalSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<ResourceClassId> accessedResourceClassId,
+                                          Id<DomainId> accessedResourceDomainId,
+                                          Set<ResourcePermission> requestedResourcePermissions,
+                                          Resource grantorResource) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (resourcePermission.isSystemPermission()) {
+            getGrantTable().upsert(newGrant(accessorResource,
+                                            accessedResourceClassId,
+                                            accessedResourceDomainId,
+                                            resourcePermission,
+                                            grantorResource));
+         }
+      }
+   }
+
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             Resource accessorResource) {
+      getGrantTable().removeByAccessor(accessorResource.getId());
+   }
+
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             List<Resource> accessorResources) {
+      for (Resource accessorResource : accessorResources) {
+         getGrantTable().removeByAccessor(accessorResource.getId());
+      }
+   }
+
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             Id<DomainId> accessedDomainId) {
+      for (long descendantDomainId : getStore().getDescendantDomainIds(accessedDomainId.getValue())) {
+         getGrantTable().removeByTarget(descendantDomainId);
+      }
+   }
+
+   @Override
+   public void removeGlobalSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<ResourceClassId> accessedResourceClassId,
+                                          Id<DomainId> accessedResourceDomainId) {
+      getGrantTable().removeByAccessorTargetAndClass(accessorResource.getId(),
+                                                     accessedResourceDomainId.getValue(),
+                                                     accessedResourceClassId.getValue());
+   }
+
+   @Override
+   public void removeGlobalSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<ResourceClassId> accessedResourceClassId,
+                                          Id<DomainId> accessedResourceDomainId,
+                                          Set<ResourcePermission> requestedResourcePermissions) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (resourcePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                       accessedResourceDomainId.getValue(),
+                                                       accessedResourceClassId.getValue(),
+                                                       resourcePermission.getSystemPermissionId()));
+         }
+      }
+   }
+
+   private void addToPermissionsMap(LongObjectHashMap<Map<String, Set<ResourcePermission>>> permissionsByDomainId,
+                                    List<Grant> grants) {
+      for (Grant grant : grants) {
+         addToDomainAndClassMap(permissionsByDomainId,
+                                grant.getTargetId(),
+                                getResourceClassName(grant.getResourceClassId()),
+                                getGlobalSysPermission(grant));
+      }
+   }
+
+   private static Grant newGrant(Resource accessorResource,
+                                 Id<ResourceClassId> accessedResourceClassId,
+                                 Id<DomainId> accessedResourceDomainId,
+                                 ResourcePermission resourcePermission,
+                                 Resource grantorResource) {
+      return new Grant(accessorResource.getId(),
+                       accessedResourceDomainId.getValue(),
+                       accessedResourceClassId.getValue(),
+                       resourcePermission.getSystemPermissionId(),
+                       grantorResource.getId(),
+                       resourcePermission.isWithGrantOption(),
+                       false);
+   }
+
+   private static Set<ResourcePermission> getGlobalSysPermissions(List<Grant> grants) {
+      final Set<ResourcePermission> resourcePermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         resourcePermissions.add(getGlobalSysPermission(grant));
+      }
+      return resourcePermissions;
+   }
+
+   private static ResourcePermission getGlobalSysPermission(Grant grant) {
+      final String sysPermissionName = ResourcePermissions.getSysPermissionName(grant.getPermissionId());
+
+      if (grant.isWithGrant()) {
+         return ResourcePermissions.getInstanceWithGrantOption(sysPermissionName);
+      }
+      else {
+         return ResourcePermissions.getInstance(sysPermissionName);
+      }
+   }
+}
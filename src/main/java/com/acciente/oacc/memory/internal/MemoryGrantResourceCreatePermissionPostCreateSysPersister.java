@@ -0,0 +1,235 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MemoryGrantResourceCreatePermissionPostCreateSysPersister extends MemoryPersister
+      implements GrantResourceCreatePermissionPostCreateSysPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryGrantResourceCreatePermissionPostCreateSysPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getResourceCreatePermissionPostCreateSysGrants();
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreatePostCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                  Resource accessorResource,
+                                                                                                  Id<ResourceClassId> resourceClassId,
+                                                                                                  Id<DomainId> resourceDomainId) {
+      return getResourceCreatePostCreateSysPermissions(getGrants(getGrantTable(),
+                                                       getStore().getInheritedAccessorIds(accessorResource.getId()),
+                                                       getStore().getAncestorDomainIds(resourceDomainId.getValue()),
+                                                       resourceClassId.getValue()));
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreatePostCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                                            Resource accessorResource) {
+      final LongObjectHashMap<Map<String, Set<ResourceCreatePermission>>> permissionsByDomainId
+            = new LongObjectHashMap<>();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         addToPermissionsMap(permissionsByDomainId, getGrantTable().getByAccessor(accessorId));
+      }
+
+      // apply each domain's direct permissions to all its descendants
+      return toDomainNameAndClassNameMap(permissionsByDomainId, true);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                                                            Resource accessorResource) {
+      final LongObjectHashMap<Map<String, Set<ResourceCreatePermission>>> permissionsByDomainId
+            = new LongObjectHashMap<>();
+      addToPermissionsMap(permissionsByDomainId, getGrantTable().getByAccessor(accessorResource.getId()));
+
+      return toDomainNameAndClassNameMap(permissionsByDomainId, false);
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                                  Resource accessorResource,
+                                                                                  Id<ResourceClassId> resourceClassId,
+                                                                                  Id<DomainId> resourceDomainId) {
+      return getResourceCreatePostCreateSysPermissions(getGrants(getGrantTable(),
+                                                       new long[]{accessorResource.getId()},
+                                                       new long[]{resourceDomainId.getValue()},
+                                                       resourceClassId.getValue()));
+   }
+
+   @Override
+   public void addResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Id<ResourceClassId> accessedResourceClassId,
+                                                         Id<DomainId> accessedResourceDomainId,
+                                                         Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                         Resource grantorResource) {
+      for (ResourceCreatePermission resourceCreatePermission : requestedResourceCreatePermissions) {
+         if (isPostCreateSysPermission(resourceCreatePermission)) {
+            assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                                 accessedResourceClassId,
+                                                                 accessedResourceDomainId,
+                                                                 resourceCreatePermission,
+                                                                 grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void updateResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                            Resource accessorResource,
+                                                            Id<ResourceClassId> accessedResourceClassId,
+                                                            Id<DomainId> accessedResourceDomainId,
+                                                            Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                            Resource grantorResource) {
+      for (ResourceCreatePermission resourceCreatePermission : requestedResourceCreatePermissions) {
+         if (isPostCreateSysPermission(resourceCreatePermission)) {
+            assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                                accessedResourceClassId,
+                                                                accessedResourceDomainId,
+                                                                resourceCreatePermission,
+                                                                grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               Resource accessorResource) {
+      getGrantTable().removeByAccessor(accessorResource.getId());
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               List<Resource> accessorResources) {
+      for (Resource accessorResource : accessorResources) {
+         getGrantTable().removeByAccessor(accessorResource.getId());
+      }
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               Id<DomainId> accessedDomainId) {
+      for (long descendantDomainId : getStore().getDescendantDomainIds(accessedDomainId.getValue())) {
+         getGrantTable().removeByTarget(descendantDomainId);
+      }
+   }
+
+   @Override
+   public void removeResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                            Resource accessorResource,
+                                                            Id<ResourceClassId> accessedResourceClassId,
+                                                            Id<DomainId> accessedResourceDomainId) {
+      getGrantTable().removeByAccessorTargetAndClass(accessorResource.getId(),
+                                                     accessedResourceDomainId.getValue(),
+                                                     accessedResourceClassId.getValue());
+   }
+
+   @Override
+   public void removeResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                            Resource accessorResource,
+                                                            Id<ResourceClassId> accessedResourceClassId,
+                                                            Id<DomainId> accessedResourceDomainId,
+                                                            Set<ResourceCreatePermission> requestedResourceCreatePermissions) {
+      for (ResourceCreatePermission resourceCreatePermission : requestedResourceCreatePermissions) {
+         if (isPostCreateSysPermission(resourceCreatePermission)) {
+            assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                       accessedResourceDomainId.getValue(),
+                                                       accessedResourceClassId.getValue(),
+                                                       resourceCreatePermission.getPostCreateResourcePermission()
+                                                             .getSystemPermissionId()));
+         }
+      }
+   }
+
+   private static boolean isPostCreateSysPermission(ResourceCreatePermission resourceCreatePermission) {
+      return !resourceCreatePermission.isSystemPermission()
+            && resourceCreatePermission.getPostCreateResourcePermission().isSystemPermission();
+   }
+
+   private void addToPermissionsMap(LongObjectHashMap<Map<String, Set<ResourceCreatePermission>>> permissionsByDomainId,
+                                    List<Grant> grants) {
+      for (Grant grant : grants) {
+         addToDomainAndClassMap(permissionsByDomainId,
+                                grant.getTargetId(),
+                                getResourceClassName(grant.getResourceClassId()),
+                                getResourceCreatePostCreateSysPermission(grant));
+      }
+   }
+
+   private static Grant newGrant(Resource accessorResource,
+                                 Id<ResourceClassId> accessedResourceClassId,
+                                 Id<DomainId> accessedResourceDomainId,
+                                 ResourceCreatePermission resourceCreatePermission,
+                                 Resource grantorResource) {
+      return new Grant(accessorResource.getId(),
+                       accessedResourceDomainId.getValue(),
+                       accessedResourceClassId.getValue(),
+                       resourceCreatePermission.getPostCreateResourcePermission().getSystemPermissionId(),
+                       grantorResource.getId(),
+                       resourceCreatePermission.isWithGrantOption(),
+                       resourceCreatePermission.getPostCreateResourcePermission().isWithGrantOption());
+   }
+
+   private static Set<ResourceCreatePermission> getResourceCreatePostCreateSysPermissions(List<Grant> grants) {
+      final Set<ResourceCreatePermission> resourceCreatePermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         resourceCreatePermissions.add(getResourceCreatePostCreateSysPermission(grant));
+      }
+      return resourceCreatePermissions;
+   }
+
+   private static ResourceCreatePermission getResourceCreatePostCreateSysPermission(Grant grant) {
+      final ResourcePermission postCreatePermission;
+      final String postCreateSysPermissionName = ResourcePermissions.getSysPermissionName(grant.getPermissionId());
+
+      if (grant.isPostCreateWithGrant()) {
+         postCreatePermission = ResourcePermissions.getInstanceWithGrantOption(postCreateSysPermissionName);
+      }
+      else {
+         postCreatePermission = ResourcePermissions.getInstance(postCreateSysPermissionName);
+      }
+
+      if (grant.isWithGrant()) {
+         return ResourceCreatePermissions.getInstanceWithGrantOption(postCreatePermission);
+      }
+      else {
+         return ResourceCreatePermissions.getInstance(postCreatePermission);
+      }
+   }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.ResourceCreatePermissions;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MemoryGrantResourceCreatePermissionSysPersister extends MemoryPersister
+      implements GrantResourceCreatePermissionSysPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryGrantResourceCreatePermissionSysPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getResourceCreatePermissionSysGrants();
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                        Resource accessorResource,
+                                                                                        Id<ResourceClassId> resourceClassId,
+                                                                                        Id<DomainId> resourceDomainId) {
+      return getResourceCreateSysPermissions(getGrants(getGrantTable(),
+                                                       getStore().getInheritedAccessorIds(accessorResource.getId()),
+                                                       getStore().getAncestorDomainIds(resourceDomainId.getValue()),
+                                                       resourceClassId.getValue()));
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                                  Resource accessorResource) {
+      final LongObjectHashMap<Map<String, Set<ResourceCreatePermission>>> permissionsByDomainId
+            = new LongObjectHashMap<>();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         addToPermissionsMap(permissionsByDomainId, getGrantTable().getByAccessor(accessorId));
+      }
+
+      // apply each domain's direct permissions to all its descendants
+      return toDomainNameAndClassNameMap(permissionsByDomainId, true);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreateSysPermissions(SQLConnection connection,
+                                                                                                  Resource accessorResource) {
+      final LongObjectHashMap<Map<String, Set<ResourceCreatePermission>>> permissionsByDomainId
+            = new LongObjectHashMap<>();
+      addToPermissionsMap(permissionsByDomainId, getGrantTable().getByAccessor(accessorResource.getId()));
+
+      return toDomainNameAndClassNameMap(permissionsByDomainId, false);
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreateSysPermissions(SQLConnection connection,
+                                                                        Resource accessorResource,
+                                                                        Id<ResourceClassId> resourceClassId,
+                                                                        Id<DomainId> resourceDomainId) {
+      return getResourceCreateSysPermissions(getGrants(getGrantTable(),
+                                                       new long[]{accessorResource.getId()},
+                                                       new long[]{resourceDomainId.getValue()},
+                                                       resourceClassId.getValue()));
+   }
+
+   @Override
+   public void addResourceCreateSysPermissions(SQLConnection connection,
+                                               Resource accessorResource,
+                                               Id<ResourceClassId> accessedResourceClassId,
+                                               Id<DomainId> accessedResourceDomainId,
+                                               Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                               Resource grantorResource) {
+      for (ResourceCreatePermission resourceCreatePermission : requestedResourceCreatePermissions) {
+         if (resourceCreatePermission.isSystemPermission()) {
+            assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                                 accessedResourceClassId,
+                                                                 accessedResourceDomainId,
+                                                                 resourceCreatePermission,
+                                                                 grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void updateResourceCreateSysPermissions(SQLConnection connection,
+                                                  Resource accessorResource,
+                                                  Id<ResourceClassId> accessedResourceClassId,
+                                                  Id<DomainId> accessedResourceDomainId,
+                                                  Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                  Resource grantorResource) {
+      for (ResourceCreatePermission resourceCreatePermission : requestedResourceCreatePermissions) {
+         if (resourceCreatePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                                accessedResourceClassId,
+                                                                accessedResourceDomainId,
+                                                                resourceCreatePermission,
+                                                                grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     Resource accessorResource) {
+      getGrantTable().removeByAccessor(accessorResource.getId());
+   }
+
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     List<Resource> accessorResources) {
+      for (Resource accessorResource : accessorResources) {
+         getGrantTable().removeByAccessor(accessorResource.getId());
+      }
+   }
+
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     Id<DomainId> accessedDomainId) {
+      for (long descendantDomainId : getStore().getDescendantDomainIds(accessedDomainId.getValue())) {
+         getGrantTable().removeByTarget(descendantDomainId);
+      }
+   }
+
+   @Override
+   public void removeResourceCreateSysPermissions(SQLConnection connection,
+                                                  Resource accessorResource,
+                                                  Id<ResourceClassId> accessedResourceClassId,
+                                                  Id<DomainId> accessedResourceDomainId) {
+      getGrantTable().removeByAccessorTargetAndClass(accessorResource.getId(),
+                                                     accessedResourceDomainId.getValue(),
+                                                     accessedResourceClassId.getValue());
+   }
+
+   @Override
+   public void removeResourceCreateSysPermissions(SQLConnection connection,
+                                                  Resource accessorResource,
+                                                  Id<ResourceClassId> accessedResourceClassId,
+                                                  Id<DomainId> accessedResourceDomainId,
+                                                  Set<ResourceCreatePermission> requestedResourceCreatePermissions) {
+      for (ResourceCreatePermission resourceCreatePermission : requestedResourceCreatePermissions) {
+         if (resourceCreatePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                       accessedResourceDomainId.getValue(),
+                                                       accessedResourceClassId.getValue(),
+                                                       resourceCreatePermission.getSystemPermissionId()));
+         }
+      }
+   }
+
+   private void addToPermissionsMap(LongObjectHashMap<Map<String, Set<ResourceCreatePermission>>> permissionsByDomainId,
+                                    List<Grant> grants) {
+      for (Grant grant : grants) {
+         addToDomainAndClassMap(permissionsByDomainId,
+                                grant.getTargetId(),
+                                getResourceClassName(grant.getResourceClassId()),
+                                getResourceCreateSysPermission(grant));
+      }
+   }
+
+   private static Grant newGrant(Resource accessorResource,
+                                 Id<ResourceClassId> accessedResourceClassId,
+                                 Id<DomainId> accessedResourceDomainId,
+                                 ResourceCreatePermission resourceCreatePermission,
+                                 Resource grantorResource) {
+      return new Grant(accessorResource.getId(),
+                       accessedResourceDomainId.getValue(),
+                       accessedResourceClassId.getValue(),
+                       resourceCreatePermission.getSystemPermissionId(),
+                       grantorResource.getId(),
+                       resourceCreatePermission.isWithGrantOption(),
+                       false);
+   }
+
+   private static Set<ResourceCreatePermission> getResourceCreateSysPermissions(List<Grant> grants) {
+      final Set<ResourceCreatePermission> resourceCreatePermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         resourceCreatePermissions.add(getResourceCreateSysPermission(grant));
+      }
+      return resourceCreatePermissions;
+   }
+
+   private static ResourceCreatePermission getResourceCreateSysPermission(Grant grant) {
+      final String sysPermissionName = ResourceCreatePermissions.getSysPermissionName(grant.getPermissionId());
+
+      if (grant.isWithGrant()) {
+         return ResourceCreatePermissions.getInstanceWithGrantOption(sysPermissionName);
+      }
+      else {
+         return ResourceCreatePermissions.getInstance(sysPermissionName);
+      }
+   }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MemoryGrantResourcePermissionPersister extends MemoryPersister
+      implements GrantResourcePermissionPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryGrantResourcePermissionPersister(MemoryStore store) {
+      super(store);
+   }
+
+   private GrantTable getGrantTable() {
+      return getStore().getResourcePermissionGrants();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByResourcePermission(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Id<ResourceClassId> resourceClassId,
+                                                         ResourcePermission resourcePermission,
+                                                         Id<ResourcePermissionId> resourcePermissionId) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      return getResources(getAccessedResourceIds(accessorResource,
+                                                 resourceClassId,
+                                                 resourcePermission,
+                                                 resourcePermissionId,
+                                                 null));
+   }
+
+   @Override
+   public Set<Resource> getResourcesByResourcePermission(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Id<ResourceClassId> resourceClassId,
+                                                         Id<DomainId> resourceDomainId,
+                                                         ResourcePermission resourcePermission,
+                                                         Id<ResourcePermissionId> resourcePermissionId) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      final LongHashSet descendantDomainIds = new LongHashSet();
+      descendantDomainIds.addAll(getStore().getDescendantDomainIds(resourceDomainId.getValue()));
+
+      return getResources(getAccessedResourceIds(accessorResource,
+                                                 resourceClassId,
+                                                 resourcePermission,
+                                                 resourcePermissionId,
+                                                 descendantDomainIds));
+   }
+
+   private long[] getAccessedResourceIds(Resource accessorResource,
+                                         Id<ResourceClassId> resourceClassId,
+                                         ResourcePermission resourcePermission,
+                                         Id<ResourcePermissionId> resourcePermissionId,
+                                         LongHashSet domainIds) {
+      // accumulate the resources of the specified class that each (inherited) accessor has the permission to
+      final LongHashSet accessedResourceIds = new LongHashSet();
+      for (long accessorId : getStore().getInheritedAccessorIds(accessorResource.getId())) {
+         for (Grant grant : getGrantTable().getByAccessor(accessorId)) {
+            if (grant.getResourceClassId() == resourceClassId.getValue()
+                  && grant.getPermissionId() == resourcePermissionId.getValue()
+                  && isGrantOptionSatisfied(grant, resourcePermission.isWithGrantOption())
+                  && (domainIds == null || isResourceInDomains(grant.getTargetId(), domainIds))) {
+               accessedResourceIds.add(grant.getTargetId());
+            }
+         }
+      }
+      return accessedResourceIds.toArray();
+   }
+
+   private boolean isResourceInDomains(long resourceId, LongHashSet domainIds) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resourceId);
+      return resourceRecord != null && domainIds.contains(resourceRecord.getDomainId());
+   }
+
+   @Override
+   public Set<Resource> getAccessorResourcesByResourcePermission(SQLConnection connection,
+                                                                 Resource accessedResource,
+                                                                 Id<ResourceClassId> resourceClassId,
+                                                                 ResourcePermission resourcePermission,
+                                                                 Id<ResourcePermissionId> resourcePermissionId) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      return getResources(getDirectAccessorIds(accessedResource, resourceClassId, resourcePermission, resourcePermissionId));
+   }
+
+   @Override
+   public long[] getAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                            Resource accessedResource,
+                                                            Id<ResourceClassId> resourceClassId,
+                                                            ResourcePermission resourcePermission,
+                                                            Id<ResourcePermissionId> resourcePermissionId,
+                                                            long afterAccessorResourceId,
+                                                            long upToAccessorResourceId,
+                                                            int maxCount) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      return getOrderedResourceIds(getDirectAccessorIds(accessedResource,
+                                                        resourceClassId,
+                                                        resourcePermission,
+                                                        resourcePermissionId),
+                                   afterAccessorResourceId,
+                                   upToAccessorResourceId,
+                                   maxCount);
+   }
+
+   private long[] getDirectAccessorIds(Resource accessedResource,
+                                       Id<ResourceClassId> resourceClassId,
+                                       ResourcePermission resourcePermission,
+                                       Id<ResourcePermissionId> resourcePermissionId) {
+      // get the ids of the resources that have direct permissions to the specified accessed resource
+      final LongHashSet accessorResourceIds = new LongHashSet();
+      for (Grant grant : getGrantTable().getByTarget(accessedResource.getId())) {
+         if (grant.getResourceClassId() == resourceClassId.getValue()
+               && grant.getPermissionId() == resourcePermissionId.getValue()
+               && isGrantOptionSatisfied(grant, resourcePermission.isWithGrantOption())) {
+            accessorResourceIds.add(grant.getAccessorId());
+         }
+      }
+      return accessorResourceIds.toArray();
+   }
+
+   @Override
+   public long[] getEffectiveAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                                     Resource accessedResource,
+                                                                     Id<ResourceClassId> resourceClassId,
+                                                                     Id<DomainId> resourceDomainId,
+                                                                     ResourcePermission resourcePermission,
+                                                                     Id<ResourcePermissionId> resourcePermissionId,
+                                                                     long afterAccessorResourceId,
+                                                                     long upToAccessorResourceId,
+                                                                     int maxCount) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      return getOrderedResourceIds(getEffectiveAccessorIds(getGrantTable(),
+                                                           getStore().getGlobalResourcePermissionGrants(),
+                                                           accessedResource.getId(),
+                                                           resourceClassId.getValue(),
+                                                           resourceDomainId.getValue(),
+                                                           resourcePermissionId.getValue(),
+                                                           resourcePermission.isWithGrantOption()),
+                                   afterAccessorResourceId,
+                                   upToAccessorResourceId,
+                                   maxCount);
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                         Resource accessorResource,
+                                                                         Resource accessedResource) {
+      final List<Grant> grants = new ArrayList<>();
+      collectGrants(getGrantTable(),
+                    getStore().getInheritedAccessorIds(accessorResource.getId()),
+                    new long[]{accessedResource.getId()},
+                    grants);
+
+      return getResourcePermissions(grants);
+   }
+
+   @Override
+   public LongObjectHashMap<Set<ResourcePermission>> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                                            Resource accessorResource,
+                                                                                            List<Resource> accessedResources) {
+      final long[] accessorIds = getStore().getInheritedAccessorIds(accessorResource.getId());
+      final LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByAccessedResourceId
+            = new LongObjectHashMap<>(accessedResources.size());
+
+      for (Resource accessedResource : accessedResources) {
+         final List<Grant> grants = new ArrayList<>();
+         collectGrants(getGrantTable(), accessorIds, new long[]{accessedResource.getId()}, grants);
+
+         if (!grants.isEmpty()) {
+            resourcePermissionsByAccessedResourceId.put(accessedResource.getId(), getResourcePermissions(grants));
+         }
+      }
+
+      return resourcePermissionsByAccessedResourceId;
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourcePermissions(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Resource accessedResource) {
+      return getResourcePermissions(getGrantTable().getByAccessorAndTarget(accessorResource.getId(),
+                                                                              accessedResource.getId()));
+   }
+
+   @Override
+   public void addResourcePermissions(SQLConnection connection,
+                                      Resource accessorResource,
+                                      Resource accessedResource,
+                                      Id<ResourceClassId> accessedResourceClassId,
+                                      Set<ResourcePermission> requestedResourcePermissions,
+                                      Resource grantorResource) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (!resourcePermission.isSystemPermission()) {
+            assertOneRowInserted(getGrantTable().insert(newGrant(accessorResource,
+                                                                 accessedResource,
+                                                                 accessedResourceClassId,
+                                                                 resourcePermission,
+                                                                 grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void updateResourcePermissions(SQLConnection connection,
+                                         Resource accessorResource,
+                                         Resource accessedResource,
+                                         Id<ResourceClassId> accessedResourceClassId,
+                                         Set<ResourcePermission> requestedResourcePermissions,
+                                         Resource grantorResource) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (!resourcePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().update(newGrant(accessorResource,
+                                                                accessedResource,
+                                                                accessedResourceClassId,
+                                                                resourcePermission,
+                                                                grantorResource)));
+         }
+      }
+   }
+
+   @Override
+   public void upsertResourcePermissions(SQLConnection connection,
+                                         Resource accessorResource,
+                                         Resource accessedResource,
+                                         Id<ResourceClassId> accessedResourceClassId,
+                                         Set<ResourcePermission> requestedResourcePermissions,
+                                         Resource grantorResource) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (!resourcePermission.isSystemPermission()) {
+            getGrantTable().upsert(newGrant(accessorResource,
+                                            accessedResource,
+                                            accessedResourceClassId,
+                                            resourcePermission,
+                                            grantorResource));
+         }
+      }
+   }
+
+   @Override
+   public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                Resource resource) {
+      getGrantTable().removeByAccessorOrTarget(resource.getId());
+   }
+
+   @Override
+   public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                List<Resource> resources) {
+      for (Resource resource : resources) {
+         getGrantTable().removeByAccessorOrTarget(resource.getId());
+      }
+   }
+
+   @Override
+   public void removeResourcePermissions(SQLConnection connection,
+                                         Resource accessorResource,
+                                         Resource accessedResource) {
+      getGrantTable().removeByAccessorAndTarget(accessorResource.getId(), accessedResource.getId());
+   }
+
+   @Override
+   public void removeResourcePermissions(SQLConnection connection,
+                                         Resource accessorResource,
+                                         Resource accessedResource,
+                                         Id<ResourceClassId> accessedResourceClassId,
+                                         Set<ResourcePermission> requestedResourcePermissions) {
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         if (!resourcePermission.isSystemPermission()) {
+            assertOneRowUpdated(getGrantTable().remove(accessorResource.getId(),
+                                                       accessedResource.getId(),
+                                                       accessedResourceClassId.getValue(),
+                                                       getPermissionId(accessedResourceClassId.getValue(),
+                                                                       resourcePermission.getPermissionName())));
+         }
+      }
+   }
+
+   private Grant newGrant(Resource accessorResource,
+                          Resource accessedResource,
+                          Id<ResourceClassId> accessedResourceClassId,
+                          ResourcePermission resourcePermission,
+                          Resource grantorResource) {
+      return new Grant(accessorResource.getId(),
+                       accessedResource.getId(),
+                       accessedResourceClassId.getValue(),
+                       getPermissionId(accessedResourceClassId.getValue(), resourcePermission.getPermissionName()),
+                       grantorResource.getId(),
+                       resourcePermission.isWithGrantOption(),
+                       false);
+   }
+
+   private Set<ResourcePermission> getResourcePermissions(List<Grant> grants) {
+      final Set<ResourcePermission> resourcePermissions = new HashSet<>(grants.size());
+      for (Grant grant : grants) {
+         final String permissionName = getStore().getResourceClassPermissionName(grant.getPermissionId());
+
+         if (grant.isWithGrant()) {
+            resourcePermissions.add(ResourcePermissions.getInstanceWithGrantOption(permissionName));
+         }
+         else {
+            resourcePermissions.add(ResourcePermissions.getInstance(permissionName));
+         }
+      }
+      return resourcePermissions;
+   }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Credentials;
+import com.acciente.oacc.IncorrectCredentialsException;
+import com.acciente.oacc.InvalidCredentialsException;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.UnsupportedCredentialsException;
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.RehashAwarePasswordEncryptor;
+import com.acciente.oacc.sql.internal.PasswordUtils;
+import com.acciente.oacc.token.CredentialVersionSource;
+
+import java.io.Serializable;
+
+/**
+ * The built-in password authentication provider for the in-memory engine, which keeps the encrypted
+ * bound passwords in the {@link MemoryStore} instead of the password table.
+ */
+public class MemoryPasswordAuthenticationProvider
+      implements AuthenticationProvider, CredentialVersionSource, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   // store
+   private final     String      storeId;
+   private transient MemoryStore store;
+
+   // password encryptor
+   private final PasswordEncryptor passwordEncryptor;
+
+   public MemoryPasswordAuthenticationProvider(MemoryStore store, PasswordEncryptor passwordEncryptor) {
+      this.storeId = store.getStoreId();
+      this.store = store;
+      this.passwordEncryptor = passwordEncryptor;
+   }
+
+   @Override
+   public void authenticate(Resource resource, Credentials credentials) {
+      assertCredentialSpecified(credentials);
+      assertSupportedCredentials(credentials);
+
+      final PasswordCredentials passwordCredentials = ((PasswordCredentials) credentials);
+
+      if (passwordCredentials.getPassword() == null) {
+         throw new InvalidCredentialsException("Password required, none specified");
+      }
+
+      __authenticate(resource, passwordCredentials.getPassword());
+   }
+
+   @Override
+   public void authenticate(Resource resource) {
+      throw new UnsupportedOperationException(
+            "The built-in password authentication provider does not support authentication without credentials");
+   }
+
+   @Override
+   public Resource authenticate(Credentials credentials) {
+      throw new UnsupportedOperationException(
+            "The built-in password authentication provider does not support authentication using *only* credentials");
+   }
+
+   private void __authenticate(Resource resource, char[] password) {
+      final String encryptedBoundPassword = getEncryptedBoundPassword(resource);
+
+      char[] plainBoundPassword = null;
+      try {
+         plainBoundPassword = PasswordUtils.computeBoundPassword(resource, password);
+
+         if (!passwordEncryptor.checkPassword(plainBoundPassword, encryptedBoundPassword)) {
+            throw new IncorrectCredentialsException("Invalid password for resource " + resource);
+         }
+
+         // upgrade a password hash created by an old password encryptor or with old settings, now that we know the
+         // plaintext password; the hash is only replaced if it is still the one we checked, so that a password that
+         // was changed or removed concurrently is not overwritten with the old password
+         if (isRehashNeeded(encryptedBoundPassword)) {
+            getStore().replacePassword(resource.getId(),
+                                       encryptedBoundPassword,
+                                       passwordEncryptor.encryptPassword(plainBoundPassword));
+         }
+      }
+      finally {
+         PasswordUtils.cleanPassword(plainBoundPassword);
+      }
+   }
+
+   @Override
+   public void validateCredentials(String resourceClassName, String domainName, Credentials credentials) {
+      if (credentials == null) {
+         // instead of a NullPointerException we explicitly throw the InvalidCredentialsException
+         // to distinguish from a programming error the indication that this implementation
+         // does not support null credentials
+         throw new InvalidCredentialsException("Credentials required, none specified");
+      }
+
+      assertSupportedCredentials(credentials);
+
+      final char[] password = ((PasswordCredentials) credentials).getPassword();
+
+      if (password == null) {
+         throw new InvalidCredentialsException("Password required, none specified");
+      }
+
+      if (password.length == 0) {
+         throw new InvalidCredentialsException("Password cannot be zero length");
+      }
+
+      if (isBlank(password)) {
+         throw new InvalidCredentialsException("Password cannot be blank");
+      }
+   }
+
+   @Override
+   public void setCredentials(Resource resource, Credentials credentials) {
+      assertCredentialSpecified(credentials);
+      assertSupportedCredentials(credentials);
+
+      char[] newBoundPassword = null;
+      try {
+         newBoundPassword = PasswordUtils.computeBoundPassword(resource,
+                                                               ((PasswordCredentials) credentials).getPassword());
+         getStore().setPassword(resource.getId(), passwordEncryptor.encryptPassword(newBoundPassword));
+      }
+      finally {
+         PasswordUtils.cleanPassword(newBoundPassword);
+      }
+   }
+
+   @Override
+   public void deleteCredentials(Resource resource) {
+      getStore().removePassword(resource.getId());
+   }
+
+   @Override
+   public long getCredentialVersion(Resource resource) {
+      return PasswordUtils.computeCredentialVersion(getStore().getPassword(resource.getId()));
+   }
+
+   private String getEncryptedBoundPassword(Resource resource) {
+      final String encryptedBoundPassword = getStore().getPassword(resource.getId());
+
+      if (encryptedBoundPassword == null) {
+         if (getStore().getResource(resource.getId()) == null) {
+            throw new IllegalArgumentException(resource + " not found!");
+         }
+         throw new IllegalStateException(resource + " has no password set!");
+      }
+
+      return encryptedBoundPassword;
+   }
+
+   private void assertCredentialSpecified(Credentials credentials) {
+      if (credentials == null) {
+         throw new NullPointerException("Credentials required, none specified");
+      }
+   }
+
+   private void assertSupportedCredentials(Credentials credentials) {
+      if (!(credentials instanceof PasswordCredentials)) {
+         throw new UnsupportedCredentialsException(credentials.getClass());
+      }
+   }
+
+   private boolean isRehashNeeded(String encryptedBoundPassword) {
+      return passwordEncryptor instanceof RehashAwarePasswordEncryptor
+            && ((RehashAwarePasswordEncryptor) passwordEncryptor).isRehashNeeded(encryptedBoundPassword);
+   }
+
+   private boolean isBlank(char[] charArray) {
+      for (char c : charArray) {
+         if (!Character.isWhitespace(c)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private MemoryStore getStore() {
+      if (store == null) {
+         store = MemoryStore.getInstance(storeId);
+         if (store == null) {
+            throw new IllegalStateException("In-memory store " + storeId + " is not available in this JVM");
+         }
+      }
+      return store;
+   }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.Persister;
+import com.acciente.oacc.sql.internal.persister.ResourceSet;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base class of the persisters that operate on a {@link MemoryStore} instead of a database.
+ * <p/>
+ * Memory persisters ignore the connection argument of the persister interfaces, which is always null. A
+ * persister only holds the id of its store across serialization, and re-attaches to the store on first use
+ * after deserialization, which is only possible in the JVM that holds the store.
+ */
+public abstract class MemoryPersister extends Persister implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final long SUPER_USER_PERMISSION_ID
+         = DomainPermissions.getInstance(DomainPermissions.SUPER_USER).getSystemPermissionId();
+
+   private final     String      storeId;
+   private transient MemoryStore store;
+
+   protected MemoryPersister(MemoryStore store) {
+      this.storeId = store.getStoreId();
+      this.store = store;
+   }
+
+   protected MemoryStore getStore() {
+      if (store == null) {
+         store = MemoryStore.getInstance(storeId);
+         if (store == null) {
+            throw new IllegalStateException("In-memory store " + storeId + " is not available in this JVM");
+         }
+      }
+      return store;
+   }
+
+   // resource helpers
+
+   protected Resource getResource(long resourceId) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resourceId);
+      if (resourceRecord == null) {
+         return Resources.getInstance(resourceId);
+      }
+      return Resources.getInstance(resourceId, resourceRecord.getExternalId());
+   }
+
+   protected Set<Resource> getResources(long[] resourceIds) {
+      final ResourceSet resources = new ResourceSet(resourceIds.length);
+      for (long resourceId : resourceIds) {
+         final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resourceId);
+         resources.add(resourceId, resourceRecord == null ? null : resourceRecord.getExternalId());
+      }
+      return resources;
+   }
+
+   protected String getDomainName(long domainId) {
+      return getStore().getDomain(domainId).getName();
+   }
+
+   protected String getResourceClassName(long resourceClassId) {
+      return getStore().getResourceClass(resourceClassId).getName();
+   }
+
+   /**
+    * Returns the ids of all the domains that are, or are descendants of, the specified domains.
+    */
+   protected LongHashSet getDescendantDomainIds(LongHashSet domainIds) {
+      final LongHashSet descendantDomainIds = new LongHashSet();
+      for (long domainId : domainIds.toArray()) {
+         descendantDomainIds.addAll(getStore().getDescendantDomainIds(domainId));
+      }
+      return descendantDomainIds;
+   }
+
+   /**
+    * Returns those of the specified domain ids that are the specified domain or one of its descendants.
+    */
+   protected long[] retainDescendantDomainIds(LongHashSet domainIds, long domainId) {
+      final LongHashSet retainedDomainIds = new LongHashSet();
+      for (long descendantDomainId : getStore().getDescendantDomainIds(domainId)) {
+         if (domainIds.contains(descendantDomainId)) {
+            retainedDomainIds.add(descendantDomainId);
+         }
+      }
+      return retainedDomainIds.toArray();
+   }
+
+   // grant helpers
+
+   /**
+    * Checks if a grant satisfies the grant option of a requested permission, i.e. a request without the
+    * grant option is satisfied by any grant, and a request with the grant option only by a grant that has it.
+    */
+   protected static boolean isGrantOptionSatisfied(Grant grant, boolean isWithGrantOptionRequested) {
+      return !isWithGrantOptionRequested || grant.isWithGrant();
+   }
+
+   /**
+    * Returns the grants of the specified table that each of the specified accessors holds on each of the
+    * specified targets.
+    */
+   protected static void collectGrants(GrantTable grantTable,
+                                       long[] accessorIds,
+                                       long[] targetIds,
+                                       List<Grant> grants) {
+      for (long accessorId : accessorIds) {
+         for (long targetId : targetIds) {
+            grants.addAll(grantTable.getByAccessorAndTarget(accessorId, targetId));
+         }
+      }
+   }
+
+   /**
+    * Returns the grants of the specified table that any of the specified accessors holds on any of the specified
+    * targets for the specified resource class.
+    */
+   protected static List<Grant> getGrants(GrantTable grantTable,
+                                          long[] accessorIds,
+                                          long[] targetIds,
+                                          long resourceClassId) {
+      final List<Grant> grants = new ArrayList<>();
+      for (long accessorId : accessorIds) {
+         for (long targetId : targetIds) {
+            for (Grant grant : grantTable.getByAccessorAndTarget(accessorId, targetId)) {
+               if (grant.getResourceClassId() == resourceClassId) {
+                  grants.add(grant);
+               }
+            }
+         }
+      }
+      return grants;
+   }
+
+   /**
+    * Returns the ids of the accessors that hold the specified permission on the specified resource directly,
+    * globally on its domain or any ancestor domain, or as super-user of any of these domains, together with the
+    * ids of all the resources that transitively inherit from any of these accessors.
+    */
+   protected long[] getEffectiveAccessorIds(GrantTable grantTable,
+                                            GrantTable globalGrantTable,
+                                            long accessedResourceId,
+                                            long resourceClassId,
+                                            long domainId,
+                                            long permissionId,
+                                            boolean isWithGrantOptionRequested) {
+      final LongHashSet accessorIds = new LongHashSet();
+      for (Grant grant : grantTable.getByTarget(accessedResourceId)) {
+         if (grant.getPermissionId() == permissionId && isGrantOptionSatisfied(grant, isWithGrantOptionRequested)) {
+            accessorIds.add(grant.getAccessorId());
+         }
+      }
+
+      for (long ancestorDomainId : getStore().getAncestorDomainIds(domainId)) {
+         for (Grant grant : globalGrantTable.getByTarget(ancestorDomainId)) {
+            if (grant.getResourceClassId() == resourceClassId
+                  && grant.getPermissionId() == permissionId
+                  && isGrantOptionSatisfied(grant, isWithGrantOptionRequested)) {
+               accessorIds.add(grant.getAccessorId());
+            }
+         }
+         for (Grant grant : getStore().getDomainPermissionSysGrants().getByTarget(ancestorDomainId)) {
+            if (grant.getPermissionId() == SUPER_USER_PERMISSION_ID) {
+               accessorIds.add(grant.getAccessorId());
+            }
+         }
+      }
+
+      return getStore().getInheritingAccessorIds(accessorIds.toArray());
+   }
+
+   /**
+    * Returns the id of the specified permission of the specified resource class.
+    *
+    * @throws IllegalArgumentException if the resource class does not define the permission
+    */
+   protected long getPermissionId(long resourceClassId, String permissionName) {
+      final Long permissionId = getStore().getResourceClassPermissionId(resourceClassId, permissionName);
+      if (permissionId == null) {
+         throw new IllegalArgumentException("Permission: " + permissionName
+                                                  + " is not defined for resource class: "
+                                                  + getResourceClassName(resourceClassId));
+      }
+      return permissionId;
+   }
+
+   /**
+    * Converts a map of permissions keyed by domain id into a map keyed by domain name, optionally also applying
+    * each domain's permissions to all of its descendant domains.
+    */
+   protected <P> Map<String, Set<P>> toDomainNameMap(LongObjectHashMap<Set<P>> permissionsByDomainId,
+                                                     boolean includeDescendants) {
+      final Map<String, Set<P>> permissionsByDomainName = new HashMap<>();
+      for (long domainId : permissionsByDomainId.keys()) {
+         final Set<P> permissions = permissionsByDomainId.get(domainId);
+         final long[] targetDomainIds
+               = includeDescendants ? getStore().getDescendantDomainIds(domainId) : new long[]{domainId};
+
+         for (long targetDomainId : targetDomainIds) {
+            final String domainName = getDomainName(targetDomainId);
+            Set<P> targetPermissions = permissionsByDomainName.get(domainName);
+            if (targetPermissions == null) {
+               targetPermissions = new HashSet<>();
+               permissionsByDomainName.put(domainName, targetPermissions);
+            }
+            targetPermissions.addAll(permissions);
+         }
+      }
+      return permissionsByDomainName;
+   }
+
+   /**
+    * Converts a map of permissions keyed by domain id and resource class name into a map keyed by domain name and
+    * resource class name, optionally also applying each domain's permissions to all of its descendant domains.
+    */
+   protected <P> Map<String, Map<String, Set<P>>> toDomainNameAndClassNameMap(LongObjectHashMap<Map<String, Set<P>>> permissionsByDomainId,
+                                                                              boolean includeDescendants) {
+      final Map<String, Map<String, Set<P>>> permissionsByDomainName = new HashMap<>();
+      for (long domainId : permissionsByDomainId.keys()) {
+         final Map<String, Set<P>> permissionsByClassName = permissionsByDomainId.get(domainId);
+         final long[] targetDomainIds
+               = includeDescendants ? getStore().getDescendantDomainIds(domainId) : new long[]{domainId};
+
+         for (long targetDomainId : targetDomainIds) {
+            final String domainName = getDomainName(targetDomainId);
+            Map<String, Set<P>> targetPermissionsByClassName = permissionsByDomainName.get(domainName);
+            if (targetPermissionsByClassName == null) {
+               targetPermissionsByClassName = new HashMap<>();
+               permissionsByDomainName.put(domainName, targetPermissionsByClassName);
+            }
+            for (Map.Entry<String, Set<P>> entry : permissionsByClassName.entrySet()) {
+               Set<P> targetPermissions = targetPermissionsByClassName.get(entry.getKey());
+               if (targetPermissions == null) {
+                  targetPermissions = new HashSet<>();
+                  targetPermissionsByClassName.put(entry.getKey(), targetPermissions);
+               }
+               targetPermissions.addAll(entry.getValue());
+            }
+         }
+      }
+      return permissionsByDomainName;
+   }
+
+   protected static <P> void addToDomainMap(LongObjectHashMap<Set<P>> permissionsByDomainId,
+                                            long domainId,
+                                            P permission) {
+      Set<P> permissions = permissionsByDomainId.get(domainId);
+      if (permissions == null) {
+         permissions = new HashSet<>();
+         permissionsByDomainId.put(domainId, permissions);
+      }
+      permissions.add(permission);
+   }
+
+   protected static <P> void addToDomainAndClassMap(LongObjectHashMap<Map<String, Set<P>>> permissionsByDomainId,
+                                                    long domainId,
+                                                    String resourceClassName,
+                                                    P permission) {
+      Map<String, Set<P>> permissionsByClassName = permissionsByDomainId.get(domainId);
+      if (permissionsByClassName == null) {
+         permissionsByClassName = new HashMap<>();
+         permissionsByDomainId.put(domainId, permissionsByClassName);
+      }
+      Set<P> permissions = permissionsByClassName.get(resourceClassName);
+      if (permissions == null) {
+         permissions = new HashSet<>();
+         permissionsByClassName.put(resourceClassName, permissions);
+      }
+      permissions.add(permission);
+   }
+}
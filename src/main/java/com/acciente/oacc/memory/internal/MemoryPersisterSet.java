@@ -0,0 +1,151 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.sql.internal.persister.DomainPersister;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantDomainPermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreatePersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
+import com.acciente.oacc.sql.internal.persister.ResourcePersister;
+
+import java.io.Serializable;
+
+/**
+ * The set of persisters that keep the security tables in a {@link MemoryStore}.
+ */
+public class MemoryPersisterSet implements PersisterSet, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final ResourceClassPersister                              resourceClassPersister;
+   private final ResourceClassPermissionPersister                    resourceClassPermissionPersister;
+   private final DomainPersister                                     domainPersister;
+   private final GrantDomainCreatePermissionSysPersister             grantDomainCreatePermissionSysPersister;
+   private final GrantDomainCreatePermissionPostCreateSysPersister   grantDomainCreatePermissionPostCreateSysPersister;
+   private final GrantDomainPermissionSysPersister                   grantDomainPermissionSysPersister;
+   private final ResourcePersister                                   resourcePersister;
+   private final GrantResourceCreatePermissionSysPersister           grantResourceCreatePermissionSysPersister;
+   private final GrantResourceCreatePermissionPostCreateSysPersister grantResourceCreatePermissionPostCreateSysPersister;
+   private final GrantResourceCreatePermissionPostCreatePersister    grantResourceCreatePermissionPostCreatePersister;
+   private final GrantResourcePermissionSysPersister                 grantResourcePermissionSysPersister;
+   private final GrantGlobalResourcePermissionSysPersister           grantGlobalResourcePermissionSysPersister;
+   private final GrantResourcePermissionPersister                    grantResourcePermissionPersister;
+   private final GrantGlobalResourcePermissionPersister              grantGlobalResourcePermissionPersister;
+
+   public MemoryPersisterSet(MemoryStore store) {
+      resourceClassPersister                              = new MemoryResourceClassPersister(store);
+      resourceClassPermissionPersister                    = new MemoryResourceClassPermissionPersister(store);
+      domainPersister                                     = new MemoryDomainPersister(store);
+      grantDomainCreatePermissionSysPersister             = new MemoryGrantDomainCreatePermissionSysPersister(store);
+      grantDomainCreatePermissionPostCreateSysPersister   = new MemoryGrantDomainCreatePermissionPostCreateSysPersister(store);
+      grantDomainPermissionSysPersister                   = new MemoryGrantDomainPermissionSysPersister(store);
+      resourcePersister                                   = new MemoryResourcePersister(store);
+      grantResourceCreatePermissionSysPersister           = new MemoryGrantResourceCreatePermissionSysPersister(store);
+      grantResourceCreatePermissionPostCreateSysPersister = new MemoryGrantResourceCreatePermissionPostCreateSysPersister(store);
+      grantResourceCreatePermissionPostCreatePersister    = new MemoryGrantResourceCreatePermissionPostCreatePersister(store);
+      grantResourcePermissionSysPersister                 = new MemoryGrantResourcePermissionSysPersister(store);
+      grantGlobalResourcePermissionSysPersister           = new MemoryGrantGlobalResourcePermissionSysPersister(store);
+      grantResourcePermissionPersister                    = new MemoryGrantResourcePermissionPersister(store);
+      grantGlobalResourcePermissionPersister              = new MemoryGrantGlobalResourcePermissionPersister(store);
+   }
+
+   @Override
+   public ResourceClassPersister getResourceClassPersister() {
+      return resourceClassPersister;
+   }
+
+   @Override
+   public ResourceClassPermissionPersister getResourceClassPermissionPersister() {
+      return resourceClassPermissionPersister;
+   }
+
+   @Override
+   public DomainPersister getDomainPersister() {
+      return domainPersister;
+   }
+
+   @Override
+   public GrantDomainCreatePermissionSysPersister getGrantDomainCreatePermissionSysPersister() {
+      return grantDomainCreatePermissionSysPersister;
+   }
+
+   @Override
+   public GrantDomainCreatePermissionPostCreateSysPersister getGrantDomainCreatePermissionPostCreateSysPersister() {
+      return grantDomainCreatePermissionPostCreateSysPersister;
+   }
+
+   @Override
+   public GrantDomainPermissionSysPersister getGrantDomainPermissionSysPersister() {
+      return grantDomainPermissionSysPersister;
+   }
+
+   @Override
+   public ResourcePersister getResourcePersister() {
+      return resourcePersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionSysPersister getGrantResourceCreatePermissionSysPersister() {
+      return grantResourceCreatePermissionSysPersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionPostCreateSysPersister getGrantResourceCreatePermissionPostCreateSysPersister() {
+      return grantResourceCreatePermissionPostCreateSysPersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionPostCreatePersister getGrantResourceCreatePermissionPostCreatePersister() {
+      return grantResourceCreatePermissionPostCreatePersister;
+   }
+
+   @Override
+   public GrantResourcePermissionSysPersister getGrantResourcePermissionSysPersister() {
+      return grantResourcePermissionSysPersister;
+   }
+
+   @Override
+   public GrantGlobalResourcePermissionSysPersister getGrantGlobalResourcePermissionSysPersister() {
+      return grantGlobalResourcePermissionSysPersister;
+   }
+
+   @Override
+   public GrantResourcePermissionPersister getGrantResourcePermissionPersister() {
+      return grantResourcePermissionPersister;
+   }
+
+   @Override
+   public GrantGlobalResourcePermissionPersister getGrantGlobalResourcePermissionPersister() {
+      return grantGlobalResourcePermissionPersister;
+   }
+
+   @Override
+   public boolean isUpsertEnabled() {
+      // the grant tables apply an upsert directly
+      return true;
+   }
+}
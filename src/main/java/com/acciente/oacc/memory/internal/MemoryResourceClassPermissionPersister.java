@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MemoryResourceClassPermissionPersister extends MemoryPersister
+      implements ResourceClassPermissionPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryResourceClassPermissionPersister(MemoryStore store) {
+      super(store);
+   }
+
+   @Override
+   public Id<ResourcePermissionId> getResourceClassPermissionId(SQLConnection connection,
+                                                                Id<ResourceClassId> resourceClassId,
+                                                                String permissionName) {
+      return Id.from(getStore().getResourceClassPermissionId(resourceClassId.getValue(), permissionName));
+   }
+
+   @Override
+   public List<String> getPermissionNames(SQLConnection connection,
+                                          String resourceClassName) {
+      final MemoryStore.ResourceClassRecord resourceClass = getStore().getResourceClass(resourceClassName);
+
+      if (resourceClass == null) {
+         return new ArrayList<>();
+      }
+      return getStore().getResourceClassPermissionNames(resourceClass.getId());
+   }
+
+   @Override
+   public void addResourceClassPermission(SQLConnection connection,
+                                          Id<ResourceClassId> resourceClassId,
+                                          String permissionName) {
+      getStore().addResourceClassPermission(resourceClassId.getValue(), permissionName);
+   }
+}
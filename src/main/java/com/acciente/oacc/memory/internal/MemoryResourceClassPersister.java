@@ -0,0 +1,92 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.sql.internal.ResourceClassInternalInfo;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class MemoryResourceClassPersister extends MemoryPersister implements ResourceClassPersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryResourceClassPersister(MemoryStore store) {
+      super(store);
+   }
+
+   @Override
+   public Id<ResourceClassId> getResourceClassId(SQLConnection connection,
+                                                 String resourceClassName) {
+      final MemoryStore.ResourceClassRecord resourceClass = getStore().getResourceClass(resourceClassName);
+
+      if (resourceClass == null) {
+         return null;
+      }
+      return Id.from(resourceClass.getId());
+   }
+
+   @Override
+   public ResourceClassInternalInfo getResourceClassInfo(SQLConnection connection,
+                                                         String resourceClassName) {
+      if (resourceClassName == null) {
+         throw new IllegalArgumentException("Resource class name cannot be null");
+      }
+
+      return getResourceClassInternalInfo(getStore().getResourceClass(resourceClassName.trim()));
+   }
+
+   @Override
+   public ResourceClassInternalInfo getResourceClassInfoByResourceId(SQLConnection connection,
+                                                                     Resource resource) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resource.getId());
+
+      if (resourceRecord == null) {
+         throw new IllegalArgumentException("Could not determine resource class for resource: " + resource);
+      }
+
+      return getResourceClassInternalInfo(getStore().getResourceClass(resourceRecord.getResourceClassId()));
+   }
+
+   @Override
+   public List<String> getResourceClassNames(SQLConnection connection) {
+      return getStore().getResourceClassNames();
+   }
+
+   @Override
+   public void addResourceClass(SQLConnection connection,
+                                String resourceClassName,
+                                boolean authenticatable,
+                                boolean nonAuthenticatedCreateAllowed) {
+      getStore().addResourceClass(resourceClassName, authenticatable, nonAuthenticatedCreateAllowed);
+   }
+
+   static ResourceClassInternalInfo getResourceClassInternalInfo(MemoryStore.ResourceClassRecord resourceClass) {
+      if (resourceClass == null) {
+         return null;
+      }
+      return new ResourceClassInternalInfo(Id.<ResourceClassId>from(resourceClass.getId()),
+                                           resourceClass.getName(),
+                                           resourceClass.isAuthenticatable(),
+                                           resourceClass.isUnauthenticatedCreateAllowed());
+   }
+}
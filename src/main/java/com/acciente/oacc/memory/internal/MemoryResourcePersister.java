@@ -0,0 +1,165 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.sql.internal.ResolvedResource;
+import com.acciente.oacc.sql.internal.persister.ResourcePersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourceId;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MemoryResourcePersister extends MemoryPersister implements ResourcePersister, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   public MemoryResourcePersister(MemoryStore store) {
+      super(store);
+   }
+
+   @Override
+   public void verifyResourceExists(SQLConnection connection,
+                                    Resource resource) {
+      if (getStore().getResource(resource.getId()) == null) {
+         throw new IllegalArgumentException("Resource " + resource + " not found!");
+      }
+   }
+
+   @Override
+   public Resource createResource(SQLConnection connection,
+                                  Id<ResourceClassId> resourceClassId,
+                                  Id<DomainId> resourceDomainId,
+                                  String externalId) {
+      final long resourceId = getStore().addResource(resourceClassId.getValue(), resourceDomainId.getValue());
+
+      // save the new resource's external id, if necessary, and return the new resource
+      if (externalId != null) {
+         return setExternalId(connection, Id.<ResourceId>from(resourceId), externalId);
+      }
+      else {
+         return Resources.getInstance(resourceId);
+      }
+   }
+
+   @Override
+   public Resource setExternalId(SQLConnection connection,
+                                 Id<ResourceId> resourceId,
+                                 String externalId) {
+      getStore().setExternalId(resourceId.getValue(), externalId);
+
+      return Resources.getInstance(resourceId.getValue(), externalId);
+   }
+
+   @Override
+   public void deleteResource(SQLConnection connection,
+                              Resource resource) {
+      assertOneRowUpdated(getStore().deleteResource(resource.getId()));
+   }
+
+   @Override
+   public void deleteResources(SQLConnection connection,
+                               List<Resource> resources) {
+      for (Resource resource : resources) {
+         assertOneRowUpdated(getStore().deleteResource(resource.getId()));
+      }
+   }
+
+   @Override
+   public Id<DomainId> getDomainIdByResource(SQLConnection connection,
+                                             Resource resource) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resource.getId());
+
+      if (resourceRecord == null) {
+         throw new IllegalArgumentException("Could not determine domain for resource: " + resource);
+      }
+      return Id.from(resourceRecord.getDomainId());
+   }
+
+   @Override
+   public Id<ResourceId> getNextResourceId(SQLConnection connection) {
+      return Id.from(getStore().reserveResourceId());
+   }
+
+   @Override
+   public boolean isDomainEmpty(SQLConnection connection,
+                                Id<DomainId> resourceDomainId) {
+      return getStore().isDomainEmpty(resourceDomainId.getValue());
+   }
+
+   @Override
+   public Resource resolveResourceByExternalId(SQLConnection connection,
+                                               String externalId) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResourceByExternalId(externalId);
+
+      if (resourceRecord == null) {
+         return null;
+      }
+      return getResolvedResource(resourceRecord);
+   }
+
+   @Override
+   public Resource resolveResourceByResourceId(SQLConnection connection,
+                                               Resource resource) {
+      final MemoryStore.ResourceRecord resourceRecord = getStore().getResource(resource.getId());
+
+      if (resourceRecord == null) {
+         return null;
+      }
+      return getResolvedResource(resourceRecord);
+   }
+
+   @Override
+   public List<Resource> resolveResourcesByExternalId(SQLConnection connection,
+                                                      List<String> externalIds) {
+      final List<Resource> resolvedResources = new ArrayList<>(externalIds.size());
+      for (String externalId : externalIds) {
+         final Resource resolvedResource = resolveResourceByExternalId(connection, externalId);
+         if (resolvedResource != null) {
+            resolvedResources.add(resolvedResource);
+         }
+      }
+      return resolvedResources;
+   }
+
+   @Override
+   public List<Resource> resolveResourcesByResourceId(SQLConnection connection,
+                                                      List<Resource> resources) {
+      final List<Resource> resolvedResources = new ArrayList<>(resources.size());
+      for (Resource resource : resources) {
+         final Resource resolvedResource = resolveResourceByResourceId(connection, resource);
+         if (resolvedResource != null) {
+            resolvedResources.add(resolvedResource);
+         }
+      }
+      return resolvedResources;
+   }
+
+   private ResolvedResource getResolvedResource(MemoryStore.ResourceRecord resourceRecord) {
+      return ResolvedResource.getInstance(resourceRecord.getId(),
+                                          resourceRecord.getExternalId(),
+                                          MemoryResourceClassPersister.getResourceClassInternalInfo(
+                                                getStore().getResourceClass(resourceRecord.getResourceClassId())),
+                                          Id.<DomainId>from(resourceRecord.getDomainId()));
+   }
+}
@@ -0,0 +1,1302 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds all the data of an in-memory access control system: the resource classes and their permissions, the
+ * domain tree, the resources, the resource passwords and the ten grant tables.
+ * <p/>
+ * All ids are primitive longs and all id-keyed data lives in open-addressing primitive maps. The domain tree is
+ * held as an array of child ids per domain and the *INHERIT graph as a sorted array of inherited-from resource
+ * ids per accessor, so that walking either one does not allocate beyond the result.
+ * <p/>
+ * Each public method is atomic with respect to the others, but - just like the SQL engine running without a
+ * transaction - a sequence of calls is not.
+ */
+public class MemoryStore {
+   public static final long NO_PARENT_DOMAIN_ID = -1;
+
+   private static final long INHERIT_PERMISSION_ID
+         = ResourcePermissions.getInstance(ResourcePermissions.INHERIT).getSystemPermissionId();
+
+   // registry used to re-attach deserialized persisters to the store they were created for
+   private static final Map<String, WeakReference<MemoryStore>> storesById = new HashMap<>();
+
+   private final String                 storeId = UUID.randomUUID().toString();
+   private final ReentrantReadWriteLock lock    = new ReentrantReadWriteLock();
+   private       Journal                journal;
+
+   // resource classes
+   private final LongObjectHashMap<ResourceClassRecord>            resourceClassesById             = new LongObjectHashMap<>();
+   private final Map<String, ResourceClassRecord>                  resourceClassesByName           = new HashMap<>();
+   private final LongObjectHashMap<Map<String, Long>>              permissionIdsByClassId          = new LongObjectHashMap<>();
+   private final LongObjectHashMap<String>                         permissionNamesById             = new LongObjectHashMap<>();
+
+   // domains
+   private final LongObjectHashMap<DomainRecord>                   domainsById                     = new LongObjectHashMap<>();
+   private final Map<String, DomainRecord>                         domainsByName                   = new HashMap<>();
+   private final LongObjectHashMap<long[]>                         childDomainIdsByDomainId        = new LongObjectHashMap<>();
+
+   // resources
+   private final LongObjectHashMap<ResourceRecord>                 resourcesById                   = new LongObjectHashMap<>();
+   private final Map<String, ResourceRecord>                       resourcesByExternalId           = new HashMap<>();
+   private final LongObjectHashMap<LongObjectHashMap<LongHashSet>> resourceIdsByDomainIdAndClassId = new LongObjectHashMap<>();
+   private final LongObjectHashMap<String>                         passwordsByResourceId           = new LongObjectHashMap<>();
+
+   // id generators
+   private long nextResourceClassId = 1;
+   private long nextPermissionId    = 1;
+   private long nextDomainId        = 1;
+   private long nextResourceId      = 1;
+
+   // grant tables
+   private final GrantTable[] grantTables = new GrantTable[10];
+   private final GrantTable   domainPermissionSysGrants                        = grantTables[0] = new GrantTable(this, 0);
+   private final GrantTable   domainCreatePermissionSysGrants                  = grantTables[1] = new GrantTable(this, 1);
+   private final GrantTable   domainCreatePermissionPostCreateSysGrants        = grantTables[2] = new GrantTable(this, 2);
+   private final GrantTable   resourceCreatePermissionSysGrants                = grantTables[3] = new GrantTable(this, 3);
+   private final GrantTable   resourceCreatePermissionPostCreateSysGrants      = grantTables[4] = new GrantTable(this, 4);
+   private final GrantTable   resourceCreatePermissionPostCreateGrants         = grantTables[5] = new GrantTable(this, 5);
+   private final GrantTable   resourcePermissionSysGrants                      = grantTables[6] = new GrantTable(this, 6, INHERIT_PERMISSION_ID);
+   private final GrantTable   resourcePermissionGrants                         = grantTables[7] = new GrantTable(this, 7);
+   private final GrantTable   globalResourcePermissionSysGrants                = grantTables[8] = new GrantTable(this, 8);
+   private final GrantTable   globalResourcePermissionGrants                   = grantTables[9] = new GrantTable(this, 9);
+
+   /**
+    * Creates an empty store, that only holds the system domain, the system resource class and the system resource.
+    */
+   public MemoryStore() {
+      __addResourceClass(0, AccessControlContext.SYSTEM_RESOURCE_CLASS, true, false);
+      __addDomain(0, AccessControlContext.SYSTEM_DOMAIN, NO_PARENT_DOMAIN_ID);
+      __addResource(0, 0, 0);
+
+      synchronized (storesById) {
+         // drop the entries of stores that have since been garbage collected
+         final Iterator<WeakReference<MemoryStore>> storeReferenceIterator = storesById.values().iterator();
+         while (storeReferenceIterator.hasNext()) {
+            if (storeReferenceIterator.next().get() == null) {
+               storeReferenceIterator.remove();
+            }
+         }
+         storesById.put(storeId, new WeakReference<>(this));
+      }
+   }
+
+   /**
+    * Returns the store with the specified id, if it is still reachable in this JVM.
+    */
+   public static MemoryStore getInstance(String storeId) {
+      synchronized (storesById) {
+         final WeakReference<MemoryStore> storeReference = storesById.get(storeId);
+         return storeReference == null ? null : storeReference.get();
+      }
+   }
+
+   public String getStoreId() {
+      return storeId;
+   }
+
+   // journal
+
+   /**
+    * Replays the specified journal file into this store, if the file exists, and then journals all subsequent
+    * mutations of this store to it. A replayed journal file is compacted before it is appended to, so that the
+    * journal only grows with the mutations made since the store was last opened.
+    *
+    * @param journalFile the journal file
+    * @return true if the journal file was replayed, false if it did not exist and was newly created
+    */
+   public boolean openJournal(File journalFile) {
+      lockForWrite();
+      try {
+         if (journal != null) {
+            throw new IllegalStateException("Journal already open");
+         }
+         final boolean isExisting = journalFile.exists() && journalFile.length() > 0;
+         journal = Journal.open(journalFile, new Journal.RecordHandler() {
+            @Override
+            public void apply(int op, DataInputStream record) throws IOException {
+               replay(op, record);
+            }
+         });
+         if (isExisting) {
+            __compactJournal();
+         }
+         return isExisting;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public void closeJournal() {
+      lockForWrite();
+      try {
+         if (journal != null) {
+            journal.close();
+            journal = null;
+         }
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Replaces the records of the journal file of this store with the fewest records that recreate the current
+    * contents of the store. Does nothing if this store is not journaled.
+    */
+   public void compactJournal() {
+      lockForWrite();
+      try {
+         if (journal != null) {
+            __compactJournal();
+         }
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   boolean isJournaled() {
+      return journal != null;
+   }
+
+   DataOutput beginJournalRecord(int op) throws IOException {
+      return journal.beginRecord(op);
+   }
+
+   void endJournalRecord() throws IOException {
+      journal.endRecord();
+   }
+
+   private void replay(int op, DataInputStream record) throws IOException {
+      switch (op) {
+         case Journal.OP_ADD_RESOURCE_CLASS:
+            __addResourceClass(record.readLong(), record.readUTF(), record.readBoolean(), record.readBoolean());
+            break;
+         case Journal.OP_ADD_RESOURCE_CLASS_PERMISSION:
+            __addResourceClassPermission(record.readLong(), record.readLong(), record.readUTF());
+            break;
+         case Journal.OP_ADD_DOMAIN:
+            __addDomain(record.readLong(), record.readUTF(), record.readLong());
+            break;
+         case Journal.OP_DELETE_DOMAIN:
+            __deleteDomain(record.readLong());
+            break;
+         case Journal.OP_ADD_RESOURCE:
+            __addResource(record.readLong(), record.readLong(), record.readLong());
+            break;
+         case Journal.OP_SET_EXTERNAL_ID:
+            __setExternalId(record.readLong(), record.readUTF());
+            break;
+         case Journal.OP_DELETE_RESOURCE:
+            __deleteResource(record.readLong());
+            break;
+         case Journal.OP_SET_PASSWORD:
+            passwordsByResourceId.put(record.readLong(), record.readUTF());
+            break;
+         case Journal.OP_REMOVE_PASSWORD:
+            passwordsByResourceId.remove(record.readLong());
+            break;
+         case Journal.OP_RESERVE_RESOURCE_ID:
+            nextResourceId = Math.max(nextResourceId, record.readLong() + 1);
+            break;
+         case Journal.OP_RESERVE_DOMAIN_ID:
+            nextDomainId = Math.max(nextDomainId, record.readLong() + 1);
+            break;
+         default:
+            grantTables[record.readUnsignedByte()].replay(op, record);
+      }
+   }
+
+   // locking, also used by the grant tables
+
+   void lockForRead() {
+      lock.readLock().lock();
+   }
+
+   void unlockForRead() {
+      lock.readLock().unlock();
+   }
+
+   void lockForWrite() {
+      lock.writeLock().lock();
+   }
+
+   void unlockForWrite() {
+      lock.writeLock().unlock();
+   }
+
+   // grant tables
+
+   public GrantTable getDomainPermissionSysGrants() {
+      return domainPermissionSysGrants;
+   }
+
+   public GrantTable getDomainCreatePermissionSysGrants() {
+      return domainCreatePermissionSysGrants;
+   }
+
+   public GrantTable getDomainCreatePermissionPostCreateSysGrants() {
+      return domainCreatePermissionPostCreateSysGrants;
+   }
+
+   public GrantTable getResourceCreatePermissionSysGrants() {
+      return resourceCreatePermissionSysGrants;
+   }
+
+   public GrantTable getResourceCreatePermissionPostCreateSysGrants() {
+      return resourceCreatePermissionPostCreateSysGrants;
+   }
+
+   public GrantTable getResourceCreatePermissionPostCreateGrants() {
+      return resourceCreatePermissionPostCreateGrants;
+   }
+
+   public GrantTable getResourcePermissionSysGrants() {
+      return resourcePermissionSysGrants;
+   }
+
+   public GrantTable getResourcePermissionGrants() {
+      return resourcePermissionGrants;
+   }
+
+   public GrantTable getGlobalResourcePermissionSysGrants() {
+      return globalResourcePermissionSysGrants;
+   }
+
+   public GrantTable getGlobalResourcePermissionGrants() {
+      return globalResourcePermissionGrants;
+   }
+
+   /**
+    * Returns the ids of the specified accessor and of all the resources it transitively inherits from.
+    */
+   public long[] getInheritedAccessorIds(long accessorId) {
+      lockForRead();
+      try {
+         final LongHashSet visitedIds = new LongHashSet();
+         long[] pendingIds = new long[8];
+         int pendingCount = 0;
+
+         visitedIds.add(accessorId);
+         pendingIds[pendingCount++] = accessorId;
+
+         while (pendingCount > 0) {
+            final long[] inheritedIds = resourcePermissionSysGrants.getAdjacentTargetIds(pendingIds[--pendingCount]);
+            if (inheritedIds != null) {
+               for (long inheritedId : inheritedIds) {
+                  if (visitedIds.add(inheritedId)) {
+                     if (pendingCount == pendingIds.length) {
+                        final long[] newPendingIds = new long[pendingIds.length << 1];
+                        System.arraycopy(pendingIds, 0, newPendingIds, 0, pendingCount);
+                        pendingIds = newPendingIds;
+                     }
+                     pendingIds[pendingCount++] = inheritedId;
+                  }
+               }
+            }
+         }
+
+         return visitedIds.toArray();
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   /**
+    * Returns the ids of the specified resources and of all the resources that transitively inherit from any of
+    * them, i.e. the reverse of {@link #getInheritedAccessorIds}.
+    */
+   public long[] getInheritingAccessorIds(long[] inheritedIds) {
+      lockForRead();
+      try {
+         final LongHashSet visitedIds = new LongHashSet();
+         long[] pendingIds = new long[Math.max(8, inheritedIds.length)];
+         int pendingCount = 0;
+
+         for (long inheritedId : inheritedIds) {
+            if (visitedIds.add(inheritedId)) {
+               pendingIds[pendingCount++] = inheritedId;
+            }
+         }
+
+         while (pendingCount > 0) {
+            final long[] inheritingIds = resourcePermissionSysGrants.getAdjacentAccessorIds(pendingIds[--pendingCount]);
+            if (inheritingIds != null) {
+               for (long inheritingId : inheritingIds) {
+                  if (visitedIds.add(inheritingId)) {
+                     if (pendingCount == pendingIds.length) {
+                        final long[] newPendingIds = new long[pendingIds.length << 1];
+                        System.arraycopy(pendingIds, 0, newPendingIds, 0, pendingCount);
+                        pendingIds = newPendingIds;
+                     }
+                     pendingIds[pendingCount++] = inheritingId;
+                  }
+               }
+            }
+         }
+
+         return visitedIds.toArray();
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   // resource classes
+
+   public long addResourceClass(String resourceClassName,
+                                boolean authenticatable,
+                                boolean unauthenticatedCreateAllowed) {
+      lockForWrite();
+      try {
+         if (resourceClassesByName.containsKey(resourceClassName)) {
+            throw new IllegalStateException("Duplicate resource class: " + resourceClassName);
+         }
+         final long resourceClassId = nextResourceClassId;
+         __addResourceClass(resourceClassId, resourceClassName, authenticatable, unauthenticatedCreateAllowed);
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_ADD_RESOURCE_CLASS);
+            record.writeLong(resourceClassId);
+            record.writeUTF(resourceClassName);
+            record.writeBoolean(authenticatable);
+            record.writeBoolean(unauthenticatedCreateAllowed);
+            journal.endRecord();
+         }
+         return resourceClassId;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public ResourceClassRecord getResourceClass(long resourceClassId) {
+      lockForRead();
+      try {
+         return resourceClassesById.get(resourceClassId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public ResourceClassRecord getResourceClass(String resourceClassName) {
+      lockForRead();
+      try {
+         return resourceClassesByName.get(resourceClassName);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   /**
+    * Returns the names of all resource classes, except for the system resource class.
+    */
+   public List<String> getResourceClassNames() {
+      lockForRead();
+      try {
+         final List<String> resourceClassNames = new ArrayList<>(resourceClassesById.size());
+         for (ResourceClassRecord resourceClass : resourceClassesById.values()) {
+            if (resourceClass.getId() != 0) {
+               resourceClassNames.add(resourceClass.getName());
+            }
+         }
+         return resourceClassNames;
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public long addResourceClassPermission(long resourceClassId, String permissionName) {
+      lockForWrite();
+      try {
+         final Map<String, Long> permissionIdsByName = permissionIdsByClassId.get(resourceClassId);
+         if (permissionIdsByName == null) {
+            throw new IllegalArgumentException("Could not find resource class with id: " + resourceClassId);
+         }
+         if (permissionIdsByName.containsKey(permissionName)) {
+            throw new IllegalStateException("Duplicate permission: " + permissionName + " for resource class id: " + resourceClassId);
+         }
+         final long permissionId = nextPermissionId;
+         __addResourceClassPermission(resourceClassId, permissionId, permissionName);
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_ADD_RESOURCE_CLASS_PERMISSION);
+            record.writeLong(resourceClassId);
+            record.writeLong(permissionId);
+            record.writeUTF(permissionName);
+            journal.endRecord();
+         }
+         return permissionId;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Returns the id of the specified permission of the specified resource class, or null if there is none.
+    */
+   public Long getResourceClassPermissionId(long resourceClassId, String permissionName) {
+      lockForRead();
+      try {
+         final Map<String, Long> permissionIdsByName = permissionIdsByClassId.get(resourceClassId);
+         return permissionIdsByName == null ? null : permissionIdsByName.get(permissionName);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public String getResourceClassPermissionName(long permissionId) {
+      lockForRead();
+      try {
+         return permissionNamesById.get(permissionId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public List<String> getResourceClassPermissionNames(long resourceClassId) {
+      lockForRead();
+      try {
+         final Map<String, Long> permissionIdsByName = permissionIdsByClassId.get(resourceClassId);
+         if (permissionIdsByName == null) {
+            return new ArrayList<>();
+         }
+         return new ArrayList<>(permissionIdsByName.keySet());
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   // domains
+
+   public long addDomain(String domainName, long parentDomainId) {
+      lockForWrite();
+      try {
+         if (domainsByName.containsKey(domainName)) {
+            throw new IllegalStateException("Duplicate domain: " + domainName);
+         }
+         if (parentDomainId != NO_PARENT_DOMAIN_ID && !domainsById.containsKey(parentDomainId)) {
+            throw new IllegalArgumentException("Could not find parent domain with id: " + parentDomainId);
+         }
+         final long domainId = nextDomainId;
+         __addDomain(domainId, domainName, parentDomainId);
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_ADD_DOMAIN);
+            record.writeLong(domainId);
+            record.writeUTF(domainName);
+            record.writeLong(parentDomainId);
+            journal.endRecord();
+         }
+         return domainId;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public DomainRecord getDomain(long domainId) {
+      lockForRead();
+      try {
+         return domainsById.get(domainId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public DomainRecord getDomain(String domainName) {
+      lockForRead();
+      try {
+         return domainsByName.get(domainName);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   /**
+    * Returns the ids of the specified domain and of all its descendants, or an empty array if there is no such
+    * domain.
+    */
+   public long[] getDescendantDomainIds(long domainId) {
+      lockForRead();
+      try {
+         return __getDescendantDomainIds(domainId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   /**
+    * Returns the ids of the specified domain and of all its ancestors, or an empty array if there is no such
+    * domain.
+    */
+   public long[] getAncestorDomainIds(long domainId) {
+      lockForRead();
+      try {
+         int count = 0;
+         for (DomainRecord domain = domainsById.get(domainId);
+              domain != null;
+              domain = domainsById.get(domain.getParentId())) {
+            count++;
+         }
+         final long[] ancestorDomainIds = new long[count];
+         int index = 0;
+         for (DomainRecord domain = domainsById.get(domainId);
+              domain != null;
+              domain = domainsById.get(domain.getParentId())) {
+            ancestorDomainIds[index++] = domain.getId();
+         }
+         return ancestorDomainIds;
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   /**
+    * Deletes the specified domain and all its descendants.
+    */
+   public void deleteDomain(long domainId) {
+      lockForWrite();
+      try {
+         __deleteDomain(domainId);
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_DELETE_DOMAIN);
+            record.writeLong(domainId);
+            journal.endRecord();
+         }
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Returns true if neither the specified domain nor any of its descendants contain any resources.
+    */
+   public boolean isDomainEmpty(long domainId) {
+      lockForRead();
+      try {
+         for (long descendantDomainId : __getDescendantDomainIds(domainId)) {
+            if (resourceIdsByDomainIdAndClassId.containsKey(descendantDomainId)) {
+               return false;
+            }
+         }
+         return true;
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   // resources
+
+   public long addResource(long resourceClassId, long domainId) {
+      lockForWrite();
+      try {
+         if (!resourceClassesById.containsKey(resourceClassId)) {
+            throw new IllegalArgumentException("Could not find resource class with id: " + resourceClassId);
+         }
+         if (!domainsById.containsKey(domainId)) {
+            throw new IllegalArgumentException("Could not find domain with id: " + domainId);
+         }
+         final long resourceId = nextResourceId;
+         __addResource(resourceId, resourceClassId, domainId);
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_ADD_RESOURCE);
+            record.writeLong(resourceId);
+            record.writeLong(resourceClassId);
+            record.writeLong(domainId);
+            journal.endRecord();
+         }
+         return resourceId;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Reserves and returns a resource id, that will not be assigned to any resource added later.
+    */
+   public long reserveResourceId() {
+      lockForWrite();
+      try {
+         final long resourceId = nextResourceId++;
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_RESERVE_RESOURCE_ID);
+            record.writeLong(resourceId);
+            journal.endRecord();
+         }
+         return resourceId;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public ResourceRecord getResource(long resourceId) {
+      lockForRead();
+      try {
+         return resourcesById.get(resourceId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public ResourceRecord getResourceByExternalId(String externalId) {
+      lockForRead();
+      try {
+         return resourcesByExternalId.get(externalId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public ResourceRecord setExternalId(long resourceId, String externalId) {
+      lockForWrite();
+      try {
+         final ResourceRecord resource = resourcesById.get(resourceId);
+         if (resource == null) {
+            throw new IllegalArgumentException("Could not find resource with id: " + resourceId);
+         }
+         if (resource.getExternalId() != null) {
+            throw new IllegalStateException("Resource with id: " + resourceId + " already has an external id");
+         }
+         if (resourcesByExternalId.containsKey(externalId)) {
+            throw new IllegalStateException("Duplicate external id: " + externalId);
+         }
+         final ResourceRecord updatedResource = __setExternalId(resourceId, externalId);
+
+         if (journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_SET_EXTERNAL_ID);
+            record.writeLong(resourceId);
+            record.writeUTF(externalId);
+            journal.endRecord();
+         }
+         return updatedResource;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Deletes the specified resource and its external id, and returns the number of resources deleted.
+    */
+   public int deleteResource(long resourceId) {
+      lockForWrite();
+      try {
+         final int rowCount = __deleteResource(resourceId);
+
+         if (rowCount > 0 && journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_DELETE_RESOURCE);
+            record.writeLong(resourceId);
+            journal.endRecord();
+         }
+         return rowCount;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Returns the ids of the resources of the specified resource class in any of the specified domains.
+    */
+   public LongHashSet getResourceIds(long resourceClassId, long[] domainIds) {
+      lockForRead();
+      try {
+         final LongHashSet resourceIds = new LongHashSet();
+         for (long domainId : domainIds) {
+            final LongObjectHashMap<LongHashSet> resourceIdsByClassId = resourceIdsByDomainIdAndClassId.get(domainId);
+            if (resourceIdsByClassId != null) {
+               final LongHashSet domainResourceIds = resourceIdsByClassId.get(resourceClassId);
+               if (domainResourceIds != null) {
+                  resourceIds.addAll(domainResourceIds.toArray());
+               }
+            }
+         }
+         return resourceIds;
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   // passwords
+
+   public String getPassword(long resourceId) {
+      lockForRead();
+      try {
+         return passwordsByResourceId.get(resourceId);
+      }
+      finally {
+         unlockForRead();
+      }
+   }
+
+   public void setPassword(long resourceId, String encryptedPassword) {
+      lockForWrite();
+      try {
+         __setPassword(resourceId, encryptedPassword);
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   /**
+    * Replaces the password of the resource, but only if it is still the specified expected password, and never
+    * creates a password for a resource that has none.
+    *
+    * @return <code>true</code> if the password was replaced, <code>false</code> if it had changed in the meantime
+    */
+   public boolean replacePassword(long resourceId, String expectedEncryptedPassword, String encryptedPassword) {
+      lockForWrite();
+      try {
+         if (!expectedEncryptedPassword.equals(passwordsByResourceId.get(resourceId))) {
+            return false;
+         }
+         __setPassword(resourceId, encryptedPassword);
+         return true;
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public void removePassword(long resourceId) {
+      lockForWrite();
+      try {
+         if (passwordsByResourceId.remove(resourceId) != null && journal != null) {
+            final DataOutput record = journal.beginRecord(Journal.OP_REMOVE_PASSWORD);
+            record.writeLong(resourceId);
+            journal.endRecord();
+         }
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   // access to all rows, for writing snapshots; the caller must hold the read lock
+
+   List<ResourceClassRecord> getResourceClassRecords() {
+      return resourceClassesById.values();
+   }
+
+   Map<String, Long> getResourceClassPermissionIds(long resourceClassId) {
+      return permissionIdsByClassId.get(resourceClassId);
+   }
+
+   List<DomainRecord> getDomainRecords() {
+      return domainsById.values();
+   }
+
+   List<ResourceRecord> getResourceRecords() {
+      return resourcesById.values();
+   }
+
+   GrantTable[] getGrantTables() {
+      return grantTables;
+   }
+
+   // loading of rows whose ids were assigned elsewhere, such as by a database this store mirrors; loading is not
+   // journaled, and loading a row that is already present has no effect
+
+   public void loadResourceClass(long resourceClassId,
+                                 String resourceClassName,
+                                 boolean authenticatable,
+                                 boolean unauthenticatedCreateAllowed) {
+      lockForWrite();
+      try {
+         if (!resourceClassesById.containsKey(resourceClassId)) {
+            __addResourceClass(resourceClassId, resourceClassName, authenticatable, unauthenticatedCreateAllowed);
+         }
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public void loadResourceClassPermission(long resourceClassId, long permissionId, String permissionName) {
+      lockForWrite();
+      try {
+         if (!permissionNamesById.containsKey(permissionId)) {
+            __addResourceClassPermission(resourceClassId, permissionId, permissionName);
+         }
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public void loadDomain(long domainId, String domainName, long parentDomainId) {
+      lockForWrite();
+      try {
+         // a child may be loaded before its parent, because the child ids are kept apart from the domain records
+         if (!domainsById.containsKey(domainId)) {
+            __addDomain(domainId, domainName, parentDomainId);
+         }
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   public void loadResource(long resourceId, long resourceClassId, long domainId, String externalId) {
+      lockForWrite();
+      try {
+         if (!resourcesById.containsKey(resourceId)) {
+            __addResource(resourceId, resourceClassId, domainId);
+         }
+         if (externalId != null) {
+            __setExternalId(resourceId, externalId);
+         }
+      }
+      finally {
+         unlockForWrite();
+      }
+   }
+
+   // private helpers, which expect the caller to hold the write lock (or the read lock, for queries)
+
+   private void __setPassword(long resourceId, String encryptedPassword) throws IOException {
+      passwordsByResourceId.put(resourceId, encryptedPassword);
+
+      if (journal != null) {
+         final DataOutput record = journal.beginRecord(Journal.OP_SET_PASSWORD);
+         record.writeLong(resourceId);
+         record.writeUTF(encryptedPassword);
+         journal.endRecord();
+      }
+   }
+
+   private void __compactJournal() throws IOException {
+      journal.compact(new Journal.RecordWriter() {
+         @Override
+         public void writeRecords(Journal compactedJournal) throws IOException {
+            __writeJournalRecords(compactedJournal);
+         }
+      });
+   }
+
+   /**
+    * Writes the records that recreate the current contents of this store, when replayed into a new store.
+    */
+   private void __writeJournalRecords(Journal compactedJournal) throws IOException {
+      DataOutput record;
+
+      // the system resource class, domain and resource are added by the constructor, not by the journal
+      final long[] resourceClassIds = resourceClassesById.keys();
+      Arrays.sort(resourceClassIds);
+      for (long resourceClassId : resourceClassIds) {
+         final ResourceClassRecord resourceClass = resourceClassesById.get(resourceClassId);
+         if (resourceClassId != 0) {
+            record = compactedJournal.beginRecord(Journal.OP_ADD_RESOURCE_CLASS);
+            record.writeLong(resourceClassId);
+            record.writeUTF(resourceClass.getName());
+            record.writeBoolean(resourceClass.isAuthenticatable());
+            record.writeBoolean(resourceClass.isUnauthenticatedCreateAllowed());
+            compactedJournal.endRecord();
+         }
+         for (Map.Entry<String, Long> permissionEntry : permissionIdsByClassId.get(resourceClassId).entrySet()) {
+            record = compactedJournal.beginRecord(Journal.OP_ADD_RESOURCE_CLASS_PERMISSION);
+            record.writeLong(resourceClassId);
+            record.writeLong(permissionEntry.getValue());
+            record.writeUTF(permissionEntry.getKey());
+            compactedJournal.endRecord();
+         }
+      }
+
+      // each domain tree is written breadth-first, so that every domain follows its parent
+      final long[] domainIds = domainsById.keys();
+      Arrays.sort(domainIds);
+      for (long rootDomainId : domainIds) {
+         if (domainsById.get(rootDomainId).getParentId() == NO_PARENT_DOMAIN_ID) {
+            for (long domainId : __getDescendantDomainIds(rootDomainId)) {
+               if (domainId != 0) {
+                  final DomainRecord domain = domainsById.get(domainId);
+                  record = compactedJournal.beginRecord(Journal.OP_ADD_DOMAIN);
+                  record.writeLong(domainId);
+                  record.writeUTF(domain.getName());
+                  record.writeLong(domain.getParentId());
+                  compactedJournal.endRecord();
+               }
+            }
+         }
+      }
+
+      final long[] resourceIds = resourcesById.keys();
+      Arrays.sort(resourceIds);
+      for (long resourceId : resourceIds) {
+         final ResourceRecord resource = resourcesById.get(resourceId);
+         if (resourceId != 0) {
+            record = compactedJournal.beginRecord(Journal.OP_ADD_RESOURCE);
+            record.writeLong(resourceId);
+            record.writeLong(resource.getResourceClassId());
+            record.writeLong(resource.getDomainId());
+            compactedJournal.endRecord();
+         }
+         if (resource.getExternalId() != null) {
+            record = compactedJournal.beginRecord(Journal.OP_SET_EXTERNAL_ID);
+            record.writeLong(resourceId);
+            record.writeUTF(resource.getExternalId());
+            compactedJournal.endRecord();
+         }
+      }
+
+      for (long resourceId : passwordsByResourceId.keys()) {
+         record = compactedJournal.beginRecord(Journal.OP_SET_PASSWORD);
+         record.writeLong(resourceId);
+         record.writeUTF(passwordsByResourceId.get(resourceId));
+         compactedJournal.endRecord();
+      }
+
+      // ids of deleted (or reserved) resources and domains must not be assigned again after a replay
+      record = compactedJournal.beginRecord(Journal.OP_RESERVE_RESOURCE_ID);
+      record.writeLong(nextResourceId - 1);
+      compactedJournal.endRecord();
+      record = compactedJournal.beginRecord(Journal.OP_RESERVE_DOMAIN_ID);
+      record.writeLong(nextDomainId - 1);
+      compactedJournal.endRecord();
+
+      for (GrantTable grantTable : grantTables) {
+         grantTable.writeJournalRecords(compactedJournal);
+      }
+   }
+
+   private void __addResourceClass(long resourceClassId,
+                                   String resourceClassName,
+                                   boolean authenticatable,
+                                   boolean unauthenticatedCreateAllowed) {
+      final ResourceClassRecord resourceClass
+            = new ResourceClassRecord(resourceClassId, resourceClassName, authenticatable, unauthenticatedCreateAllowed);
+      resourceClassesById.put(resourceClassId, resourceClass);
+      resourceClassesByName.put(resourceClassName, resourceClass);
+      permissionIdsByClassId.put(resourceClassId, new HashMap<String, Long>());
+      nextResourceClassId = Math.max(nextResourceClassId, resourceClassId + 1);
+   }
+
+   private void __addResourceClassPermission(long resourceClassId, long permissionId, String permissionName) {
+      permissionIdsByClassId.get(resourceClassId).put(permissionName, permissionId);
+      permissionNamesById.put(permissionId, permissionName);
+      nextPermissionId = Math.max(nextPermissionId, permissionId + 1);
+   }
+
+   private void __addDomain(long domainId, String domainName, long parentDomainId) {
+      final DomainRecord domain = new DomainRecord(domainId, domainName, parentDomainId);
+      domainsById.put(domainId, domain);
+      domainsByName.put(domainName, domain);
+
+      if (parentDomainId != NO_PARENT_DOMAIN_ID) {
+         final long[] childDomainIds = childDomainIdsByDomainId.get(parentDomainId);
+         if (childDomainIds == null) {
+            childDomainIdsByDomainId.put(parentDomainId, new long[]{domainId});
+         }
+         else {
+            final long[] newChildDomainIds = new long[childDomainIds.length + 1];
+            System.arraycopy(childDomainIds, 0, newChildDomainIds, 0, childDomainIds.length);
+            newChildDomainIds[childDomainIds.length] = domainId;
+            childDomainIdsByDomainId.put(parentDomainId, newChildDomainIds);
+         }
+      }
+      nextDomainId = Math.max(nextDomainId, domainId + 1);
+   }
+
+   private long[] __getDescendantDomainIds(long domainId) {
+      if (!domainsById.containsKey(domainId)) {
+         return new long[0];
+      }
+
+      long[] descendantDomainIds = new long[8];
+      int count = 0;
+      descendantDomainIds[count++] = domainId;
+
+      // the array doubles as the queue of the breadth-first traversal of the domain tree
+      for (int index = 0; index < count; index++) {
+         final long[] childDomainIds = childDomainIdsByDomainId.get(descendantDomainIds[index]);
+         if (childDomainIds != null) {
+            if (count + childDomainIds.length > descendantDomainIds.length) {
+               final long[] newDescendantDomainIds
+                     = new long[Math.max(descendantDomainIds.length << 1, count + childDomainIds.length)];
+               System.arraycopy(descendantDomainIds, 0, newDescendantDomainIds, 0, count);
+               descendantDomainIds = newDescendantDomainIds;
+            }
+            System.arraycopy(childDomainIds, 0, descendantDomainIds, count, childDomainIds.length);
+            count += childDomainIds.length;
+         }
+      }
+
+      if (count == descendantDomainIds.length) {
+         return descendantDomainIds;
+      }
+      final long[] result = new long[count];
+      System.arraycopy(descendantDomainIds, 0, result, 0, count);
+      return result;
+   }
+
+   private void __deleteDomain(long domainId) {
+      final DomainRecord domain = domainsById.get(domainId);
+      if (domain == null) {
+         return;
+      }
+
+      for (long descendantDomainId : __getDescendantDomainIds(domainId)) {
+         final DomainRecord descendantDomain = domainsById.remove(descendantDomainId);
+         domainsByName.remove(descendantDomain.getName());
+         childDomainIdsByDomainId.remove(descendantDomainId);
+      }
+
+      // unlink the deleted domain from its parent
+      final long[] siblingDomainIds = childDomainIdsByDomainId.get(domain.getParentId());
+      if (siblingDomainIds != null) {
+         if (siblingDomainIds.length == 1) {
+            childDomainIdsByDomainId.remove(domain.getParentId());
+         }
+         else {
+            final long[] newSiblingDomainIds = new long[siblingDomainIds.length - 1];
+            int index = 0;
+            for (long siblingDomainId : siblingDomainIds) {
+               if (siblingDomainId != domainId) {
+                  newSiblingDomainIds[index++] = siblingDomainId;
+               }
+            }
+            childDomainIdsByDomainId.put(domain.getParentId(), newSiblingDomainIds);
+         }
+      }
+   }
+
+   private void __addResource(long resourceId, long resourceClassId, long domainId) {
+      resourcesById.put(resourceId, new ResourceRecord(resourceId, resourceClassId, domainId, null));
+
+      LongObjectHashMap<LongHashSet> resourceIdsByClassId = resourceIdsByDomainIdAndClassId.get(domainId);
+      if (resourceIdsByClassId == null) {
+         resourceIdsByClassId = new LongObjectHashMap<>();
+         resourceIdsByDomainIdAndClassId.put(domainId, resourceIdsByClassId);
+      }
+      LongHashSet resourceIds = resourceIdsByClassId.get(resourceClassId);
+      if (resourceIds == null) {
+         resourceIds = new LongHashSet();
+         resourceIdsByClassId.put(resourceClassId, resourceIds);
+      }
+      resourceIds.add(resourceId);
+
+      nextResourceId = Math.max(nextResourceId, resourceId + 1);
+   }
+
+   private ResourceRecord __setExternalId(long resourceId, String externalId) {
+      final ResourceRecord resource = resourcesById.get(resourceId);
+      final ResourceRecord updatedResource = new ResourceRecord(resourceId,
+                                                                resource.getResourceClassId(),
+                                                                resource.getDomainId(),
+                                                                externalId);
+      resourcesById.put(resourceId, updatedResource);
+      resourcesByExternalId.put(externalId, updatedResource);
+      return updatedResource;
+   }
+
+   private int __deleteResource(long resourceId) {
+      final ResourceRecord resource = resourcesById.remove(resourceId);
+      if (resource == null) {
+         return 0;
+      }
+      if (resource.getExternalId() != null) {
+         resourcesByExternalId.remove(resource.getExternalId());
+      }
+
+      final LongObjectHashMap<LongHashSet> resourceIdsByClassId
+            = resourceIdsByDomainIdAndClassId.get(resource.getDomainId());
+      final LongHashSet resourceIds = resourceIdsByClassId.get(resource.getResourceClassId());
+      resourceIds.remove(resourceId);
+      if (resourceIds.isEmpty()) {
+         resourceIdsByClassId.remove(resource.getResourceClassId());
+         if (resourceIdsByClassId.isEmpty()) {
+            resourceIdsByDomainIdAndClassId.remove(resource.getDomainId());
+         }
+      }
+      return 1;
+   }
+
+   // records
+
+   public static final class ResourceClassRecord {
+      private final long    id;
+      private final String  name;
+      private final boolean authenticatable;
+      private final boolean unauthenticatedCreateAllowed;
+
+      private ResourceClassRecord(long id, String name, boolean authenticatable, boolean unauthenticatedCreateAllowed) {
+         this.id = id;
+         this.name = name;
+         this.authenticatable = authenticatable;
+         this.unauthenticatedCreateAllowed = unauthenticatedCreateAllowed;
+      }
+
+      public long getId() {
+         return id;
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      public boolean isAuthenticatable() {
+         return authenticatable;
+      }
+
+      public boolean isUnauthenticatedCreateAllowed() {
+         return unauthenticatedCreateAllowed;
+      }
+   }
+
+   public static final class DomainRecord {
+      private final long   id;
+      private final String name;
+      private final long   parentId;
+
+      private DomainRecord(long id, String name, long parentId) {
+         this.id = id;
+         this.name = name;
+         this.parentId = parentId;
+      }
+
+      public long getId() {
+         return id;
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      public long getParentId() {
+         return parentId;
+      }
+   }
+
+   public static final class ResourceRecord {
+      private final long   id;
+      private final long   resourceClassId;
+      private final long   domainId;
+      private final String externalId;
+
+      private ResourceRecord(long id, long resourceClassId, long domainId, String externalId) {
+         this.id = id;
+         this.resourceClassId = resourceClassId;
+         this.domainId = domainId;
+         this.externalId = externalId;
+      }
+
+      public long getId() {
+         return id;
+      }
+
+      public long getResourceClassId() {
+         return resourceClassId;
+      }
+
+      public long getDomainId() {
+         return domainId;
+      }
+
+      public String getExternalId() {
+         return externalId;
+      }
+   }
+}
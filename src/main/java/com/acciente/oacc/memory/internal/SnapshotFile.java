@@ -0,0 +1,378 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, versioned binary image of the contents of a {@link MemoryStore}, except for the resource passwords.
+ * <p/>
+ * The file starts with a header that holds the version and the time the store contents were loaded at, followed by
+ * a dictionary of all the distinct names and external ids, and then by one section each for the resource classes,
+ * the resource class permissions, the domains, the resources and the ten grant tables. Rows refer to names and
+ * external ids by their index in the dictionary, and all other columns are fixed-width, so that each permission
+ * name is stored once regardless of the number of resource classes that define it. The file ends with the magic
+ * number of the header again, so that a truncated file is detected.
+ * <p/>
+ * Files are written to a temporary file that is then moved into place, and are read through a memory mapping, so
+ * that loading a store from a file does not copy the file through an intermediate buffer, and concurrent readers
+ * on the same host share the pages of the file in the operating system cache.
+ */
+public class SnapshotFile {
+   private static final int MAGIC   = 0x4F414353;
+   private static final int VERSION = 1;
+
+   private static final int NO_STRING = -1;
+
+   private static final int FLAG_AUTHENTICATABLE                = 1;
+   private static final int FLAG_UNAUTHENTICATED_CREATE_ALLOWED = 2;
+   private static final int FLAG_WITH_GRANT                     = 1;
+   private static final int FLAG_POST_CREATE_WITH_GRANT         = 2;
+
+   // files are mapped in windows of at most this size, because a single mapping is limited to 2GB
+   private static final int MAPPING_WINDOW_SIZE = 64 * 1024 * 1024;
+
+   private SnapshotFile() {
+   }
+
+   /**
+    * Writes the contents of the specified store to the specified file, replacing the file if it exists.
+    *
+    * @param store     the store to write
+    * @param timestamp the time at which the contents of the store were loaded, in milliseconds since the epoch
+    * @param file      the snapshot file
+    * @throws IOException if the file could not be written
+    */
+   public static void write(MemoryStore store, long timestamp, File file) throws IOException {
+      final File absoluteFile = file.getAbsoluteFile();
+      final File temporaryFile = File.createTempFile(absoluteFile.getName(), ".tmp", absoluteFile.getParentFile());
+      try {
+         try (DataOutputStream out
+                    = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 1 << 16))) {
+            store.lockForRead();
+            try {
+               write(store, timestamp, out);
+            }
+            finally {
+               store.unlockForRead();
+            }
+         }
+         Files.move(temporaryFile.toPath(),
+                    absoluteFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally {
+         Files.deleteIfExists(temporaryFile.toPath());
+      }
+   }
+
+   private static void write(MemoryStore store, long timestamp, DataOutputStream out) throws IOException {
+      final List<MemoryStore.ResourceClassRecord> resourceClasses = store.getResourceClassRecords();
+      final List<MemoryStore.DomainRecord> domains = store.getDomainRecords();
+      final List<MemoryStore.ResourceRecord> resources = store.getResourceRecords();
+
+      // collect the dictionary first, so that the rows can refer to the strings by index
+      final Dictionary dictionary = new Dictionary();
+      for (MemoryStore.ResourceClassRecord resourceClass : resourceClasses) {
+         dictionary.add(resourceClass.getName());
+         for (String permissionName : store.getResourceClassPermissionIds(resourceClass.getId()).keySet()) {
+            dictionary.add(permissionName);
+         }
+      }
+      for (MemoryStore.DomainRecord domain : domains) {
+         dictionary.add(domain.getName());
+      }
+      for (MemoryStore.ResourceRecord resource : resources) {
+         if (resource.getExternalId() != null) {
+            dictionary.add(resource.getExternalId());
+         }
+      }
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(timestamp);
+
+      out.writeInt(dictionary.strings.size());
+      for (String string : dictionary.strings) {
+         final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+
+      out.writeInt(resourceClasses.size());
+      int permissionCount = 0;
+      for (MemoryStore.ResourceClassRecord resourceClass : resourceClasses) {
+         out.writeLong(resourceClass.getId());
+         out.writeInt(dictionary.indexOf(resourceClass.getName()));
+         out.writeByte((resourceClass.isAuthenticatable() ? FLAG_AUTHENTICATABLE : 0)
+                             | (resourceClass.isUnauthenticatedCreateAllowed() ? FLAG_UNAUTHENTICATED_CREATE_ALLOWED : 0));
+         permissionCount += store.getResourceClassPermissionIds(resourceClass.getId()).size();
+      }
+
+      out.writeInt(permissionCount);
+      for (MemoryStore.ResourceClassRecord resourceClass : resourceClasses) {
+         for (Map.Entry<String, Long> permission : store.getResourceClassPermissionIds(resourceClass.getId()).entrySet()) {
+            out.writeLong(resourceClass.getId());
+            out.writeLong(permission.getValue());
+            out.writeInt(dictionary.indexOf(permission.getKey()));
+         }
+      }
+
+      out.writeInt(domains.size());
+      for (MemoryStore.DomainRecord domain : domains) {
+         out.writeLong(domain.getId());
+         out.writeInt(dictionary.indexOf(domain.getName()));
+         out.writeLong(domain.getParentId());
+      }
+
+      out.writeInt(resources.size());
+      for (MemoryStore.ResourceRecord resource : resources) {
+         out.writeLong(resource.getId());
+         out.writeLong(resource.getResourceClassId());
+         out.writeLong(resource.getDomainId());
+         out.writeInt(resource.getExternalId() != null ? dictionary.indexOf(resource.getExternalId()) : NO_STRING);
+      }
+
+      final GrantTable[] grantTables = store.getGrantTables();
+      out.writeInt(grantTables.length);
+      for (GrantTable grantTable : grantTables) {
+         final List<Grant> grants = grantTable.getAll();
+         out.writeInt(grants.size());
+         for (Grant grant : grants) {
+            out.writeLong(grant.getAccessorId());
+            out.writeLong(grant.getTargetId());
+            out.writeLong(grant.getResourceClassId());
+            out.writeLong(grant.getPermissionId());
+            out.writeLong(grant.getGrantorId());
+            out.writeByte((grant.isWithGrant() ? FLAG_WITH_GRANT : 0)
+                                | (grant.isPostCreateWithGrant() ? FLAG_POST_CREATE_WITH_GRANT : 0));
+         }
+      }
+
+      out.writeInt(MAGIC);
+   }
+
+   /**
+    * Returns the time at which the contents of the store in the specified snapshot file were loaded.
+    *
+    * @param file the snapshot file
+    * @return the timestamp in the header of the file, in milliseconds since the epoch
+    * @throws IOException if the file could not be read
+    * @throws IllegalStateException if the file is not a snapshot, or of an unsupported version
+    */
+   public static long readTimestamp(File file) throws IOException {
+      try (MappedInput in = new MappedInput(file)) {
+         return readHeader(in, file);
+      }
+   }
+
+   /**
+    * Reads a new store from the specified snapshot file.
+    *
+    * @param file the snapshot file
+    * @return a new store with the contents of the file
+    * @throws IOException if the file could not be read
+    * @throws IllegalStateException if the file is not a snapshot, is of an unsupported version, or is truncated
+    */
+   public static MemoryStore read(File file) throws IOException {
+      try (MappedInput in = new MappedInput(file)) {
+         readHeader(in, file);
+
+         final String[] strings = new String[in.readInt()];
+         for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readString();
+         }
+
+         final MemoryStore store = new MemoryStore();
+
+         for (int count = in.readInt(); count > 0; count--) {
+            final long resourceClassId = in.readLong();
+            final String resourceClassName = strings[in.readInt()];
+            final int flags = in.readByte();
+            store.loadResourceClass(resourceClassId,
+                                    resourceClassName,
+                                    (flags & FLAG_AUTHENTICATABLE) != 0,
+                                    (flags & FLAG_UNAUTHENTICATED_CREATE_ALLOWED) != 0);
+         }
+
+         for (int count = in.readInt(); count > 0; count--) {
+            final long resourceClassId = in.readLong();
+            final long permissionId = in.readLong();
+            store.loadResourceClassPermission(resourceClassId, permissionId, strings[in.readInt()]);
+         }
+
+         for (int count = in.readInt(); count > 0; count--) {
+            final long domainId = in.readLong();
+            final String domainName = strings[in.readInt()];
+            store.loadDomain(domainId, domainName, in.readLong());
+         }
+
+         for (int count = in.readInt(); count > 0; count--) {
+            final long resourceId = in.readLong();
+            final long resourceClassId = in.readLong();
+            final long domainId = in.readLong();
+            final int externalIdIndex = in.readInt();
+            store.loadResource(resourceId,
+                               resourceClassId,
+                               domainId,
+                               externalIdIndex != NO_STRING ? strings[externalIdIndex] : null);
+         }
+
+         final GrantTable[] grantTables = store.getGrantTables();
+         final int grantTableCount = in.readInt();
+         if (grantTableCount != grantTables.length) {
+            throw new IllegalStateException("Unexpected number of grant tables in snapshot: " + file);
+         }
+         for (GrantTable grantTable : grantTables) {
+            for (int count = in.readInt(); count > 0; count--) {
+               final long accessorId = in.readLong();
+               final long targetId = in.readLong();
+               final long resourceClassId = in.readLong();
+               final long permissionId = in.readLong();
+               final long grantorId = in.readLong();
+               final int flags = in.readByte();
+               grantTable.insert(new Grant(accessorId,
+                                           targetId,
+                                           resourceClassId,
+                                           permissionId,
+                                           grantorId,
+                                           (flags & FLAG_WITH_GRANT) != 0,
+                                           (flags & FLAG_POST_CREATE_WITH_GRANT) != 0));
+            }
+         }
+
+         if (in.readInt() != MAGIC) {
+            throw new IllegalStateException("Corrupt access control snapshot: " + file);
+         }
+         return store;
+      }
+   }
+
+   private static long readHeader(MappedInput in, File file) throws IOException {
+      if (in.length() < 16 || in.readInt() != MAGIC) {
+         throw new IllegalStateException("Not an access control snapshot: " + file);
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+         throw new IllegalStateException("Unsupported access control snapshot version: " + version);
+      }
+      return in.readLong();
+   }
+
+   private static class Dictionary {
+      private final List<String>         strings        = new ArrayList<>();
+      private final Map<String, Integer> indexesByValue = new HashMap<>();
+
+      void add(String string) {
+         if (!indexesByValue.containsKey(string)) {
+            indexesByValue.put(string, strings.size());
+            strings.add(string);
+         }
+      }
+
+      int indexOf(String string) {
+         return indexesByValue.get(string);
+      }
+   }
+
+   /**
+    * Reads a file sequentially through a window of the file that is mapped into memory, and moved along the file
+    * as it is read.
+    */
+   private static class MappedInput implements AutoCloseable {
+      private final File        file;
+      private final FileChannel channel;
+      private final long        length;
+      private MappedByteBuffer  window;
+      private long              windowPosition;
+
+      MappedInput(File file) throws IOException {
+         this.file = file;
+         this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+         this.length = channel.size();
+         map(0);
+      }
+
+      long length() {
+         return length;
+      }
+
+      int readByte() throws IOException {
+         ensureAvailable(1);
+         return window.get() & 0xFF;
+      }
+
+      int readInt() throws IOException {
+         ensureAvailable(4);
+         return window.getInt();
+      }
+
+      long readLong() throws IOException {
+         ensureAvailable(8);
+         return window.getLong();
+      }
+
+      String readString() throws IOException {
+         final int byteLength = readInt();
+         if (byteLength < 0 || byteLength > MAPPING_WINDOW_SIZE) {
+            throw new IllegalStateException("Corrupt access control snapshot: " + file);
+         }
+         ensureAvailable(byteLength);
+         final byte[] bytes = new byte[byteLength];
+         window.get(bytes);
+         return new String(bytes, StandardCharsets.UTF_8);
+      }
+
+      private void ensureAvailable(int byteCount) throws IOException {
+         if (window.remaining() < byteCount) {
+            final long position = windowPosition + window.position();
+            if (length - position < byteCount) {
+               throw new IllegalStateException("Truncated access control snapshot: " + file);
+            }
+            map(position);
+         }
+      }
+
+      private void map(long position) throws IOException {
+         windowPosition = position;
+         window = channel.map(FileChannel.MapMode.READ_ONLY,
+                              position,
+                              Math.min(MAPPING_WINDOW_SIZE, length - position));
+      }
+
+      @Override
+      public void close() throws IOException {
+         channel.close();
+      }
+   }
+}
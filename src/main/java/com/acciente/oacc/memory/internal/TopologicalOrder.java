@@ -0,0 +1,179 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * A topological order of the adjacency graph of a {@link GrantTable}, which is maintained incrementally as edges
+ * are added, using the dynamic topological sort of Pearce and Kelly.
+ * <p/>
+ * Every edge leads from a lower to a higher order, so a target can only be reachable from an accessor with a lower
+ * order. Reachability queries therefore only search the nodes between the two orders, and adding an edge only
+ * reorders the nodes between its endpoints, if any. Should the graph ever contain a cycle, for example because two
+ * unsynchronized grants raced each other, the order is abandoned and queries fall back to an unbounded search.
+ * <p/>
+ * The caller must hold the lock of the owning store.
+ */
+class TopologicalOrder {
+   private final GrantTable              grantTable;
+   private final LongObjectHashMap<Long> ordersById   = new LongObjectHashMap<>();
+   private       long                    lowestOrder  = 0;
+   private       long                    highestOrder = 0;
+   private       boolean                 cyclic;
+
+   TopologicalOrder(GrantTable grantTable) {
+      this.grantTable = grantTable;
+   }
+
+   /**
+    * Returns true if the target is reachable from the accessor, which includes the case where both are the same.
+    */
+   boolean isReachable(long accessorId, long targetId) {
+      if (accessorId == targetId) {
+         return true;
+      }
+      if (cyclic) {
+         return search(accessorId, true, Long.MAX_VALUE, targetId) == null;
+      }
+
+      final Long accessorOrder = ordersById.get(accessorId);
+      final Long targetOrder = ordersById.get(targetId);
+      if (accessorOrder == null || targetOrder == null || accessorOrder > targetOrder) {
+         return false;
+      }
+      return search(accessorId, true, targetOrder, targetId) == null;
+   }
+
+   /**
+    * Records a new edge, after it was added to the adjacency arrays of the grant table.
+    */
+   void addEdge(long accessorId, long targetId) {
+      if (cyclic) {
+         return;
+      }
+
+      // a node without any edges can take any order, so place new accessors first and new targets last
+      Long accessorOrder = ordersById.get(accessorId);
+      if (accessorOrder == null) {
+         accessorOrder = --lowestOrder;
+         ordersById.put(accessorId, accessorOrder);
+      }
+      Long targetOrder = ordersById.get(targetId);
+      if (targetOrder == null) {
+         targetOrder = ++highestOrder;
+         ordersById.put(targetId, targetOrder);
+      }
+      if (accessorOrder < targetOrder) {
+         return;
+      }
+
+      // the edge violates the order: find the nodes reachable from the target that precede the accessor...
+      final long[] forwardIds = search(targetId, true, accessorOrder, accessorId);
+      if (forwardIds == null) {
+         cyclic = true;
+         ordersById.clear();
+         return;
+      }
+      // ...and the nodes that reach the accessor and follow the target, then move the former after the latter
+      final long[] backwardIds = search(accessorId, false, targetOrder, targetId);
+
+      final long[] orders = new long[forwardIds.length + backwardIds.length];
+      int orderCount = 0;
+      for (long id : backwardIds) {
+         orders[orderCount++] = ordersById.get(id);
+      }
+      for (long id : forwardIds) {
+         orders[orderCount++] = ordersById.get(id);
+      }
+      Arrays.sort(orders);
+      sortByOrder(backwardIds);
+      sortByOrder(forwardIds);
+
+      orderCount = 0;
+      for (long id : backwardIds) {
+         ordersById.put(id, orders[orderCount++]);
+      }
+      for (long id : forwardIds) {
+         ordersById.put(id, orders[orderCount++]);
+      }
+   }
+
+   /**
+    * Forgets a node, after its last edge was removed from the adjacency arrays of the grant table.
+    */
+   void removeNode(long id) {
+      ordersById.remove(id);
+   }
+
+   /**
+    * Searches the graph forward (or backward) from the start node, skipping nodes with an order after (or before)
+    * the bound. Returns the ids of the visited nodes, or null if the stop node was reached.
+    */
+   private long[] search(long startId, boolean forward, long boundOrder, long stopId) {
+      final LongHashSet visitedIds = new LongHashSet();
+      long[] pendingIds = new long[8];
+      int pendingCount = 0;
+
+      visitedIds.add(startId);
+      pendingIds[pendingCount++] = startId;
+
+      while (pendingCount > 0) {
+         final long[] adjacentIds = forward
+                                    ? grantTable.getAdjacentTargetIds(pendingIds[--pendingCount])
+                                    : grantTable.getAdjacentAccessorIds(pendingIds[--pendingCount]);
+         if (adjacentIds != null) {
+            for (long adjacentId : adjacentIds) {
+               if (adjacentId == stopId) {
+                  return null;
+               }
+               if (!cyclic) {
+                  final long order = ordersById.get(adjacentId);
+                  if (forward ? order > boundOrder : order < boundOrder) {
+                     continue;
+                  }
+               }
+               if (visitedIds.add(adjacentId)) {
+                  if (pendingCount == pendingIds.length) {
+                     pendingIds = Arrays.copyOf(pendingIds, pendingCount << 1);
+                  }
+                  pendingIds[pendingCount++] = adjacentId;
+               }
+            }
+         }
+      }
+
+      return visitedIds.toArray();
+   }
+
+   private void sortByOrder(long[] ids) {
+      final LongObjectHashMap<Long> idsByOrder = new LongObjectHashMap<>(ids.length);
+      final long[] orders = new long[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+         orders[i] = ordersById.get(ids[i]);
+         idsByOrder.put(orders[i], ids[i]);
+      }
+      Arrays.sort(orders);
+      for (int i = 0; i < ids.length; i++) {
+         ids[i] = idsByOrder.get(orders[i]);
+      }
+   }
+}
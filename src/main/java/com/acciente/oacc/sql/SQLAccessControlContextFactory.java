@@ -84,6 +84,37 @@ public class SQLAccessControlContextFactory {
                                                              passwordEncryptor);
    }
 
+   /**
+    * Creates an {@link AccessControlContext} instance backed by the specified database data source, that uses the
+    * optional services enabled in the specified options. A set of valid OACC database tables are expected to reside in
+    * the specified schema. The dialect of SQL supported by the database server for which the data source is provided
+    * is specified using the SQLProfile parameter. The access control context returned by this method uses the
+    * built-in authentication provider for resource authentication, which delegates all password encryption and
+    * decryption to the {@link PasswordEncryptor} instance provided.
+    * <p/>
+    * See {@link SQLAccessControlContextOptions} for the available services and how they are used.
+    *
+    * @param dataSource        a database data source with access to the required OACC tables
+    * @param schemaName        the name of the schema in the database containing the OACC tables
+    * @param sqlProfile        the database provider and dialect of SQL supported for the database server associated
+    *                          with the data source provided
+    * @param passwordEncryptor a {@link PasswordEncryptor} instance to which the built-in authentication provider
+    *                          delegates all password encryption and decryption
+    * @param options           the optional services to be used by the access control context
+    * @return an {@link AccessControlContext} instance ready to receive API calls
+    */
+   public static AccessControlContext getAccessControlContext(DataSource dataSource,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              PasswordEncryptor passwordEncryptor,
+                                                              SQLAccessControlContextOptions options) {
+      return SQLAccessControlContext.getAccessControlContext(dataSource,
+                                                             schemaName,
+                                                             sqlProfile,
+                                                             passwordEncryptor,
+                                                             options);
+   }
+
    /**
     * Creates an {@link AccessControlContext} instance backed by the specified database connection. A set of valid
     * OACC database tables are expected to reside in the specified schema. The dialect of SQL supported by the database
@@ -134,6 +165,100 @@ public class SQLAccessControlContextFactory {
                                                              authenticationProvider);
    }
 
+   /**
+    * Creates an {@link AccessControlContext} instance backed by the specified database data source, that uses the
+    * optional services enabled in the specified options. A set of valid OACC database tables are expected to reside in
+    * the specified schema. The dialect of SQL supported by the database server for which the data source is provided
+    * is specified using the SQLProfile parameter. The access control context returned by this method delegates all
+    * resource authentication to the specified custom authentication provider.
+    * <p/>
+    * See {@link SQLAccessControlContextOptions} for the available services and how they are used.
+    *
+    * @param dataSource             a database data source with access to the required OACC tables
+    * @param schemaName             the name of the schema in the database containing the OACC tables
+    * @param sqlProfile             the database provider and dialect of SQL supported for the database server associated
+    *                               with the data source provided
+    * @param authenticationProvider an {@link AuthenticationProvider} instance to which all resource authentication is
+    *                               delegated
+    * @param options                the optional services to be used by the access control context
+    * @return an {@link AccessControlContext} instance ready to receive API calls
+    */
+   public static AccessControlContext getAccessControlContext(DataSource dataSource,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              AuthenticationProvider authenticationProvider,
+                                                              SQLAccessControlContextOptions options) {
+      return SQLAccessControlContext.getAccessControlContext(dataSource,
+                                                             schemaName,
+                                                             sqlProfile,
+                                                             authenticationProvider,
+                                                             options);
+   }
+
+   /**
+    * Creates an {@link AccessControlContext} instance that answers all queries from the specified read replica, and
+    * applies all modifications to the database the replica was loaded from. The access control context returned by
+    * this method uses the built-in authentication provider for resource authentication, which delegates all password
+    * encryption and decryption to the {@link PasswordEncryptor} instance provided.
+    * <p/>
+    * The returned access control context is not serializable.
+    *
+    * @param readReplica       the read replica shared by the access control contexts that query it
+    * @param passwordEncryptor a {@link PasswordEncryptor} instance to which the built-in authentication provider
+    *                          delegates all password encryption and decryption
+    * @return an {@link AccessControlContext} instance ready to receive API calls
+    * @see SQLReadReplica
+    */
+   public static AccessControlContext getAccessControlContext(SQLReadReplica readReplica,
+                                                              PasswordEncryptor passwordEncryptor) {
+      __assertReadReplicaSpecified(readReplica);
+      return SQLAccessControlContext.getAccessControlContext(readReplica.getPersisterSet(),
+                                                             readReplica.getDataSource(),
+                                                             readReplica.getSchemaName(),
+                                                             passwordEncryptor);
+   }
+
+   /**
+    * Creates an {@link AccessControlContext} instance that answers all queries from the specified read replica, and
+    * applies all modifications to the database the replica was loaded from. The access control context returned by
+    * this method delegates all resource authentication to the specified custom authentication provider.
+    * <p/>
+    * The returned access control context is not serializable.
+    *
+    * @param readReplica            the read replica shared by the access control contexts that query it
+    * @param authenticationProvider an {@link AuthenticationProvider} instance to which all resource authentication is
+    *                               delegated
+    * @return an {@link AccessControlContext} instance ready to receive API calls
+    * @see SQLReadReplica
+    */
+   public static AccessControlContext getAccessControlContext(SQLReadReplica readReplica,
+                                                              AuthenticationProvider authenticationProvider) {
+      __assertReadReplicaSpecified(readReplica);
+      return SQLAccessControlContext.getAccessControlContext(readReplica.getPersisterSet(),
+                                                             readReplica.getDataSource(),
+                                                             authenticationProvider);
+   }
+
+   /**
+    * Creates an instance of OACC's built-in password authentication provider for the specified database data source,
+    * for use by a custom authentication provider that delegates password authentication, such as a
+    * {@link com.acciente.oacc.token.TokenAuthenticationProvider}.
+    * <p/>
+    * Access control contexts created with a custom authentication provider do not re-initialize it after
+    * deserialization, so the returned provider is only suitable for access control contexts that are not serialized.
+    *
+    * @param dataSource        a database data source with access to the required OACC tables
+    * @param schemaName        the name of the schema in the database containing the OACC tables
+    * @param passwordEncryptor a {@link PasswordEncryptor} instance to which the authentication provider
+    *                          delegates all password encryption and decryption
+    * @return the built-in password {@link AuthenticationProvider}
+    */
+   public static AuthenticationProvider getPasswordAuthenticationProvider(DataSource dataSource,
+                                                                         String schemaName,
+                                                                         PasswordEncryptor passwordEncryptor) {
+      return SQLAccessControlContext.getPasswordAuthenticationProvider(dataSource, schemaName, passwordEncryptor);
+   }
+
    /**
     * Re-initializes the specified deserialized accessControlContext with the specified connection.
     * <p/>
@@ -163,4 +288,10 @@ public class SQLAccessControlContextFactory {
    public static void postDeserialize(AccessControlContext accessControlContext, DataSource dataSource) {
       SQLAccessControlContext.postDeserialize(accessControlContext, dataSource);
    }
-}
\ No newline at end of file
+
+   private static void __assertReadReplicaSpecified(SQLReadReplica readReplica) {
+      if (readReplica == null) {
+         throw new IllegalArgumentException("SQLReadReplica required, none specified");
+      }
+   }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.ResourceBitmapIndex;
+import com.acciente.oacc.sql.internal.ResourceLocatorCache;
+import com.acciente.oacc.sql.internal.SuperUserDomainCache;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The optional services used by an access control context that is backed by a database data source, see
+ * {@link SQLAccessControlContextFactory#getAccessControlContext(javax.sql.DataSource, String, SQLProfile, com.acciente.oacc.encryptor.PasswordEncryptor, SQLAccessControlContextOptions)}.
+ * <p/>
+ * Instances are immutable: {@link #newInstance()} returns options with none of the services enabled, and each of
+ * the <code>with...</code> methods returns a copy of the options with the respective service enabled, e.g.
+ * <pre>
+ *    SQLAccessControlContextOptions.newInstance()
+ *          .withReadCoalescer(readCoalescer)
+ *          .withSuperUserDomainCache(superUserDomainCache)
+ * </pre>
+ * The shared services, i.e. all except the executor service, should only be shared by access control contexts that
+ * are backed by the same database and schema. None of the services are serialized with the access control context,
+ * so a deserialized context no longer uses them.
+ */
+public final class SQLAccessControlContextOptions {
+   private static final SQLAccessControlContextOptions DEFAULT_OPTIONS
+         = new SQLAccessControlContextOptions(null, null, null, null, null, true);
+
+   private final ExecutorService         queryExecutorService;
+   private final SQLReadCoalescer        readCoalescer;
+   private final SQLResourceIndex        resourceIndex;
+   private final SQLResourceLocatorCache resourceLocatorCache;
+   private final SQLSuperUserDomainCache superUserDomainCache;
+   private final boolean                 isStackTraceOnDenialEnabled;
+
+   private SQLAccessControlContextOptions(ExecutorService queryExecutorService,
+                                          SQLReadCoalescer readCoalescer,
+                                          SQLResourceIndex resourceIndex,
+                                          SQLResourceLocatorCache resourceLocatorCache,
+                                          SQLSuperUserDomainCache superUserDomainCache,
+                                          boolean isStackTraceOnDenialEnabled) {
+      this.queryExecutorService = queryExecutorService;
+      this.readCoalescer = readCoalescer;
+      this.resourceIndex = resourceIndex;
+      this.resourceLocatorCache = resourceLocatorCache;
+      this.superUserDomainCache = superUserDomainCache;
+      this.isStackTraceOnDenialEnabled = isStackTraceOnDenialEnabled;
+   }
+
+   /**
+    * Returns options with none of the optional services enabled, which results in an access control context that
+    * behaves like one created without options.
+    *
+    * @return the default options
+    */
+   public static SQLAccessControlContextOptions newInstance() {
+      return DEFAULT_OPTIONS;
+   }
+
+   /**
+    * Returns a copy of these options that runs the mutually independent lookups of the methods that compute effective
+    * resource permissions and the effective global and create permission maps concurrently on the specified executor
+    * service.
+    * <p/>
+    * Each concurrent lookup obtains its own connection from the data source. This reduces the latency of those calls
+    * when the database is remote, at the cost of additional pooled connections per call, and is therefore only
+    * recommended when the connection pool has sufficient headroom. Because the concurrent lookups run in separate
+    * connections, they may observe different database states if permissions are modified at the same time.
+    * <p/>
+    * The executor service should be bounded, such as one created with
+    * {@link java.util.concurrent.Executors#newFixedThreadPool(int)}, or it may be a virtual-thread-per-task executor
+    * on JDKs that support them. If the executor service has not started a lookup by the time its result is needed,
+    * or rejects it, the lookup is run in the calling thread on the calling thread's connection instead.
+    * Lookups whose results turn out not to be needed, for example because the accessor is a super-user, are cancelled
+    * if the executor service has not started them yet.
+    *
+    * @param queryExecutorService the executor service on which to run independent lookups concurrently
+    * @return a copy of these options with the specified executor service
+    */
+   public SQLAccessControlContextOptions withExecutor(ExecutorService queryExecutorService) {
+      if (queryExecutorService == null) {
+         throw new IllegalArgumentException("ExecutorService required, none specified");
+      }
+      return new SQLAccessControlContextOptions(queryExecutorService,
+                                                readCoalescer,
+                                                resourceIndex,
+                                                resourceLocatorCache,
+                                                superUserDomainCache,
+                                                isStackTraceOnDenialEnabled);
+   }
+
+   /**
+    * Returns a copy of these options that coalesces identical concurrent permission lookups with those of the other
+    * access control contexts sharing the specified read coalescer.
+    * <p/>
+    * The lookups behind the methods that compute effective resource permissions, check resource permissions and find
+    * resources by resource permissions are shared with the concurrent identical lookups of all the access control
+    * contexts using the same {@link SQLReadCoalescer}. The authorization checks of each call are still performed for
+    * the session of the calling access control context. Every modification made through one of those access control
+    * contexts invalidates the lookups in flight, see {@link SQLReadCoalescer} for details.
+    *
+    * @param readCoalescer the read coalescer shared by the access control contexts whose lookups are coalesced
+    * @return a copy of these options with the specified read coalescer
+    */
+   public SQLAccessControlContextOptions withReadCoalescer(SQLReadCoalescer readCoalescer) {
+      if (readCoalescer == null) {
+         throw new IllegalArgumentException("SQLReadCoalescer required, none specified");
+      }
+      return new SQLAccessControlContextOptions(queryExecutorService,
+                                                readCoalescer,
+                                                resourceIndex,
+                                                resourceLocatorCache,
+                                                superUserDomainCache,
+                                                isStackTraceOnDenialEnabled);
+   }
+
+   /**
+    * Returns a copy of these options that answers queries for resources by resource permissions from the specified
+    * resource index, which is shared with other access control contexts.
+    * <p/>
+    * Every modification made through one of the access control contexts that share the resource index invalidates
+    * the index, see {@link SQLResourceIndex} for details.
+    *
+    * @param resourceIndex the resource index shared by the access control contexts that query it
+    * @return a copy of these options with the specified resource index
+    */
+   public SQLAccessControlContextOptions withResourceIndex(SQLResourceIndex resourceIndex) {
+      if (resourceIndex == null) {
+         throw new IllegalArgumentException("SQLResourceIndex required, none specified");
+      }
+      return new SQLAccessControlContextOptions(queryExecutorService,
+                                                readCoalescer,
+                                                resourceIndex,
+                                                resourceLocatorCache,
+                                                superUserDomainCache,
+                                                isStackTraceOnDenialEnabled);
+   }
+
+   /**
+    * Returns a copy of these options that resolves the resources passed to the API calls through the specified
+    * resource locator cache, which is shared with other access control contexts.
+    * <p/>
+    * Setting the external id of a resource or deleting a resource through one of the access control contexts that
+    * share the cache removes that resource from the cache, see {@link SQLResourceLocatorCache} for details.
+    *
+    * @param resourceLocatorCache the resource locator cache shared by the access control contexts that resolve
+    *                             resources through it
+    * @return a copy of these options with the specified resource locator cache
+    */
+   public SQLAccessControlContextOptions withLocatorCache(SQLResourceLocatorCache resourceLocatorCache) {
+      if (resourceLocatorCache == null) {
+         throw new IllegalArgumentException("SQLResourceLocatorCache required, none specified");
+      }
+      return new SQLAccessControlContextOptions(queryExecutorService,
+                                                readCoalescer,
+                                                resourceIndex,
+                                                resourceLocatorCache,
+                                                superUserDomainCache,
+                                                isStackTraceOnDenialEnabled);
+   }
+
+   /**
+    * Returns a copy of these options that checks for super-user privileges through the specified super-user domain
+    * cache, which is shared with other access control contexts.
+    * <p/>
+    * Changing domain permissions, resource system permissions or the domain hierarchy through one of the access
+    * control contexts that share the super-user domain cache invalidates the cache, see
+    * {@link SQLSuperUserDomainCache} for details.
+    *
+    * @param superUserDomainCache the super-user domain cache shared by the access control contexts that check for
+    *                             super-user privileges through it
+    * @return a copy of these options with the specified super-user domain cache
+    */
+   public SQLAccessControlContextOptions withSuperUserDomainCache(SQLSuperUserDomainCache superUserDomainCache) {
+      if (superUserDomainCache == null) {
+         throw new IllegalArgumentException("SQLSuperUserDomainCache required, none specified");
+      }
+      return new SQLAccessControlContextOptions(queryExecutorService,
+                                                readCoalescer,
+                                                resourceIndex,
+                                                resourceLocatorCache,
+                                                superUserDomainCache,
+                                                isStackTraceOnDenialEnabled);
+   }
+
+   /**
+    * Returns a copy of these options that creates the {@link com.acciente.oacc.NotAuthorizedException}s thrown by the
+    * access control context without capturing a stack trace.
+    * <p/>
+    * Stack traces are captured by default. Turning them off makes denials considerably cheaper, which matters to
+    * applications that deny a large share of their requests, at the cost of exceptions that do not show where they
+    * were thrown. Unlike the services, this option is serialized with the access control context.
+    *
+    * @return a copy of these options that does not capture stack traces on denials
+    */
+   public SQLAccessControlContextOptions withoutStackTraceOnDenial() {
+      return new SQLAccessControlContextOptions(queryExecutorService,
+                                                readCoalescer,
+                                                resourceIndex,
+                                                resourceLocatorCache,
+                                                superUserDomainCache,
+                                                false);
+   }
+
+   /**
+    * Returns the executor service on which independent lookups are run concurrently.
+    * <p/>
+    * This method is used by the access control context, and is not intended to be called by applications.
+    *
+    * @return the executor service, or null if lookups are not run concurrently
+    */
+   public ExecutorService getQueryExecutorService() {
+      return queryExecutorService;
+   }
+
+   /**
+    * Returns the read coalescer through which identical concurrent permission lookups are shared.
+    * <p/>
+    * This method is used by the access control context, and is not intended to be called by applications.
+    *
+    * @return the read coalescer, or null if lookups are not coalesced
+    */
+   public SQLReadCoalescer getReadCoalescer() {
+      return readCoalescer;
+   }
+
+   /**
+    * Returns the index that answers queries for resources by resource permissions.
+    * <p/>
+    * This method is used by the access control context, and is not intended to be called by applications.
+    *
+    * @return the resource index, or null if no resource index is used
+    */
+   public ResourceBitmapIndex getResourceIndex() {
+      return resourceIndex == null ? null : resourceIndex.getIndex();
+   }
+
+   /**
+    * Returns the cache through which the resources passed to the API calls are resolved.
+    * <p/>
+    * This method is used by the access control context, and is not intended to be called by applications.
+    *
+    * @return the resource locator cache, or null if no resource locator cache is used
+    */
+   public ResourceLocatorCache getResourceLocatorCache() {
+      return resourceLocatorCache == null ? null : resourceLocatorCache.getCache();
+   }
+
+   /**
+    * Returns the cache through which super-user privileges are checked.
+    * <p/>
+    * This method is used by the access control context, and is not intended to be called by applications.
+    *
+    * @return the super-user domain cache, or null if no super-user domain cache is used
+    */
+   public SuperUserDomainCache getSuperUserDomainCache() {
+      return superUserDomainCache == null ? null : superUserDomainCache.getCache();
+   }
+
+   /**
+    * Returns whether the not authorized exceptions thrown by the access control context capture a stack trace.
+    * <p/>
+    * This method is used by the access control context, and is not intended to be called by applications.
+    *
+    * @return <code>false</code> if the not authorized exceptions are created without a stack trace
+    */
+   public boolean isStackTraceOnDenialEnabled() {
+      return isStackTraceOnDenialEnabled;
+   }
+}
@@ -30,10 +30,14 @@ public class SQLProfile implements Serializable {
    public static final SQLProfile Oracle_11_2_NON_RECURSIVE;
    public static final SQLProfile PostgreSQL_9_3_RECURSIVE;
    public static final SQLProfile PostgreSQL_9_3_NON_RECURSIVE;
+   public static final SQLProfile PostgreSQL_9_5_RECURSIVE;
+   public static final SQLProfile PostgreSQL_9_5_NON_RECURSIVE;
    public static final SQLProfile SQLServer_12_0_RECURSIVE;
    public static final SQLProfile SQLServer_12_0_NON_RECURSIVE;
    public static final SQLProfile SQLite_3_8_RECURSIVE;
    public static final SQLProfile SQLite_3_8_NON_RECURSIVE;
+   public static final SQLProfile SQLite_3_24_RECURSIVE;
+   public static final SQLProfile SQLite_3_24_NON_RECURSIVE;
    public static final SQLProfile MySQL_5_6_NON_RECURSIVE;
    public static final SQLProfile HSQLDB_2_3_NON_RECURSIVE;
 
@@ -43,6 +47,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(true)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       DB2_10_5_NON_RECURSIVE = new Builder("DB2_10_5_NON_RECURSIVE")
@@ -50,6 +55,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       Oracle_11_2_RECURSIVE = new Builder("Oracle_11_2_RECURSIVE")
@@ -57,6 +63,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(true)
             .recursiveDeleteEnabled(true)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       Oracle_11_2_NON_RECURSIVE = new Builder("Oracle_11_2_NON_RECURSIVE")
@@ -64,6 +71,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       PostgreSQL_9_3_RECURSIVE = new Builder("PostgreSQL_9_3_RECURSIVE")
@@ -71,6 +79,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(true)
             .recursiveDeleteEnabled(true)
             .sequenceEnabled(true)
+            .upsertEnabled(false)
             .build();
 
       PostgreSQL_9_3_NON_RECURSIVE = new Builder("PostgreSQL_9_3_NON_RECURSIVE")
@@ -78,6 +87,24 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(true)
+            .upsertEnabled(false)
+            .build();
+
+      // ON CONFLICT requires PostgreSQL 9.5 or later
+      PostgreSQL_9_5_RECURSIVE = new Builder("PostgreSQL_9_5_RECURSIVE")
+            .sqlDialect(SQLDialect.PostgreSQL_9_3)
+            .recursiveCTEEnabled(true)
+            .recursiveDeleteEnabled(true)
+            .sequenceEnabled(true)
+            .upsertEnabled(true)
+            .build();
+
+      PostgreSQL_9_5_NON_RECURSIVE = new Builder("PostgreSQL_9_5_NON_RECURSIVE")
+            .sqlDialect(SQLDialect.PostgreSQL_9_3)
+            .recursiveCTEEnabled(false)
+            .recursiveDeleteEnabled(false)
+            .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       SQLServer_12_0_RECURSIVE = new Builder("SQLServer_12_0_RECURSIVE")
@@ -85,6 +112,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(true)
             .recursiveDeleteEnabled(true)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       SQLServer_12_0_NON_RECURSIVE = new Builder("SQLServer_12_0_NON_RECURSIVE")
@@ -92,6 +120,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
 
       SQLite_3_8_RECURSIVE = new Builder("SQLite_3_8_RECURSIVE")
@@ -99,6 +128,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(true)
             .recursiveDeleteEnabled(true)
             .sequenceEnabled(false)
+            .upsertEnabled(false)
             .build();
 
       SQLite_3_8_NON_RECURSIVE = new Builder("SQLite_3_8_NON_RECURSIVE")
@@ -106,6 +136,24 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(false)
+            .upsertEnabled(false)
+            .build();
+
+      // ON CONFLICT requires SQLite 3.24 or later
+      SQLite_3_24_RECURSIVE = new Builder("SQLite_3_24_RECURSIVE")
+            .sqlDialect(SQLDialect.SQLite_3_8)
+            .recursiveCTEEnabled(true)
+            .recursiveDeleteEnabled(true)
+            .sequenceEnabled(false)
+            .upsertEnabled(true)
+            .build();
+
+      SQLite_3_24_NON_RECURSIVE = new Builder("SQLite_3_24_NON_RECURSIVE")
+            .sqlDialect(SQLDialect.SQLite_3_8)
+            .recursiveCTEEnabled(false)
+            .recursiveDeleteEnabled(false)
+            .sequenceEnabled(false)
+            .upsertEnabled(true)
             .build();
 
       MySQL_5_6_NON_RECURSIVE = new Builder("MySQL_5_6_NON_RECURSIVE")
@@ -113,6 +161,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(false)
+            .upsertEnabled(true)
             .build();
 
       HSQLDB_2_3_NON_RECURSIVE = new Builder("HSQLDB_2_3_NON_RECURSIVE")
@@ -120,6 +169,7 @@ public class SQLProfile implements Serializable {
             .recursiveCTEEnabled(false)
             .recursiveDeleteEnabled(false)
             .sequenceEnabled(true)
+            .upsertEnabled(true)
             .build();
    }
 
@@ -137,6 +187,7 @@ public class SQLProfile implements Serializable {
    private final boolean    recursiveCTEEnabled;
    private final boolean    recursiveDeleteEnabled;
    private final boolean    sequenceEnabled;
+   private final boolean    upsertEnabled;
 
    private SQLProfile(Builder builder) {
       this.name = builder.name;
@@ -144,6 +195,7 @@ public class SQLProfile implements Serializable {
       this.recursiveCTEEnabled = builder.recursiveCTEEnabled;
       this.recursiveDeleteEnabled = builder.recursiveDeleteEnabled;
       this.sequenceEnabled = builder.sequenceEnabled;
+      this.upsertEnabled = builder.upsertEnabled;
    }
 
    public SQLDialect getSqlDialect() {
@@ -162,6 +214,10 @@ public class SQLProfile implements Serializable {
       return sequenceEnabled;
    }
 
+   public boolean isUpsertEnabled() {
+      return upsertEnabled;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) {
@@ -182,6 +238,9 @@ public class SQLProfile implements Serializable {
       if (sequenceEnabled != that.sequenceEnabled) {
          return false;
       }
+      if (upsertEnabled != that.upsertEnabled) {
+         return false;
+      }
       return sqlDialect == that.sqlDialect;
    }
 
@@ -191,6 +250,7 @@ public class SQLProfile implements Serializable {
       result = 31 * result + (recursiveCTEEnabled ? 1 : 0);
       result = 31 * result + (recursiveDeleteEnabled ? 1 : 0);
       result = 31 * result + (sequenceEnabled ? 1 : 0);
+      result = 31 * result + (upsertEnabled ? 1 : 0);
       return result;
    }
 
@@ -205,6 +265,7 @@ public class SQLProfile implements Serializable {
       private boolean    recursiveCTEEnabled;
       private boolean    recursiveDeleteEnabled;
       private boolean    sequenceEnabled;
+      private boolean    upsertEnabled;
 
       private static SQLProfile valueOf(String name) {
          return sqlProfilesByName.get(name);
@@ -234,6 +295,11 @@ public class SQLProfile implements Serializable {
          return this;
       }
 
+      private Builder upsertEnabled(boolean upsertEnabled) {
+         this.upsertEnabled = upsertEnabled;
+         return this;
+      }
+
       private SQLProfile build() {
          SQLProfile sqlProfile = new SQLProfile(this);
          sqlProfilesByName.put(name, sqlProfile);
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent permission lookups of all the access control contexts that share an instance of
+ * this class, so that a lookup which is requested while an identical lookup is already in flight waits for, and shares
+ * the result of, the lookup in flight instead of querying the database again.
+ * <p/>
+ * Every completed modification of the OACC tables by one of the sharing access control contexts invalidates all
+ * lookups in flight at that time, which means that a lookup requested after a modification completed never shares the
+ * result of a lookup that started before it. The lookups in flight still run to completion and are returned to the
+ * callers that requested them before the modification completed, which observe the same concurrency semantics as
+ * without coalescing.
+ * <p/>
+ * Modifications made by means other than the sharing access control contexts, such as by another process, are not
+ * detected. Such modifications should be followed by a call to {@link #invalidate()}, if a lookup requested after
+ * the modification needs to reflect it.
+ * <p/>
+ * A single instance should only be shared by access control contexts that are backed by the same database and schema.
+ * It is not serialized with the access control contexts that use it.
+ */
+public final class SQLReadCoalescer {
+   private final AtomicLong                           generation;
+   private final ConcurrentMap<List<?>, FutureTask<?>> lookupsInFlight;
+
+   private SQLReadCoalescer() {
+      generation = new AtomicLong();
+      lookupsInFlight = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Creates a new read coalescer, which may be shared by several access control contexts.
+    *
+    * @return a new read coalescer
+    */
+   public static SQLReadCoalescer newInstance() {
+      return new SQLReadCoalescer();
+   }
+
+   /**
+    * Ensures that lookups requested after this method returns do not share the result of lookups currently in flight.
+    */
+   public void invalidate() {
+      generation.incrementAndGet();
+   }
+
+   /**
+    * Returns the result of the specified lookup, by either running it in the calling thread, or by waiting for an
+    * identical lookup that is already in flight.
+    * <p/>
+    * Two lookups are identical if they are requested with equal key parts and without an intervening invalidation.
+    * The result is shared among all callers of identical lookups and must therefore not be modified.
+    * An exception thrown by the lookup is rethrown to all of those callers.
+    *
+    * @param lookup   the lookup to run, if no identical lookup is in flight
+    * @param keyParts the values that identify the lookup, which must implement equals() and hashCode()
+    * @param <T>      the type of the result of the lookup
+    * @return the result of the lookup
+    */
+   public <T> T coalesce(final Lookup<T> lookup, Object... keyParts) {
+      final Object[] generationAndKeyParts = new Object[keyParts.length + 1];
+      generationAndKeyParts[0] = generation.get();
+      System.arraycopy(keyParts, 0, generationAndKeyParts, 1, keyParts.length);
+      final List<?> key = Arrays.asList(generationAndKeyParts);
+
+      final FutureTask<T> newLookup = new FutureTask<>(new Callable<T>() {
+         @Override
+         public T call() {
+            return lookup.run();
+         }
+      });
+
+      @SuppressWarnings("unchecked")
+      final FutureTask<T> lookupInFlight = (FutureTask<T>) lookupsInFlight.putIfAbsent(key, newLookup);
+
+      if (lookupInFlight != null) {
+         return await(lookupInFlight);
+      }
+
+      try {
+         newLookup.run();
+      }
+      finally {
+         lookupsInFlight.remove(key, newLookup);
+      }
+      return await(newLookup);
+   }
+
+   private static <T> T await(FutureTask<T> lookup) {
+      boolean isInterrupted = false;
+      try {
+         while (true) {
+            try {
+               return lookup.get();
+            }
+            catch (InterruptedException e) {
+               // the lookup in flight is bound to complete, so we keep waiting and restore the interrupt status after
+               isInterrupted = true;
+            }
+            catch (ExecutionException e) {
+               final Throwable cause = e.getCause();
+               if (cause instanceof RuntimeException) {
+                  throw (RuntimeException) cause;
+               }
+               if (cause instanceof Error) {
+                  throw (Error) cause;
+               }
+               throw new RuntimeException(cause);
+            }
+         }
+      }
+      finally {
+         if (isInterrupted) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   /**
+    * A permission lookup that may be coalesced.
+    *
+    * @param <T> the type of the result of the lookup
+    */
+   public interface Lookup<T> {
+      T run();
+   }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An in-memory replica of the OACC tables of a database, which answers the queries of all the access control contexts
+ * that share it, without querying the database.
+ * <p/>
+ * The replica is loaded from the database when it is created, by streaming each table in a single read-only
+ * transaction. The database remains the source of truth: modifications made through an access control context that
+ * uses the replica are applied to the database, on a single connection per API call like an access control context
+ * without a replica, and then to the replica, so that they are visible to subsequent queries of all the sharing
+ * contexts right away. API calls that only query do not obtain a connection from the data source.
+ * <p/>
+ * Modifications made by other means, such as by another process, are not detected. Instead, the first query after
+ * the replica has become older than the maximum staleness specified at creation starts reloading it in the background,
+ * while that query and all others keep being answered from the current replica until the reload completes. The
+ * replica may therefore be older than the maximum staleness by the time it takes to load it. Applications that need
+ * tighter bounds can call {@link #refresh()}, for example from a scheduled task, which reloads the replica in the
+ * calling thread while queries keep being answered from the previous one.
+ * <p/>
+ * Names of resource classes, permissions and domains, as well as external ids, are compared case-sensitively by the
+ * replica, regardless of the collation of the database. Passwords are not replicated, so authentication with the
+ * built-in authentication provider still queries the database.
+ * <p/>
+ * A single instance should only be shared by access control contexts that are backed by the same database and schema.
+ * The access control contexts that use a replica are not serializable.
+ */
+public final class SQLReadReplica {
+   /**
+    * The default number of rows fetched from the database per round trip while loading the replica.
+    */
+   public static final int DEFAULT_FETCH_SIZE = 10000;
+
+   private final DataSource             dataSource;
+   private final String                 schemaName;
+   private final SQLReplicaPersisterSet persisterSet;
+
+   private SQLReadReplica(DataSource dataSource,
+                          String schemaName,
+                          SQLProfile sqlProfile,
+                          long maxStalenessMillis,
+                          int fetchSize,
+                          File snapshotFile) {
+      this.dataSource = dataSource;
+      this.schemaName = schemaName;
+      this.persisterSet = new SQLReplicaPersisterSet(dataSource,
+                                                     schemaName,
+                                                     sqlProfile,
+                                                     maxStalenessMillis,
+                                                     fetchSize,
+                                                     snapshotFile);
+   }
+
+   /**
+    * Creates and loads a new read replica of the OACC tables in the specified schema.
+    *
+    * @param dataSource         a data source with access to the required OACC tables
+    * @param schemaName         the name of the schema in the database containing the OACC tables
+    * @param sqlProfile         the database provider and dialect of SQL supported for the database server associated
+    *                           with the data source provided
+    * @param maxStalenessMillis the age, in milliseconds, after which the next query starts reloading the replica
+    * @return a new read replica, which may be shared by several access control contexts
+    * @throws IllegalArgumentException if the data source or the SQL profile is null, or the maximum staleness
+    *                                  is negative
+    */
+   public static SQLReadReplica newInstance(DataSource dataSource,
+                                            String schemaName,
+                                            SQLProfile sqlProfile,
+                                            long maxStalenessMillis) {
+      return newInstance(dataSource, schemaName, sqlProfile, maxStalenessMillis, DEFAULT_FETCH_SIZE);
+   }
+
+   /**
+    * Creates and loads a new read replica of the OACC tables in the specified schema.
+    *
+    * @param dataSource         a data source with access to the required OACC tables
+    * @param schemaName         the name of the schema in the database containing the OACC tables
+    * @param sqlProfile         the database provider and dialect of SQL supported for the database server associated
+    *                           with the data source provided
+    * @param maxStalenessMillis the age, in milliseconds, after which the next query starts reloading the replica
+    * @param fetchSize          the number of rows to fetch from the database per round trip while loading the replica
+    * @return a new read replica, which may be shared by several access control contexts
+    * @throws IllegalArgumentException if the data source or the SQL profile is null, the maximum staleness
+    *                                  is negative, or the fetch size is not positive
+    */
+   public static SQLReadReplica newInstance(DataSource dataSource,
+                                            String schemaName,
+                                            SQLProfile sqlProfile,
+                                            long maxStalenessMillis,
+                                            int fetchSize) {
+      __assertReplicaParametersValid(dataSource, sqlProfile, maxStalenessMillis, fetchSize);
+
+      return new SQLReadReplica(dataSource, schemaName, sqlProfile, maxStalenessMillis, fetchSize, null);
+   }
+
+   /**
+    * Creates a new read replica of the OACC tables in the specified schema, that starts from the specified snapshot
+    * file, as written by {@link #writeSnapshot(File)}, instead of loading the tables from the database.
+    * <p/>
+    * Reading a snapshot file is much faster than loading the tables, so the replica is ready to answer queries as
+    * soon as this method returns. The replica then reloads itself from the database in the background, and answers
+    * queries from the snapshot file in the meantime, regardless of the age of the snapshot. If the snapshot file does
+    * not exist, or cannot be read, the replica is loaded from the database before this method returns instead.
+    *
+    * @param dataSource         a data source with access to the required OACC tables
+    * @param schemaName         the name of the schema in the database containing the OACC tables
+    * @param sqlProfile         the database provider and dialect of SQL supported for the database server associated
+    *                           with the data source provided
+    * @param maxStalenessMillis the age, in milliseconds, after which the next query starts reloading the replica
+    * @param snapshotFile       the snapshot file to start from
+    * @return a new read replica, which may be shared by several access control contexts
+    * @throws IllegalArgumentException if the data source, the SQL profile or the snapshot file is null, or the maximum
+    *                                  staleness is negative
+    */
+   public static SQLReadReplica newInstance(DataSource dataSource,
+                                            String schemaName,
+                                            SQLProfile sqlProfile,
+                                            long maxStalenessMillis,
+                                            File snapshotFile) {
+      __assertReplicaParametersValid(dataSource, sqlProfile, maxStalenessMillis, DEFAULT_FETCH_SIZE);
+      if (snapshotFile == null) {
+         throw new IllegalArgumentException("Snapshot file required, none specified");
+      }
+
+      return new SQLReadReplica(dataSource,
+                                schemaName,
+                                sqlProfile,
+                                maxStalenessMillis,
+                                DEFAULT_FETCH_SIZE,
+                                snapshotFile);
+   }
+
+   private static void __assertReplicaParametersValid(DataSource dataSource,
+                                                      SQLProfile sqlProfile,
+                                                      long maxStalenessMillis,
+                                                      int fetchSize) {
+      if (dataSource == null) {
+         throw new IllegalArgumentException("DataSource required, none specified");
+      }
+      if (sqlProfile == null) {
+         throw new IllegalArgumentException("SQLProfile required, none specified");
+      }
+      if (maxStalenessMillis < 0) {
+         throw new IllegalArgumentException("Maximum staleness must not be negative");
+      }
+      if (fetchSize < 1) {
+         throw new IllegalArgumentException("Fetch size must be positive");
+      }
+   }
+
+   /**
+    * Reloads the replica from the database.
+    * <p/>
+    * Queries that are requested while the replica is reloading are answered from the previous replica.
+    */
+   public void refresh() {
+      persisterSet.refresh();
+   }
+
+   /**
+    * Returns the time at which the current replica started loading, in milliseconds since the epoch.
+    * Modifications made by other means than the sharing access control contexts before that time are reflected
+    * by the replica.
+    *
+    * @return the time at which the current replica started loading
+    */
+   public long getLoadTimestamp() {
+      return persisterSet.getSnapshotTimestamp();
+   }
+
+   /**
+    * Writes the current replica to the specified snapshot file, in a compact binary format, so that a replica created
+    * later, possibly by another process, can start from it. The file is replaced atomically if it exists.
+    *
+    * @param snapshotFile the snapshot file
+    * @throws IOException if the file could not be written
+    * @throws IllegalArgumentException if the snapshot file is null
+    */
+   public void writeSnapshot(File snapshotFile) throws IOException {
+      if (snapshotFile == null) {
+         throw new IllegalArgumentException("Snapshot file required, none specified");
+      }
+      persisterSet.writeSnapshot(snapshotFile);
+   }
+
+   PersisterSet getPersisterSet() {
+      return persisterSet;
+   }
+
+   DataSource getDataSource() {
+      return dataSource;
+   }
+
+   String getSchemaName() {
+      return schemaName;
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.ResourceBitmapIndex;
+
+/**
+ * An index of the resources that accessors have permissions to, which answers the queries for resources by resource
+ * permissions of all the access control contexts that share it.
+ * <p/>
+ * For each accessor, resource class, domain and permission that is queried, the index keeps a compressed bitmap of the
+ * ids of the accessible resources, which is loaded from the database by the first query that needs it. A query for
+ * resources by several permissions is then answered by intersecting the bitmaps of the individual permissions, and
+ * only the resources in the intersection are materialized. The index keeps up to a maximum number of bitmaps, and
+ * evicts the least recently used ones beyond that.
+ * <p/>
+ * Every completed modification made through one of the sharing access control contexts invalidates the whole index,
+ * because a single grant or revocation can change the accessible resources of every accessor that inherits from the
+ * affected resource. The bitmaps are not maintained incrementally on grants and revocations, and queries that count
+ * or page through the accessible resources are not answered from the index. The index is therefore best suited to
+ * workloads that query much more often than they modify. Modifications made by other means, such as by another
+ * process, are not detected, and should be followed by a call to {@link #invalidate()}.
+ * <p/>
+ * A single instance should only be shared by access control contexts that are backed by the same database and schema.
+ * It is not serialized with the access control contexts that use it.
+ */
+public final class SQLResourceIndex {
+   private static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+   private final ResourceBitmapIndex index;
+
+   private SQLResourceIndex(int maximumSize) {
+      index = new ResourceBitmapIndex(maximumSize);
+   }
+
+   /**
+    * Creates a new, empty resource index, which may be shared by several access control contexts, and which keeps
+    * up to 10000 bitmaps.
+    *
+    * @return a new resource index
+    */
+   public static SQLResourceIndex newInstance() {
+      return new SQLResourceIndex(DEFAULT_MAXIMUM_SIZE);
+   }
+
+   /**
+    * Creates a new, empty resource index, which may be shared by several access control contexts.
+    *
+    * @param maximumSize the maximum number of bitmaps to keep in the index
+    * @return a new resource index
+    */
+   public static SQLResourceIndex newInstance(int maximumSize) {
+      if (maximumSize < 1) {
+         throw new IllegalArgumentException("Maximum size of resource index must be positive, but was: "
+                                                  + maximumSize);
+      }
+      return new SQLResourceIndex(maximumSize);
+   }
+
+   /**
+    * Discards all the bitmaps of the index, so that queries made after this method returns reload them from
+    * the database.
+    */
+   public void invalidate() {
+      index.invalidate();
+   }
+
+   ResourceBitmapIndex getIndex() {
+      return index;
+   }
+}
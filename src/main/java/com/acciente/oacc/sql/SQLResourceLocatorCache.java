@@ -0,0 +1,69 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.ResourceLocatorCache;
+
+/**
+ * A bounded cache of the mappings between resource ids and external ids, which is consulted by all the access control
+ * contexts that share it whenever they resolve a resource passed to an API call.
+ * <p/>
+ * Without the cache, every resource that is only identified by its external id, or by both its resource id and its
+ * external id, costs an extra query in every API call. The cache keeps the most recently resolved resources, up to the
+ * specified maximum number, and evicts the least recently used ones beyond that.
+ * <p/>
+ * Setting the external id of a resource, or deleting a resource, through one of the sharing access control contexts
+ * removes that resource from the cache. Other modifications do not affect the cache. Resources deleted by other means,
+ * such as by another process, are not detected, and should be followed by a call to {@link #invalidate()}.
+ * <p/>
+ * A single instance should only be shared by access control contexts that are backed by the same database and schema.
+ * It is not serialized with the access control contexts that use it.
+ */
+public final class SQLResourceLocatorCache {
+   private final ResourceLocatorCache cache;
+
+   private SQLResourceLocatorCache(int maximumSize) {
+      cache = new ResourceLocatorCache(maximumSize);
+   }
+
+   /**
+    * Creates a new, empty resource locator cache, which may be shared by several access control contexts.
+    *
+    * @param maximumSize the maximum number of resources to keep in the cache
+    * @return a new resource locator cache
+    */
+   public static SQLResourceLocatorCache newInstance(int maximumSize) {
+      if (maximumSize < 1) {
+         throw new IllegalArgumentException("Maximum size of resource locator cache must be positive, but was: "
+                                                  + maximumSize);
+      }
+      return new SQLResourceLocatorCache(maximumSize);
+   }
+
+   /**
+    * Discards all the cached resources, so that resources resolved after this method returns are looked up in
+    * the database.
+    */
+   public void invalidate() {
+      cache.invalidate();
+   }
+
+   ResourceLocatorCache getCache() {
+      return cache;
+   }
+}
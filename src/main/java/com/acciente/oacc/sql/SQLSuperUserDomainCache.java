@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.sql.internal.SuperUserDomainCache;
+
+/**
+ * A cache of the domains in which accessors are super-user, which answers the super-user checks of all the access
+ * control contexts that share it.
+ * <p/>
+ * Most API calls check whether the session resource, and often the accessor resource, is super-user in the domain
+ * of the accessed resource, which otherwise costs a query per check. The cache keeps, for each accessor that is
+ * checked, the sorted ids of the domains in which it is super-user, including the descendants of those domains and
+ * the domains it is super-user in via the resources it inherits from.
+ * <p/>
+ * Changing domain permissions, resource system permissions such as INHERIT, creating or deleting a domain, or
+ * deleting a resource through one of the sharing access control contexts invalidates the whole cache. Other
+ * modifications do not affect the cache. Modifications made by other means, such as by another process, are not
+ * detected, and should be followed by a call to {@link #invalidate()}.
+ * <p/>
+ * A single instance should only be shared by access control contexts that are backed by the same database and schema.
+ * It is not serialized with the access control contexts that use it.
+ */
+public final class SQLSuperUserDomainCache {
+   private final SuperUserDomainCache cache;
+
+   private SQLSuperUserDomainCache() {
+      cache = new SuperUserDomainCache();
+   }
+
+   /**
+    * Creates a new, empty super-user domain cache, which may be shared by several access control contexts.
+    *
+    * @return a new super-user domain cache
+    */
+   public static SQLSuperUserDomainCache newInstance() {
+      return new SQLSuperUserDomainCache();
+   }
+
+   /**
+    * Discards all the cached domains, so that super-user checks made after this method returns reload them from
+    * the database.
+    */
+   public void invalidate() {
+      cache.invalidate();
+   }
+
+   SuperUserDomainCache getCache() {
+      return cache;
+   }
+}
@@ -19,6 +19,10 @@ package com.acciente.oacc.sql.internal;
 
 import com.acciente.oacc.Resource;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 public class PasswordUtils {
    /**
     * Computes a password string that is bound to the resource with which the password is
@@ -41,6 +45,33 @@ public class PasswordUtils {
       return boundPassword;
    }
 
+   /**
+    * Computes the version of the credentials represented by the specified encrypted bound password. Since every
+    * encryption of a password uses a new salt, the version changes whenever a password is set or reset, even if
+    * the password itself stays the same.
+    * @param encryptedBoundPassword the encrypted bound password, or null if the resource has no password
+    * @return the credential version, which is 0 if the resource has no password
+    */
+   public static long computeCredentialVersion(String encryptedBoundPassword) {
+      if (encryptedBoundPassword == null) {
+         return 0;
+      }
+
+      final byte[] digest;
+      try {
+         digest = MessageDigest.getInstance("SHA-256").digest(encryptedBoundPassword.getBytes(StandardCharsets.UTF_8));
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+
+      long version = 0;
+      for (int i = 0; i < 8; i++) {
+         version = (version << 8) | (digest[i] & 0xFF);
+      }
+      return version;
+   }
+
    /**
     * This method zeroes out all the elements of the passed in character array
     * @param password a char array containing a password
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.DomainPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+
+import java.util.Set;
+
+class ReplicaDomainPersister extends ReplicaPersister implements DomainPersister {
+   private final DomainPersister sqlPersister;
+
+   ReplicaDomainPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getDomainPersister();
+   }
+
+   private DomainPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getDomainPersister();
+   }
+
+   @Override
+   public Id<DomainId> getResourceDomainId(SQLConnection connection,
+                                           String resourceDomainName) {
+      return getSnapshotPersister().getResourceDomainId(null, resourceDomainName);
+   }
+
+   @Override
+   public String getResourceDomainNameByResourceId(SQLConnection connection,
+                                                   Resource resource) {
+      return getSnapshotPersister().getResourceDomainNameByResourceId(null, resource);
+   }
+
+   @Override
+   public Set<String> getResourceDomainNameDescendants(SQLConnection connection,
+                                                       String resourceDomainName) {
+      return getSnapshotPersister().getResourceDomainNameDescendants(null, resourceDomainName);
+   }
+
+   @Override
+   public void addResourceDomain(SQLConnection connection,
+                                 final String resourceDomainName) {
+      sqlPersister.addResourceDomain(connection, resourceDomainName);
+
+      // the snapshot has to use the id the database assigned to the new row
+      final long domainId = sqlPersister.getResourceDomainId(connection, resourceDomainName).getValue();
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            store.loadDomain(domainId, resourceDomainName, MemoryStore.NO_PARENT_DOMAIN_ID);
+         }
+      });
+   }
+
+   @Override
+   public void addResourceDomain(SQLConnection connection,
+                                 final String resourceDomainName,
+                                 final Id<DomainId> parentResourceDomainId) {
+      sqlPersister.addResourceDomain(connection, resourceDomainName, parentResourceDomainId);
+
+      // the snapshot has to use the id the database assigned to the new row
+      final long domainId = sqlPersister.getResourceDomainId(connection, resourceDomainName).getValue();
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            store.loadDomain(domainId, resourceDomainName, parentResourceDomainId.getValue());
+         }
+      });
+   }
+
+   @Override
+   public void deleteDomain(SQLConnection connection,
+                            final Id<DomainId> domainId) {
+      sqlPersister.deleteDomain(connection, domainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getDomainPersister().deleteDomain(null, domainId);
+         }
+      });
+   }
+}
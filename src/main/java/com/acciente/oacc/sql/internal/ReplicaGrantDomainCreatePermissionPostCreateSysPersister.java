@@ -0,0 +1,135 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+
+import java.util.List;
+import java.util.Set;
+
+class ReplicaGrantDomainCreatePermissionPostCreateSysPersister extends ReplicaPersister implements GrantDomainCreatePermissionPostCreateSysPersister {
+   private final GrantDomainCreatePermissionPostCreateSysPersister sqlPersister;
+
+   ReplicaGrantDomainCreatePermissionPostCreateSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantDomainCreatePermissionPostCreateSysPersister();
+   }
+
+   private GrantDomainCreatePermissionPostCreateSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantDomainCreatePermissionPostCreateSysPersister();
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreatePostCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                              Resource accessorResource) {
+      return getSnapshotPersister().getDomainCreatePostCreateSysPermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                              Resource accessorResource) {
+      return getSnapshotPersister().getDomainCreatePostCreateSysPermissions(null, accessorResource);
+   }
+
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          final Resource accessorResource) {
+      sqlPersister.removeDomainCreatePostCreateSysPermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionPostCreateSysPersister().removeDomainCreatePostCreateSysPermissions(null,
+                                                                                                                           accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          final List<Resource> accessorResources) {
+      sqlPersister.removeDomainCreatePostCreateSysPermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionPostCreateSysPersister().removeDomainCreatePostCreateSysPermissions(null,
+                                                                                                                           accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          final Resource accessorResource,
+                                                          final Set<DomainCreatePermission> domainCreatePermissions) {
+      sqlPersister.removeDomainCreatePostCreateSysPermissions(connection, accessorResource, domainCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionPostCreateSysPersister().removeDomainCreatePostCreateSysPermissions(null,
+                                                                                                                           accessorResource,
+                                                                                                                           domainCreatePermissions);
+         }
+      });
+   }
+
+   @Override
+   public void addDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                       final Resource accessorResource,
+                                                       final Resource grantorResource,
+                                                       final Set<DomainCreatePermission> domainCreatePermissions) {
+      sqlPersister.addDomainCreatePostCreateSysPermissions(connection,
+                                                           accessorResource,
+                                                           grantorResource,
+                                                           domainCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionPostCreateSysPersister().addDomainCreatePostCreateSysPermissions(null,
+                                                                                                                        accessorResource,
+                                                                                                                        grantorResource,
+                                                                                                                        domainCreatePermissions);
+         }
+      });
+   }
+
+   @Override
+   public void updateDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          final Resource accessorResource,
+                                                          final Resource grantorResource,
+                                                          final Set<DomainCreatePermission> domainCreatePermissions) {
+      sqlPersister.updateDomainCreatePostCreateSysPermissions(connection,
+                                                              accessorResource,
+                                                              grantorResource,
+                                                              domainCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionPostCreateSysPersister().updateDomainCreatePostCreateSysPermissions(null,
+                                                                                                                           accessorResource,
+                                                                                                                           grantorResource,
+                                                                                                                           domainCreatePermissions);
+         }
+      });
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.DomainCreatePermission;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+
+import java.util.List;
+import java.util.Set;
+
+class ReplicaGrantDomainCreatePermissionSysPersister extends ReplicaPersister implements GrantDomainCreatePermissionSysPersister {
+   private final GrantDomainCreatePermissionSysPersister sqlPersister;
+
+   ReplicaGrantDomainCreatePermissionSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantDomainCreatePermissionSysPersister();
+   }
+
+   private GrantDomainCreatePermissionSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantDomainCreatePermissionSysPersister();
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                    Resource accessorResource) {
+      return getSnapshotPersister().getDomainCreateSysPermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Set<DomainCreatePermission> getDomainCreateSysPermissions(SQLConnection connection,
+                                                                    Resource accessorResource) {
+      return getSnapshotPersister().getDomainCreateSysPermissions(null, accessorResource);
+   }
+
+   @Override
+   public void addDomainCreateSysPermissions(SQLConnection connection,
+                                             final Resource accessorResource,
+                                             final Resource grantorResource,
+                                             final Set<DomainCreatePermission> domainCreatePermissions) {
+      sqlPersister.addDomainCreateSysPermissions(connection,
+                                                 accessorResource,
+                                                 grantorResource,
+                                                 domainCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionSysPersister().addDomainCreateSysPermissions(null,
+                                                                                                    accessorResource,
+                                                                                                    grantorResource,
+                                                                                                    domainCreatePermissions);
+         }
+      });
+   }
+
+   @Override
+   public void updateDomainCreateSysPermissions(SQLConnection connection,
+                                                final Resource accessorResource,
+                                                final Resource grantorResource,
+                                                final Set<DomainCreatePermission> domainCreatePermissions) {
+      sqlPersister.updateDomainCreateSysPermissions(connection,
+                                                    accessorResource,
+                                                    grantorResource,
+                                                    domainCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionSysPersister().updateDomainCreateSysPermissions(null,
+                                                                                                       accessorResource,
+                                                                                                       grantorResource,
+                                                                                                       domainCreatePermissions);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                final Resource accessorResource) {
+      sqlPersister.removeDomainCreateSysPermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionSysPersister().removeDomainCreateSysPermissions(null,
+                                                                                                       accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                final List<Resource> accessorResources) {
+      sqlPersister.removeDomainCreateSysPermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionSysPersister().removeDomainCreateSysPermissions(null,
+                                                                                                       accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                final Resource accessorResource,
+                                                final Set<DomainCreatePermission> domainCreatePermissions) {
+      sqlPersister.removeDomainCreateSysPermissions(connection, accessorResource, domainCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainCreatePermissionSysPersister().removeDomainCreateSysPermissions(null,
+                                                                                                       accessorResource,
+                                                                                                       domainCreatePermissions);
+         }
+      });
+   }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantDomainPermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReplicaGrantDomainPermissionSysPersister extends ReplicaPersister implements GrantDomainPermissionSysPersister {
+   private final GrantDomainPermissionSysPersister sqlPersister;
+
+   ReplicaGrantDomainPermissionSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantDomainPermissionSysPersister();
+   }
+
+   private GrantDomainPermissionSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantDomainPermissionSysPersister();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByDomainSuperUserPermission(SQLConnection connection,
+                                                                Resource accessorResource,
+                                                                Id<ResourceClassId> resourceClassId) {
+      return getSnapshotPersister().getResourcesByDomainSuperUserPermission(null, accessorResource, resourceClassId);
+   }
+
+   @Override
+   public Set<Resource> getResourcesByDomainSuperUserPermission(SQLConnection connection,
+                                                                Resource accessorResource,
+                                                                Id<ResourceClassId> resourceClassId,
+                                                                Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourcesByDomainSuperUserPermission(null,
+                                                                            accessorResource,
+                                                                            resourceClassId,
+                                                                            resourceDomainId);
+   }
+
+   @Override
+   public long[] getSuperUserDomainIds(SQLConnection connection,
+                                       Resource accessorResource) {
+      return getSnapshotPersister().getSuperUserDomainIds(null, accessorResource);
+   }
+
+   @Override
+   public Set<DomainPermission> getDomainSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                        Resource accessorResource,
+                                                                        Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getDomainSysPermissionsIncludeInherited(null, accessorResource, resourceDomainId);
+   }
+
+   @Override
+   public Set<DomainPermission> getDomainSysPermissions(SQLConnection connection,
+                                                        Resource accessorResource,
+                                                        Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getDomainSysPermissions(null, accessorResource, resourceDomainId);
+   }
+
+   @Override
+   public Map<String, Set<DomainPermission>> getDomainSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                     Resource accessorResource) {
+      return getSnapshotPersister().getDomainSysPermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Map<String, Set<DomainPermission>> getDomainSysPermissions(SQLConnection connection,
+                                                                     Resource accessorResource) {
+      return getSnapshotPersister().getDomainSysPermissions(null, accessorResource);
+   }
+
+   @Override
+   public void addDomainSysPermissions(SQLConnection connection,
+                                       final Resource accessorResource,
+                                       final Resource grantorResource,
+                                       final Id<DomainId> resourceDomainId,
+                                       final Set<DomainPermission> requestedDomainPermissions) {
+      sqlPersister.addDomainSysPermissions(connection,
+                                           accessorResource,
+                                           grantorResource,
+                                           resourceDomainId,
+                                           requestedDomainPermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().addDomainSysPermissions(null,
+                                                                                        accessorResource,
+                                                                                        grantorResource,
+                                                                                        resourceDomainId,
+                                                                                        requestedDomainPermissions);
+         }
+      });
+   }
+
+   @Override
+   public void updateDomainSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Resource grantorResource,
+                                          final Id<DomainId> resourceDomainId,
+                                          final Set<DomainPermission> requestedDomainPermissions) {
+      sqlPersister.updateDomainSysPermissions(connection,
+                                              accessorResource,
+                                              grantorResource,
+                                              resourceDomainId,
+                                              requestedDomainPermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().updateDomainSysPermissions(null,
+                                                                                           accessorResource,
+                                                                                           grantorResource,
+                                                                                           resourceDomainId,
+                                                                                           requestedDomainPermissions);
+         }
+      });
+   }
+
+   @Override
+   public void upsertDomainSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Resource grantorResource,
+                                          final Id<DomainId> resourceDomainId,
+                                          final Set<DomainPermission> requestedDomainPermissions) {
+      sqlPersister.upsertDomainSysPermissions(connection,
+                                              accessorResource,
+                                              grantorResource,
+                                              resourceDomainId,
+                                              requestedDomainPermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().upsertDomainSysPermissions(null,
+                                                                                           accessorResource,
+                                                                                           grantorResource,
+                                                                                           resourceDomainId,
+                                                                                           requestedDomainPermissions);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             final Resource accessorResource) {
+      sqlPersister.removeAllDomainSysPermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().removeAllDomainSysPermissions(null, accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             final List<Resource> accessorResources) {
+      sqlPersister.removeAllDomainSysPermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().removeAllDomainSysPermissions(null, accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             final Id<DomainId> domainId) {
+      sqlPersister.removeAllDomainSysPermissions(connection, domainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().removeAllDomainSysPermissions(null, domainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Id<DomainId> resourceDomainId) {
+      sqlPersister.removeDomainSysPermissions(connection, accessorResource, resourceDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().removeDomainSysPermissions(null,
+                                                                                           accessorResource,
+                                                                                           resourceDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeDomainSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Id<DomainId> resourceDomainId,
+                                          final Set<DomainPermission> requestedDomainPermissions) {
+      sqlPersister.removeDomainSysPermissions(connection,
+                                              accessorResource,
+                                              resourceDomainId,
+                                              requestedDomainPermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantDomainPermissionSysPersister().removeDomainSysPermissions(null,
+                                                                                           accessorResource,
+                                                                                           resourceDomainId,
+                                                                                           requestedDomainPermissions);
+         }
+      });
+   }
+}
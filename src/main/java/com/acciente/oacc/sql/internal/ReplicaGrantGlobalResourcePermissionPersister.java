@@ -0,0 +1,269 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReplicaGrantGlobalResourcePermissionPersister extends ReplicaPersister implements GrantGlobalResourcePermissionPersister {
+   private final GrantGlobalResourcePermissionPersister sqlPersister;
+
+   ReplicaGrantGlobalResourcePermissionPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantGlobalResourcePermissionPersister();
+   }
+
+   private GrantGlobalResourcePermissionPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantGlobalResourcePermissionPersister();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByGlobalResourcePermission(SQLConnection connection,
+                                                               Resource accessorResource,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               ResourcePermission resourcePermission,
+                                                               Id<ResourcePermissionId> resourcePermissionId) {
+      return getSnapshotPersister().getResourcesByGlobalResourcePermission(null,
+                                                                           accessorResource,
+                                                                           resourceClassId,
+                                                                           resourcePermission,
+                                                                           resourcePermissionId);
+   }
+
+   @Override
+   public Set<Resource> getResourcesByGlobalResourcePermission(SQLConnection connection,
+                                                               Resource accessorResource,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               Id<DomainId> resourceDomainId,
+                                                               ResourcePermission resourcePermission,
+                                                               Id<ResourcePermissionId> resourcePermissionId) {
+      return getSnapshotPersister().getResourcesByGlobalResourcePermission(null,
+                                                                           accessorResource,
+                                                                           resourceClassId,
+                                                                           resourceDomainId,
+                                                                           resourcePermission,
+                                                                           resourcePermissionId);
+   }
+
+   @Override
+   public Set<ResourcePermission> getGlobalResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                               Resource accessorResource,
+                                                                               Id<ResourceClassId> resourceClassId,
+                                                                               Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getGlobalResourcePermissionsIncludeInherited(null,
+                                                                                 accessorResource,
+                                                                                 resourceClassId,
+                                                                                 resourceDomainId);
+   }
+
+   @Override
+   public Set<ResourcePermission> getGlobalResourcePermissions(SQLConnection connection,
+                                                               Resource accessorResource,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getGlobalResourcePermissions(null,
+                                                                 accessorResource,
+                                                                 resourceClassId,
+                                                                 resourceDomainId);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourcePermission>>> getGlobalResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                                                         Resource accessorResource) {
+      return getSnapshotPersister().getGlobalResourcePermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourcePermission>>> getGlobalResourcePermissions(SQLConnection connection,
+                                                                                         Resource accessorResource) {
+      return getSnapshotPersister().getGlobalResourcePermissions(null, accessorResource);
+   }
+
+   @Override
+   public void addGlobalResourcePermissions(SQLConnection connection,
+                                            final Resource accessorResource,
+                                            final Id<ResourceClassId> accessedResourceClassId,
+                                            final Id<DomainId> accessedResourceDomainId,
+                                            final Set<ResourcePermission> requestedResourcePermissions,
+                                            final Resource grantorResource) {
+      sqlPersister.addGlobalResourcePermissions(connection,
+                                                accessorResource,
+                                                accessedResourceClassId,
+                                                accessedResourceDomainId,
+                                                requestedResourcePermissions,
+                                                grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().addGlobalResourcePermissions(null,
+                                                                                                  accessorResource,
+                                                                                                  accessedResourceClassId,
+                                                                                                  accessedResourceDomainId,
+                                                                                                  requestedResourcePermissions,
+                                                                                                  grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateGlobalResourcePermissions(SQLConnection connection,
+                                               final Resource accessorResource,
+                                               final Id<ResourceClassId> accessedResourceClassId,
+                                               final Id<DomainId> accessedResourceDomainId,
+                                               final Set<ResourcePermission> requestedResourcePermissions,
+                                               final Resource grantorResource) {
+      sqlPersister.updateGlobalResourcePermissions(connection,
+                                                   accessorResource,
+                                                   accessedResourceClassId,
+                                                   accessedResourceDomainId,
+                                                   requestedResourcePermissions,
+                                                   grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().updateGlobalResourcePermissions(null,
+                                                                                                     accessorResource,
+                                                                                                     accessedResourceClassId,
+                                                                                                     accessedResourceDomainId,
+                                                                                                     requestedResourcePermissions,
+                                                                                                     grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void upsertGlobalResourcePermissions(SQLConnection connection,
+                                               final Resource accessorResource,
+                                               final Id<ResourceClassId> accessedResourceClassId,
+                                               final Id<DomainId> accessedResourceDomainId,
+                                               final Set<ResourcePermission> requestedResourcePermissions,
+                                               final Resource grantorResource) {
+      sqlPersister.upsertGlobalResourcePermissions(connection,
+                                                   accessorResource,
+                                                   accessedResourceClassId,
+                                                   accessedResourceDomainId,
+                                                   requestedResourcePermissions,
+                                                   grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().upsertGlobalResourcePermissions(null,
+                                                                                                     accessorResource,
+                                                                                                     accessedResourceClassId,
+                                                                                                     accessedResourceDomainId,
+                                                                                                     requestedResourcePermissions,
+                                                                                                     grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                                  final Resource accessorResource) {
+      sqlPersister.removeAllGlobalResourcePermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().removeAllGlobalResourcePermissions(null,
+                                                                                                        accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                                  final List<Resource> accessorResources) {
+      sqlPersister.removeAllGlobalResourcePermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().removeAllGlobalResourcePermissions(null,
+                                                                                                        accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                                  final Id<DomainId> accessedDomainId) {
+      sqlPersister.removeAllGlobalResourcePermissions(connection, accessedDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().removeAllGlobalResourcePermissions(null,
+                                                                                                        accessedDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeGlobalResourcePermissions(SQLConnection connection,
+                                               final Resource accessorResource,
+                                               final Id<ResourceClassId> accessedResourceClassId,
+                                               final Id<DomainId> accessedResourceDomainId) {
+      sqlPersister.removeGlobalResourcePermissions(connection,
+                                                   accessorResource,
+                                                   accessedResourceClassId,
+                                                   accessedResourceDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().removeGlobalResourcePermissions(null,
+                                                                                                     accessorResource,
+                                                                                                     accessedResourceClassId,
+                                                                                                     accessedResourceDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeGlobalResourcePermissions(SQLConnection connection,
+                                               final Resource accessorResource,
+                                               final Id<ResourceClassId> accessedResourceClassId,
+                                               final Id<DomainId> accessedResourceDomainId,
+                                               final Set<ResourcePermission> requestedResourcePermissions) {
+      sqlPersister.removeGlobalResourcePermissions(connection,
+                                                   accessorResource,
+                                                   accessedResourceClassId,
+                                                   accessedResourceDomainId,
+                                                   requestedResourcePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionPersister().removeGlobalResourcePermissions(null,
+                                                                                                     accessorResource,
+                                                                                                     accessedResourceClassId,
+                                                                                                     accessedResourceDomainId,
+                                                                                                     requestedResourcePermissions);
+         }
+      });
+   }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReplicaGrantGlobalResourcePermissionSysPersister extends ReplicaPersister implements GrantGlobalResourcePermissionSysPersister {
+   private final GrantGlobalResourcePermissionSysPersister sqlPersister;
+
+   ReplicaGrantGlobalResourcePermissionSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantGlobalResourcePermissionSysPersister();
+   }
+
+   private GrantGlobalResourcePermissionSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantGlobalResourcePermissionSysPersister();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByGlobalSysPermission(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> resourceClassId,
+                                                          ResourcePermission resourcePermission) {
+      return getSnapshotPersister().getResourcesByGlobalSysPermission(null,
+                                                                      accessorResource,
+                                                                      resourceClassId,
+                                                                      resourcePermission);
+   }
+
+   @Override
+   public Set<Resource> getResourcesByGlobalSysPermission(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> resourceClassId,
+                                                          Id<DomainId> resourceDomainId,
+                                                          ResourcePermission resourcePermission) {
+      return getSnapshotPersister().getResourcesByGlobalSysPermission(null,
+                                                                      accessorResource,
+                                                                      resourceClassId,
+                                                                      resourceDomainId,
+                                                                      resourcePermission);
+   }
+
+   @Override
+   public Set<ResourcePermission> getGlobalSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                          Resource accessorResource,
+                                                                          Id<ResourceClassId> resourceClassId,
+                                                                          Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getGlobalSysPermissionsIncludeInherited(null,
+                                                                            accessorResource,
+                                                                            resourceClassId,
+                                                                            resourceDomainId);
+   }
+
+   @Override
+   public Set<ResourcePermission> getGlobalSysPermissions(SQLConnection connection,
+                                                          Resource accessorResource,
+                                                          Id<ResourceClassId> resourceClassId,
+                                                          Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getGlobalSysPermissions(null, accessorResource, resourceClassId, resourceDomainId);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourcePermission>>> getGlobalSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                    Resource accessorResource) {
+      return getSnapshotPersister().getGlobalSysPermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourcePermission>>> getGlobalSysPermissions(SQLConnection connection,
+                                                                                    Resource accessorResource) {
+      return getSnapshotPersister().getGlobalSysPermissions(null, accessorResource);
+   }
+
+   @Override
+   public void addGlobalSysPermissions(SQLConnection connection,
+                                       final Resource accessorResource,
+                                       final Id<ResourceClassId> accessedResourceClassId,
+                                       final Id<DomainId> accessedResourceDomainId,
+                                       final Set<ResourcePermission> requestedResourcePermissions,
+                                       final Resource grantorResource) {
+      sqlPersister.addGlobalSysPermissions(connection,
+                                           accessorResource,
+                                           accessedResourceClassId,
+                                           accessedResourceDomainId,
+                                           requestedResourcePermissions,
+                                           grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().addGlobalSysPermissions(null,
+                                                                                                accessorResource,
+                                                                                                accessedResourceClassId,
+                                                                                                accessedResourceDomainId,
+                                                                                                requestedResourcePermissions,
+                                                                                                grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateGlobalSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Id<ResourceClassId> accessedResourceClassId,
+                                          final Id<DomainId> accessedResourceDomainId,
+                                          final Set<ResourcePermission> requestedResourcePermissions,
+                                          final Resource grantorResource) {
+      sqlPersister.updateGlobalSysPermissions(connection,
+                                              accessorResource,
+                                              accessedResourceClassId,
+                                              accessedResourceDomainId,
+                                              requestedResourcePermissions,
+                                              grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().updateGlobalSysPermissions(null,
+                                                                                                   accessorResource,
+                                                                                                   accessedResourceClassId,
+                                                                                                   accessedResourceDomainId,
+                                                                                                   requestedResourcePermissions,
+                                                                                                   grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void upsertGlobalSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Id<ResourceClassId> accessedResourceClassId,
+                                          final Id<DomainId> accessedResourceDomainId,
+                                          final Set<ResourcePermission> requestedResourcePermissions,
+                                          final Resource grantorResource) {
+      sqlPersister.upsertGlobalSysPermissions(connection,
+                                              accessorResource,
+                                              accessedResourceClassId,
+                                              accessedResourceDomainId,
+                                              requestedResourcePermissions,
+                                              grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().upsertGlobalSysPermissions(null,
+                                                                                                   accessorResource,
+                                                                                                   accessedResourceClassId,
+                                                                                                   accessedResourceDomainId,
+                                                                                                   requestedResourcePermissions,
+                                                                                                   grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             final Resource accessorResource) {
+      sqlPersister.removeAllGlobalSysPermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().removeAllGlobalSysPermissions(null,
+                                                                                                      accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             final List<Resource> accessorResources) {
+      sqlPersister.removeAllGlobalSysPermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().removeAllGlobalSysPermissions(null,
+                                                                                                      accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             final Id<DomainId> accessedDomainId) {
+      sqlPersister.removeAllGlobalSysPermissions(connection, accessedDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().removeAllGlobalSysPermissions(null,
+                                                                                                      accessedDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeGlobalSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Id<ResourceClassId> accessedResourceClassId,
+                                          final Id<DomainId> accessedResourceDomainId) {
+      sqlPersister.removeGlobalSysPermissions(connection,
+                                              accessorResource,
+                                              accessedResourceClassId,
+                                              accessedResourceDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().removeGlobalSysPermissions(null,
+                                                                                                   accessorResource,
+                                                                                                   accessedResourceClassId,
+                                                                                                   accessedResourceDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeGlobalSysPermissions(SQLConnection connection,
+                                          final Resource accessorResource,
+                                          final Id<ResourceClassId> accessedResourceClassId,
+                                          final Id<DomainId> accessedResourceDomainId,
+                                          final Set<ResourcePermission> requestedResourcePermissions) {
+      sqlPersister.removeGlobalSysPermissions(connection,
+                                              accessorResource,
+                                              accessedResourceClassId,
+                                              accessedResourceDomainId,
+                                              requestedResourcePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantGlobalResourcePermissionSysPersister().removeGlobalSysPermissions(null,
+                                                                                                   accessorResource,
+                                                                                                   accessedResourceClassId,
+                                                                                                   accessedResourceDomainId,
+                                                                                                   requestedResourcePermissions);
+         }
+      });
+   }
+}
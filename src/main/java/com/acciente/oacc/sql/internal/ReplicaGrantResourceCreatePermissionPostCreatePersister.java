@@ -0,0 +1,214 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreatePersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReplicaGrantResourceCreatePermissionPostCreatePersister extends ReplicaPersister implements GrantResourceCreatePermissionPostCreatePersister {
+   private final GrantResourceCreatePermissionPostCreatePersister sqlPersister;
+
+   ReplicaGrantResourceCreatePermissionPostCreatePersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantResourceCreatePermissionPostCreatePersister();
+   }
+
+   private GrantResourceCreatePermissionPostCreatePersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantResourceCreatePermissionPostCreatePersister();
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreatePostCreatePermissionsIncludeInherited(SQLConnection connection,
+                                                                                               Resource accessorResource,
+                                                                                               Id<ResourceClassId> resourceClassId,
+                                                                                               Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourceCreatePostCreatePermissionsIncludeInherited(null,
+                                                                                           accessorResource,
+                                                                                           resourceClassId,
+                                                                                           resourceDomainId);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreatePostCreatePermissionsIncludeInherited(SQLConnection connection,
+                                                                                                                         Resource accessorResource) {
+      return getSnapshotPersister().getResourceCreatePostCreatePermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                                                                         Resource accessorResource) {
+      return getSnapshotPersister().getResourceCreatePostCreatePermissions(null, accessorResource);
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                                               Resource accessorResource,
+                                                                               Id<ResourceClassId> resourceClassId,
+                                                                               Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourceCreatePostCreatePermissions(null,
+                                                                           accessorResource,
+                                                                           resourceClassId,
+                                                                           resourceDomainId);
+   }
+
+   @Override
+   public void addResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                      final Resource accessorResource,
+                                                      final Id<ResourceClassId> accessedResourceClassId,
+                                                      final Id<DomainId> accessedResourceDomainId,
+                                                      final Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                      final Resource grantorResource) {
+      sqlPersister.addResourceCreatePostCreatePermissions(connection,
+                                                          accessorResource,
+                                                          accessedResourceClassId,
+                                                          accessedResourceDomainId,
+                                                          requestedResourceCreatePermissions,
+                                                          grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().addResourceCreatePostCreatePermissions(null,
+                                                                                                                      accessorResource,
+                                                                                                                      accessedResourceClassId,
+                                                                                                                      accessedResourceDomainId,
+                                                                                                                      requestedResourceCreatePermissions,
+                                                                                                                      grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                         final Resource accessorResource,
+                                                         final Id<ResourceClassId> accessedResourceClassId,
+                                                         final Id<DomainId> accessedResourceDomainId,
+                                                         final Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                         final Resource grantorResource) {
+      sqlPersister.updateResourceCreatePostCreatePermissions(connection,
+                                                             accessorResource,
+                                                             accessedResourceClassId,
+                                                             accessedResourceDomainId,
+                                                             requestedResourceCreatePermissions,
+                                                             grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().updateResourceCreatePostCreatePermissions(null,
+                                                                                                                         accessorResource,
+                                                                                                                         accessedResourceClassId,
+                                                                                                                         accessedResourceDomainId,
+                                                                                                                         requestedResourceCreatePermissions,
+                                                                                                                         grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                            final Resource accessorResource) {
+      sqlPersister.removeAllResourceCreatePostCreatePermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().removeAllResourceCreatePostCreatePermissions(null,
+                                                                                                                            accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                            final List<Resource> accessorResources) {
+      sqlPersister.removeAllResourceCreatePostCreatePermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().removeAllResourceCreatePostCreatePermissions(null,
+                                                                                                                            accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                            final Id<DomainId> accessedDomainId) {
+      sqlPersister.removeAllResourceCreatePostCreatePermissions(connection, accessedDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().removeAllResourceCreatePostCreatePermissions(null,
+                                                                                                                            accessedDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                         final Resource accessorResource,
+                                                         final Id<ResourceClassId> accessedResourceClassId,
+                                                         final Id<DomainId> accessedResourceDomainId) {
+      sqlPersister.removeResourceCreatePostCreatePermissions(connection,
+                                                             accessorResource,
+                                                             accessedResourceClassId,
+                                                             accessedResourceDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().removeResourceCreatePostCreatePermissions(null,
+                                                                                                                         accessorResource,
+                                                                                                                         accessedResourceClassId,
+                                                                                                                         accessedResourceDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                         final Resource accessorResource,
+                                                         final Id<ResourceClassId> accessedResourceClassId,
+                                                         final Id<DomainId> accessedResourceDomainId,
+                                                         final Set<ResourceCreatePermission> requestedResourceCreatePermissions) {
+      sqlPersister.removeResourceCreatePostCreatePermissions(connection,
+                                                             accessorResource,
+                                                             accessedResourceClassId,
+                                                             accessedResourceDomainId,
+                                                             requestedResourceCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreatePersister().removeResourceCreatePostCreatePermissions(null,
+                                                                                                                         accessorResource,
+                                                                                                                         accessedResourceClassId,
+                                                                                                                         accessedResourceDomainId,
+                                                                                                                         requestedResourceCreatePermissions);
+         }
+      });
+   }
+}
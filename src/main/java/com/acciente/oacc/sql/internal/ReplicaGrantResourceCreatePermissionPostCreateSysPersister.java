@@ -0,0 +1,214 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReplicaGrantResourceCreatePermissionPostCreateSysPersister extends ReplicaPersister implements GrantResourceCreatePermissionPostCreateSysPersister {
+   private final GrantResourceCreatePermissionPostCreateSysPersister sqlPersister;
+
+   ReplicaGrantResourceCreatePermissionPostCreateSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantResourceCreatePermissionPostCreateSysPersister();
+   }
+
+   private GrantResourceCreatePermissionPostCreateSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantResourceCreatePermissionPostCreateSysPersister();
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreatePostCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                  Resource accessorResource,
+                                                                                                  Id<ResourceClassId> resourceClassId,
+                                                                                                  Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourceCreatePostCreateSysPermissionsIncludeInherited(null,
+                                                                                              accessorResource,
+                                                                                              resourceClassId,
+                                                                                              resourceDomainId);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreatePostCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                                            Resource accessorResource) {
+      return getSnapshotPersister().getResourceCreatePostCreateSysPermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                                                            Resource accessorResource) {
+      return getSnapshotPersister().getResourceCreatePostCreateSysPermissions(null, accessorResource);
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                                                  Resource accessorResource,
+                                                                                  Id<ResourceClassId> resourceClassId,
+                                                                                  Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourceCreatePostCreateSysPermissions(null,
+                                                                              accessorResource,
+                                                                              resourceClassId,
+                                                                              resourceDomainId);
+   }
+
+   @Override
+   public void addResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                         final Resource accessorResource,
+                                                         final Id<ResourceClassId> accessedResourceClassId,
+                                                         final Id<DomainId> accessedResourceDomainId,
+                                                         final Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                         final Resource grantorResource) {
+      sqlPersister.addResourceCreatePostCreateSysPermissions(connection,
+                                                             accessorResource,
+                                                             accessedResourceClassId,
+                                                             accessedResourceDomainId,
+                                                             requestedResourceCreatePermissions,
+                                                             grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().addResourceCreatePostCreateSysPermissions(null,
+                                                                                                                            accessorResource,
+                                                                                                                            accessedResourceClassId,
+                                                                                                                            accessedResourceDomainId,
+                                                                                                                            requestedResourceCreatePermissions,
+                                                                                                                            grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                            final Resource accessorResource,
+                                                            final Id<ResourceClassId> accessedResourceClassId,
+                                                            final Id<DomainId> accessedResourceDomainId,
+                                                            final Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                            final Resource grantorResource) {
+      sqlPersister.updateResourceCreatePostCreateSysPermissions(connection,
+                                                                accessorResource,
+                                                                accessedResourceClassId,
+                                                                accessedResourceDomainId,
+                                                                requestedResourceCreatePermissions,
+                                                                grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().updateResourceCreatePostCreateSysPermissions(null,
+                                                                                                                               accessorResource,
+                                                                                                                               accessedResourceClassId,
+                                                                                                                               accessedResourceDomainId,
+                                                                                                                               requestedResourceCreatePermissions,
+                                                                                                                               grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               final Resource accessorResource) {
+      sqlPersister.removeAllResourceCreatePostCreateSysPermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().removeAllResourceCreatePostCreateSysPermissions(null,
+                                                                                                                                  accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               final List<Resource> accessorResources) {
+      sqlPersister.removeAllResourceCreatePostCreateSysPermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().removeAllResourceCreatePostCreateSysPermissions(null,
+                                                                                                                                  accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               final Id<DomainId> accessedDomainId) {
+      sqlPersister.removeAllResourceCreatePostCreateSysPermissions(connection, accessedDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().removeAllResourceCreatePostCreateSysPermissions(null,
+                                                                                                                                  accessedDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                            final Resource accessorResource,
+                                                            final Id<ResourceClassId> accessedResourceClassId,
+                                                            final Id<DomainId> accessedResourceDomainId) {
+      sqlPersister.removeResourceCreatePostCreateSysPermissions(connection,
+                                                                accessorResource,
+                                                                accessedResourceClassId,
+                                                                accessedResourceDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().removeResourceCreatePostCreateSysPermissions(null,
+                                                                                                                               accessorResource,
+                                                                                                                               accessedResourceClassId,
+                                                                                                                               accessedResourceDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                            final Resource accessorResource,
+                                                            final Id<ResourceClassId> accessedResourceClassId,
+                                                            final Id<DomainId> accessedResourceDomainId,
+                                                            final Set<ResourceCreatePermission> requestedResourceCreatePermissions) {
+      sqlPersister.removeResourceCreatePostCreateSysPermissions(connection,
+                                                                accessorResource,
+                                                                accessedResourceClassId,
+                                                                accessedResourceDomainId,
+                                                                requestedResourceCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister().removeResourceCreatePostCreateSysPermissions(null,
+                                                                                                                               accessorResource,
+                                                                                                                               accessedResourceClassId,
+                                                                                                                               accessedResourceDomainId,
+                                                                                                                               requestedResourceCreatePermissions);
+         }
+      });
+   }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourceCreatePermission;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReplicaGrantResourceCreatePermissionSysPersister extends ReplicaPersister implements GrantResourceCreatePermissionSysPersister {
+   private final GrantResourceCreatePermissionSysPersister sqlPersister;
+
+   ReplicaGrantResourceCreatePermissionSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantResourceCreatePermissionSysPersister();
+   }
+
+   private GrantResourceCreatePermissionSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantResourceCreatePermissionSysPersister();
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                        Resource accessorResource,
+                                                                                        Id<ResourceClassId> resourceClassId,
+                                                                                        Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourceCreateSysPermissionsIncludeInherited(null,
+                                                                                    accessorResource,
+                                                                                    resourceClassId,
+                                                                                    resourceDomainId);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreateSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                                  Resource accessorResource) {
+      return getSnapshotPersister().getResourceCreateSysPermissionsIncludeInherited(null, accessorResource);
+   }
+
+   @Override
+   public Map<String, Map<String, Set<ResourceCreatePermission>>> getResourceCreateSysPermissions(SQLConnection connection,
+                                                                                                  Resource accessorResource) {
+      return getSnapshotPersister().getResourceCreateSysPermissions(null, accessorResource);
+   }
+
+   @Override
+   public Set<ResourceCreatePermission> getResourceCreateSysPermissions(SQLConnection connection,
+                                                                        Resource accessorResource,
+                                                                        Id<ResourceClassId> resourceClassId,
+                                                                        Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().getResourceCreateSysPermissions(null,
+                                                                    accessorResource,
+                                                                    resourceClassId,
+                                                                    resourceDomainId);
+   }
+
+   @Override
+   public void addResourceCreateSysPermissions(SQLConnection connection,
+                                               final Resource accessorResource,
+                                               final Id<ResourceClassId> accessedResourceClassId,
+                                               final Id<DomainId> accessedResourceDomainId,
+                                               final Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                               final Resource grantorResource) {
+      sqlPersister.addResourceCreateSysPermissions(connection,
+                                                   accessorResource,
+                                                   accessedResourceClassId,
+                                                   accessedResourceDomainId,
+                                                   requestedResourceCreatePermissions,
+                                                   grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().addResourceCreateSysPermissions(null,
+                                                                                                        accessorResource,
+                                                                                                        accessedResourceClassId,
+                                                                                                        accessedResourceDomainId,
+                                                                                                        requestedResourceCreatePermissions,
+                                                                                                        grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateResourceCreateSysPermissions(SQLConnection connection,
+                                                  final Resource accessorResource,
+                                                  final Id<ResourceClassId> accessedResourceClassId,
+                                                  final Id<DomainId> accessedResourceDomainId,
+                                                  final Set<ResourceCreatePermission> requestedResourceCreatePermissions,
+                                                  final Resource grantorResource) {
+      sqlPersister.updateResourceCreateSysPermissions(connection,
+                                                      accessorResource,
+                                                      accessedResourceClassId,
+                                                      accessedResourceDomainId,
+                                                      requestedResourceCreatePermissions,
+                                                      grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().updateResourceCreateSysPermissions(null,
+                                                                                                           accessorResource,
+                                                                                                           accessedResourceClassId,
+                                                                                                           accessedResourceDomainId,
+                                                                                                           requestedResourceCreatePermissions,
+                                                                                                           grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     final Resource accessorResource) {
+      sqlPersister.removeAllResourceCreateSysPermissions(connection, accessorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().removeAllResourceCreateSysPermissions(null,
+                                                                                                              accessorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     final List<Resource> accessorResources) {
+      sqlPersister.removeAllResourceCreateSysPermissions(connection, accessorResources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().removeAllResourceCreateSysPermissions(null,
+                                                                                                              accessorResources);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     final Id<DomainId> accessedDomainId) {
+      sqlPersister.removeAllResourceCreateSysPermissions(connection, accessedDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().removeAllResourceCreateSysPermissions(null,
+                                                                                                              accessedDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceCreateSysPermissions(SQLConnection connection,
+                                                  final Resource accessorResource,
+                                                  final Id<ResourceClassId> accessedResourceClassId,
+                                                  final Id<DomainId> accessedResourceDomainId) {
+      sqlPersister.removeResourceCreateSysPermissions(connection,
+                                                      accessorResource,
+                                                      accessedResourceClassId,
+                                                      accessedResourceDomainId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().removeResourceCreateSysPermissions(null,
+                                                                                                           accessorResource,
+                                                                                                           accessedResourceClassId,
+                                                                                                           accessedResourceDomainId);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceCreateSysPermissions(SQLConnection connection,
+                                                  final Resource accessorResource,
+                                                  final Id<ResourceClassId> accessedResourceClassId,
+                                                  final Id<DomainId> accessedResourceDomainId,
+                                                  final Set<ResourceCreatePermission> requestedResourceCreatePermissions) {
+      sqlPersister.removeResourceCreateSysPermissions(connection,
+                                                      accessorResource,
+                                                      accessedResourceClassId,
+                                                      accessedResourceDomainId,
+                                                      requestedResourceCreatePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourceCreatePermissionSysPersister().removeResourceCreateSysPermissions(null,
+                                                                                                           accessorResource,
+                                                                                                           accessedResourceClassId,
+                                                                                                           accessedResourceDomainId,
+                                                                                                           requestedResourceCreatePermissions);
+         }
+      });
+   }
+}
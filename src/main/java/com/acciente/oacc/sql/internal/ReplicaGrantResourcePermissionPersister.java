@@ -0,0 +1,291 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.util.List;
+import java.util.Set;
+
+class ReplicaGrantResourcePermissionPersister extends ReplicaPersister implements GrantResourcePermissionPersister {
+   private final GrantResourcePermissionPersister sqlPersister;
+
+   ReplicaGrantResourcePermissionPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantResourcePermissionPersister();
+   }
+
+   private GrantResourcePermissionPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantResourcePermissionPersister();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByResourcePermission(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Id<ResourceClassId> resourceClassId,
+                                                         ResourcePermission resourcePermission,
+                                                         Id<ResourcePermissionId> resourcePermissionId) {
+      return getSnapshotPersister().getResourcesByResourcePermission(null,
+                                                                     accessorResource,
+                                                                     resourceClassId,
+                                                                     resourcePermission,
+                                                                     resourcePermissionId);
+   }
+
+   @Override
+   public Set<Resource> getResourcesByResourcePermission(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Id<ResourceClassId> resourceClassId,
+                                                         Id<DomainId> resourceDomainId,
+                                                         ResourcePermission resourcePermission,
+                                                         Id<ResourcePermissionId> resourcePermissionId) {
+      return getSnapshotPersister().getResourcesByResourcePermission(null,
+                                                                     accessorResource,
+                                                                     resourceClassId,
+                                                                     resourceDomainId,
+                                                                     resourcePermission,
+                                                                     resourcePermissionId);
+   }
+
+   @Override
+   public Set<Resource> getAccessorResourcesByResourcePermission(SQLConnection connection,
+                                                                 Resource accessedResource,
+                                                                 Id<ResourceClassId> resourceClassId,
+                                                                 ResourcePermission resourcePermission,
+                                                                 Id<ResourcePermissionId> resourcePermissionId) {
+      return getSnapshotPersister().getAccessorResourcesByResourcePermission(null,
+                                                                             accessedResource,
+                                                                             resourceClassId,
+                                                                             resourcePermission,
+                                                                             resourcePermissionId);
+   }
+
+   @Override
+   public long[] getAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                            Resource accessedResource,
+                                                            Id<ResourceClassId> resourceClassId,
+                                                            ResourcePermission resourcePermission,
+                                                            Id<ResourcePermissionId> resourcePermissionId,
+                                                            long afterAccessorResourceId,
+                                                            long upToAccessorResourceId,
+                                                            int maxCount) {
+      return getSnapshotPersister().getAccessorResourceIdsByResourcePermission(null,
+                                                                               accessedResource,
+                                                                               resourceClassId,
+                                                                               resourcePermission,
+                                                                               resourcePermissionId,
+                                                                               afterAccessorResourceId,
+                                                                               upToAccessorResourceId,
+                                                                               maxCount);
+   }
+
+   @Override
+   public long[] getEffectiveAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                                     Resource accessedResource,
+                                                                     Id<ResourceClassId> resourceClassId,
+                                                                     Id<DomainId> resourceDomainId,
+                                                                     ResourcePermission resourcePermission,
+                                                                     Id<ResourcePermissionId> resourcePermissionId,
+                                                                     long afterAccessorResourceId,
+                                                                     long upToAccessorResourceId,
+                                                                     int maxCount) {
+      return getSnapshotPersister().getEffectiveAccessorResourceIdsByResourcePermission(null,
+                                                                                        accessedResource,
+                                                                                        resourceClassId,
+                                                                                        resourceDomainId,
+                                                                                        resourcePermission,
+                                                                                        resourcePermissionId,
+                                                                                        afterAccessorResourceId,
+                                                                                        upToAccessorResourceId,
+                                                                                        maxCount);
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                         Resource accessorResource,
+                                                                         Resource accessedResource) {
+      return getSnapshotPersister().getResourcePermissionsIncludeInherited(null, accessorResource, accessedResource);
+   }
+
+   @Override
+   public LongObjectHashMap<Set<ResourcePermission>> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                                            Resource accessorResource,
+                                                                                            List<Resource> accessedResources) {
+      return getSnapshotPersister().getResourcePermissionsIncludeInherited(null, accessorResource, accessedResources);
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourcePermissions(SQLConnection connection,
+                                                         Resource accessorResource,
+                                                         Resource accessedResource) {
+      return getSnapshotPersister().getResourcePermissions(null, accessorResource, accessedResource);
+   }
+
+   @Override
+   public void addResourcePermissions(SQLConnection connection,
+                                      final Resource accessorResource,
+                                      final Resource accessedResource,
+                                      final Id<ResourceClassId> accessedResourceClassId,
+                                      final Set<ResourcePermission> requestedResourcePermissions,
+                                      final Resource grantorResource) {
+      sqlPersister.addResourcePermissions(connection,
+                                          accessorResource,
+                                          accessedResource,
+                                          accessedResourceClassId,
+                                          requestedResourcePermissions,
+                                          grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().addResourcePermissions(null,
+                                                                                      accessorResource,
+                                                                                      accessedResource,
+                                                                                      accessedResourceClassId,
+                                                                                      requestedResourcePermissions,
+                                                                                      grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateResourcePermissions(SQLConnection connection,
+                                         final Resource accessorResource,
+                                         final Resource accessedResource,
+                                         final Id<ResourceClassId> accessedResourceClassId,
+                                         final Set<ResourcePermission> requestedResourcePermissions,
+                                         final Resource grantorResource) {
+      sqlPersister.updateResourcePermissions(connection,
+                                             accessorResource,
+                                             accessedResource,
+                                             accessedResourceClassId,
+                                             requestedResourcePermissions,
+                                             grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().updateResourcePermissions(null,
+                                                                                         accessorResource,
+                                                                                         accessedResource,
+                                                                                         accessedResourceClassId,
+                                                                                         requestedResourcePermissions,
+                                                                                         grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void upsertResourcePermissions(SQLConnection connection,
+                                         final Resource accessorResource,
+                                         final Resource accessedResource,
+                                         final Id<ResourceClassId> accessedResourceClassId,
+                                         final Set<ResourcePermission> requestedResourcePermissions,
+                                         final Resource grantorResource) {
+      sqlPersister.upsertResourcePermissions(connection,
+                                             accessorResource,
+                                             accessedResource,
+                                             accessedResourceClassId,
+                                             requestedResourcePermissions,
+                                             grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().upsertResourcePermissions(null,
+                                                                                         accessorResource,
+                                                                                         accessedResource,
+                                                                                         accessedResourceClassId,
+                                                                                         requestedResourcePermissions,
+                                                                                         grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                final Resource resource) {
+      sqlPersister.removeAllResourcePermissionsAsAccessorOrAccessed(connection, resource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().removeAllResourcePermissionsAsAccessorOrAccessed(null,
+                                                                                                                resource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                final List<Resource> resources) {
+      sqlPersister.removeAllResourcePermissionsAsAccessorOrAccessed(connection, resources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().removeAllResourcePermissionsAsAccessorOrAccessed(null,
+                                                                                                                resources);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourcePermissions(SQLConnection connection,
+                                         final Resource accessorResource,
+                                         final Resource accessedResource) {
+      sqlPersister.removeResourcePermissions(connection, accessorResource, accessedResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().removeResourcePermissions(null,
+                                                                                         accessorResource,
+                                                                                         accessedResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourcePermissions(SQLConnection connection,
+                                         final Resource accessorResource,
+                                         final Resource accessedResource,
+                                         final Id<ResourceClassId> accessedResourceClassId,
+                                         final Set<ResourcePermission> requestedResourcePermissions) {
+      sqlPersister.removeResourcePermissions(connection,
+                                             accessorResource,
+                                             accessedResource,
+                                             accessedResourceClassId,
+                                             requestedResourcePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionPersister().removeResourcePermissions(null,
+                                                                                         accessorResource,
+                                                                                         accessedResource,
+                                                                                         accessedResourceClassId,
+                                                                                         requestedResourcePermissions);
+         }
+      });
+   }
+}
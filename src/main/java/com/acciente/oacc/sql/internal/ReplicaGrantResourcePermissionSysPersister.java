@@ -0,0 +1,289 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+import java.util.Set;
+
+class ReplicaGrantResourcePermissionSysPersister extends ReplicaPersister implements GrantResourcePermissionSysPersister {
+   private final GrantResourcePermissionSysPersister sqlPersister;
+
+   ReplicaGrantResourcePermissionSysPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getGrantResourcePermissionSysPersister();
+   }
+
+   private GrantResourcePermissionSysPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getGrantResourcePermissionSysPersister();
+   }
+
+   @Override
+   public Set<Resource> getResourcesByResourceSysPermission(SQLConnection connection,
+                                                            Resource accessorResource,
+                                                            Id<ResourceClassId> resourceClassId,
+                                                            ResourcePermission resourcePermission) {
+      return getSnapshotPersister().getResourcesByResourceSysPermission(null,
+                                                                        accessorResource,
+                                                                        resourceClassId,
+                                                                        resourcePermission);
+   }
+
+   @Override
+   public Set<Resource> getResourcesByResourceSysPermission(SQLConnection connection,
+                                                            Resource accessorResource,
+                                                            Id<ResourceClassId> resourceClassId,
+                                                            Id<DomainId> resourceDomainId,
+                                                            ResourcePermission resourcePermission) {
+      return getSnapshotPersister().getResourcesByResourceSysPermission(null,
+                                                                        accessorResource,
+                                                                        resourceClassId,
+                                                                        resourceDomainId,
+                                                                        resourcePermission);
+   }
+
+   @Override
+   public Set<Resource> getAccessorResourcesByResourceSysPermission(SQLConnection connection,
+                                                                    Resource accessedResource,
+                                                                    Id<ResourceClassId> resourceClassId,
+                                                                    ResourcePermission resourcePermission) {
+      return getSnapshotPersister().getAccessorResourcesByResourceSysPermission(null,
+                                                                                accessedResource,
+                                                                                resourceClassId,
+                                                                                resourcePermission);
+   }
+
+   @Override
+   public long[] getAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                               Resource accessedResource,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               ResourcePermission resourcePermission,
+                                                               long afterAccessorResourceId,
+                                                               long upToAccessorResourceId,
+                                                               int maxCount) {
+      return getSnapshotPersister().getAccessorResourceIdsByResourceSysPermission(null,
+                                                                                  accessedResource,
+                                                                                  resourceClassId,
+                                                                                  resourcePermission,
+                                                                                  afterAccessorResourceId,
+                                                                                  upToAccessorResourceId,
+                                                                                  maxCount);
+   }
+
+   @Override
+   public long[] getEffectiveAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                                        Resource accessedResource,
+                                                                        Id<ResourceClassId> resourceClassId,
+                                                                        Id<DomainId> resourceDomainId,
+                                                                        ResourcePermission resourcePermission,
+                                                                        long afterAccessorResourceId,
+                                                                        long upToAccessorResourceId,
+                                                                        int maxCount) {
+      return getSnapshotPersister().getEffectiveAccessorResourceIdsByResourceSysPermission(null,
+                                                                                           accessedResource,
+                                                                                           resourceClassId,
+                                                                                           resourceDomainId,
+                                                                                           resourcePermission,
+                                                                                           afterAccessorResourceId,
+                                                                                           upToAccessorResourceId,
+                                                                                           maxCount);
+   }
+
+   @Override
+   public boolean isInheritedFrom(SQLConnection connection,
+                                  Resource accessorResource,
+                                  Resource inheritedResource) {
+      return getSnapshotPersister().isInheritedFrom(null, accessorResource, inheritedResource);
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                            Resource accessorResource,
+                                                                            Resource accessedResource) {
+      return getSnapshotPersister().getResourceSysPermissionsIncludeInherited(null, accessorResource, accessedResource);
+   }
+
+   @Override
+   public LongObjectHashMap<Set<ResourcePermission>> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                               Resource accessorResource,
+                                                                                               List<Resource> accessedResources) {
+      return getSnapshotPersister().getResourceSysPermissionsIncludeInherited(null,
+                                                                              accessorResource,
+                                                                              accessedResources);
+   }
+
+   @Override
+   public Set<ResourcePermission> getResourceSysPermissions(SQLConnection connection,
+                                                            Resource accessorResource,
+                                                            Resource accessedResource) {
+      return getSnapshotPersister().getResourceSysPermissions(null, accessorResource, accessedResource);
+   }
+
+   @Override
+   public void addResourceSysPermissions(SQLConnection connection,
+                                         final Resource accessorResource,
+                                         final Resource accessedResource,
+                                         final Id<ResourceClassId> accessedResourceClassId,
+                                         final Set<ResourcePermission> requestedResourcePermissions,
+                                         final Resource grantorResource) {
+      sqlPersister.addResourceSysPermissions(connection,
+                                             accessorResource,
+                                             accessedResource,
+                                             accessedResourceClassId,
+                                             requestedResourcePermissions,
+                                             grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().addResourceSysPermissions(null,
+                                                                                            accessorResource,
+                                                                                            accessedResource,
+                                                                                            accessedResourceClassId,
+                                                                                            requestedResourcePermissions,
+                                                                                            grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void updateResourceSysPermissions(SQLConnection connection,
+                                            final Resource accessorResource,
+                                            final Resource accessedResource,
+                                            final Id<ResourceClassId> accessedResourceClassId,
+                                            final Set<ResourcePermission> requestedResourcePermissions,
+                                            final Resource grantorResource) {
+      sqlPersister.updateResourceSysPermissions(connection,
+                                                accessorResource,
+                                                accessedResource,
+                                                accessedResourceClassId,
+                                                requestedResourcePermissions,
+                                                grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().updateResourceSysPermissions(null,
+                                                                                               accessorResource,
+                                                                                               accessedResource,
+                                                                                               accessedResourceClassId,
+                                                                                               requestedResourcePermissions,
+                                                                                               grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void upsertResourceSysPermissions(SQLConnection connection,
+                                            final Resource accessorResource,
+                                            final Resource accessedResource,
+                                            final Id<ResourceClassId> accessedResourceClassId,
+                                            final Set<ResourcePermission> requestedResourcePermissions,
+                                            final Resource grantorResource) {
+      sqlPersister.upsertResourceSysPermissions(connection,
+                                                accessorResource,
+                                                accessedResource,
+                                                accessedResourceClassId,
+                                                requestedResourcePermissions,
+                                                grantorResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().upsertResourceSysPermissions(null,
+                                                                                               accessorResource,
+                                                                                               accessedResource,
+                                                                                               accessedResourceClassId,
+                                                                                               requestedResourcePermissions,
+                                                                                               grantorResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                   final Resource resource) {
+      sqlPersister.removeAllResourceSysPermissionsAsAccessorOrAccessed(connection, resource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().removeAllResourceSysPermissionsAsAccessorOrAccessed(null,
+                                                                                                                      resource);
+         }
+      });
+   }
+
+   @Override
+   public void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                   final List<Resource> resources) {
+      sqlPersister.removeAllResourceSysPermissionsAsAccessorOrAccessed(connection, resources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().removeAllResourceSysPermissionsAsAccessorOrAccessed(null,
+                                                                                                                      resources);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceSysPermissions(SQLConnection connection,
+                                            final Resource accessorResource,
+                                            final Resource accessedResource) {
+      sqlPersister.removeResourceSysPermissions(connection, accessorResource, accessedResource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().removeResourceSysPermissions(null,
+                                                                                               accessorResource,
+                                                                                               accessedResource);
+         }
+      });
+   }
+
+   @Override
+   public void removeResourceSysPermissions(SQLConnection connection,
+                                            final Resource accessorResource,
+                                            final Resource accessedResource,
+                                            final Id<ResourceClassId> accessedResourceClassId,
+                                            final Set<ResourcePermission> requestedResourcePermissions) {
+      sqlPersister.removeResourceSysPermissions(connection,
+                                                accessorResource,
+                                                accessedResource,
+                                                accessedResourceClassId,
+                                                requestedResourcePermissions);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getGrantResourcePermissionSysPersister().removeResourceSysPermissions(null,
+                                                                                               accessorResource,
+                                                                                               accessedResource,
+                                                                                               accessedResourceClassId,
+                                                                                               requestedResourcePermissions);
+         }
+      });
+   }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+
+/**
+ * Base class of the persisters of a {@link SQLReplicaPersisterSet}.
+ * <p/>
+ * Queries are answered by the corresponding persister of the current snapshot, and ignore the connection argument.
+ * Modifications are applied by the corresponding SQL persister on the connection argument, which is the connection
+ * of the calling access control context, and then to the snapshot as a {@link SQLReplicaPersisterSet.SnapshotUpdate}.
+ */
+abstract class ReplicaPersister {
+   private final SQLReplicaPersisterSet replicaPersisterSet;
+
+   protected ReplicaPersister(SQLReplicaPersisterSet replicaPersisterSet) {
+      this.replicaPersisterSet = replicaPersisterSet;
+   }
+
+   protected PersisterSet getSnapshotPersisterSet() {
+      return replicaPersisterSet.getSnapshotPersisterSet();
+   }
+
+   protected void applyUpdate(SQLReplicaPersisterSet.SnapshotUpdate update) {
+      replicaPersisterSet.applyUpdate(update);
+   }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
+
+import java.util.List;
+
+class ReplicaResourceClassPermissionPersister extends ReplicaPersister implements ResourceClassPermissionPersister {
+   private final ResourceClassPermissionPersister sqlPersister;
+
+   ReplicaResourceClassPermissionPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getResourceClassPermissionPersister();
+   }
+
+   private ResourceClassPermissionPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getResourceClassPermissionPersister();
+   }
+
+   @Override
+   public Id<ResourcePermissionId> getResourceClassPermissionId(SQLConnection connection,
+                                                                Id<ResourceClassId> resourceClassId,
+                                                                String permissionName) {
+      return getSnapshotPersister().getResourceClassPermissionId(null, resourceClassId, permissionName);
+   }
+
+   @Override
+   public List<String> getPermissionNames(SQLConnection connection,
+                                          String resourceClassName) {
+      return getSnapshotPersister().getPermissionNames(null, resourceClassName);
+   }
+
+   @Override
+   public void addResourceClassPermission(SQLConnection connection,
+                                          final Id<ResourceClassId> resourceClassId,
+                                          final String permissionName) {
+      sqlPersister.addResourceClassPermission(connection, resourceClassId, permissionName);
+
+      // the snapshot has to use the id the database assigned to the new row
+      final long permissionId
+            = sqlPersister.getResourceClassPermissionId(connection, resourceClassId, permissionName).getValue();
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            store.loadResourceClassPermission(resourceClassId.getValue(), permissionId, permissionName);
+         }
+      });
+   }
+}
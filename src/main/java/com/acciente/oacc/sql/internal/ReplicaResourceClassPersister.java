@@ -0,0 +1,83 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.ResourceClassInternalInfo;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+
+import java.util.List;
+
+class ReplicaResourceClassPersister extends ReplicaPersister implements ResourceClassPersister {
+   private final ResourceClassPersister sqlPersister;
+
+   ReplicaResourceClassPersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getResourceClassPersister();
+   }
+
+   private ResourceClassPersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getResourceClassPersister();
+   }
+
+   @Override
+   public Id<ResourceClassId> getResourceClassId(SQLConnection connection,
+                                                 String resourceClassName) {
+      return getSnapshotPersister().getResourceClassId(null, resourceClassName);
+   }
+
+   @Override
+   public ResourceClassInternalInfo getResourceClassInfo(SQLConnection connection,
+                                                         String resourceClassName) {
+      return getSnapshotPersister().getResourceClassInfo(null, resourceClassName);
+   }
+
+   @Override
+   public ResourceClassInternalInfo getResourceClassInfoByResourceId(SQLConnection connection,
+                                                                     Resource resource) {
+      return getSnapshotPersister().getResourceClassInfoByResourceId(null, resource);
+   }
+
+   @Override
+   public List<String> getResourceClassNames(SQLConnection connection) {
+      return getSnapshotPersister().getResourceClassNames(null);
+   }
+
+   @Override
+   public void addResourceClass(SQLConnection connection,
+                                final String resourceClassName,
+                                final boolean authenticatable,
+                                final boolean nonAuthenticatedCreateAllowed) {
+      sqlPersister.addResourceClass(connection, resourceClassName, authenticatable, nonAuthenticatedCreateAllowed);
+
+      // the snapshot has to use the id the database assigned to the new row
+      final long resourceClassId = sqlPersister.getResourceClassId(connection, resourceClassName).getValue();
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            store.loadResourceClass(resourceClassId, resourceClassName, authenticatable, nonAuthenticatedCreateAllowed);
+         }
+      });
+   }
+}
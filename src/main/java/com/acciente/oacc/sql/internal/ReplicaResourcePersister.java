@@ -0,0 +1,150 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.sql.internal.SQLReplicaPersisterSet.SnapshotUpdate;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.ResourcePersister;
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import com.acciente.oacc.sql.internal.persister.id.ResourceId;
+
+import java.util.List;
+
+class ReplicaResourcePersister extends ReplicaPersister implements ResourcePersister {
+   private final ResourcePersister sqlPersister;
+
+   ReplicaResourcePersister(SQLReplicaPersisterSet replicaPersisterSet, PersisterSet sqlPersisterSet) {
+      super(replicaPersisterSet);
+      this.sqlPersister = sqlPersisterSet.getResourcePersister();
+   }
+
+   private ResourcePersister getSnapshotPersister() {
+      return getSnapshotPersisterSet().getResourcePersister();
+   }
+
+   @Override
+   public void verifyResourceExists(SQLConnection connection,
+                                    Resource resource) {
+      getSnapshotPersister().verifyResourceExists(null, resource);
+   }
+
+   @Override
+   public Resource createResource(SQLConnection connection,
+                                  final Id<ResourceClassId> resourceClassId,
+                                  final Id<DomainId> resourceDomainId,
+                                  final String externalId) {
+      final Resource resource = sqlPersister.createResource(connection, resourceClassId, resourceDomainId, externalId);
+
+      // the snapshot has to use the id the database assigned to the new row
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            store.loadResource(resource.getId(),
+                               resourceClassId.getValue(),
+                               resourceDomainId.getValue(),
+                               resource.getExternalId());
+         }
+      });
+      return resource;
+   }
+
+   @Override
+   public Resource setExternalId(SQLConnection connection,
+                                 final Id<ResourceId> resourceId,
+                                 final String externalId) {
+      final Resource result = sqlPersister.setExternalId(connection, resourceId, externalId);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getResourcePersister().setExternalId(null, resourceId, externalId);
+         }
+      });
+      return result;
+   }
+
+   @Override
+   public void deleteResource(SQLConnection connection,
+                              final Resource resource) {
+      sqlPersister.deleteResource(connection, resource);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getResourcePersister().deleteResource(null, resource);
+         }
+      });
+   }
+
+   @Override
+   public void deleteResources(SQLConnection connection,
+                               final List<Resource> resources) {
+      sqlPersister.deleteResources(connection, resources);
+      applyUpdate(new SnapshotUpdate() {
+         @Override
+         public void applyTo(MemoryStore store, PersisterSet persisterSet) {
+            persisterSet.getResourcePersister().deleteResources(null, resources);
+         }
+      });
+   }
+
+   @Override
+   public Id<DomainId> getDomainIdByResource(SQLConnection connection,
+                                             Resource resource) {
+      return getSnapshotPersister().getDomainIdByResource(null, resource);
+   }
+
+   @Override
+   public Id<ResourceId> getNextResourceId(SQLConnection connection) {
+      // the next resource id comes from a database sequence
+      return sqlPersister.getNextResourceId(connection);
+   }
+
+   @Override
+   public boolean isDomainEmpty(SQLConnection connection,
+                                Id<DomainId> resourceDomainId) {
+      return getSnapshotPersister().isDomainEmpty(null, resourceDomainId);
+   }
+
+   @Override
+   public Resource resolveResourceByExternalId(SQLConnection connection,
+                                               String externalId) {
+      return getSnapshotPersister().resolveResourceByExternalId(null, externalId);
+   }
+
+   @Override
+   public Resource resolveResourceByResourceId(SQLConnection connection,
+                                               Resource resource) {
+      return getSnapshotPersister().resolveResourceByResourceId(null, resource);
+   }
+
+   @Override
+   public List<Resource> resolveResourcesByExternalId(SQLConnection connection,
+                                                      List<String> externalIds) {
+      return getSnapshotPersister().resolveResourcesByExternalId(null, externalIds);
+   }
+
+   @Override
+   public List<Resource> resolveResourcesByResourceId(SQLConnection connection,
+                                                      List<Resource> resources) {
+      return getSnapshotPersister().resolveResourcesByResourceId(null, resources);
+   }
+}
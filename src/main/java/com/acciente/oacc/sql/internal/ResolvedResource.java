@@ -0,0 +1,223 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A resource that was resolved by a persister, which carries the resource class and domain of the resource in
+ * addition to its resource id and external id.
+ * <p/>
+ * The access control context only trusts the carried resource class and domain of a resolved resource that was
+ * issued by its own {@link Issuer}, and only until the issuer revokes it, which happens when the resource is deleted
+ * or its external id is set. Any other resolved resource, such as one built by a caller or
+ * returned by a persister, is treated like any other resource and resolved again. A resolved resource is equal to
+ * any other resource with the same resource id and external id, so it can be used interchangeably with the resources
+ * that callers build. It is serialized as a plain resource, so a deserialized resource is never trusted.
+ */
+public final class ResolvedResource implements Resource, Serializable {
+   private static final long serialVersionUID = 2L;
+
+   private final long                      resourceId;
+   private final String                    externalId;
+   private final ResourceClassInternalInfo resourceClassInternalInfo;
+   private final long                      domainId;
+   private final Issuer                    issuer;
+   private final long                      issuedAt;
+
+   private ResolvedResource(long resourceId,
+                            String externalId,
+                            ResourceClassInternalInfo resourceClassInternalInfo,
+                            long domainId,
+                            Issuer issuer,
+                            long issuedAt) {
+      this.resourceId = resourceId;
+      this.externalId = externalId;
+      this.resourceClassInternalInfo = resourceClassInternalInfo;
+      this.domainId = domainId;
+      this.issuer = issuer;
+      this.issuedAt = issuedAt;
+   }
+
+   /**
+    * Returns a resolved resource that is not trusted by any access control context until it is issued by one.
+    */
+   public static ResolvedResource getInstance(long resourceId,
+                                              String externalId,
+                                              ResourceClassInternalInfo resourceClassInternalInfo,
+                                              Id<DomainId> domainId) {
+      return new ResolvedResource(resourceId, externalId, resourceClassInternalInfo, domainId.getValue(), null, 0);
+   }
+
+   @Override
+   public Long getId() {
+      return resourceId;
+   }
+
+   @Override
+   public String getExternalId() {
+      return externalId;
+   }
+
+   ResourceClassInternalInfo getResourceClassInternalInfo() {
+      return resourceClassInternalInfo;
+   }
+
+   Id<DomainId> getDomainId() {
+      return Id.from(domainId);
+   }
+
+   private Object writeReplace() {
+      return Resources.getInstance(resourceId, externalId);
+   }
+
+   @Override
+   public boolean equals(Object other) {
+      if (this == other) {
+         return true;
+      }
+      if (!(other instanceof Resource)) {
+         return false;
+      }
+
+      Resource otherResource = (Resource) other;
+
+      if (otherResource.getId() == null || resourceId != otherResource.getId()) {
+         return false;
+      }
+      return !(externalId != null ? !externalId.equals(otherResource.getExternalId()) : otherResource.getExternalId() != null);
+   }
+
+   @Override
+   public int hashCode() {
+      // must match the hash code of the other resource implementations
+      int result = (int) (resourceId ^ (resourceId >>> 32));
+      result = 31 * result + (externalId != null ? externalId.hashCode() : 0);
+      return result;
+   }
+
+   @Override
+   public String toString() {
+      if (externalId != null) {
+         return "{resourceId: " + String.valueOf(resourceId) + ", externalId: \""  + externalId + "\"}";
+      }
+
+      return "{resourceId: " + String.valueOf(resourceId) + "}";
+   }
+
+   /**
+    * Issues the resolved resources that an access control context trusts, i.e. a context only trusts a resolved
+    * resource if it was issued by the context's issuer, and the issuer has not revoked it since.
+    * <p/>
+    * Access control contexts that share a resource locator cache also share its issuer, so that a resource that is
+    * deleted through one of them is no longer trusted by any of them.
+    */
+   static final class Issuer {
+      // once this many resources were revoked one by one, all the resources issued so far are revoked instead, which
+      // bounds the revocations that have to be remembered
+      private static final int MAXIMUM_REVOCATION_COUNT = 4096;
+
+      private final    AtomicLong clock      = new AtomicLong();
+      private volatile Generation generation = new Generation(0);
+
+      /**
+       * Returns a copy of the specified resolved resource that this issuer trusts, or the specified resource if it is
+       * not a resolved resource.
+       */
+      Resource issue(Resource resource) {
+         if (!(resource instanceof ResolvedResource)) {
+            return resource;
+         }
+         final ResolvedResource resolvedResource = (ResolvedResource) resource;
+         if (__isTrusted(resolvedResource)) {
+            return resolvedResource;
+         }
+         return new ResolvedResource(resolvedResource.resourceId,
+                                     resolvedResource.externalId,
+                                     resolvedResource.resourceClassInternalInfo,
+                                     resolvedResource.domainId,
+                                     this,
+                                     clock.get());
+      }
+
+      /**
+       * Returns the specified resource as a resolved resource if it was issued by this issuer and not revoked since,
+       * or null otherwise.
+       */
+      ResolvedResource getIssued(Resource resource) {
+         if (resource instanceof ResolvedResource) {
+            final ResolvedResource resolvedResource = (ResolvedResource) resource;
+            if (__isTrusted(resolvedResource)) {
+               return resolvedResource;
+            }
+         }
+         return null;
+      }
+
+      /**
+       * Revokes the resolved resources with the specified resource id issued so far.
+       */
+      synchronized void revoke(long resourceId) {
+         if (generation.revokedAt.size() < MAXIMUM_REVOCATION_COUNT) {
+            generation.revokedAt.put(resourceId, clock.incrementAndGet());
+         }
+         else {
+            revokeAll();
+         }
+      }
+
+      /**
+       * Revokes all the resolved resources issued so far.
+       */
+      synchronized void revokeAll() {
+         generation = new Generation(clock.incrementAndGet());
+      }
+
+      private boolean __isTrusted(ResolvedResource resolvedResource) {
+         if (resolvedResource.issuer != this) {
+            return false;
+         }
+         final Generation currentGeneration = generation;
+         if (resolvedResource.issuedAt < currentGeneration.startedAt) {
+            return false;
+         }
+         final Long revokedAt = currentGeneration.revokedAt.get(resolvedResource.resourceId);
+         return revokedAt == null || resolvedResource.issuedAt >= revokedAt;
+      }
+
+      /**
+       * The resources revoked one by one since all resources were last revoked, with the time of their revocation.
+       */
+      private static final class Generation {
+         private final long                      startedAt;
+         private final ConcurrentMap<Long, Long> revokedAt = new ConcurrentHashMap<>();
+
+         private Generation(long startedAt) {
+            this.startedAt = startedAt;
+         }
+      }
+   }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, compressed set of resource ids, organized like a Roaring bitmap.
+ * <p/>
+ * The ids are partitioned into chunks by their upper 48 bits, and the lower 16 bits of the ids in each chunk are
+ * stored in a container that is either a sorted <code>char[]</code>, while the chunk holds at most
+ * {@value #MAX_ARRAY_CONTAINER_SIZE} ids, or a bitmap of 1024 words otherwise. Intersection and union therefore
+ * operate on whole chunks at a time, and never need to materialize the resources the ids refer to.
+ */
+final class ResourceBitmap {
+   static final ResourceBitmap EMPTY = new ResourceBitmap(new long[0], new Object[0], new int[0], 0);
+
+   private static final int MAX_ARRAY_CONTAINER_SIZE = 4096;
+   private static final int BITMAP_CONTAINER_WORDS   = 1024;
+   private static final int CHUNK_BITS               = 16;
+   private static final int LOW_BITS_MASK            = 0xFFFF;
+
+   // the upper bits of the ids in each chunk, in ascending order
+   private final long[]   chunkKeys;
+   // each container is either a sorted char[] of the lower bits, or a long[] bitmap of the lower bits
+   private final Object[] containers;
+   private final int[]    containerCardinalities;
+   private final int      cardinality;
+
+   private ResourceBitmap(long[] chunkKeys, Object[] containers, int[] containerCardinalities, int cardinality) {
+      this.chunkKeys = chunkKeys;
+      this.containers = containers;
+      this.containerCardinalities = containerCardinalities;
+      this.cardinality = cardinality;
+   }
+
+   static ResourceBitmap of(long[] resourceIds) {
+      if (resourceIds.length == 0) {
+         return EMPTY;
+      }
+
+      final long[] sortedResourceIds = resourceIds.clone();
+      Arrays.sort(sortedResourceIds);
+
+      final Builder builder = new Builder(sortedResourceIds.length);
+      final char[] lowBits = new char[Math.min(sortedResourceIds.length, BITMAP_CONTAINER_WORDS * 64)];
+      int index = 0;
+      while (index < sortedResourceIds.length) {
+         final long chunkKey = sortedResourceIds[index] >>> CHUNK_BITS;
+         int lowBitsCount = 0;
+         while (index < sortedResourceIds.length && sortedResourceIds[index] >>> CHUNK_BITS == chunkKey) {
+            final char low = (char) (sortedResourceIds[index] & LOW_BITS_MASK);
+            // skip duplicate ids
+            if (lowBitsCount == 0 || lowBits[lowBitsCount - 1] != low) {
+               lowBits[lowBitsCount++] = low;
+            }
+            index++;
+         }
+         builder.add(chunkKey, toContainer(lowBits, lowBitsCount), lowBitsCount);
+      }
+      return builder.build();
+   }
+
+   int cardinality() {
+      return cardinality;
+   }
+
+   boolean isEmpty() {
+      return cardinality == 0;
+   }
+
+   boolean contains(long resourceId) {
+      final int chunkIndex = Arrays.binarySearch(chunkKeys, resourceId >>> CHUNK_BITS);
+      if (chunkIndex < 0) {
+         return false;
+      }
+
+      final Object container = containers[chunkIndex];
+      final int low = (int) (resourceId & LOW_BITS_MASK);
+      if (container instanceof char[]) {
+         return Arrays.binarySearch((char[]) container, (char) low) >= 0;
+      }
+      return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+   }
+
+   ResourceBitmap and(ResourceBitmap other) {
+      if (isEmpty() || other.isEmpty()) {
+         return EMPTY;
+      }
+
+      final Builder builder = new Builder(Math.min(chunkKeys.length, other.chunkKeys.length));
+      int i = 0;
+      int j = 0;
+      while (i < chunkKeys.length && j < other.chunkKeys.length) {
+         if (chunkKeys[i] < other.chunkKeys[j]) {
+            i++;
+         }
+         else if (chunkKeys[i] > other.chunkKeys[j]) {
+            j++;
+         }
+         else {
+            builder.addIfNotEmpty(chunkKeys[i], and(containers[i], other.containers[j]));
+            i++;
+            j++;
+         }
+      }
+      return builder.build();
+   }
+
+   ResourceBitmap or(ResourceBitmap other) {
+      if (other.isEmpty()) {
+         return this;
+      }
+      if (isEmpty()) {
+         return other;
+      }
+
+      final Builder builder = new Builder(chunkKeys.length + other.chunkKeys.length);
+      int i = 0;
+      int j = 0;
+      while (i < chunkKeys.length || j < other.chunkKeys.length) {
+         if (j == other.chunkKeys.length || (i < chunkKeys.length && chunkKeys[i] < other.chunkKeys[j])) {
+            builder.add(chunkKeys[i], containers[i], containerCardinalities[i]);
+            i++;
+         }
+         else if (i == chunkKeys.length || chunkKeys[i] > other.chunkKeys[j]) {
+            builder.add(other.chunkKeys[j], other.containers[j], other.containerCardinalities[j]);
+            j++;
+         }
+         else {
+            builder.addIfNotEmpty(chunkKeys[i], or(containers[i], other.containers[j]));
+            i++;
+            j++;
+         }
+      }
+      return builder.build();
+   }
+
+   /**
+    * Returns the ids in this bitmap, in ascending order.
+    */
+   long[] toArray() {
+      final long[] resourceIds = new long[cardinality];
+      int count = 0;
+      for (int chunkIndex = 0; chunkIndex < chunkKeys.length; chunkIndex++) {
+         final long chunkBase = chunkKeys[chunkIndex] << CHUNK_BITS;
+         final Object container = containers[chunkIndex];
+         if (container instanceof char[]) {
+            for (char low : (char[]) container) {
+               resourceIds[count++] = chunkBase | low;
+            }
+         }
+         else {
+            final long[] words = (long[]) container;
+            for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+               long word = words[wordIndex];
+               while (word != 0) {
+                  resourceIds[count++] = chunkBase | (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+                  word &= word - 1;
+               }
+            }
+         }
+      }
+      return resourceIds;
+   }
+
+   // container helpers
+
+   private static Object toContainer(char[] lowBits, int count) {
+      if (count <= MAX_ARRAY_CONTAINER_SIZE) {
+         return Arrays.copyOf(lowBits, count);
+      }
+
+      final long[] words = new long[BITMAP_CONTAINER_WORDS];
+      for (int i = 0; i < count; i++) {
+         words[lowBits[i] >>> 6] |= 1L << lowBits[i];
+      }
+      return words;
+   }
+
+   private static Object toContainer(long[] words, int count) {
+      if (count > MAX_ARRAY_CONTAINER_SIZE) {
+         return words;
+      }
+
+      final char[] lowBits = new char[count];
+      int lowBitsCount = 0;
+      for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+         long word = words[wordIndex];
+         while (word != 0) {
+            lowBits[lowBitsCount++] = (char) ((wordIndex << 6) | Long.numberOfTrailingZeros(word));
+            word &= word - 1;
+         }
+      }
+      return lowBits;
+   }
+
+   private static int cardinalityOf(Object container) {
+      if (container instanceof char[]) {
+         return ((char[]) container).length;
+      }
+
+      int count = 0;
+      for (long word : (long[]) container) {
+         count += Long.bitCount(word);
+      }
+      return count;
+   }
+
+   private static Object and(Object container, Object otherContainer) {
+      if (container instanceof char[]) {
+         if (otherContainer instanceof char[]) {
+            return and((char[]) container, (char[]) otherContainer);
+         }
+         return and((char[]) container, (long[]) otherContainer);
+      }
+      if (otherContainer instanceof char[]) {
+         return and((char[]) otherContainer, (long[]) container);
+      }
+
+      final long[] words = (long[]) container;
+      final long[] otherWords = (long[]) otherContainer;
+      final long[] resultWords = new long[BITMAP_CONTAINER_WORDS];
+      int count = 0;
+      for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++) {
+         resultWords[i] = words[i] & otherWords[i];
+         count += Long.bitCount(resultWords[i]);
+      }
+      return toContainer(resultWords, count);
+   }
+
+   private static char[] and(char[] lowBits, char[] otherLowBits) {
+      final char[] result = new char[Math.min(lowBits.length, otherLowBits.length)];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+      while (i < lowBits.length && j < otherLowBits.length) {
+         if (lowBits[i] < otherLowBits[j]) {
+            i++;
+         }
+         else if (lowBits[i] > otherLowBits[j]) {
+            j++;
+         }
+         else {
+            result[count++] = lowBits[i];
+            i++;
+            j++;
+         }
+      }
+      return count == result.length ? result : Arrays.copyOf(result, count);
+   }
+
+   private static char[] and(char[] lowBits, long[] words) {
+      final char[] result = new char[lowBits.length];
+      int count = 0;
+      for (char low : lowBits) {
+         if ((words[low >>> 6] & (1L << low)) != 0) {
+            result[count++] = low;
+         }
+      }
+      return count == result.length ? result : Arrays.copyOf(result, count);
+   }
+
+   private static Object or(Object container, Object otherContainer) {
+      if (container instanceof char[] && otherContainer instanceof char[]) {
+         final char[] lowBits = (char[]) container;
+         final char[] otherLowBits = (char[]) otherContainer;
+         final char[] result = new char[lowBits.length + otherLowBits.length];
+         int count = 0;
+         int i = 0;
+         int j = 0;
+         while (i < lowBits.length || j < otherLowBits.length) {
+            if (j == otherLowBits.length || (i < lowBits.length && lowBits[i] < otherLowBits[j])) {
+               result[count++] = lowBits[i++];
+            }
+            else if (i == lowBits.length || lowBits[i] > otherLowBits[j]) {
+               result[count++] = otherLowBits[j++];
+            }
+            else {
+               result[count++] = lowBits[i++];
+               j++;
+            }
+         }
+         return toContainer(result, count);
+      }
+
+      final long[] resultWords = new long[BITMAP_CONTAINER_WORDS];
+      orInto(resultWords, container);
+      orInto(resultWords, otherContainer);
+      return resultWords;
+   }
+
+   private static void orInto(long[] words, Object container) {
+      if (container instanceof char[]) {
+         for (char low : (char[]) container) {
+            words[low >>> 6] |= 1L << low;
+         }
+      }
+      else {
+         final long[] containerWords = (long[]) container;
+         for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++) {
+            words[i] |= containerWords[i];
+         }
+      }
+   }
+
+   private static class Builder {
+      private long[]   chunkKeys;
+      private Object[] containers;
+      private int[]    containerCardinalities;
+      private int      chunkCount;
+      private int      cardinality;
+
+      Builder(int expectedChunkCount) {
+         final int capacity = Math.max(1, expectedChunkCount);
+         chunkKeys = new long[capacity];
+         containers = new Object[capacity];
+         containerCardinalities = new int[capacity];
+      }
+
+      void addIfNotEmpty(long chunkKey, Object container) {
+         final int containerCardinality = cardinalityOf(container);
+         if (containerCardinality > 0) {
+            add(chunkKey, container, containerCardinality);
+         }
+      }
+
+      void add(long chunkKey, Object container, int containerCardinality) {
+         if (chunkCount == chunkKeys.length) {
+            chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+            containers = Arrays.copyOf(containers, chunkCount * 2);
+            containerCardinalities = Arrays.copyOf(containerCardinalities, chunkCount * 2);
+         }
+         chunkKeys[chunkCount] = chunkKey;
+         containers[chunkCount] = container;
+         containerCardinalities[chunkCount] = containerCardinality;
+         chunkCount++;
+         cardinality += containerCardinality;
+      }
+
+      ResourceBitmap build() {
+         if (chunkCount == 0) {
+            return EMPTY;
+         }
+         return new ResourceBitmap(Arrays.copyOf(chunkKeys, chunkCount),
+                                   Arrays.copyOf(containers, chunkCount),
+                                   Arrays.copyOf(containerCardinalities, chunkCount),
+                                   cardinality);
+      }
+   }
+}
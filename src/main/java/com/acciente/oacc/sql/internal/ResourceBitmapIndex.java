@@ -0,0 +1,144 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.internal.persister.ResourceSet;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, per accessor, resource class, domain and permission, a compressed bitmap of the ids of the resources the
+ * accessor effectively has the permission to, so that queries for resources by several permissions can be answered
+ * by intersecting bitmaps instead of querying and intersecting fully materialized sets of resources.
+ * <p/>
+ * The bitmaps are loaded lazily, on the first query that needs them, and a bounded number of them is kept, evicting
+ * the least recently used one when the index is full. Every completed modification of the OACC tables invalidates all
+ * bitmaps, because a single grant or revocation can change the effective permissions of any accessor that inherits
+ * from the affected resource. Each bitmap carries the external ids of the resources it was loaded with, so that
+ * discarding a bitmap also discards the external ids that only it referenced.
+ */
+public class ResourceBitmapIndex {
+   private final AtomicLong                     generation;
+   private final Map<List<?>, IndexedResources> entries;
+
+   public ResourceBitmapIndex(final int maximumSize) {
+      generation = new AtomicLong();
+      entries = new LinkedHashMap<List<?>, IndexedResources>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<List<?>, IndexedResources> eldest) {
+            return size() > maximumSize;
+         }
+      };
+   }
+
+   public void invalidate() {
+      // entries are tagged with the generation they were loaded in, so clearing is only needed to release memory
+      generation.incrementAndGet();
+      synchronized (entries) {
+         entries.clear();
+      }
+   }
+
+   /**
+    * Returns the resources that the accessor has the specified permission to, loading them first if necessary.
+    *
+    * @param accessorResourceId the id of the accessor resource
+    * @param resourceClassId    the id of the resource class of the accessible resources
+    * @param domainId           the id of the domain the accessible resources are restricted to, or null for all domains
+    * @param resourcePermission the permission, or null for the resources that are accessible via super-user permission
+    * @param loader             the loader of the accessible resources, on a miss
+    */
+   IndexedResources getResources(long accessorResourceId,
+                                 long resourceClassId,
+                                 Long domainId,
+                                 ResourcePermission resourcePermission,
+                                 Loader loader) {
+      final List<?> key = Arrays.asList(accessorResourceId, resourceClassId, domainId, resourcePermission);
+      final long currentGeneration = generation.get();
+
+      final IndexedResources indexedResources;
+      synchronized (entries) {
+         indexedResources = entries.get(key);
+      }
+      if (indexedResources != null && indexedResources.generation == currentGeneration) {
+         return indexedResources;
+      }
+
+      final Set<Resource> resources = loader.load();
+      final long[] resourceIds = new long[resources.size()];
+      final LongObjectHashMap<String> externalIds = new LongObjectHashMap<>();
+      int count = 0;
+      for (Resource resource : resources) {
+         resourceIds[count++] = resource.getId();
+         if (resource.getExternalId() != null) {
+            externalIds.put(resource.getId(), resource.getExternalId());
+         }
+      }
+
+      final IndexedResources loadedResources
+            = new IndexedResources(currentGeneration, ResourceBitmap.of(resourceIds), externalIds);
+      synchronized (entries) {
+         entries.put(key, loadedResources);
+      }
+      return loadedResources;
+   }
+
+   /**
+    * Materializes the specified resource ids, looking up their external ids in the indexed resources they were
+    * computed from.
+    */
+   static Set<Resource> toResources(ResourceBitmap resourceIds, IndexedResources... sources) {
+      final ResourceSet resources = new ResourceSet(resourceIds.cardinality());
+      for (long resourceId : resourceIds.toArray()) {
+         String externalId = null;
+         for (int i = 0; externalId == null && i < sources.length; i++) {
+            externalId = sources[i].externalIds.get(resourceId);
+         }
+         resources.add(resourceId, externalId);
+      }
+      return resources;
+   }
+
+   interface Loader {
+      Set<Resource> load();
+   }
+
+   static class IndexedResources {
+      private final long                      generation;
+      private final ResourceBitmap            resourceIds;
+      private final LongObjectHashMap<String> externalIds;
+
+      private IndexedResources(long generation, ResourceBitmap resourceIds, LongObjectHashMap<String> externalIds) {
+         this.generation = generation;
+         this.resourceIds = resourceIds;
+         this.externalIds = externalIds;
+      }
+
+      ResourceBitmap getResourceIds() {
+         return resourceIds;
+      }
+   }
+}
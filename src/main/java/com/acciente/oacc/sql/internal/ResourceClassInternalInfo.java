@@ -20,7 +20,11 @@ package com.acciente.oacc.sql.internal;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
-public class ResourceClassInternalInfo {
+import java.io.Serializable;
+
+public class ResourceClassInternalInfo implements Serializable {
+   private static final long serialVersionUID = 1L;
+
    private final long    resourceClassId;
    private final String  resourceClassName;
    private final boolean authenticatable;
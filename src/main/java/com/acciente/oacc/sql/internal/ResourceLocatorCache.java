@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a bounded number of resolved resources, with their resource ids and external ids, so that resolving a
+ * resource that was recently resolved does not require a query.
+ * <p/>
+ * Only resources that were found are kept, and the least recently used resource is evicted when the cache is full.
+ * Because an external id can only be set once, the mapping of a resource only changes when its external id is set
+ * or when it is deleted, and only then does the resource need to be removed from the cache.
+ */
+public class ResourceLocatorCache {
+   private final Map<Long, Resource>     resourcesById;
+   private final Map<String, Long>       resourceIdsByExternalId;
+   private final ResolvedResource.Issuer issuer;
+
+   public ResourceLocatorCache(final int maximumSize) {
+      resourceIdsByExternalId = new HashMap<>();
+      issuer = new ResolvedResource.Issuer();
+      resourcesById = new LinkedHashMap<Long, Resource>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Long, Resource> eldest) {
+            if (size() > maximumSize) {
+               if (eldest.getValue().getExternalId() != null) {
+                  resourceIdsByExternalId.remove(eldest.getValue().getExternalId());
+               }
+               return true;
+            }
+            return false;
+         }
+      };
+   }
+
+   public synchronized void invalidate() {
+      resourcesById.clear();
+      resourceIdsByExternalId.clear();
+      // the resources may have been modified by other means, so the resources issued so far are no longer trusted
+      issuer.revokeAll();
+   }
+
+   /**
+    * Returns the issuer of the resolved resources trusted by the access control contexts that share this cache.
+    */
+   ResolvedResource.Issuer getIssuer() {
+      return issuer;
+   }
+
+   /**
+    * Returns the cached resolved resource that matches the resource id and/or external id of the specified
+    * resource, or null if there is none.
+    */
+   synchronized Resource get(Resource resource) {
+      final Long resourceId = resource.getId() != null
+                              ? resource.getId()
+                              : resourceIdsByExternalId.get(resource.getExternalId());
+      if (resourceId == null) {
+         return null;
+      }
+
+      final Resource resolvedResource = resourcesById.get(resourceId);
+      if (resolvedResource == null
+            || (resource.getExternalId() != null && !resource.getExternalId().equals(resolvedResource.getExternalId()))) {
+         // leave a mismatch of resource id and external id to the caller to report
+         return null;
+      }
+      return resolvedResource;
+   }
+
+   synchronized void put(Resource resolvedResource) {
+      final Resource previousResource = resourcesById.put(resolvedResource.getId(), resolvedResource);
+      if (previousResource != null && previousResource.getExternalId() != null) {
+         resourceIdsByExternalId.remove(previousResource.getExternalId());
+      }
+      if (resolvedResource.getExternalId() != null) {
+         resourceIdsByExternalId.put(resolvedResource.getExternalId(), resolvedResource.getId());
+      }
+   }
+
+   synchronized void remove(long resourceId) {
+      final Resource resolvedResource = resourcesById.remove(resourceId);
+      if (resolvedResource != null && resolvedResource.getExternalId() != null) {
+         resourceIdsByExternalId.remove(resolvedResource.getExternalId());
+      }
+   }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of the permissions of a single resource class, stored as two bit masks over the positions assigned by a
+ * {@link ResourcePermissionIndex}: one with the permissions that are held, and one with the permissions that are
+ * held with the grant option.
+ * <p/>
+ * Because a permission held with the grant option implies the same permission without it, a permission is never
+ * held twice, which means that the set is always collapsed. Union, containment and the grantable check therefore
+ * take a constant number of word operations per permission, instead of a scan of the set.
+ * <p/>
+ * Instances are not thread-safe, and are only converted to a <code>Set&lt;ResourcePermission&gt;</code>
+ * when returned from the API.
+ */
+class ResourcePermissionBits {
+   private static final int    BITS_PER_WORD = 64;
+   private static final long[] NO_WORDS      = new long[0];
+
+   private final ResourcePermissionIndex index;
+   private       long[]                  permissionWords;
+   private       long[]                  grantOptionWords;
+
+   ResourcePermissionBits(ResourcePermissionIndex index) {
+      this.index = index;
+      this.permissionWords = NO_WORDS;
+      this.grantOptionWords = NO_WORDS;
+   }
+
+   void add(ResourcePermission resourcePermission) {
+      final int bit = index.getOrAssignBit(resourcePermission.getPermissionName());
+      final int wordIndex = bit / BITS_PER_WORD;
+      final long mask = 1L << bit;
+
+      if (wordIndex >= permissionWords.length) {
+         final int wordCount = Math.max(wordIndex, index.size() / BITS_PER_WORD) + 1;
+         permissionWords = Arrays.copyOf(permissionWords, wordCount);
+         grantOptionWords = Arrays.copyOf(grantOptionWords, wordCount);
+      }
+
+      permissionWords[wordIndex] |= mask;
+      if (resourcePermission.isWithGrantOption()) {
+         grantOptionWords[wordIndex] |= mask;
+      }
+   }
+
+   void addAll(Collection<ResourcePermission> resourcePermissions) {
+      for (ResourcePermission resourcePermission : resourcePermissions) {
+         add(resourcePermission);
+      }
+   }
+
+   boolean isEmpty() {
+      for (long permissionWord : permissionWords) {
+         if (permissionWord != 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Checks if the specified permission is either in this set, or is grantable from a permission in this set.
+    */
+   boolean isPermissible(ResourcePermission resourcePermission) {
+      return resourcePermission.isWithGrantOption()
+             ? isGrantable(resourcePermission)
+             : isSet(permissionWords, index.getBit(resourcePermission.getPermissionName()));
+   }
+
+   /**
+    * Checks if this set holds the specified permission with the grant option, regardless of whether the specified
+    * permission itself has the grant option.
+    */
+   boolean isGrantable(ResourcePermission resourcePermission) {
+      return isSet(grantOptionWords, index.getBit(resourcePermission.getPermissionName()));
+   }
+
+   /**
+    * Returns the specified permissions that are not grantable from this set.
+    */
+   Set<ResourcePermission> getNonGrantable(Set<ResourcePermission> resourcePermissions) {
+      final Set<ResourcePermission> nonGrantablePermissions = new HashSet<>(resourcePermissions.size());
+
+      for (ResourcePermission resourcePermission : resourcePermissions) {
+         if (!isGrantable(resourcePermission)) {
+            nonGrantablePermissions.add(resourcePermission);
+         }
+      }
+
+      return nonGrantablePermissions;
+   }
+
+   Set<ResourcePermission> toSet() {
+      final Set<ResourcePermission> resourcePermissions = new HashSet<>();
+
+      for (int wordIndex = 0; wordIndex < permissionWords.length; wordIndex++) {
+         long permissionWord = permissionWords[wordIndex];
+         while (permissionWord != 0) {
+            final int bit = wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(permissionWord);
+            final String permissionName = index.getPermissionName(bit);
+
+            if (isSet(grantOptionWords, bit)) {
+               resourcePermissions.add(ResourcePermissions.getInstanceWithGrantOption(permissionName));
+            }
+            else {
+               resourcePermissions.add(ResourcePermissions.getInstance(permissionName));
+            }
+
+            // clear the lowest set bit
+            permissionWord &= permissionWord - 1;
+         }
+      }
+
+      return resourcePermissions;
+   }
+
+   private static boolean isSet(long[] words, int bit) {
+      if (bit < 0) {
+         return false;
+      }
+
+      final int wordIndex = bit / BITS_PER_WORD;
+      return wordIndex < words.length && (words[wordIndex] & (1L << bit)) != 0;
+   }
+}
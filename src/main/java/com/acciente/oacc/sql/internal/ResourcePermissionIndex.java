@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.ResourcePermissions;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns a bit position to each permission name of a single resource class, for use by
+ * {@link ResourcePermissionBits}.
+ * <p/>
+ * The system permissions occupy the lowest positions. The resource class permissions are assigned the next free
+ * position the first time they are encountered, and never change position afterwards, so that the index does not
+ * need to be invalidated when a permission is added to the resource class.
+ */
+class ResourcePermissionIndex implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final    ConcurrentMap<String, Integer> bitsByPermissionName;
+   private volatile String[]                       permissionNamesByBit;
+
+   ResourcePermissionIndex() {
+      final List<String> sysPermissionNames = ResourcePermissions.getSysPermissionNames();
+
+      bitsByPermissionName = new ConcurrentHashMap<>();
+      permissionNamesByBit = new String[0];
+      for (String sysPermissionName : sysPermissionNames) {
+         getOrAssignBit(sysPermissionName);
+      }
+   }
+
+   /**
+    * Returns the bit position of the specified permission name, or -1 if none was assigned yet.
+    */
+   int getBit(String permissionName) {
+      final Integer bit = bitsByPermissionName.get(permissionName);
+      return bit == null ? -1 : bit;
+   }
+
+   int getOrAssignBit(String permissionName) {
+      final Integer bit = bitsByPermissionName.get(permissionName);
+      if (bit != null) {
+         return bit;
+      }
+
+      synchronized (this) {
+         final Integer assignedBit = bitsByPermissionName.get(permissionName);
+         if (assignedBit != null) {
+            return assignedBit;
+         }
+
+         final int newBit = permissionNamesByBit.length;
+         final String[] newPermissionNamesByBit = Arrays.copyOf(permissionNamesByBit, newBit + 1);
+         newPermissionNamesByBit[newBit] = permissionName;
+
+         // publish the name before the bit, so that a reader that finds the bit also finds its name
+         permissionNamesByBit = newPermissionNamesByBit;
+         bitsByPermissionName.put(permissionName, newBit);
+         return newBit;
+      }
+   }
+
+   String getPermissionName(int bit) {
+      return permissionNamesByBit[bit];
+   }
+
+   int size() {
+      return permissionNamesByBit.length;
+   }
+}
@@ -35,7 +35,11 @@ import com.acciente.oacc.ResourcePermission;
 import com.acciente.oacc.ResourcePermissions;
 import com.acciente.oacc.Resources;
 import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
+import com.acciente.oacc.sql.SQLAccessControlContextOptions;
 import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.SQLReadCoalescer;
 import com.acciente.oacc.sql.internal.persister.DomainPersister;
 import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionPostCreateSysPersister;
 import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionSysPersister;
@@ -47,35 +51,13 @@ import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPos
 import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionSysPersister;
 import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionPersister;
 import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveDomainPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantDomainCreatePermissionPostCreateSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantDomainCreatePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantDomainPermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantGlobalResourcePermissionPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantGlobalResourcePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourceCreatePermissionPostCreatePersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourceCreatePermissionPostCreateSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourceCreatePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourcePermissionPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveGrantResourcePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.NonRecursiveResourcePersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveDomainPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantDomainCreatePermissionPostCreateSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantDomainCreatePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantDomainPermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantGlobalResourcePermissionPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantGlobalResourcePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourceCreatePermissionPostCreatePersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourceCreatePermissionPostCreateSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourceCreatePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourcePermissionPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveGrantResourcePermissionSysPersister;
-import com.acciente.oacc.sql.internal.persister.RecursiveResourcePersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
 import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
 import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
 import com.acciente.oacc.sql.internal.persister.ResourcePersister;
+import com.acciente.oacc.sql.internal.persister.ResourceSet;
 import com.acciente.oacc.sql.internal.persister.SQLConnection;
-import com.acciente.oacc.sql.internal.persister.SQLStrings;
+import com.acciente.oacc.sql.internal.persister.SQLPersisterSet;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
@@ -86,25 +68,46 @@ import javax.sql.DataSource;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 
 @SuppressWarnings({"UnusedAssignment", "ThrowFromFinallyBlock"})
 public class SQLAccessControlContext implements AccessControlContext, Serializable {
    private static final long serialVersionUID = 1L;
 
    // services
-   private transient DataSource dataSource;
-   private transient Connection connection;
+   private transient DataSource              dataSource;
+   private transient Connection              connection;
+   private transient ExecutorService         queryExecutorService;
+   private transient SQLReadCoalescer        readCoalescer;
+   private transient ResourceBitmapIndex     resourceIndex;
+   private transient ResourceLocatorCache    resourceLocatorCache;
+   private transient LongHashSet             invalidatedResourceLocationIds;
+   private transient SuperUserDomainCache    superUserDomainCache;
+   private transient boolean                 superUserDomainsInvalidated;
+   private transient ResolvedResource.Issuer resolvedResourceIssuer;
 
    // state
    private AuthenticationProvider authenticationProvider;
    private boolean                hasDefaultAuthenticationProvider;
+   private boolean                isConnectionless;
+   private boolean                isConnectionObtainedOnDemand;
+
+   // creates the exceptions for denied calls, with or without a stack trace depending on the context's options
+   private NotAuthorizedException.Factory notAuthorizedExceptionFactory;
 
    // The resource that authenticated in this session with a call to one of the authenticate() methods
    private Resource authenticatedResource;
@@ -171,6 +174,15 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private final GrantGlobalResourcePermissionSysPersister           grantGlobalResourcePermissionSysPersister;
    private final GrantResourcePermissionPersister                    grantResourcePermissionPersister;
    private final GrantGlobalResourcePermissionPersister              grantGlobalResourcePermissionPersister;
+   // true if the grant persisters can add or upgrade a direct grant in a single operation, without a prior read
+   private final boolean                                             isUpsertEnabled;
+
+   // the bit positions of the permissions of each resource class, by resource class id
+   private final ConcurrentMap<Long, ResourcePermissionIndex> resourcePermissionIndexes = new ConcurrentHashMap<>();
+
+   // the permission names found to be defined for each resource class, by resource class id; since permissions
+   // cannot be removed from a resource class, a name only needs to be looked up once
+   private final ConcurrentMap<Long, Set<String>> definedResourcePermissionNames = new ConcurrentHashMap<>();
 
    public static AccessControlContext getAccessControlContext(Connection connection,
                                                               String schemaName,
@@ -184,8 +196,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                               String schemaName,
                                                               SQLProfile sqlProfile,
                                                               PasswordEncryptor passwordEncryptor) {
+      return getAccessControlContext(dataSource,
+                                     schemaName,
+                                     sqlProfile,
+                                     passwordEncryptor,
+                                     SQLAccessControlContextOptions.newInstance());
+   }
+
+   public static AccessControlContext getAccessControlContext(DataSource dataSource,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              PasswordEncryptor passwordEncryptor,
+                                                              SQLAccessControlContextOptions options) {
       __assertDataSourceSpecified(dataSource);
-      return new SQLAccessControlContext(dataSource, schemaName, sqlProfile, passwordEncryptor);
+      __assertOptionsSpecified(options);
+      return new SQLAccessControlContext(dataSource, schemaName, sqlProfile, passwordEncryptor, options);
    }
 
    public static AccessControlContext getAccessControlContext(Connection connection,
@@ -200,8 +225,58 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                               String schemaName,
                                                               SQLProfile sqlProfile,
                                                               AuthenticationProvider authenticationProvider) {
+      return getAccessControlContext(dataSource,
+                                     schemaName,
+                                     sqlProfile,
+                                     authenticationProvider,
+                                     SQLAccessControlContextOptions.newInstance());
+   }
+
+   public static AccessControlContext getAccessControlContext(DataSource dataSource,
+                                                              String schemaName,
+                                                              SQLProfile sqlProfile,
+                                                              AuthenticationProvider authenticationProvider,
+                                                              SQLAccessControlContextOptions options) {
+      __assertDataSourceSpecified(dataSource);
+      __assertOptionsSpecified(options);
+      return new SQLAccessControlContext(dataSource, schemaName, sqlProfile, authenticationProvider, options);
+   }
+
+   public static AccessControlContext getAccessControlContext(PersisterSet persisterSet,
+                                                              AuthenticationProvider authenticationProvider) {
+      __assertPersisterSetSpecified(persisterSet);
+      __assertAuthenticationProviderSpecified(authenticationProvider);
+      return new SQLAccessControlContext(persisterSet, authenticationProvider);
+   }
+
+   public static AccessControlContext getAccessControlContext(PersisterSet persisterSet,
+                                                              DataSource dataSource,
+                                                              String schemaName,
+                                                              PasswordEncryptor passwordEncryptor) {
+      __assertPersisterSetSpecified(persisterSet);
+      __assertDataSourceSpecified(dataSource);
+      return new SQLAccessControlContext(persisterSet,
+                                         dataSource,
+                                         new SQLPasswordAuthenticationProvider(dataSource,
+                                                                               schemaName,
+                                                                               passwordEncryptor));
+   }
+
+   public static AccessControlContext getAccessControlContext(PersisterSet persisterSet,
+                                                              DataSource dataSource,
+                                                              AuthenticationProvider authenticationProvider) {
+      __assertPersisterSetSpecified(persisterSet);
+      __assertDataSourceSpecified(dataSource);
+      __assertAuthenticationProviderSpecified(authenticationProvider);
+      return new SQLAccessControlContext(persisterSet, dataSource, authenticationProvider);
+   }
+
+   public static AuthenticationProvider getPasswordAuthenticationProvider(DataSource dataSource,
+                                                                         String schemaName,
+                                                                         PasswordEncryptor passwordEncryptor) {
       __assertDataSourceSpecified(dataSource);
-      return new SQLAccessControlContext(dataSource, schemaName, sqlProfile, authenticationProvider);
+      SchemaNameValidator.assertValid(schemaName);
+      return new SQLPasswordAuthenticationProvider(dataSource, schemaName, passwordEncryptor);
    }
 
    public static void postDeserialize(AccessControlContext accessControlContext, Connection connection) {
@@ -243,9 +318,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private SQLAccessControlContext(DataSource dataSource,
                                    String schemaName,
                                    SQLProfile sqlProfile,
-                                   PasswordEncryptor passwordEncryptor) {
+                                   PasswordEncryptor passwordEncryptor,
+                                   SQLAccessControlContextOptions options) {
       this(schemaName, sqlProfile);
       this.dataSource = dataSource;
+      __initOptionalServices(options);
       // use the built-in authentication provider when no custom implementation is provided
       this.authenticationProvider
             = new SQLPasswordAuthenticationProvider(dataSource, schemaName, passwordEncryptor);
@@ -255,82 +332,79 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private SQLAccessControlContext(DataSource dataSource,
                                    String schemaName,
                                    SQLProfile sqlProfile,
-                                   AuthenticationProvider authenticationProvider) {
+                                   AuthenticationProvider authenticationProvider,
+                                   SQLAccessControlContextOptions options) {
       this(schemaName, sqlProfile);
       this.dataSource = dataSource;
+      __initOptionalServices(options);
+      this.authenticationProvider = authenticationProvider;
+      this.hasDefaultAuthenticationProvider = false;
+   }
+
+   private SQLAccessControlContext(PersisterSet persisterSet,
+                                   AuthenticationProvider authenticationProvider) {
+      this(persisterSet);
+      // the persisters of a persister set manage their own storage, so we never need a connection
+      this.isConnectionless = true;
+      this.authenticationProvider = authenticationProvider;
+      this.hasDefaultAuthenticationProvider = false;
+   }
+
+   private SQLAccessControlContext(PersisterSet persisterSet,
+                                   DataSource dataSource,
+                                   AuthenticationProvider authenticationProvider) {
+      this(persisterSet);
+      // the persisters of the persister set apply modifications to the database, on the connection we pass to them
+      this.dataSource = dataSource;
+      this.isConnectionObtainedOnDemand = true;
       this.authenticationProvider = authenticationProvider;
       this.hasDefaultAuthenticationProvider = false;
    }
 
    private SQLAccessControlContext(String schemaName,
                                    SQLProfile sqlProfile) {
-      SchemaNameValidator.assertValid(schemaName);
+      this(__getSQLPersisterSet(schemaName, sqlProfile));
+   }
 
-      // generate all the SQLs the persisters need based on the database dialect
-      SQLStrings sqlStrings = SQLStrings.getSQLStrings(schemaName, sqlProfile);
-
-      // setup persisters
-      resourceClassPersister
-            = new ResourceClassPersister(sqlProfile, sqlStrings);
-      resourceClassPermissionPersister
-            = new ResourceClassPermissionPersister(sqlProfile, sqlStrings);
-
-      if (sqlProfile.isRecursiveCTEEnabled()) {
-         grantDomainCreatePermissionSysPersister
-               = new RecursiveGrantDomainCreatePermissionSysPersister(sqlProfile, sqlStrings);
-         grantDomainCreatePermissionPostCreateSysPersister
-               = new RecursiveGrantDomainCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
-         grantDomainPermissionSysPersister
-               = new RecursiveGrantDomainPermissionSysPersister(sqlProfile, sqlStrings);
-         domainPersister
-               = new RecursiveDomainPersister(sqlProfile, sqlStrings);
-         resourcePersister
-               = new RecursiveResourcePersister(sqlProfile, sqlStrings);
-         grantResourceCreatePermissionSysPersister
-               = new RecursiveGrantResourceCreatePermissionSysPersister(sqlProfile, sqlStrings);
-         grantResourceCreatePermissionPostCreateSysPersister
-               = new RecursiveGrantResourceCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
-         grantResourceCreatePermissionPostCreatePersister
-               = new RecursiveGrantResourceCreatePermissionPostCreatePersister(sqlProfile, sqlStrings);
-         grantResourcePermissionSysPersister
-               = new RecursiveGrantResourcePermissionSysPersister(sqlProfile, sqlStrings);
-         grantGlobalResourcePermissionSysPersister
-               = new RecursiveGrantGlobalResourcePermissionSysPersister(sqlProfile, sqlStrings);
-         grantResourcePermissionPersister
-               = new RecursiveGrantResourcePermissionPersister(sqlProfile, sqlStrings);
-         grantGlobalResourcePermissionPersister
-               = new RecursiveGrantGlobalResourcePermissionPersister(sqlProfile, sqlStrings);
-      }
-      else {
-         grantDomainCreatePermissionSysPersister
-               = new NonRecursiveGrantDomainCreatePermissionSysPersister(sqlProfile, sqlStrings);
-         grantDomainCreatePermissionPostCreateSysPersister
-               = new NonRecursiveGrantDomainCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
-         grantDomainPermissionSysPersister
-               = new NonRecursiveGrantDomainPermissionSysPersister(sqlProfile, sqlStrings);
-         domainPersister
-               = new NonRecursiveDomainPersister(sqlProfile, sqlStrings);
-         resourcePersister
-               = new NonRecursiveResourcePersister(sqlProfile, sqlStrings);
-         grantResourceCreatePermissionSysPersister
-               = new NonRecursiveGrantResourceCreatePermissionSysPersister(sqlProfile, sqlStrings);
-         grantResourceCreatePermissionPostCreateSysPersister
-               = new NonRecursiveGrantResourceCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
-         grantResourceCreatePermissionPostCreatePersister
-               = new NonRecursiveGrantResourceCreatePermissionPostCreatePersister(sqlProfile, sqlStrings);
-         grantResourcePermissionSysPersister
-               = new NonRecursiveGrantResourcePermissionSysPersister(sqlProfile, sqlStrings);
-         grantGlobalResourcePermissionSysPersister
-               = new NonRecursiveGrantGlobalResourcePermissionSysPersister(sqlProfile, sqlStrings);
-         grantResourcePermissionPersister
-               = new NonRecursiveGrantResourcePermissionPersister(sqlProfile, sqlStrings);
-         grantGlobalResourcePermissionPersister
-               = new NonRecursiveGrantGlobalResourcePermissionPersister(sqlProfile, sqlStrings);
-      }
+   private SQLAccessControlContext(PersisterSet persisterSet) {
+      resourceClassPersister = persisterSet.getResourceClassPersister();
+      resourceClassPermissionPersister = persisterSet.getResourceClassPermissionPersister();
+      domainPersister = persisterSet.getDomainPersister();
+      grantDomainCreatePermissionSysPersister = persisterSet.getGrantDomainCreatePermissionSysPersister();
+      grantDomainCreatePermissionPostCreateSysPersister
+            = persisterSet.getGrantDomainCreatePermissionPostCreateSysPersister();
+      grantDomainPermissionSysPersister = persisterSet.getGrantDomainPermissionSysPersister();
+      resourcePersister = persisterSet.getResourcePersister();
+      grantResourceCreatePermissionSysPersister = persisterSet.getGrantResourceCreatePermissionSysPersister();
+      grantResourceCreatePermissionPostCreateSysPersister
+            = persisterSet.getGrantResourceCreatePermissionPostCreateSysPersister();
+      grantResourceCreatePermissionPostCreatePersister
+            = persisterSet.getGrantResourceCreatePermissionPostCreatePersister();
+      grantResourcePermissionSysPersister = persisterSet.getGrantResourcePermissionSysPersister();
+      grantGlobalResourcePermissionSysPersister = persisterSet.getGrantGlobalResourcePermissionSysPersister();
+      grantResourcePermissionPersister = persisterSet.getGrantResourcePermissionPersister();
+      grantGlobalResourcePermissionPersister = persisterSet.getGrantGlobalResourcePermissionPersister();
+      isUpsertEnabled = persisterSet.isUpsertEnabled();
+      notAuthorizedExceptionFactory = NotAuthorizedException.getFactory(true);
+   }
+
+   private void __initOptionalServices(SQLAccessControlContextOptions options) {
+      this.queryExecutorService = options.getQueryExecutorService();
+      this.readCoalescer = options.getReadCoalescer();
+      this.resourceIndex = options.getResourceIndex();
+      this.resourceLocatorCache = options.getResourceLocatorCache();
+      this.superUserDomainCache = options.getSuperUserDomainCache();
+      this.notAuthorizedExceptionFactory = NotAuthorizedException.getFactory(options.isStackTraceOnDenialEnabled());
+   }
+
+   private static PersisterSet __getSQLPersisterSet(String schemaName,
+                                                    SQLProfile sqlProfile) {
+      SchemaNameValidator.assertValid(schemaName);
+      return new SQLPersisterSet(schemaName, sqlProfile);
    }
 
    private void __postDeserialize(DataSource dataSource) {
-      if (this.dataSource != null || this.connection != null) {
+      if (this.dataSource != null || this.connection != null || isConnectionless) {
          throw new IllegalStateException("Cannot re-initialize an already initialized SQLAccessControlContext");
       }
       this.dataSource = dataSource;
@@ -341,7 +415,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private void __postDeserialize(Connection connection) {
-      if (this.dataSource != null || this.connection != null) {
+      if (this.dataSource != null || this.connection != null || isConnectionless) {
          throw new IllegalStateException("Cannot re-initialize an already initialized SQLAccessControlContext");
       }
       this.dataSource = null;
@@ -410,7 +484,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          resource = __resolveResource(connection, resource);
 
          final ResourceClassInternalInfo resourceClassInternalInfo
-               = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+               = __getResourceClassInternalInfoByResource(connection, resource);
 
          // complain if the resource is not marked as supporting authentication
          if (!resourceClassInternalInfo.isAuthenticatable()) {
@@ -476,7 +550,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private void __assertImpersonatePermission(SQLConnection connection, Resource resource) {
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+            = __getResourceClassInternalInfoByResource(connection, resource);
 
       // complain if the resource is not of an authenticatable resource-class
       if (!resourceClassInternalInfo.isAuthenticatable()) {
@@ -488,11 +562,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       boolean impersonatePermissionOK = false;
 
       // first check direct permissions
-      final Set<ResourcePermission>
+      final ResourcePermissionBits
             resourcePermissions = __getEffectiveResourcePermissions(connection, authenticatedResource, resource);
 
-      if (resourcePermissions.contains(ResourcePermission_IMPERSONATE)
-            || resourcePermissions.contains(ResourcePermission_IMPERSONATE_GRANT)) {
+      if (resourcePermissions.isPermissible(ResourcePermission_IMPERSONATE)) {
          impersonatePermissionOK = true;
       }
 
@@ -500,14 +573,13 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          // next check global direct permissions
          final String
                domainName = domainPersister.getResourceDomainNameByResourceId(connection, resource);
-         final Set<ResourcePermission>
+         final ResourcePermissionBits
                globalResourcePermissions = __getEffectiveGlobalResourcePermissions(connection,
                                                                                    authenticatedResource,
                                                                                    resourceClassInternalInfo.getResourceClassName(),
                                                                                    domainName);
 
-         if (globalResourcePermissions.contains(ResourcePermission_IMPERSONATE)
-               || globalResourcePermissions.contains(ResourcePermission_IMPERSONATE_GRANT)) {
+         if (globalResourcePermissions.isPermissible(ResourcePermission_IMPERSONATE)) {
             impersonatePermissionOK = true;
          }
       }
@@ -520,7 +592,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
 
       if (!impersonatePermissionOK) {
-         throw NotAuthorizedException.newInstanceForActionOnResource(authenticatedResource, "impersonate", resource);
+         throw notAuthorizedExceptionFactory.newInstanceForActionOnResource(authenticatedResource,
+                                                                            "impersonate",
+                                                                            resource);
       }
    }
 
@@ -550,7 +624,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          connection = __getConnection();
 
          resource = __resolveResource(connection, resource);
-         resourceClassInfo = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+         resourceClassInfo = __getResourceClassInternalInfoByResource(connection, resource);
 
          if (!resourceClassInfo.isAuthenticatable()) {
             throw new IllegalArgumentException("Calling setCredentials for an unauthenticatable resource is not valid");
@@ -586,24 +660,22 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // first check direct permissions
       boolean hasResetCredentialsPermission = false;
 
-      final Set<ResourcePermission>
+      final ResourcePermissionBits
             resourcePermissions = __getEffectiveResourcePermissions(connection, authenticatedResource, resource);
 
-      if (resourcePermissions.contains(ResourcePermission_RESET_CREDENTIALS)
-            || resourcePermissions.contains(ResourcePermission_RESET_CREDENTIALS_GRANT)) {
+      if (resourcePermissions.isPermissible(ResourcePermission_RESET_CREDENTIALS)) {
          hasResetCredentialsPermission = true;
       }
 
       if (!hasResetCredentialsPermission) {
          // next check global direct permissions
-         final Set<ResourcePermission>
+         final ResourcePermissionBits
                globalResourcePermissions = __getEffectiveGlobalResourcePermissions(connection,
                                                                                    authenticatedResource,
                                                                                    resourceClassName,
                                                                                    domainName);
 
-         if (globalResourcePermissions.contains(ResourcePermission_RESET_CREDENTIALS)
-               || globalResourcePermissions.contains(ResourcePermission_RESET_CREDENTIALS_GRANT)) {
+         if (globalResourcePermissions.isPermissible(ResourcePermission_RESET_CREDENTIALS)) {
             hasResetCredentialsPermission = true;
          }
       }
@@ -616,9 +688,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
 
       if (!hasResetCredentialsPermission) {
-         throw NotAuthorizedException.newInstanceForActionOnResource(authenticatedResource,
-                                                                     "reset credentials",
-                                                                     resource);
+         throw notAuthorizedExceptionFactory.newInstanceForActionOnResource(authenticatedResource,
+                                                                            "reset credentials",
+                                                                            resource);
       }
    }
 
@@ -739,7 +811,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // if there is at least one permission, then it implies that this resource is allowed to create domains
       if (domainCreatePermissions.isEmpty()) {
-         throw NotAuthorizedException.newInstanceForAction(sessionResource, "create domain");
+         throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource, "create domain");
       }
 
       // determine the post create permissions on the new domain
@@ -755,6 +827,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       if (parentDomainName == null) {
          // create the new root domain
          domainPersister.addResourceDomain(connection, domainName);
+         __invalidateSuperUserDomains();
       }
       else {
          // check to ensure that the parent domain name exists
@@ -773,12 +846,13 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                && !parentDomainPermissions.contains(DomainPermission_CREATE_CHILD_DOMAIN_GRANT)
                && !parentDomainPermissions.contains(DomainPermission_SUPER_USER)
                && !parentDomainPermissions.contains(DomainPermission_SUPER_USER_GRANT)) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "create child domain in domain: " + parentDomainName);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "create child domain in domain: " + parentDomainName);
          }
 
          // create the new child domain
          domainPersister.addResourceDomain(connection, domainName, parentDomainId);
+         __invalidateSuperUserDomains();
       }
 
       if (newDomainPermissions.size() > 0) {
@@ -821,9 +895,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                   sessionResource,
                                   domainName,
                                   Collections.singleton(DomainPermission_DELETE))) {
-         throw NotAuthorizedException.newInstanceForDomainPermissions(sessionResource,
-                                                                      domainName,
-                                                                      DomainPermission_DELETE);
+         throw notAuthorizedExceptionFactory.newInstanceForDomainPermissions(sessionResource,
+                                                                             domainName,
+                                                                             DomainPermission_DELETE);
       }
 
       // check if the domain is empty (=domain must not contain any resources, and none in any descendant domains)
@@ -843,6 +917,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // remove the domain
       domainPersister.deleteDomain(connection, domainId);
+      __invalidateSuperUserDomains();
 
       return true;
    }
@@ -998,8 +1073,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          }
 
          if (!createPermissionOK) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "create resource of resource class " + resourceClassName);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "create resource of resource class " + resourceClassName);
          }
       }
 
@@ -1081,8 +1156,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // check create-permission on the resource's domain and resource class in order to set external id
       final Id<ResourceClassId> resourceClassId
-            = Id.from(resourceClassPersister.getResourceClassInfoByResourceId(connection, resource).getResourceClassId());
-      final Id<DomainId> domainId = resourcePersister.getDomainIdByResource(connection, resource);
+            = Id.from(__getResourceClassInternalInfoByResource(connection, resource).getResourceClassId());
+      final Id<DomainId> domainId = __getResourceDomainId(connection, resource);
       final Set<ResourceCreatePermission> resourceCreateSysPermissions
             = grantResourceCreatePermissionSysPersister.getResourceCreateSysPermissionsIncludeInherited(connection,
                                                                                                         sessionResource,
@@ -1100,10 +1175,14 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
 
       if (!createPermissionOK) {
-         throw NotAuthorizedException.newInstanceForAction(sessionResource, "set external id of resource " + resource);
+         throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                  "set external id of resource " + resource);
       }
 
-      return resourcePersister.setExternalId(connection, Id.<ResourceId>from(resource.getId()), externalId);
+      final Resource resolvedResource
+            = resourcePersister.setExternalId(connection, Id.<ResourceId>from(resource.getId()), externalId);
+      __invalidateResourceLocation(resource);
+      return resolvedResource;
    }
 
    @Override
@@ -1142,20 +1221,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // check for authorization
       if (!__isSuperUserOfResource(connection, sessionResource, obsoleteResource)) {
-         final Set<ResourcePermission> sessionResourcePermissions
+         final ResourcePermissionBits sessionResourcePermissions
                = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                               sessionResource,
                                                                               obsoleteResource);
 
-         if (!sessionResourcePermissions.contains(ResourcePermission_DELETE) &&
-               !sessionResourcePermissions.contains(ResourcePermission_DELETE_GRANT)) {
-            throw NotAuthorizedException.newInstanceForActionOnResource(sessionResource, "delete", obsoleteResource);
+         if (!sessionResourcePermissions.isPermissible(ResourcePermission_DELETE)) {
+            throw notAuthorizedExceptionFactory.newInstanceForActionOnResource(sessionResource,
+                                                                               "delete",
+                                                                               obsoleteResource);
          }
       }
 
       // remove the resource's credentials, if necessary
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, obsoleteResource);
+            = __getResourceClassInternalInfoByResource(connection, obsoleteResource);
 
       if (resourceClassInternalInfo.isAuthenticatable()) {
          authenticationProvider.deleteCredentials(obsoleteResource);
@@ -1174,9 +1254,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // remove any permissions the obsolete resource has as an accessor resource OR as an accessed resource
       grantResourcePermissionPersister.removeAllResourcePermissionsAsAccessorOrAccessed(connection, obsoleteResource);
       grantResourcePermissionSysPersister.removeAllResourceSysPermissionsAsAccessorOrAccessed(connection, obsoleteResource);
+      __invalidateSuperUserDomains();
 
       // remove the resource
       resourcePersister.deleteResource(connection, obsoleteResource);
+      __invalidateResourceLocation(obsoleteResource);
 
       // handle special case where deleted resource is the session or authenticated resource
       if (authenticatedResource.equals(obsoleteResource)) {
@@ -1189,6 +1271,151 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       return true;
    }
 
+   @Override
+   public int deleteResources(Collection<Resource> obsoleteResources) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourcesSpecified(obsoleteResources);
+
+      try {
+         connection = __getConnection();
+
+         return __deleteResources(connection, obsoleteResources);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
+   private int __deleteResources(SQLConnection connection,
+                                 Collection<Resource> obsoleteResources) {
+      // resolve all resources at once, skipping the ones that do not exist, like deleteResource(), which returns
+      // false for them
+      final Set<Resource> uniqueResources = new LinkedHashSet<>(__resolveResources(connection, obsoleteResources, true));
+      final List<Resource> resolvedResources = new ArrayList<>(uniqueResources);
+
+      if (resolvedResources.isEmpty()) {
+         return 0;
+      }
+
+      // authorize all resources before deleting any of them; the super-user check only depends on the domain, and
+      // the global permissions only depend on the resource class and domain, so we group the resources by both
+      final Map<Id<DomainId>, Boolean> isSuperUserByDomainId = new HashMap<>();
+      final Map<List<Long>, List<Resource>> resourcesByResourceClassAndDomainId = new LinkedHashMap<>();
+      for (Resource resolvedResource : resolvedResources) {
+         final Id<DomainId> domainId = __getResourceDomainId(connection, resolvedResource);
+
+         Boolean isSuperUser = isSuperUserByDomainId.get(domainId);
+         if (isSuperUser == null) {
+            isSuperUser = __isSuperUserOfDomain(connection, sessionResource, domainId);
+            isSuperUserByDomainId.put(domainId, isSuperUser);
+         }
+
+         if (!isSuperUser) {
+            final List<Long> resourceClassAndDomainId
+                  = Arrays.asList(__getResourceClassInternalInfoByResource(connection, resolvedResource).getResourceClassId(),
+                                  domainId.getValue());
+            List<Resource> resources = resourcesByResourceClassAndDomainId.get(resourceClassAndDomainId);
+            if (resources == null) {
+               resources = new ArrayList<>();
+               resourcesByResourceClassAndDomainId.put(resourceClassAndDomainId, resources);
+            }
+            resources.add(resolvedResource);
+         }
+      }
+
+      for (Map.Entry<List<Long>, List<Resource>> entry : resourcesByResourceClassAndDomainId.entrySet()) {
+         final Id<ResourceClassId> resourceClassId = Id.from(entry.getKey().get(0));
+         final Id<DomainId> domainId = Id.from(entry.getKey().get(1));
+         final List<Resource> resources = entry.getValue();
+
+         // a global DELETE permission to the resource class and domain authorizes deleting all of the group's resources
+         final ResourcePermissionBits globalSysPermissions = __newResourcePermissionBits(resourceClassId);
+         globalSysPermissions.addAll(grantGlobalResourcePermissionSysPersister
+                                           .getGlobalSysPermissionsIncludeInherited(connection,
+                                                                                    sessionResource,
+                                                                                    resourceClassId,
+                                                                                    domainId));
+         if (globalSysPermissions.isPermissible(ResourcePermission_DELETE)) {
+            continue;
+         }
+
+         // otherwise check the DELETE permission to all of the group's resources with a single (batched) query
+         final LongObjectHashMap<Set<ResourcePermission>> resourceSysPermissionsByResourceId
+               = grantResourcePermissionSysPersister.getResourceSysPermissionsIncludeInherited(connection,
+                                                                                              sessionResource,
+                                                                                              resources);
+         for (Resource resource : resources) {
+            final ResourcePermissionBits resourceSysPermissions = __newResourcePermissionBits(resourceClassId);
+            final Set<ResourcePermission> resourceSysPermissionSet
+                  = resourceSysPermissionsByResourceId.get(resource.getId());
+            if (resourceSysPermissionSet != null) {
+               resourceSysPermissions.addAll(resourceSysPermissionSet);
+            }
+            if (!resourceSysPermissions.isPermissible(ResourcePermission_DELETE)) {
+               throw notAuthorizedExceptionFactory.newInstanceForActionOnResource(sessionResource, "delete", resource);
+            }
+         }
+      }
+
+      // remove the resources' credentials, if necessary
+      for (Resource resolvedResource : resolvedResources) {
+         if (__getResourceClassInternalInfoByResource(connection, resolvedResource).isAuthenticatable()) {
+            authenticationProvider.deleteCredentials(resolvedResource);
+         }
+      }
+
+      // remove any permissions the obsolete resources have as accessor resources, with one statement per table
+      // for every batch of resources
+      grantDomainCreatePermissionPostCreateSysPersister.removeDomainCreatePostCreateSysPermissions(connection, resolvedResources);
+      grantDomainCreatePermissionSysPersister.removeDomainCreateSysPermissions(connection, resolvedResources);
+      grantDomainPermissionSysPersister.removeAllDomainSysPermissions(connection, resolvedResources);
+      grantResourceCreatePermissionPostCreatePersister.removeAllResourceCreatePostCreatePermissions(connection, resolvedResources);
+      grantResourceCreatePermissionPostCreateSysPersister.removeAllResourceCreatePostCreateSysPermissions(connection, resolvedResources);
+      grantResourceCreatePermissionSysPersister.removeAllResourceCreateSysPermissions(connection, resolvedResources);
+      grantGlobalResourcePermissionPersister.removeAllGlobalResourcePermissions(connection, resolvedResources);
+      grantGlobalResourcePermissionSysPersister.removeAllGlobalSysPermissions(connection, resolvedResources);
+
+      // remove any permissions the obsolete resources have as accessor resources OR as accessed resources
+      grantResourcePermissionPersister.removeAllResourcePermissionsAsAccessorOrAccessed(connection, resolvedResources);
+      grantResourcePermissionSysPersister.removeAllResourceSysPermissionsAsAccessorOrAccessed(connection, resolvedResources);
+      __invalidateSuperUserDomains();
+
+      // remove the resources
+      resourcePersister.deleteResources(connection, resolvedResources);
+      for (Resource resolvedResource : resolvedResources) {
+         __invalidateResourceLocation(resolvedResource);
+      }
+
+      // handle special case where a deleted resource is the session or authenticated resource
+      if (uniqueResources.contains(authenticatedResource)) {
+         unauthenticate();
+      }
+      else if (uniqueResources.contains(sessionResource)) {
+         unimpersonate();
+      }
+
+      return resolvedResources.size();
+   }
+
+   @Override
+   public List<Resource> resolveResources(Collection<Resource> resources) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourcesSpecified(resources);
+
+      try {
+         connection = __getConnection();
+
+         return __resolveResources(connection, resources);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
    @Override
    public void setDomainPermissions(Resource accessorResource,
                                     String domainName,
@@ -1255,8 +1482,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                      = __subtractDomainPermissionsIfGrantableFrom(requestedAddPermissions, grantorPermissions);
 
                if (unauthorizedAddPermissions.size() > 0) {
-                  throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                                    "add the following domain permission(s): " + unauthorizedAddPermissions);
+                  throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                           "add the following domain permission(s): " + unauthorizedAddPermissions);
                }
             }
 
@@ -1270,8 +1497,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                      = __subtractDomainPermissionsIfGrantableFrom(requestedRemovePermissions, grantorPermissions);
 
                if (unauthorizedRemovePermissions.size() > 0) {
-                  throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                                    "remove the following domain permission(s): " + unauthorizedRemovePermissions);
+                  throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                           "remove the following domain permission(s): " + unauthorizedRemovePermissions);
                }
             }
          }
@@ -1286,6 +1513,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                 sessionResource,
                                                                 domainId,
                                                                 requestedDomainPermissions);
+      __invalidateSuperUserDomains();
    }
 
    private Set<DomainPermission> __getDirectDomainPermissions(SQLConnection connection,
@@ -1396,54 +1624,66 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractDomainPermissionsIfGrantableFrom(requestedDomainPermissions, grantorPermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "grant the following domain permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "grant the following domain permission(s): " + unauthorizedPermissions);
          }
       }
 
-      final Set<DomainPermission> directAccessorPermissions
-            = __getDirectDomainPermissions(connection, accessorResource, domainId);
+      if (isUpsertEnabled) {
+         // add the new permissions, or upgrade the existing direct permissions that have lower granting rights,
+         // in a single statement per permission
+         grantDomainPermissionSysPersister.upsertDomainSysPermissions(connection,
+                                                                      accessorResource,
+                                                                      sessionResource,
+                                                                      domainId,
+                                                                      requestedDomainPermissions);
+      }
+      else {
+         final Set<DomainPermission> directAccessorPermissions
+               = __getDirectDomainPermissions(connection, accessorResource, domainId);
 
-      final Set<DomainPermission> addPermissions = new HashSet<>(requestedDomainPermissions.size());
-      final Set<DomainPermission> updatePermissions = new HashSet<>(requestedDomainPermissions.size());
+         final Set<DomainPermission> addPermissions = new HashSet<>(requestedDomainPermissions.size());
+         final Set<DomainPermission> updatePermissions = new HashSet<>(requestedDomainPermissions.size());
 
-      for (DomainPermission requestedPermission : requestedDomainPermissions) {
-         boolean existingPermission = false;
+         for (DomainPermission requestedPermission : requestedDomainPermissions) {
+            boolean existingPermission = false;
 
-         for (DomainPermission existingDirectPermission : directAccessorPermissions) {
-            if (requestedPermission.equalsIgnoreGrantOption(existingDirectPermission)) {
-               // we found a match by permission name - now let's see if we need to update existing or leave it unchanged
-               if (!requestedPermission.equals(existingDirectPermission) &&
-                     !requestedPermission.isGrantableFrom(existingDirectPermission)) {
-                  // requested permission has higher granting rights than the already existing direct permission,
-                  // so we need to update it
-                  updatePermissions.add(requestedPermission);
+            for (DomainPermission existingDirectPermission : directAccessorPermissions) {
+               if (requestedPermission.equalsIgnoreGrantOption(existingDirectPermission)) {
+                  // we found a match by permission name - now let's see if we need to update existing or leave it unchanged
+                  if (!requestedPermission.equals(existingDirectPermission) &&
+                        !requestedPermission.isGrantableFrom(existingDirectPermission)) {
+                     // requested permission has higher granting rights than the already existing direct permission,
+                     // so we need to update it
+                     updatePermissions.add(requestedPermission);
+                  }
+
+                  existingPermission = true;
+                  break;
                }
+            }
 
-               existingPermission = true;
-               break;
+            if (!existingPermission) {
+               // couldn't find requested permission in set of already existing direct permissions, by name, so we need to add it
+               addPermissions.add(requestedPermission);
             }
          }
 
-         if (!existingPermission) {
-            // couldn't find requested permission in set of already existing direct permissions, by name, so we need to add it
-            addPermissions.add(requestedPermission);
-         }
-      }
+         // update any existing permissions that accessor to has to this domain directly
+         grantDomainPermissionSysPersister.updateDomainSysPermissions(connection,
+                                                                      accessorResource,
+                                                                      sessionResource,
+                                                                      domainId,
+                                                                      updatePermissions);
 
-      // update any existing permissions that accessor to has to this domain directly
-      grantDomainPermissionSysPersister.updateDomainSysPermissions(connection,
+         // add the new permissions
+         grantDomainPermissionSysPersister.addDomainSysPermissions(connection,
                                                                    accessorResource,
                                                                    sessionResource,
                                                                    domainId,
-                                                                   updatePermissions);
-
-      // add the new permissions
-      grantDomainPermissionSysPersister.addDomainSysPermissions(connection,
-                                                                accessorResource,
-                                                                sessionResource,
-                                                                domainId,
-                                                                addPermissions);
+                                                                   addPermissions);
+      }
+      __invalidateSuperUserDomains();
    }
 
    private void __assertUniqueDomainPermissionsNames(Set<DomainPermission> domainPermissions) {
@@ -1545,8 +1785,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractDomainPermissionsIfGrantableFrom(requestedDomainPermissions, grantorPermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "revoke the following domain permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "revoke the following domain permission(s): " + unauthorizedPermissions);
          }
       }
 
@@ -1570,6 +1810,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                    accessorResource,
                                                                    domainId,
                                                                    removePermissions);
+      __invalidateSuperUserDomains();
    }
 
    @Override
@@ -1793,8 +2034,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractDomainCreatePermissionsIfGrantableFrom(requestedAddPermissions, grantorPermissions);
 
          if (unauthorizedAddPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "add the following domain create permission(s): " + unauthorizedAddPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "add the following domain create permission(s): " + unauthorizedAddPermissions);
          }
       }
 
@@ -1808,8 +2049,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractDomainCreatePermissionsIfGrantableFrom(requestedRemovePermissions, grantorPermissions);
 
          if (unauthorizedRemovePermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "remove the following domain create permission(s): " + unauthorizedRemovePermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "remove the following domain create permission(s): " + unauthorizedRemovePermissions);
          }
       }
 
@@ -1946,8 +2187,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __subtractDomainCreatePermissionsIfGrantableFrom(requestedDomainCreatePermissions, grantorPermissions);
 
       if (unauthorizedPermissions.size() > 0) {
-         throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                           "grant the following domain create permission(s): " + unauthorizedPermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                  "grant the following domain create permission(s): " + unauthorizedPermissions);
       }
 
       final Set<DomainCreatePermission> directAccessorPermissions
@@ -2145,8 +2386,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
             = __subtractDomainCreatePermissionsIfGrantableFrom(requestedDomainCreatePermissions, grantorPermissions);
 
       if (unauthorizedPermissions.size() > 0) {
-         throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                           "revoke the following domain create permission(s): " + unauthorizedPermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                  "revoke the following domain create permission(s): " + unauthorizedPermissions);
       }
 
       final Set<DomainCreatePermission> directAccessorPermissions
@@ -2346,8 +2587,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                   = __subtractResourceCreatePermissionsIfGrantableFrom(requestedAddPermissions, grantorPermissions);
 
             if (unauthorizedAddPermissions.size() > 0) {
-               throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                                 "add the following permission(s): " + unauthorizedAddPermissions);
+               throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                        "add the following permission(s): " + unauthorizedAddPermissions);
             }
          }
 
@@ -2361,8 +2602,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                   = __subtractResourceCreatePermissionsIfGrantableFrom(requestedRemovePermissions, grantorPermissions);
 
             if (unauthorizedRemovePermissions.size() > 0) {
-               throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                                 "remove the following permission(s): " + unauthorizedRemovePermissions);
+               throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                        "remove the following permission(s): " + unauthorizedRemovePermissions);
             }
          }
       }
@@ -2631,8 +2872,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractResourceCreatePermissionsIfGrantableFrom(requestedResourceCreatePermissions, grantorPermissions);
 
          if (unauthorizedAddPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "grant the following permission(s): " + unauthorizedAddPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "grant the following permission(s): " + unauthorizedAddPermissions);
          }
       }
 
@@ -2867,8 +3108,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                     grantorPermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "revoke the following permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "revoke the following permission(s): " + unauthorizedPermissions);
          }
       }
 
@@ -3209,63 +3450,96 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private Map<String, Map<String, Set<ResourceCreatePermission>>> __getEffectiveResourceCreatePermissionsMap(
          SQLConnection connection,
-         Resource accessorResource) {
+         final Resource accessorResource) {
       // collect all the create permissions that the accessor has
       Map<String, Map<String, Set<ResourceCreatePermission>>> allResourceCreatePermissionsMap = new HashMap<>();
 
-      // read the *CREATE system permissions and add to allResourceCreatePermissionsMap
-      allResourceCreatePermissionsMap
-            .putAll(grantResourceCreatePermissionSysPersister
-                          .getResourceCreateSysPermissionsIncludeInherited(connection, accessorResource));
-
-      // read the post create system permissions and add to allResourceCreatePermissionsMap
-      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(
-            grantResourceCreatePermissionPostCreateSysPersister
-                  .getResourceCreatePostCreateSysPermissionsIncludeInherited(connection, accessorResource),
-            allResourceCreatePermissionsMap);
-
-      // read the post create non-system permissions and add to allResourceCreatePermissionsMap
-      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(
-            grantResourceCreatePermissionPostCreatePersister
-                  .getResourceCreatePostCreatePermissionsIncludeInherited(connection, accessorResource),
-            allResourceCreatePermissionsMap);
-
-      // finally, collect all applicable create permissions when accessor has super-user privileges to any domain
-      // and add them into the globalALLPermissionsMap
-      final Map<String, Map<String, Set<ResourceCreatePermission>>> allSuperResourceCreatePermissionsMap = new HashMap<>();
-      Map<String, Set<ResourceCreatePermission>> superResourceCreatePermissionsMap = null;
+      // the queries below are independent of each other, and may therefore run concurrently if so configured
+      final SQLQueryFanOut queryFanOut = __getQueryFanOut(connection);
 
-      final Map<String, Set<DomainPermission>> effectiveDomainPermissionsMap
-            = __getEffectiveDomainPermissionsMap(connection, accessorResource);
-
-      for (Map.Entry<String, Set<DomainPermission>>
-            effectiveDomainPermissionsByDomainEntry : effectiveDomainPermissionsMap.entrySet()) {
-         final Set<DomainPermission> effectiveDomainPermissions = effectiveDomainPermissionsByDomainEntry.getValue();
-         if (effectiveDomainPermissions.contains(DomainPermission_SUPER_USER)
-               || effectiveDomainPermissions.contains(DomainPermission_SUPER_USER_GRANT)) {
-
-            if (superResourceCreatePermissionsMap == null) {
-               // lazy-construct super-user-privileged resource-permissions map by resource classes
-               final List<String> resourceClassNames = resourceClassPersister.getResourceClassNames(connection);
-               superResourceCreatePermissionsMap = new HashMap<>(resourceClassNames.size());
-               for (String resourceClassName : resourceClassNames) {
-                  final Set<ResourceCreatePermission> applicableResourceCreatePermissions
-                        = __getApplicableResourceCreatePermissions(connection,
-                                                                   __getResourceClassInternalInfo(connection,
-                                                                                                  resourceClassName));
-
-                  superResourceCreatePermissionsMap.put(resourceClassName, applicableResourceCreatePermissions);
+      try {
+         final SQLQueryFanOut.Result<Map<String, Map<String, Set<ResourceCreatePermission>>>> createSysPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+            @Override
+            public Map<String, Map<String, Set<ResourceCreatePermission>>> execute(SQLConnection connection) {
+               return grantResourceCreatePermissionSysPersister
+                     .getResourceCreateSysPermissionsIncludeInherited(connection, accessorResource);
+            }
+         });
+         final SQLQueryFanOut.Result<Map<String, Map<String, Set<ResourceCreatePermission>>>> postCreateSysPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+            @Override
+            public Map<String, Map<String, Set<ResourceCreatePermission>>> execute(SQLConnection connection) {
+               return grantResourceCreatePermissionPostCreateSysPersister
+                     .getResourceCreatePostCreateSysPermissionsIncludeInherited(connection, accessorResource);
+            }
+         });
+         final SQLQueryFanOut.Result<Map<String, Map<String, Set<ResourceCreatePermission>>>> postCreatePermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Map<String, Set<ResourceCreatePermission>>>>() {
+            @Override
+            public Map<String, Map<String, Set<ResourceCreatePermission>>> execute(SQLConnection connection) {
+               return grantResourceCreatePermissionPostCreatePersister
+                     .getResourceCreatePostCreatePermissionsIncludeInherited(connection, accessorResource);
+            }
+         });
+         final SQLQueryFanOut.Result<Map<String, Set<DomainPermission>>> effectiveDomainPermissionsMapResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Set<DomainPermission>>>() {
+            @Override
+            public Map<String, Set<DomainPermission>> execute(SQLConnection connection) {
+               return __getEffectiveDomainPermissionsMap(connection, accessorResource);
+            }
+         });
+
+         // read the *CREATE system permissions and add to allResourceCreatePermissionsMap
+         allResourceCreatePermissionsMap.putAll(createSysPermissionsResult.get());
+
+         // read the post create system permissions and add to allResourceCreatePermissionsMap
+         __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(postCreateSysPermissionsResult.get(),
+                                                                         allResourceCreatePermissionsMap);
+
+         // read the post create non-system permissions and add to allResourceCreatePermissionsMap
+         __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(postCreatePermissionsResult.get(),
+                                                                         allResourceCreatePermissionsMap);
+
+         // finally, collect all applicable create permissions when accessor has super-user privileges to any domain
+         // and add them into the globalALLPermissionsMap
+         final Map<String, Map<String, Set<ResourceCreatePermission>>> allSuperResourceCreatePermissionsMap = new HashMap<>();
+         Map<String, Set<ResourceCreatePermission>> superResourceCreatePermissionsMap = null;
+
+         final Map<String, Set<DomainPermission>> effectiveDomainPermissionsMap = effectiveDomainPermissionsMapResult.get();
+
+         for (Map.Entry<String, Set<DomainPermission>>
+               effectiveDomainPermissionsByDomainEntry : effectiveDomainPermissionsMap.entrySet()) {
+            final Set<DomainPermission> effectiveDomainPermissions = effectiveDomainPermissionsByDomainEntry.getValue();
+            if (effectiveDomainPermissions.contains(DomainPermission_SUPER_USER)
+                  || effectiveDomainPermissions.contains(DomainPermission_SUPER_USER_GRANT)) {
+
+               if (superResourceCreatePermissionsMap == null) {
+                  // lazy-construct super-user-privileged resource-permissions map by resource classes
+                  final List<String> resourceClassNames = resourceClassPersister.getResourceClassNames(connection);
+                  superResourceCreatePermissionsMap = new HashMap<>(resourceClassNames.size());
+                  for (String resourceClassName : resourceClassNames) {
+                     final Set<ResourceCreatePermission> applicableResourceCreatePermissions
+                           = __getApplicableResourceCreatePermissions(connection,
+                                                                      __getResourceClassInternalInfo(connection,
+                                                                                                     resourceClassName));
+
+                     superResourceCreatePermissionsMap.put(resourceClassName, applicableResourceCreatePermissions);
+                  }
                }
+               allSuperResourceCreatePermissionsMap.put(effectiveDomainPermissionsByDomainEntry.getKey(),
+                                                        superResourceCreatePermissionsMap);
             }
-            allSuperResourceCreatePermissionsMap.put(effectiveDomainPermissionsByDomainEntry.getKey(),
-                                                     superResourceCreatePermissionsMap);
          }
-      }
 
-      __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(allSuperResourceCreatePermissionsMap,
-                                                                      allResourceCreatePermissionsMap);
+         __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(allSuperResourceCreatePermissionsMap,
+                                                                         allResourceCreatePermissionsMap);
 
-      return __collapseResourceCreatePermissions(allResourceCreatePermissionsMap);
+         return __collapseResourceCreatePermissions(allResourceCreatePermissionsMap);
+      }
+      finally {
+         queryFanOut.cancelOutstanding();
+      }
    }
 
    private void __mergeSourceCreatePermissionsMapIntoTargetCreatePermissionsMap(Map<String, Map<String, Set<ResourceCreatePermission>>> sourceCreatePermissionsMap,
@@ -3354,7 +3628,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                Resource grantorResource,
                                                boolean newResourceMode) {
       final ResourceClassInternalInfo accessedResourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInternalInfoByResource(connection, accessedResource);
 
       // next ensure that the requested permissions are all in the correct resource class
       __assertUniqueResourcePermissionsNamesForResourceClass(connection,
@@ -3366,7 +3640,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       if (!newResourceMode) {
          if (!__isSuperUserOfResource(connection, grantorResource, accessedResource)) {
             // next check if the grantor (i.e. session resource) has permissions to grant the requested permissions
-            final Set<ResourcePermission>
+            final ResourcePermissionBits
                   grantorResourcePermissions
                   = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                                  grantorResource,
@@ -3388,8 +3662,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                      = __subtractResourcePermissionsIfGrantableFrom(requestedAddPermissions, grantorResourcePermissions);
 
                if (unauthorizedAddPermissions.size() > 0) {
-                  throw NotAuthorizedException.newInstanceForAction(grantorResource,
-                                                                    "add the following permission(s): " + unauthorizedAddPermissions);
+                  throw notAuthorizedExceptionFactory.newInstanceForAction(grantorResource,
+                                                                           "add the following permission(s): " + unauthorizedAddPermissions);
                }
             }
 
@@ -3403,31 +3677,14 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                      = __subtractResourcePermissionsIfGrantableFrom(requestedRemovePermissions, grantorResourcePermissions);
 
                if (unauthorizedRemovePermissions.size() > 0) {
-                  throw NotAuthorizedException.newInstanceForAction(grantorResource,
-                                                                    "remove the following permission(s): " + unauthorizedRemovePermissions);
+                  throw notAuthorizedExceptionFactory.newInstanceForAction(grantorResource,
+                                                                           "remove the following permission(s): " + unauthorizedRemovePermissions);
                }
             }
          }
 
          // if inherit permissions are about to be granted, first check for cycles
-         if (requestedResourcePermissions.contains(ResourcePermission_INHERIT)
-               || requestedResourcePermissions.contains(ResourcePermission_INHERIT_GRANT)) {
-            Set<ResourcePermission> reversePathResourcePermissions
-                  = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
-                                                                                 accessedResource,
-                                                                                 accessorResource);
-
-            if (reversePathResourcePermissions.contains(ResourcePermission_INHERIT)
-                  || reversePathResourcePermissions.contains(ResourcePermission_INHERIT_GRANT)
-                  || accessorResource.equals(accessedResource)) {
-               throw new OaccException("Granting the requested permission(s): "
-                                             + requestedResourcePermissions
-                                             + " will cause a cycle between: "
-                                             + accessorResource
-                                             + " and: "
-                                             + accessedResource);
-            }
-         }
+         __assertNoInheritCycle(connection, accessorResource, accessedResource, requestedResourcePermissions);
 
          // revoke any existing direct system permissions between the accessor and the accessed resource
          grantResourcePermissionSysPersister.removeResourceSysPermissions(connection,
@@ -3447,6 +3704,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                 .getResourceClassId()),
                                                                     requestedResourcePermissions,
                                                                     grantorResource);
+      __invalidateSuperUserDomains();
 
       // add the new direct non-system permissions
       grantResourcePermissionPersister.addResourcePermissions(connection,
@@ -3493,19 +3751,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Set<ResourcePermission> __subtractResourcePermissionsIfGrantableFrom(Set<ResourcePermission> candidatePermissionSet,
-                                                                                Set<ResourcePermission> grantorPermissionSet) {
-      Set<ResourcePermission> differenceSet = new HashSet<>(candidatePermissionSet);
-
-      for (ResourcePermission candidatePermission : candidatePermissionSet) {
-         for (ResourcePermission grantorPermission : grantorPermissionSet) {
-            if (candidatePermission.isGrantableFrom(grantorPermission)) {
-               differenceSet.remove(candidatePermission);
-               break;
-            }
-         }
-      }
-
-      return differenceSet;
+                                                                                ResourcePermissionBits grantorPermissionSet) {
+      return grantorPermissionSet.getNonGrantable(candidatePermissionSet);
    }
 
    @Override
@@ -3567,7 +3814,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                  Resource accessedResource,
                                                  Set<ResourcePermission> requestedResourcePermissions) {
       final ResourceClassInternalInfo accessedResourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInternalInfoByResource(connection, accessedResource);
 
       // next ensure that the requested permissions are all in the correct resource class
       __assertUniqueResourcePermissionsNamesForResourceClass(connection,
@@ -3576,7 +3823,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // check for authorization
       if (!__isSuperUserOfResource(connection, sessionResource, accessedResource)) {
-         final Set<ResourcePermission>
+         final ResourcePermissionBits
                grantorResourcePermissions
                = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                               sessionResource,
@@ -3587,95 +3834,137 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractResourcePermissionsIfGrantableFrom(requestedResourcePermissions, grantorResourcePermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "grant the following permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "grant the following permission(s): " + unauthorizedPermissions);
          }
       }
 
-      final Set<ResourcePermission> directAccessorResourcePermissions
-            = __getDirectResourcePermissions(connection, accessorResource, accessedResource);
+      if (isUpsertEnabled) {
+         // if an inherit permission is about to be added, first check for cycles; re-granting an existing direct
+         // inherit permission cannot close a cycle, because the graph has no cycles to begin with
+         if (__containsInheritPermission(requestedResourcePermissions)
+               && !__containsInheritPermission(grantResourcePermissionSysPersister.getResourceSysPermissions(connection,
+                                                                                                            accessorResource,
+                                                                                                            accessedResource))) {
+            __assertNoInheritCycle(connection, accessorResource, accessedResource, requestedResourcePermissions);
+         }
 
-      final Set<ResourcePermission> addPermissions = new HashSet<>(requestedResourcePermissions.size());
-      final Set<ResourcePermission> updatePermissions = new HashSet<>(requestedResourcePermissions.size());
+         // add the new direct system permissions, or upgrade the existing ones that have lower granting rights
+         grantResourcePermissionSysPersister.upsertResourceSysPermissions(connection,
+                                                                          accessorResource,
+                                                                          accessedResource,
+                                                                          Id.<ResourceClassId>from(
+                                                                                accessedResourceClassInternalInfo.getResourceClassId()),
+                                                                          requestedResourcePermissions,
+                                                                          sessionResource);
 
-      for (ResourcePermission requestedPermission : requestedResourcePermissions) {
-         boolean existingPermission = false;
+         // add the new direct non-system permissions, or upgrade the existing ones that have lower granting rights
+         grantResourcePermissionPersister.upsertResourcePermissions(connection,
+                                                                    accessorResource,
+                                                                    accessedResource,
+                                                                    Id.<ResourceClassId>from(
+                                                                          accessedResourceClassInternalInfo.getResourceClassId()),
+                                                                    requestedResourcePermissions,
+                                                                    sessionResource);
+      }
+      else {
+         final Set<ResourcePermission> directAccessorResourcePermissions
+               = __getDirectResourcePermissions(connection, accessorResource, accessedResource);
 
-         for (ResourcePermission existingDirectPermission : directAccessorResourcePermissions) {
-            if (requestedPermission.equalsIgnoreGrantOption(existingDirectPermission)) {
-               // found a match by name - now let's see if we need to update existing or leave it unchanged
-               if (!requestedPermission.equals(existingDirectPermission) &&
-                     !requestedPermission.isGrantableFrom(existingDirectPermission)) {
-                  // requested permission has higher granting rights than the already existing direct permission,
-                  // so we need to update it
-                  updatePermissions.add(requestedPermission);
+         final Set<ResourcePermission> addPermissions = new HashSet<>(requestedResourcePermissions.size());
+         final Set<ResourcePermission> updatePermissions = new HashSet<>(requestedResourcePermissions.size());
+
+         for (ResourcePermission requestedPermission : requestedResourcePermissions) {
+            boolean existingPermission = false;
+
+            for (ResourcePermission existingDirectPermission : directAccessorResourcePermissions) {
+               if (requestedPermission.equalsIgnoreGrantOption(existingDirectPermission)) {
+                  // found a match by name - now let's see if we need to update existing or leave it unchanged
+                  if (!requestedPermission.equals(existingDirectPermission) &&
+                        !requestedPermission.isGrantableFrom(existingDirectPermission)) {
+                     // requested permission has higher granting rights than the already existing direct permission,
+                     // so we need to update it
+                     updatePermissions.add(requestedPermission);
+                  }
+
+                  existingPermission = true;
+                  break;
                }
+            }
 
-               existingPermission = true;
-               break;
+            if (!existingPermission) {
+               // couldn't find requested permission in set of already existing direct permissions, by name, so we need to add it
+               addPermissions.add(requestedPermission);
             }
          }
 
-         if (!existingPermission) {
-            // couldn't find requested permission in set of already existing direct permissions, by name, so we need to add it
-            addPermissions.add(requestedPermission);
-         }
-      }
+         // if inherit permissions are about to be added, first check for cycles
+         __assertNoInheritCycle(connection, accessorResource, accessedResource, addPermissions);
 
-      // if inherit permissions are about to be granted, first check for cycles
-      if (addPermissions.contains(ResourcePermission_INHERIT)
-            || addPermissions.contains(ResourcePermission_INHERIT_GRANT)) {
-         Set<ResourcePermission> reversePathResourcePermissions
-               = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
-                                                                              accessedResource,
-                                                                              accessorResource);
+         // update any necessary direct system permissions between the accessor and the accessed resource
+         grantResourcePermissionSysPersister.updateResourceSysPermissions(connection,
+                                                                          accessorResource,
+                                                                          accessedResource,
+                                                                          Id.<ResourceClassId>from(
+                                                                                accessedResourceClassInternalInfo.getResourceClassId()),
+                                                                          updatePermissions,
+                                                                          sessionResource);
 
-         if (reversePathResourcePermissions.contains(ResourcePermission_INHERIT)
-               || reversePathResourcePermissions.contains(ResourcePermission_INHERIT_GRANT)
-               || accessorResource.equals(accessedResource)) {
-            throw new OaccException("Granting the requested permission(s): "
-                                          + requestedResourcePermissions
-                                          + " will cause a cycle between: "
-                                          + accessorResource
-                                          + " and: "
-                                          + accessedResource);
-         }
-      }
+         // update any necessary direct non-system permissions between the accessor and the accessed resource
+         grantResourcePermissionPersister.updateResourcePermissions(connection,
+                                                                    accessorResource,
+                                                                    accessedResource,
+                                                                    Id.<ResourceClassId>from(
+                                                                          accessedResourceClassInternalInfo.getResourceClassId()),
+                                                                    updatePermissions,
+                                                                    sessionResource);
 
-      // update any necessary direct system permissions between the accessor and the accessed resource
-      grantResourcePermissionSysPersister.updateResourceSysPermissions(connection,
+         // add the new direct system permissions
+         grantResourcePermissionSysPersister.addResourceSysPermissions(connection,
                                                                        accessorResource,
                                                                        accessedResource,
                                                                        Id.<ResourceClassId>from(
                                                                              accessedResourceClassInternalInfo.getResourceClassId()),
-                                                                       updatePermissions,
+                                                                       addPermissions,
                                                                        sessionResource);
 
-      // update any necessary direct non-system permissions between the accessor and the accessed resource
-      grantResourcePermissionPersister.updateResourcePermissions(connection,
+         // add the new direct non-system permissions
+         grantResourcePermissionPersister.addResourcePermissions(connection,
                                                                  accessorResource,
                                                                  accessedResource,
                                                                  Id.<ResourceClassId>from(
                                                                        accessedResourceClassInternalInfo.getResourceClassId()),
-                                                                 updatePermissions,
+                                                                 addPermissions,
                                                                  sessionResource);
+      }
+      __invalidateSuperUserDomains();
+   }
 
-      // add the new direct system permissions
-      grantResourcePermissionSysPersister.addResourceSysPermissions(connection,
-                                                                    accessorResource,
-                                                                    accessedResource,
-                                                                    Id.<ResourceClassId>from(
-                                                                          accessedResourceClassInternalInfo.getResourceClassId()),
-                                                                    addPermissions,
-                                                                    sessionResource);
+   private static boolean __containsInheritPermission(Set<ResourcePermission> resourcePermissions) {
+      return resourcePermissions.contains(ResourcePermission_INHERIT)
+            || resourcePermissions.contains(ResourcePermission_INHERIT_GRANT);
+   }
 
-      // add the new direct non-system permissions
-      grantResourcePermissionPersister.addResourcePermissions(connection,
-                                                              accessorResource,
-                                                              accessedResource,
-                                                              Id.<ResourceClassId>from(accessedResourceClassInternalInfo.getResourceClassId()),
-                                                              addPermissions,
-                                                              sessionResource);
+   private void __assertNoInheritCycle(SQLConnection connection,
+                                       Resource accessorResource,
+                                       Resource accessedResource,
+                                       Set<ResourcePermission> requestedResourcePermissions) {
+      if (__containsInheritPermission(requestedResourcePermissions)) {
+         // the accessor inheriting from the accessed resource closes a cycle if the accessed resource already
+         // (transitively) inherits from the accessor, which only requires a walk of the *INHERIT graph: the memory
+         // engine keeps a topological order and only visits the resources between the two, the non-recursive
+         // profiles walk level by level and stop at the accessor, but the recursive profiles count the accessor in
+         // a single query over every resource the accessed resource inherits from, since the schema keeps no order
+         if (accessorResource.equals(accessedResource)
+               || grantResourcePermissionSysPersister.isInheritedFrom(connection, accessedResource, accessorResource)) {
+            throw new OaccException("Granting the requested permission(s): "
+                                          + requestedResourcePermissions
+                                          + " will cause a cycle between: "
+                                          + accessorResource
+                                          + " and: "
+                                          + accessedResource);
+         }
+      }
    }
 
    @Override
@@ -3737,7 +4026,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                   Resource accessedResource,
                                                   Set<ResourcePermission> obsoleteResourcePermissions) {
       final ResourceClassInternalInfo accessedResourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInternalInfoByResource(connection, accessedResource);
 
       // next ensure that the requested permissions are unique in name
       __assertUniqueResourcePermissionsNamesForResourceClass(connection,
@@ -3746,7 +4035,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // check for authorization
       if (!__isSuperUserOfResource(connection, sessionResource, accessedResource)) {
-         final Set<ResourcePermission>
+         final ResourcePermissionBits
                grantorResourcePermissions
                = __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                               sessionResource,
@@ -3757,8 +4046,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractResourcePermissionsIfGrantableFrom(obsoleteResourcePermissions, grantorResourcePermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "revoke the following permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "revoke the following permission(s): " + unauthorizedPermissions);
          }
       }
 
@@ -3785,6 +4074,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                              accessedResourceClassInternalInfo
                                                                                    .getResourceClassId()),
                                                                        removePermissions);
+      __invalidateSuperUserDomains();
 
       // update any necessary direct non-system permissions between the accessor and the accessed resource
       grantResourcePermissionPersister.removeResourcePermissions(connection,
@@ -3850,59 +4140,255 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          accessedResource = __resolveResource(connection, accessedResource);
          __assertQueryAuthorization(connection, accessorResource);
 
-         return __getEffectiveResourcePermissions(connection, accessorResource, accessedResource);
+         return __getEffectiveResourcePermissions(connection, accessorResource, accessedResource).toSet();
       }
       finally {
          __closeConnection(connection);
       }
    }
 
-   private Set<ResourcePermission> __getEffectiveResourcePermissions(SQLConnection connection,
-                                                                     Resource accessorResource,
-                                                                     Resource accessedResource) {
-      Set<ResourcePermission> resourcePermissions = new HashSet<>();
+   @Override
+   public Map<Resource, Set<ResourcePermission>> getEffectiveResourcePermissionsMap(Resource accessorResource,
+                                                                                    Collection<Resource> accessedResources) {
+      SQLConnection connection = null;
 
-      final Id<DomainId> accessedDomainId = resourcePersister.getDomainIdByResource(connection, accessedResource);
-      final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourcesSpecified(accessedResources);
 
-      if (__isSuperUserOfDomain(connection, accessorResource, accessedDomainId)) {
-         return __getApplicableResourcePermissions(connection, resourceClassInternalInfo);
+      try {
+         connection = __getConnection();
+         accessorResource = __resolveResource(connection, accessorResource);
+         final List<Resource> resolvedAccessedResources = __resolveResources(connection, accessedResources);
+         __assertQueryAuthorization(connection, accessorResource);
+
+         final LongObjectHashMap<ResourcePermissionBits> effectiveResourcePermissionsByResourceId
+               = __getEffectiveResourcePermissionsByResourceId(connection, accessorResource, resolvedAccessedResources);
+
+         // map the permissions by the accessed resources as they were specified, in the order they were specified
+         final Map<Resource, Set<ResourcePermission>> effectiveResourcePermissionsMap
+               = new LinkedHashMap<>(accessedResources.size());
+         final Iterator<Resource> resolvedAccessedResourceIterator = resolvedAccessedResources.iterator();
+         for (Resource accessedResource : accessedResources) {
+            final long resourceId = resolvedAccessedResourceIterator.next().getId();
+            effectiveResourcePermissionsMap.put(accessedResource,
+                                                effectiveResourcePermissionsByResourceId.get(resourceId).toSet());
+         }
+
+         return effectiveResourcePermissionsMap;
+      }
+      finally {
+         __closeConnection(connection);
       }
+   }
 
-      // collect the system permissions that the accessor resource has to the accessed resource
-      resourcePermissions.addAll(grantResourcePermissionSysPersister
-                                       .getResourceSysPermissionsIncludeInherited(connection,
-                                                                                  accessorResource,
-                                                                                  accessedResource));
+   private LongObjectHashMap<ResourcePermissionBits> __getEffectiveResourcePermissionsByResourceId(SQLConnection connection,
+                                                                                                   Resource accessorResource,
+                                                                                                   List<Resource> accessedResources) {
+      final List<Resource> distinctAccessedResources = new ArrayList<>(new LinkedHashSet<>(accessedResources));
+      final LongObjectHashMap<ResourcePermissionBits> effectiveResourcePermissionsByResourceId
+            = new LongObjectHashMap<>(distinctAccessedResources.size());
 
-      // collect the non-system permissions that the accessor has to the accessed resource
-      resourcePermissions.addAll(grantResourcePermissionPersister.getResourcePermissionsIncludeInherited(connection,
+      if (distinctAccessedResources.isEmpty()) {
+         return effectiveResourcePermissionsByResourceId;
+      }
+
+      // collect the system and non-system permissions that the accessor has to all the accessed resources at once
+      final LongObjectHashMap<Set<ResourcePermission>> resourceSysPermissionsByResourceId
+            = grantResourcePermissionSysPersister.getResourceSysPermissionsIncludeInherited(connection,
+                                                                                           accessorResource,
+                                                                                           distinctAccessedResources);
+      final LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByResourceId
+            = grantResourcePermissionPersister.getResourcePermissionsIncludeInherited(connection,
+                                                                                     accessorResource,
+                                                                                     distinctAccessedResources);
+
+      // super-user privileges and global permissions only depend on the resource class and domain of an accessed
+      // resource, so we only determine them once for every distinct combination of the two
+      final Map<Id<DomainId>, Boolean> isSuperUserByDomainId = new HashMap<>();
+      final Map<List<Long>, Set<ResourcePermission>> resourcePermissionsByResourceClassAndDomainId = new HashMap<>();
+
+      for (Resource accessedResource : distinctAccessedResources) {
+         final ResourceClassInternalInfo resourceClassInternalInfo
+               = __getResourceClassInternalInfoByResource(connection, accessedResource);
+         final Id<ResourceClassId> accessedResourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+         final Id<DomainId> accessedDomainId = __getResourceDomainId(connection, accessedResource);
+
+         Boolean isSuperUser = isSuperUserByDomainId.get(accessedDomainId);
+         if (isSuperUser == null) {
+            isSuperUser = __isSuperUserOfDomain(connection, accessorResource, accessedDomainId);
+            isSuperUserByDomainId.put(accessedDomainId, isSuperUser);
+         }
+
+         final List<Long> resourceClassAndDomainId = Arrays.asList(accessedResourceClassId.getValue(),
+                                                                   accessedDomainId.getValue());
+         Set<ResourcePermission> resourceClassAndDomainPermissions
+               = resourcePermissionsByResourceClassAndDomainId.get(resourceClassAndDomainId);
+         if (resourceClassAndDomainPermissions == null) {
+            if (isSuperUser) {
+               resourceClassAndDomainPermissions
+                     = __getApplicableResourcePermissions(connection, resourceClassInternalInfo).toSet();
+            }
+            else {
+               // collect the global system and non-system permissions that the accessor has to the domain
+               resourceClassAndDomainPermissions = new HashSet<>();
+               resourceClassAndDomainPermissions
+                     .addAll(grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(connection,
+                                                                                                               accessorResource,
+                                                                                                               accessedResourceClassId,
+                                                                                                               accessedDomainId));
+               resourceClassAndDomainPermissions
+                     .addAll(grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(connection,
+                                                                                                                 accessorResource,
+                                                                                                                 accessedResourceClassId,
+                                                                                                                 accessedDomainId));
+            }
+            resourcePermissionsByResourceClassAndDomainId.put(resourceClassAndDomainId,
+                                                              resourceClassAndDomainPermissions);
+         }
+
+         final ResourcePermissionBits resourcePermissions = __newResourcePermissionBits(accessedResourceClassId);
+         resourcePermissions.addAll(resourceClassAndDomainPermissions);
+
+         if (!isSuperUser) {
+            final Set<ResourcePermission> resourceSysPermissions
+                  = resourceSysPermissionsByResourceId.get(accessedResource.getId());
+            if (resourceSysPermissions != null) {
+               resourcePermissions.addAll(resourceSysPermissions);
+            }
+            final Set<ResourcePermission> directResourcePermissions
+                  = resourcePermissionsByResourceId.get(accessedResource.getId());
+            if (directResourcePermissions != null) {
+               resourcePermissions.addAll(directResourcePermissions);
+            }
+         }
+
+         effectiveResourcePermissionsByResourceId.put(accessedResource.getId(), resourcePermissions);
+      }
+
+      return effectiveResourcePermissionsByResourceId;
+   }
+
+   private ResourcePermissionBits __getEffectiveResourcePermissions(final SQLConnection connection,
+                                                                    final Resource accessorResource,
+                                                                    final Resource accessedResource) {
+      if (readCoalescer == null) {
+         return __queryEffectiveResourcePermissions(connection, accessorResource, accessedResource);
+      }
+
+      // the coalesced result is shared with concurrent callers, which therefore must not modify it
+      return readCoalescer.coalesce(new SQLReadCoalescer.Lookup<ResourcePermissionBits>() {
+         @Override
+         public ResourcePermissionBits run() {
+            return __queryEffectiveResourcePermissions(connection, accessorResource, accessedResource);
+         }
+      }, "effectiveResourcePermissions", accessorResource.getId(), accessedResource.getId());
+   }
+
+   private ResourcePermissionBits __queryEffectiveResourcePermissions(SQLConnection connection,
+                                                                      final Resource accessorResource,
+                                                                      final Resource accessedResource) {
+      // the queries below are independent of each other, and may therefore run concurrently if so configured
+      final SQLQueryFanOut queryFanOut = __getQueryFanOut(connection);
+
+      try {
+         final SQLQueryFanOut.Result<Id<DomainId>> accessedDomainIdResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Id<DomainId>>() {
+            @Override
+            public Id<DomainId> execute(SQLConnection connection) {
+               return __getResourceDomainId(connection, accessedResource);
+            }
+         });
+         final SQLQueryFanOut.Result<ResourceClassInternalInfo> resourceClassInternalInfoResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<ResourceClassInternalInfo>() {
+            @Override
+            public ResourceClassInternalInfo execute(SQLConnection connection) {
+               return __getResourceClassInternalInfoByResource(connection, accessedResource);
+            }
+         });
+
+         // collect the system permissions that the accessor resource has to the accessed resource
+         final SQLQueryFanOut.Result<Set<ResourcePermission>> resourceSysPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Set<ResourcePermission>>() {
+            @Override
+            public Set<ResourcePermission> execute(SQLConnection connection) {
+               return grantResourcePermissionSysPersister.getResourceSysPermissionsIncludeInherited(connection,
+                                                                                                   accessorResource,
+                                                                                                   accessedResource);
+            }
+         });
+
+         // collect the non-system permissions that the accessor has to the accessed resource
+         final SQLQueryFanOut.Result<Set<ResourcePermission>> resourcePermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Set<ResourcePermission>>() {
+            @Override
+            public Set<ResourcePermission> execute(SQLConnection connection) {
+               return grantResourcePermissionPersister.getResourcePermissionsIncludeInherited(connection,
+                                                                                             accessorResource,
+                                                                                             accessedResource);
+            }
+         });
+
+         final Id<DomainId> accessedDomainId = accessedDomainIdResult.get();
+         final ResourceClassInternalInfo resourceClassInternalInfo = resourceClassInternalInfoResult.get();
+         final Id<ResourceClassId> accessedResourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+
+         final SQLQueryFanOut.Result<Boolean> isSuperUserResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Boolean>() {
+            @Override
+            public Boolean execute(SQLConnection connection) {
+               return __isSuperUserOfDomain(connection, accessorResource, accessedDomainId);
+            }
+         });
+
+         // collect the global system permissions that the accessor has to the accessed resource's domain
+         final SQLQueryFanOut.Result<Set<ResourcePermission>> globalSysPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Set<ResourcePermission>>() {
+            @Override
+            public Set<ResourcePermission> execute(SQLConnection connection) {
+               return grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(connection,
+                                                                                                       accessorResource,
+                                                                                                       accessedResourceClassId,
+                                                                                                       accessedDomainId);
+            }
+         });
+
+         // collect the global non-system permissions that the accessor this resource has to the accessed resource's domain
+         final SQLQueryFanOut.Result<Set<ResourcePermission>> globalPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Set<ResourcePermission>>() {
+            @Override
+            public Set<ResourcePermission> execute(SQLConnection connection) {
+               return grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(connection,
                                                                                                          accessorResource,
-                                                                                                         accessedResource));
+                                                                                                         accessedResourceClassId,
+                                                                                                         accessedDomainId);
+            }
+         });
 
-      final Id<ResourceClassId> accessedResourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+         if (isSuperUserResult.get()) {
+            return __getApplicableResourcePermissions(connection, resourceClassInternalInfo);
+         }
 
-      // collect the global system permissions that the accessor has to the accessed resource's domain
-      resourcePermissions
-            .addAll(grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(connection,
-                                                                                                      accessorResource,
-                                                                                                      accessedResourceClassId,
-                                                                                                      accessedDomainId));
+         final ResourcePermissionBits resourcePermissions = __newResourcePermissionBits(accessedResourceClassId);
+         resourcePermissions.addAll(resourceSysPermissionsResult.get());
+         resourcePermissions.addAll(resourcePermissionsResult.get());
+         resourcePermissions.addAll(globalSysPermissionsResult.get());
+         resourcePermissions.addAll(globalPermissionsResult.get());
 
-      // first collect the global non-system permissions that the accessor this resource has to the accessed resource's domain
-      resourcePermissions
-            .addAll(grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(connection,
-                                                                                                        accessorResource,
-                                                                                                        accessedResourceClassId,
-                                                                                                        accessedDomainId));
-      return __collapseResourcePermissions(resourcePermissions);
+         return resourcePermissions;
+      }
+      finally {
+         // cancel the queries whose results were not needed, e.g. after an early return
+         queryFanOut.cancelOutstanding();
+      }
    }
 
-   private Set<ResourcePermission> __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(SQLConnection connection,
-                                                                                                Resource accessorResource,
-                                                                                                Resource accessedResource) {
-      Set<ResourcePermission> resourcePermissions = new HashSet<>();
+   private ResourcePermissionBits __getEffectiveResourcePermissionsIgnoringSuperUserPrivileges(SQLConnection connection,
+                                                                                               Resource accessorResource,
+                                                                                               Resource accessedResource) {
+      final Id<ResourceClassId> accessedResourceClassId
+            = Id.from(__getResourceClassInternalInfoByResource(connection, accessedResource).getResourceClassId());
+      final ResourcePermissionBits resourcePermissions = __newResourcePermissionBits(accessedResourceClassId);
 
       // collect the system permissions that the accessor resource has to the accessed resource
       resourcePermissions.addAll(grantResourcePermissionSysPersister
@@ -3915,11 +4401,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                                          accessorResource,
                                                                                                          accessedResource));
 
-      final Id<DomainId> accessedDomainId = resourcePersister.getDomainIdByResource(connection, accessedResource);
-      final Id<ResourceClassId> accessedResourceClassId
-            = Id.from(resourceClassPersister
-                            .getResourceClassInfoByResourceId(connection, accessedResource)
-                            .getResourceClassId());
+      final Id<DomainId> accessedDomainId = __getResourceDomainId(connection, accessedResource);
 
       // collect the global system permissions that the accessor has to the accessed resource's domain
       resourcePermissions
@@ -3934,7 +4416,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                                         accessorResource,
                                                                                                         accessedResourceClassId,
                                                                                                         accessedDomainId));
-      return __collapseResourcePermissions(resourcePermissions);
+      return resourcePermissions;
    }
 
    @Override
@@ -3995,7 +4477,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       if (!__isSuperUserOfDomain(connection, sessionResource, domainName)) {
          // check if the grantor (=session resource) is authorized to grant the requested permissions
-         final Set<ResourcePermission>
+         final ResourcePermissionBits
                grantorPermissions
                = __getEffectiveGlobalResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                                     sessionResource,
@@ -4018,8 +4500,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                   = __subtractResourcePermissionsIfGrantableFrom(requestedAddPermissions, grantorPermissions);
 
             if (unauthorizedAddPermissions.size() > 0) {
-               throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                                 "add the following global permission(s): " + unauthorizedAddPermissions);
+               throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                        "add the following global permission(s): " + unauthorizedAddPermissions);
             }
          }
 
@@ -4033,8 +4515,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                   = __subtractResourcePermissionsIfGrantableFrom(requestedRemovePermissions, grantorPermissions);
 
             if (unauthorizedRemovePermissions.size() > 0) {
-               throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                                 "remove the following global permission(s): " + unauthorizedRemovePermissions);
+               throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                        "remove the following global permission(s): " + unauthorizedRemovePermissions);
             }
          }
       }
@@ -4098,7 +4580,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       for (ResourcePermission resourcePermission : requestedResourcePermissions) {
          if (resourcePermission.isSystemPermission() && ResourcePermission_INHERIT.equals(resourcePermission)) {
-            // we prohibit granting the system INHERIT permission, since cycle checking may be prohibitively compute intensive
+            // we prohibit granting the system INHERIT permission, since the inheritance walks only follow direct grants
             throw new IllegalArgumentException("Permission: "
                                                      + String.valueOf(resourcePermission)
                                                      + ", not valid in this context");
@@ -4227,7 +4709,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // check for authorization
       if (!__isSuperUserOfDomain(connection, sessionResource, domainName)) {
-         final Set<ResourcePermission> grantorPermissions
+         final ResourcePermissionBits grantorPermissions
                = __getEffectiveGlobalResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                                     sessionResource,
                                                                                     resourceClassName,
@@ -4237,11 +4719,30 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractResourcePermissionsIfGrantableFrom(requestedResourcePermissions, grantorPermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "grant the following global permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "grant the following global permission(s): " + unauthorizedPermissions);
          }
       }
 
+      if (isUpsertEnabled) {
+         // add the new system permissions, or upgrade the existing ones that have lower granting rights
+         grantGlobalResourcePermissionSysPersister.upsertGlobalSysPermissions(connection,
+                                                                              accessorResource,
+                                                                              resourceClassId,
+                                                                              domainId,
+                                                                              requestedResourcePermissions,
+                                                                              sessionResource);
+
+         // add the new non-system permissions, or upgrade the existing ones that have lower granting rights
+         grantGlobalResourcePermissionPersister.upsertGlobalResourcePermissions(connection,
+                                                                                accessorResource,
+                                                                                resourceClassId,
+                                                                                domainId,
+                                                                                requestedResourcePermissions,
+                                                                                sessionResource);
+         return;
+      }
+
       final Set<ResourcePermission> directAccessorPermissions
             = __getDirectGlobalResourcePermissions(connection, accessorResource, resourceClassId, domainId);
 
@@ -4398,7 +4899,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
       // check for authorization
       if (!__isSuperUserOfDomain(connection, sessionResource, domainName)) {
-         final Set<ResourcePermission> grantorPermissions
+         final ResourcePermissionBits grantorPermissions
                = __getEffectiveGlobalResourcePermissionsIgnoringSuperUserPrivileges(connection,
                                                                                     sessionResource,
                                                                                     resourceClassName,
@@ -4408,8 +4909,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                = __subtractResourcePermissionsIfGrantableFrom(requestedResourcePermissions, grantorPermissions);
 
          if (unauthorizedPermissions.size() > 0) {
-            throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                              "revoke the following global permission(s): " + unauthorizedPermissions);
+            throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                     "revoke the following global permission(s): " + unauthorizedPermissions);
          }
       }
 
@@ -4518,17 +5019,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          return __getEffectiveGlobalResourcePermissions(connection,
                                                         accessorResource,
                                                         resourceClassName,
-                                                        domainName);
+                                                        domainName).toSet();
       }
       finally {
          __closeConnection(connection);
       }
    }
 
-   private Set<ResourcePermission> __getEffectiveGlobalResourcePermissionsIgnoringSuperUserPrivileges(SQLConnection connection,
-                                                                                                      Resource accessorResource,
-                                                                                                      String resourceClassName,
-                                                                                                      String domainName) {
+   private ResourcePermissionBits __getEffectiveGlobalResourcePermissionsIgnoringSuperUserPrivileges(SQLConnection connection,
+                                                                                                     Resource accessorResource,
+                                                                                                     String resourceClassName,
+                                                                                                     String domainName) {
       // verify that resource class is defined
       final Id<ResourceClassId> resourceClassId = resourceClassPersister.getResourceClassId(connection, resourceClassName);
 
@@ -4543,7 +5044,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          throw new IllegalArgumentException("Could not find domain: " + domainName);
       }
 
-      Set<ResourcePermission> resourcePermissions = new HashSet<>();
+      final ResourcePermissionBits resourcePermissions = __newResourcePermissionBits(resourceClassId);
 
       // first collect the system permissions that the accessor has to the accessed resource
       resourcePermissions.addAll(grantGlobalResourcePermissionSysPersister
@@ -4558,13 +5059,13 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                      accessorResource,
                                                                                      resourceClassId,
                                                                                      domainId));
-      return __collapseResourcePermissions(resourcePermissions);
+      return resourcePermissions;
    }
 
-   private Set<ResourcePermission> __getEffectiveGlobalResourcePermissions(SQLConnection connection,
-                                                                           Resource accessorResource,
-                                                                           String resourceClassName,
-                                                                           String domainName) {
+   private ResourcePermissionBits __getEffectiveGlobalResourcePermissions(SQLConnection connection,
+                                                                          Resource accessorResource,
+                                                                          String resourceClassName,
+                                                                          String domainName) {
       // verify that resource class is defined
       final ResourceClassInternalInfo resourceClassInternalInfo = __getResourceClassInternalInfo(connection,
                                                                                                  resourceClassName);
@@ -4581,7 +5082,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
 
       final Id<ResourceClassId> resourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
-      Set<ResourcePermission> resourcePermissions = new HashSet<>();
+      final ResourcePermissionBits resourcePermissions = __newResourcePermissionBits(resourceClassId);
 
       // first collect the system permissions that the accessor has to the accessed resource
       resourcePermissions.addAll(grantGlobalResourcePermissionSysPersister
@@ -4596,15 +5097,16 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                                                      accessorResource,
                                                                                      resourceClassId,
                                                                                      domainId));
-      return __collapseResourcePermissions(resourcePermissions);
+      return resourcePermissions;
    }
 
-   private Set<ResourcePermission> __getApplicableResourcePermissions(SQLConnection connection,
-                                                                      ResourceClassInternalInfo resourceClassInternalInfo) {
+   private ResourcePermissionBits __getApplicableResourcePermissions(SQLConnection connection,
+                                                                     ResourceClassInternalInfo resourceClassInternalInfo) {
       final List<String> resourcePermissionNames
             = __getApplicableResourcePermissionNames(connection, resourceClassInternalInfo);
 
-      Set<ResourcePermission> superResourcePermissions = new HashSet<>(resourcePermissionNames.size());
+      final ResourcePermissionBits superResourcePermissions
+            = __newResourcePermissionBits(Id.<ResourceClassId>from(resourceClassInternalInfo.getResourceClassId()));
 
       for (String permissionName : resourcePermissionNames) {
          superResourcePermissions.add(ResourcePermissions.getInstanceWithGrantOption(permissionName));
@@ -4633,20 +5135,34 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Set<ResourcePermission> __collapseResourcePermissions(Set<ResourcePermission> resourcePermissions) {
-      final Set<ResourcePermission> collapsedPermissions = new HashSet<>(resourcePermissions);
+      final Set<ResourcePermission> collapsedPermissions = new HashSet<>(resourcePermissions.size());
 
+      // a permission is only grantable from the same permission with the grant option
       for (ResourcePermission permission : resourcePermissions) {
-         for (ResourcePermission grantEquivalentPermission : resourcePermissions) {
-            if (permission.isGrantableFrom(grantEquivalentPermission) && !permission.equals(grantEquivalentPermission)) {
-               collapsedPermissions.remove(permission);
-               break;
-            }
+         if (permission.isWithGrantOption()
+               || !resourcePermissions.contains(ResourcePermissions.getInstanceWithGrantOption(permission.getPermissionName()))) {
+            collapsedPermissions.add(permission);
          }
       }
 
       return collapsedPermissions;
    }
 
+   private ResourcePermissionBits __newResourcePermissionBits(Id<ResourceClassId> resourceClassId) {
+      ResourcePermissionIndex resourcePermissionIndex = resourcePermissionIndexes.get(resourceClassId.getValue());
+
+      if (resourcePermissionIndex == null) {
+         final ResourcePermissionIndex newResourcePermissionIndex = new ResourcePermissionIndex();
+         resourcePermissionIndex = resourcePermissionIndexes.putIfAbsent(resourceClassId.getValue(),
+                                                                         newResourcePermissionIndex);
+         if (resourcePermissionIndex == null) {
+            resourcePermissionIndex = newResourcePermissionIndex;
+         }
+      }
+
+      return new ResourcePermissionBits(resourcePermissionIndex);
+   }
+
    @Override
    public Map<String, Map<String, Set<ResourcePermission>>> getGlobalResourcePermissionsMap(Resource accessorResource) {
       SQLConnection connection = null;
@@ -4703,55 +5219,82 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private Map<String, Map<String, Set<ResourcePermission>>> __getEffectiveGlobalResourcePermissionsMap(SQLConnection connection,
-                                                                                                        Resource accessorResource) {
+                                                                                                        final Resource accessorResource) {
       final Map<String, Map<String, Set<ResourcePermission>>> globalALLPermissionsMap = new HashMap<>();
 
-      // collect the system permissions that the accessor has and add it into the globalALLPermissionsMap
-      globalALLPermissionsMap
-            .putAll(grantGlobalResourcePermissionSysPersister
-                          .getGlobalSysPermissionsIncludeInherited(connection, accessorResource));
-
-      // next collect the non-system permissions that the accessor has and add it into the globalALLPermissionsMap
-      __mergeSourcePermissionsMapIntoTargetPermissionsMap(
-            grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(connection,
-                                                                                                accessorResource),
-            globalALLPermissionsMap);
-
-      // finally, collect all applicable permissions when accessor has super-user privileges to any domain
-      // and add them into the globalALLPermissionsMap
-      final Map<String, Map<String, Set<ResourcePermission>>> superGlobalResourcePermissionsMap = new HashMap<>();
-      Map<String, Set<ResourcePermission>> superResourcePermissionsMap = null;
-
-      final Map<String, Set<DomainPermission>> effectiveDomainPermissionsMap
-            = __getEffectiveDomainPermissionsMap(connection, accessorResource);
+      // the queries below are independent of each other, and may therefore run concurrently if so configured
+      final SQLQueryFanOut queryFanOut = __getQueryFanOut(connection);
 
-      for (Map.Entry<String, Set<DomainPermission>>
-            effectiveDomainPermissionsByDomainEntry : effectiveDomainPermissionsMap.entrySet()) {
-         final Set<DomainPermission> effectiveDomainPermissions = effectiveDomainPermissionsByDomainEntry.getValue();
-         if (effectiveDomainPermissions.contains(DomainPermission_SUPER_USER)
-               || effectiveDomainPermissions.contains(DomainPermission_SUPER_USER_GRANT)) {
-
-            if (superResourcePermissionsMap == null) {
-               // lazy-construct super-user-privileged resource-permissions map by resource classes
-               final List<String> resourceClassNames = resourceClassPersister.getResourceClassNames(connection);
-               superResourcePermissionsMap = new HashMap<>(resourceClassNames.size());
-               for (String resourceClassName : resourceClassNames) {
-                  final Set<ResourcePermission> applicableResourcePermissions
-                        = __getApplicableResourcePermissions(connection,
-                                                             __getResourceClassInternalInfo(connection,
-                                                                                            resourceClassName));
-
-                  superResourcePermissionsMap.put(resourceClassName, applicableResourcePermissions);
+      try {
+         final SQLQueryFanOut.Result<Map<String, Map<String, Set<ResourcePermission>>>> globalSysPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Map<String, Set<ResourcePermission>>>>() {
+            @Override
+            public Map<String, Map<String, Set<ResourcePermission>>> execute(SQLConnection connection) {
+               return grantGlobalResourcePermissionSysPersister.getGlobalSysPermissionsIncludeInherited(connection,
+                                                                                                       accessorResource);
+            }
+         });
+         final SQLQueryFanOut.Result<Map<String, Map<String, Set<ResourcePermission>>>> globalPermissionsResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Map<String, Set<ResourcePermission>>>>() {
+            @Override
+            public Map<String, Map<String, Set<ResourcePermission>>> execute(SQLConnection connection) {
+               return grantGlobalResourcePermissionPersister.getGlobalResourcePermissionsIncludeInherited(connection,
+                                                                                                         accessorResource);
+            }
+         });
+         final SQLQueryFanOut.Result<Map<String, Set<DomainPermission>>> effectiveDomainPermissionsMapResult
+               = queryFanOut.fork(new SQLQueryFanOut.Query<Map<String, Set<DomainPermission>>>() {
+            @Override
+            public Map<String, Set<DomainPermission>> execute(SQLConnection connection) {
+               return __getEffectiveDomainPermissionsMap(connection, accessorResource);
+            }
+         });
+
+         // collect the system permissions that the accessor has and add it into the globalALLPermissionsMap
+         globalALLPermissionsMap.putAll(globalSysPermissionsResult.get());
+
+         // next collect the non-system permissions that the accessor has and add it into the globalALLPermissionsMap
+         __mergeSourcePermissionsMapIntoTargetPermissionsMap(globalPermissionsResult.get(), globalALLPermissionsMap);
+
+         // finally, collect all applicable permissions when accessor has super-user privileges to any domain
+         // and add them into the globalALLPermissionsMap
+         final Map<String, Map<String, Set<ResourcePermission>>> superGlobalResourcePermissionsMap = new HashMap<>();
+         Map<String, Set<ResourcePermission>> superResourcePermissionsMap = null;
+
+         final Map<String, Set<DomainPermission>> effectiveDomainPermissionsMap = effectiveDomainPermissionsMapResult.get();
+
+         for (Map.Entry<String, Set<DomainPermission>>
+               effectiveDomainPermissionsByDomainEntry : effectiveDomainPermissionsMap.entrySet()) {
+            final Set<DomainPermission> effectiveDomainPermissions = effectiveDomainPermissionsByDomainEntry.getValue();
+            if (effectiveDomainPermissions.contains(DomainPermission_SUPER_USER)
+                  || effectiveDomainPermissions.contains(DomainPermission_SUPER_USER_GRANT)) {
+
+               if (superResourcePermissionsMap == null) {
+                  // lazy-construct super-user-privileged resource-permissions map by resource classes
+                  final List<String> resourceClassNames = resourceClassPersister.getResourceClassNames(connection);
+                  superResourcePermissionsMap = new HashMap<>(resourceClassNames.size());
+                  for (String resourceClassName : resourceClassNames) {
+                     final Set<ResourcePermission> applicableResourcePermissions
+                           = __getApplicableResourcePermissions(connection,
+                                                                __getResourceClassInternalInfo(connection,
+                                                                                               resourceClassName))
+                           .toSet();
+
+                     superResourcePermissionsMap.put(resourceClassName, applicableResourcePermissions);
+                  }
                }
+               superGlobalResourcePermissionsMap.put(effectiveDomainPermissionsByDomainEntry.getKey(),
+                                                     superResourcePermissionsMap);
             }
-            superGlobalResourcePermissionsMap.put(effectiveDomainPermissionsByDomainEntry.getKey(),
-                                                  superResourcePermissionsMap);
          }
-      }
 
-      __mergeSourcePermissionsMapIntoTargetPermissionsMap(superGlobalResourcePermissionsMap, globalALLPermissionsMap);
+         __mergeSourcePermissionsMapIntoTargetPermissionsMap(superGlobalResourcePermissionsMap, globalALLPermissionsMap);
 
-      return __collapseResourcePermissions(globalALLPermissionsMap);
+         return __collapseResourcePermissions(globalALLPermissionsMap);
+      }
+      finally {
+         queryFanOut.cancelOutstanding();
+      }
    }
 
    private void __mergeSourcePermissionsMapIntoTargetPermissionsMap(Map<String, Map<String, Set<ResourcePermission>>> sourcePermissionsMap,
@@ -4880,7 +5423,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
          resource = __resolveResource(connection, resource);
          final ResourceClassInternalInfo resourceClassInternalInfo
-               = resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+               = __getResourceClassInternalInfoByResource(connection, resource);
          return new ResourceClassInfo(resourceClassInternalInfo.getResourceClassName(),
                                       resourceClassInternalInfo.isAuthenticatable(),
                                       resourceClassInternalInfo.isUnauthenticatedCreateAllowed());
@@ -4920,8 +5463,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    public void assertPostCreateDomainPermissions(Resource accessorResource,
                                                  Set<DomainPermission> domainPermissions) {
       if (!hasPostCreateDomainPermissions(accessorResource, domainPermissions)) {
-         throw NotAuthorizedException.newInstanceForPostCreateDomainPermissions(accessorResource,
-                                                                                domainPermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForPostCreateDomainPermissions(accessorResource,
+                                                                                       domainPermissions);
       }
    }
 
@@ -4930,9 +5473,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                                  DomainPermission domainPermission,
                                                  DomainPermission... domainPermissions) {
       if (!hasPostCreateDomainPermissions(accessorResource, domainPermission, domainPermissions)) {
-         throw NotAuthorizedException.newInstanceForPostCreateDomainPermissions(accessorResource,
-                                                                                domainPermission,
-                                                                                domainPermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForPostCreateDomainPermissions(accessorResource,
+                                                                                       domainPermission,
+                                                                                       domainPermissions);
       }
    }
 
@@ -5041,9 +5584,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                        String domainName,
                                        Set<DomainPermission> domainPermissions) {
       if (!hasDomainPermissions(accessorResource, domainName, domainPermissions)) {
-         throw NotAuthorizedException.newInstanceForDomainPermissions(accessorResource,
-                                                                      domainName,
-                                                                      domainPermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForDomainPermissions(accessorResource,
+                                                                             domainName,
+                                                                             domainPermissions);
       }
    }
 
@@ -5053,10 +5596,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                        DomainPermission domainPermission,
                                        DomainPermission... domainPermissions) {
       if (!hasDomainPermissions(accessorResource, domainName, domainPermission, domainPermissions)) {
-         throw NotAuthorizedException.newInstanceForDomainPermissions(accessorResource,
-                                                                      domainName,
-                                                                      domainPermission,
-                                                                      domainPermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForDomainPermissions(accessorResource,
+                                                                             domainName,
+                                                                             domainPermission,
+                                                                             domainPermissions);
       }
    }
 
@@ -5098,6 +5641,21 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertPermissionSpecified(domainPermission);
       __assertVarargPermissionsSpecified(domainPermissions);
 
+      if (domainPermissions.length == 0) {
+         // most checks are for a single permission, which is evaluated without building any intermediate sets
+         final DomainPermission normalizedDomainPermission = DomainPermissions.getInstance(domainPermission);
+
+         try {
+            connection = __getConnection();
+            accessorResource = __resolveResource(connection, accessorResource);
+
+            return __hasDomainPermission(connection, accessorResource, domainName, normalizedDomainPermission);
+         }
+         finally {
+            __closeConnection(connection);
+         }
+      }
+
       final Set<DomainPermission> normalizedDomainPermissions
             = __normalizeDomainPermissions(__getSetWithoutNullsOrDuplicates(domainPermission, domainPermissions));
 
@@ -5112,6 +5670,17 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private boolean __hasDomainPermission(SQLConnection connection,
+                                         Resource accessorResource,
+                                         String domainName,
+                                         DomainPermission requestedDomainPermission) {
+      __assertQueryAuthorization(connection, accessorResource);
+
+      return __isPermissible(requestedDomainPermission,
+                             __getEffectiveDomainPermissions(connection, accessorResource, domainName))
+            || __isSuperUserOfDomain(connection, accessorResource, domainName);
+   }
+
    private boolean __hasDomainPermissions(SQLConnection connection,
                                           Resource accessorResource,
                                           String domainName,
@@ -5143,8 +5712,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    public void assertDomainCreatePermissions(Resource accessorResource,
                                              Set<DomainCreatePermission> domainCreatePermissions) {
       if (!hasDomainCreatePermissions(accessorResource, domainCreatePermissions)) {
-         throw NotAuthorizedException.newInstanceForDomainCreatePermissions(accessorResource,
-                                                                            domainCreatePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForDomainCreatePermissions(accessorResource,
+                                                                                   domainCreatePermissions);
       }
    }
 
@@ -5153,9 +5722,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                              DomainCreatePermission domainCreatePermission,
                                              DomainCreatePermission... domainCreatePermissions) {
       if (!hasDomainCreatePermissions(accessorResource, domainCreatePermission, domainCreatePermissions)) {
-         throw NotAuthorizedException.newInstanceForDomainCreatePermissions(accessorResource,
-                                                                            domainCreatePermission,
-                                                                            domainCreatePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForDomainCreatePermissions(accessorResource,
+                                                                                   domainCreatePermission,
+                                                                                   domainCreatePermissions);
       }
    }
 
@@ -5246,10 +5815,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                             resourceClassName,
                                             domainName,
                                             resourcePermissions)) {
-         throw NotAuthorizedException.newInstanceForPostCreateResourcePermissions(accessorResource,
-                                                                                  resourceClassName,
-                                                                                  domainName,
-                                                                                  resourcePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForPostCreateResourcePermissions(accessorResource,
+                                                                                         resourceClassName,
+                                                                                         domainName,
+                                                                                         resourcePermissions);
       }
    }
 
@@ -5264,11 +5833,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                             domainName,
                                             resourcePermission,
                                             resourcePermissions)) {
-         throw NotAuthorizedException.newInstanceForPostCreateResourcePermissions(accessorResource,
-                                                                                  resourceClassName,
-                                                                                  domainName,
-                                                                                  resourcePermission,
-                                                                                  resourcePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForPostCreateResourcePermissions(accessorResource,
+                                                                                         resourceClassName,
+                                                                                         domainName,
+                                                                                         resourcePermission,
+                                                                                         resourcePermissions);
       }
    }
 
@@ -5381,7 +5950,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
          if (!nonPostCreateResourcePermissions.isEmpty()) {
             // check if the requested permission is permissible from the set of effective global permissions
-            final Set<ResourcePermission> globalResourcePermissions
+            final ResourcePermissionBits globalResourcePermissions
                   = __getEffectiveGlobalResourcePermissions(connection,
                                                             accessorResource,
                                                             resourceClassName,
@@ -5405,13 +5974,14 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private boolean __isPermissible(ResourcePermission queriedResourcePermission,
                                    Set<ResourcePermission> resourcePermissions) {
-      for (ResourcePermission resourcePermission : resourcePermissions) {
-         if (queriedResourcePermission.equals(resourcePermission)
-               || queriedResourcePermission.isGrantableFrom(resourcePermission)) {
-            return true;
-         }
-      }
-      return false;
+      return resourcePermissions.contains(queriedResourcePermission)
+            || resourcePermissions.contains(ResourcePermissions
+                                                  .getInstanceWithGrantOption(queriedResourcePermission.getPermissionName()));
+   }
+
+   private boolean __isPermissible(ResourcePermission queriedResourcePermission,
+                                   ResourcePermissionBits resourcePermissions) {
+      return resourcePermissions.isPermissible(queriedResourcePermission);
    }
 
    @Override
@@ -5423,10 +5993,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         resourceClassName,
                                         domainName,
                                         resourcePermissions)) {
-         throw NotAuthorizedException.newInstanceForGlobalResourcePermissions(accessorResource,
-                                                                              resourceClassName,
-                                                                              domainName,
-                                                                              resourcePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForGlobalResourcePermissions(accessorResource,
+                                                                                     resourceClassName,
+                                                                                     domainName,
+                                                                                     resourcePermissions);
       }
    }
 
@@ -5441,11 +6011,11 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         domainName,
                                         resourcePermission,
                                         resourcePermissions)) {
-         throw NotAuthorizedException.newInstanceForGlobalResourcePermissions(accessorResource,
-                                                                              resourceClassName,
-                                                                              domainName,
-                                                                              resourcePermission,
-                                                                              resourcePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForGlobalResourcePermissions(accessorResource,
+                                                                                     resourceClassName,
+                                                                                     domainName,
+                                                                                     resourcePermission,
+                                                                                     resourcePermissions);
       }
    }
 
@@ -5497,6 +6067,27 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertPermissionSpecified(resourcePermission);
       __assertVarargPermissionsSpecified(resourcePermissions);
 
+      if (resourcePermissions.length == 0) {
+         // most checks are for a single permission, which is evaluated without building any intermediate sets
+         final ResourcePermission normalizedResourcePermission = ResourcePermissions.getInstance(resourcePermission);
+
+         try {
+            connection = __getConnection();
+            accessorResource = __resolveResource(connection, accessorResource);
+            resourceClassName = resourceClassName.trim();
+            domainName = domainName.trim();
+
+            return __hasGlobalResourcePermission(connection,
+                                                 accessorResource,
+                                                 resourceClassName,
+                                                 domainName,
+                                                 normalizedResourcePermission);
+         }
+         finally {
+            __closeConnection(connection);
+         }
+      }
+
       final Set<ResourcePermission> normalizedResourcePermissions
             = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
 
@@ -5517,6 +6108,24 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private boolean __hasGlobalResourcePermission(SQLConnection connection,
+                                                 Resource accessorResource,
+                                                 String resourceClassName,
+                                                 String domainName,
+                                                 ResourcePermission requestedResourcePermission) {
+      __assertPermissionValid(connection,
+                              __getResourceClassInternalInfo(connection, resourceClassName),
+                              requestedResourcePermission);
+      __assertQueryAuthorization(connection, accessorResource);
+
+      return __isPermissible(requestedResourcePermission,
+                             __getEffectiveGlobalResourcePermissions(connection,
+                                                                     accessorResource,
+                                                                     resourceClassName,
+                                                                     domainName))
+            || __isSuperUserOfDomain(connection, accessorResource, domainName);
+   }
+
    private boolean __hasGlobalResourcePermissions(SQLConnection connection,
                                                   Resource accessorResource,
                                                   String resourceClassName,
@@ -5525,7 +6134,7 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertPermissionsValid(connection, resourceClassName, requestedResourcePermissions);
       __assertQueryAuthorization(connection, accessorResource);
 
-      final Set<ResourcePermission>
+      final ResourcePermissionBits
             globalResourcePermissions = __getEffectiveGlobalResourcePermissions(connection,
                                                                                 accessorResource,
                                                                                 resourceClassName,
@@ -5550,9 +6159,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                          Resource accessedResource,
                                          Set<ResourcePermission> resourcePermissions) {
       if (!hasResourcePermissions(accessorResource, accessedResource, resourcePermissions)) {
-         throw NotAuthorizedException.newInstanceForResourcePermissions(accessorResource,
-                                                                        accessedResource,
-                                                                        resourcePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForResourcePermissions(accessorResource,
+                                                                               accessedResource,
+                                                                               resourcePermissions);
       }
    }
 
@@ -5562,10 +6171,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                          ResourcePermission resourcePermission,
                                          ResourcePermission... resourcePermissions) {
       if (!hasResourcePermissions(accessorResource, accessedResource, resourcePermission, resourcePermissions)) {
-         throw NotAuthorizedException.newInstanceForResourcePermissions(accessorResource,
-                                                                        accessedResource,
-                                                                        resourcePermission,
-                                                                        resourcePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForResourcePermissions(accessorResource,
+                                                                               accessedResource,
+                                                                               resourcePermission,
+                                                                               resourcePermissions);
       }
    }
 
@@ -5608,6 +6217,22 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertPermissionSpecified(resourcePermission);
       __assertVarargPermissionsSpecified(resourcePermissions);
 
+      if (resourcePermissions.length == 0) {
+         // most checks are for a single permission, which is evaluated without building any intermediate sets
+         final ResourcePermission normalizedResourcePermission = ResourcePermissions.getInstance(resourcePermission);
+
+         try {
+            connection = __getConnection();
+            accessorResource = __resolveResource(connection, accessorResource);
+            accessedResource = __resolveResource(connection, accessedResource);
+
+            return __hasResourcePermission(connection, accessorResource, accessedResource, normalizedResourcePermission);
+         }
+         finally {
+            __closeConnection(connection);
+         }
+      }
+
       final Set<ResourcePermission> normalizedResourcePermissions
             = __normalizeResourcePermission(__getSetWithoutNullsOrDuplicates(resourcePermission, resourcePermissions));
 
@@ -5623,6 +6248,22 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private boolean __hasResourcePermission(SQLConnection connection,
+                                           Resource accessorResource,
+                                           Resource accessedResource,
+                                           ResourcePermission requestedResourcePermission) {
+      __assertQueryAuthorization(connection, accessorResource);
+
+      final ResourceClassInternalInfo resourceClassInternalInfo
+            = __getResourceClassInternalInfoByResource(connection, accessedResource);
+      __assertPermissionValid(connection, resourceClassInternalInfo, requestedResourcePermission);
+
+      // first check for effective permissions, then for super-user permissions to the domain of the accessed resource
+      return __isPermissible(requestedResourcePermission,
+                             __getEffectiveResourcePermissions(connection, accessorResource, accessedResource))
+            || __isSuperUserOfResource(connection, accessorResource, accessedResource);
+   }
+
    private boolean __hasResourcePermissions(SQLConnection connection,
                                             Resource accessorResource,
                                             Resource accessedResource,
@@ -5630,13 +6271,13 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       __assertQueryAuthorization(connection, accessorResource);
 
       final ResourceClassInternalInfo resourceClassInternalInfo
-            = resourceClassPersister.getResourceClassInfoByResourceId(connection, accessedResource);
+            = __getResourceClassInternalInfoByResource(connection, accessedResource);
       __assertPermissionsValid(connection,
                                resourceClassInternalInfo.getResourceClassName(),
                                requestedResourcePermissions);
 
       // first check for effective permissions
-      final Set<ResourcePermission> effectiveResourcePermissions
+      final ResourcePermissionBits effectiveResourcePermissions
             = __getEffectiveResourcePermissions(connection,
                                                 accessorResource,
                                                 accessedResource);
@@ -5670,8 +6311,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         resourceClassName,
                                         domainName,
                                         resourceCreatePermissions)) {
-         throw NotAuthorizedException.newInstanceForResourceCreatePermissions(accessorResource,
-                                                                              resourceCreatePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForResourceCreatePermissions(accessorResource,
+                                                                                     resourceCreatePermissions);
       }
    }
 
@@ -5686,9 +6327,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
                                         domainName,
                                         resourceCreatePermission,
                                         resourceCreatePermissions)) {
-         throw NotAuthorizedException.newInstanceForResourceCreatePermissions(accessorResource,
-                                                                              resourceCreatePermission,
-                                                                              resourceCreatePermissions);
+         throw notAuthorizedExceptionFactory.newInstanceForResourceCreatePermissions(accessorResource,
+                                                                                     resourceCreatePermission,
+                                                                                     resourceCreatePermissions);
       }
    }
 
@@ -5872,13 +6513,35 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
-   private Set<Resource> __getResourcesByPermissions(SQLConnection connection,
-                                                     Resource accessorResource,
-                                                     String resourceClassName,
-                                                     Set<ResourcePermission> requestedResourcePermissions) {
+   private Set<Resource> __getResourcesByPermissions(final SQLConnection connection,
+                                                     final Resource accessorResource,
+                                                     final String resourceClassName,
+                                                     final Set<ResourcePermission> requestedResourcePermissions) {
+      if (readCoalescer == null) {
+         return __queryResourcesByPermissions(connection,
+                                              accessorResource,
+                                              resourceClassName,
+                                              requestedResourcePermissions);
+      }
+
+      // the coalesced result is shared with concurrent callers, so we return a copy
+      return new ResourceSet(readCoalescer.coalesce(new SQLReadCoalescer.Lookup<Set<Resource>>() {
+         @Override
+         public Set<Resource> run() {
+            return __queryResourcesByPermissions(connection,
+                                                 accessorResource,
+                                                 resourceClassName,
+                                                 requestedResourcePermissions);
+         }
+      }, "resourcesByPermissions", accessorResource.getId(), resourceClassName, requestedResourcePermissions));
+   }
+
+   private Set<Resource> __queryResourcesByPermissions(SQLConnection connection,
+                                                       Resource accessorResource,
+                                                       String resourceClassName,
+                                                       Set<ResourcePermission> requestedResourcePermissions) {
       // first verify that resource class is defined
       Id<ResourceClassId> resourceClassId;
-      Id<ResourcePermissionId> permissionId;
 
       resourceClassId = resourceClassPersister.getResourceClassId(connection, resourceClassName);
 
@@ -5889,105 +6552,37 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // verify permissions are valid for resource class
       __assertPermissionsValid(connection, resourceClassName, requestedResourcePermissions);
 
-      Set<Resource> resources = new HashSet<>();
+      return __intersectResourcesByPermissions(connection,
+                                               accessorResource,
+                                               resourceClassName,
+                                               resourceClassId,
+                                               null,
+                                               requestedResourcePermissions);
+   }
 
-      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
-         Set<Resource> currentResources = new HashSet<>();
+   @Override
+   public Set<Resource> getResourcesByResourcePermissionsAndDomain(Resource accessorResource,
+                                                                   String resourceClassName,
+                                                                   String domainName,
+                                                                   Set<ResourcePermission> resourcePermissions) {
+      SQLConnection connection = null;
 
-         if (resourcePermission.isSystemPermission()) {
-            // get the list of objects of the specified type that the session has access to via direct permissions
-            currentResources.addAll(grantResourcePermissionSysPersister
-                                          .getResourcesByResourceSysPermission(connection,
-                                                                               accessorResource,
-                                                                               resourceClassId,
-                                                                               resourcePermission));
+      __assertAuthenticated();
+      __assertResourceSpecified(accessorResource);
+      __assertResourceClassSpecified(resourceClassName);
+      __assertDomainSpecified(domainName);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
 
-            // get the list of objects of the specified type that the session has access to via global permissions
-            currentResources.addAll(grantGlobalResourcePermissionSysPersister
-                                          .getResourcesByGlobalSysPermission(connection,
-                                                                             accessorResource,
-                                                                             resourceClassId,
-                                                                             resourcePermission));
-         }
-         else {
-            // check if the non-system permission name is valid
-            permissionId = resourceClassPermissionPersister.getResourceClassPermissionId(connection,
-                                                                                         resourceClassId,
-                                                                                         resourcePermission
-                                                                                               .getPermissionName());
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
 
-            if (permissionId == null) {
-               throw new IllegalArgumentException("Permission: " + resourcePermission + " is not defined for resource class: " + resourceClassName);
-            }
+      try {
+         connection = __getConnection();
 
-            // get the list of objects of the specified type that the session has access to via direct permissions
-            currentResources.addAll(grantResourcePermissionPersister
-                                          .getResourcesByResourcePermission(connection,
-                                                                            accessorResource,
-                                                                            resourceClassId,
-                                                                            resourcePermission,
-                                                                            permissionId));
+         accessorResource = __resolveResource(connection, accessorResource);
+         __assertQueryAuthorization(connection, accessorResource);
 
-            // get the list of objects of the specified type that the session has access to via global permissions
-            currentResources.addAll(grantGlobalResourcePermissionPersister
-                                          .getResourcesByGlobalResourcePermission(connection,
-                                                                                  accessorResource,
-                                                                                  resourceClassId,
-                                                                                  resourcePermission,
-                                                                                  permissionId));
-         }
-
-         if (currentResources.isEmpty()) {
-            // we got an empty set for a permission, we are done since this and all future intersects will be empty
-            resources = currentResources;
-            break;
-         }
-         else {
-            // the only way resources will be empty below is if we never entered this else clause before
-            if (resources.isEmpty()) {
-               resources = currentResources;
-            }
-            else {
-               // compute the intersection of previous iterations and the current resources
-               resources.retainAll(currentResources);
-               if (resources.isEmpty()) {
-                  // if intersection with previous results is empty, then all future intersections will be empty, as well
-                  break;
-               }
-            }
-         }
-      }
-
-      // finally get the list of objects of the specified type that the session has access to via super user permissions
-      resources.addAll(grantDomainPermissionSysPersister.getResourcesByDomainSuperUserPermission(connection,
-                                                                                                 accessorResource,
-                                                                                                 resourceClassId));
-      return resources;
-   }
-
-   @Override
-   public Set<Resource> getResourcesByResourcePermissionsAndDomain(Resource accessorResource,
-                                                                   String resourceClassName,
-                                                                   String domainName,
-                                                                   Set<ResourcePermission> resourcePermissions) {
-      SQLConnection connection = null;
-
-      __assertAuthenticated();
-      __assertResourceSpecified(accessorResource);
-      __assertResourceClassSpecified(resourceClassName);
-      __assertDomainSpecified(domainName);
-      __assertPermissionsSpecified(resourcePermissions);
-      __assertPermissionsSetNotEmpty(resourcePermissions);
-
-      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
-
-      try {
-         connection = __getConnection();
-
-         accessorResource = __resolveResource(connection, accessorResource);
-         __assertQueryAuthorization(connection, accessorResource);
-
-         resourceClassName = resourceClassName.trim();
+         resourceClassName = resourceClassName.trim();
 
          return __getResourcesByPermissionsAndDomain(connection,
                                                      accessorResource,
@@ -6037,15 +6632,40 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
-   private Set<Resource> __getResourcesByPermissionsAndDomain(SQLConnection connection,
-                                                              Resource accessorResource,
-                                                              String resourceClassName,
-                                                              String domainName,
-                                                              Set<ResourcePermission> requestedResourcePermissions) {
+   private Set<Resource> __getResourcesByPermissionsAndDomain(final SQLConnection connection,
+                                                              final Resource accessorResource,
+                                                              final String resourceClassName,
+                                                              final String domainName,
+                                                              final Set<ResourcePermission> requestedResourcePermissions) {
+      if (readCoalescer == null) {
+         return __queryResourcesByPermissionsAndDomain(connection,
+                                                       accessorResource,
+                                                       resourceClassName,
+                                                       domainName,
+                                                       requestedResourcePermissions);
+      }
+
+      // the coalesced result is shared with concurrent callers, so we return a copy
+      return new ResourceSet(readCoalescer.coalesce(new SQLReadCoalescer.Lookup<Set<Resource>>() {
+         @Override
+         public Set<Resource> run() {
+            return __queryResourcesByPermissionsAndDomain(connection,
+                                                          accessorResource,
+                                                          resourceClassName,
+                                                          domainName,
+                                                          requestedResourcePermissions);
+         }
+      }, "resourcesByPermissionsAndDomain", accessorResource.getId(), resourceClassName, domainName, requestedResourcePermissions));
+   }
+
+   private Set<Resource> __queryResourcesByPermissionsAndDomain(SQLConnection connection,
+                                                                Resource accessorResource,
+                                                                String resourceClassName,
+                                                                String domainName,
+                                                                Set<ResourcePermission> requestedResourcePermissions) {
       // first verify that resource class and domain is defined
       Id<ResourceClassId> resourceClassId;
       Id<DomainId> domainId;
-      Id<ResourcePermissionId> permissionId;
 
       resourceClassId = resourceClassPersister.getResourceClassId(connection, resourceClassName);
 
@@ -6062,57 +6682,39 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // verify permissions are valid for resource class
       __assertPermissionsValid(connection, resourceClassName, requestedResourcePermissions);
 
-      Set<Resource> resources = new HashSet<>();
-
-      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
-         Set<Resource> currentResources = new HashSet<>();
-
-         if (resourcePermission.isSystemPermission()) {
-            // get the list of objects of the specified type that the session has access to via direct permissions
-            currentResources.addAll(grantResourcePermissionSysPersister
-                                          .getResourcesByResourceSysPermission(connection,
-                                                                               accessorResource,
-                                                                               resourceClassId,
-                                                                               domainId,
-                                                                               resourcePermission));
+      return __intersectResourcesByPermissions(connection,
+                                               accessorResource,
+                                               resourceClassName,
+                                               resourceClassId,
+                                               domainId,
+                                               requestedResourcePermissions);
+   }
 
-            // get the list of objects of the specified type that the session has access to via global permissions
-            currentResources.addAll(grantGlobalResourcePermissionSysPersister
-                                          .getResourcesByGlobalSysPermission(connection,
-                                                                             accessorResource,
-                                                                             resourceClassId,
-                                                                             domainId,
-                                                                             resourcePermission));
-         }
-         else {
-            // check if the non-system permission name is valid
-            permissionId = resourceClassPermissionPersister.getResourceClassPermissionId(connection,
-                                                                                         resourceClassId,
-                                                                                         resourcePermission
-                                                                                               .getPermissionName());
+   private Set<Resource> __intersectResourcesByPermissions(SQLConnection connection,
+                                                           Resource accessorResource,
+                                                           String resourceClassName,
+                                                           Id<ResourceClassId> resourceClassId,
+                                                           Id<DomainId> domainId,
+                                                           Set<ResourcePermission> requestedResourcePermissions) {
+      if (resourceIndex != null) {
+         return __getIndexedResourcesByPermissions(connection,
+                                                   accessorResource,
+                                                   resourceClassName,
+                                                   resourceClassId,
+                                                   domainId,
+                                                   requestedResourcePermissions);
+      }
 
-            if (permissionId == null) {
-               throw new IllegalArgumentException("Permission: " + resourcePermission + " is not defined for resource class: " + resourceClassName);
-            }
+      ResourceSet resources = new ResourceSet();
 
-            // get the list of objects of the specified type that the session has access to via direct permissions
-            currentResources.addAll(grantResourcePermissionPersister
-                                          .getResourcesByResourcePermission(connection,
-                                                                            accessorResource,
-                                                                            resourceClassId,
-                                                                            domainId,
-                                                                            resourcePermission,
-                                                                            permissionId));
+      for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+         ResourceSet currentResources = __getResourcesByPermission(connection,
+                                                                   accessorResource,
+                                                                   resourceClassName,
+                                                                   resourceClassId,
+                                                                   domainId,
+                                                                   resourcePermission);
 
-            // get the list of objects of the specified type that the session has access to via global permissions
-            currentResources.addAll(grantGlobalResourcePermissionPersister
-                                          .getResourcesByGlobalResourcePermission(connection,
-                                                                                  accessorResource,
-                                                                                  resourceClassId,
-                                                                                  domainId,
-                                                                                  resourcePermission,
-                                                                                  permissionId));
-         }
          if (currentResources.isEmpty()) {
             // we got an empty set for a permission, we are done since this and all future intersects will be empty
             resources = currentResources;
@@ -6135,13 +6737,182 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
 
       // finally get the list of objects of the specified type that the session has access to via super user permissions
-      resources.addAll(grantDomainPermissionSysPersister.getResourcesByDomainSuperUserPermission(connection,
-                                                                                                 accessorResource,
-                                                                                                 resourceClassId,
-                                                                                                 domainId));
+      resources.addAll(__getResourcesBySuperUserPermission(connection, accessorResource, resourceClassId, domainId));
       return resources;
    }
 
+   private Set<Resource> __getIndexedResourcesByPermissions(final SQLConnection connection,
+                                                            final Resource accessorResource,
+                                                            final String resourceClassName,
+                                                            final Id<ResourceClassId> resourceClassId,
+                                                            final Id<DomainId> domainId,
+                                                            Set<ResourcePermission> requestedResourcePermissions) {
+      final Long indexedDomainId = domainId == null ? null : domainId.getValue();
+      ResourceBitmapIndex.IndexedResources permittedResources = null;
+      ResourceBitmap resourceIds = null;
+
+      for (final ResourcePermission resourcePermission : requestedResourcePermissions) {
+         final ResourceBitmapIndex.IndexedResources currentResources
+               = resourceIndex.getResources(accessorResource.getId(),
+                                            resourceClassId.getValue(),
+                                            indexedDomainId,
+                                            resourcePermission,
+                                            new ResourceBitmapIndex.Loader() {
+                                               @Override
+                                               public Set<Resource> load() {
+                                                  return __getResourcesByPermission(connection,
+                                                                                    accessorResource,
+                                                                                    resourceClassName,
+                                                                                    resourceClassId,
+                                                                                    domainId,
+                                                                                    resourcePermission);
+                                               }
+                                            });
+
+         // intersect the bitmaps, and stop as soon as the intersection is empty; the intersection is a subset of
+         // the first bitmap, so the external ids of the first indexed resources cover all of it
+         if (permittedResources == null) {
+            permittedResources = currentResources;
+            resourceIds = currentResources.getResourceIds();
+         }
+         else {
+            resourceIds = resourceIds.and(currentResources.getResourceIds());
+         }
+         if (resourceIds.isEmpty()) {
+            break;
+         }
+      }
+
+      // finally add the resources of the specified type that the session has access to via super user permissions
+      final ResourceBitmapIndex.IndexedResources superUserResources
+            = resourceIndex.getResources(accessorResource.getId(),
+                                         resourceClassId.getValue(),
+                                         indexedDomainId,
+                                         null,
+                                         new ResourceBitmapIndex.Loader() {
+                                            @Override
+                                            public Set<Resource> load() {
+                                               return __getResourcesBySuperUserPermission(connection,
+                                                                                          accessorResource,
+                                                                                          resourceClassId,
+                                                                                          domainId);
+                                            }
+                                         });
+
+      return ResourceBitmapIndex.toResources(resourceIds.or(superUserResources.getResourceIds()),
+                                             permittedResources,
+                                             superUserResources);
+   }
+
+   private ResourceSet __getResourcesByPermission(SQLConnection connection,
+                                                  Resource accessorResource,
+                                                  String resourceClassName,
+                                                  Id<ResourceClassId> resourceClassId,
+                                                  Id<DomainId> domainId,
+                                                  ResourcePermission resourcePermission) {
+      final ResourceSet resources = new ResourceSet();
+
+      if (resourcePermission.isSystemPermission()) {
+         if (domainId == null) {
+            // get the list of objects of the specified type that the session has access to via direct permissions
+            resources.addAll(grantResourcePermissionSysPersister
+                                   .getResourcesByResourceSysPermission(connection,
+                                                                        accessorResource,
+                                                                        resourceClassId,
+                                                                        resourcePermission));
+
+            // get the list of objects of the specified type that the session has access to via global permissions
+            resources.addAll(grantGlobalResourcePermissionSysPersister
+                                   .getResourcesByGlobalSysPermission(connection,
+                                                                      accessorResource,
+                                                                      resourceClassId,
+                                                                      resourcePermission));
+         }
+         else {
+            // get the list of objects of the specified type that the session has access to via direct permissions
+            resources.addAll(grantResourcePermissionSysPersister
+                                   .getResourcesByResourceSysPermission(connection,
+                                                                        accessorResource,
+                                                                        resourceClassId,
+                                                                        domainId,
+                                                                        resourcePermission));
+
+            // get the list of objects of the specified type that the session has access to via global permissions
+            resources.addAll(grantGlobalResourcePermissionSysPersister
+                                   .getResourcesByGlobalSysPermission(connection,
+                                                                      accessorResource,
+                                                                      resourceClassId,
+                                                                      domainId,
+                                                                      resourcePermission));
+         }
+      }
+      else {
+         // check if the non-system permission name is valid
+         final Id<ResourcePermissionId> permissionId
+               = resourceClassPermissionPersister.getResourceClassPermissionId(connection,
+                                                                               resourceClassId,
+                                                                               resourcePermission.getPermissionName());
+
+         if (permissionId == null) {
+            throw new IllegalArgumentException("Permission: " + resourcePermission + " is not defined for resource class: " + resourceClassName);
+         }
+
+         if (domainId == null) {
+            // get the list of objects of the specified type that the session has access to via direct permissions
+            resources.addAll(grantResourcePermissionPersister
+                                   .getResourcesByResourcePermission(connection,
+                                                                     accessorResource,
+                                                                     resourceClassId,
+                                                                     resourcePermission,
+                                                                     permissionId));
+
+            // get the list of objects of the specified type that the session has access to via global permissions
+            resources.addAll(grantGlobalResourcePermissionPersister
+                                   .getResourcesByGlobalResourcePermission(connection,
+                                                                           accessorResource,
+                                                                           resourceClassId,
+                                                                           resourcePermission,
+                                                                           permissionId));
+         }
+         else {
+            // get the list of objects of the specified type that the session has access to via direct permissions
+            resources.addAll(grantResourcePermissionPersister
+                                   .getResourcesByResourcePermission(connection,
+                                                                     accessorResource,
+                                                                     resourceClassId,
+                                                                     domainId,
+                                                                     resourcePermission,
+                                                                     permissionId));
+
+            // get the list of objects of the specified type that the session has access to via global permissions
+            resources.addAll(grantGlobalResourcePermissionPersister
+                                   .getResourcesByGlobalResourcePermission(connection,
+                                                                           accessorResource,
+                                                                           resourceClassId,
+                                                                           domainId,
+                                                                           resourcePermission,
+                                                                           permissionId));
+         }
+      }
+
+      return resources;
+   }
+
+   private Set<Resource> __getResourcesBySuperUserPermission(SQLConnection connection,
+                                                             Resource accessorResource,
+                                                             Id<ResourceClassId> resourceClassId,
+                                                             Id<DomainId> domainId) {
+      if (domainId == null) {
+         return grantDomainPermissionSysPersister.getResourcesByDomainSuperUserPermission(connection,
+                                                                                          accessorResource,
+                                                                                          resourceClassId);
+      }
+      return grantDomainPermissionSysPersister.getResourcesByDomainSuperUserPermission(connection,
+                                                                                       accessorResource,
+                                                                                       resourceClassId,
+                                                                                       domainId);
+   }
+
    @Override
    public Set<Resource> getAccessorResourcesByResourcePermissions(Resource accessedResource,
                                                                   String resourceClassName,
@@ -6208,6 +6979,61 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   @Override
+   public List<Resource> getAccessorResourcesByResourcePermissionsPaged(Resource accessedResource,
+                                                                        Set<ResourcePermission> resourcePermissions,
+                                                                        boolean includeIndirectAccessors,
+                                                                        Resource afterAccessorResource,
+                                                                        int pageSize) {
+      SQLConnection connection = null;
+
+      __assertAuthenticated();
+      __assertResourceSpecified(accessedResource);
+      __assertPermissionsSpecified(resourcePermissions);
+      __assertPermissionsSetNotEmpty(resourcePermissions);
+      if (pageSize < 1) {
+         throw new IllegalArgumentException("Page size must be at least 1, but was: " + pageSize);
+      }
+
+      final Set<ResourcePermission> normalizedResourcePermissions = __normalizeResourcePermission(resourcePermissions);
+
+      try {
+         connection = __getConnection();
+
+         accessedResource = __resolveResource(connection, accessedResource);
+         __assertQueryAuthorization(connection, accessedResource);
+
+         // the id of the last accessor of the previous page is used as is, so that paging continues even if
+         // that accessor has been deleted since
+         final long afterAccessorResourceId;
+         if (afterAccessorResource == null) {
+            afterAccessorResourceId = Long.MIN_VALUE;
+         }
+         else if (afterAccessorResource.getId() != null) {
+            afterAccessorResourceId = afterAccessorResource.getId();
+         }
+         else {
+            afterAccessorResourceId = __resolveResource(connection, afterAccessorResource).getId();
+         }
+
+         final List<Resource> pageResources = new ArrayList<>();
+         for (long accessorResourceId : __getAccessorResourceIdsByResourcePermissions(connection,
+                                                                                     accessedResource,
+                                                                                     normalizedResourcePermissions,
+                                                                                     includeIndirectAccessors,
+                                                                                     afterAccessorResourceId,
+                                                                                     pageSize)) {
+            pageResources.add(Resources.getInstance(accessorResourceId));
+         }
+
+         // only resolve the resources of the requested page
+         return __resolveResources(connection, pageResources);
+      }
+      finally {
+         __closeConnection(connection);
+      }
+   }
+
    private Set<Resource> __getAccessorResourcesByResourcePermissions(SQLConnection connection,
                                                                      Resource accessedResource,
                                                                      String resourceClassName,
@@ -6225,10 +7051,10 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       // verify permissions are valid for the resource class
       __assertPermissionsValid(connection, resourceClassName, requestedResourcePermissions);
 
-      Set<Resource> resources = new HashSet<>();
+      ResourceSet resources = new ResourceSet();
 
       for (ResourcePermission resourcePermission : requestedResourcePermissions) {
-         Set<Resource> currentResources = new HashSet<>();
+         ResourceSet currentResources = new ResourceSet();
 
          if (resourcePermission.isSystemPermission()) {
             // get the list of objects of the specified type that the session has access to via direct permissions
@@ -6281,6 +7107,175 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       return resources;
    }
 
+   /**
+    * Returns the ids of the first <code>maxCount</code> accessors, in ascending order, that are greater than
+    * <code>afterAccessorResourceId</code> and have all the specified permissions to the accessed resource.
+    * <p/>
+    * The accessors are fetched in ascending order in bounded batches of the first permission, each of which is then
+    * intersected with the accessors of the other permissions within the id range of the batch, so that neither
+    * the accessors before the requested page nor those after it are fetched.
+    */
+   private long[] __getAccessorResourceIdsByResourcePermissions(SQLConnection connection,
+                                                                Resource accessedResource,
+                                                                Set<ResourcePermission> requestedResourcePermissions,
+                                                                boolean includeIndirectAccessors,
+                                                                long afterAccessorResourceId,
+                                                                int maxCount) {
+      final ResourceClassInternalInfo resourceClassInternalInfo
+            = __getResourceClassInternalInfoByResource(connection, accessedResource);
+      final Id<ResourceClassId> resourceClassId = Id.from(resourceClassInternalInfo.getResourceClassId());
+      final Id<DomainId> resourceDomainId = __getResourceDomainId(connection, accessedResource);
+
+      // verify permissions are valid for the resource class
+      __assertPermissionsValid(connection, resourceClassInternalInfo.getResourceClassName(), requestedResourcePermissions);
+
+      // look up the ids of the non-system permissions once, rather than for every batch
+      final List<ResourcePermission> resourcePermissions = new ArrayList<>(requestedResourcePermissions);
+      final List<Id<ResourcePermissionId>> resourcePermissionIds = new ArrayList<>(resourcePermissions.size());
+      for (ResourcePermission resourcePermission : resourcePermissions) {
+         if (resourcePermission.isSystemPermission()) {
+            resourcePermissionIds.add(null);
+         }
+         else {
+            // check if the non-system permission name is valid
+            final Id<ResourcePermissionId> permissionId
+                  = resourceClassPermissionPersister.getResourceClassPermissionId(connection,
+                                                                                  resourceClassId,
+                                                                                  resourcePermission
+                                                                                        .getPermissionName());
+
+            if (permissionId == null) {
+               throw new IllegalArgumentException("Permission: " + resourcePermission
+                                                        + " is not defined for resource class: "
+                                                        + resourceClassInternalInfo.getResourceClassName());
+            }
+            resourcePermissionIds.add(permissionId);
+         }
+      }
+
+      long[] accessorResourceIds = new long[0];
+      long batchAfterAccessorResourceId = afterAccessorResourceId;
+
+      while (accessorResourceIds.length < maxCount) {
+         final int batchSize = maxCount - accessorResourceIds.length;
+         long[] batchResourceIds = __getAccessorResourceIdsByResourcePermission(connection,
+                                                                                accessedResource,
+                                                                                resourceClassId,
+                                                                                resourceDomainId,
+                                                                                resourcePermissions.get(0),
+                                                                                resourcePermissionIds.get(0),
+                                                                                includeIndirectAccessors,
+                                                                                batchAfterAccessorResourceId,
+                                                                                Long.MAX_VALUE,
+                                                                                batchSize);
+         if (batchResourceIds.length == 0) {
+            break;
+         }
+         final boolean isLastBatch = batchResourceIds.length < batchSize;
+         final long batchUpToAccessorResourceId = batchResourceIds[batchResourceIds.length - 1];
+
+         // intersect the batch with the accessors of the other permissions in the same range
+         for (int i = 1; i < resourcePermissions.size() && batchResourceIds.length > 0; i++) {
+            batchResourceIds = __intersectSorted(batchResourceIds,
+                                                 __getAccessorResourceIdsByResourcePermission(connection,
+                                                                                              accessedResource,
+                                                                                              resourceClassId,
+                                                                                              resourceDomainId,
+                                                                                              resourcePermissions.get(i),
+                                                                                              resourcePermissionIds.get(i),
+                                                                                              includeIndirectAccessors,
+                                                                                              batchAfterAccessorResourceId,
+                                                                                              batchUpToAccessorResourceId,
+                                                                                              Integer.MAX_VALUE));
+         }
+
+         final int accessorResourceIdCount = accessorResourceIds.length;
+         accessorResourceIds = Arrays.copyOf(accessorResourceIds, accessorResourceIdCount + batchResourceIds.length);
+         System.arraycopy(batchResourceIds, 0, accessorResourceIds, accessorResourceIdCount, batchResourceIds.length);
+
+         if (isLastBatch) {
+            break;
+         }
+         batchAfterAccessorResourceId = batchUpToAccessorResourceId;
+      }
+
+      return accessorResourceIds;
+   }
+
+   private long[] __getAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                               Resource accessedResource,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               Id<DomainId> resourceDomainId,
+                                                               ResourcePermission resourcePermission,
+                                                               Id<ResourcePermissionId> resourcePermissionId,
+                                                               boolean includeIndirectAccessors,
+                                                               long afterAccessorResourceId,
+                                                               long upToAccessorResourceId,
+                                                               int maxCount) {
+      if (resourcePermission.isSystemPermission()) {
+         if (includeIndirectAccessors) {
+            return grantResourcePermissionSysPersister
+                  .getEffectiveAccessorResourceIdsByResourceSysPermission(connection,
+                                                                          accessedResource,
+                                                                          resourceClassId,
+                                                                          resourceDomainId,
+                                                                          resourcePermission,
+                                                                          afterAccessorResourceId,
+                                                                          upToAccessorResourceId,
+                                                                          maxCount);
+         }
+         return grantResourcePermissionSysPersister.getAccessorResourceIdsByResourceSysPermission(connection,
+                                                                                                  accessedResource,
+                                                                                                  resourceClassId,
+                                                                                                  resourcePermission,
+                                                                                                  afterAccessorResourceId,
+                                                                                                  upToAccessorResourceId,
+                                                                                                  maxCount);
+      }
+
+      if (includeIndirectAccessors) {
+         return grantResourcePermissionPersister
+               .getEffectiveAccessorResourceIdsByResourcePermission(connection,
+                                                                    accessedResource,
+                                                                    resourceClassId,
+                                                                    resourceDomainId,
+                                                                    resourcePermission,
+                                                                    resourcePermissionId,
+                                                                    afterAccessorResourceId,
+                                                                    upToAccessorResourceId,
+                                                                    maxCount);
+      }
+      return grantResourcePermissionPersister.getAccessorResourceIdsByResourcePermission(connection,
+                                                                                         accessedResource,
+                                                                                         resourceClassId,
+                                                                                         resourcePermission,
+                                                                                         resourcePermissionId,
+                                                                                         afterAccessorResourceId,
+                                                                                         upToAccessorResourceId,
+                                                                                         maxCount);
+   }
+
+   private static long[] __intersectSorted(long[] resourceIds, long[] otherResourceIds) {
+      final long[] intersection = new long[Math.min(resourceIds.length, otherResourceIds.length)];
+      int intersectionCount = 0;
+      int i = 0;
+      int j = 0;
+      while (i < resourceIds.length && j < otherResourceIds.length) {
+         if (resourceIds[i] < otherResourceIds[j]) {
+            i++;
+         }
+         else if (resourceIds[i] > otherResourceIds[j]) {
+            j++;
+         }
+         else {
+            intersection[intersectionCount++] = resourceIds[i];
+            i++;
+            j++;
+         }
+      }
+      return Arrays.copyOf(intersection, intersectionCount);
+   }
+
    @Override
    public List<String> getResourceClassNames() {
       SQLConnection connection = null;
@@ -6351,12 +7346,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private Resource __resolveResource(SQLConnection connection,
                                       Resource resource) {
-      if (__isEqual(sessionResource, resource)) {
-         return sessionResource;
-      }
-
-      if (__isEqual(authenticatedResource, resource)) {
-         return authenticatedResource;
+      final Resource knownResource = __getKnownResource(resource);
+      if (knownResource != null) {
+         return knownResource;
       }
 
       final Resource resolvedResource;
@@ -6390,7 +7382,153 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
          throw new IllegalArgumentException("A resource id and/or external id is required, but neither was specified");
       }
 
-      return resolvedResource;
+      final Resource issuedResource = __getResolvedResourceIssuer().issue(resolvedResource);
+      if (resourceLocatorCache != null) {
+         resourceLocatorCache.put(issuedResource);
+      }
+      return issuedResource;
+   }
+
+   private List<Resource> __resolveResources(SQLConnection connection,
+                                             Collection<Resource> resources) {
+      return __resolveResources(connection, resources, false);
+   }
+
+   /**
+    * Resolves the specified resources, in the order they were specified.
+    * <p/>
+    * If <code>skipNotFound</code> is <code>true</code> resources that do not exist are left out of the returned list,
+    * otherwise an <code>IllegalArgumentException</code> is thrown for them.
+    */
+   private List<Resource> __resolveResources(SQLConnection connection,
+                                             Collection<Resource> resources,
+                                             boolean skipNotFound) {
+      // collect the ids and external ids of the resources that cannot be resolved without a query
+      final Map<Resource, Resource> resolvedResourcesByResource = new HashMap<>(resources.size());
+      final List<Resource> unresolvedResources = new ArrayList<>();
+      final List<String> unresolvedExternalIds = new ArrayList<>();
+      for (Resource resource : resources) {
+         if (!resolvedResourcesByResource.containsKey(resource)) {
+            final Resource knownResource = __getKnownResource(resource);
+            if (knownResource != null) {
+               resolvedResourcesByResource.put(resource, knownResource);
+            }
+            else if (resource.getExternalId() != null) {
+               // resources with both ids are resolved by their external id, and their id is verified below
+               unresolvedExternalIds.add(resource.getExternalId());
+            }
+            else if (resource.getId() != null) {
+               unresolvedResources.add(resource);
+            }
+            else {
+               throw new IllegalArgumentException("A resource id and/or external id is required, but neither was specified");
+            }
+         }
+      }
+
+      final Map<Long, Resource> resolvedResourcesById = new HashMap<>();
+      if (!unresolvedResources.isEmpty()) {
+         for (Resource resolvedResource : resourcePersister.resolveResourcesByResourceId(connection,
+                                                                                         unresolvedResources)) {
+            resolvedResourcesById.put(resolvedResource.getId(), __getResolvedResourceIssuer().issue(resolvedResource));
+         }
+      }
+      final Map<String, Resource> resolvedResourcesByExternalId = new HashMap<>();
+      if (!unresolvedExternalIds.isEmpty()) {
+         for (Resource resolvedResource : resourcePersister.resolveResourcesByExternalId(connection,
+                                                                                         unresolvedExternalIds)) {
+            resolvedResourcesByExternalId.put(resolvedResource.getExternalId(),
+                                              __getResolvedResourceIssuer().issue(resolvedResource));
+         }
+      }
+
+      final List<Resource> resolvedResources = new ArrayList<>(resources.size());
+      for (Resource resource : resources) {
+         Resource resolvedResource = resolvedResourcesByResource.get(resource);
+         if (resolvedResource == null) {
+            if (resource.getExternalId() != null) {
+               resolvedResource = resolvedResourcesByExternalId.get(resource.getExternalId());
+               if (resource.getId() != null && (resolvedResource == null || !resource.equals(resolvedResource))) {
+                  throw new IllegalArgumentException("Resource " + resource + "'s id does not resolve to the specified externalId!");
+               }
+            }
+            else {
+               resolvedResource = resolvedResourcesById.get(resource.getId());
+            }
+
+            if (resolvedResource == null) {
+               if (skipNotFound) {
+                  continue;
+               }
+               throw new IllegalArgumentException("Resource " + resource + " not found!");
+            }
+
+            resolvedResourcesByResource.put(resource, resolvedResource);
+            if (resourceLocatorCache != null) {
+               resourceLocatorCache.put(resolvedResource);
+            }
+         }
+         resolvedResources.add(resolvedResource);
+      }
+
+      return resolvedResources;
+   }
+
+   private Resource __getKnownResource(Resource resource) {
+      // a resolved resource that we issued and have not revoked since is trusted without querying for it again
+      if (__getResolvedResourceIssuer().getIssued(resource) != null) {
+         return resource;
+      }
+
+      if (__isEqual(sessionResource, resource)) {
+         return sessionResource;
+      }
+
+      if (__isEqual(authenticatedResource, resource)) {
+         return authenticatedResource;
+      }
+
+      if (resourceLocatorCache != null) {
+         return __getResolvedResourceIssuer().issue(resourceLocatorCache.get(resource));
+      }
+
+      return null;
+   }
+
+   private ResolvedResource.Issuer __getResolvedResourceIssuer() {
+      if (resolvedResourceIssuer == null) {
+         // contexts that share a resource locator cache also share the trust in the resources it holds
+         resolvedResourceIssuer = resourceLocatorCache != null
+                                  ? resourceLocatorCache.getIssuer()
+                                  : new ResolvedResource.Issuer();
+      }
+      return resolvedResourceIssuer;
+   }
+
+   private void __invalidateSuperUserDomains() {
+      if (superUserDomainCache != null) {
+         superUserDomainCache.invalidate();
+
+         // a concurrent call may load the super-user domains again before this modification completes, so remember
+         // to invalidate once more at that point
+         superUserDomainsInvalidated = true;
+      }
+   }
+
+   private void __invalidateResourceLocation(Resource resource) {
+      // the resolved resources of this resource issued so far carry its old location, so we no longer trust them
+      __getResolvedResourceIssuer().revoke(resource.getId());
+
+      if (resourceLocatorCache != null) {
+         resourceLocatorCache.remove(resource.getId());
+
+         // a concurrent call may cache the resource again before this modification completes, so remember to
+         // remove it once more at that point
+         if (invalidatedResourceLocationIds == null) {
+            invalidatedResourceLocationIds = new LongHashSet();
+         }
+         invalidatedResourceLocationIds.add(resource.getId());
+      }
    }
 
    private static boolean __isEqual(Resource resource1, Resource resource2) {
@@ -6446,6 +7584,24 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       return permissionNames;
    }
 
+   private ResourceClassInternalInfo __getResourceClassInternalInfoByResource(SQLConnection connection,
+                                                                              Resource resource) {
+      final ResolvedResource resolvedResource = __getResolvedResourceIssuer().getIssued(resource);
+      if (resolvedResource != null) {
+         return resolvedResource.getResourceClassInternalInfo();
+      }
+      return resourceClassPersister.getResourceClassInfoByResourceId(connection, resource);
+   }
+
+   private Id<DomainId> __getResourceDomainId(SQLConnection connection,
+                                              Resource resource) {
+      final ResolvedResource resolvedResource = __getResolvedResourceIssuer().getIssued(resource);
+      if (resolvedResource != null) {
+         return resolvedResource.getDomainId();
+      }
+      return resourcePersister.getDomainIdByResource(connection, resource);
+   }
+
    private ResourceClassInternalInfo __getResourceClassInternalInfo(SQLConnection connection,
                                                                     String resourceClassName) {
       final ResourceClassInternalInfo resourceClassInternalInfo
@@ -6462,6 +7618,9 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private boolean __isSuperUserOfResource(SQLConnection connection,
                                            Resource accessorResource,
                                            Resource accessedResource) {
+      if (superUserDomainCache != null) {
+         return __isSuperUserOfDomain(connection, accessorResource, __getResourceDomainId(connection, accessedResource));
+      }
       return __isSuperUserOfDomain(connection,
                                    accessorResource,
                                    domainPersister.getResourceDomainNameByResourceId(connection, accessedResource));
@@ -6471,15 +7630,36 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    private boolean __isSuperUserOfDomain(SQLConnection connection,
                                          Resource accessorResource,
                                          String queriedDomain) {
+      if (superUserDomainCache != null) {
+         final Id<DomainId> queriedDomainId = domainPersister.getResourceDomainId(connection, queriedDomain);
+
+         if (queriedDomainId == null) {
+            throw new IllegalArgumentException("Could not find domain: " + queriedDomain);
+         }
+         return __isSuperUserOfDomain(connection, accessorResource, queriedDomainId);
+      }
+
       Set<DomainPermission> domainPermissions = __getEffectiveDomainPermissions(connection, accessorResource, queriedDomain);
 
       return domainPermissions.contains(DomainPermission_SUPER_USER)
             || domainPermissions.contains(DomainPermission_SUPER_USER_GRANT);
    }
 
-   private boolean __isSuperUserOfDomain(SQLConnection connection,
-                                         Resource accessorResource,
+   private boolean __isSuperUserOfDomain(final SQLConnection connection,
+                                         final Resource accessorResource,
                                          Id<DomainId> queriedDomainId) {
+      if (superUserDomainCache != null) {
+         return superUserDomainCache.isSuperUserOfDomain(accessorResource.getId(),
+                                                         queriedDomainId.getValue(),
+                                                         new SuperUserDomainCache.Loader() {
+                                                            @Override
+                                                            public long[] load() {
+                                                               return grantDomainPermissionSysPersister
+                                                                     .getSuperUserDomainIds(connection, accessorResource);
+                                                            }
+                                                         });
+      }
+
       Set<DomainPermission> domainPermissions = __getEffectiveDomainPermissions(connection,
                                                                                 accessorResource,
                                                                                 queriedDomainId);
@@ -6524,12 +7704,39 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private static void __assertOptionsSpecified(SQLAccessControlContextOptions options) {
+      if (options == null) {
+         throw new IllegalArgumentException("SQLAccessControlContextOptions required, none specified");
+      }
+   }
+
+   private static void __assertPersisterSetSpecified(PersisterSet persisterSet) {
+      if (persisterSet == null) {
+         throw new IllegalArgumentException("PersisterSet required, none specified");
+      }
+   }
+
+   private static void __assertAuthenticationProviderSpecified(AuthenticationProvider authenticationProvider) {
+      if (authenticationProvider == null) {
+         throw new IllegalArgumentException("AuthenticationProvider required, none specified");
+      }
+   }
+
    private void __assertResourceSpecified(Resource resource) {
       if (resource == null) {
          throw new NullPointerException("Resource required, none specified");
       }
    }
 
+   private void __assertResourcesSpecified(Collection<Resource> resources) {
+      if (resources == null) {
+         throw new NullPointerException("Collection of resources required, none specified");
+      }
+      if (resources.contains(null)) {
+         throw new NullPointerException("Collection of resources contains null element");
+      }
+   }
+
    private void __assertCredentialsSpecified(Credentials credentials) {
       if (credentials == null) {
          throw new NullPointerException("Credentials required, none specified");
@@ -6571,8 +7778,8 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    private void __assertAuthenticatedAsSystemResource() {
       if (sessionResource == null || !SYSTEM_RESOURCE_ID.equals(sessionResource.getId())) {
-         throw NotAuthorizedException.newInstanceForAction(sessionResource,
-                                                           "perform operation reserved for the system resource");
+         throw notAuthorizedExceptionFactory.newInstanceForAction(sessionResource,
+                                                                  "perform operation reserved for the system resource");
       }
    }
 
@@ -6701,19 +7908,69 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
       }
    }
 
+   private void __assertPermissionValid(SQLConnection connection,
+                                        ResourceClassInternalInfo resourceClassInternalInfo,
+                                        ResourcePermission resourcePermission) {
+      final String permissionName = resourcePermission.getPermissionName();
+
+      if (resourcePermission.isSystemPermission()) {
+         // currently the only invalid system permissions are for unauthenticatable resource classes
+         if (!resourceClassInternalInfo.isAuthenticatable()
+               && (ResourcePermissions.IMPERSONATE.equals(permissionName)
+               || ResourcePermissions.RESET_CREDENTIALS.equals(permissionName))) {
+            throw new IllegalArgumentException("Permission "
+                                                     + permissionName
+                                                     + " not valid for unauthenticatable resource class "
+                                                     + resourceClassInternalInfo.getResourceClassName());
+         }
+      }
+      else if (!__isResourcePermissionDefined(connection, resourceClassInternalInfo, permissionName)) {
+         throw new IllegalArgumentException("Permission: "
+                                                  + permissionName
+                                                  + " is not defined for resource class: "
+                                                  + resourceClassInternalInfo.getResourceClassName());
+      }
+   }
+
+   private boolean __isResourcePermissionDefined(SQLConnection connection,
+                                                 ResourceClassInternalInfo resourceClassInternalInfo,
+                                                 String permissionName) {
+      final long resourceClassId = resourceClassInternalInfo.getResourceClassId();
+      Set<String> permissionNames = definedResourcePermissionNames.get(resourceClassId);
+
+      if (permissionNames != null && permissionNames.contains(permissionName)) {
+         return true;
+      }
+
+      if (resourceClassPermissionPersister.getResourceClassPermissionId(connection,
+                                                                        Id.<ResourceClassId>from(resourceClassId),
+                                                                        permissionName) == null) {
+         return false;
+      }
+
+      if (permissionNames == null) {
+         final Set<String> newPermissionNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+         permissionNames = definedResourcePermissionNames.putIfAbsent(resourceClassId, newPermissionNames);
+         if (permissionNames == null) {
+            permissionNames = newPermissionNames;
+         }
+      }
+      permissionNames.add(permissionName);
+
+      return true;
+   }
+
    private void __assertQueryAuthorization(SQLConnection connection,
                                            Resource accessorResource) {
       if (!sessionResource.equals(accessorResource)) {
-         final Set<ResourcePermission> effectiveResourcePermissions = __getEffectiveResourcePermissions(connection,
-                                                                                                        sessionResource,
-                                                                                                        accessorResource);
-         if (!effectiveResourcePermissions.contains(ResourcePermission_QUERY)
-               && !effectiveResourcePermissions.contains(ResourcePermission_QUERY_GRANT)
-               && !effectiveResourcePermissions.contains(ResourcePermission_IMPERSONATE)
-               && !effectiveResourcePermissions.contains(ResourcePermission_IMPERSONATE_GRANT)) {
-            throw NotAuthorizedException.newInstanceForActionOnResource(sessionResource,
-                                                                        "query",
-                                                                        accessorResource);
+         final ResourcePermissionBits effectiveResourcePermissions = __getEffectiveResourcePermissions(connection,
+                                                                                                       sessionResource,
+                                                                                                       accessorResource);
+         if (!effectiveResourcePermissions.isPermissible(ResourcePermission_QUERY)
+               && !effectiveResourcePermissions.isPermissible(ResourcePermission_IMPERSONATE)) {
+            throw notAuthorizedExceptionFactory.newInstanceForActionOnResource(sessionResource,
+                                                                               "query",
+                                                                               accessorResource);
          }
       }
    }
@@ -6747,8 +8004,19 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
 
    // private connection management helper methods
 
+   private SQLQueryFanOut __getQueryFanOut(SQLConnection connection) {
+      return new SQLQueryFanOut(connection, dataSource, queryExecutorService);
+   }
+
    private SQLConnection __getConnection() {
-      if (dataSource != null) {
+      if (isConnectionless) {
+         return null;
+      }
+      else if (dataSource != null) {
+         if (isConnectionObtainedOnDemand) {
+            // the persister set answers queries without a connection, so only a modification obtains one
+            return new SQLConnection(dataSource);
+         }
          try {
             return new SQLConnection(dataSource.getConnection());
          }
@@ -6765,14 +8033,35 @@ public class SQLAccessControlContext implements AccessControlContext, Serializab
    }
 
    private void __closeConnection(SQLConnection connection) {
-      // only close the connection if we got it from a pool, otherwise just leave the connection open
-      if (dataSource != null) {
-         if (connection != null) {
-            try {
-               connection.close();
+      try {
+         // only close the connection if we got it from a pool, otherwise just leave the connection open
+         if (dataSource != null && connection != null) {
+            connection.close();
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         // a modification completes here even if the connection is not ours to close, or if there is no connection
+         if (invalidatedResourceLocationIds != null) {
+            for (long resourceId : invalidatedResourceLocationIds.toArray()) {
+               resourceLocatorCache.remove(resourceId);
+               __getResolvedResourceIssuer().revoke(resourceId);
+            }
+            invalidatedResourceLocationIds = null;
+         }
+         if (superUserDomainsInvalidated) {
+            superUserDomainCache.invalidate();
+            superUserDomainsInvalidated = false;
+         }
+         // once a modification has completed, subsequent lookups must not share the results of lookups in flight
+         if (connection != null && connection.isUpdated()) {
+            if (readCoalescer != null) {
+               readCoalescer.invalidate();
             }
-            catch (SQLException e) {
-               throw new RuntimeException(e);
+            if (resourceIndex != null) {
+               resourceIndex.invalidate();
             }
          }
       }
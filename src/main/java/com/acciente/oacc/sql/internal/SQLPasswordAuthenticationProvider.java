@@ -25,16 +25,19 @@ import com.acciente.oacc.PasswordCredentials;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.UnsupportedCredentialsException;
 import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.RehashAwarePasswordEncryptor;
 import com.acciente.oacc.sql.internal.persister.ResourcePasswordPersister;
 import com.acciente.oacc.sql.internal.persister.SQLConnection;
 import com.acciente.oacc.sql.internal.persister.SQLPasswordStrings;
+import com.acciente.oacc.token.CredentialVersionSource;
 
 import javax.sql.DataSource;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.SQLException;
 
-public class SQLPasswordAuthenticationProvider implements AuthenticationProvider, Serializable {
+public class SQLPasswordAuthenticationProvider
+      implements AuthenticationProvider, CredentialVersionSource, Serializable {
    private static final long serialVersionUID = 2L;
 
    // database
@@ -154,6 +157,17 @@ public class SQLPasswordAuthenticationProvider implements AuthenticationProvider
          if (!passwordEncryptor.checkPassword(plainBoundPassword, encryptedBoundPassword)) {
             throw new IncorrectCredentialsException("Invalid password for resource " + resource);
          }
+
+         // upgrade a password hash created by an old password encryptor or with old settings, now that we know the
+         // plaintext password; the hash is only replaced if it is still the one we checked, so that a password that
+         // was changed or removed concurrently is not overwritten with the old password
+         if (isRehashNeeded(encryptedBoundPassword)) {
+            final String newEncryptedBoundPassword = passwordEncryptor.encryptPassword(plainBoundPassword);
+            resourcePasswordPersister.replaceEncryptedBoundPasswordByResourceId(connection,
+                                                                                resource,
+                                                                                encryptedBoundPassword,
+                                                                                newEncryptedBoundPassword);
+         }
       }
       finally {
          PasswordUtils.cleanPassword(plainBoundPassword);
@@ -219,6 +233,29 @@ public class SQLPasswordAuthenticationProvider implements AuthenticationProvider
       }
    }
 
+   @Override
+   public long getCredentialVersion(Resource resource) {
+      SQLConnection connection = null;
+      try {
+         connection = getConnection();
+
+         return PasswordUtils.computeCredentialVersion(__getEncryptedBoundPassword(connection, resource));
+      }
+      finally {
+         closeConnection(connection);
+      }
+   }
+
+   private String __getEncryptedBoundPassword(SQLConnection connection, Resource resource) {
+      try {
+         return resourcePasswordPersister.getEncryptedBoundPasswordByResourceId(connection, resource);
+      }
+      catch (IllegalStateException e) {
+         // the resource has no password set
+         return null;
+      }
+   }
+
    private void __setResourcePassword(SQLConnection connection, Resource resource, char[] newPassword) {
       char[] newBoundPassword = null;
       try {
@@ -245,6 +282,11 @@ public class SQLPasswordAuthenticationProvider implements AuthenticationProvider
       }
    }
 
+   private boolean isRehashNeeded(String encryptedBoundPassword) {
+      return passwordEncryptor instanceof RehashAwarePasswordEncryptor
+            && ((RehashAwarePasswordEncryptor) passwordEncryptor).isRehashNeeded(encryptedBoundPassword);
+   }
+
    private boolean isBlank(char[] charArray) {
       for (char c : charArray) {
          if (!Character.isWhitespace(c)) {
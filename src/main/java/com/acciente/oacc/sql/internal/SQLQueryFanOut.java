@@ -0,0 +1,188 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the mutually independent persister queries of a single API call.
+ * <p/>
+ * Without an executor service every forked query is run lazily, in the calling thread and on the caller's
+ * connection, when its result is first requested. This means that the sequence and number of statements is the same
+ * as if the queries had been called directly.
+ * <p/>
+ * With an executor service every forked query is submitted immediately and runs on its own connection obtained from
+ * the data source, so that the round trips to the database overlap. A forked query whose result is requested before
+ * the executor has started it is withdrawn from the executor and run by the calling thread on the caller's connection
+ * instead, so that a saturated executor degrades to sequential execution rather than blocking the caller.
+ * <p/>
+ * Note that concurrently executed queries each run in their own connection (and thus transaction), and therefore
+ * may observe different database states if the permissions are modified at the same time.
+ */
+class SQLQueryFanOut {
+   private final SQLConnection   callerConnection;
+   private final DataSource      dataSource;
+   private final ExecutorService executorService;
+   private final List<Result<?>> results;
+
+   SQLQueryFanOut(SQLConnection callerConnection,
+                  DataSource dataSource,
+                  ExecutorService executorService) {
+      this.callerConnection = callerConnection;
+      this.dataSource = dataSource;
+      this.executorService = dataSource == null ? null : executorService;
+      this.results = new ArrayList<>();
+   }
+
+   boolean isConcurrent() {
+      return executorService != null;
+   }
+
+   <T> Result<T> fork(Query<T> query) {
+      final Result<T> result = new Result<>(query);
+      results.add(result);
+
+      if (executorService != null) {
+         result.submit();
+      }
+
+      return result;
+   }
+
+   /**
+    * Cancels the forked queries that were not started yet, and must therefore be called when the caller is done
+    * with the fan-out, including when it returns before requesting all results.
+    */
+   void cancelOutstanding() {
+      for (Result<?> result : results) {
+         result.cancel();
+      }
+   }
+
+   private <T> T runOnOwnConnection(Query<T> query) {
+      SQLConnection connection = null;
+      try {
+         connection = new SQLConnection(dataSource.getConnection());
+         return query.execute(connection);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         if (connection != null) {
+            try {
+               connection.close();
+            }
+            catch (SQLException e) {
+               //noinspection ThrowFromFinallyBlock
+               throw new RuntimeException(e);
+            }
+         }
+      }
+   }
+
+   interface Query<T> {
+      T execute(SQLConnection connection);
+   }
+
+   class Result<T> {
+      private final Query<T>      query;
+      private       FutureTask<T> futureTask;
+      private       boolean       isResolved;
+      private       T             value;
+
+      private Result(Query<T> query) {
+         this.query = query;
+      }
+
+      private void submit() {
+         futureTask = new FutureTask<>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+               return runOnOwnConnection(query);
+            }
+         });
+
+         try {
+            executorService.execute(futureTask);
+         }
+         catch (RejectedExecutionException e) {
+            // the executor is saturated or shut down, so we'll run the query in the calling thread when needed
+            futureTask = null;
+         }
+      }
+
+      private void cancel() {
+         if (futureTask != null) {
+            futureTask.cancel(false);
+         }
+      }
+
+      T get() {
+         if (!isResolved) {
+            if (futureTask == null || futureTask.cancel(false)) {
+               // the query was not submitted, or was not started yet, so we run it ourselves
+               try {
+                  value = query.execute(callerConnection);
+               }
+               catch (RuntimeException | Error e) {
+                  cancelOutstanding();
+                  throw e;
+               }
+            }
+            else {
+               value = await();
+            }
+            isResolved = true;
+         }
+         return value;
+      }
+
+      private T await() {
+         try {
+            return futureTask.get();
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelOutstanding();
+            throw new RuntimeException(e);
+         }
+         catch (ExecutionException e) {
+            cancelOutstanding();
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+               throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+               throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+         }
+      }
+   }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.memory.internal.MemoryPersisterSet;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import com.acciente.oacc.memory.internal.SnapshotFile;
+import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.persister.DomainPersister;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantDomainCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantDomainPermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.GrantGlobalResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreatePersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionPostCreateSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourceCreatePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionPersister;
+import com.acciente.oacc.sql.internal.persister.GrantResourcePermissionSysPersister;
+import com.acciente.oacc.sql.internal.persister.PersisterSet;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPermissionPersister;
+import com.acciente.oacc.sql.internal.persister.ResourceClassPersister;
+import com.acciente.oacc.sql.internal.persister.ResourcePersister;
+import com.acciente.oacc.sql.internal.persister.SQLPersisterSet;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A persister set that answers all queries from an in-memory snapshot of the OACC tables, and applies all
+ * modifications to the database, which remains the source of truth.
+ * <p/>
+ * Each modification is applied to the database first, on the connection the access control context passes to the
+ * persister, and then to the current snapshot, so that it is visible to subsequent queries right away. Queries ignore
+ * the connection. Modifications made by other means, such as by another process, become visible when the snapshot is
+ * reloaded, which happens in the background after the first query that finds the snapshot older than the maximum
+ * staleness, or on an explicit call to {@link #refresh()}. Queries keep being answered from the previous snapshot
+ * while a new one is loading; modifications applied while a snapshot is loading are applied to the new snapshot
+ * again before it replaces the previous one.
+ * <p/>
+ * The persisters of this set are not serializable.
+ */
+public class SQLReplicaPersisterSet implements PersisterSet {
+   private final DataSource        dataSource;
+   private final PersisterSet      sqlPersisterSet;
+   private final SQLSnapshotLoader snapshotLoader;
+   private final long              maxStalenessMillis;
+
+   private final    ReentrantLock        refreshLock                 = new ReentrantLock();
+   private final    AtomicBoolean        isBackgroundRefreshRunning = new AtomicBoolean();
+   private final    Object               updateLock                  = new Object();
+   private volatile Snapshot             snapshot;
+   // the updates applied while a new snapshot is loading, or null if none is loading; guarded by updateLock
+   private          List<SnapshotUpdate> pendingUpdates;
+
+   private final ResourceClassPersister                              resourceClassPersister;
+   private final ResourceClassPermissionPersister                    resourceClassPermissionPersister;
+   private final DomainPersister                                     domainPersister;
+   private final GrantDomainCreatePermissionSysPersister             grantDomainCreatePermissionSysPersister;
+   private final GrantDomainCreatePermissionPostCreateSysPersister   grantDomainCreatePermissionPostCreateSysPersister;
+   private final GrantDomainPermissionSysPersister                   grantDomainPermissionSysPersister;
+   private final ResourcePersister                                   resourcePersister;
+   private final GrantResourceCreatePermissionSysPersister           grantResourceCreatePermissionSysPersister;
+   private final GrantResourceCreatePermissionPostCreateSysPersister grantResourceCreatePermissionPostCreateSysPersister;
+   private final GrantResourceCreatePermissionPostCreatePersister    grantResourceCreatePermissionPostCreatePersister;
+   private final GrantResourcePermissionSysPersister                 grantResourcePermissionSysPersister;
+   private final GrantGlobalResourcePermissionSysPersister           grantGlobalResourcePermissionSysPersister;
+   private final GrantResourcePermissionPersister                    grantResourcePermissionPersister;
+   private final GrantGlobalResourcePermissionPersister              grantGlobalResourcePermissionPersister;
+
+   public SQLReplicaPersisterSet(DataSource dataSource,
+                                 String schemaName,
+                                 SQLProfile sqlProfile,
+                                 long maxStalenessMillis,
+                                 int fetchSize) {
+      this(dataSource, schemaName, sqlProfile, maxStalenessMillis, fetchSize, (File) null);
+   }
+
+   /**
+    * Creates a persister set whose first snapshot is read from the specified snapshot file, if the file exists and
+    * is readable, and then brought up to date with the database in the background. Until then, queries are answered
+    * from the snapshot read from the file, regardless of its age. If the file does not exist or cannot be read, the
+    * first snapshot is loaded from the database instead.
+    */
+   public SQLReplicaPersisterSet(DataSource dataSource,
+                                 String schemaName,
+                                 SQLProfile sqlProfile,
+                                 long maxStalenessMillis,
+                                 int fetchSize,
+                                 File snapshotFile) {
+      this.dataSource = dataSource;
+      this.sqlPersisterSet = new SQLPersisterSet(schemaName, sqlProfile);
+      this.snapshotLoader = new SQLSnapshotLoader(schemaName, fetchSize);
+      this.maxStalenessMillis = maxStalenessMillis;
+
+      resourceClassPersister
+            = new ReplicaResourceClassPersister(this, sqlPersisterSet);
+      resourceClassPermissionPersister
+            = new ReplicaResourceClassPermissionPersister(this, sqlPersisterSet);
+      domainPersister
+            = new ReplicaDomainPersister(this, sqlPersisterSet);
+      grantDomainCreatePermissionSysPersister
+            = new ReplicaGrantDomainCreatePermissionSysPersister(this, sqlPersisterSet);
+      grantDomainCreatePermissionPostCreateSysPersister
+            = new ReplicaGrantDomainCreatePermissionPostCreateSysPersister(this, sqlPersisterSet);
+      grantDomainPermissionSysPersister
+            = new ReplicaGrantDomainPermissionSysPersister(this, sqlPersisterSet);
+      resourcePersister
+            = new ReplicaResourcePersister(this, sqlPersisterSet);
+      grantResourceCreatePermissionSysPersister
+            = new ReplicaGrantResourceCreatePermissionSysPersister(this, sqlPersisterSet);
+      grantResourceCreatePermissionPostCreateSysPersister
+            = new ReplicaGrantResourceCreatePermissionPostCreateSysPersister(this, sqlPersisterSet);
+      grantResourceCreatePermissionPostCreatePersister
+            = new ReplicaGrantResourceCreatePermissionPostCreatePersister(this, sqlPersisterSet);
+      grantResourcePermissionSysPersister
+            = new ReplicaGrantResourcePermissionSysPersister(this, sqlPersisterSet);
+      grantGlobalResourcePermissionSysPersister
+            = new ReplicaGrantGlobalResourcePermissionSysPersister(this, sqlPersisterSet);
+      grantResourcePermissionPersister
+            = new ReplicaGrantResourcePermissionPersister(this, sqlPersisterSet);
+      grantGlobalResourcePermissionPersister
+            = new ReplicaGrantGlobalResourcePermissionPersister(this, sqlPersisterSet);
+
+      final Snapshot fileSnapshot = snapshotFile != null ? readSnapshotFile(snapshotFile) : null;
+      if (fileSnapshot == null) {
+         refresh();
+      }
+      else {
+         // the snapshot read from the file is used regardless of its age, until it has caught up with the database
+         snapshot = fileSnapshot;
+         startBackgroundRefresh();
+      }
+   }
+
+   /**
+    * Loads a new snapshot from the database, and then replaces the current snapshot with it.
+    */
+   public void refresh() {
+      refreshLock.lock();
+      try {
+         __refresh();
+      }
+      finally {
+         refreshLock.unlock();
+      }
+   }
+
+   /**
+    * Returns the time at which the load of the current snapshot started, in milliseconds since the epoch.
+    */
+   public long getSnapshotTimestamp() {
+      return snapshot.loadStartedAt;
+   }
+
+   /**
+    * Writes the current snapshot to the specified snapshot file, replacing the file if it exists.
+    *
+    * @param snapshotFile the snapshot file
+    * @throws IOException if the file could not be written
+    */
+   public void writeSnapshot(File snapshotFile) throws IOException {
+      final Snapshot currentSnapshot = snapshot;
+      SnapshotFile.write(currentSnapshot.store, currentSnapshot.loadStartedAt, snapshotFile);
+   }
+
+   private static Snapshot readSnapshotFile(File snapshotFile) {
+      if (!snapshotFile.isFile()) {
+         return null;
+      }
+      try {
+         return new Snapshot(SnapshotFile.read(snapshotFile), SnapshotFile.readTimestamp(snapshotFile));
+      }
+      catch (IOException | IllegalStateException e) {
+         // an unreadable snapshot file is no worse than a missing one, the database remains the source of truth
+         return null;
+      }
+   }
+
+   /**
+    * Starts loading a new snapshot in the background, unless a background load is already running.
+    */
+   private void startBackgroundRefresh() {
+      if (!isBackgroundRefreshRunning.compareAndSet(false, true)) {
+         return;
+      }
+
+      final Thread refreshThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               refresh();
+            }
+            catch (RuntimeException e) {
+               // the current snapshot remains in use, and the next query that finds it stale retries the load
+            }
+            finally {
+               isBackgroundRefreshRunning.set(false);
+            }
+         }
+      }, "oacc-replica-refresh");
+      refreshThread.setDaemon(true);
+      refreshThread.start();
+   }
+
+   private void __refresh() {
+      synchronized (updateLock) {
+         pendingUpdates = new ArrayList<>();
+      }
+
+      try {
+         final long loadStartedAt = System.currentTimeMillis();
+         final Snapshot newSnapshot = new Snapshot(load(), loadStartedAt);
+
+         synchronized (updateLock) {
+            for (SnapshotUpdate pendingUpdate : pendingUpdates) {
+               try {
+                  newSnapshot.apply(pendingUpdate);
+               }
+               catch (IllegalStateException e) {
+                  // the memory persisters report a row to be inserted that already exists, or a row to be removed
+                  // that no longer does, this way: the loaded snapshot already reflects this update
+               }
+            }
+            snapshot = newSnapshot;
+         }
+      }
+      finally {
+         synchronized (updateLock) {
+            pendingUpdates = null;
+         }
+      }
+   }
+
+   private MemoryStore load() {
+      try (Connection connection = dataSource.getConnection()) {
+         return snapshotLoader.load(connection);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Returns the persister set of the current snapshot, on which queries are answered.
+    * <p/>
+    * A stale snapshot keeps being used while a new one loads in the background, so that queries never wait for a
+    * reload caused by staleness. Only a snapshot that failed to apply a modification, and therefore no longer matches
+    * the database, is reloaded before the query is answered.
+    */
+   PersisterSet getSnapshotPersisterSet() {
+      final Snapshot currentSnapshot = snapshot;
+
+      if (currentSnapshot.isInvalidated) {
+         refreshLock.lock();
+         try {
+            // another thread may have replaced the snapshot while we waited for the lock
+            if (snapshot == currentSnapshot) {
+               __refresh();
+            }
+         }
+         finally {
+            refreshLock.unlock();
+         }
+         return snapshot.persisterSet;
+      }
+
+      if (System.currentTimeMillis() - currentSnapshot.loadStartedAt > maxStalenessMillis) {
+         startBackgroundRefresh();
+      }
+      return currentSnapshot.persisterSet;
+   }
+
+   /**
+    * Applies the specified modification, which was already applied to the database, to the current snapshot, and to
+    * the snapshot that is loading, if any.
+    */
+   void applyUpdate(SnapshotUpdate update) {
+      synchronized (updateLock) {
+         final Snapshot currentSnapshot = snapshot;
+         try {
+            currentSnapshot.apply(update);
+         }
+         catch (RuntimeException e) {
+            // the snapshot no longer matches the database, so the next query reloads it
+            currentSnapshot.isInvalidated = true;
+         }
+
+         if (pendingUpdates != null) {
+            pendingUpdates.add(update);
+         }
+      }
+   }
+
+   @Override
+   public ResourceClassPersister getResourceClassPersister() {
+      return resourceClassPersister;
+   }
+
+   @Override
+   public ResourceClassPermissionPersister getResourceClassPermissionPersister() {
+      return resourceClassPermissionPersister;
+   }
+
+   @Override
+   public DomainPersister getDomainPersister() {
+      return domainPersister;
+   }
+
+   @Override
+   public GrantDomainCreatePermissionSysPersister getGrantDomainCreatePermissionSysPersister() {
+      return grantDomainCreatePermissionSysPersister;
+   }
+
+   @Override
+   public GrantDomainCreatePermissionPostCreateSysPersister getGrantDomainCreatePermissionPostCreateSysPersister() {
+      return grantDomainCreatePermissionPostCreateSysPersister;
+   }
+
+   @Override
+   public GrantDomainPermissionSysPersister getGrantDomainPermissionSysPersister() {
+      return grantDomainPermissionSysPersister;
+   }
+
+   @Override
+   public ResourcePersister getResourcePersister() {
+      return resourcePersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionSysPersister getGrantResourceCreatePermissionSysPersister() {
+      return grantResourceCreatePermissionSysPersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionPostCreateSysPersister getGrantResourceCreatePermissionPostCreateSysPersister() {
+      return grantResourceCreatePermissionPostCreateSysPersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionPostCreatePersister getGrantResourceCreatePermissionPostCreatePersister() {
+      return grantResourceCreatePermissionPostCreatePersister;
+   }
+
+   @Override
+   public GrantResourcePermissionSysPersister getGrantResourcePermissionSysPersister() {
+      return grantResourcePermissionSysPersister;
+   }
+
+   @Override
+   public GrantGlobalResourcePermissionSysPersister getGrantGlobalResourcePermissionSysPersister() {
+      return grantGlobalResourcePermissionSysPersister;
+   }
+
+   @Override
+   public GrantResourcePermissionPersister getGrantResourcePermissionPersister() {
+      return grantResourcePermissionPersister;
+   }
+
+   @Override
+   public GrantGlobalResourcePermissionPersister getGrantGlobalResourcePermissionPersister() {
+      return grantGlobalResourcePermissionPersister;
+   }
+
+   @Override
+   public boolean isUpsertEnabled() {
+      // grants are written to the database, so they are applied the way the SQL persisters apply them
+      return sqlPersisterSet.isUpsertEnabled();
+   }
+
+   private static class Snapshot {
+      private final    MemoryStore        store;
+      private final    MemoryPersisterSet persisterSet;
+      private final    long               loadStartedAt;
+      private volatile boolean            isInvalidated;
+
+      private Snapshot(MemoryStore store, long loadStartedAt) {
+         this.store = store;
+         this.persisterSet = new MemoryPersisterSet(store);
+         this.loadStartedAt = loadStartedAt;
+      }
+
+      private void apply(SnapshotUpdate update) {
+         update.applyTo(store, persisterSet);
+      }
+   }
+
+   /**
+    * A modification, already applied to the database, that is to be applied to a snapshot.
+    */
+   interface SnapshotUpdate {
+      /**
+       * Applies the modification to the snapshot with the specified store, either through the persisters of the
+       * snapshot, or directly to the store for rows whose ids were assigned by the database.
+       */
+      void applyTo(MemoryStore store, PersisterSet persisterSet);
+   }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.memory.internal.Grant;
+import com.acciente.oacc.memory.internal.GrantTable;
+import com.acciente.oacc.memory.internal.MemoryStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Bulk-loads the contents of the OACC tables of a database schema into a new {@link MemoryStore}.
+ * <p/>
+ * Each table is read with a single streaming query, with the specified fetch size, and all tables are read in one
+ * read-only transaction, so that databases with multi-version concurrency control provide a consistent snapshot.
+ * Resource passwords are not loaded.
+ */
+public class SQLSnapshotLoader {
+   private final String schemaNameAndTablePrefix;
+   private final int    fetchSize;
+
+   public SQLSnapshotLoader(String schemaName, int fetchSize) {
+      SchemaNameValidator.assertValid(schemaName);
+      this.schemaNameAndTablePrefix = schemaName != null ? schemaName + ".OAC_" : "OAC_";
+      this.fetchSize = fetchSize;
+   }
+
+   public MemoryStore load(Connection connection) throws SQLException {
+      final boolean wasAutoCommit = connection.getAutoCommit();
+      final boolean wasReadOnly = connection.isReadOnly();
+      boolean readOnlyChanged = false;
+      try {
+         // most drivers only stream a result set within a transaction
+         connection.setAutoCommit(false);
+         readOnlyChanged = setReadOnly(connection);
+
+         final MemoryStore store = new MemoryStore();
+         loadResourceClasses(connection, store);
+         loadResourceClassPermissions(connection, store);
+         loadDomains(connection, store);
+         loadResources(connection, store);
+         loadExternalIds(connection, store);
+
+         loadGrants(connection,
+                    "Grant_DomPerm_Sys",
+                    "AccessedDomainId",
+                    null,
+                    "SysPermissionId",
+                    null,
+                    store.getDomainPermissionSysGrants());
+         loadGrants(connection,
+                    "Grant_DomCrPerm_Sys",
+                    null,
+                    null,
+                    "SysPermissionId",
+                    null,
+                    store.getDomainCreatePermissionSysGrants());
+         loadGrants(connection,
+                    "Grant_DomCrPerm_PostCr_Sys",
+                    null,
+                    null,
+                    "PostCreateSysPermissionId",
+                    "PostCreateIsWithGrant",
+                    store.getDomainCreatePermissionPostCreateSysGrants());
+         loadGrants(connection,
+                    "Grant_ResCrPerm_Sys",
+                    "AccessedDomainId",
+                    "ResourceClassId",
+                    "SysPermissionId",
+                    null,
+                    store.getResourceCreatePermissionSysGrants());
+         loadGrants(connection,
+                    "Grant_ResCrPerm_PostCr_Sys",
+                    "AccessedDomainId",
+                    "ResourceClassId",
+                    "PostCreateSysPermissionId",
+                    "PostCreateIsWithGrant",
+                    store.getResourceCreatePermissionPostCreateSysGrants());
+         loadGrants(connection,
+                    "Grant_ResCrPerm_PostCr",
+                    "AccessedDomainId",
+                    "ResourceClassId",
+                    "PostCreatePermissionId",
+                    "PostCreateIsWithGrant",
+                    store.getResourceCreatePermissionPostCreateGrants());
+         loadGrants(connection,
+                    "Grant_ResPerm_Sys",
+                    "AccessedResourceId",
+                    "ResourceClassId",
+                    "SysPermissionId",
+                    null,
+                    store.getResourcePermissionSysGrants());
+         loadGrants(connection,
+                    "Grant_ResPerm",
+                    "AccessedResourceId",
+                    "ResourceClassId",
+                    "PermissionId",
+                    null,
+                    store.getResourcePermissionGrants());
+         loadGrants(connection,
+                    "Grant_Global_ResPerm_Sys",
+                    "AccessedDomainId",
+                    "ResourceClassId",
+                    "SysPermissionId",
+                    null,
+                    store.getGlobalResourcePermissionSysGrants());
+         loadGrants(connection,
+                    "Grant_Global_ResPerm",
+                    "AccessedDomainId",
+                    "ResourceClassId",
+                    "PermissionId",
+                    null,
+                    store.getGlobalResourcePermissionGrants());
+
+         connection.commit();
+         return store;
+      }
+      catch (SQLException e) {
+         connection.rollback();
+         throw e;
+      }
+      finally {
+         if (readOnlyChanged) {
+            connection.setReadOnly(wasReadOnly);
+         }
+         connection.setAutoCommit(wasAutoCommit);
+      }
+   }
+
+   // the read-only flag is only a hint, which some drivers (e.g. SQLite) refuse to change on an open connection
+   private static boolean setReadOnly(Connection connection) {
+      try {
+         connection.setReadOnly(true);
+         return true;
+      }
+      catch (SQLException e) {
+         return false;
+      }
+   }
+
+   private void loadResourceClasses(Connection connection, MemoryStore store) throws SQLException {
+      try (PreparedStatement statement
+                 = prepare(connection,
+                           "SELECT ResourceClassId, ResourceClassName, IsAuthenticatable, IsUnauthenticatedCreateAllowed FROM "
+                                 + schemaNameAndTablePrefix + "ResourceClass");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            store.loadResourceClass(resultSet.getLong(1),
+                                    resultSet.getString(2),
+                                    resultSet.getBoolean(3),
+                                    resultSet.getBoolean(4));
+         }
+      }
+   }
+
+   private void loadResourceClassPermissions(Connection connection, MemoryStore store) throws SQLException {
+      try (PreparedStatement statement
+                 = prepare(connection,
+                           "SELECT ResourceClassId, PermissionId, PermissionName FROM "
+                                 + schemaNameAndTablePrefix + "ResourceClassPermission");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            store.loadResourceClassPermission(resultSet.getLong(1), resultSet.getLong(2), resultSet.getString(3));
+         }
+      }
+   }
+
+   private void loadDomains(Connection connection, MemoryStore store) throws SQLException {
+      try (PreparedStatement statement
+                 = prepare(connection,
+                           "SELECT DomainId, DomainName, ParentDomainId FROM " + schemaNameAndTablePrefix + "Domain");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            final long domainId = resultSet.getLong(1);
+            final String domainName = resultSet.getString(2);
+            final long parentDomainId = resultSet.getLong(3);
+            store.loadDomain(domainId,
+                             domainName,
+                             resultSet.wasNull() ? MemoryStore.NO_PARENT_DOMAIN_ID : parentDomainId);
+         }
+      }
+   }
+
+   private void loadResources(Connection connection, MemoryStore store) throws SQLException {
+      try (PreparedStatement statement
+                 = prepare(connection,
+                           "SELECT ResourceId, ResourceClassId, DomainId FROM " + schemaNameAndTablePrefix + "Resource");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            store.loadResource(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3), null);
+         }
+      }
+   }
+
+   private void loadExternalIds(Connection connection, MemoryStore store) throws SQLException {
+      try (PreparedStatement statement
+                 = prepare(connection,
+                           "SELECT r.ResourceId, r.ResourceClassId, r.DomainId, e.ExternalId FROM "
+                                 + schemaNameAndTablePrefix + "ResourceExternalID e JOIN "
+                                 + schemaNameAndTablePrefix + "Resource r ON r.ResourceId = e.ResourceId");
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            store.loadResource(resultSet.getLong(1),
+                               resultSet.getLong(2),
+                               resultSet.getLong(3),
+                               resultSet.getString(4));
+         }
+      }
+   }
+
+   private void loadGrants(Connection connection,
+                           String tableName,
+                           String targetIdColumnName,
+                           String resourceClassIdColumnName,
+                           String permissionIdColumnName,
+                           String postCreateIsWithGrantColumnName,
+                           GrantTable grantTable) throws SQLException {
+      // the in-memory grant tables use 0 for the target and resource class of grants that have none
+      final String sql = "SELECT AccessorResourceId, "
+            + (targetIdColumnName != null ? targetIdColumnName : "0") + ", "
+            + (resourceClassIdColumnName != null ? resourceClassIdColumnName : "0") + ", "
+            + permissionIdColumnName + ", GrantorResourceId, IsWithGrant, "
+            + (postCreateIsWithGrantColumnName != null ? postCreateIsWithGrantColumnName : "0")
+            + " FROM " + schemaNameAndTablePrefix + tableName;
+
+      try (PreparedStatement statement = prepare(connection, sql);
+           ResultSet resultSet = statement.executeQuery()) {
+         while (resultSet.next()) {
+            grantTable.insert(new Grant(resultSet.getLong(1),
+                                        resultSet.getLong(2),
+                                        resultSet.getLong(3),
+                                        resultSet.getLong(4),
+                                        resultSet.getLong(5),
+                                        resultSet.getBoolean(6),
+                                        resultSet.getBoolean(7)));
+         }
+      }
+   }
+
+   private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+      final PreparedStatement statement
+            = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
+      return statement;
+   }
+}
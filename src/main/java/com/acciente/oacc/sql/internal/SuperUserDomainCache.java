@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, per accessor, the sorted ids of the domains in which the accessor is super-user, either directly or via
+ * a resource it inherits from, including all the descendants of those domains, so that checking for super-user
+ * privileges is a binary search instead of a query.
+ * <p/>
+ * The domain ids are loaded lazily, on the first check for an accessor. Modifications that can change any accessor's
+ * super-user domains, i.e. changes to domain permissions, to resource system permissions such as INHERIT, or to the
+ * domain hierarchy, invalidate all entries.
+ */
+public class SuperUserDomainCache {
+   private final AtomicLong                  generation;
+   private final ConcurrentMap<Long, Entry> entries;
+
+   public SuperUserDomainCache() {
+      generation = new AtomicLong();
+      entries = new ConcurrentHashMap<>();
+   }
+
+   public void invalidate() {
+      // entries are tagged with the generation they were loaded in, so clearing is only needed to release memory
+      generation.incrementAndGet();
+      entries.clear();
+   }
+
+   /**
+    * Returns if the accessor is super-user in the specified domain, loading the accessor's super-user domains
+    * first if necessary.
+    *
+    * @param accessorResourceId the id of the accessor resource
+    * @param domainId           the id of the domain
+    * @param loader             the loader of the sorted ids of the accessor's super-user domains, on a miss
+    */
+   boolean isSuperUserOfDomain(long accessorResourceId,
+                               long domainId,
+                               Loader loader) {
+      final long currentGeneration = generation.get();
+
+      Entry entry = entries.get(accessorResourceId);
+      if (entry == null || entry.generation != currentGeneration) {
+         entry = new Entry(currentGeneration, loader.load());
+         entries.put(accessorResourceId, entry);
+      }
+
+      return Arrays.binarySearch(entry.domainIds, domainId) >= 0;
+   }
+
+   interface Loader {
+      long[] load();
+   }
+
+   private static class Entry {
+      private final long   generation;
+      private final long[] domainIds;
+
+      private Entry(long generation, long[] domainIds) {
+         this.generation = generation;
+         this.domainIds = domainIds;
+      }
+   }
+}
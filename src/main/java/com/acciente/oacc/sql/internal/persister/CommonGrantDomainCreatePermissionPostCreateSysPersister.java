@@ -27,6 +27,7 @@ import com.acciente.oacc.sql.SQLProfile;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public abstract class CommonGrantDomainCreatePermissionPostCreateSysPersister extends Persister implements GrantDomainCreatePermissionPostCreateSysPersister, Serializable {
@@ -110,6 +111,22 @@ public abstract class CommonGrantDomainCreatePermissionPostCreateSysPersister ex
       }
    }
 
+   @Override
+   public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                          List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
                                                           Resource accessorResource,
@@ -25,6 +25,7 @@ import com.acciente.oacc.sql.SQLProfile;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public abstract class CommonGrantDomainCreatePermissionSysPersister extends Persister implements GrantDomainCreatePermissionSysPersister, Serializable {
@@ -156,6 +157,22 @@ public abstract class CommonGrantDomainCreatePermissionSysPersister extends Pers
       }
    }
 
+   @Override
+   public void removeDomainCreateSysPermissions(SQLConnection connection,
+                                                List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeDomainCreateSysPermissions(SQLConnection connection,
                                                 Resource accessorResource,
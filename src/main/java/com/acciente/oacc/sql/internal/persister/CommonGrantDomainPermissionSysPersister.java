@@ -29,6 +29,7 @@ import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -204,6 +205,33 @@ public abstract class CommonGrantDomainPermissionSysPersister extends Persister
       }
    }
 
+   @Override
+   public void upsertDomainSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Resource grantorResource,
+                                          Id<DomainId> resourceDomainId,
+                                          Set<DomainPermission> requestedDomainPermissions) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_AccessedDomainID_SysPermissionID_GrantorID_IsWithGrant);
+         for (DomainPermission domainPermission : requestedDomainPermissions) {
+            statement.setResourceId(1, accessorResource);
+            statement.setResourceDomainId(2, resourceDomainId);
+            statement.setDomainSystemPermissionId(3, domainPermission.getSystemPermissionId());
+            statement.setResourceId(4, grantorResource);
+            statement.setBoolean(5, domainPermission.isWithGrantOption());
+
+            statement.executeUpdate();
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeAllDomainSysPermissions(SQLConnection connection,
                                              Resource accessorResource) {
@@ -222,6 +250,22 @@ public abstract class CommonGrantDomainPermissionSysPersister extends Persister
       }
    }
 
+   @Override
+   public void removeAllDomainSysPermissions(SQLConnection connection,
+                                             List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainPermissionSys_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllDomainSysPermissions(SQLConnection connection, Id<DomainId> domainId) ;
 
@@ -30,6 +30,7 @@ import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -223,6 +224,37 @@ public abstract class CommonGrantGlobalResourcePermissionPersister extends Persi
       }
    }
 
+   @Override
+   public void upsertGlobalResourcePermissions(SQLConnection connection,
+                                               Resource accessorResource,
+                                               Id<ResourceClassId> accessedResourceClassId,
+                                               Id<DomainId> accessedResourceDomainId,
+                                               Set<ResourcePermission> requestedResourcePermissions,
+                                               Resource grantorResource) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_AccessedDomainID_GrantorID_IsWithGrant_ResourceClassID_PermissionName);
+         for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+            if (!resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceDomainId(2, accessedResourceDomainId);
+               statement.setResourceId(3, grantorResource);
+               statement.setBoolean(4, resourcePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setString(6, resourcePermission.getPermissionName());
+
+               statement.executeUpdate();
+            }
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeAllGlobalResourcePermissions(SQLConnection connection,
                                                   Resource accessorResource) {
@@ -242,6 +274,22 @@ public abstract class CommonGrantGlobalResourcePermissionPersister extends Persi
       }
    }
 
+   @Override
+   public void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                                  List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantGlobalResourcePermission_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllGlobalResourcePermissions(SQLConnection connection,
                                                            Id<DomainId> accessedDomainId);
@@ -29,6 +29,7 @@ import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -220,6 +221,37 @@ public abstract class CommonGrantGlobalResourcePermissionSysPersister extends Pe
       }
    }
 
+   @Override
+   public void upsertGlobalSysPermissions(SQLConnection connection,
+                                          Resource accessorResource,
+                                          Id<ResourceClassId> accessedResourceClassId,
+                                          Id<DomainId> accessedResourceDomainId,
+                                          Set<ResourcePermission> requestedResourcePermissions,
+                                          Resource grantorResource) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID_GrantorID_IsWithGrant);
+         for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+            if (resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceDomainId(2, accessedResourceDomainId);
+               statement.setResourceClassId(3, accessedResourceClassId);
+               statement.setResourceSystemPermissionId(4, resourcePermission.getSystemPermissionId());
+               statement.setResourceId(5, grantorResource);
+               statement.setBoolean(6, resourcePermission.isWithGrantOption());
+
+               statement.executeUpdate();
+            }
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeAllGlobalSysPermissions(SQLConnection connection,
                                              Resource accessorResource) {
@@ -239,6 +271,22 @@ public abstract class CommonGrantGlobalResourcePermissionSysPersister extends Pe
       }
    }
 
+   @Override
+   public void removeAllGlobalSysPermissions(SQLConnection connection,
+                                             List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllGlobalSysPermissions(SQLConnection connection,
                                                       Id<DomainId> accessedDomainId);
@@ -31,6 +31,7 @@ import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -241,6 +242,22 @@ public abstract class CommonGrantResourceCreatePermissionPostCreateSysPersister
       }
    }
 
+   @Override
+   public void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                               List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
                                                                         Id<DomainId> accessedDomainId);
@@ -29,6 +29,7 @@ import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -226,6 +227,22 @@ public abstract class CommonGrantResourceCreatePermissionSysPersister extends Pe
       }
    }
 
+   @Override
+   public void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                                     List<Resource> accessorResources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID_IN);
+         executeUpdateForResources(statement, accessorResources, 1);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public abstract void removeAllResourceCreateSysPermissions(SQLConnection connection,
                                                               Id<DomainId> accessedDomainId);
@@ -20,6 +20,7 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
 import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -29,6 +30,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public abstract class CommonGrantResourcePermissionPersister extends Persister implements GrantResourcePermissionPersister, Serializable {
@@ -72,7 +74,7 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
       try {
          // get the list of resources of the specified type that direct permissions to the specified accessed resource
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_ResourceID_ExternalID_BY_AccessedID_ResourceClassID_PermissionID_IsWithGrant);
          statement.setResourceId(1, accessedResource);
@@ -82,7 +84,7 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -96,11 +98,61 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
       }
    }
 
+   @Override
+   public long[] getAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                            Resource accessedResource,
+                                                            Id<ResourceClassId> resourceClassId,
+                                                            ResourcePermission resourcePermission,
+                                                            Id<ResourcePermissionId> resourcePermissionId,
+                                                            long afterAccessorResourceId,
+                                                            long upToAccessorResourceId,
+                                                            int maxCount) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      SQLStatement statement = null;
+      try {
+         // get the ids of the resources in the specified range that have direct permissions to the accessed resource
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_AccessorID_BY_AccessedID_ResourceClassID_PermissionID_IsWithGrant_AccessorIDRange);
+         statement.setResourceId(1, accessedResource);
+         statement.setResourceClassId(2, resourceClassId);
+         statement.setResourcePermissionId(3, resourcePermissionId);
+         statement.setBoolean(4, resourcePermission.isWithGrantOption());
+         statement.setResourceId(5, afterAccessorResourceId);
+         statement.setResourceId(6, upToAccessorResourceId);
+
+         return getOrderedResourceIds(statement, maxCount);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public abstract long[] getEffectiveAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                                              Resource accessedResource,
+                                                                              Id<ResourceClassId> resourceClassId,
+                                                                              Id<DomainId> resourceDomainId,
+                                                                              ResourcePermission resourcePermission,
+                                                                              Id<ResourcePermissionId> resourcePermissionId,
+                                                                              long afterAccessorResourceId,
+                                                                              long upToAccessorResourceId,
+                                                                              int maxCount);
+
    @Override
    public abstract Set<ResourcePermission> getResourcePermissionsIncludeInherited(SQLConnection connection,
                                                                                   Resource accessorResource,
                                                                                   Resource accessedResource);
 
+   @Override
+   public abstract LongObjectHashMap<Set<ResourcePermission>> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                                                     Resource accessorResource,
+                                                                                                     List<Resource> accessedResources);
+
    @Override
    public Set<ResourcePermission> getResourcePermissions(SQLConnection connection,
                                                          Resource accessorResource,
@@ -130,6 +182,35 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
       }
    }
 
+   /**
+    * Executes the specified statement, whose second and subsequent parameters are an IN list of accessed resource ids,
+    * once for every chunk of the specified accessed resources, and collects the permissions it returns by accessed
+    * resource id.
+    */
+   protected static void collectResourcePermissionsByAccessedResourceId(SQLStatement statement,
+                                                                        List<Resource> accessedResources,
+                                                                        LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByAccessedResourceId)
+         throws SQLException {
+      for (int offset = 0; offset < accessedResources.size(); offset += SQLStrings.IN_LIST_SIZE) {
+         // pad the last chunk by repeating its last resource
+         for (int i = 0; i < SQLStrings.IN_LIST_SIZE; i++) {
+            statement.setResourceId(i + 2, accessedResources.get(Math.min(offset + i, accessedResources.size() - 1)));
+         }
+         final SQLResult resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            final long accessedResourceId = resultSet.getLong("AccessedResourceId");
+            Set<ResourcePermission> resourcePermissions = resourcePermissionsByAccessedResourceId.get(accessedResourceId);
+            if (resourcePermissions == null) {
+               resourcePermissions = new HashSet<>();
+               resourcePermissionsByAccessedResourceId.put(accessedResourceId, resourcePermissions);
+            }
+            resourcePermissions.add(getResourcePermission(resultSet));
+         }
+         resultSet.close();
+      }
+   }
+
    protected static ResourcePermission getResourcePermission(SQLResult resultSet) throws SQLException {
       final String permissionName = resultSet.getString("PermissionName");
 
@@ -203,6 +284,38 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
       }
    }
 
+   @Override
+   public void upsertResourcePermissions(SQLConnection connection,
+                                         Resource accessorResource,
+                                         Resource accessedResource,
+                                         Id<ResourceClassId> accessedResourceClassId,
+                                         Set<ResourcePermission> requestedResourcePermissions,
+                                         Resource grantorResource) {
+      SQLStatement statement = null;
+      try {
+         // the upsert never downgrades an existing grant
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantResourcePermission_WITH_AccessorID_AccessedID_GrantorID_IsWithGrant_ResourceClassID_PermissionName);
+         for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+            if (!resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, accessedResource);
+               statement.setResourceId(3, grantorResource);
+               statement.setBoolean(4, resourcePermission.isWithGrantOption());
+               statement.setResourceClassId(5, accessedResourceClassId);
+               statement.setString(6, resourcePermission.getPermissionName());
+
+               statement.executeUpdate();
+            }
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
                                                                 Resource resource) {
@@ -221,6 +334,22 @@ public abstract class CommonGrantResourcePermissionPersister extends Persister i
       }
    }
 
+   @Override
+   public void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                List<Resource> resources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourcePermission_BY_AccessorID_IN_OR_AccessedID_IN);
+         executeUpdateForResources(statement, resources, 2);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeResourcePermissions(SQLConnection connection,
                                          Resource accessorResource,
@@ -20,6 +20,7 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
 import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -28,6 +29,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public abstract class CommonGrantResourcePermissionSysPersister extends Persister implements GrantResourcePermissionSysPersister, Serializable {
@@ -68,7 +70,7 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
       try {
          // get the list of resources of the specified type that direct permissions to the specified accessed resource
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant);
          statement.setResourceId(1, accessedResource);
@@ -78,7 +80,7 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -92,11 +94,59 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
       }
    }
 
+   @Override
+   public long[] getAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                               Resource accessedResource,
+                                                               Id<ResourceClassId> resourceClassId,
+                                                               ResourcePermission resourcePermission,
+                                                               long afterAccessorResourceId,
+                                                               long upToAccessorResourceId,
+                                                               int maxCount) {
+      if (!resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a system permission");
+      }
+
+      SQLStatement statement = null;
+      try {
+         // get the ids of the resources in the specified range that have direct permissions to the accessed resource
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_AccessorID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDRange);
+         statement.setResourceId(1, accessedResource);
+         statement.setResourceClassId(2, resourceClassId);
+         statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
+         statement.setBoolean(4, resourcePermission.isWithGrantOption());
+         statement.setResourceId(5, afterAccessorResourceId);
+         statement.setResourceId(6, upToAccessorResourceId);
+
+         return getOrderedResourceIds(statement, maxCount);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public abstract long[] getEffectiveAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                                                 Resource accessedResource,
+                                                                                 Id<ResourceClassId> resourceClassId,
+                                                                                 Id<DomainId> resourceDomainId,
+                                                                                 ResourcePermission resourcePermission,
+                                                                                 long afterAccessorResourceId,
+                                                                                 long upToAccessorResourceId,
+                                                                                 int maxCount);
+
    @Override
    public abstract Set<ResourcePermission> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
                                                                                      Resource accessorResource,
                                                                                      Resource accessedResource);
 
+   @Override
+   public abstract LongObjectHashMap<Set<ResourcePermission>> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                                        Resource accessorResource,
+                                                                                                        List<Resource> accessedResources);
+
    @Override
    public Set<ResourcePermission> getResourceSysPermissions(SQLConnection connection,
                                                             Resource accessorResource,
@@ -127,6 +177,35 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
       }
    }
 
+   /**
+    * Executes the specified statement, whose second and subsequent parameters are an IN list of accessed resource ids,
+    * once for every chunk of the specified accessed resources, and collects the permissions it returns by accessed
+    * resource id.
+    */
+   protected static void collectResourceSysPermissionsByAccessedResourceId(SQLStatement statement,
+                                                                           List<Resource> accessedResources,
+                                                                           LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByAccessedResourceId)
+         throws SQLException {
+      for (int offset = 0; offset < accessedResources.size(); offset += SQLStrings.IN_LIST_SIZE) {
+         // pad the last chunk by repeating its last resource
+         for (int i = 0; i < SQLStrings.IN_LIST_SIZE; i++) {
+            statement.setResourceId(i + 2, accessedResources.get(Math.min(offset + i, accessedResources.size() - 1)));
+         }
+         final SQLResult resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            final long accessedResourceId = resultSet.getLong("AccessedResourceId");
+            Set<ResourcePermission> resourcePermissions = resourcePermissionsByAccessedResourceId.get(accessedResourceId);
+            if (resourcePermissions == null) {
+               resourcePermissions = new HashSet<>();
+               resourcePermissionsByAccessedResourceId.put(accessedResourceId, resourcePermissions);
+            }
+            resourcePermissions.add(getResourceSysPermission(resultSet));
+         }
+         resultSet.close();
+      }
+   }
+
    protected static ResourcePermission getResourceSysPermission(SQLResult resultSet) throws SQLException {
       final String sysPermissionName = resultSet.getResourceSysPermissionName("SysPermissionId");
 
@@ -202,6 +281,37 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
       }
    }
 
+   @Override
+   public void upsertResourceSysPermissions(SQLConnection connection,
+                                            Resource accessorResource,
+                                            Resource accessedResource,
+                                            Id<ResourceClassId> accessedResourceClassId,
+                                            Set<ResourcePermission> requestedResourcePermissions,
+                                            Resource grantorResource) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_AccessedID_ResourceClassID_SysPermissionID_GrantorID_IsWithGrant);
+         for (ResourcePermission resourcePermission : requestedResourcePermissions) {
+            if (resourcePermission.isSystemPermission()) {
+               statement.setResourceId(1, accessorResource);
+               statement.setResourceId(2, accessedResource);
+               statement.setResourceClassId(3, accessedResourceClassId);
+               statement.setResourceSystemPermissionId(4, resourcePermission.getSystemPermissionId());
+               statement.setResourceId(5, grantorResource);
+               statement.setBoolean(6, resourcePermission.isWithGrantOption());
+
+               statement.executeUpdate();
+            }
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
                                                                    Resource resource) {
@@ -220,6 +330,22 @@ public abstract class CommonGrantResourcePermissionSysPersister extends Persiste
       }
    }
 
+   @Override
+   public void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                                   List<Resource> resources) {
+      SQLStatement statement = null;
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourcePermissionSys_BY_AccessorID_IN_OR_AccessedID_IN);
+         executeUpdateForResources(statement, resources, 2);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public void removeResourceSysPermissions(SQLConnection connection,
                                             Resource accessorResource,
@@ -20,6 +20,8 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.Resources;
 import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.ResolvedResource;
+import com.acciente.oacc.sql.internal.ResourceClassInternalInfo;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
@@ -27,6 +29,8 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class CommonResourcePersister extends Persister implements ResourcePersister, Serializable {
    private static final long serialVersionUID = 1L;
@@ -186,6 +190,34 @@ public abstract class CommonResourcePersister extends Persister implements Resou
       }
    }
 
+   @Override
+   public void deleteResources(SQLConnection connection,
+                               List<Resource> resources) {
+      SQLStatement statement = null;
+
+      try {
+         // delete the resources' external id mappings, if any exist
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInResourceExternalId_BY_ResourceID_IN);
+         executeUpdateForResources(statement, resources, 1);
+         closeStatement(statement);
+
+         // delete the resources
+         statement = connection.prepareStatement(sqlStrings.SQL_removeInResource_BY_ResourceID_IN);
+         final int rowCount = executeUpdateForResources(statement, resources, 1);
+
+         if (rowCount != resources.size()) {
+            throw new IllegalStateException("Security table data delete, " + resources.size()
+                                                  + " rows expected, got: " + rowCount);
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Id<DomainId> getDomainIdByResource(SQLConnection connection,
                                              Resource resource) {
@@ -254,7 +286,7 @@ public abstract class CommonResourcePersister extends Persister implements Resou
       try {
          SQLResult resultSet;
 
-         statement = connection.prepareStatement(sqlStrings.SQL_findInResourceExternalId_ResourceId_ExternalId_BY_ExternalID);
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID);
          statement.setString(1, externalId);
          resultSet = statement.executeQuery();
 
@@ -262,7 +294,7 @@ public abstract class CommonResourcePersister extends Persister implements Resou
             return null;
          }
 
-         final Resource resolvedResourceId = resultSet.getResource("ResourceId", "ExternalId");
+         final Resource resolvedResourceId = getResolvedResource(resultSet);
 
          // complain if we found more than one resource - external ids are supposed to be globally unique
          if (resultSet.next()) {
@@ -287,7 +319,7 @@ public abstract class CommonResourcePersister extends Persister implements Resou
       try {
          SQLResult resultSet;
 
-         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_BY_ResourceID);
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID);
          statement.setResourceId(1, resource);
          resultSet = statement.executeQuery();
 
@@ -296,7 +328,7 @@ public abstract class CommonResourcePersister extends Persister implements Resou
             return null;
          }
 
-         Resource resolvedResource = resultSet.getResource("ResourceId", "ExternalId");
+         Resource resolvedResource = getResolvedResource(resultSet);
 
          // complain if we found more than one resource - external ids are supposed to be globally unique
          if (resultSet.next()) {
@@ -312,4 +344,78 @@ public abstract class CommonResourcePersister extends Persister implements Resou
          closeStatement(statement);
       }
    }
+
+   @Override
+   public List<Resource> resolveResourcesByExternalId(SQLConnection connection,
+                                                      List<String> externalIds) {
+      SQLStatement statement = null;
+
+      try {
+         final List<Resource> resolvedResources = new ArrayList<>(externalIds.size());
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID_IN);
+         for (int offset = 0; offset < externalIds.size(); offset += SQLStrings.IN_LIST_SIZE) {
+            // pad the last chunk by repeating its last external id
+            for (int i = 0; i < SQLStrings.IN_LIST_SIZE; i++) {
+               statement.setString(i + 1, externalIds.get(Math.min(offset + i, externalIds.size() - 1)));
+            }
+            final SQLResult resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               resolvedResources.add(getResolvedResource(resultSet));
+            }
+            resultSet.close();
+         }
+
+         return resolvedResources;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   @Override
+   public List<Resource> resolveResourcesByResourceId(SQLConnection connection,
+                                                      List<Resource> resources) {
+      SQLStatement statement = null;
+
+      try {
+         final List<Resource> resolvedResources = new ArrayList<>(resources.size());
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID_IN);
+         for (int offset = 0; offset < resources.size(); offset += SQLStrings.IN_LIST_SIZE) {
+            // pad the last chunk by repeating its last resource
+            for (int i = 0; i < SQLStrings.IN_LIST_SIZE; i++) {
+               statement.setResourceId(i + 1, resources.get(Math.min(offset + i, resources.size() - 1)));
+            }
+            final SQLResult resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               resolvedResources.add(getResolvedResource(resultSet));
+            }
+            resultSet.close();
+         }
+
+         return resolvedResources;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
+   private static Resource getResolvedResource(SQLResult resultSet) throws SQLException {
+      return ResolvedResource.getInstance(resultSet.getLong("ResourceId"),
+                                          resultSet.getString("ExternalId"),
+                                          new ResourceClassInternalInfo(resultSet.getResourceClassId("ResourceClassId"),
+                                                                        resultSet.getString("ResourceClassName"),
+                                                                        resultSet.getBoolean("IsAuthenticatable"),
+                                                                        resultSet.getBoolean("IsUnauthenticatedCreateAllowed")),
+                                          resultSet.getResourceDomainId("DomainId"));
+   }
 }
@@ -20,20 +20,29 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.sql.SQLDialect;
 
 class DialectSpecificSQLGenerator {
-   private final String withClause;
-   private final String unionClause;
-   private final String nextSeqValueStatementPrefix;
-   private final String nextSeqValueStatementSuffix;
-   private final String nextSeqValueFragmentPrefix;
-   private final String nextSeqValueFragmentSuffix;
-
-   private static final DialectSpecificSQLGenerator DB2_10_5       = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "VALUES ( NEXT VALUE FOR ", " )", "NEXT VALUE FOR ", "");
-   private static final DialectSpecificSQLGenerator Oracle_11_2    = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT ", ".NEXTVAL FROM DUAL", "", ".NEXTVAL");
-   private static final DialectSpecificSQLGenerator PostgreSQL_9_3 = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", "SELECT nextval('", "')", "nextval('", "')");
-   private static final DialectSpecificSQLGenerator SQLServer_12_0 = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "");
-   private static final DialectSpecificSQLGenerator SQLite_3_8     = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", null, null, null, null);
-   private static final DialectSpecificSQLGenerator MySQL_5_6      = new DialectSpecificSQLGenerator(null, null, null, null, null, null);
-   private static final DialectSpecificSQLGenerator HSQLDB_2_3     = new DialectSpecificSQLGenerator(null, null, "VALUES NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "");
+   private final String      withClause;
+   private final String      unionClause;
+   private final String      nextSeqValueStatementPrefix;
+   private final String      nextSeqValueStatementSuffix;
+   private final String      nextSeqValueFragmentPrefix;
+   private final String      nextSeqValueFragmentSuffix;
+   private final UpsertStyle upsertStyle;
+   private final String      singleRowFromClause;
+   private final boolean     parameterCastRequired;
+
+   private enum UpsertStyle {ON_CONFLICT, ON_DUPLICATE_KEY, MERGE, TERMINATED_MERGE}
+
+   private static final DialectSpecificSQLGenerator DB2_10_5       = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "VALUES ( NEXT VALUE FOR ", " )", "NEXT VALUE FOR ", "", UpsertStyle.MERGE, " FROM SYSIBM.SYSDUMMY1", true);
+   private static final DialectSpecificSQLGenerator Oracle_11_2    = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT ", ".NEXTVAL FROM DUAL", "", ".NEXTVAL", UpsertStyle.MERGE, " FROM DUAL", false);
+   private static final DialectSpecificSQLGenerator PostgreSQL_9_3 = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", "SELECT nextval('", "')", "nextval('", "')", UpsertStyle.ON_CONFLICT, "", false);
+   private static final DialectSpecificSQLGenerator SQLServer_12_0 = new DialectSpecificSQLGenerator("WITH", "UNION ALL", "SELECT NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "", UpsertStyle.TERMINATED_MERGE, "", false);
+   private static final DialectSpecificSQLGenerator SQLite_3_8     = new DialectSpecificSQLGenerator("WITH RECURSIVE", "UNION ALL", null, null, null, null, UpsertStyle.ON_CONFLICT, "", false);
+   private static final DialectSpecificSQLGenerator MySQL_5_6      = new DialectSpecificSQLGenerator(null, null, null, null, null, null, UpsertStyle.ON_DUPLICATE_KEY, " FROM DUAL", false);
+   private static final DialectSpecificSQLGenerator HSQLDB_2_3     = new DialectSpecificSQLGenerator(null, null, "VALUES NEXT VALUE FOR ", "", "NEXT VALUE FOR ", "", UpsertStyle.MERGE, " FROM ( VALUES ( 0 ) ) D", true);
+
+   // the columns that every grant table has in addition to its key columns
+   private static final String GRANTOR_COLUMN_NAME       = "GrantorResourceId";
+   private static final String IS_WITH_GRANT_COLUMN_NAME = "IsWithGrant";
 
    static DialectSpecificSQLGenerator getInstance(SQLDialect sqlDialect) {
       switch (sqlDialect) {
@@ -72,18 +81,122 @@ class DialectSpecificSQLGenerator {
       return nextSeqValueFragmentPrefix + qualifiedSequenceName + nextSeqValueFragmentSuffix;
    }
 
+   /**
+    * Returns the clause that lets a query select a single row of parameters, for dialects that do not support a
+    * SELECT without a FROM clause, or an empty string otherwise.
+    */
+   String getSingleRowFromClause() {
+      return singleRowFromClause;
+   }
+
+   /**
+    * Returns a parameter marker for a numeric column in the select list of a query, which some dialects need to
+    * cast to a type, because they cannot infer the type of a parameter from its context there.
+    */
+   String numericParameter() {
+      return parameterCastRequired ? "CAST( ? AS BIGINT )" : "?";
+   }
+
+   /**
+    * Returns a statement that inserts each row selected by the specified source query into the specified grant
+    * table, or, if the table already has a row with the same key, upgrades the existing row to the grant option
+    * and grantor of the selected row. An existing row with the grant option is never downgraded.
+    * <p/>
+    * The source query must select the key columns, in the specified order, followed by the GrantorResourceId and
+    * IsWithGrant columns, with each column aliased to its column name, and must have a WHERE clause. The key
+    * columns must be the primary key of the table.
+    *
+    * @param qualifiedTableName the name of the grant table, including its schema, if any
+    * @param keyColumnNames     the names of the primary key columns of the grant table
+    * @param sourceQuery        the query that selects the rows to insert or upgrade
+    * @return the upsert statement
+    */
+   String upsertGrantStatement(String qualifiedTableName, String[] keyColumnNames, String sourceQuery) {
+      final String columnNames = join(keyColumnNames, "", ", ") + ", " + GRANTOR_COLUMN_NAME + ", " + IS_WITH_GRANT_COLUMN_NAME;
+
+      switch (upsertStyle) {
+         case ON_CONFLICT:
+            return "INSERT INTO " + qualifiedTableName + " AS T ( " + columnNames + " ) "
+                  + sourceQuery
+                  + " ON CONFLICT ( " + join(keyColumnNames, "", ", ") + " ) DO UPDATE SET "
+                  + GRANTOR_COLUMN_NAME + " = EXCLUDED." + GRANTOR_COLUMN_NAME + ", "
+                  + IS_WITH_GRANT_COLUMN_NAME + " = EXCLUDED." + IS_WITH_GRANT_COLUMN_NAME
+                  + " WHERE T." + IS_WITH_GRANT_COLUMN_NAME + " < EXCLUDED." + IS_WITH_GRANT_COLUMN_NAME;
+
+         case ON_DUPLICATE_KEY:
+            // the assignments are applied from left to right, so the grantor has to be assigned first
+            return "INSERT INTO " + qualifiedTableName + " ( " + columnNames + " ) "
+                  + sourceQuery
+                  + " ON DUPLICATE KEY UPDATE "
+                  + GRANTOR_COLUMN_NAME + " = IF( " + IS_WITH_GRANT_COLUMN_NAME + " < VALUES( " + IS_WITH_GRANT_COLUMN_NAME
+                  + " ), VALUES( " + GRANTOR_COLUMN_NAME + " ), " + GRANTOR_COLUMN_NAME + " ), "
+                  + IS_WITH_GRANT_COLUMN_NAME + " = GREATEST( " + IS_WITH_GRANT_COLUMN_NAME
+                  + ", VALUES( " + IS_WITH_GRANT_COLUMN_NAME + " ) )";
+
+         case MERGE:
+         case TERMINATED_MERGE:
+            final String isUpgrade = "T." + IS_WITH_GRANT_COLUMN_NAME + " < S." + IS_WITH_GRANT_COLUMN_NAME;
+            // SQL Server evaluates the match under a shared lock only, so concurrent merges of the same absent key
+            // both take the insert branch unless the target is held under a key-range lock until commit
+            return "MERGE INTO " + qualifiedTableName
+                  + (upsertStyle == UpsertStyle.TERMINATED_MERGE ? " WITH ( HOLDLOCK )" : "")
+                  + " T USING ( " + sourceQuery + " ) S ON ( "
+                  + join(keyColumnNames, "T.", " AND ", "S.") + " ) "
+                  + "WHEN MATCHED THEN UPDATE SET "
+                  + GRANTOR_COLUMN_NAME + " = CASE WHEN " + isUpgrade + " THEN S." + GRANTOR_COLUMN_NAME
+                  + " ELSE T." + GRANTOR_COLUMN_NAME + " END, "
+                  + IS_WITH_GRANT_COLUMN_NAME + " = CASE WHEN " + isUpgrade + " THEN S." + IS_WITH_GRANT_COLUMN_NAME
+                  + " ELSE T." + IS_WITH_GRANT_COLUMN_NAME + " END "
+                  + "WHEN NOT MATCHED THEN INSERT ( " + columnNames + " ) VALUES ( "
+                  + join(keyColumnNames, "S.", ", ") + ", S." + GRANTOR_COLUMN_NAME + ", S." + IS_WITH_GRANT_COLUMN_NAME
+                  + " )"
+                  + (upsertStyle == UpsertStyle.TERMINATED_MERGE ? ";" : "");
+
+         default:
+            throw new IllegalStateException("Unsupported upsert style: " + upsertStyle);
+      }
+   }
+
+   private static String join(String[] columnNames, String prefix, String separator) {
+      final StringBuilder result = new StringBuilder();
+      for (String columnName : columnNames) {
+         if (result.length() > 0) {
+            result.append(separator);
+         }
+         result.append(prefix).append(columnName);
+      }
+      return result.toString();
+   }
+
+   private static String join(String[] columnNames, String leftPrefix, String separator, String rightPrefix) {
+      final StringBuilder result = new StringBuilder();
+      for (String columnName : columnNames) {
+         if (result.length() > 0) {
+            result.append(separator);
+         }
+         result.append(leftPrefix).append(columnName).append(" = ").append(rightPrefix).append(columnName);
+      }
+      return result.toString();
+   }
+
    // private constructor to force use of constants
    private DialectSpecificSQLGenerator(String withClause,
                       String unionClause,
                       String nextSeqValueStatementPrefix,
                       String nextSeqValueStatementSuffix,
                       String nextSeqValueFragmentPrefix,
-                      String nextSeqValueFragmentSuffix) {
+                      String nextSeqValueFragmentSuffix,
+                      UpsertStyle upsertStyle,
+                      String singleRowFromClause,
+                      boolean parameterCastRequired) {
       this.withClause = withClause;
       this.unionClause = unionClause;
       this.nextSeqValueStatementPrefix = nextSeqValueStatementPrefix;
       this.nextSeqValueStatementSuffix = nextSeqValueStatementSuffix;
       this.nextSeqValueFragmentPrefix = nextSeqValueFragmentPrefix;
       this.nextSeqValueFragmentSuffix = nextSeqValueFragmentSuffix;
+      this.upsertStyle = upsertStyle;
+      this.singleRowFromClause = singleRowFromClause;
+      this.parameterCastRequired = parameterCastRequired;
    }
 }
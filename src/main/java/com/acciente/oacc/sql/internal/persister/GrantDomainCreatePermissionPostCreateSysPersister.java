@@ -20,6 +20,7 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.DomainCreatePermission;
 import com.acciente.oacc.Resource;
 
+import java.util.List;
 import java.util.Set;
 
 public interface GrantDomainCreatePermissionPostCreateSysPersister {
@@ -32,6 +33,9 @@ public interface GrantDomainCreatePermissionPostCreateSysPersister {
    void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
                                                    Resource accessorResource);
 
+   void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
+                                                   List<Resource> accessorResources);
+
    void removeDomainCreatePostCreateSysPermissions(SQLConnection connection,
                                                    Resource accessorResource,
                                                    Set<DomainCreatePermission> domainCreatePermissions);
@@ -20,6 +20,7 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.DomainCreatePermission;
 import com.acciente.oacc.Resource;
 
+import java.util.List;
 import java.util.Set;
 
 public interface GrantDomainCreatePermissionSysPersister {
@@ -42,6 +43,9 @@ public interface GrantDomainCreatePermissionSysPersister {
    void removeDomainCreateSysPermissions(SQLConnection connection,
                                          Resource accessorResource);
 
+   void removeDomainCreateSysPermissions(SQLConnection connection,
+                                         List<Resource> accessorResources);
+
    void removeDomainCreateSysPermissions(SQLConnection connection,
                                          Resource accessorResource,
                                          Set<DomainCreatePermission> domainCreatePermissions);
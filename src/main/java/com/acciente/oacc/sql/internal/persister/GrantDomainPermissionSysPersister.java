@@ -24,6 +24,7 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public interface GrantDomainPermissionSysPersister {
@@ -36,6 +37,9 @@ public interface GrantDomainPermissionSysPersister {
                                                          Id<ResourceClassId> resourceClassId,
                                                          Id<DomainId> resourceDomainId);
 
+   long[] getSuperUserDomainIds(SQLConnection connection,
+                                Resource accessorResource);
+
    Set<DomainPermission> getDomainSysPermissionsIncludeInherited(SQLConnection connection,
                                                                  Resource accessorResource,
                                                                  Id<DomainId> resourceDomainId);
@@ -62,9 +66,18 @@ public interface GrantDomainPermissionSysPersister {
                                    Id<DomainId> resourceDomainId,
                                    Set<DomainPermission> requestedDomainPermissions);
 
+   void upsertDomainSysPermissions(SQLConnection connection,
+                                   Resource accessorResource,
+                                   Resource grantorResource,
+                                   Id<DomainId> resourceDomainId,
+                                   Set<DomainPermission> requestedDomainPermissions);
+
    void removeAllDomainSysPermissions(SQLConnection connection,
                                       Resource accessorResource);
 
+   void removeAllDomainSysPermissions(SQLConnection connection,
+                                      List<Resource> accessorResources);
+
    void removeAllDomainSysPermissions(SQLConnection connection,
                                       Id<DomainId> domainId);
 
@@ -25,6 +25,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public interface GrantGlobalResourcePermissionPersister {
@@ -71,9 +72,19 @@ public interface GrantGlobalResourcePermissionPersister {
                                         Set<ResourcePermission> requestedResourcePermissions,
                                         Resource grantorResource);
 
+   void upsertGlobalResourcePermissions(SQLConnection connection,
+                                        Resource accessorResource,
+                                        Id<ResourceClassId> accessedResourceClassId,
+                                        Id<DomainId> accessedResourceDomainId,
+                                        Set<ResourcePermission> requestedResourcePermissions,
+                                        Resource grantorResource);
+
    void removeAllGlobalResourcePermissions(SQLConnection connection,
                                            Resource accessorResource);
 
+   void removeAllGlobalResourcePermissions(SQLConnection connection,
+                                           List<Resource> accessorResources);
+
    void removeAllGlobalResourcePermissions(SQLConnection connection,
                                            Id<DomainId> accessedDomainId);
 
@@ -24,6 +24,7 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public interface GrantGlobalResourcePermissionSysPersister {
@@ -68,9 +69,19 @@ public interface GrantGlobalResourcePermissionSysPersister {
                                    Set<ResourcePermission> requestedResourcePermissions,
                                    Resource grantorResource);
 
+   void upsertGlobalSysPermissions(SQLConnection connection,
+                                   Resource accessorResource,
+                                   Id<ResourceClassId> accessedResourceClassId,
+                                   Id<DomainId> accessedResourceDomainId,
+                                   Set<ResourcePermission> requestedResourcePermissions,
+                                   Resource grantorResource);
+
    void removeAllGlobalSysPermissions(SQLConnection connection,
                                       Resource accessorResource);
 
+   void removeAllGlobalSysPermissions(SQLConnection connection,
+                                      List<Resource> accessorResources);
+
    void removeAllGlobalSysPermissions(SQLConnection connection,
                                       Id<DomainId> accessedDomainId);
 
@@ -24,6 +24,7 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public interface GrantResourceCreatePermissionPostCreatePersister {
@@ -61,6 +62,9 @@ public interface GrantResourceCreatePermissionPostCreatePersister {
    void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
                                                      Resource accessorResource);
 
+   void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
+                                                     List<Resource> accessorResources);
+
    void removeAllResourceCreatePostCreatePermissions(SQLConnection connection,
                                                      Id<DomainId> accessedDomainId);
 
@@ -24,6 +24,7 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public interface GrantResourceCreatePermissionPostCreateSysPersister {
@@ -61,6 +62,9 @@ public interface GrantResourceCreatePermissionPostCreateSysPersister {
    void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
                                                         Resource accessorResource);
 
+   void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
+                                                        List<Resource> accessorResources);
+
    void removeAllResourceCreatePostCreateSysPermissions(SQLConnection connection,
                                                         Id<DomainId> accessedDomainId);
 
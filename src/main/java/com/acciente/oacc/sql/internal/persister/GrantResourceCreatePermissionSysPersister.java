@@ -24,6 +24,7 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 public interface GrantResourceCreatePermissionSysPersister {
@@ -60,6 +61,9 @@ public interface GrantResourceCreatePermissionSysPersister {
    void removeAllResourceCreateSysPermissions(SQLConnection connection,
                                               Resource accessorResource);
 
+   void removeAllResourceCreateSysPermissions(SQLConnection connection,
+                                              List<Resource> accessorResources);
+
    void removeAllResourceCreateSysPermissions(SQLConnection connection,
                                               Id<DomainId> accessedDomainId);
 
@@ -19,11 +19,13 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 
+import java.util.List;
 import java.util.Set;
 
 public interface GrantResourcePermissionPersister {
@@ -46,10 +48,33 @@ public interface GrantResourcePermissionPersister {
                                                           ResourcePermission resourcePermission,
                                                           Id<ResourcePermissionId> resourcePermissionId);
 
+   long[] getAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                     Resource accessedResource,
+                                                     Id<ResourceClassId> resourceClassId,
+                                                     ResourcePermission resourcePermission,
+                                                     Id<ResourcePermissionId> resourcePermissionId,
+                                                     long afterAccessorResourceId,
+                                                     long upToAccessorResourceId,
+                                                     int maxCount);
+
+   long[] getEffectiveAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                              Resource accessedResource,
+                                                              Id<ResourceClassId> resourceClassId,
+                                                              Id<DomainId> resourceDomainId,
+                                                              ResourcePermission resourcePermission,
+                                                              Id<ResourcePermissionId> resourcePermissionId,
+                                                              long afterAccessorResourceId,
+                                                              long upToAccessorResourceId,
+                                                              int maxCount);
+
    Set<ResourcePermission> getResourcePermissionsIncludeInherited(SQLConnection connection,
                                                                   Resource accessorResource,
                                                                   Resource accessedResource);
 
+   LongObjectHashMap<Set<ResourcePermission>> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                                     Resource accessorResource,
+                                                                                     List<Resource> accessedResources);
+
    Set<ResourcePermission> getResourcePermissions(SQLConnection connection,
                                                   Resource accessorResource,
                                                   Resource accessedResource);
@@ -68,9 +93,19 @@ public interface GrantResourcePermissionPersister {
                                   Set<ResourcePermission> requestedResourcePermissions,
                                   Resource grantorResource);
 
+   void upsertResourcePermissions(SQLConnection connection,
+                                  Resource accessorResource,
+                                  Resource accessedResource,
+                                  Id<ResourceClassId> accessedResourceClassId,
+                                  Set<ResourcePermission> requestedResourcePermissions,
+                                  Resource grantorResource);
+
    void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
                                                          Resource resource);
 
+   void removeAllResourcePermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                         List<Resource> resources);
+
    void removeResourcePermissions(SQLConnection connection,
                                   Resource accessorResource,
                                   Resource accessedResource);
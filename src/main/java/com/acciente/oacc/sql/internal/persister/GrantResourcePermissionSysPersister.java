@@ -19,10 +19,12 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 
+import java.util.List;
 import java.util.Set;
 
 public interface GrantResourcePermissionSysPersister {
@@ -42,10 +44,35 @@ public interface GrantResourcePermissionSysPersister {
                                                              Id<ResourceClassId> resourceClassId,
                                                              ResourcePermission resourcePermission);
 
+   long[] getAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                        Resource accessedResource,
+                                                        Id<ResourceClassId> resourceClassId,
+                                                        ResourcePermission resourcePermission,
+                                                        long afterAccessorResourceId,
+                                                        long upToAccessorResourceId,
+                                                        int maxCount);
+
+   long[] getEffectiveAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                                 Resource accessedResource,
+                                                                 Id<ResourceClassId> resourceClassId,
+                                                                 Id<DomainId> resourceDomainId,
+                                                                 ResourcePermission resourcePermission,
+                                                                 long afterAccessorResourceId,
+                                                                 long upToAccessorResourceId,
+                                                                 int maxCount);
+
+   boolean isInheritedFrom(SQLConnection connection,
+                           Resource accessorResource,
+                           Resource inheritedResource);
+
    Set<ResourcePermission> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
                                                                      Resource accessorResource,
                                                                      Resource accessedResource);
 
+   LongObjectHashMap<Set<ResourcePermission>> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                        Resource accessorResource,
+                                                                                        List<Resource> accessedResources);
+
    Set<ResourcePermission> getResourceSysPermissions(SQLConnection connection,
                                                      Resource accessorResource,
                                                      Resource accessedResource);
@@ -64,9 +91,19 @@ public interface GrantResourcePermissionSysPersister {
                                      Set<ResourcePermission> requestedResourcePermissions,
                                      Resource grantorResource);
 
+   void upsertResourceSysPermissions(SQLConnection connection,
+                                     Resource accessorResource,
+                                     Resource accessedResource,
+                                     Id<ResourceClassId> accessedResourceClassId,
+                                     Set<ResourcePermission> requestedResourcePermissions,
+                                     Resource grantorResource);
+
    void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
                                                             Resource resource);
 
+   void removeAllResourceSysPermissionsAsAccessorOrAccessed(SQLConnection connection,
+                                                            List<Resource> resources);
+
    void removeResourceSysPermissions(SQLConnection connection,
                                      Resource accessorResource,
                                      Resource accessedResource);
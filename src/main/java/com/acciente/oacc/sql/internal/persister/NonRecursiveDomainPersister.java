@@ -23,10 +23,8 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 
 import java.io.Serializable;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 public class NonRecursiveDomainPersister extends CommonDomainPersister implements Serializable {
@@ -105,16 +103,16 @@ public class NonRecursiveDomainPersister extends CommonDomainPersister implement
 
       try {
          // get descendant domain Ids
-         List<Id<DomainId>> descendantDomainIds
-               = new ArrayList<>(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
-                                                                                                           connection,
-                                                                                                           domainId));
+         final long[] descendantDomainIds
+               = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                           connection,
+                                                                                           domainId);
 
          // delete descendant domains one at a time, in reverse order of domainLevel, to preserve FK constraints
          statement = connection.prepareStatement(sqlStrings.SQL_removeInDomain_BY_DomainID);
 
-         for (int i = descendantDomainIds.size() - 1; i >= 0; i--) {
-            statement.setResourceDomainId(1, descendantDomainIds.get(i));
+         for (int i = descendantDomainIds.length - 1; i >= 0; i--) {
+            statement.setResourceDomainId(1, descendantDomainIds[i]);
             assertOneRowUpdated(statement.executeUpdate());
          }
       }
@@ -20,8 +20,6 @@ package com.acciente.oacc.sql.internal.persister;
 import com.acciente.oacc.DomainCreatePermission;
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.sql.SQLProfile;
-import com.acciente.oacc.sql.internal.persister.id.Id;
-import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
@@ -43,14 +41,14 @@ public class NonRecursiveGrantDomainCreatePermissionPostCreateSysPersister exten
 
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // now accumulate the permissions on the accessed resource from each of the (inherited) accessors
          Set<DomainCreatePermission> domainCreatePermissions = new HashSet<>();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainCreatePermissionPostCreateSys_withoutInheritance_PostCreateSysPermissionID_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             SQLResult resultSet = statement.executeQuery();
 
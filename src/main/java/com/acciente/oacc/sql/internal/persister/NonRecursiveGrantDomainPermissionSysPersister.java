@@ -19,6 +19,7 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.DomainPermission;
 import com.acciente.oacc.Resource;
+import com.acciente.oacc.internal.LongHashSet;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -27,10 +28,9 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -42,6 +42,54 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
       super(sqlProfile, sqlStrings);
    }
 
+   @Override
+   public long[] getSuperUserDomainIds(SQLConnection connection,
+                                       Resource accessorResource) {
+      SQLStatement statement = null;
+      try {
+         // first get all the resources from which the accessor inherits any permissions
+         final long[] accessorResourceIds
+               = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
+
+         // secondly get all the domains the accessors directly have super user permission to
+         SQLResult resultSet;
+         final LongHashSet directDomainIds = new LongHashSet();
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainId_BY_AccessorID_SysPermissionID_IsWithGrant);
+
+         for (long accessorResourceId : accessorResourceIds) {
+            statement.setResourceId(1, accessorResourceId);
+            statement.setDomainSystemPermissionId(2, DOMAIN_PERMISSION_SUPER_USER.getSystemPermissionId());
+            statement.setBoolean(3, false);
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               directDomainIds.add(resultSet.getLong("AccessedDomainId"));
+            }
+            resultSet.close();
+         }
+
+         // then add all the descendants of the directly accessible domains
+         final LongHashSet domainIds = new LongHashSet();
+         for (long directDomainId : directDomainIds.toArray()) {
+            if (!domainIds.contains(directDomainId)) {
+               domainIds.addAll(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                                         connection,
+                                                                                                         Id.<DomainId>from(directDomainId)));
+            }
+         }
+
+         final long[] sortedDomainIds = domainIds.toArray();
+         Arrays.sort(sortedDomainIds);
+         return sortedDomainIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Set<Resource> getResourcesByDomainSuperUserPermission(SQLConnection connection,
                                                                 Resource accessorResource,
@@ -49,47 +97,47 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // secondly get all the domains the accessors directly have access to
          SQLResult resultSet;
-         final Set<Id<DomainId>> directDomainIds = new HashSet<>();
+         final LongHashSet directDomainIds = new LongHashSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainId_BY_AccessorID_SysPermissionID_IsWithGrant);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             statement.setDomainSystemPermissionId(2, DOMAIN_PERMISSION_SUPER_USER.getSystemPermissionId());
             statement.setBoolean(3, false);
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               directDomainIds.add(resultSet.getResourceDomainId("AccessedDomainId"));
+               directDomainIds.add(resultSet.getLong("AccessedDomainId"));
             }
             resultSet.close();
          }
          closeStatement(statement);
 
          // then get all the descendants of the directly accessible domains
-         final Set<Id<DomainId>> accessibleDomainIds = new HashSet<>();
-         for (Id<DomainId> directDomainId : directDomainIds) {
+         final LongHashSet accessibleDomainIds = new LongHashSet();
+         for (long directDomainId : directDomainIds.toArray()) {
             accessibleDomainIds
                   .addAll(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                                     connection,
-                                                                                                    directDomainId));
+                                                                                                    Id.<DomainId>from(directDomainId)));
          }
 
          // now get resources of the specified class that the session has access to via domain super user permissions
-         final Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_ResourceClassID_DomainID);
 
-         for (Id<DomainId> domainId : accessibleDomainIds) {
+         for (long domainId : accessibleDomainIds.toArray()) {
             statement.setResourceClassId(1, resourceClassId);
             statement.setResourceDomainId(2, domainId);
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+               resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
             }
             resultSet.close();
          }
@@ -112,56 +160,61 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // secondly get all the domains the accessors directly have access to
          SQLResult resultSet;
-         final Set<Id<DomainId>> directDomainIds = new HashSet<>();
+         final LongHashSet directDomainIds = new LongHashSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainId_BY_AccessorID_SysPermissionID_IsWithGrant);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             statement.setDomainSystemPermissionId(2, DOMAIN_PERMISSION_SUPER_USER.getSystemPermissionId());
             statement.setBoolean(3, false);
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               directDomainIds.add(resultSet.getResourceDomainId("AccessedDomainId"));
+               directDomainIds.add(resultSet.getLong("AccessedDomainId"));
             }
             resultSet.close();
          }
          closeStatement(statement);
 
          // then get all the descendants of the directly accessible domains
-         final Set<Id<DomainId>> accessibleDomainIds = new HashSet<>();
-         for (Id<DomainId> directDomainId : directDomainIds) {
+         final LongHashSet accessibleDomainIds = new LongHashSet();
+         for (long directDomainId : directDomainIds.toArray()) {
             accessibleDomainIds
                   .addAll(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                                     connection,
-                                                                                                    directDomainId));
+                                                                                                    Id.<DomainId>from(directDomainId)));
          }
 
          // also get the descendents of the specified domain
-         final Set<Id<DomainId>> descendantDomainIds
+         final long[] descendantDomainIds
                = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                            connection,
                                                                                            resourceDomainId);
 
          // next, filter the accessible domains by the specified sub-domains
-         accessibleDomainIds.retainAll(descendantDomainIds);
+         final LongHashSet accessibleDescendantDomainIds = new LongHashSet();
+         for (long descendantDomainId : descendantDomainIds) {
+            if (accessibleDomainIds.contains(descendantDomainId)) {
+               accessibleDescendantDomainIds.add(descendantDomainId);
+            }
+         }
 
          // now get resources of the specified class that the session has access to via domain super user permissions
-         final Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_ResourceClassID_DomainID);
 
-         for (Id<DomainId> domainId : accessibleDomainIds) {
+         for (long domainId : accessibleDescendantDomainIds.toArray()) {
             statement.setResourceClassId(1, resourceClassId);
             statement.setResourceDomainId(2, domainId);
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+               resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
             }
             resultSet.close();
          }
@@ -184,11 +237,11 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
 
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // get the ancestors of the specified domain, to which the accessors could also have permissions
-         final Set<Id<DomainId>> ancestorDomainIds = NonRecursivePersisterHelper.getAncestorDomainIds(sqlStrings,
+         final long[] ancestorDomainIds = NonRecursivePersisterHelper.getAncestorDomainIds(sqlStrings,
                                                                                                       connection,
                                                                                                       resourceDomainId);
 
@@ -196,8 +249,8 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
          Set<DomainPermission> domainPermissions = new HashSet<>();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_SysPermissionID_IsWithGrant_BY_AccessorID_DomainID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
-            for (Id<DomainId> domainId : ancestorDomainIds) {
+         for (long accessorResourceId : accessorResourceIds) {
+            for (long domainId : ancestorDomainIds) {
                statement.setResourceId(1, accessorResourceId);
                statement.setResourceDomainId(2, domainId);
                SQLResult resultSet = statement.executeQuery();
@@ -227,7 +280,7 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
 
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // second, get all the domain permissions the accessors directly have access to
@@ -236,7 +289,7 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainName_SysPermissionID_IsWithGrant_BY_AccessorID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             resultSet = statement.executeQuery();
 
@@ -296,16 +349,16 @@ public class NonRecursiveGrantDomainPermissionSysPersister extends CommonGrantDo
 
       try {
          // get descendant domain Ids
-         List<Id<DomainId>> descendantDomainIds
-               = new ArrayList<>(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
-                                                                                                           connection,
-                                                                                                           domainId));
+         final long[] descendantDomainIds
+               = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                           connection,
+                                                                                           domainId);
 
          // delete domains' accessors (in reverse order of domainLevel, to preserve FK constraints)
          statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantDomainPermissionSys_BY_AccessedDomainID);
 
-         for (int i=descendantDomainIds.size()-1; i >= 0; i--) {
-            statement.setResourceDomainId(1, descendantDomainIds.get(i));
+         for (int i=descendantDomainIds.length - 1; i >= 0; i--) {
+            statement.setResourceDomainId(1, descendantDomainIds[i]);
             statement.executeUpdate();
          }
       }
@@ -19,6 +19,7 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongHashSet;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -27,11 +28,8 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -55,15 +53,15 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // second, get all the domains the accessors directly have the specified global permission to
          SQLResult resultSet;
-         Set<Id<DomainId>> directGlobalDomains = new HashSet<>();
+         final LongHashSet directGlobalDomains = new LongHashSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             statement.setResourceClassId(2, resourceClassId);
             statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
@@ -71,28 +69,28 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               directGlobalDomains.add(resultSet.getResourceDomainId("DomainId"));
+               directGlobalDomains.add(resultSet.getLong("DomainId"));
             }
             resultSet.close();
          }
          closeStatement(statement);
 
          // then get all resources of the specified class for each of the direct domain's descendants
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_ResourceClassID_DomainID);
 
-         for (Id<DomainId> directDomainId: directGlobalDomains) {
-            Set<Id<DomainId>> descendentDomainIds
+         for (long directDomainId : directGlobalDomains.toArray()) {
+            final long[] descendentDomainIds
                   = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                               connection,
-                                                                                              directDomainId);
-            for (Id<DomainId> descendentDomainId : descendentDomainIds) {
+                                                                                              Id.<DomainId>from(directDomainId));
+            for (long descendentDomainId : descendentDomainIds) {
                statement.setResourceClassId(1, resourceClassId);
                statement.setResourceDomainId(2, descendentDomainId);
                resultSet = statement.executeQuery();
 
                while (resultSet.next()) {
-                  resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+                  resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
                }
                resultSet.close();
             }
@@ -121,15 +119,15 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // second, get all the domains the accessors directly have the specified global permission to
          SQLResult resultSet;
-         Set<Id<DomainId>> directGlobalDomains = new HashSet<>();
+         final LongHashSet directGlobalDomains = new LongHashSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             statement.setResourceClassId(2, resourceClassId);
             statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
@@ -137,23 +135,23 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               directGlobalDomains.add(resultSet.getResourceDomainId("DomainId"));
+               directGlobalDomains.add(resultSet.getLong("DomainId"));
             }
             resultSet.close();
          }
          closeStatement(statement);
 
-         Set<Id<DomainId>> requestedAncestorDomainIds
+         final long[] requestedAncestorDomainIds
                = NonRecursivePersisterHelper.getAncestorDomainIds(sqlStrings, connection, resourceDomainId);
-         Set<Id<DomainId>> requestedDescendentDomainIds
+         final long[] requestedDescendentDomainIds
                = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                            connection,
                                                                                            resourceDomainId);
-         Set<Id<DomainId>> effectiveDomainIds = Collections.emptySet();
+         long[] effectiveDomainIds = new long[0];
 
          // let's see if we have global permissions on an ancestor of the requested domain, first
-         for (Id<DomainId> directDomainId: directGlobalDomains) {
-            if (requestedAncestorDomainIds.contains(directDomainId)) {
+         for (long requestedAncestorDomainId : requestedAncestorDomainIds) {
+            if (directGlobalDomains.contains(requestedAncestorDomainId)) {
                // because we have global permissions on an ancestor of the requested domain,
                // we have access to all resources of any sub-domain of the requested domain
                effectiveDomainIds = requestedDescendentDomainIds;
@@ -161,30 +159,33 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
             }
          }
 
-         if (effectiveDomainIds.isEmpty()){
-            // we did not have global permission on an ancestor of the requested domain, so let's
-            // find the highest level sub-domain of the requested domain to which we have global permission
-            for (Id<DomainId> requestedDescendentDomainId : requestedDescendentDomainIds) {
-               if (directGlobalDomains.contains(requestedDescendentDomainId)) {
-                  effectiveDomainIds
-                        = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
-                                                                                                    connection,
-                                                                                                    requestedDescendentDomainId);
-                  break;
+         if (effectiveDomainIds.length == 0) {
+            // we did not have global permission on an ancestor of the requested domain, so let's collect
+            // the sub-trees of all the sub-domains of the requested domain to which we have global permission;
+            // because the sub-domains are ordered by ascending level, a sub-domain that is nested within one
+            // we already collected is skipped
+            final LongHashSet effectiveDomainIdSet = new LongHashSet();
+            for (long requestedDescendentDomainId : requestedDescendentDomainIds) {
+               if (directGlobalDomains.contains(requestedDescendentDomainId)
+                     && !effectiveDomainIdSet.contains(requestedDescendentDomainId)) {
+                  effectiveDomainIdSet.addAll(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                                                       connection,
+                                                                                                                       Id.<DomainId>from(requestedDescendentDomainId)));
                }
             }
+            effectiveDomainIds = effectiveDomainIdSet.toArray();
          }
 
          // now let's collect all the resources for those sub-domains to which we effectively have global permissions
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_ResourceClassID_DomainID);
-         for (Id<DomainId> effectiveDomainId : effectiveDomainIds) {
+         for (long effectiveDomainId : effectiveDomainIds) {
             statement.setResourceClassId(1, resourceClassId);
             statement.setResourceDomainId(2, effectiveDomainId);
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+               resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
             }
             resultSet.close();
          }
@@ -207,11 +208,11 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // get the ancestors of the specified domain, to which the accessors could also have permissions
-         final Set<Id<DomainId>> ancestorDomainIds
+         final long[] ancestorDomainIds
                = NonRecursivePersisterHelper.getAncestorDomainIds(sqlStrings, connection, resourceDomainId);
 
          // now collect the sys-permissions any accessor resource has to the specified domain or its ancestors
@@ -219,8 +220,8 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
          Set<ResourcePermission> resourcePermissions = new HashSet<>();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
-            for (Id<DomainId> domainId : ancestorDomainIds) {
+         for (long accessorResourceId : accessorResourceIds) {
+            for (long domainId : ancestorDomainIds) {
                statement.setResourceId(1, accessorResourceId);
                statement.setResourceDomainId(2, domainId);
                statement.setResourceClassId(3, resourceClassId);
@@ -248,7 +249,7 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // second, get all the global resource permissions the accessors directly have access to
@@ -257,7 +258,7 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainName_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             resultSet = statement.executeQuery();
 
@@ -336,16 +337,16 @@ public class NonRecursiveGrantGlobalResourcePermissionSysPersister extends Commo
       SQLStatement statement = null;
       try {
          // get descendant domain Ids
-         List<Id<DomainId>> descendantDomainIds
-               = new ArrayList<>(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
-                                                                                                           connection,
-                                                                                                           accessedDomainId));
+         final long[] descendantDomainIds
+               = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                           connection,
+                                                                                           accessedDomainId);
 
          // delete domains' accessors (in reverse order of domainLevel, to preserve FK constraints)
          statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessedDomainId);
 
-         for (int i=descendantDomainIds.size()-1; i >= 0; i--) {
-            statement.setResourceDomainId(1, descendantDomainIds.get(i));
+         for (int i=descendantDomainIds.length - 1; i >= 0; i--) {
+            statement.setResourceDomainId(1, descendantDomainIds[i]);
             statement.executeUpdate();
          }
       }
@@ -23,14 +23,11 @@ import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
-import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.io.Serializable;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -51,11 +48,11 @@ public class NonRecursiveGrantResourceCreatePermissionPostCreatePersister extend
 
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // get the ancestors of the specified domain, to which the accessors could also have permissions
-         final Set<Id<DomainId>> ancestorDomainIds
+         final long[] ancestorDomainIds
                = NonRecursivePersisterHelper.getAncestorDomainIds(sqlStrings, connection, resourceDomainId);
 
          // now collect the sys-permissions any accessor resource has to the specified domain or its ancestors
@@ -63,8 +60,8 @@ public class NonRecursiveGrantResourceCreatePermissionPostCreatePersister extend
          Set<ResourceCreatePermission> resourceCreatePermissions = new HashSet<>();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourceCreatePermissionPostCreate_withoutInheritance_PostCreatePermissionName_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
-            for (Id<DomainId> domainId : ancestorDomainIds) {
+         for (long accessorResourceId : accessorResourceIds) {
+            for (long domainId : ancestorDomainIds) {
                statement.setResourceId(1, accessorResourceId);
                statement.setResourceDomainId(2, domainId);
                statement.setResourceClassId(3, resourceClassId);
@@ -95,7 +92,7 @@ public class NonRecursiveGrantResourceCreatePermissionPostCreatePersister extend
 
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // second, get all the resource create permissions the accessors directly have access to
@@ -104,7 +101,7 @@ public class NonRecursiveGrantResourceCreatePermissionPostCreatePersister extend
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourceCreatePermissionPostCreate_withoutInheritance_ResourceDomainName_ResourceClassName_PostCreatePermissionName_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             resultSet = statement.executeQuery();
 
@@ -183,16 +180,16 @@ public class NonRecursiveGrantResourceCreatePermissionPostCreatePersister extend
       SQLStatement statement = null;
       try {
          // get descendant domain Ids
-         List<Id<DomainId>> descendantDomainIds
-               = new ArrayList<>(NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
-                                                                                                           connection,
-                                                                                                           accessedDomainId));
+         final long[] descendantDomainIds
+               = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
+                                                                                           connection,
+                                                                                           accessedDomainId);
 
          // delete domains' accessors (in reverse order of domainLevel, to preserve FK constraints)
          statement = connection.prepareStatement(sqlStrings.SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessedDomainId);
 
-         for (int i=descendantDomainIds.size()-1; i >= 0; i--) {
-            statement.setResourceDomainId(1, descendantDomainIds.get(i));
+         for (int i=descendantDomainIds.length - 1; i >= 0; i--) {
+            statement.setResourceDomainId(1, descendantDomainIds[i]);
             statement.executeUpdate();
          }
       }
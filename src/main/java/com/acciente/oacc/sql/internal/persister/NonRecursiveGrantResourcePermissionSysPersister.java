@@ -19,6 +19,8 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongHashSet;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -28,6 +30,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrantResourcePermissionSysPersister implements Serializable {
@@ -38,6 +41,13 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
       super(sqlProfile, sqlStrings);
    }
 
+   @Override
+   public boolean isInheritedFrom(SQLConnection connection,
+                                  Resource accessorResource,
+                                  Resource inheritedResource) {
+      return NonRecursivePersisterHelper.isInheritedFrom(sqlStrings, connection, accessorResource, inheritedResource);
+   }
+
    @Override
    public Set<Resource> getResourcesByResourceSysPermission(SQLConnection connection,
                                                             Resource accessorResource,
@@ -50,15 +60,15 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // now accumulate the objects of the specified type that each (inherited) accessor has the specified permission to
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             statement.setResourceClassId(2, resourceClassId);
             statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
@@ -66,7 +76,7 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
             resultSet = statement.executeQuery();
 
             while (resultSet.next()) {
-               resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+               resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
             }
             resultSet.close();
          }
@@ -94,11 +104,11 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // then get all the descendants of the specified domain
-         final Set<Id<DomainId>> descendantDomainIds
+         final long[] descendantDomainIds
                = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                            connection,
                                                                                            resourceDomainId);
@@ -106,11 +116,11 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
          // now accumulate the objects of the specified type that each (inherited) accessor
          // has the specified permission to in each of the descendant domains
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_SysPermissionID_IsWithGrant);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
-            for (Id<DomainId> descendantDomainId : descendantDomainIds) {
+         for (long accessorResourceId : accessorResourceIds) {
+            for (long descendantDomainId : descendantDomainIds) {
                statement.setResourceId(1, accessorResourceId);
                statement.setResourceDomainId(2, descendantDomainId);
                statement.setResourceClassId(3, resourceClassId);
@@ -119,7 +129,7 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
                resultSet = statement.executeQuery();
 
                while (resultSet.next()) {
-                  resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+                  resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
                }
                resultSet.close();
             }
@@ -135,6 +145,79 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
       }
    }
 
+   @Override
+   public long[] getEffectiveAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                                        Resource accessedResource,
+                                                                        Id<ResourceClassId> resourceClassId,
+                                                                        Id<DomainId> resourceDomainId,
+                                                                        ResourcePermission resourcePermission,
+                                                                        long afterAccessorResourceId,
+                                                                        long upToAccessorResourceId,
+                                                                        int maxCount) {
+      if (!resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a system permission");
+      }
+
+      SQLStatement statement = null;
+      try {
+         SQLResult resultSet;
+         final LongHashSet accessorResourceIds = new LongHashSet();
+
+         // first get the accessors that have the permission directly
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant);
+         statement.setResourceId(1, accessedResource);
+         statement.setResourceClassId(2, resourceClassId);
+         statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
+         statement.setBoolean(4, resourcePermission.isWithGrantOption());
+         resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            accessorResourceIds.add(resultSet.getLong("ResourceId"));
+         }
+         resultSet.close();
+         closeStatement(statement);
+
+         // then the accessors that have the permission globally on the accessed domain or any of its ancestors
+         final long[] ancestorDomainIds
+               = NonRecursivePersisterHelper.getAncestorDomainIds(sqlStrings, connection, resourceDomainId);
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_AccessorID_BY_AccessedDomainID_ResourceClassID_SysPermissionID_IsWithGrant);
+         statement.setResourceClassId(2, resourceClassId);
+         statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
+         statement.setBoolean(4, resourcePermission.isWithGrantOption());
+
+         for (long ancestorDomainId : ancestorDomainIds) {
+            statement.setResourceDomainId(1, ancestorDomainId);
+            resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               accessorResourceIds.add(resultSet.getLong("ResourceId"));
+            }
+            resultSet.close();
+         }
+
+         // then the super-users of the accessed domain or any of its ancestors
+         accessorResourceIds.addAll(NonRecursivePersisterHelper.getSuperUserAccessorResourceIds(sqlStrings,
+                                                                                                connection,
+                                                                                                ancestorDomainIds));
+
+         // and finally all the resources that inherit from any of the above; the inheritance has to be walked in full,
+         // because resources outside of the requested range may be inherited from, so the range is applied last
+         return getOrderedResourceIds(NonRecursivePersisterHelper.getInheritingAccessorResourceIds(sqlStrings,
+                                                                                                   connection,
+                                                                                                   accessorResourceIds.toArray()),
+                                      afterAccessorResourceId,
+                                      upToAccessorResourceId,
+                                      maxCount);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Set<ResourcePermission> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
                                                                             Resource accessorResource,
@@ -142,7 +225,7 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
       SQLStatement statement = null;
       try {
          // first get all the resources from which the accessor inherits any permissions
-         final Set<Id<ResourceId>> accessorResourceIds
+         final long[] accessorResourceIds
                = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
 
          // now accumulate the objects of the specified type that each (inherited) accessor has the specified permission to
@@ -150,7 +233,7 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
          Set<ResourcePermission> resourcePermissions = new HashSet<>();
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID);
 
-         for (Id<ResourceId> accessorResourceId : accessorResourceIds) {
+         for (long accessorResourceId : accessorResourceIds) {
             statement.setResourceId(1, accessorResourceId);
             statement.setResourceId(2, accessedResource);
             resultSet = statement.executeQuery();
@@ -170,4 +253,34 @@ public class NonRecursiveGrantResourcePermissionSysPersister extends CommonGrant
          closeStatement(statement);
       }
    }
+
+   @Override
+   public LongObjectHashMap<Set<ResourcePermission>> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                               Resource accessorResource,
+                                                                                               List<Resource> accessedResources) {
+      SQLStatement statement = null;
+      try {
+         // first get all the resources from which the accessor inherits any permissions
+         final long[] accessorResourceIds
+               = NonRecursivePersisterHelper.getInheritedAccessorResourceIds(sqlStrings, connection, accessorResource);
+
+         // now accumulate the system permissions that each (inherited) accessor has to the accessed resources
+         final LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByAccessedResourceId
+               = new LongObjectHashMap<>(accessedResources.size());
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_withoutInheritance_AccessedID_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID_IN);
+
+         for (long accessorResourceId : accessorResourceIds) {
+            statement.setResourceId(1, accessorResourceId);
+            collectResourceSysPermissionsByAccessedResourceId(statement, accessedResources, resourcePermissionsByAccessedResourceId);
+         }
+
+         return resourcePermissionsByAccessedResourceId;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
 }
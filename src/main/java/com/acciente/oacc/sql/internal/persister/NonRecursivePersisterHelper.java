@@ -17,42 +17,98 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
 import com.acciente.oacc.Resource;
+import com.acciente.oacc.internal.LongHashSet;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
-import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class NonRecursivePersisterHelper {
-   protected static Set<Id<ResourceId>> getInheritedAccessorResourceIds(SQLStrings sqlStrings,
-                                                                        SQLConnection connection,
-                                                                        Resource accessorResource) {
+   private static final DomainPermission DomainPermission_SUPER_USER
+         = DomainPermissions.getInstance(DomainPermissions.SUPER_USER);
+
+   protected static long[] getInheritedAccessorResourceIds(SQLStrings sqlStrings,
+                                                           SQLConnection connection,
+                                                           Resource accessorResource) {
+      SQLStatement statement = null;
+      final LongHashSet allAccessorResourceIds = new LongHashSet();
+      allAccessorResourceIds.add(accessorResource.getId());
+      long[] previousAccessorResourceIds = {accessorResource.getId()};
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_directInheritance_ResourceID_BY_AccessorID);
+
+         while (previousAccessorResourceIds.length > 0) {
+            final LongHashSet newestAccessorResourceIds = new LongHashSet();
+
+            for (long accessorResourceId : previousAccessorResourceIds) {
+               statement.setResourceId(1, accessorResourceId);
+               SQLResult resultSet = statement.executeQuery();
+
+               while (resultSet.next()) {
+                  final long inheritedResourceId = resultSet.getLong("ResourceId");
+                  if (allAccessorResourceIds.add(inheritedResourceId)) {
+                     newestAccessorResourceIds.add(inheritedResourceId);
+                  }
+               }
+               resultSet.close();
+            }
+            previousAccessorResourceIds = newestAccessorResourceIds.toArray();
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         Persister.closeStatement(statement);
+      }
+
+      return allAccessorResourceIds.toArray();
+   }
+
+   protected static boolean isInheritedFrom(SQLStrings sqlStrings,
+                                            SQLConnection connection,
+                                            Resource accessorResource,
+                                            Resource inheritedResource) {
+      if (accessorResource.getId().equals(inheritedResource.getId())) {
+         return true;
+      }
+
       SQLStatement statement = null;
-      Set<Id<ResourceId>> allAccessorResourceIds = new HashSet<>();
-      allAccessorResourceIds.add(Id.<ResourceId>from(accessorResource.getId()));
-      Set<Id<ResourceId>> previousAccessorResourceIds = new HashSet<>(allAccessorResourceIds);
+      final LongHashSet allAccessorResourceIds = new LongHashSet();
+      allAccessorResourceIds.add(accessorResource.getId());
+      long[] previousAccessorResourceIds = {accessorResource.getId()};
 
       try {
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_directInheritance_ResourceID_BY_AccessorID);
 
-         while (!previousAccessorResourceIds.isEmpty()) {
-            Set<Id<ResourceId>> newestAccessorResourceIds = new HashSet<>();
+         // same walk as getInheritedAccessorResourceIds(), but stops as soon as the inherited resource is reached
+         while (previousAccessorResourceIds.length > 0) {
+            final LongHashSet newestAccessorResourceIds = new LongHashSet();
 
-            for (Id<ResourceId> accessorResourceId : previousAccessorResourceIds) {
+            for (long accessorResourceId : previousAccessorResourceIds) {
                statement.setResourceId(1, accessorResourceId);
                SQLResult resultSet = statement.executeQuery();
 
                while (resultSet.next()) {
-                  newestAccessorResourceIds.add(resultSet.getResourceId("ResourceId"));
+                  final long inheritedResourceId = resultSet.getLong("ResourceId");
+                  if (inheritedResourceId == inheritedResource.getId()) {
+                     resultSet.close();
+                     return true;
+                  }
+                  if (allAccessorResourceIds.add(inheritedResourceId)) {
+                     newestAccessorResourceIds.add(inheritedResourceId);
+                  }
                }
                resultSet.close();
             }
-            allAccessorResourceIds.addAll(newestAccessorResourceIds);
-            previousAccessorResourceIds = newestAccessorResourceIds;
+            previousAccessorResourceIds = newestAccessorResourceIds.toArray();
          }
       }
       catch (SQLException e) {
@@ -62,34 +118,42 @@ public class NonRecursivePersisterHelper {
          Persister.closeStatement(statement);
       }
 
-      return allAccessorResourceIds;
+      return false;
    }
 
-   protected static Set<Id<DomainId>> getDescendantDomainIdsOrderedByAscendingLevel(SQLStrings sqlStrings,
-                                                                                    SQLConnection connection,
-                                                                                    Id<DomainId> parentDomainId) {
+   protected static long[] getDescendantDomainIdsOrderedByAscendingLevel(SQLStrings sqlStrings,
+                                                                       SQLConnection connection,
+                                                                       Id<DomainId> parentDomainId) {
       SQLStatement statement = null;
-      Set<Id<DomainId>> allDomainIds = new LinkedHashSet<>();
-      allDomainIds.add(parentDomainId);
-      Set<Id<DomainId>> previousDomainIds = new HashSet<>(allDomainIds);
+      final LongHashSet visitedDomainIds = new LongHashSet();
+      visitedDomainIds.add(parentDomainId.getValue());
+      // the domains in the order they were visited, which is by ascending level below the parent domain
+      long[] allDomainIds = {parentDomainId.getValue()};
+      int domainCount = 1;
+      int previousLevelStart = 0;
 
       try {
          statement = connection.prepareStatement(sqlStrings.SQL_findInDomain_DirectDescendantResourceDomainName_BY_DomainID);
 
-         while (!previousDomainIds.isEmpty()) {
-            Set<Id<DomainId>> newestDomainIds = new HashSet<>();
+         while (previousLevelStart < domainCount) {
+            final int previousLevelEnd = domainCount;
 
-            for (Id<DomainId> domainId : previousDomainIds) {
-               statement.setResourceDomainId(1, domainId);
+            for (int i = previousLevelStart; i < previousLevelEnd; i++) {
+               statement.setResourceDomainId(1, allDomainIds[i]);
                SQLResult resultSet = statement.executeQuery();
 
                while (resultSet.next()) {
-                  newestDomainIds.add(resultSet.getResourceDomainId("DomainId"));
+                  final long childDomainId = resultSet.getLong("DomainId");
+                  if (visitedDomainIds.add(childDomainId)) {
+                     if (domainCount == allDomainIds.length) {
+                        allDomainIds = Arrays.copyOf(allDomainIds, domainCount << 1);
+                     }
+                     allDomainIds[domainCount++] = childDomainId;
+                  }
                }
                resultSet.close();
             }
-            allDomainIds.addAll(newestDomainIds);
-            previousDomainIds = newestDomainIds;
+            previousLevelStart = previousLevelEnd;
          }
       }
       catch (SQLException e) {
@@ -99,7 +163,7 @@ public class NonRecursivePersisterHelper {
          Persister.closeStatement(statement);
       }
 
-      return allDomainIds;
+      return Arrays.copyOf(allDomainIds, domainCount);
    }
 
    protected static Set<String> getDescendantDomainNames(SQLStrings sqlStrings,
@@ -139,26 +203,53 @@ public class NonRecursivePersisterHelper {
       return allDomainNames;
    }
 
-   protected static Set<Id<DomainId>> getAncestorDomainIds(SQLStrings sqlStrings,
-                                                           SQLConnection connection,
-                                                           Id<DomainId> domainId) {
+   protected static long[] getAncestorDomainIds(SQLStrings sqlStrings,
+                                                SQLConnection connection,
+                                                Id<DomainId> domainId) {
       SQLStatement statement = null;
-      Set<Id<DomainId>> ancestorDomainIds = new HashSet<>();
-      ancestorDomainIds.add(domainId);
-      int previousSize = 0;
+      final LongHashSet ancestorDomainIds = new LongHashSet();
+      ancestorDomainIds.add(domainId.getValue());
 
       try {
          statement = connection.prepareStatement(sqlStrings.SQL_findInDomain_ParentResourceDomainName_BY_DomainID);
-         Id<DomainId> parentDomainId = domainId;
+         long parentDomainId = domainId.getValue();
+         boolean hasParent = true;
 
-         while (previousSize < ancestorDomainIds.size()) {
-            previousSize = ancestorDomainIds.size();
+         while (hasParent) {
             statement.setResourceDomainId(1, parentDomainId);
             SQLResult resultSet = statement.executeQuery();
 
-            if (resultSet.next()) {
-               parentDomainId = resultSet.getResourceDomainId("DomainId");
-               ancestorDomainIds.add(parentDomainId);
+            // stop at the root domain, or at a domain that was already visited
+            hasParent = resultSet.next() && ancestorDomainIds.add(parentDomainId = resultSet.getLong("DomainId"));
+            resultSet.close();
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         Persister.closeStatement(statement);
+      }
+
+      return ancestorDomainIds.toArray();
+   }
+
+   protected static long[] getSuperUserAccessorResourceIds(SQLStrings sqlStrings,
+                                                           SQLConnection connection,
+                                                           long[] domainIds) {
+      SQLStatement statement = null;
+      final LongHashSet accessorResourceIds = new LongHashSet();
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_withoutInheritance_AccessorID_BY_AccessedDomainID_SysPermissionID);
+         statement.setDomainSystemPermissionId(2, DomainPermission_SUPER_USER.getSystemPermissionId());
+
+         for (long domainId : domainIds) {
+            statement.setResourceDomainId(1, domainId);
+            SQLResult resultSet = statement.executeQuery();
+
+            while (resultSet.next()) {
+               accessorResourceIds.add(resultSet.getLong("ResourceId"));
             }
             resultSet.close();
          }
@@ -170,6 +261,51 @@ public class NonRecursivePersisterHelper {
          Persister.closeStatement(statement);
       }
 
-      return ancestorDomainIds;
+      return accessorResourceIds.toArray();
+   }
+
+   protected static long[] getInheritingAccessorResourceIds(SQLStrings sqlStrings,
+                                                            SQLConnection connection,
+                                                            long[] inheritedResourceIds) {
+      SQLStatement statement = null;
+      final LongHashSet allAccessorResourceIds = new LongHashSet();
+      allAccessorResourceIds.addAll(inheritedResourceIds);
+      long[] previousAccessorResourceIds = allAccessorResourceIds.toArray();
+
+      try {
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_directInheritance_AccessorID_BY_AccessedID_IN);
+
+         // the reverse of the walk in getInheritedAccessorResourceIds(), but a whole level at a time
+         while (previousAccessorResourceIds.length > 0) {
+            final LongHashSet newestAccessorResourceIds = new LongHashSet();
+
+            for (int offset = 0; offset < previousAccessorResourceIds.length; offset += SQLStrings.IN_LIST_SIZE) {
+               // pad the last chunk by repeating its last resource id
+               for (int i = 0; i < SQLStrings.IN_LIST_SIZE; i++) {
+                  statement.setResourceId(i + 1,
+                                          previousAccessorResourceIds[Math.min(offset + i,
+                                                                               previousAccessorResourceIds.length - 1)]);
+               }
+               SQLResult resultSet = statement.executeQuery();
+
+               while (resultSet.next()) {
+                  final long inheritingResourceId = resultSet.getLong("ResourceId");
+                  if (allAccessorResourceIds.add(inheritingResourceId)) {
+                     newestAccessorResourceIds.add(inheritingResourceId);
+                  }
+               }
+               resultSet.close();
+            }
+            previousAccessorResourceIds = newestAccessorResourceIds.toArray();
+         }
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         Persister.closeStatement(statement);
+      }
+
+      return allAccessorResourceIds.toArray();
    }
 }
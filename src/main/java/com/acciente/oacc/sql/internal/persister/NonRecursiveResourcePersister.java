@@ -23,7 +23,6 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 
 import java.io.Serializable;
 import java.sql.SQLException;
-import java.util.Set;
 
 public class NonRecursiveResourcePersister extends CommonResourcePersister implements Serializable {
    private static final long serialVersionUID = 1L;
@@ -41,13 +40,13 @@ public class NonRecursiveResourcePersister extends CommonResourcePersister imple
          boolean isEmpty = true;
          SQLResult resultSet;
 
-         final Set<Id<DomainId>> descendantDomainIds
+         final long[] descendantDomainIds
                = NonRecursivePersisterHelper.getDescendantDomainIdsOrderedByAscendingLevel(sqlStrings,
                                                                                            connection,
                                                                                            domainId);
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInResource_withoutInheritance_COUNTResourceID_BY_DomainID);
-         for (Id<DomainId> descendantDomainId : descendantDomainIds) {
+         for (long descendantDomainId : descendantDomainIds) {
             statement.setResourceDomainId(1, descendantDomainId);
             resultSet = statement.executeQuery();
 
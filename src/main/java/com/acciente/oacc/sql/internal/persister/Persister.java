@@ -17,8 +17,12 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import com.acciente.oacc.Resource;
+
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Base class for persisters
@@ -37,6 +41,82 @@ public abstract class Persister implements Serializable {
       }
    }
 
+   /**
+    * Executes the specified bulk statement once for every {@link SQLStrings#IN_LIST_SIZE} resources, binding
+    * the ids of the resources to each of the statement's IN-lists of resource ids. The IN-lists of the last
+    * execution are padded by repeating the id of the last resource.
+    *
+    * @param statement   a statement with one or more IN-lists of {@link SQLStrings#IN_LIST_SIZE} parameters each,
+    *                    and no other parameters
+    * @param resources   the resources whose ids to bind
+    * @param inListCount the number of IN-lists in the statement
+    * @return the total number of rows affected
+    */
+   protected static int executeUpdateForResources(SQLStatement statement,
+                                                  List<Resource> resources,
+                                                  int inListCount) throws SQLException {
+      int rowCount = 0;
+      for (int offset = 0; offset < resources.size(); offset += SQLStrings.IN_LIST_SIZE) {
+         for (int i = 0; i < SQLStrings.IN_LIST_SIZE; i++) {
+            final Resource resource = resources.get(Math.min(offset + i, resources.size() - 1));
+            for (int inList = 0; inList < inListCount; inList++) {
+               statement.setResourceId(inList * SQLStrings.IN_LIST_SIZE + i + 1, resource);
+            }
+         }
+         rowCount += statement.executeUpdate();
+      }
+      return rowCount;
+   }
+
+   /**
+    * Executes the specified query, which returns resource ids in a <code>ResourceId</code> column in ascending order,
+    * and returns the first <code>maxCount</code> of them.
+    *
+    * @param statement a query that orders its rows by resource id
+    * @param maxCount  the maximum number of resource ids to fetch, or {@link Integer#MAX_VALUE} for all of them
+    * @return the resource ids, in ascending order
+    */
+   protected static long[] getOrderedResourceIds(SQLStatement statement,
+                                                 int maxCount) throws SQLException {
+      if (maxCount < Integer.MAX_VALUE) {
+         statement.setMaxRows(maxCount);
+      }
+
+      long[] resourceIds = new long[Math.min(maxCount, 16)];
+      int resourceIdCount = 0;
+      final SQLResult resultSet = statement.executeQuery();
+      while (resourceIdCount < maxCount && resultSet.next()) {
+         if (resourceIdCount == resourceIds.length) {
+            resourceIds = Arrays.copyOf(resourceIds, (int) Math.min(2L * resourceIds.length, maxCount));
+         }
+         resourceIds[resourceIdCount++] = resultSet.getLong("ResourceId");
+      }
+      resultSet.close();
+
+      return Arrays.copyOf(resourceIds, resourceIdCount);
+   }
+
+   /**
+    * Returns the specified resource ids that are greater than <code>afterResourceId</code> and at most
+    * <code>upToResourceId</code>, in ascending order, up to <code>maxCount</code> of them, for the persisters that
+    * cannot restrict their queries to the range.
+    */
+   protected static long[] getOrderedResourceIds(long[] resourceIds,
+                                                 long afterResourceId,
+                                                 long upToResourceId,
+                                                 int maxCount) {
+      int resourceIdCount = 0;
+      final long[] resourceIdsInRange = new long[resourceIds.length];
+      for (long resourceId : resourceIds) {
+         if (resourceId > afterResourceId && resourceId <= upToResourceId) {
+            resourceIdsInRange[resourceIdCount++] = resourceId;
+         }
+      }
+      Arrays.sort(resourceIdsInRange, 0, resourceIdCount);
+
+      return Arrays.copyOf(resourceIdsInRange, Math.min(resourceIdCount, maxCount));
+   }
+
    // data verification helpers
 
    protected void assertOneRowInserted(int rowCount) {
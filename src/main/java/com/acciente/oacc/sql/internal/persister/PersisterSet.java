@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+/**
+ * The complete set of persisters an access control context operates on.
+ * <p/>
+ * This allows the access control context to be backed by persisters other than the SQL persisters, such as
+ * persisters that keep the security tables in memory. Persisters provided by a persister set do not use the
+ * {@link SQLConnection} argument of their methods, which is always <code>null</code>.
+ */
+public interface PersisterSet {
+   ResourceClassPersister getResourceClassPersister();
+
+   ResourceClassPermissionPersister getResourceClassPermissionPersister();
+
+   DomainPersister getDomainPersister();
+
+   GrantDomainCreatePermissionSysPersister getGrantDomainCreatePermissionSysPersister();
+
+   GrantDomainCreatePermissionPostCreateSysPersister getGrantDomainCreatePermissionPostCreateSysPersister();
+
+   GrantDomainPermissionSysPersister getGrantDomainPermissionSysPersister();
+
+   ResourcePersister getResourcePersister();
+
+   GrantResourceCreatePermissionSysPersister getGrantResourceCreatePermissionSysPersister();
+
+   GrantResourceCreatePermissionPostCreateSysPersister getGrantResourceCreatePermissionPostCreateSysPersister();
+
+   GrantResourceCreatePermissionPostCreatePersister getGrantResourceCreatePermissionPostCreatePersister();
+
+   GrantResourcePermissionSysPersister getGrantResourcePermissionSysPersister();
+
+   GrantGlobalResourcePermissionSysPersister getGrantGlobalResourcePermissionSysPersister();
+
+   GrantResourcePermissionPersister getGrantResourcePermissionPersister();
+
+   GrantGlobalResourcePermissionPersister getGrantGlobalResourcePermissionPersister();
+
+   /**
+    * Returns true if the <code>upsert*</code> methods of the grant persisters add or upgrade a direct grant in a single
+    * operation; otherwise the access control context reads the direct grants first and only adds the missing ones and
+    * upgrades the existing ones, which takes fewer statements than emulating the upsert.
+    */
+   boolean isUpsertEnabled();
+}
@@ -19,6 +19,7 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.DomainPermission;
 import com.acciente.oacc.Resource;
+import com.acciente.oacc.internal.LongHashSet;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -27,6 +28,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -41,6 +43,38 @@ public class RecursiveGrantDomainPermissionSysPersister extends CommonGrantDomai
       super(sqlProfile, sqlStrings);
    }
 
+   @Override
+   public long[] getSuperUserDomainIds(SQLConnection connection,
+                                       Resource accessorResource) {
+      SQLStatement statement = null;
+      try {
+         // get the domains, and their descendants, that the accessor has super user permission to
+         SQLResult resultSet;
+         final LongHashSet domainIds = new LongHashSet();
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_DomainID_BY_AccessorID_SysPermissionID_IsWithGrant);
+         statement.setResourceId(1, accessorResource);
+         statement.setDomainSystemPermissionId(2, DOMAIN_PERMISSION_SUPER_USER.getSystemPermissionId());
+         statement.setBoolean(3, false);
+         resultSet = statement.executeQuery();
+
+         while (resultSet.next()) {
+            domainIds.add(resultSet.getLong("DomainId"));
+         }
+         resultSet.close();
+
+         final long[] sortedDomainIds = domainIds.toArray();
+         Arrays.sort(sortedDomainIds);
+         return sortedDomainIds;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Set<Resource> getResourcesByDomainSuperUserPermission(SQLConnection connection,
                                                                 Resource accessorResource,
@@ -49,7 +83,7 @@ public class RecursiveGrantDomainPermissionSysPersister extends CommonGrantDomai
       try {
          // get the list of objects of the specified type that the session has access to via domain super user permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_ResourceID_ExternalId_BY_AccessorID_SysPermissionID_IsWithGrant_ResourceClassID);
          statement.setResourceId(1, accessorResource);
@@ -59,7 +93,7 @@ public class RecursiveGrantDomainPermissionSysPersister extends CommonGrantDomai
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -82,7 +116,7 @@ public class RecursiveGrantDomainPermissionSysPersister extends CommonGrantDomai
       try {
          // get the list of objects of the specified type that the session has access to via domain super user permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantDomainPermissionSys_ResourceID_ExternalID_BY_AccessorID_DomainID_SysPermissionID_IsWithGrant_ResourceClassID);
          statement.setResourceId(1, accessorResource);
@@ -93,7 +127,7 @@ public class RecursiveGrantDomainPermissionSysPersister extends CommonGrantDomai
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
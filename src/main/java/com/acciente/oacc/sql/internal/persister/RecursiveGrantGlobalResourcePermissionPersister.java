@@ -56,7 +56,7 @@ public class RecursiveGrantGlobalResourcePermissionPersister extends CommonGrant
       try {
          // get the list of objects of the specified type that the session has access to via global permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermission_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant_ResourceClassID);
          statement.setResourceId(1, accessorResource);
@@ -67,7 +67,7 @@ public class RecursiveGrantGlobalResourcePermissionPersister extends CommonGrant
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -96,7 +96,7 @@ public class RecursiveGrantGlobalResourcePermissionPersister extends CommonGrant
       try {
          // get the list of objects of the specified type that the session has access to via global permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermission_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_PermissionID_IsWithGrant_ResourceClassID);
          statement.setResourceId(1, accessorResource);
@@ -108,7 +108,7 @@ public class RecursiveGrantGlobalResourcePermissionPersister extends CommonGrant
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -53,7 +53,7 @@ public class RecursiveGrantGlobalResourcePermissionSysPersister extends CommonGr
       SQLStatement statement = null;
       try {
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          // get the list of objects of the specified type that the session has access to via global permissions
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant_ResourceClassID);
@@ -65,7 +65,7 @@ public class RecursiveGrantGlobalResourcePermissionSysPersister extends CommonGr
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -93,7 +93,7 @@ public class RecursiveGrantGlobalResourcePermissionSysPersister extends CommonGr
       try {
          // get the list of objects of the specified type that the session has access to via global permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantGlobalResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_SysPermissionID_IsWithGrant_ResourceClassID);
          statement.setResourceId(1, accessorResource);
@@ -105,7 +105,7 @@ public class RecursiveGrantGlobalResourcePermissionSysPersister extends CommonGr
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
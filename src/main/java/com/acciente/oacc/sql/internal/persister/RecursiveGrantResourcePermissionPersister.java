@@ -19,6 +19,7 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -28,6 +29,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class RecursiveGrantResourcePermissionPersister extends CommonGrantResourcePermissionPersister implements Serializable {
@@ -52,7 +54,7 @@ public class RecursiveGrantResourcePermissionPersister extends CommonGrantResour
       try {
          // get the list of objects of the specified type that the session has access to via direct permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant);
          statement.setResourceId(1, accessorResource);
@@ -62,7 +64,7 @@ public class RecursiveGrantResourcePermissionPersister extends CommonGrantResour
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -92,7 +94,7 @@ public class RecursiveGrantResourcePermissionPersister extends CommonGrantResour
       try {
          // get the list of objects of the specified type that the session has access to via direct permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_PermissionID_IsWithGrant);
          statement.setResourceId(1, accessorResource);
@@ -103,7 +105,7 @@ public class RecursiveGrantResourcePermissionPersister extends CommonGrantResour
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -117,6 +119,45 @@ public class RecursiveGrantResourcePermissionPersister extends CommonGrantResour
       }
    }
 
+   @Override
+   public long[] getEffectiveAccessorResourceIdsByResourcePermission(SQLConnection connection,
+                                                                     Resource accessedResource,
+                                                                     Id<ResourceClassId> resourceClassId,
+                                                                     Id<DomainId> resourceDomainId,
+                                                                     ResourcePermission resourcePermission,
+                                                                     Id<ResourcePermissionId> resourcePermissionId,
+                                                                     long afterAccessorResourceId,
+                                                                     long upToAccessorResourceId,
+                                                                     int maxCount) {
+      if (resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a non-system permission");
+      }
+
+      SQLStatement statement = null;
+      try {
+         // get the accessors in the specified range that have the permission directly, globally or as super-user,
+         // and all the resources that inherit from any of them, in a single recursive query
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_AccessorID_BY_AccessedID_AccessedDomainID_ResourceClassID_PermissionID_IsWithGrant_AccessorIDRange);
+         statement.setResourceDomainId(1, resourceDomainId);
+         statement.setResourceId(2, accessedResource);
+         statement.setResourcePermissionId(3, resourcePermissionId);
+         statement.setBoolean(4, resourcePermission.isWithGrantOption());
+         statement.setResourceClassId(5, resourceClassId);
+         statement.setResourcePermissionId(6, resourcePermissionId);
+         statement.setBoolean(7, resourcePermission.isWithGrantOption());
+         statement.setResourceId(8, afterAccessorResourceId);
+         statement.setResourceId(9, upToAccessorResourceId);
+
+         return getOrderedResourceIds(statement, maxCount);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Set<ResourcePermission> getResourcePermissionsIncludeInherited(SQLConnection connection,
                                                                          Resource accessorResource,
@@ -145,4 +186,28 @@ public class RecursiveGrantResourcePermissionPersister extends CommonGrantResour
          closeStatement(statement);
       }
    }
+
+   @Override
+   public LongObjectHashMap<Set<ResourcePermission>> getResourcePermissionsIncludeInherited(SQLConnection connection,
+                                                                                            Resource accessorResource,
+                                                                                            List<Resource> accessedResources) {
+      SQLStatement statement = null;
+      try {
+         final LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByAccessedResourceId
+               = new LongObjectHashMap<>(accessedResources.size());
+
+         // collect the non-system permissions that the accessor has to each of the accessed resources
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermission_AccessedID_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID_IN);
+         statement.setResourceId(1, accessorResource);
+         collectResourcePermissionsByAccessedResourceId(statement, accessedResources, resourcePermissionsByAccessedResourceId);
+
+         return resourcePermissionsByAccessedResourceId;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
 }
@@ -19,6 +19,7 @@ package com.acciente.oacc.sql.internal.persister;
 
 import com.acciente.oacc.Resource;
 import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.internal.LongObjectHashMap;
 import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.DomainId;
 import com.acciente.oacc.sql.internal.persister.id.Id;
@@ -27,6 +28,7 @@ import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantResourcePermissionSysPersister implements Serializable {
@@ -37,6 +39,38 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
       super(sqlProfile, sqlStrings);
    }
 
+   @Override
+   public boolean isInheritedFrom(SQLConnection connection,
+                                  Resource accessorResource,
+                                  Resource inheritedResource) {
+      SQLStatement statement = null;
+
+      try {
+         SQLResult resultSet;
+
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_COUNTResourceID_BY_AccessorID_InheritedID);
+         statement.setResourceId(1, accessorResource);
+         statement.setResourceId(2, inheritedResource);
+         resultSet = statement.executeQuery();
+
+         if (!resultSet.next()) {
+            throw new IllegalArgumentException("Could not read inherited resource count for resource: " + accessorResource);
+         }
+
+         final int count = resultSet.getInteger("COUNTResourceID");
+
+         resultSet.close();
+
+         return count > 0;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Set<Resource> getResourcesByResourceSysPermission(SQLConnection connection,
                                                             Resource accessorResource,
@@ -50,7 +84,7 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
       try {
          // get the list of objects of the specified type that the session has access to via direct permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant);
          statement.setResourceId(1, accessorResource);
@@ -60,7 +94,7 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -89,7 +123,7 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
       try {
          // get the list of objects of the specified type that the session has access to via direct permissions
          SQLResult resultSet;
-         Set<Resource> resources = new HashSet<>();
+         final ResourceSet resources = new ResourceSet();
 
          statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_SysPermissionID_IsWithGrant);
          statement.setResourceId(1, accessorResource);
@@ -100,7 +134,7 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
          resultSet = statement.executeQuery();
 
          while (resultSet.next()) {
-            resources.add(resultSet.getResource("ResourceId", "ExternalId"));
+            resources.add(resultSet.getLong("ResourceId"), resultSet.getString("ExternalId"));
          }
          resultSet.close();
 
@@ -114,6 +148,44 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
       }
    }
 
+   @Override
+   public long[] getEffectiveAccessorResourceIdsByResourceSysPermission(SQLConnection connection,
+                                                                        Resource accessedResource,
+                                                                        Id<ResourceClassId> resourceClassId,
+                                                                        Id<DomainId> resourceDomainId,
+                                                                        ResourcePermission resourcePermission,
+                                                                        long afterAccessorResourceId,
+                                                                        long upToAccessorResourceId,
+                                                                        int maxCount) {
+      if (!resourcePermission.isSystemPermission()) {
+         throw new IllegalArgumentException("Permission: " + resourcePermission + " is not a system permission");
+      }
+
+      SQLStatement statement = null;
+      try {
+         // get the accessors in the specified range that have the permission directly, globally or as super-user,
+         // and all the resources that inherit from any of them, in a single recursive query
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_AccessorID_BY_AccessedID_AccessedDomainID_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDRange);
+         statement.setResourceDomainId(1, resourceDomainId);
+         statement.setResourceId(2, accessedResource);
+         statement.setResourceSystemPermissionId(3, resourcePermission.getSystemPermissionId());
+         statement.setBoolean(4, resourcePermission.isWithGrantOption());
+         statement.setResourceClassId(5, resourceClassId);
+         statement.setResourceSystemPermissionId(6, resourcePermission.getSystemPermissionId());
+         statement.setBoolean(7, resourcePermission.isWithGrantOption());
+         statement.setResourceId(8, afterAccessorResourceId);
+         statement.setResourceId(9, upToAccessorResourceId);
+
+         return getOrderedResourceIds(statement, maxCount);
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    @Override
    public Set<ResourcePermission> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
                                                                             Resource accessorResource,
@@ -143,4 +215,28 @@ public class RecursiveGrantResourcePermissionSysPersister extends CommonGrantRes
          closeStatement(statement);
       }
    }
+
+   @Override
+   public LongObjectHashMap<Set<ResourcePermission>> getResourceSysPermissionsIncludeInherited(SQLConnection connection,
+                                                                                               Resource accessorResource,
+                                                                                               List<Resource> accessedResources) {
+      SQLStatement statement = null;
+      try {
+         final LongObjectHashMap<Set<ResourcePermission>> resourcePermissionsByAccessedResourceId
+               = new LongObjectHashMap<>(accessedResources.size());
+
+         // collect the system permissions that the accessor has to each of the accessed resources
+         statement = connection.prepareStatement(sqlStrings.SQL_findInGrantResourcePermissionSys_AccessedID_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID_IN);
+         statement.setResourceId(1, accessorResource);
+         collectResourceSysPermissionsByAccessedResourceId(statement, accessedResources, resourcePermissionsByAccessedResourceId);
+
+         return resourcePermissionsByAccessedResourceId;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
 }
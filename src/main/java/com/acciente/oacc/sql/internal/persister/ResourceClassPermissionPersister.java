@@ -17,97 +17,21 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
-import com.acciente.oacc.sql.SQLProfile;
 import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import com.acciente.oacc.sql.internal.persister.id.ResourcePermissionId;
 
-import java.io.Serializable;
-import java.sql.SQLException;
-import java.util.LinkedList;
 import java.util.List;
 
-public class ResourceClassPermissionPersister extends Persister implements Serializable {
-   private static final long serialVersionUID = 1L;
+public interface ResourceClassPermissionPersister {
+   Id<ResourcePermissionId> getResourceClassPermissionId(SQLConnection connection,
+                                                         Id<ResourceClassId> resourceClassId,
+                                                         String permissionName);
 
-   protected final SQLProfile sqlProfile;
-   private final   SQLStrings sqlStrings;
+   List<String> getPermissionNames(SQLConnection connection,
+                                   String resourceClassName);
 
-   public ResourceClassPermissionPersister(SQLProfile sqlProfile,
-                                           SQLStrings sqlStrings) {
-      this.sqlProfile = sqlProfile;
-      this.sqlStrings = sqlStrings;
-   }
-
-   public Id<ResourcePermissionId> getResourceClassPermissionId(SQLConnection connection,
-                                                                Id<ResourceClassId> resourceClassId,
-                                                                String permissionName) {
-      SQLStatement statement = null;
-      try {
-         Id<ResourcePermissionId> permissionId = null;
-
-         // check if the permission name is already defined!
-         statement = connection.prepareStatement(sqlStrings.SQL_findInResourceClassPermission_PermissionID_BY_ResourceClassID_PermissionName);
-         statement.setResourceClassId(1, resourceClassId);
-         statement.setString(2, permissionName);
-         SQLResult resultSet = statement.executeQuery();
-
-         if (resultSet.next()) {
-            permissionId = resultSet.getResourcePermissionId("PermissionId");
-         }
-         resultSet.close();
-
-         return permissionId;
-      }
-      catch (SQLException e) {
-         throw new RuntimeException(e);
-      }
-      finally {
-         closeStatement(statement);
-      }
-   }
-
-   public List<String> getPermissionNames(SQLConnection connection, String resourceClassName) {
-      SQLStatement statement = null;
-
-      try {
-         List<String> resourceClassNames = new LinkedList<>();
-
-         statement = connection.prepareStatement(sqlStrings.SQL_findInResourceClassPermission_PermissionName_BY_ResourceClassName);
-         statement.setString(1, resourceClassName);
-         SQLResult resultSet = statement.executeQuery();
-
-         while (resultSet.next()) {
-            resourceClassNames.add(resultSet.getString("PermissionName"));
-         }
-
-         return resourceClassNames;
-      }
-      catch (SQLException e) {
-         throw new RuntimeException(e);
-      }
-      finally {
-         closeStatement(statement);
-      }
-   }
-
-   public void addResourceClassPermission(SQLConnection connection,
-                                          Id<ResourceClassId> resourceClassId,
-                                          String permissionName) {
-      SQLStatement statement = null;
-
-      try {
-         // finally add the new permission
-         statement = connection.prepareStatement(sqlStrings.SQL_createInResourceClassPermission_WITH_ResourceClassID_PermissionName);
-         statement.setResourceClassId(1, resourceClassId);
-         statement.setString(2, permissionName);
-         assertOneRowInserted(statement.executeUpdate());
-      }
-      catch (SQLException e) {
-         throw new RuntimeException(e);
-      }
-      finally {
-         closeStatement(statement);
-      }
-   }
+   void addResourceClassPermission(SQLConnection connection,
+                                   Id<ResourceClassId> resourceClassId,
+                                   String permissionName);
 }
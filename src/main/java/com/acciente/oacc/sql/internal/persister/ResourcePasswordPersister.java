@@ -128,6 +128,34 @@ public class ResourcePasswordPersister extends Persister implements Serializable
       }
    }
 
+   /**
+    * Replaces the password of the resource, but only if it is still the specified expected password, and never
+    * creates a password for a resource that has none.
+    *
+    * @return <code>true</code> if the password was replaced, <code>false</code> if it had changed in the meantime
+    */
+   public boolean replaceEncryptedBoundPasswordByResourceId(SQLConnection connection,
+                                                            Resource resource,
+                                                            String expectedEncryptedBoundPassword,
+                                                            String newEncryptedBoundPassword) {
+      SQLStatement statement = null;
+
+      try {
+         statement = connection.prepareStatement(sqlPasswordStrings.SQL_updateInResourcePassword_Password_BY_ResourceID_Password);
+         statement.setString(1, newEncryptedBoundPassword);
+         statement.setResourceId(2, resource);
+         statement.setString(3, expectedEncryptedBoundPassword);
+
+         return statement.executeUpdate() == 1;
+      }
+      catch (SQLException e) {
+         throw new RuntimeException(e);
+      }
+      finally {
+         closeStatement(statement);
+      }
+   }
+
    public void removeEncryptedBoundPasswordByResourceId(SQLConnection connection, Resource resource) {
       SQLStatement statement = null;
 
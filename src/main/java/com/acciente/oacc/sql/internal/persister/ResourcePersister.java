@@ -23,6 +23,8 @@ import com.acciente.oacc.sql.internal.persister.id.Id;
 import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
 import com.acciente.oacc.sql.internal.persister.id.ResourceId;
 
+import java.util.List;
+
 public interface ResourcePersister {
    void verifyResourceExists(SQLConnection connection,
                              Resource resource);
@@ -39,6 +41,9 @@ public interface ResourcePersister {
    void deleteResource(SQLConnection connection,
                        Resource resource);
 
+   void deleteResources(SQLConnection connection,
+                        List<Resource> resources);
+
    Id<DomainId> getDomainIdByResource(SQLConnection connection,
                                       Resource resource);
 
@@ -52,4 +57,10 @@ public interface ResourcePersister {
 
    Resource resolveResourceByResourceId(SQLConnection connection,
                                         Resource resource);
+
+   List<Resource> resolveResourcesByExternalId(SQLConnection connection,
+                                               List<String> externalIds);
+
+   List<Resource> resolveResourcesByResourceId(SQLConnection connection,
+                                               List<Resource> resources);
 }
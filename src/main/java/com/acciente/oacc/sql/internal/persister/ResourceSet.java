@@ -0,0 +1,267 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.internal.LongObjectHashMap;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of resources that stores the resource ids and external ids in parallel arrays, in insertion order, and
+ * indexes them with an open-addressing table of array positions.
+ * <p/>
+ * Unlike a <code>HashSet&lt;Resource&gt;</code>, this set does not retain a {@link Resource} instance and a hash
+ * entry per element, which makes it much cheaper to build for large query results. The {@link Resource} instances
+ * are created when the set is iterated. As with any set of resources, a resource is only contained if both its
+ * resource id and its external id match. This class is not thread-safe.
+ */
+public class ResourceSet extends AbstractSet<Resource> implements Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final int   FREE_SLOT   = 0;
+   private static final float LOAD_FACTOR = 0.6f;
+
+   private long[]    resourceIds;
+   private String[]  externalIds;
+   // null until the first removal
+   private boolean[] removed;
+   // each slot holds the array position of an element plus one, or FREE_SLOT
+   private int[]     slots;
+   private int       count;
+   private int       size;
+
+   public ResourceSet() {
+      this(0);
+   }
+
+   public ResourceSet(int expectedSize) {
+      resourceIds = new long[Math.max(expectedSize, 8)];
+      externalIds = new String[resourceIds.length];
+      slots = new int[LongObjectHashMap.capacityFor(expectedSize)];
+   }
+
+   public ResourceSet(Collection<? extends Resource> resources) {
+      this(resources.size());
+      addAll(resources);
+   }
+
+   /**
+    * Adds the resource with the specified ids, unless a resource with the same resource id is already in the set.
+    *
+    * @return true if the set changed
+    */
+   public boolean add(long resourceId, String externalId) {
+      final int slot = slotOf(resourceId);
+      final int position = slots[slot] - 1;
+
+      if (position >= 0) {
+         if (removed == null || !removed[position]) {
+            return false;
+         }
+         removed[position] = false;
+         externalIds[position] = externalId;
+         size++;
+         return true;
+      }
+
+      if (count == resourceIds.length) {
+         resourceIds = Arrays.copyOf(resourceIds, count << 1);
+         externalIds = Arrays.copyOf(externalIds, count << 1);
+         if (removed != null) {
+            removed = Arrays.copyOf(removed, count << 1);
+         }
+      }
+      resourceIds[count] = resourceId;
+      externalIds[count] = externalId;
+      slots[slot] = ++count;
+      size++;
+
+      if (count > slots.length * LOAD_FACTOR) {
+         rehash(slots.length << 1);
+      }
+      return true;
+   }
+
+   @Override
+   public boolean add(Resource resource) {
+      if (resource.getId() == null) {
+         throw new IllegalArgumentException("Resource " + resource + " has no resource id");
+      }
+      return add(resource.getId(), resource.getExternalId());
+   }
+
+   @Override
+   public boolean addAll(Collection<? extends Resource> resources) {
+      if (resources instanceof ResourceSet) {
+         final ResourceSet other = (ResourceSet) resources;
+         boolean changed = false;
+         for (int position = 0; position < other.count; position++) {
+            if (other.isLive(position)) {
+               changed |= add(other.resourceIds[position], other.externalIds[position]);
+            }
+         }
+         return changed;
+      }
+      return super.addAll(resources);
+   }
+
+   @Override
+   public boolean contains(Object object) {
+      return positionOf(object) >= 0;
+   }
+
+   @Override
+   public boolean remove(Object object) {
+      final int position = positionOf(object);
+      if (position < 0) {
+         return false;
+      }
+      markRemoved(position);
+      return true;
+   }
+
+   @Override
+   public boolean retainAll(Collection<?> resources) {
+      if (resources instanceof ResourceSet) {
+         final ResourceSet other = (ResourceSet) resources;
+         boolean changed = false;
+         for (int position = 0; position < count; position++) {
+            if (isLive(position) && !other.contains(resourceIds[position], externalIds[position])) {
+               markRemoved(position);
+               changed = true;
+            }
+         }
+         return changed;
+      }
+      return super.retainAll(resources);
+   }
+
+   @Override
+   public void clear() {
+      Arrays.fill(externalIds, 0, count, null);
+      Arrays.fill(slots, FREE_SLOT);
+      removed = null;
+      count = 0;
+      size = 0;
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public Iterator<Resource> iterator() {
+      return new Iterator<Resource>() {
+         private int nextPosition = nextLivePosition(0);
+         private int lastPosition = -1;
+
+         @Override
+         public boolean hasNext() {
+            return nextPosition < count;
+         }
+
+         @Override
+         public Resource next() {
+            if (nextPosition >= count) {
+               throw new NoSuchElementException();
+            }
+            lastPosition = nextPosition;
+            nextPosition = nextLivePosition(nextPosition + 1);
+            return Resources.getInstance(resourceIds[lastPosition], externalIds[lastPosition]);
+         }
+
+         @Override
+         public void remove() {
+            if (lastPosition < 0 || !isLive(lastPosition)) {
+               throw new IllegalStateException();
+            }
+            markRemoved(lastPosition);
+         }
+      };
+   }
+
+   private boolean contains(long resourceId, String externalId) {
+      final int position = slots[slotOf(resourceId)] - 1;
+      return position >= 0
+            && isLive(position)
+            && (externalId == null ? externalIds[position] == null : externalId.equals(externalIds[position]));
+   }
+
+   private int positionOf(Object object) {
+      if (!(object instanceof Resource)) {
+         return -1;
+      }
+      final Resource resource = (Resource) object;
+      if (resource.getId() == null) {
+         return -1;
+      }
+      final int position = slots[slotOf(resource.getId())] - 1;
+      if (position < 0 || !isLive(position)) {
+         return -1;
+      }
+      final String externalId = resource.getExternalId();
+      if (externalId == null ? externalIds[position] != null : !externalId.equals(externalIds[position])) {
+         return -1;
+      }
+      return position;
+   }
+
+   private boolean isLive(int position) {
+      return removed == null || !removed[position];
+   }
+
+   private int nextLivePosition(int position) {
+      while (position < count && !isLive(position)) {
+         position++;
+      }
+      return position;
+   }
+
+   private void markRemoved(int position) {
+      // the position stays indexed, so that a later add of the same resource id can reuse it
+      if (removed == null) {
+         removed = new boolean[resourceIds.length];
+      }
+      removed[position] = true;
+      size--;
+   }
+
+   private int slotOf(long resourceId) {
+      final int mask = slots.length - 1;
+      int slot = LongObjectHashMap.hash(resourceId) & mask;
+      while (slots[slot] != FREE_SLOT && resourceIds[slots[slot] - 1] != resourceId) {
+         slot = (slot + 1) & mask;
+      }
+      return slot;
+   }
+
+   private void rehash(int capacity) {
+      slots = new int[capacity];
+      for (int position = 0; position < count; position++) {
+         slots[slotOf(resourceIds[position])] = position + 1;
+      }
+   }
+}
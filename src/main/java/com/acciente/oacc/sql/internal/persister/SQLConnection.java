@@ -17,25 +17,54 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 
 public class SQLConnection {
-   private final Connection connection;
+   private final DataSource dataSource;
+   private       Connection connection;
+   private       boolean    isUpdated;
 
    public SQLConnection(Connection connection) {
+      this.dataSource = null;
       this.connection = connection;
    }
 
+   /**
+    * Creates a connection that is only obtained from the specified data source when the first statement is prepared,
+    * for callers that may not need to access the database at all.
+    */
+   public SQLConnection(DataSource dataSource) {
+      this.dataSource = dataSource;
+   }
+
    public SQLStatement prepareStatement(String sql) throws SQLException {
-      return new SQLStatement(connection.prepareStatement(sql));
+      return new SQLStatement(this, getConnection().prepareStatement(sql));
    }
 
    public SQLStatement prepareStatement(String sql, String[] generatedKeyColumns) throws SQLException {
-      return new SQLStatement(connection.prepareStatement(sql, generatedKeyColumns));
+      return new SQLStatement(this, getConnection().prepareStatement(sql, generatedKeyColumns));
+   }
+
+   public boolean isUpdated() {
+      return isUpdated;
+   }
+
+   void markUpdated() {
+      isUpdated = true;
    }
 
    public void close() throws SQLException {
-      this.connection.close();
+      if (connection != null) {
+         this.connection.close();
+      }
+   }
+
+   private Connection getConnection() throws SQLException {
+      if (connection == null) {
+         connection = dataSource.getConnection();
+      }
+      return connection;
    }
 }
@@ -28,6 +28,7 @@ public class SQLPasswordStrings implements Serializable {
    public final String SQL_findInResourcePassword_Password_BY_ResourceID;
    public final String SQL_createInResourcePassword_WITH_ResourceID_Password;
    public final String SQL_updateInResourcePassword_Password_BY_ResourceID;
+   public final String SQL_updateInResourcePassword_Password_BY_ResourceID_Password;
    public final String SQL_removeInResourcePassword_BY_ResourceID;
 
    public static SQLPasswordStrings getSQLPasswordStrings(String schemaName) {
@@ -51,6 +52,11 @@ public class SQLPasswordStrings implements Serializable {
       SQL_updateInResourcePassword_Password_BY_ResourceID
             = "UPDATE " + schemaNameAndTablePrefix + "ResourcePassword SET Password = ? WHERE ResourceId = ?";
 
+      SQL_updateInResourcePassword_Password_BY_ResourceID_Password
+            = "UPDATE "
+            + schemaNameAndTablePrefix
+            + "ResourcePassword SET Password = ? WHERE ResourceId = ? AND Password = ?";
+
       SQL_removeInResourcePassword_BY_ResourceID
             = "DELETE FROM " + schemaNameAndTablePrefix + "ResourcePassword WHERE ResourceId = ?";
    }
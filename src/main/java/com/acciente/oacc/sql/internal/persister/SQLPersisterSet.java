@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.sql.SQLProfile;
+
+import java.io.Serializable;
+
+/**
+ * The set of persisters that operate on the OACC tables of a database schema, for the dialect of the specified
+ * SQL profile.
+ */
+public class SQLPersisterSet implements PersisterSet, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private final ResourceClassPersister                              resourceClassPersister;
+   private final ResourceClassPermissionPersister                    resourceClassPermissionPersister;
+   private final DomainPersister                                     domainPersister;
+   private final GrantDomainCreatePermissionSysPersister             grantDomainCreatePermissionSysPersister;
+   private final GrantDomainCreatePermissionPostCreateSysPersister   grantDomainCreatePermissionPostCreateSysPersister;
+   private final GrantDomainPermissionSysPersister                   grantDomainPermissionSysPersister;
+   private final ResourcePersister                                   resourcePersister;
+   private final GrantResourceCreatePermissionSysPersister           grantResourceCreatePermissionSysPersister;
+   private final GrantResourceCreatePermissionPostCreateSysPersister grantResourceCreatePermissionPostCreateSysPersister;
+   private final GrantResourceCreatePermissionPostCreatePersister    grantResourceCreatePermissionPostCreatePersister;
+   private final GrantResourcePermissionSysPersister                 grantResourcePermissionSysPersister;
+   private final GrantGlobalResourcePermissionSysPersister           grantGlobalResourcePermissionSysPersister;
+   private final GrantResourcePermissionPersister                    grantResourcePermissionPersister;
+   private final GrantGlobalResourcePermissionPersister              grantGlobalResourcePermissionPersister;
+   private final boolean                                             isUpsertEnabled;
+
+   public SQLPersisterSet(String schemaName, SQLProfile sqlProfile) {
+      // generate all the SQLs the persisters need based on the database dialect
+      SQLStrings sqlStrings = SQLStrings.getSQLStrings(schemaName, sqlProfile);
+      isUpsertEnabled = sqlProfile.isUpsertEnabled();
+
+      // setup persisters
+      resourceClassPersister
+            = new CommonResourceClassPersister(sqlProfile, sqlStrings);
+      resourceClassPermissionPersister
+            = new CommonResourceClassPermissionPersister(sqlProfile, sqlStrings);
+
+      if (sqlProfile.isRecursiveCTEEnabled()) {
+         grantDomainCreatePermissionSysPersister
+               = new RecursiveGrantDomainCreatePermissionSysPersister(sqlProfile, sqlStrings);
+         grantDomainCreatePermissionPostCreateSysPersister
+               = new RecursiveGrantDomainCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
+         grantDomainPermissionSysPersister
+               = new RecursiveGrantDomainPermissionSysPersister(sqlProfile, sqlStrings);
+         domainPersister
+               = new RecursiveDomainPersister(sqlProfile, sqlStrings);
+         resourcePersister
+               = new RecursiveResourcePersister(sqlProfile, sqlStrings);
+         grantResourceCreatePermissionSysPersister
+               = new RecursiveGrantResourceCreatePermissionSysPersister(sqlProfile, sqlStrings);
+         grantResourceCreatePermissionPostCreateSysPersister
+               = new RecursiveGrantResourceCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
+         grantResourceCreatePermissionPostCreatePersister
+               = new RecursiveGrantResourceCreatePermissionPostCreatePersister(sqlProfile, sqlStrings);
+         grantResourcePermissionSysPersister
+               = new RecursiveGrantResourcePermissionSysPersister(sqlProfile, sqlStrings);
+         grantGlobalResourcePermissionSysPersister
+               = new RecursiveGrantGlobalResourcePermissionSysPersister(sqlProfile, sqlStrings);
+         grantResourcePermissionPersister
+               = new RecursiveGrantResourcePermissionPersister(sqlProfile, sqlStrings);
+         grantGlobalResourcePermissionPersister
+               = new RecursiveGrantGlobalResourcePermissionPersister(sqlProfile, sqlStrings);
+      }
+      else {
+         grantDomainCreatePermissionSysPersister
+               = new NonRecursiveGrantDomainCreatePermissionSysPersister(sqlProfile, sqlStrings);
+         grantDomainCreatePermissionPostCreateSysPersister
+               = new NonRecursiveGrantDomainCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
+         grantDomainPermissionSysPersister
+               = new NonRecursiveGrantDomainPermissionSysPersister(sqlProfile, sqlStrings);
+         domainPersister
+               = new NonRecursiveDomainPersister(sqlProfile, sqlStrings);
+         resourcePersister
+               = new NonRecursiveResourcePersister(sqlProfile, sqlStrings);
+         grantResourceCreatePermissionSysPersister
+               = new NonRecursiveGrantResourceCreatePermissionSysPersister(sqlProfile, sqlStrings);
+         grantResourceCreatePermissionPostCreateSysPersister
+               = new NonRecursiveGrantResourceCreatePermissionPostCreateSysPersister(sqlProfile, sqlStrings);
+         grantResourceCreatePermissionPostCreatePersister
+               = new NonRecursiveGrantResourceCreatePermissionPostCreatePersister(sqlProfile, sqlStrings);
+         grantResourcePermissionSysPersister
+               = new NonRecursiveGrantResourcePermissionSysPersister(sqlProfile, sqlStrings);
+         grantGlobalResourcePermissionSysPersister
+               = new NonRecursiveGrantGlobalResourcePermissionSysPersister(sqlProfile, sqlStrings);
+         grantResourcePermissionPersister
+               = new NonRecursiveGrantResourcePermissionPersister(sqlProfile, sqlStrings);
+         grantGlobalResourcePermissionPersister
+               = new NonRecursiveGrantGlobalResourcePermissionPersister(sqlProfile, sqlStrings);
+      }
+   }
+
+   @Override
+   public ResourceClassPersister getResourceClassPersister() {
+      return resourceClassPersister;
+   }
+
+   @Override
+   public ResourceClassPermissionPersister getResourceClassPermissionPersister() {
+      return resourceClassPermissionPersister;
+   }
+
+   @Override
+   public DomainPersister getDomainPersister() {
+      return domainPersister;
+   }
+
+   @Override
+   public GrantDomainCreatePermissionSysPersister getGrantDomainCreatePermissionSysPersister() {
+      return grantDomainCreatePermissionSysPersister;
+   }
+
+   @Override
+   public GrantDomainCreatePermissionPostCreateSysPersister getGrantDomainCreatePermissionPostCreateSysPersister() {
+      return grantDomainCreatePermissionPostCreateSysPersister;
+   }
+
+   @Override
+   public GrantDomainPermissionSysPersister getGrantDomainPermissionSysPersister() {
+      return grantDomainPermissionSysPersister;
+   }
+
+   @Override
+   public ResourcePersister getResourcePersister() {
+      return resourcePersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionSysPersister getGrantResourceCreatePermissionSysPersister() {
+      return grantResourceCreatePermissionSysPersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionPostCreateSysPersister getGrantResourceCreatePermissionPostCreateSysPersister() {
+      return grantResourceCreatePermissionPostCreateSysPersister;
+   }
+
+   @Override
+   public GrantResourceCreatePermissionPostCreatePersister getGrantResourceCreatePermissionPostCreatePersister() {
+      return grantResourceCreatePermissionPostCreatePersister;
+   }
+
+   @Override
+   public GrantResourcePermissionSysPersister getGrantResourcePermissionSysPersister() {
+      return grantResourcePermissionSysPersister;
+   }
+
+   @Override
+   public GrantGlobalResourcePermissionSysPersister getGrantGlobalResourcePermissionSysPersister() {
+      return grantGlobalResourcePermissionSysPersister;
+   }
+
+   @Override
+   public GrantResourcePermissionPersister getGrantResourcePermissionPersister() {
+      return grantResourcePermissionPersister;
+   }
+
+   @Override
+   public GrantGlobalResourcePermissionPersister getGrantGlobalResourcePermissionPersister() {
+      return grantGlobalResourcePermissionPersister;
+   }
+
+   @Override
+   public boolean isUpsertEnabled() {
+      return isUpsertEnabled;
+   }
+}
@@ -92,6 +92,10 @@ public class SQLResult {
       return int2bool(resultSet.getInt(columnLabel));
    }
 
+   public long getLong(String columnLabel) throws SQLException {
+      return resultSet.getLong(columnLabel);
+   }
+
    public int getInteger(String columnLabel) throws SQLException {
       return resultSet.getInt(columnLabel);
    }
@@ -28,9 +28,11 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 public class SQLStatement {
+   private final SQLConnection     connection;
    private final PreparedStatement statement;
 
-   SQLStatement(PreparedStatement statement) {
+   SQLStatement(SQLConnection connection, PreparedStatement statement) {
+      this.connection = connection;
       this.statement = statement;
    }
 
@@ -42,6 +44,10 @@ public class SQLStatement {
       statement.setLong(parameterIndex, resource.getId());
    }
 
+   public void setResourceId(int parameterIndex, long resourceId) throws SQLException {
+      statement.setLong(parameterIndex, resourceId);
+   }
+
    public void setResourceClassId(int parameterIndex, Id<ResourceClassId> id) throws SQLException {
       statement.setLong(parameterIndex, id.getValue());
    }
@@ -50,6 +56,10 @@ public class SQLStatement {
       statement.setLong(parameterIndex, id.getValue());
    }
 
+   public void setResourceDomainId(int parameterIndex, long domainId) throws SQLException {
+      statement.setLong(parameterIndex, domainId);
+   }
+
    public void setResourceCreateSystemPermissionId(int parameterIndex, long resourceCreateSystemPermissionId) throws SQLException {
       statement.setLong(parameterIndex, resourceCreateSystemPermissionId);
    }
@@ -83,11 +93,16 @@ public class SQLStatement {
       statement.setNull(parameterIndex, sqlType);
    }
 
+   public void setMaxRows(int maxRows) throws SQLException {
+      statement.setMaxRows(maxRows);
+   }
+
    SQLResult executeQuery() throws SQLException {
       return new SQLResult(statement.executeQuery());
    }
 
    int executeUpdate() throws SQLException {
+      connection.markUpdated();
       return statement.executeUpdate();
    }
 
@@ -17,6 +17,8 @@
  */
 package com.acciente.oacc.sql.internal.persister;
 
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
 import com.acciente.oacc.ResourcePermission;
 import com.acciente.oacc.ResourcePermissions;
 import com.acciente.oacc.sql.SQLDialect;
@@ -61,6 +63,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_createInGrantDomainCreatePermissionSys_WITH_AccessorID_GrantorID_IsWithGrant_SysPermissionID;
    public final String SQL_updateInGrantDomainCreatePermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_SysPermissionID;
    public final String SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID;
+   public final String SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID_IN;
    public final String SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID_SysPermissionID;
    // GrantDomainCreatePermissionSys - recursive
    public final String SQL_findInGrantDomainCreatePermissionSys_SysPermissionID_IsWithGrant_BY_AccessorID;
@@ -68,6 +71,7 @@ public class SQLStrings implements Serializable {
    // GrantDomainCreatePermissionPostCreateSys - common
    public final String SQL_findInGrantDomainCreatePermissionPostCreateSys_withoutInheritance_PostCreateSysPermissionID_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID;
    public final String SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID;
+   public final String SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID_IN;
    public final String SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID_PostCreateSysPermissionID;
    public final String SQL_createInGrantDomainCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_IsWithGrant_PostCreateIsWithGrant_PostCreateSysPermissionID;
    public final String SQL_updateInGrantDomainCreatePermissionPostCreateSys_SET_GrantorID_IsWithGrant_PostCreateIsWithGrant_BY_AccessorID_PostCreateSysPermissionID;
@@ -79,11 +83,14 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainName_SysPermissionID_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantDomainPermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_SysPermissionID;
    public final String SQL_updateInGrantDomainPermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedDomainID_SysPermissionID;
+   public final String SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_AccessedDomainID_SysPermissionID_GrantorID_IsWithGrant;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessorID;
+   public final String SQL_removeInGrantDomainPermissionSys_BY_AccessorID_IN;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessedDomainID;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessorID_AccessedDomainID;
    public final String SQL_removeInGrantDomainPermissionSys_BY_AccessorID_AccessedDomainID_SysPermissionID;
    // GrantDomainPermissionSys - recursive
+   public final String SQL_findInGrantDomainPermissionSys_DomainID_BY_AccessorID_SysPermissionID_IsWithGrant;
    public final String SQL_findInGrantDomainPermissionSys_ResourceID_ExternalId_BY_AccessorID_SysPermissionID_IsWithGrant_ResourceClassID;
    public final String SQL_findInGrantDomainPermissionSys_ResourceID_ExternalID_BY_AccessorID_DomainID_SysPermissionID_IsWithGrant_ResourceClassID;
    public final String SQL_findInGrantDomainPermissionSys_SysPermissionID_IsWithGrant_BY_AccessorID_DomainID;
@@ -91,19 +98,24 @@ public class SQLStrings implements Serializable {
    public final String SQL_removeInGrantDomainPermissionSys_withDescendants_BY_AccessedDomainID;
    // GrantDomainPermissionSys - non-recursive
    public final String SQL_findInGrantDomainPermissionSys_withoutInheritance_ResourceDomainId_BY_AccessorID_SysPermissionID_IsWithGrant;
+   public final String SQL_findInGrantDomainPermissionSys_withoutInheritance_AccessorID_BY_AccessedDomainID_SysPermissionID;
 
    // Resource - common
    public final String SQL_findInResource_COUNTResourceID_BY_ResourceClassID_DomainID;
    public final String SQL_createInResource_WITH_ResourceID_ResourceClassID_DomainID;
    public final String SQL_createInResource_WITH_ResourceClassID_DomainID;
    public final String SQL_removeInResource_BY_ResourceID;
+   public final String SQL_removeInResource_BY_ResourceID_IN;
    public final String SQL_findInResource_ResourceId_BY_ResourceID;
-   public final String SQL_findInResource_ResourceId_ExternalId_BY_ResourceID;
+   public final String SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID;
+   public final String SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID_IN;
    public final String SQL_findInResource_DomainID_BY_ResourceID;
    public final String SQL_findInResource_withoutInheritance_ResourceId_ExternalId_BY_ResourceClassID_DomainID;
    public final String SQL_createInResourceExternalId_WITH_ResourceID_ExternalID;
    public final String SQL_removeInResourceExternalId_BY_ResourceID;
-   public final String SQL_findInResourceExternalId_ResourceId_ExternalId_BY_ExternalID;
+   public final String SQL_removeInResourceExternalId_BY_ResourceID_IN;
+   public final String SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID;
+   public final String SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID_IN;
    // Resource - recursive
    public final String SQL_findInResource_COUNTResourceID_BY_DomainID;
    // Resource - non-recursive
@@ -115,6 +127,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_createInGrantResourceCreatePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionId;
    public final String SQL_updateInGrantResourceCreatePermissionSys_SET_GrantorID_IsWithGrant_BY__AccessorID_AccessedDomainID_ResourceClassID_SysPermissionId;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID;
+   public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID_IN;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessedDomainId;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID;
@@ -129,6 +142,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_createInGrantResourceCreatePermissionPostCreateSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreateSysPermissionID;
    public final String SQL_updateInGrantResourceCreatePermissionPostCreateSys_SET_GrantorID_IsWithGrant_PostCreateIsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_PostCreateSysPermissionID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID;
+   public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID_IN;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessedDomainID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID_AccessedDomainID_ResourceClassID_PostCreateSysPermissionID;
@@ -143,6 +157,7 @@ public class SQLStrings implements Serializable {
    public final String SQL_createInGrantResourceCreatePermissionPostCreate_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_PostCreateIsWithGrant_ResourceClassID_PostCreatePermissionName;
    public final String SQL_updateInGrantResourceCreatePermissionPostCreate_SET_GrantorID_IsWithGrant_PostCreateIsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_PostCreatePermissionName;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID;
+   public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID_IN;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessedDomainId;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID_AccessedDomainID_ResourceClassID_PostCreatePermissionName;
@@ -153,33 +168,47 @@ public class SQLStrings implements Serializable {
 
    // GrantResourcePermissionSys - common
    public final String SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant;
+   public final String SQL_findInGrantResourcePermissionSys_AccessorID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDRange;
    public final String SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID;
+   public final String SQL_findInGrantResourcePermissionSys_withoutInheritance_AccessedID_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID_IN;
    public final String SQL_createInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID;
    public final String SQL_updateInGrantResourcePermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedID_ResourceClassID_SysPermissionID;
+   public final String SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_AccessedID_ResourceClassID_SysPermissionID_GrantorID_IsWithGrant;
    public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_OR_AccessedID;
+   public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_IN_OR_AccessedID_IN;
    public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_AccessedID;
    public final String SQL_removeInGrantResourcePermissionSys_BY_AccessorID_AccessedID_ResourceClassID_SysPermissionID;
    // GrantResourcePermissionSys - recursive
    public final String SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant;
    public final String SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_SysPermissionID_IsWithGrant;
    public final String SQL_findInGrantResourcePermissionSys_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID;
+   public final String SQL_findInGrantResourcePermissionSys_AccessedID_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID_IN;
+   public final String SQL_findInGrantResourcePermissionSys_COUNTResourceID_BY_AccessorID_InheritedID;
+   public final String SQL_findInGrantResourcePermissionSys_AccessorID_BY_AccessedID_AccessedDomainID_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDRange;
    // GrantResourcePermissionSys - non-recursive
    public final String SQL_findInGrantResourcePermissionSys_directInheritance_ResourceID_BY_AccessorID;
+   public final String SQL_findInGrantResourcePermissionSys_directInheritance_AccessorID_BY_AccessedID_IN;
    public final String SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant;
    public final String SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_SysPermissionID_IsWithGrant;
 
    // GrantResourcePermission - common
    public final String SQL_findInGrantResourcePermission_ResourceID_ExternalID_BY_AccessedID_ResourceClassID_PermissionID_IsWithGrant;
+   public final String SQL_findInGrantResourcePermission_AccessorID_BY_AccessedID_ResourceClassID_PermissionID_IsWithGrant_AccessorIDRange;
    public final String SQL_findInGrantResourcePermission_withoutInheritance_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID;
+   public final String SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID_IN;
    public final String SQL_createInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_updateInGrantResourcePermission_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedID_ResourceClassID_PermissionName;
+   public final String SQL_upsertInGrantResourcePermission_WITH_AccessorID_AccessedID_GrantorID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_removeInGrantResourcePermission_BY_AccessorID_OR_AccessedID;
+   public final String SQL_removeInGrantResourcePermission_BY_AccessorID_IN_OR_AccessedID_IN;
    public final String SQL_removeInGrantResourcePermission_BY_AccessorID_AccessedID;
    public final String SQL_removeInGrantResourcePermission_BY_AccessorID_AccessedID_ResourceClassID_PermissionName;
    // GrantResourcePermission - recursive
    public final String SQL_findInGrantResourcePermission_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID;
+   public final String SQL_findInGrantResourcePermission_AccessedID_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID_IN;
    public final String SQL_findInGrantResourcePermission_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant;
    public final String SQL_findInGrantResourcePermission_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_PermissionID_IsWithGrant;
+   public final String SQL_findInGrantResourcePermission_AccessorID_BY_AccessedID_AccessedDomainID_ResourceClassID_PermissionID_IsWithGrant_AccessorIDRange;
    // GrantResourcePermission - non-recursive
    public final String SQL_findInGrantResourcePermission_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant;
    public final String SQL_findInGrantResourcePermission_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_DomainID_ResourceClassID_PermissionID_IsWithGrant;
@@ -189,7 +218,9 @@ public class SQLStrings implements Serializable {
    public final String SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainName_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantGlobalResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_SysPermissionID;
    public final String SQL_updateInGrantGlobalResourcePermissionSys_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID;
+   public final String SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID_GrantorID_IsWithGrant;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID;
+   public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID_IN;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessedDomainId;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID;
@@ -201,13 +232,16 @@ public class SQLStrings implements Serializable {
    public final String SQL_removeInGrantGlobalResourcePermissionSys_withDescendants_BY_AccessedDomainId;
    // GrantGlobalResourcePermissionSys - non-recursive
    public final String SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant;
+   public final String SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_AccessorID_BY_AccessedDomainID_ResourceClassID_SysPermissionID_IsWithGrant;
 
    // GrantGlobalResourcePermission - common
    public final String SQL_findInGrantGlobalResourcePermission_withoutInheritance_PermissionName_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_findInGrantGlobalResourcePermission_withoutInheritance_ResourceDomainName_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID;
    public final String SQL_createInGrantGlobalResourcePermission_WITH_AccessorID_GrantorID_AccessedDomainID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_updateInGrantGlobalResourcePermission_SET_GrantorID_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID_PermissionName;
+   public final String SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_AccessedDomainID_GrantorID_IsWithGrant_ResourceClassID_PermissionName;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessorID;
+   public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessorID_IN;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessedDomainId;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessorID_AccessedDomainID_ResourceClassID;
    public final String SQL_removeInGrantGlobalResourcePermission_BY_AccessorID_AccessedDomainID_ResourceClassID_PermissionName;
@@ -219,15 +253,23 @@ public class SQLStrings implements Serializable {
    public final String SQL_removeInGrantGlobalResourcePermission_withDescendants_BY_AccessedDomainId;
    // GrantGlobalResourcePermission - non-recursive
    public final String SQL_findInGrantGlobalResourcePermission_withoutInheritance_ResourceDomainID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant;
+   public final String SQL_findInGrantGlobalResourcePermission_withoutInheritance_AccessorID_BY_AccessedDomainID_ResourceClassID_PermissionID_IsWithGrant;
 
    // Key generators
    public final String SQL_nextResourceID;
 
+   // the number of parameters in the IN-lists of the bulk statements, which is well below the parameter limit of
+   // every supported database, even for statements with two IN-lists
+   public static final int IN_LIST_SIZE = 100;
+
    private final SQLProfile sqlProfile;
 
    // resource permissions constants
    private static final ResourcePermission ResourcePermission_INHERIT = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
 
+   // domain permissions constants
+   private static final DomainPermission DomainPermission_SUPER_USER = DomainPermissions.getInstance(DomainPermissions.SUPER_USER);
+
    public static SQLStrings getSQLStrings(String schemaName,
                                           SQLProfile sqlProfile) {
       return new SQLStrings(schemaName, sqlProfile, DialectSpecificSQLGenerator.getInstance(sqlProfile
@@ -241,6 +283,9 @@ public class SQLStrings implements Serializable {
       final String withClause = dialectSpecificSQLGenerator.getWithClause();
       final String unionClause = dialectSpecificSQLGenerator.getUnionClause();
       final String schemaNameAndTablePrefix = schemaName != null ? schemaName + ".OAC_" : "OAC_";
+      final String singleRowFromClause = dialectSpecificSQLGenerator.getSingleRowFromClause();
+      final String parameterList = getParameterList(IN_LIST_SIZE);
+      final String numericParameter = dialectSpecificSQLGenerator.numericParameter();
       // recursive query to compute all the resource ids that a given accessor is equivalent to as a
       // result of having the INHERIT permission
       final String SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
@@ -256,7 +301,7 @@ public class SQLStrings implements Serializable {
 
       // recursive query to compute all ancestors of a given an domain
       final String SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
-            = ", R( DomainId, ParentDomainId ) AS "
+            = "R( DomainId, ParentDomainId ) AS "
             + "( SELECT DomainId, ParentDomainId FROM "
             + schemaNameAndTablePrefix
             + "Domain WHERE DomainId = ? " + unionClause + " SELECT Rplus1.DomainId, Rplus1.ParentDomainId FROM "
@@ -274,6 +319,27 @@ public class SQLStrings implements Serializable {
             + "Domain Splus1, S "
             + "WHERE Splus1.ParentDomainId IS NOT NULL AND Splus1.ParentDomainId = S.DomainId ) ";
 
+      // query to compute the resource ids that hold super-user permission to any domain of R, i.e. to a given
+      // domain or any of its ancestors
+      final String SQL_findInGrantDomainPermissionSys_SuperUserAccessorID_BY_R
+            = "SELECT G.AccessorResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_DomPerm_Sys G "
+            + "JOIN R ON R.DomainId = G.AccessedDomainId "
+            + "WHERE G.SysPermissionId = "
+            + DomainPermission_SUPER_USER.getSystemPermissionId();
+
+      // recursive query to compute the resource ids of the accessors in P and of all the resources that inherit
+      // from any of them as a result of having the INHERIT permission, i.e. the reverse of the query for N above
+      final String SQL_findRecursiveInGrantResourcePermissionSys_InheritorID_BY_P
+            = "M( AccessorResourceId ) AS "
+            + "( SELECT AccessorResourceId FROM P " + unionClause + " SELECT Mplus1.AccessorResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys Mplus1, M "
+            + "WHERE Mplus1.AccessedResourceId = M.AccessorResourceId AND Mplus1.SysPermissionId = "
+            + ResourcePermission_INHERIT.getSystemPermissionId()
+            + " ) ";
+
       // ResourceClass
       SQL_findInResourceClass_ResourceClassID_BY_ResourceClassName
             = "SELECT ResourceClassId FROM "
@@ -461,6 +527,9 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_DomCrPerm_Sys WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID_IN
+            = SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantDomainCreatePermissionSys_BY_AccessorID_SysPermissionID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -498,6 +567,9 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_DomCrPerm_PostCr_Sys WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID_IN
+            = SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantDomainCreatePermissionPostCreateSys_BY_AccessorID_PostCreateSysPermissionID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -537,11 +609,26 @@ public class SQLStrings implements Serializable {
             + "Grant_DomPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedDomainId = ? AND SysPermissionId = ?";
 
+      final String upsertSourceQuery_DomPermSys
+            = "SELECT " + numericParameter + " AS AccessorResourceId, " + numericParameter + " AS AccessedDomainId, "
+            + numericParameter + " AS SysPermissionId, " + numericParameter + " AS GrantorResourceId, "
+            + numericParameter + " AS IsWithGrant" + singleRowFromClause + " WHERE 1 = 1";
+
+      // the single-statement upsert applies a grant in one round trip and never downgrades an existing grant
+      // option; it is only executed for profiles with upsert enabled
+      SQL_upsertInGrantDomainPermissionSys_WITH_AccessorID_AccessedDomainID_SysPermissionID_GrantorID_IsWithGrant
+            = dialectSpecificSQLGenerator.upsertGrantStatement(schemaNameAndTablePrefix + "Grant_DomPerm_Sys",
+                                                             new String[]{"AccessorResourceId", "AccessedDomainId", "SysPermissionId"},
+                                                             upsertSourceQuery_DomPermSys);
+
       SQL_removeInGrantDomainPermissionSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
             + "Grant_DomPerm_Sys WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantDomainPermissionSys_BY_AccessorID_IN
+            = SQL_removeInGrantDomainPermissionSys_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantDomainPermissionSys_BY_AccessedDomainID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -560,6 +647,23 @@ public class SQLStrings implements Serializable {
       // GrantDomainPermissionSys - recursive
 
       // query returns the resources that the accessor has access to via super user permission
+      SQL_findInGrantDomainPermissionSys_DomainID_BY_AccessorID_SysPermissionID_IsWithGrant
+            = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
+            + ", R( DomainId ) AS "
+            // this sub query is the starting set for the domain recursion, it returns all the direct
+            // resources domains that the accessor has the specified system permission on (currently super-user)
+            + "( SELECT AccessedDomainId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_DomPerm_Sys G "
+            + "JOIN N ON N.AccessorResourceId = G.AccessorResourceId "
+            + "WHERE G.SysPermissionId = ? AND ( ? IN ( 0, G.IsWithGrant ) ) "
+            // now we find the nested domains that the accessor can reach from the direct set above
+            + unionClause + " SELECT Rplus1.DomainId FROM "
+            + schemaNameAndTablePrefix
+            + "Domain Rplus1, R "
+            + "WHERE Rplus1.ParentDomainId IS NOT NULL AND Rplus1.ParentDomainId = R.DomainId ) "
+            + "SELECT DISTINCT DomainId FROM R";
+
       SQL_findInGrantDomainPermissionSys_ResourceID_ExternalId_BY_AccessorID_SysPermissionID_IsWithGrant_ResourceClassID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
             + ", R( DomainId ) AS "
@@ -612,7 +716,7 @@ public class SQLStrings implements Serializable {
 
       SQL_findInGrantDomainPermissionSys_SysPermissionID_IsWithGrant_BY_AccessorID_DomainID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
-            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            + ", " + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
             + "SELECT A.SysPermissionId, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
             + "Grant_DomPerm_Sys A "
@@ -658,6 +762,12 @@ public class SQLStrings implements Serializable {
             + "Grant_DomPerm_Sys "
             + "WHERE AccessorResourceId = ? AND SysPermissionId = ? AND ( ? IN ( 0, IsWithGrant ) )";
 
+      SQL_findInGrantDomainPermissionSys_withoutInheritance_AccessorID_BY_AccessedDomainID_SysPermissionID
+            = "SELECT AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_DomPerm_Sys "
+            + "WHERE AccessedDomainId = ? AND SysPermissionId = ?";
+
       // Resource: finder methods used getAccessorResourcesByResourcePermission()
       SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant
             = "SELECT A.AccessorResourceId ResourceId, E.ExternalId FROM "
@@ -667,6 +777,13 @@ public class SQLStrings implements Serializable {
             + "ResourceExternalID E ON E.ResourceId = A.AccessorResourceId "
             + "WHERE A.AccessedResourceId = ? AND A.ResourceClassId = ? AND A.SysPermissionId = ? AND ( ? IN ( 0, A.IsWithGrant ) )";
 
+      SQL_findInGrantResourcePermissionSys_AccessorID_BY_AccessedID_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDRange
+            = "SELECT AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys "
+            + "WHERE AccessedResourceId = ? AND ResourceClassId = ? AND SysPermissionId = ? AND ( ? IN ( 0, IsWithGrant ) ) "
+            + "AND AccessorResourceId > ? AND AccessorResourceId <= ? ORDER BY AccessorResourceId";
+
       // Resource - common
       SQL_findInResource_COUNTResourceID_BY_ResourceClassID_DomainID
             = "SELECT COUNT( ResourceId ) COUNTResourceID FROM "
@@ -686,14 +803,22 @@ public class SQLStrings implements Serializable {
       SQL_removeInResource_BY_ResourceID
             = "DELETE FROM " + schemaNameAndTablePrefix + "Resource WHERE ResourceId = ?";
 
+      SQL_removeInResource_BY_ResourceID_IN
+            = SQL_removeInResource_BY_ResourceID.replace("= ?", "IN " + parameterList);
+
       SQL_findInResource_ResourceId_BY_ResourceID
             = "SELECT ResourceId FROM " + schemaNameAndTablePrefix + "Resource WHERE ResourceId = ?";
 
-      SQL_findInResource_ResourceId_ExternalId_BY_ResourceID
-            = "SELECT A.ResourceId, B.ExternalId FROM "
-            + schemaNameAndTablePrefix + "Resource A LEFT JOIN "
+      SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID
+            = "SELECT A.ResourceId, B.ExternalId, A.DomainId, C.ResourceClassId, C.ResourceClassName, "
+            + "C.IsAuthenticatable, C.IsUnauthenticatedCreateAllowed FROM "
+            + schemaNameAndTablePrefix + "Resource A JOIN "
+            + schemaNameAndTablePrefix + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId LEFT JOIN "
             + schemaNameAndTablePrefix + "ResourceExternalID B ON B.ResourceID = A.ResourceID WHERE A.ResourceId = ?";
 
+      SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID_IN
+            = SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ResourceID.replace("= ?", "IN " + parameterList);
+
       SQL_findInResource_DomainID_BY_ResourceID
             = "SELECT DomainId FROM " + schemaNameAndTablePrefix + "Resource WHERE ResourceId = ? ";
 
@@ -711,9 +836,18 @@ public class SQLStrings implements Serializable {
       SQL_removeInResourceExternalId_BY_ResourceID
             = "DELETE FROM " + schemaNameAndTablePrefix + "ResourceExternalID WHERE ResourceId = ?";
 
-      SQL_findInResourceExternalId_ResourceId_ExternalId_BY_ExternalID
-            = "SELECT ResourceId, ExternalId FROM "
-            + schemaNameAndTablePrefix + "ResourceExternalID WHERE ExternalId = ?";
+      SQL_removeInResourceExternalId_BY_ResourceID_IN
+            = SQL_removeInResourceExternalId_BY_ResourceID.replace("= ?", "IN " + parameterList);
+
+      SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID
+            = "SELECT A.ResourceId, B.ExternalId, A.DomainId, C.ResourceClassId, C.ResourceClassName, "
+            + "C.IsAuthenticatable, C.IsUnauthenticatedCreateAllowed FROM "
+            + schemaNameAndTablePrefix + "ResourceExternalID B JOIN "
+            + schemaNameAndTablePrefix + "Resource A ON A.ResourceId = B.ResourceId JOIN "
+            + schemaNameAndTablePrefix + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId WHERE B.ExternalId = ?";
+
+      SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID_IN
+            = SQL_findInResource_ResourceId_ExternalId_DomainId_ResourceClassId_ResourceClassName_IsAuthenticatable_IsUnauthenticatedCreateAllowed_BY_ExternalID.replace("= ?", "IN " + parameterList);
 
       // Resource - recursive
       SQL_findInResource_COUNTResourceID_BY_DomainID
@@ -763,6 +897,9 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_ResCrPerm_Sys WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID_IN
+            = SQL_removeInGrantResourceCreatePermissionSys_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantResourceCreatePermissionSys_BY_AccessedDomainId
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -781,7 +918,7 @@ public class SQLStrings implements Serializable {
       // GrantResourceCreatePermissionSys - recursive
       SQL_findInGrantResourceCreatePermissionSys_SysPermissionId_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
-            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            + ", " + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
             + "SELECT A.SysPermissionId, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
             + "Grant_ResCrPerm_Sys A "
@@ -857,6 +994,9 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_ResCrPerm_PostCr_Sys WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID_IN
+            = SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantResourceCreatePermissionPostCreateSys_BY_AccessedDomainID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -875,7 +1015,7 @@ public class SQLStrings implements Serializable {
       // GrantResourceCreatePermissionPostCreateSys - recursive
       SQL_findInGrantResourceCreatePermissionPostCreateSys_PostCreateSysPermissionID_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
-            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            + ", " + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
             + "SELECT A.PostCreateSysPermissionId, A.PostCreateIsWithGrant, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
             + "Grant_ResCrPerm_PostCr_Sys A "
@@ -962,6 +1102,9 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_ResCrPerm_PostCr WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID_IN
+            = SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantResourceCreatePermissionPostCreate_BY_AccessedDomainId
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -985,7 +1128,7 @@ public class SQLStrings implements Serializable {
       // GrantResourceCreatePermissionPostCreate - recursive
       SQL_findInGrantResourceCreatePermissionPostCreate_ResourceClassName_PostCreatePermissionName_PostCreateIsWithGrant_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
-            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            + ", " + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
             + "SELECT C.ResourceClassName, B.PermissionName PostCreatePermissionName, A.PostCreateIsWithGrant, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
             + "Grant_ResCrPerm_PostCr A JOIN "
@@ -1042,6 +1185,14 @@ public class SQLStrings implements Serializable {
             + "ResourceClass B ON B.ResourceClassId = A.ResourceClassId "
             + "WHERE A.AccessorResourceId = ? AND A.AccessedResourceId = ?";
 
+      SQL_findInGrantResourcePermissionSys_withoutInheritance_AccessedID_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID_IN
+            = "SELECT A.AccessedResourceId, B.ResourceClassName, A.SysPermissionId, A.IsWithGrant FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys A JOIN "
+            + schemaNameAndTablePrefix
+            + "ResourceClass B ON B.ResourceClassId = A.ResourceClassId "
+            + "WHERE A.AccessorResourceId = ? AND A.AccessedResourceId IN " + parameterList;
+
       SQL_createInGrantResourcePermissionSys_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_SysPermissionID
             = "INSERT INTO "
             + schemaNameAndTablePrefix
@@ -1054,11 +1205,25 @@ public class SQLStrings implements Serializable {
             + "Grant_ResPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedResourceId = ? AND ResourceClassId = ? AND SysPermissionId = ?";
 
+      final String upsertSourceQuery_ResPermSys
+            = "SELECT " + numericParameter + " AS AccessorResourceId, " + numericParameter + " AS AccessedResourceId, "
+            + numericParameter + " AS ResourceClassId, " + numericParameter + " AS SysPermissionId, "
+            + numericParameter + " AS GrantorResourceId, " + numericParameter + " AS IsWithGrant" + singleRowFromClause
+            + " WHERE 1 = 1";
+
+      SQL_upsertInGrantResourcePermissionSys_WITH_AccessorID_AccessedID_ResourceClassID_SysPermissionID_GrantorID_IsWithGrant
+            = dialectSpecificSQLGenerator.upsertGrantStatement(schemaNameAndTablePrefix + "Grant_ResPerm_Sys",
+                                                             new String[]{"AccessorResourceId", "AccessedResourceId", "ResourceClassId", "SysPermissionId"},
+                                                             upsertSourceQuery_ResPermSys);
+
       SQL_removeInGrantResourcePermissionSys_BY_AccessorID_OR_AccessedID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
             + "Grant_ResPerm_Sys WHERE AccessorResourceId = ? OR AccessedResourceId = ?";
 
+      SQL_removeInGrantResourcePermissionSys_BY_AccessorID_IN_OR_AccessedID_IN
+            = SQL_removeInGrantResourcePermissionSys_BY_AccessorID_OR_AccessedID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantResourcePermissionSys_BY_AccessorID_AccessedID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1070,6 +1235,10 @@ public class SQLStrings implements Serializable {
             + "Grant_ResPerm_Sys WHERE AccessorResourceId = ? AND AccessedResourceId = ? AND ResourceClassId = ? AND SysPermissionId = ?";
 
       // GrantResourcePermissionSys - recursive
+      SQL_findInGrantResourcePermissionSys_COUNTResourceID_BY_AccessorID_InheritedID
+            = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
+            + "SELECT COUNT( AccessorResourceId ) COUNTResourceID FROM N WHERE AccessorResourceId = ?";
+
       SQL_findInGrantResourcePermissionSys_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
             + "SELECT B.AccessedResourceId ResourceId, E.ExternalId FROM "
@@ -1104,6 +1273,35 @@ public class SQLStrings implements Serializable {
             + "JOIN N ON N.AccessorResourceId = A.AccessorResourceId "
             + "WHERE A.AccessedResourceId = ?";
 
+      SQL_findInGrantResourcePermissionSys_AccessedID_ResourceClassName_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedID_IN
+            = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
+            + "SELECT A.AccessedResourceId, B.ResourceClassName, A.SysPermissionId, A.IsWithGrant FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys A JOIN "
+            + schemaNameAndTablePrefix
+            + "ResourceClass B ON B.ResourceClassId = A.ResourceClassId "
+            + "JOIN N ON N.AccessorResourceId = A.AccessorResourceId "
+            + "WHERE A.AccessedResourceId IN " + parameterList;
+
+      SQL_findInGrantResourcePermissionSys_AccessorID_BY_AccessedID_AccessedDomainID_ResourceClassID_SysPermissionID_IsWithGrant_AccessorIDRange
+            = withClause + " "
+            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            // the accessors that hold the permission directly, globally or as super-user of the accessed domain
+            + ", P( AccessorResourceId ) AS "
+            + "( SELECT AccessorResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys "
+            + "WHERE AccessedResourceId = ? AND SysPermissionId = ? AND ( ? IN ( 0, IsWithGrant ) ) "
+            + "UNION SELECT A.AccessorResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_Global_ResPerm_Sys A "
+            + "JOIN R ON R.DomainId = A.AccessedDomainId "
+            + "WHERE A.ResourceClassId = ? AND A.SysPermissionId = ? AND ( ? IN ( 0, A.IsWithGrant ) ) "
+            + "UNION " + SQL_findInGrantDomainPermissionSys_SuperUserAccessorID_BY_R + " ), "
+            + SQL_findRecursiveInGrantResourcePermissionSys_InheritorID_BY_P
+            + "SELECT DISTINCT AccessorResourceId ResourceId FROM M "
+            + "WHERE AccessorResourceId > ? AND AccessorResourceId <= ? ORDER BY ResourceId";
+
       // GrantResourcePermissionSys - non-recursive
       SQL_findInGrantResourcePermissionSys_directInheritance_ResourceID_BY_AccessorID
             = "SELECT AccessedResourceId ResourceId FROM "
@@ -1112,6 +1310,14 @@ public class SQLStrings implements Serializable {
             + "WHERE AccessorResourceId = ? AND SysPermissionId = "
             + ResourcePermission_INHERIT.getSystemPermissionId();
 
+      SQL_findInGrantResourcePermissionSys_directInheritance_AccessorID_BY_AccessedID_IN
+            = "SELECT AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm_Sys "
+            + "WHERE SysPermissionId = "
+            + ResourcePermission_INHERIT.getSystemPermissionId()
+            + " AND AccessedResourceId IN " + parameterList;
+
       SQL_findInGrantResourcePermissionSys_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_SysPermissionID_IsWithGrant
             = "SELECT B.AccessedResourceId ResourceId, E.ExternalId FROM "
             + schemaNameAndTablePrefix
@@ -1139,6 +1345,13 @@ public class SQLStrings implements Serializable {
             + "ResourceExternalID E ON E.ResourceId = A.AccessorResourceId "
             + "WHERE A.AccessedResourceId = ? AND A.ResourceClassId = ? AND A.PermissionId = ? AND ( ? IN ( 0, A.IsWithGrant ) )";
 
+      SQL_findInGrantResourcePermission_AccessorID_BY_AccessedID_ResourceClassID_PermissionID_IsWithGrant_AccessorIDRange
+            = "SELECT AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm "
+            + "WHERE AccessedResourceId = ? AND ResourceClassId = ? AND PermissionId = ? AND ( ? IN ( 0, IsWithGrant ) ) "
+            + "AND AccessorResourceId > ? AND AccessorResourceId <= ? ORDER BY AccessorResourceId";
+
       SQL_findInGrantResourcePermission_withoutInheritance_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID
             = "SELECT C.ResourceClassName, B.PermissionName, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
@@ -1149,6 +1362,16 @@ public class SQLStrings implements Serializable {
             + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId "
             + "WHERE A.AccessorResourceId = ? AND A.AccessedResourceId = ?";
 
+      SQL_findInGrantResourcePermission_withoutInheritance_AccessedID_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID_IN
+            = "SELECT A.AccessedResourceId, C.ResourceClassName, B.PermissionName, A.IsWithGrant FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm A JOIN "
+            + schemaNameAndTablePrefix
+            + "ResourceClassPermission B ON B.ResourceClassId = A.ResourceClassId AND B.PermissionId = A.PermissionId JOIN "
+            + schemaNameAndTablePrefix
+            + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId "
+            + "WHERE A.AccessorResourceId = ? AND A.AccessedResourceId IN " + parameterList;
+
       SQL_createInGrantResourcePermission_WITH_AccessorID_GrantorID_AccessedID_IsWithGrant_ResourceClassID_PermissionName
             = "INSERT INTO "
             + schemaNameAndTablePrefix
@@ -1168,11 +1391,26 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_ResPerm.ResourceClassId AND A.PermissionName = ? )";
 
+      final String upsertSourceQuery_ResPerm
+            = "SELECT " + numericParameter + " AS AccessorResourceId, " + numericParameter + " AS AccessedResourceId, "
+            + "A.ResourceClassId AS ResourceClassId, A.PermissionId AS PermissionId, "
+            + numericParameter + " AS GrantorResourceId, " + numericParameter + " AS IsWithGrant FROM "
+            + schemaNameAndTablePrefix
+            + "ResourceClassPermission A WHERE A.ResourceClassId = ? AND A.PermissionName = ?";
+
+      SQL_upsertInGrantResourcePermission_WITH_AccessorID_AccessedID_GrantorID_IsWithGrant_ResourceClassID_PermissionName
+            = dialectSpecificSQLGenerator.upsertGrantStatement(schemaNameAndTablePrefix + "Grant_ResPerm",
+                                                             new String[]{"AccessorResourceId", "AccessedResourceId", "ResourceClassId", "PermissionId"},
+                                                             upsertSourceQuery_ResPerm);
+
       SQL_removeInGrantResourcePermission_BY_AccessorID_OR_AccessedID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
             + "Grant_ResPerm WHERE AccessorResourceId = ? OR AccessedResourceId = ?";
 
+      SQL_removeInGrantResourcePermission_BY_AccessorID_IN_OR_AccessedID_IN
+            = SQL_removeInGrantResourcePermission_BY_AccessorID_OR_AccessedID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantResourcePermission_BY_AccessorID_AccessedID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1225,6 +1463,37 @@ public class SQLStrings implements Serializable {
             + "JOIN N ON N.AccessorResourceId = A.AccessorResourceId "
             + "WHERE A.AccessedResourceId = ?";
 
+      SQL_findInGrantResourcePermission_AccessedID_ResourceClassName_PermissionName_IsWithGrant_BY_AccessorID_AccessedID_IN
+            = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
+            + "SELECT A.AccessedResourceId, C.ResourceClassName, B.PermissionName, A.IsWithGrant FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm A JOIN "
+            + schemaNameAndTablePrefix
+            + "ResourceClassPermission B ON B.ResourceClassId = A.ResourceClassId AND B.PermissionId = A.PermissionId JOIN "
+            + schemaNameAndTablePrefix
+            + "ResourceClass C ON C.ResourceClassId = A.ResourceClassId "
+            + "JOIN N ON N.AccessorResourceId = A.AccessorResourceId "
+            + "WHERE A.AccessedResourceId IN " + parameterList;
+
+      SQL_findInGrantResourcePermission_AccessorID_BY_AccessedID_AccessedDomainID_ResourceClassID_PermissionID_IsWithGrant_AccessorIDRange
+            = withClause + " "
+            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            // the accessors that hold the permission directly, globally or as super-user of the accessed domain
+            + ", P( AccessorResourceId ) AS "
+            + "( SELECT AccessorResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_ResPerm "
+            + "WHERE AccessedResourceId = ? AND PermissionId = ? AND ( ? IN ( 0, IsWithGrant ) ) "
+            + "UNION SELECT A.AccessorResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_Global_ResPerm A "
+            + "JOIN R ON R.DomainId = A.AccessedDomainId "
+            + "WHERE A.ResourceClassId = ? AND A.PermissionId = ? AND ( ? IN ( 0, A.IsWithGrant ) ) "
+            + "UNION " + SQL_findInGrantDomainPermissionSys_SuperUserAccessorID_BY_R + " ), "
+            + SQL_findRecursiveInGrantResourcePermissionSys_InheritorID_BY_P
+            + "SELECT DISTINCT AccessorResourceId ResourceId FROM M "
+            + "WHERE AccessorResourceId > ? AND AccessorResourceId <= ? ORDER BY ResourceId";
+
       // GrantResourcePermission - non-recursive
       SQL_findInGrantResourcePermission_withoutInheritance_ResourceID_ExternalID_BY_AccessorID_ResourceClassID_PermissionID_IsWithGrant
             = "SELECT A.AccessedResourceId ResourceId, E.ExternalId FROM "
@@ -1273,11 +1542,25 @@ public class SQLStrings implements Serializable {
             + "Grant_Global_ResPerm_Sys SET GrantorResourceId = ?, IsWithGrant = ? "
             + "WHERE AccessorResourceId = ? AND AccessedDomainId = ? AND ResourceClassId = ? AND SysPermissionId = ?";
 
+      final String upsertSourceQuery_GlobalResPermSys
+            = "SELECT " + numericParameter + " AS AccessorResourceId, " + numericParameter + " AS AccessedDomainId, "
+            + numericParameter + " AS ResourceClassId, " + numericParameter + " AS SysPermissionId, "
+            + numericParameter + " AS GrantorResourceId, " + numericParameter + " AS IsWithGrant" + singleRowFromClause
+            + " WHERE 1 = 1";
+
+      SQL_upsertInGrantGlobalResourcePermissionSys_WITH_AccessorID_AccessedDomainID_ResourceClassID_SysPermissionID_GrantorID_IsWithGrant
+            = dialectSpecificSQLGenerator.upsertGrantStatement(schemaNameAndTablePrefix + "Grant_Global_ResPerm_Sys",
+                                                             new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "SysPermissionId"},
+                                                             upsertSourceQuery_GlobalResPermSys);
+
       SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
             + "Grant_Global_ResPerm_Sys WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID_IN
+            = SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantGlobalResourcePermissionSys_BY_AccessedDomainId
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1346,7 +1629,7 @@ public class SQLStrings implements Serializable {
 
       SQL_findInGrantGlobalResourcePermissionSys_SysPermissionID_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
-            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            + ", " + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
             + "SELECT A.SysPermissionId, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
             + "Grant_Global_ResPerm_Sys A "
@@ -1395,6 +1678,12 @@ public class SQLStrings implements Serializable {
             + "Grant_Global_ResPerm_Sys "
             + "WHERE AccessorResourceId = ? AND ResourceClassId = ? AND SysPermissionId = ? AND ( ? IN ( 0, IsWithGrant ) )";
 
+      SQL_findInGrantGlobalResourcePermissionSys_withoutInheritance_AccessorID_BY_AccessedDomainID_ResourceClassID_SysPermissionID_IsWithGrant
+            = "SELECT AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_Global_ResPerm_Sys "
+            + "WHERE AccessedDomainId = ? AND ResourceClassId = ? AND SysPermissionId = ? AND ( ? IN ( 0, IsWithGrant ) )";
+
       // GrantGlobalResourcePermission - common
       SQL_findInGrantGlobalResourcePermission_withoutInheritance_PermissionName_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = "SELECT B.PermissionName, A.IsWithGrant FROM "
@@ -1435,11 +1724,26 @@ public class SQLStrings implements Serializable {
             + schemaNameAndTablePrefix
             + "Grant_Global_ResPerm.ResourceClassId AND A.PermissionName = ? )";
 
+      final String upsertSourceQuery_GlobalResPerm
+            = "SELECT " + numericParameter + " AS AccessorResourceId, " + numericParameter + " AS AccessedDomainId, "
+            + "A.ResourceClassId AS ResourceClassId, A.PermissionId AS PermissionId, "
+            + numericParameter + " AS GrantorResourceId, " + numericParameter + " AS IsWithGrant FROM "
+            + schemaNameAndTablePrefix
+            + "ResourceClassPermission A WHERE A.ResourceClassId = ? AND A.PermissionName = ?";
+
+      SQL_upsertInGrantGlobalResourcePermission_WITH_AccessorID_AccessedDomainID_GrantorID_IsWithGrant_ResourceClassID_PermissionName
+            = dialectSpecificSQLGenerator.upsertGrantStatement(schemaNameAndTablePrefix + "Grant_Global_ResPerm",
+                                                             new String[]{"AccessorResourceId", "AccessedDomainId", "ResourceClassId", "PermissionId"},
+                                                             upsertSourceQuery_GlobalResPerm);
+
       SQL_removeInGrantGlobalResourcePermission_BY_AccessorID
             = "DELETE FROM "
             + schemaNameAndTablePrefix
             + "Grant_Global_ResPerm WHERE AccessorResourceId = ?";
 
+      SQL_removeInGrantGlobalResourcePermission_BY_AccessorID_IN
+            = SQL_removeInGrantGlobalResourcePermission_BY_AccessorID.replace("= ?", "IN " + parameterList);
+
       SQL_removeInGrantGlobalResourcePermission_BY_AccessedDomainId
             = "DELETE FROM "
             + schemaNameAndTablePrefix
@@ -1513,7 +1817,7 @@ public class SQLStrings implements Serializable {
 
       SQL_findInGrantGlobalResourcePermission_PermissionName_IsWithGrant_BY_AccessorID_AccessedDomainID_ResourceClassID
             = SQL_findRecursiveInGrantResourcePermissionSys_AccessorID_BY_AccessorID
-            + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
+            + ", " + SQL_findAncestorsRecursiveInDomain_DomainID_BY_DomainID
             + "SELECT B.PermissionName, A.IsWithGrant FROM "
             + schemaNameAndTablePrefix
             + "Grant_Global_ResPerm A JOIN "
@@ -1566,6 +1870,12 @@ public class SQLStrings implements Serializable {
             + "Grant_Global_ResPerm "
             + "WHERE AccessorResourceId = ? AND ResourceClassId = ? AND PermissionId = ? AND ( ? IN ( 0, IsWithGrant ) )";
 
+      SQL_findInGrantGlobalResourcePermission_withoutInheritance_AccessorID_BY_AccessedDomainID_ResourceClassID_PermissionID_IsWithGrant
+            = "SELECT AccessorResourceId ResourceId FROM "
+            + schemaNameAndTablePrefix
+            + "Grant_Global_ResPerm "
+            + "WHERE AccessedDomainId = ? AND ResourceClassId = ? AND PermissionId = ? AND ( ? IN ( 0, IsWithGrant ) )";
+
       // Key generators
       SQL_nextResourceID
             = dialectSpecificSQLGenerator.nextSequenceValueStatement(schemaNameAndTablePrefix + "ResourceId");
@@ -1578,4 +1888,12 @@ public class SQLStrings implements Serializable {
    public SQLDialect getSqlDialect() {
       return sqlProfile.getSqlDialect();
    }
+
+   private static String getParameterList(int size) {
+      final StringBuilder parameterList = new StringBuilder("( ?");
+      for (int i = 1; i < size; i++) {
+         parameterList.append(", ?");
+      }
+      return parameterList.append(" )").toString();
+   }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.throttle;
+
+import com.acciente.oacc.AuthenticationException;
+
+/**
+ * Thrown by a {@link ThrottlingAuthenticationProvider} when an authentication attempt was rejected without checking
+ * the credentials, because too many recent attempts for the same resource or from the same source have failed.
+ */
+public class AuthenticationThrottledException extends AuthenticationException {
+   private static final long serialVersionUID = 1L;
+
+   public AuthenticationThrottledException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.throttle;
+
+/**
+ * Counts failed authentication attempts per key within a sliding time window, for a
+ * {@link ThrottlingAuthenticationProvider}.
+ * <p/>
+ * {@link InMemoryFailureCounter} counts the failures within a single JVM. Applications that run several instances
+ * behind a load balancer, and want the limits to apply to the cluster as a whole, may implement this interface on
+ * top of a shared store, such as a database table or a distributed cache.
+ */
+public interface FailureCounter {
+   /**
+    * Returns the number of failures recorded for the specified key within the sliding window that ends now.
+    *
+    * @param key the key, which identifies a resource or a credential source
+    * @return the number of recent failures, or 0 if none were recorded
+    */
+   int getFailureCount(String key);
+
+   /**
+    * Records a failure for the specified key, unless the failures recorded for it within the sliding window have
+    * already reached the specified maximum.
+    * <p/>
+    * The check and the recording must be atomic, so that concurrent attempts cannot record more than the maximum
+    * number of failures. The {@link ThrottlingAuthenticationProvider} records the failure before it checks the
+    * credentials, and releases it again with {@link #releaseFailure(String)} if the credentials turn out correct.
+    *
+    * @param key         the key, which identifies a resource or a credential source
+    * @param maxFailures the maximum number of failures within the window, which is positive
+    * @return <code>true</code> if the failure was recorded, <code>false</code> if the maximum had been reached
+    */
+   boolean tryRecordFailure(String key, int maxFailures);
+
+   /**
+    * Discards one failure that was recorded for the specified key with {@link #tryRecordFailure(String, int)}.
+    *
+    * @param key the key, which identifies a resource or a credential source
+    */
+   void releaseFailure(String key);
+
+   /**
+    * Discards the failures recorded for the specified key.
+    *
+    * @param key the key, which identifies a resource or a credential source
+    */
+   void clearFailures(String key);
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.throttle;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link FailureCounter} that keeps the failure counts of a single JVM in memory.
+ * <p/>
+ * The sliding window is approximated with two fixed windows of the configured length: the count of the previous
+ * window is weighted by the share of the sliding window that still overlaps it. The counts of a key are packed
+ * into a single {@link AtomicLong} and updated without locking. The keys are spread over a fixed number of
+ * stripes, each of which evicts its least recently used key when it is full, so that the memory use stays bounded
+ * at roughly <code>maxKeys</code> entries, no matter how many different keys an attacker uses. Keys whose failures
+ * have reached their maximum are skipped by the eviction, so that failing with many other keys does not reset the
+ * count of a throttled key; only a stripe that is full of throttled keys evicts one of them.
+ * <p/>
+ * The counts are not serialized; a deserialized instance starts with no recorded failures.
+ */
+public class InMemoryFailureCounter implements FailureCounter, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final int STRIPE_COUNT = 16;
+
+   // the packed state of a key: the low 32 bits of the window index, the count of the previous window and the
+   // count of the current window
+   private static final int  WINDOW_INDEX_SHIFT = 32;
+   private static final int  PREVIOUS_SHIFT     = 16;
+   private static final long COUNT_MASK         = 0xFFFFL;
+   private static final long WINDOW_INDEX_MASK  = 0xFFFFFFFFL;
+
+   private final long windowMillis;
+   private final int  maxKeys;
+
+   private transient Stripe[] stripes;
+
+   private InMemoryFailureCounter(long windowMillis, int maxKeys) {
+      this.windowMillis = windowMillis;
+      this.maxKeys = maxKeys;
+      this.stripes = newStripes(maxKeys);
+   }
+
+   /**
+    * Creates an in-memory failure counter.
+    *
+    * @param windowMillis the length of the sliding window, in milliseconds
+    * @param maxKeys      the approximate maximum number of keys for which failures are tracked at the same time
+    * @return an InMemoryFailureCounter instance configured as described above.
+    * @throws IllegalArgumentException if windowMillis or maxKeys is not positive
+    */
+   public static InMemoryFailureCounter newInstance(long windowMillis, int maxKeys) {
+      if (windowMillis <= 0) {
+         throw new IllegalArgumentException("Window length must be positive");
+      }
+      if (maxKeys <= 0) {
+         throw new IllegalArgumentException("Maximum number of keys must be positive");
+      }
+      return new InMemoryFailureCounter(windowMillis, maxKeys);
+   }
+
+   @Override
+   public int getFailureCount(String key) {
+      final Entry entry = getStripe(key).get(key);
+      if (entry == null) {
+         return 0;
+      }
+      return getFailureCount(entry.state.get(), System.currentTimeMillis());
+   }
+
+   @Override
+   public boolean tryRecordFailure(String key, int maxFailures) {
+      final AtomicLong state = getStripe(key).getOrCreate(key, maxFailures).state;
+      final long now = System.currentTimeMillis();
+      final long windowIndex = now / windowMillis;
+
+      while (true) {
+         final long oldState = state.get();
+         if (getFailureCount(oldState, now) >= maxFailures) {
+            return false;
+         }
+         final long rolledState = roll(oldState, windowIndex);
+         final long newState = (rolledState & COUNT_MASK) == COUNT_MASK
+                               ? rolledState        // saturated
+                               : rolledState + 1;
+         if (state.compareAndSet(oldState, newState)) {
+            return true;
+         }
+      }
+   }
+
+   @Override
+   public void releaseFailure(String key) {
+      final Entry entry = getStripe(key).get(key);
+      if (entry == null) {
+         // the failures were cleared in the meantime
+         return;
+      }
+
+      final long windowIndex = System.currentTimeMillis() / windowMillis;
+      while (true) {
+         final long oldState = entry.state.get();
+         final long rolledState = roll(oldState, windowIndex);
+         final long newState;
+         if ((rolledState & COUNT_MASK) > 0) {
+            newState = rolledState - 1;
+         }
+         else if (((rolledState >>> PREVIOUS_SHIFT) & COUNT_MASK) > 0) {
+            // the failure was recorded in the window that has become the previous window since
+            newState = rolledState - (1L << PREVIOUS_SHIFT);
+         }
+         else {
+            return;
+         }
+         if (entry.state.compareAndSet(oldState, newState)) {
+            return;
+         }
+      }
+   }
+
+   @Override
+   public void clearFailures(String key) {
+      getStripe(key).remove(key);
+   }
+
+   private int getFailureCount(long packedState, long now) {
+      final long rolledState = roll(packedState, now / windowMillis);
+      final long previousCount = (rolledState >>> PREVIOUS_SHIFT) & COUNT_MASK;
+      final long currentCount = rolledState & COUNT_MASK;
+      final double previousWeight = 1.0 - (now % windowMillis) / (double) windowMillis;
+
+      return (int) Math.ceil(previousCount * previousWeight) + (int) currentCount;
+   }
+
+   /**
+    * Returns the packed state with its windows moved forward to the specified window index.
+    */
+   private static long roll(long packedState, long windowIndex) {
+      final long maskedWindowIndex = windowIndex & WINDOW_INDEX_MASK;
+      final long stateWindowIndex = packedState >>> WINDOW_INDEX_SHIFT;
+
+      if (stateWindowIndex == maskedWindowIndex) {
+         return packedState;
+      }
+      else if (stateWindowIndex == ((windowIndex - 1) & WINDOW_INDEX_MASK)) {
+         // the current window became the previous window
+         return (maskedWindowIndex << WINDOW_INDEX_SHIFT) | ((packedState & COUNT_MASK) << PREVIOUS_SHIFT);
+      }
+      else {
+         // both windows expired
+         return maskedWindowIndex << WINDOW_INDEX_SHIFT;
+      }
+   }
+
+   private Stripe getStripe(String key) {
+      final int hash = key.hashCode();
+      return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+   }
+
+   private Stripe[] newStripes(int maxKeys) {
+      final int stripeCapacity = Math.max(1, (maxKeys + STRIPE_COUNT - 1) / STRIPE_COUNT);
+      final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+      for (int i = 0; i < STRIPE_COUNT; i++) {
+         stripes[i] = new Stripe(stripeCapacity);
+      }
+      return stripes;
+   }
+
+   private Object readResolve() {
+      return new InMemoryFailureCounter(windowMillis, maxKeys);
+   }
+
+   /**
+    * The packed state of a key, and the maximum number of failures it was last recorded with.
+    */
+   private static class Entry {
+      private final    AtomicLong state = new AtomicLong();
+      private volatile int        maxFailures;
+
+      private Entry(int maxFailures) {
+         this.maxFailures = maxFailures;
+      }
+   }
+
+   /**
+    * A bounded map of keys to their packed state, which evicts its least recently used key that is not throttled
+    * when it is full. The map is only locked to look up, add or remove a key, not to update its counts.
+    */
+   private class Stripe {
+      private final int                capacity;
+      private final Map<String, Entry> entries;
+
+      private Stripe(int capacity) {
+         this.capacity = capacity;
+         this.entries = new LinkedHashMap<>(16, 0.75f, true);
+      }
+
+      synchronized Entry get(String key) {
+         return entries.get(key);
+      }
+
+      synchronized Entry getOrCreate(String key, int maxFailures) {
+         Entry entry = entries.get(key);
+         if (entry == null) {
+            if (entries.size() >= capacity) {
+               evict();
+            }
+            entry = new Entry(maxFailures);
+            entries.put(key, entry);
+         }
+         else {
+            entry.maxFailures = maxFailures;
+         }
+         return entry;
+      }
+
+      synchronized void remove(String key) {
+         entries.remove(key);
+      }
+
+      private void evict() {
+         final long now = System.currentTimeMillis();
+         final Iterator<Entry> iterator = entries.values().iterator();
+         while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (getFailureCount(entry.state.get(), now) < entry.maxFailures) {
+               iterator.remove();
+               return;
+            }
+         }
+         // all keys are throttled, so we evict the least recently used one to keep the memory use bounded
+         entries.remove(entries.keySet().iterator().next());
+      }
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.throttle;
+
+import com.acciente.oacc.Credentials;
+
+/**
+ * The {@link Credentials} implementation that wraps the actual credentials of an authentication attempt together
+ * with the source of the attempt, such as the remote address of a client, so that a
+ * {@link ThrottlingAuthenticationProvider} can also limit the failed attempts per source.
+ * <p/>
+ * The throttling authentication provider unwraps the actual credentials before it delegates to the next
+ * authentication provider.
+ */
+public abstract class SourcedCredentials implements Credentials {
+   /**
+    * Returns the actual credentials of the authentication attempt
+    *
+    * @return the wrapped credentials
+    */
+   public abstract Credentials getCredentials();
+
+   /**
+    * Returns the source of the authentication attempt
+    *
+    * @return an application-defined identifier of the source, such as a remote address
+    */
+   public abstract String getSource();
+
+   public static SourcedCredentials newInstance(Credentials credentials, String source) {
+      if (credentials == null) {
+         throw new IllegalArgumentException("Credentials required, none specified");
+      }
+      if (source == null) {
+         throw new IllegalArgumentException("Source required, none specified");
+      }
+      return new Impl(credentials, source);
+   }
+
+   private static class Impl extends SourcedCredentials {
+      private final Credentials credentials;
+      private final String      source;
+
+      private Impl(Credentials credentials, String source) {
+         this.credentials = credentials;
+         this.source = source;
+      }
+
+      @Override
+      public Credentials getCredentials() {
+         return credentials;
+      }
+
+      @Override
+      public String getSource() {
+         return source;
+      }
+
+      @Override
+      public boolean equals(Object other) {
+         if (this == other) {
+            return true;
+         }
+         if (other == null || getClass() != other.getClass()) {
+            return false;
+         }
+
+         Impl impl = (Impl) other;
+
+         return credentials.equals(impl.credentials) && source.equals(impl.source);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * credentials.hashCode() + source.hashCode();
+      }
+   }
+}
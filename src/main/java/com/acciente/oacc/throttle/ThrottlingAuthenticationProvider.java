@@ -0,0 +1,252 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.throttle;
+
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Credentials;
+import com.acciente.oacc.IncorrectCredentialsException;
+import com.acciente.oacc.Resource;
+
+import java.io.Serializable;
+
+/**
+ * An {@link AuthenticationProvider} that limits the number of failed authentication attempts per resource and per
+ * credential source, and delegates the actual authentication to another authentication provider, such as OACC's
+ * built-in password authentication provider.
+ * <p/>
+ * Once the failures recorded for a resource, or for the source of an attempt, within the sliding window of the
+ * {@link FailureCounter} reach the configured limit, further attempts are rejected with an
+ * {@link AuthenticationThrottledException} before the delegate is called, so that they neither query the database
+ * for the stored password hash nor compute the deliberately slow hash of the supplied password. Only incorrect
+ * credentials count as failures. A successful authentication, or setting new credentials, discards the failures
+ * recorded for the resource, but not those recorded for the source.
+ * <p/>
+ * Each attempt records a failure before the delegate checks its credentials, and releases it again if the
+ * credentials turn out correct, so that concurrent attempts cannot exceed the limits. The failures of a resource are
+ * counted by its resource id, which the access control context always resolves before it calls this provider;
+ * attempts for a resource without a resource id are only limited per source.
+ * <p/>
+ * To limit the failures per source, the application wraps the credentials of an attempt in a
+ * {@link SourcedCredentials} instance that identifies the source, such as the remote address of the client.
+ * Attempts with other credentials are only limited per resource.
+ */
+public class ThrottlingAuthenticationProvider implements AuthenticationProvider, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final int DEFAULT_MAX_KEYS = 100000;
+
+   private static final String RESOURCE_KEY_PREFIX = "resource:";
+   private static final String SOURCE_KEY_PREFIX   = "source:";
+
+   private final AuthenticationProvider delegate;
+   private final FailureCounter         failureCounter;
+   private final int                    maxFailuresPerResource;
+   private final int                    maxFailuresPerSource;
+
+   private ThrottlingAuthenticationProvider(AuthenticationProvider delegate,
+                                            FailureCounter failureCounter,
+                                            int maxFailuresPerResource,
+                                            int maxFailuresPerSource) {
+      this.delegate = delegate;
+      this.failureCounter = failureCounter;
+      this.maxFailuresPerResource = maxFailuresPerResource;
+      this.maxFailuresPerSource = maxFailuresPerSource;
+   }
+
+   /**
+    * Creates a throttling authentication provider that counts the failures in memory, for up to 100,000 resources
+    * and sources at the same time.
+    *
+    * @param delegate               the authentication provider that checks the credentials
+    * @param maxFailuresPerResource the number of failures within the window after which the attempts for a
+    *                               resource are rejected, or 0 for no limit
+    * @param maxFailuresPerSource   the number of failures within the window after which the attempts from a
+    *                               source are rejected, or 0 for no limit
+    * @param windowMillis           the length of the sliding window, in milliseconds
+    * @return a throttling authentication provider
+    */
+   public static ThrottlingAuthenticationProvider newInstance(AuthenticationProvider delegate,
+                                                              int maxFailuresPerResource,
+                                                              int maxFailuresPerSource,
+                                                              long windowMillis) {
+      return newInstance(delegate,
+                         InMemoryFailureCounter.newInstance(windowMillis, DEFAULT_MAX_KEYS),
+                         maxFailuresPerResource,
+                         maxFailuresPerSource);
+   }
+
+   /**
+    * Creates a throttling authentication provider that counts the failures with the specified failure counter,
+    * for example one that is shared by all instances of a cluster.
+    *
+    * @param delegate               the authentication provider that checks the credentials
+    * @param failureCounter         the failure counter, which also defines the sliding window
+    * @param maxFailuresPerResource the number of failures within the window after which the attempts for a
+    *                               resource are rejected, or 0 for no limit
+    * @param maxFailuresPerSource   the number of failures within the window after which the attempts from a
+    *                               source are rejected, or 0 for no limit
+    * @return a throttling authentication provider
+    */
+   public static ThrottlingAuthenticationProvider newInstance(AuthenticationProvider delegate,
+                                                              FailureCounter failureCounter,
+                                                              int maxFailuresPerResource,
+                                                              int maxFailuresPerSource) {
+      if (delegate == null) {
+         throw new IllegalArgumentException("AuthenticationProvider required, none specified");
+      }
+      if (failureCounter == null) {
+         throw new IllegalArgumentException("FailureCounter required, none specified");
+      }
+      if (maxFailuresPerResource < 0 || maxFailuresPerSource < 0) {
+         throw new IllegalArgumentException("Maximum number of failures cannot be negative");
+      }
+      return new ThrottlingAuthenticationProvider(delegate,
+                                                  failureCounter,
+                                                  maxFailuresPerResource,
+                                                  maxFailuresPerSource);
+   }
+
+   @Override
+   public void authenticate(Resource resource, Credentials credentials) {
+      final String resourceKey = __getResourceKey(resource);
+      final String sourceKey = __getSourceKey(credentials);
+
+      if (!__tryRecordFailure(resourceKey, maxFailuresPerResource)) {
+         throw new AuthenticationThrottledException("Too many failed authentication attempts for resource "
+                                                          + resource);
+      }
+      if (!__tryRecordFailure(sourceKey, maxFailuresPerSource)) {
+         __releaseFailure(resourceKey, maxFailuresPerResource);
+         __throwSourceThrottled(sourceKey);
+      }
+
+      boolean isIncorrect = false;
+      try {
+         delegate.authenticate(resource, __getDelegateCredentials(credentials));
+      }
+      catch (IncorrectCredentialsException e) {
+         isIncorrect = true;
+         throw e;
+      }
+      finally {
+         // only incorrect credentials count as failures
+         if (!isIncorrect) {
+            __releaseFailure(resourceKey, maxFailuresPerResource);
+            __releaseFailure(sourceKey, maxFailuresPerSource);
+         }
+      }
+
+      __clearFailures(resourceKey);
+   }
+
+   @Override
+   public void authenticate(Resource resource) {
+      delegate.authenticate(resource);
+   }
+
+   @Override
+   public Resource authenticate(Credentials credentials) {
+      final String sourceKey = __getSourceKey(credentials);
+
+      if (!__tryRecordFailure(sourceKey, maxFailuresPerSource)) {
+         __throwSourceThrottled(sourceKey);
+      }
+
+      final Resource resource;
+      boolean isIncorrect = false;
+      try {
+         resource = delegate.authenticate(__getDelegateCredentials(credentials));
+      }
+      catch (IncorrectCredentialsException e) {
+         isIncorrect = true;
+         throw e;
+      }
+      finally {
+         // only incorrect credentials count as failures
+         if (!isIncorrect) {
+            __releaseFailure(sourceKey, maxFailuresPerSource);
+         }
+      }
+
+      if (resource != null) {
+         __clearFailures(__getResourceKey(resource));
+      }
+      return resource;
+   }
+
+   @Override
+   public void validateCredentials(String resourceClassName, String domainName, Credentials credentials) {
+      delegate.validateCredentials(resourceClassName, domainName, __getDelegateCredentials(credentials));
+   }
+
+   @Override
+   public void setCredentials(Resource resource, Credentials credentials) {
+      delegate.setCredentials(resource, __getDelegateCredentials(credentials));
+      __clearFailures(__getResourceKey(resource));
+   }
+
+   @Override
+   public void deleteCredentials(Resource resource) {
+      delegate.deleteCredentials(resource);
+      __clearFailures(__getResourceKey(resource));
+   }
+
+   private static void __throwSourceThrottled(String sourceKey) {
+      throw new AuthenticationThrottledException("Too many failed authentication attempts from source "
+                                                       + sourceKey.substring(SOURCE_KEY_PREFIX.length()));
+   }
+
+   private boolean __tryRecordFailure(String key, int maxFailures) {
+      // keys without a limit are not counted
+      return key == null || maxFailures == 0 || failureCounter.tryRecordFailure(key, maxFailures);
+   }
+
+   private void __releaseFailure(String key, int maxFailures) {
+      if (key != null && maxFailures > 0) {
+         failureCounter.releaseFailure(key);
+      }
+   }
+
+   private void __clearFailures(String key) {
+      if (key != null) {
+         failureCounter.clearFailures(key);
+      }
+   }
+
+   private static String __getResourceKey(Resource resource) {
+      // key by the resource id only, so that identifying a resource by its external id does not double its limit
+      if (resource == null || resource.getId() == null) {
+         return null;
+      }
+      return RESOURCE_KEY_PREFIX + resource.getId();
+   }
+
+   private static String __getSourceKey(Credentials credentials) {
+      if (credentials instanceof SourcedCredentials) {
+         return SOURCE_KEY_PREFIX + ((SourcedCredentials) credentials).getSource();
+      }
+      return null;
+   }
+
+   private static Credentials __getDelegateCredentials(Credentials credentials) {
+      if (credentials instanceof SourcedCredentials) {
+         return ((SourcedCredentials) credentials).getCredentials();
+      }
+      return credentials;
+   }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.token;
+
+import com.acciente.oacc.Resource;
+
+/**
+ * Implemented by authentication providers that can report a version of the credentials of a resource.
+ * <p/>
+ * The version must change whenever the credentials of the resource are set, reset or deleted, including when
+ * this happens through a different instance of the authentication provider, so that a
+ * {@link TokenAuthenticationProvider} can revoke the tokens issued for the previous credentials.
+ * The built-in password authentication providers derive the version from the stored, salted password hash.
+ */
+public interface CredentialVersionSource {
+   /**
+    * Returns the current version of the credentials of the specified resource.
+    *
+    * @param resource the resource, with its resource id
+    * @return the credential version
+    */
+   long getCredentialVersion(Resource resource);
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.token;
+
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Credentials;
+import com.acciente.oacc.IncorrectCredentialsException;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.UnsupportedCredentialsException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link AuthenticationProvider} that authenticates resources with signed tokens, and delegates all other
+ * authentication to another authentication provider, such as OACC's built-in password authentication provider.
+ * <p/>
+ * After a resource was authenticated with its regular credentials, the application calls {@link #issueToken}
+ * to obtain a {@link TokenCredentials} instance, which can then be used to authenticate the resource, either with
+ * or without specifying the resource, until the token expires. Verifying a token only requires an HMAC-SHA256
+ * check and a lookup of the credential version of the resource, instead of the deliberately slow password hash.
+ * <p/>
+ * Each token contains the credential version of its resource at the time it was issued, and is rejected once that
+ * version changes. If the delegate implements {@link CredentialVersionSource}, as the built-in password
+ * authentication providers do, setting, resetting or deleting the credentials of a resource through any instance
+ * of the delegate therefore revokes its outstanding tokens. The version lookup may be cached for a configurable
+ * time, in which case a revocation through a different instance takes effect within that time. Otherwise this
+ * provider tracks the credential versions itself, in which case only changes made through this instance revoke
+ * tokens, and tokens are not accepted by other instances.
+ * <p/>
+ * All instances that need to accept each other's tokens must use the same signing key. The signing key is not
+ * serialized with this provider, and has to be supplied again with {@link #postDeserialize(byte[])} before a
+ * deserialized provider can issue or verify tokens.
+ */
+public class TokenAuthenticationProvider implements AuthenticationProvider, Serializable {
+   private static final long serialVersionUID = 1L;
+
+   private static final String MAC_ALGORITHM       = "HmacSHA256";
+   private static final int    MIN_KEY_LENGTH      = 32;
+   private static final byte   TOKEN_FORMAT        = 1;
+   private static final int    TOKEN_PAYLOAD_BYTES = 1 + 8 + 8 + 8;
+   private static final int    TOKEN_MAC_BYTES     = 32;
+   private static final int    TOKEN_BYTES         = TOKEN_PAYLOAD_BYTES + TOKEN_MAC_BYTES;
+
+   private static final char[] BASE64_URL_ALPHABET
+         = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+   private final     AuthenticationProvider delegate;
+   private transient byte[]                 signingKey;
+   private final     long                   tokenTtlMillis;
+   private final     long                   versionCacheMillis;
+
+   // the credential versions, if tracked by this provider, as offsets from a random epoch so that the tokens of a
+   // previous instance are not accepted
+   private final     long                               localVersionEpoch;
+   private final     ConcurrentMap<Long, AtomicLong>    localVersions;
+   private transient ConcurrentMap<Long, CachedVersion> cachedVersions;
+
+   private TokenAuthenticationProvider(AuthenticationProvider delegate,
+                                       byte[] signingKey,
+                                       long tokenTtlMillis,
+                                       long versionCacheMillis) {
+      this.delegate = delegate;
+      this.signingKey = signingKey.clone();
+      this.tokenTtlMillis = tokenTtlMillis;
+      this.versionCacheMillis = versionCacheMillis;
+      this.localVersionEpoch = new SecureRandom().nextLong();
+      this.localVersions = new ConcurrentHashMap<>();
+      this.cachedVersions = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Creates a token authentication provider that looks up the credential version of a resource on every
+    * token authentication.
+    *
+    * @param delegate       the authentication provider for all credentials other than tokens
+    * @param signingKey     the secret key with which tokens are signed, of at least 32 bytes
+    * @param tokenTtlMillis the time for which an issued token remains valid, in milliseconds
+    * @return a token authentication provider
+    */
+   public static TokenAuthenticationProvider newInstance(AuthenticationProvider delegate,
+                                                         byte[] signingKey,
+                                                         long tokenTtlMillis) {
+      return newInstance(delegate, signingKey, tokenTtlMillis, 0);
+   }
+
+   /**
+    * Creates a token authentication provider that caches the credential version of a resource for the specified
+    * time.
+    *
+    * @param delegate           the authentication provider for all credentials other than tokens
+    * @param signingKey         the secret key with which tokens are signed, of at least 32 bytes
+    * @param tokenTtlMillis     the time for which an issued token remains valid, in milliseconds
+    * @param versionCacheMillis the time for which a looked up credential version is reused, in milliseconds,
+    *                           or 0 to look up the version on every token authentication
+    * @return a token authentication provider
+    */
+   public static TokenAuthenticationProvider newInstance(AuthenticationProvider delegate,
+                                                         byte[] signingKey,
+                                                         long tokenTtlMillis,
+                                                         long versionCacheMillis) {
+      if (delegate == null) {
+         throw new IllegalArgumentException("AuthenticationProvider required, none specified");
+      }
+      __assertSigningKeyValid(signingKey);
+      if (tokenTtlMillis <= 0) {
+         throw new IllegalArgumentException("Token time-to-live must be positive");
+      }
+      if (versionCacheMillis < 0) {
+         throw new IllegalArgumentException("Version cache time cannot be negative");
+      }
+      return new TokenAuthenticationProvider(delegate, signingKey, tokenTtlMillis, versionCacheMillis);
+   }
+
+   /**
+    * Re-initializes the transient signing key after deserialization.
+    * <p/>
+    * This method is only intended to be called after successful deserialization, in order to supply the signing
+    * key that was not serialized. If the method is called when a signing key has already been initialized, the
+    * method will throw an IllegalStateException.
+    *
+    * @param signingKey the secret key with which tokens are signed, of at least 32 bytes
+    * @throws IllegalStateException if a signing key is already set
+    */
+   public void postDeserialize(byte[] signingKey) {
+      if (this.signingKey != null) {
+         throw new IllegalStateException("Cannot re-initialize an already initialized TokenAuthenticationProvider");
+      }
+      __assertSigningKeyValid(signingKey);
+      this.signingKey = signingKey.clone();
+   }
+
+   /**
+    * Issues a token for the specified resource, which should just have been authenticated with its regular
+    * credentials, such as the resource returned by
+    * {@link com.acciente.oacc.AccessControlContext#getAuthenticatedResource()}.
+    *
+    * @param resource the resource, with its resource id
+    * @return the token credentials, which are valid until they expire or the resource's credentials change
+    */
+   public TokenCredentials issueToken(Resource resource) {
+      if (resource == null || resource.getId() == null) {
+         throw new IllegalArgumentException("Resource with a resource id required, none specified");
+      }
+
+      final long resourceId = resource.getId();
+      final long credentialVersion = __getCredentialVersion(resourceId, false);
+
+      final ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES);
+      buffer.put(TOKEN_FORMAT);
+      buffer.putLong(resourceId);
+      buffer.putLong(System.currentTimeMillis() + tokenTtlMillis);
+      buffer.putLong(credentialVersion);
+      buffer.put(__computeMac(buffer.array()));
+
+      return TokenCredentials.newInstance(__encode(buffer.array()));
+   }
+
+   @Override
+   public void authenticate(Resource resource, Credentials credentials) {
+      if (credentials instanceof TokenCredentials) {
+         final long resourceId = __verifyToken((TokenCredentials) credentials);
+
+         if (resource.getId() == null || resource.getId() != resourceId) {
+            throw new IncorrectCredentialsException("Invalid token for resource " + resource);
+         }
+      }
+      else {
+         delegate.authenticate(resource, credentials);
+      }
+   }
+
+   @Override
+   public void authenticate(Resource resource) {
+      delegate.authenticate(resource);
+   }
+
+   @Override
+   public Resource authenticate(Credentials credentials) {
+      if (credentials instanceof TokenCredentials) {
+         return Resources.getInstance(__verifyToken((TokenCredentials) credentials));
+      }
+      return delegate.authenticate(credentials);
+   }
+
+   @Override
+   public void validateCredentials(String resourceClassName, String domainName, Credentials credentials) {
+      __assertNotTokenCredentials(credentials);
+      delegate.validateCredentials(resourceClassName, domainName, credentials);
+   }
+
+   @Override
+   public void setCredentials(Resource resource, Credentials credentials) {
+      __assertNotTokenCredentials(credentials);
+      delegate.setCredentials(resource, credentials);
+      __revokeTokens(resource);
+   }
+
+   @Override
+   public void deleteCredentials(Resource resource) {
+      delegate.deleteCredentials(resource);
+      __revokeTokens(resource);
+   }
+
+   private long __verifyToken(TokenCredentials tokenCredentials) {
+      final byte[] token = __decode(tokenCredentials.getToken());
+
+      if (token == null || token[0] != TOKEN_FORMAT) {
+         throw new IncorrectCredentialsException("Invalid token");
+      }
+
+      final byte[] expectedMac = __computeMac(token);
+      final byte[] actualMac = Arrays.copyOfRange(token, TOKEN_PAYLOAD_BYTES, TOKEN_BYTES);
+
+      // compare in constant time, so that the response time does not reveal how much of a forged MAC is correct
+      if (!MessageDigest.isEqual(expectedMac, actualMac)) {
+         throw new IncorrectCredentialsException("Invalid token");
+      }
+
+      final ByteBuffer buffer = ByteBuffer.wrap(token, 1, TOKEN_PAYLOAD_BYTES - 1);
+      final long resourceId = buffer.getLong();
+      final long expiresAt = buffer.getLong();
+      final long credentialVersion = buffer.getLong();
+
+      if (System.currentTimeMillis() >= expiresAt) {
+         throw new IncorrectCredentialsException("Expired token for resource " + Resources.getInstance(resourceId));
+      }
+
+      if (__getCredentialVersion(resourceId, true) != credentialVersion) {
+         throw new IncorrectCredentialsException("Revoked token for resource " + Resources.getInstance(resourceId));
+      }
+
+      return resourceId;
+   }
+
+   private long __getCredentialVersion(long resourceId, boolean isCacheable) {
+      if (!(delegate instanceof CredentialVersionSource)) {
+         final AtomicLong localVersion = localVersions.get(resourceId);
+         return localVersionEpoch + (localVersion == null ? 0 : localVersion.get());
+      }
+
+      final long now = System.currentTimeMillis();
+      if (isCacheable && versionCacheMillis > 0) {
+         final CachedVersion cachedVersion = __getCachedVersions().get(resourceId);
+         if (cachedVersion != null && now - cachedVersion.loadedAt < versionCacheMillis) {
+            return cachedVersion.version;
+         }
+      }
+
+      final long version
+            = ((CredentialVersionSource) delegate).getCredentialVersion(Resources.getInstance(resourceId));
+
+      if (versionCacheMillis > 0) {
+         __getCachedVersions().put(resourceId, new CachedVersion(version, now));
+      }
+      return version;
+   }
+
+   private void __revokeTokens(Resource resource) {
+      if (resource.getId() == null) {
+         return;
+      }
+
+      if (delegate instanceof CredentialVersionSource) {
+         // the delegate changed the version, so we just need to forget the one we cached
+         __getCachedVersions().remove(resource.getId());
+      }
+      else {
+         AtomicLong localVersion = localVersions.get(resource.getId());
+         if (localVersion == null) {
+            final AtomicLong newLocalVersion = new AtomicLong();
+            localVersion = localVersions.putIfAbsent(resource.getId(), newLocalVersion);
+            if (localVersion == null) {
+               localVersion = newLocalVersion;
+            }
+         }
+         localVersion.incrementAndGet();
+      }
+   }
+
+   private ConcurrentMap<Long, CachedVersion> __getCachedVersions() {
+      // the cache is not serialized, so we re-create it on first use after deserialization
+      if (cachedVersions == null) {
+         cachedVersions = new ConcurrentHashMap<>();
+      }
+      return cachedVersions;
+   }
+
+   private byte[] __computeMac(byte[] token) {
+      if (signingKey == null) {
+         throw new IllegalStateException("Not initialized! No signing key, perhaps missing call to postDeserialize()?");
+      }
+
+      try {
+         // Mac instances are not thread-safe, and cheap to create compared to the signing itself
+         final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+         mac.init(new SecretKeySpec(signingKey, MAC_ALGORITHM));
+         mac.update(token, 0, TOKEN_PAYLOAD_BYTES);
+         return mac.doFinal();
+      }
+      catch (GeneralSecurityException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static void __assertSigningKeyValid(byte[] signingKey) {
+      if (signingKey == null) {
+         throw new IllegalArgumentException("Signing key required, none specified");
+      }
+      if (signingKey.length < MIN_KEY_LENGTH) {
+         throw new IllegalArgumentException("Signing key must have at least " + MIN_KEY_LENGTH + " bytes");
+      }
+   }
+
+   private static void __assertNotTokenCredentials(Credentials credentials) {
+      if (credentials instanceof TokenCredentials) {
+         throw new UnsupportedCredentialsException(credentials.getClass());
+      }
+   }
+
+   // tokens always have a multiple of 3 bytes, so their unpadded base64url encoding never needs padding
+
+   private static String __encode(byte[] bytes) {
+      final char[] chars = new char[bytes.length / 3 * 4];
+      for (int i = 0, j = 0; i < bytes.length; i += 3) {
+         final int group = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF);
+         chars[j++] = BASE64_URL_ALPHABET[group >>> 18];
+         chars[j++] = BASE64_URL_ALPHABET[(group >>> 12) & 0x3F];
+         chars[j++] = BASE64_URL_ALPHABET[(group >>> 6) & 0x3F];
+         chars[j++] = BASE64_URL_ALPHABET[group & 0x3F];
+      }
+      return new String(chars);
+   }
+
+   private static byte[] __decode(String token) {
+      if (token == null || token.length() != TOKEN_BYTES / 3 * 4) {
+         return null;
+      }
+
+      final byte[] bytes = new byte[TOKEN_BYTES];
+      for (int i = 0, j = 0; i < token.length(); i += 4) {
+         int group = 0;
+         for (int k = 0; k < 4; k++) {
+            final int value = __decode(token.charAt(i + k));
+            if (value < 0) {
+               return null;
+            }
+            group = group << 6 | value;
+         }
+         bytes[j++] = (byte) (group >>> 16);
+         bytes[j++] = (byte) (group >>> 8);
+         bytes[j++] = (byte) group;
+      }
+      return bytes;
+   }
+
+   private static int __decode(char c) {
+      if (c >= 'A' && c <= 'Z') {
+         return c - 'A';
+      }
+      if (c >= 'a' && c <= 'z') {
+         return c - 'a' + 26;
+      }
+      if (c >= '0' && c <= '9') {
+         return c - '0' + 52;
+      }
+      if (c == '-') {
+         return 62;
+      }
+      if (c == '_') {
+         return 63;
+      }
+      return -1;
+   }
+
+   private static final class CachedVersion {
+      private final long version;
+      private final long loadedAt;
+
+      private CachedVersion(long version, long loadedAt) {
+         this.version = version;
+         this.loadedAt = loadedAt;
+      }
+   }
+}
@@ -19,6 +19,8 @@ package com.acciente.oacc;
 
 import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
 import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.memory.MemoryAccessControlContextFactory;
+import com.acciente.oacc.memory.MemoryAccessControlStore;
 import com.acciente.oacc.sql.SQLAccessControlContextFactory;
 import com.acciente.oacc.sql.SQLProfile;
 import org.junit.After;
@@ -42,17 +44,35 @@ public class TestAccessControlBase {
       sqlProfile = TestConfigLoader.getSQLProfile();
       dataSource = TestConfigLoader.getDataSource();
       isDBCaseSensitive = TestConfigLoader.isDatabaseCaseSensitive();
-      systemAccessControlContext
-            = SQLAccessControlContextFactory.getAccessControlContext(dataSource,
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     sqlProfile,
-                                                                     TestConfigLoader.getPasswordEncryptor());
+      if (!TestConfigLoader.isMemoryEngine()) {
+         systemAccessControlContext
+               = SQLAccessControlContextFactory.getAccessControlContext(dataSource,
+                                                                        TestConfigLoader.getDatabaseSchema(),
+                                                                        sqlProfile,
+                                                                        TestConfigLoader.getPasswordEncryptor());
+      }
    }
 
-   protected AccessControlContext accessControlContext;
+   protected AccessControlContext     accessControlContext;
+   // the store of the current test, when the tests run on the in-memory engine
+   protected MemoryAccessControlStore memoryAccessControlStore;
 
    @Before
    public void setUpTest() throws Exception {
+      if (TestConfigLoader.isMemoryEngine()) {
+         // a fresh in-memory access control system for every test
+         memoryAccessControlStore
+               = MemoryAccessControlStore.newInstance(TestConfigLoader.getOaccRootPassword(),
+                                                      TestConfigLoader.getPasswordEncryptor());
+         systemAccessControlContext
+               = MemoryAccessControlContextFactory.getAccessControlContext(memoryAccessControlStore,
+                                                                           TestConfigLoader.getPasswordEncryptor());
+         accessControlContext
+               = MemoryAccessControlContextFactory.getAccessControlContext(memoryAccessControlStore,
+                                                                           TestConfigLoader.getPasswordEncryptor());
+         return;
+      }
+
       SQLAccessControlSystemResetUtil.resetOACC(dataSource,
                                                 TestConfigLoader.getDatabaseSchema(),
                                                 TestConfigLoader.getOaccRootPassword(),
@@ -17,15 +17,21 @@
  */
 package com.acciente.oacc;
 
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.RehashAwarePasswordEncryptor;
 import com.acciente.oacc.encryptor.TransitioningPasswordEncryptor;
 import com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor;
 import com.acciente.oacc.encryptor.jasypt.LegacyJasyptPasswordEncryptor;
 import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
 import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.memory.MemoryAccessControlContextFactory;
+import com.acciente.oacc.memory.MemoryAccessControlStore;
 import com.acciente.oacc.sql.SQLAccessControlContextFactory;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.fail;
+
 import static com.acciente.oacc.TestAccessControlBase.generateUniqueDomainName;
 import static com.acciente.oacc.TestAccessControlBase.generateUniqueExternalId;
 import static com.acciente.oacc.TestAccessControlBase.generateUniqueResourceClassName;
@@ -40,6 +46,9 @@ public class TestAccessControl_TransitioningPasswordEncryptor {
    private AccessControlContext userContextWithTransitioningEncryptor;
    private AccessControlContext userContextWithBcryptEncryptor;
 
+   // the store of the current test, when the tests run on the in-memory engine
+   private MemoryAccessControlStore memoryAccessControlStore;
+
    private String               resourceExternalId;
    private String               resourceClassName;
    private String               resourceDomainName;
@@ -51,24 +60,22 @@ public class TestAccessControl_TransitioningPasswordEncryptor {
       final LegacyJasyptPasswordEncryptor legacyJasyptPasswordEncryptor =
             LegacyJasyptPasswordEncryptor.newInstance();
 
-      SQLAccessControlSystemResetUtil.resetOACC(TestConfigLoader.getDataSource(),
-                                                TestConfigLoader.getDatabaseSchema(),
-                                                TestConfigLoader.getOaccRootPassword(),
-                                                legacyJasyptPasswordEncryptor);
-
-      systemContextWithLegacyEncryptor
-            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     TestConfigLoader.getSQLProfile(),
-                                                                     legacyJasyptPasswordEncryptor);
+      if (TestConfigLoader.isMemoryEngine()) {
+         memoryAccessControlStore = MemoryAccessControlStore.newInstance(TestConfigLoader.getOaccRootPassword(),
+                                                                         legacyJasyptPasswordEncryptor);
+      }
+      else {
+         SQLAccessControlSystemResetUtil.resetOACC(TestConfigLoader.getDataSource(),
+                                                   TestConfigLoader.getDatabaseSchema(),
+                                                   TestConfigLoader.getOaccRootPassword(),
+                                                   legacyJasyptPasswordEncryptor);
+      }
+
+      systemContextWithLegacyEncryptor = getAccessControlContext(legacyJasyptPasswordEncryptor);
       systemContextWithLegacyEncryptor.authenticate(SYS_RESOURCE,
                                                     PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
 
-      userContextWithLegacyEncryptor
-            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     TestConfigLoader.getSQLProfile(),
-                                                                     legacyJasyptPasswordEncryptor);
+      userContextWithLegacyEncryptor = getAccessControlContext(legacyJasyptPasswordEncryptor);
 
       // uses the transitioning password encryptor with BCrypt as the "new" password encryptor and
       // the legacy built-in password encryptor code (from OACC v2.00 rc7 and before) as the "old" encryptor
@@ -78,25 +85,13 @@ public class TestAccessControl_TransitioningPasswordEncryptor {
                   bCryptPasswordEncryptor,
                   LegacyJasyptPasswordEncryptor.newInstance());
 
-      systemContextWithTransitioningEncryptor
-            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     TestConfigLoader.getSQLProfile(),
-                                                                     transitioningPasswordEncryptor);
+      systemContextWithTransitioningEncryptor = getAccessControlContext(transitioningPasswordEncryptor);
       systemContextWithTransitioningEncryptor.authenticate(SYS_RESOURCE,
                                                            PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
 
-      userContextWithTransitioningEncryptor
-            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     TestConfigLoader.getSQLProfile(),
-                                                                     transitioningPasswordEncryptor);
+      userContextWithTransitioningEncryptor = getAccessControlContext(transitioningPasswordEncryptor);
 
-      userContextWithBcryptEncryptor
-            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     TestConfigLoader.getSQLProfile(),
-                                                                     bCryptPasswordEncryptor);
+      userContextWithBcryptEncryptor = getAccessControlContext(bCryptPasswordEncryptor);
 
       resourceExternalId = generateUniqueExternalId();
       resourceClassName = generateAuthenticatableResourceClass();
@@ -144,6 +139,84 @@ public class TestAccessControl_TransitioningPasswordEncryptor {
       userContextWithBcryptEncryptor.authenticate(resource, resourceCredentials);
    }
 
+   @Test
+   public void testAuthenticateOfResourceWithLegacyPasswordUsingTransitioningEncryptorUpgradesPassword() throws Exception {
+      final Resource resource = systemContextWithLegacyEncryptor.createResource(resourceClassName,
+                                                                                resourceDomainName,
+                                                                                resourceExternalId,
+                                                                                resourceCredentials);
+
+      // the successful authentication re-encrypts the legacy password with the new password encryptor
+      userContextWithTransitioningEncryptor.authenticate(resource, resourceCredentials);
+
+      userContextWithBcryptEncryptor.authenticate(resource, resourceCredentials);
+   }
+
+   @Test
+   public void testAuthenticateOfResourceWithLegacyPasswordDoesNotOverwriteConcurrentlyChangedPassword() throws Exception {
+      final Resource resource = systemContextWithLegacyEncryptor.createResource(resourceClassName,
+                                                                                resourceDomainName,
+                                                                                resourceExternalId,
+                                                                                resourceCredentials);
+      final PasswordCredentials newResourceCredentials
+            = PasswordCredentials.newInstance(generateRandomPassword().toCharArray());
+
+      // change the password while the authentication re-encrypts the legacy password
+      final TransitioningPasswordEncryptor transitioningPasswordEncryptor =
+            TransitioningPasswordEncryptor.newInstance(BCryptPasswordEncryptor.newInstance(6),
+                                                       LegacyJasyptPasswordEncryptor.newInstance());
+      final AccessControlContext userContextWithInterleavedPasswordChange
+            = getAccessControlContext(new RehashAwarePasswordEncryptor() {
+         private boolean isPasswordChanged;
+
+         @Override
+         public String encryptPassword(char[] password) {
+            if (!isPasswordChanged) {
+               isPasswordChanged = true;
+               systemContextWithTransitioningEncryptor.setCredentials(resource, newResourceCredentials);
+            }
+            return transitioningPasswordEncryptor.encryptPassword(password);
+         }
+
+         @Override
+         public boolean checkPassword(char[] plainPassword, String encryptedPassword) {
+            return transitioningPasswordEncryptor.checkPassword(plainPassword, encryptedPassword);
+         }
+
+         @Override
+         public boolean isPasswordFormatRecognized(String encryptedPassword) {
+            return transitioningPasswordEncryptor.isPasswordFormatRecognized(encryptedPassword);
+         }
+
+         @Override
+         public boolean isRehashNeeded(String encryptedPassword) {
+            return transitioningPasswordEncryptor.isRehashNeeded(encryptedPassword);
+         }
+      });
+
+      userContextWithInterleavedPasswordChange.authenticate(resource, resourceCredentials);
+
+      // the re-encrypted old password must not have replaced the new one
+      userContextWithTransitioningEncryptor.authenticate(resource, newResourceCredentials);
+      try {
+         userContextWithTransitioningEncryptor.authenticate(resource, resourceCredentials);
+         fail("authenticating with the old password after the password was changed should have failed");
+      }
+      catch (IncorrectCredentialsException e) {
+         // expected
+      }
+   }
+
+   private AccessControlContext getAccessControlContext(PasswordEncryptor passwordEncryptor) {
+      if (TestConfigLoader.isMemoryEngine()) {
+         return MemoryAccessControlContextFactory.getAccessControlContext(memoryAccessControlStore, passwordEncryptor);
+      }
+      return SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                    TestConfigLoader.getDatabaseSchema(),
+                                                                    TestConfigLoader.getSQLProfile(),
+                                                                    passwordEncryptor);
+   }
+
    private String generateAuthenticatableResourceClass() {
       final String resourceClassName = generateUniqueResourceClassName();
       systemContextWithLegacyEncryptor.createResourceClass(resourceClassName, true, false);
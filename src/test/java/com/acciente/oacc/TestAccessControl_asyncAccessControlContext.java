@@ -0,0 +1,269 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_asyncAccessControlContext extends TestAccessControlBase {
+   private static final int MAX_CONCURRENCY = 2;
+
+   private ExecutorService           executorService;
+   private AsyncAccessControlContext asyncAccessControlContext;
+
+   @Before
+   public void setUpAsyncAccessControlContext() {
+      executorService = Executors.newFixedThreadPool(4);
+      asyncAccessControlContext
+            = AsyncAccessControlContext.newInstance(accessControlContext, executorService, MAX_CONCURRENCY);
+   }
+
+   @After
+   public void tearDownAsyncAccessControlContext() {
+      executorService.shutdownNow();
+   }
+
+   @Test
+   public void asyncAccessControlContext_matchesSynchronousResults() throws Exception {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+      final Set<ResourcePermission> permissions = setOf(ResourcePermissions.getInstance(permissionName));
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource grantedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final Resource deniedResource = accessControlContext.createResource(resourceClassName, domainName);
+      accessControlContext.setResourcePermissions(accessorResource, grantedResource, permissions);
+
+      final AccessControlFuture<Boolean> granted
+            = asyncAccessControlContext.hasResourcePermissions(accessorResource, grantedResource, permissions);
+      final AccessControlFuture<Boolean> denied
+            = asyncAccessControlContext.hasResourcePermissions(accessorResource, deniedResource, permissions);
+      final AccessControlFuture<Set<ResourcePermission>> effective
+            = asyncAccessControlContext.getEffectiveResourcePermissions(accessorResource, grantedResource);
+      final AccessControlFuture<Set<Resource>> resources
+            = asyncAccessControlContext.getResourcesByResourcePermissions(accessorResource, resourceClassName, permissions);
+
+      assertThat(granted.get(), is(true));
+      assertThat(denied.get(), is(false));
+      assertThat(effective.get(),
+                 is(accessControlContext.getEffectiveResourcePermissions(accessorResource, grantedResource)));
+      assertThat(resources.get(),
+                 is(accessControlContext.getResourcesByResourcePermissions(accessorResource, resourceClassName, permissions)));
+   }
+
+   @Test
+   public void hasResourcePermissionsCoalesced_matchesHasResourcePermissions() throws Exception {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+      final Set<ResourcePermission> permissions = setOf(ResourcePermissions.getInstance(permissionName));
+      final Resource accessorResource = generateUnauthenticatableResource();
+
+      final List<Resource> accessedResources = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+         final Resource accessedResource = accessControlContext.createResource(resourceClassName,
+                                                                               domainName,
+                                                                               generateUniqueExternalId());
+         if (i % 3 == 0) {
+            accessControlContext.setResourcePermissions(accessorResource, accessedResource, permissions);
+         }
+         accessedResources.add(accessedResource);
+      }
+
+      final List<AccessControlFuture<Boolean>> futures = new ArrayList<>();
+      for (Resource accessedResource : accessedResources) {
+         futures.add(asyncAccessControlContext.hasResourcePermissionsCoalesced(accessorResource,
+                                                                               accessedResource,
+                                                                               resourceClassName,
+                                                                               permissions));
+      }
+      // a reference by external id only must resolve to the same answer
+      final Resource grantedByExternalId = Resources.getInstance(accessedResources.get(0).getExternalId());
+      final AccessControlFuture<Boolean> futureByExternalId
+            = asyncAccessControlContext.hasResourcePermissionsCoalesced(accessorResource,
+                                                                        grantedByExternalId,
+                                                                        resourceClassName,
+                                                                        permissions);
+
+      for (int i = 0; i < accessedResources.size(); i++) {
+         assertThat(futures.get(i).get(),
+                    is(accessControlContext.hasResourcePermissions(accessorResource, accessedResources.get(i), permissions)));
+      }
+      assertThat(futureByExternalId.get(), is(true));
+   }
+
+   @Test
+   public void hasResourcePermissionsCoalesced_invalidAccessedResource_shouldFailOnlyThatCheck() throws Exception {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final Set<ResourcePermission> permissions = setOf(ResourcePermissions.getInstance(permissionName));
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName,
+                                                                            generateDomain(),
+                                                                            generateUniqueExternalId());
+      accessControlContext.setResourcePermissions(accessorResource, accessedResource, permissions);
+
+      final AccessControlFuture<Boolean> validFuture
+            = asyncAccessControlContext.hasResourcePermissionsCoalesced(accessorResource,
+                                                                        accessedResource,
+                                                                        resourceClassName,
+                                                                        permissions);
+      final AccessControlFuture<Boolean> nonExistentFuture
+            = asyncAccessControlContext.hasResourcePermissionsCoalesced(accessorResource,
+                                                                        Resources.getInstance(-999L),
+                                                                        resourceClassName,
+                                                                        permissions);
+      final AccessControlFuture<Boolean> mismatchedFuture
+            = asyncAccessControlContext.hasResourcePermissionsCoalesced(accessorResource,
+                                                                        Resources.getInstance(accessedResource.getId(),
+                                                                                              generateUniqueExternalId()),
+                                                                        resourceClassName,
+                                                                        permissions);
+
+      assertThat(validFuture.get(), is(true));
+      for (AccessControlFuture<Boolean> invalidFuture : Arrays.asList(nonExistentFuture, mismatchedFuture)) {
+         try {
+            invalidFuture.get();
+            fail("checking permissions on an invalid resource reference should have failed");
+         }
+         catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+         }
+      }
+   }
+
+   @Test
+   public void submit_respectsMaxConcurrency() throws Exception {
+      final AtomicInteger runningCount = new AtomicInteger();
+      final AtomicInteger maxRunningCount = new AtomicInteger();
+      final CountDownLatch startLatch = new CountDownLatch(1);
+
+      final List<AccessControlFuture<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+         final int value = i;
+         futures.add(asyncAccessControlContext.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+               final int currentRunningCount = runningCount.incrementAndGet();
+               synchronized (maxRunningCount) {
+                  maxRunningCount.set(Math.max(maxRunningCount.get(), currentRunningCount));
+               }
+               startLatch.await(5, TimeUnit.SECONDS);
+               Thread.sleep(10);
+               runningCount.decrementAndGet();
+               return value;
+            }
+         }));
+      }
+      startLatch.countDown();
+
+      for (int i = 0; i < futures.size(); i++) {
+         assertThat(futures.get(i).get(5, TimeUnit.SECONDS), is(i));
+      }
+      assertThat(maxRunningCount.get(), lessThanOrEqualTo(MAX_CONCURRENCY));
+   }
+
+   @Test
+   public void addListener_notifiedOnCompletion() throws Exception {
+      final CountDownLatch listenerLatch = new CountDownLatch(2);
+      final AccessControlFuture<String> future = asyncAccessControlContext.submit(new Callable<String>() {
+         @Override
+         public String call() {
+            return "done";
+         }
+      });
+      final Runnable listener = new Runnable() {
+         @Override
+         public void run() {
+            listenerLatch.countDown();
+         }
+      };
+
+      future.addListener(listener, executorService);
+      assertThat(future.get(), is("done"));
+      // a listener added after completion runs right away
+      future.addListener(listener, executorService);
+
+      assertThat(listenerLatch.await(5, TimeUnit.SECONDS), is(true));
+   }
+
+   @Test
+   public void asyncAccessControlContext_propagatesFailure() throws Exception {
+      authenticateSystemResource();
+      final AccessControlFuture<Set<ResourcePermission>> future
+            = asyncAccessControlContext.getEffectiveResourcePermissions(Resources.getInstance(-999L),
+                                                                        Resources.getInstance(-998L));
+      try {
+         future.get();
+         fail("getting effective permissions for non-existent resources should have failed");
+      }
+      catch (ExecutionException e) {
+         assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+         assertThat(e.getCause().getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void newInstance_invalidArguments_shouldFail() {
+      try {
+         AsyncAccessControlContext.newInstance(null, executorService, MAX_CONCURRENCY);
+         fail("creating an async access control context without an access control context should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("access control context required"));
+      }
+      try {
+         AsyncAccessControlContext.newInstance(accessControlContext, null, MAX_CONCURRENCY);
+         fail("creating an async access control context without an executor should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("executor required"));
+      }
+      try {
+         AsyncAccessControlContext.newInstance(accessControlContext, executorService, 0);
+         fail("creating an async access control context with zero concurrency should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("max concurrency"));
+      }
+   }
+}
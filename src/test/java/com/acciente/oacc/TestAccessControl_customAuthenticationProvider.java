@@ -18,9 +18,8 @@
 package com.acciente.oacc;
 
 import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.memory.MemoryAccessControlContextFactory;
 import com.acciente.oacc.sql.SQLAccessControlContextFactory;
-import com.acciente.oacc.sql.SQLProfile;
-import com.acciente.oacc.sql.internal.SQLPasswordAuthenticationProvider;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -48,6 +47,8 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
 
    @Before
    public void setUpTest() throws Exception {
+      super.setUpTest();
+
       guestResource = generateAuthenticatableResource(GUEST_PASSWORD, generateDomain());
       adminDomain = generateDomain();
       adminResource = generateAuthenticatableResource(ADMIN_PASSWORD, adminDomain);
@@ -61,21 +62,33 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
                                                                   .getInstance(DomainPermissions.SUPER_USER)));
       systemAccessControlContext.unauthenticate();
 
-      SQLProfile sqlProfile = TestConfigLoader.getSQLProfile();
-      DataSource dataSource = TestConfigLoader.getDataSource();
-      customAccessControlContext
-            = SQLAccessControlContextFactory.getAccessControlContext(dataSource,
-                                                                     TestConfigLoader.getDatabaseSchema(),
-                                                                     sqlProfile,
-                                                                     new CustomAuthenticationProvider(dataSource,
-                                                                                                      TestConfigLoader
-                                                                                                            .getDatabaseSchema()
-                                                                     ));
+      if (TestConfigLoader.isMemoryEngine()) {
+         final AuthenticationProvider passwordAuthenticationProvider
+               = MemoryAccessControlContextFactory.getPasswordAuthenticationProvider(memoryAccessControlStore,
+                                                                                     TestConfigLoader.getPasswordEncryptor());
+         customAccessControlContext
+               = MemoryAccessControlContextFactory.getAccessControlContext(memoryAccessControlStore,
+                                                                           new CustomAuthenticationProvider(passwordAuthenticationProvider));
+      }
+      else {
+         final DataSource dataSource = TestConfigLoader.getDataSource();
+         final AuthenticationProvider passwordAuthenticationProvider
+               = SQLAccessControlContextFactory.getPasswordAuthenticationProvider(dataSource,
+                                                                                  TestConfigLoader.getDatabaseSchema(),
+                                                                                  TestConfigLoader.getPasswordEncryptor());
+         customAccessControlContext
+               = SQLAccessControlContextFactory.getAccessControlContext(dataSource,
+                                                                        TestConfigLoader.getDatabaseSchema(),
+                                                                        TestConfigLoader.getSQLProfile(),
+                                                                        new CustomAuthenticationProvider(passwordAuthenticationProvider));
+      }
    }
 
    @After
    public void tearDownTest() throws Exception {
-      customAccessControlContext.unauthenticate(); // because it doesn't hurt, in case we authenticated during a test
+      if (customAccessControlContext != null) {
+         customAccessControlContext.unauthenticate(); // because it doesn't hurt, in case we authenticated during a test
+      }
    }
 
    @Test
@@ -219,9 +232,12 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
       }
    }
 
-   private static class CustomAuthenticationProvider extends SQLPasswordAuthenticationProvider {
-      private CustomAuthenticationProvider(DataSource dataSource, String schemaName) {
-         super(dataSource, schemaName, TestConfigLoader.getPasswordEncryptor());
+   // customizes the built-in password authentication provider of the engine under test, by delegating to it
+   private static class CustomAuthenticationProvider implements AuthenticationProvider {
+      private final AuthenticationProvider passwordAuthenticationProvider;
+
+      private CustomAuthenticationProvider(AuthenticationProvider passwordAuthenticationProvider) {
+         this.passwordAuthenticationProvider = passwordAuthenticationProvider;
       }
 
       @Override
@@ -230,19 +246,19 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
             throw new IllegalArgumentException("system resource authentication is not supported");
          }
 
-         super.authenticate(resource, credentials);
+         passwordAuthenticationProvider.authenticate(resource, credentials);
       }
 
       @Override
       public void authenticate(Resource resource) {
          if (guestResource != null && guestResource.equals(resource)) {
-            super.authenticate(guestResource, PasswordCredentials.newInstance(GUEST_PASSWORD));
+            passwordAuthenticationProvider.authenticate(guestResource, PasswordCredentials.newInstance(GUEST_PASSWORD));
          }
          else if (SYS_RESOURCE.equals(resource)) {
             throw new IllegalArgumentException("system resource authentication is not supported");
          }
          else {
-            super.authenticate(resource);
+            passwordAuthenticationProvider.authenticate(resource);
          }
       }
 
@@ -255,8 +271,8 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
                throw new IllegalArgumentException("Invalid token contents");
             }
 
-            super.authenticate(tokenCredentials.getResourceId(),
-                  PasswordCredentials.newInstance(tokenCredentials.getPassword()));
+            passwordAuthenticationProvider.authenticate(tokenCredentials.getResourceId(),
+                                                        PasswordCredentials.newInstance(tokenCredentials.getPassword()));
 
             return tokenCredentials.getResourceId();
          }
@@ -266,7 +282,7 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
 
       @Override
       public void validateCredentials(String resourceClassName, String domainName, Credentials credentials) {
-         // unlike super.validateCredentials(), our custom validator passes if credentials are null
+         // unlike the built-in validator, our custom validator passes if credentials are null
          if (credentials != null) {
             if (! (credentials instanceof PasswordCredentials)) {
                throw new InvalidCredentialsException(
@@ -280,7 +296,7 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
                      "password does not meet minimum length criteria (" + strictMinPasswordLength + ")");
             }
 
-            super.validateCredentials(resourceClassName, domainName, credentials);
+            passwordAuthenticationProvider.validateCredentials(resourceClassName, domainName, credentials);
          }
       }
 
@@ -293,7 +309,7 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
             throw new IllegalArgumentException("setting credentials of guest resource is not supported");
          }
 
-         super.setCredentials(resource, credentials);
+         passwordAuthenticationProvider.setCredentials(resource, credentials);
       }
 
       @Override
@@ -305,7 +321,7 @@ public class TestAccessControl_customAuthenticationProvider extends TestAccessCo
             throw new IllegalArgumentException("deleting credentials of guest resource is not supported");
          }
 
-         super.deleteCredentials(resource);
+         passwordAuthenticationProvider.deleteCredentials(resource);
       }
    }
 
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.internal.persister.SQLStrings;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestAccessControl_deleteResources extends TestAccessControlBase {
+   @Test
+   public void deleteResources_validAsSystemResource() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission inheritPermission = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
+      final ResourcePermission customPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+
+      // create more resources than fit into a single batch, with permissions between them
+      final List<Resource> obsoleteResources = new ArrayList<>();
+      for (int i = 0; i < SQLStrings.IN_LIST_SIZE + 10; i++) {
+         obsoleteResources.add(accessControlContext.createResource(resourceClassName, domainName));
+      }
+      final Resource survivingResource = accessControlContext.createResource(resourceClassName, domainName);
+      accessControlContext.grantResourcePermissions(survivingResource, obsoleteResources.get(0), inheritPermission);
+      accessControlContext.grantResourcePermissions(obsoleteResources.get(SQLStrings.IN_LIST_SIZE + 5),
+                                                    survivingResource,
+                                                    inheritPermission);
+      accessControlContext.grantGlobalResourcePermissions(obsoleteResources.get(1),
+                                                          resourceClassName,
+                                                          domainName,
+                                                          customPermission);
+
+      // delete resources and verify
+      assertThat(accessControlContext.deleteResources(obsoleteResources), is(obsoleteResources.size()));
+
+      assertThat(accessControlContext.getResourcesByResourcePermissions(SYS_RESOURCE,
+                                                                        resourceClassName,
+                                                                        inheritPermission),
+                 is(setOf(survivingResource)));
+      assertThat(accessControlContext.getAccessorResourcesByResourcePermissions(survivingResource,
+                                                                                resourceClassName,
+                                                                                inheritPermission).isEmpty(),
+                 is(true));
+      for (Resource obsoleteResource : Arrays.asList(obsoleteResources.get(0),
+                                                     obsoleteResources.get(SQLStrings.IN_LIST_SIZE + 9))) {
+         try {
+            accessControlContext.getDomainNameByResource(obsoleteResource);
+            fail("getting domain name for resource after deletion should have failed");
+         }
+         catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+         }
+      }
+   }
+
+   @Test
+   public void deleteResources_repeatedAndNonExistentReferences_shouldSkip() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String externalId = generateUniqueExternalId();
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName, externalId);
+      final Resource otherResource = accessControlContext.createResource(resourceClassName, domainName);
+
+      // the same resource referenced by id and by external id only counts once
+      assertThat(accessControlContext.deleteResources(Arrays.asList(Resources.getInstance(resource.getId()),
+                                                                    Resources.getInstance(externalId),
+                                                                    Resources.getInstance(-999L),
+                                                                    Resources.getInstance("invalid"),
+                                                                    otherResource)),
+                 is(2));
+
+      assertThat(accessControlContext.deleteResources(Arrays.asList(Resources.getInstance(resource.getId()),
+                                                                    otherResource)),
+                 is(0));
+      assertThat(accessControlContext.deleteResources(Collections.<Resource>emptyList()), is(0));
+   }
+
+   @Test
+   public void deleteResources_authenticatedResource_shouldSucceed() {
+      authenticateSystemResource();
+
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(true, false);
+
+      final char[] password = generateUniquePassword();
+      final Resource authenticatedResource
+            = accessControlContext.createResource(resourceClassName,
+                                                  domainName,
+                                                  PasswordCredentials.newInstance(password));
+      final Resource otherResource = accessControlContext.createResource(resourceClassName,
+                                                                         domainName,
+                                                                         PasswordCredentials.newInstance(password));
+      accessControlContext.setResourcePermissions(authenticatedResource,
+                                                  authenticatedResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE)));
+      accessControlContext.setResourcePermissions(authenticatedResource,
+                                                  otherResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE)));
+
+      // authenticate, delete resources and verify
+      accessControlContext.authenticate(authenticatedResource, PasswordCredentials.newInstance(password));
+      assertThat(accessControlContext.deleteResources(Arrays.asList(otherResource, authenticatedResource)), is(2));
+
+      try {
+         accessControlContext.getSessionResource();
+         fail("getting the session resource after deleting the authenticated resource should have failed");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("session not authenticated"));
+      }
+
+      // verify the credentials were removed as well
+      try {
+         accessControlContext.authenticate(otherResource, PasswordCredentials.newInstance(password));
+         fail("authenticating as a deleted resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void deleteResources_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      try {
+         accessControlContext.deleteResources(null);
+         fail("deleting resources with null collection should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resources required"));
+      }
+      try {
+         accessControlContext.deleteResources(Arrays.asList(SYS_RESOURCE, null));
+         fail("deleting resources with null element should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("contains null element"));
+      }
+   }
+
+   @Test
+   public void deleteResources_partiallyAuthorized_shouldFailWithoutDeleting() {
+      final Resource obsoleteResource = generateUnauthenticatableResource();
+      final Resource unauthorizedResource = generateUnauthenticatableResource();
+      final Resource accessorResource = generateAuthenticatableResource(generateUniquePassword());
+      systemAccessControlContext.grantResourcePermissions(accessorResource,
+                                                          obsoleteResource,
+                                                          ResourcePermissions.getInstance(ResourcePermissions.DELETE));
+      final Resource resource = generateResourceAndAuthenticate();
+      systemAccessControlContext.grantResourcePermissions(resource,
+                                                          obsoleteResource,
+                                                          ResourcePermissions.getInstance(ResourcePermissions.DELETE));
+
+      // attempt to delete resources, one of which without authorization
+      try {
+         accessControlContext.deleteResources(Arrays.asList(obsoleteResource, unauthorizedResource));
+         fail("deleting resources without authorization should fail");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(resource).toLowerCase()
+                                                                       + " is not authorized to delete resource"));
+      }
+
+      // verify that the authorized resource was not deleted either
+      authenticateSystemResource();
+      assertThat(accessControlContext.getResourcePermissions(accessorResource, obsoleteResource),
+                 is(setOf(ResourcePermissions.getInstance(ResourcePermissions.DELETE))));
+   }
+
+   @Test
+   public void deleteResources_authorizedDirectlyInheritedAndGlobally_shouldSucceed() {
+      final ResourcePermission deletePermission = ResourcePermissions.getInstance(ResourcePermissions.DELETE);
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String globalResourceClassName = generateResourceClass(false, false);
+      final Resource directlyAuthorizedResource = systemAccessControlContext.createResource(resourceClassName, domainName);
+      final Resource inheritedAuthorizedResource = systemAccessControlContext.createResource(resourceClassName, domainName);
+      final List<Resource> globallyAuthorizedResources
+            = Arrays.asList(systemAccessControlContext.createResource(globalResourceClassName, domainName),
+                            systemAccessControlContext.createResource(globalResourceClassName, domainName));
+      final Resource donorResource = generateUnauthenticatableResource();
+      systemAccessControlContext.grantResourcePermissions(donorResource, inheritedAuthorizedResource, deletePermission);
+
+      final Resource resource = generateResourceAndAuthenticate();
+      systemAccessControlContext.grantResourcePermissions(resource, directlyAuthorizedResource, deletePermission);
+      systemAccessControlContext.grantResourcePermissions(resource,
+                                                          donorResource,
+                                                          ResourcePermissions.getInstance(ResourcePermissions.INHERIT));
+      systemAccessControlContext.grantGlobalResourcePermissions(resource,
+                                                                globalResourceClassName,
+                                                                domainName,
+                                                                deletePermission);
+
+      // delete resources and verify
+      final List<Resource> obsoleteResources = new ArrayList<>(globallyAuthorizedResources);
+      obsoleteResources.add(directlyAuthorizedResource);
+      obsoleteResources.add(inheritedAuthorizedResource);
+      assertThat(accessControlContext.deleteResources(obsoleteResources), is(obsoleteResources.size()));
+
+      authenticateSystemResource();
+      assertThat(accessControlContext.getResourcesByResourcePermissions(SYS_RESOURCE,
+                                                                        resourceClassName,
+                                                                        deletePermission).isEmpty(),
+                 is(true));
+      assertThat(accessControlContext.getResourcesByResourcePermissions(SYS_RESOURCE,
+                                                                        globalResourceClassName,
+                                                                        deletePermission).isEmpty(),
+                 is(true));
+   }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_getAccessorResourcesByResourcePermissionsPaged extends TestAccessControlBase {
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_direct_validAsSystemResource() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String otherPermissionName = generateResourceClassPermission(resourceClassName);
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      // grant both permissions to some accessors, and only one of them to others
+      final List<Resource> expectedAccessors = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+         final Resource accessorResource = generateUnauthenticatableResource();
+         if (i % 4 == 0) {
+            accessControlContext.setResourcePermissions(accessorResource,
+                                                        accessedResource,
+                                                        setOf(ResourcePermissions.getInstance(permissionName)));
+         }
+         else {
+            accessControlContext.setResourcePermissions(accessorResource,
+                                                        accessedResource,
+                                                        setOf(ResourcePermissions.getInstance(permissionName),
+                                                              ResourcePermissions.getInstance(otherPermissionName)));
+            expectedAccessors.add(accessorResource);
+         }
+      }
+      sortById(expectedAccessors);
+
+      // verify
+      final Set<ResourcePermission> resourcePermissions = setOf(ResourcePermissions.getInstance(permissionName),
+                                                                ResourcePermissions.getInstance(otherPermissionName));
+      final List<Resource> pagedAccessors = new ArrayList<>();
+      Resource afterAccessorResource = null;
+      List<Resource> page;
+      do {
+         page = accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                    resourcePermissions,
+                                                                                    false,
+                                                                                    afterAccessorResource,
+                                                                                    5);
+         assertThat(page.size() <= 5, is(true));
+         pagedAccessors.addAll(page);
+         if (!page.isEmpty()) {
+            afterAccessorResource = page.get(page.size() - 1);
+         }
+      } while (page.size() == 5);
+
+      assertThat(pagedAccessors, is(expectedAccessors));
+      assertThat(new HashSet<>(pagedAccessors),
+                 is(accessControlContext.getAccessorResourcesByResourcePermissions(accessedResource,
+                                                                                  resourceClassName,
+                                                                                  resourcePermissions)));
+
+      // a page can also start after an accessor that does not have the permissions
+      final Resource unrelatedResource = generateUnauthenticatableResource();
+      final List<Resource> remainingAccessors = new ArrayList<>();
+      for (Resource expectedAccessor : expectedAccessors) {
+         if (expectedAccessor.getId() > unrelatedResource.getId()) {
+            remainingAccessors.add(expectedAccessor);
+         }
+      }
+      assertThat(accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                     resourcePermissions,
+                                                                                     false,
+                                                                                     unrelatedResource,
+                                                                                     100),
+                 is(remainingAccessors));
+   }
+
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_indirect_validAsSystemResource() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final String parentDomain = generateDomain();
+      final String childDomain = generateChildDomain(parentDomain);
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, childDomain);
+      final Set<ResourcePermission> resourcePermissions = setOf(ResourcePermissions.getInstance(permissionName));
+      final ResourcePermission inheritPermission = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
+
+      // a role with a direct permission, and its transitive members
+      final Resource roleResource = generateUnauthenticatableResource();
+      final Resource memberResource = generateUnauthenticatableResource();
+      final Resource nestedMemberResource = generateUnauthenticatableResource();
+      accessControlContext.setResourcePermissions(roleResource, accessedResource, resourcePermissions);
+      accessControlContext.setResourcePermissions(memberResource, roleResource, setOf(inheritPermission));
+      accessControlContext.setResourcePermissions(nestedMemberResource, memberResource, setOf(inheritPermission));
+
+      // an accessor with a global permission on the parent domain, and a super-user of the parent domain with a member
+      final Resource globalResource = generateUnauthenticatableResource();
+      final Resource superUserResource = generateUnauthenticatableResource();
+      final Resource superUserMemberResource = generateUnauthenticatableResource();
+      accessControlContext.setGlobalResourcePermissions(globalResource,
+                                                        resourceClassName,
+                                                        parentDomain,
+                                                        resourcePermissions);
+      accessControlContext.setDomainPermissions(superUserResource,
+                                                parentDomain,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+      accessControlContext.setResourcePermissions(superUserMemberResource, superUserResource, setOf(inheritPermission));
+
+      // accessors without the permission
+      final Resource unrelatedResource = generateUnauthenticatableResource();
+      accessControlContext.setResourcePermissions(unrelatedResource,
+                                                  accessControlContext.createResource(resourceClassName, childDomain),
+                                                  resourcePermissions);
+      accessControlContext.setResourcePermissions(roleResource, unrelatedResource, setOf(inheritPermission));
+
+      // verify
+      assertThat(accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                     resourcePermissions,
+                                                                                     false,
+                                                                                     null,
+                                                                                     10),
+                 is(Collections.singletonList(roleResource)));
+
+      // the system resource created the parent domain, and is thus a super-user of it, as well
+      final List<Resource> expectedAccessors = new ArrayList<>();
+      Collections.addAll(expectedAccessors,
+                         SYS_RESOURCE,
+                         roleResource,
+                         memberResource,
+                         nestedMemberResource,
+                         globalResource,
+                         superUserResource,
+                         superUserMemberResource);
+      sortById(expectedAccessors);
+      final List<Resource> indirectAccessors
+            = accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                  resourcePermissions,
+                                                                                  true,
+                                                                                  null,
+                                                                                  10);
+      assertThat(indirectAccessors, is(expectedAccessors));
+      for (Resource indirectAccessor : indirectAccessors) {
+         assertThat(accessControlContext.hasResourcePermissions(indirectAccessor, accessedResource, resourcePermissions),
+                    is(true));
+      }
+
+      // a permission with the grant option is only held via grants with the grant option, or as super-user
+      final List<Resource> expectedGrantingAccessors = new ArrayList<>();
+      Collections.addAll(expectedGrantingAccessors, SYS_RESOURCE, superUserResource, superUserMemberResource);
+      assertThat(accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                     setOf(ResourcePermissions
+                                                                                                 .getInstanceWithGrantOption(permissionName)),
+                                                                                     true,
+                                                                                     null,
+                                                                                     10),
+                 is(expectedGrantingAccessors));
+   }
+
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_indirectWithSeveralPermissions_validAsSystemResource() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final ResourcePermission permission = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final ResourcePermission otherPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      final String domainName = generateDomain();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+      final ResourcePermission inheritPermission = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
+
+      // a role with both permissions, and another role with only one of them, each with members that were created
+      // in alternating order, so that the accessors with both permissions are spread over the id range
+      final Resource roleResource = generateUnauthenticatableResource();
+      final Resource partialRoleResource = generateUnauthenticatableResource();
+      accessControlContext.setResourcePermissions(roleResource, accessedResource, setOf(permission, otherPermission));
+      accessControlContext.setResourcePermissions(partialRoleResource, accessedResource, setOf(permission));
+      final List<Resource> expectedAccessors = new ArrayList<>();
+      Collections.addAll(expectedAccessors, SYS_RESOURCE, roleResource);
+      for (int i = 0; i < 12; i++) {
+         final Resource memberResource = generateUnauthenticatableResource();
+         if (i % 3 == 0) {
+            accessControlContext.setResourcePermissions(memberResource, roleResource, setOf(inheritPermission));
+            expectedAccessors.add(memberResource);
+         }
+         else {
+            accessControlContext.setResourcePermissions(memberResource, partialRoleResource, setOf(inheritPermission));
+         }
+      }
+      sortById(expectedAccessors);
+
+      // verify
+      final List<Resource> pagedAccessors = new ArrayList<>();
+      Resource afterAccessorResource = null;
+      List<Resource> page;
+      do {
+         page = accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                    setOf(permission, otherPermission),
+                                                                                    true,
+                                                                                    afterAccessorResource,
+                                                                                    2);
+         assertThat(page.size() <= 2, is(true));
+         pagedAccessors.addAll(page);
+         if (!page.isEmpty()) {
+            afterAccessorResource = page.get(page.size() - 1);
+         }
+      } while (page.size() == 2);
+
+      assertThat(pagedAccessors, is(expectedAccessors));
+   }
+
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_afterDeletedAccessor_shouldContinue() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Set<ResourcePermission> resourcePermissions
+            = setOf(ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName)));
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+      final List<Resource> accessorResources = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+         final Resource accessorResource = generateUnauthenticatableResource();
+         accessControlContext.setResourcePermissions(accessorResource, accessedResource, resourcePermissions);
+         accessorResources.add(accessorResource);
+      }
+      sortById(accessorResources);
+
+      final List<Resource> firstPage
+            = accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                  resourcePermissions,
+                                                                                  false,
+                                                                                  null,
+                                                                                  2);
+      assertThat(firstPage, is(accessorResources.subList(0, 2)));
+
+      // delete the last accessor of the first page, and continue after it
+      accessControlContext.deleteResource(firstPage.get(1));
+
+      assertThat(accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                     resourcePermissions,
+                                                                                     false,
+                                                                                     firstPage.get(1),
+                                                                                     2),
+                 is(accessorResources.subList(2, 4)));
+      assertThat(accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                                     resourcePermissions,
+                                                                                     false,
+                                                                                     Resources.getInstance(firstPage.get(1)
+                                                                                                                 .getId()),
+                                                                                     2),
+                 is(accessorResources.subList(2, 4)));
+   }
+
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_withoutQueryAuthorization_shouldFailAsAuthenticated() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      generateResourceAndAuthenticate();
+
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                             setOf(ResourcePermissions
+                                                                                         .getInstance(ResourcePermissions.INHERIT)),
+                                                                             true,
+                                                                             null,
+                                                                             10);
+         fail("getting paged accessor resources without query authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not authorized to query resource"));
+      }
+   }
+
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_nulls_shouldFail() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+      final Set<ResourcePermission> resourcePermissions
+            = setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT));
+
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(null, resourcePermissions, true, null, 10);
+         fail("getting paged accessor resources with null accessed resource should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource required"));
+      }
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource, null, true, null, 10);
+         fail("getting paged accessor resources with null permission set should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permissions required"));
+      }
+   }
+
+   @Test
+   public void getAccessorResourcesByResourcePermissionsPaged_invalidArguments_shouldFail() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+      final Set<ResourcePermission> resourcePermissions
+            = setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT));
+
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                             resourcePermissions,
+                                                                             true,
+                                                                             null,
+                                                                             0);
+         fail("getting paged accessor resources with a page size of zero should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("page size"));
+      }
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                             Collections.<ResourcePermission>emptySet(),
+                                                                             true,
+                                                                             null,
+                                                                             10);
+         fail("getting paged accessor resources with an empty permission set should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("permissions required"));
+      }
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                             setOf(ResourcePermissions
+                                                                                         .getInstance("invalid_permission")),
+                                                                             true,
+                                                                             null,
+                                                                             10);
+         fail("getting paged accessor resources with an invalid permission should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not defined for resource class"));
+      }
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(accessedResource,
+                                                                             resourcePermissions,
+                                                                             true,
+                                                                             Resources.getInstance(generateUniqueExternalId()),
+                                                                             10);
+         fail("getting paged accessor resources after a non-existent external id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   private static void sortById(List<Resource> resources) {
+      Collections.sort(resources, new Comparator<Resource>() {
+         @Override
+         public int compare(Resource resource1, Resource resource2) {
+            return resource1.getId().compareTo(resource2.getId());
+         }
+      });
+   }
+}
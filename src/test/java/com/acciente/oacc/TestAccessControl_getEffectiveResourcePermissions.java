@@ -17,15 +17,22 @@
  */
 package com.acciente.oacc;
 
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLAccessControlContextOptions;
+import com.acciente.oacc.sql.SQLReadCoalescer;
 import org.junit.Test;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
 
 public class TestAccessControl_getEffectiveResourcePermissions extends TestAccessControlBase {
    @Test
@@ -122,6 +129,112 @@ public class TestAccessControl_getEffectiveResourcePermissions extends TestAcces
       assertThat(permissions_post, is(permissions_pre));
    }
 
+   @Test
+   public void getEffectiveResourcePermissions_withQueryExecutorService() {
+      assumeFalse("the query executor runs SQL queries in parallel; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String directPermissionName = generateResourceClassPermission(resourceClassName);
+      final String globalPermissionName = generateResourceClassPermission(resourceClassName);
+      final String inheritedPermissionName = generateResourceClassPermission(resourceClassName);
+      final String domainName = generateDomain();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource donorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, domainName);
+
+      // setup direct, global and inherited permissions
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  accessedResource,
+                                                  setOf(ResourcePermissions.getInstance(directPermissionName)));
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        domainName,
+                                                        setOf(ResourcePermissions.getInstance(globalPermissionName)));
+      accessControlContext.setResourcePermissions(donorResource,
+                                                  accessedResource,
+                                                  setOf(ResourcePermissions.getInstance(inheritedPermissionName)));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  donorResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+
+      final Set<ResourcePermission> expectedPermissions
+            = setOf(ResourcePermissions.getInstance(directPermissionName),
+                    ResourcePermissions.getInstance(globalPermissionName),
+                    ResourcePermissions.getInstance(inheritedPermissionName));
+
+      // verify with a context that runs the independent lookups concurrently
+      final ExecutorService queryExecutorService = Executors.newFixedThreadPool(4);
+      try {
+         final AccessControlContext concurrentAccessControlContext
+               = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                        TestConfigLoader.getDatabaseSchema(),
+                                                                        TestConfigLoader.getSQLProfile(),
+                                                                        TestConfigLoader.getPasswordEncryptor(),
+                                                                        SQLAccessControlContextOptions.newInstance()
+                                                                              .withExecutor(queryExecutorService));
+         concurrentAccessControlContext.authenticate(getSystemResource(),
+                                                     PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+
+         assertThat(concurrentAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                    is(expectedPermissions));
+         assertThat(concurrentAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                    is(accessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource)));
+      }
+      finally {
+         queryExecutorService.shutdown();
+      }
+   }
+
+   @Test
+   public void getEffectiveResourcePermissions_withReadCoalescer() {
+      assumeFalse("the read coalescer shares SQL lookups between contexts; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final Set<ResourcePermission> permissions = setOf(ResourcePermissions.getInstance(permissionName));
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      // setup two contexts that coalesce their lookups
+      final SQLReadCoalescer readCoalescer = SQLReadCoalescer.newInstance();
+      final AccessControlContext readingAccessControlContext = getCoalescingAccessControlContext(readCoalescer);
+      final AccessControlContext writingAccessControlContext = getCoalescingAccessControlContext(readCoalescer);
+
+      assertThat(readingAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource).isEmpty(),
+                 is(true));
+
+      // verify that a lookup after a modification through another sharing context reflects the modification
+      writingAccessControlContext.setResourcePermissions(accessorResource, accessedResource, permissions);
+      assertThat(readingAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                 is(permissions));
+      assertThat(readingAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permissions),
+                 is(true));
+
+      // verify that the returned set is not shared
+      readingAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource).clear();
+      assertThat(readingAccessControlContext.getEffectiveResourcePermissions(accessorResource, accessedResource),
+                 is(permissions));
+   }
+
+   private static AccessControlContext getCoalescingAccessControlContext(SQLReadCoalescer readCoalescer) {
+      final AccessControlContext coalescingAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile(),
+                                                                     TestConfigLoader.getPasswordEncryptor(),
+                                                                     SQLAccessControlContextOptions.newInstance()
+                                                                           .withReadCoalescer(readCoalescer));
+      coalescingAccessControlContext.authenticate(getSystemResource(),
+                                                  PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return coalescingAccessControlContext;
+   }
+
    @Test
    public void getEffectiveResourcePermissions_validWithDirect() {
       authenticateSystemResource();
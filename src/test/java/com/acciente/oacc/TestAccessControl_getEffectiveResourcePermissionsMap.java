@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.internal.persister.SQLStrings;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestAccessControl_getEffectiveResourcePermissionsMap extends TestAccessControlBase {
+   @Test
+   public void getEffectiveResourcePermissionsMap_validAsSystemResource() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String directPermissionName = generateResourceClassPermission(resourceClassName);
+      final String inheritedPermissionName = generateResourceClassPermission(resourceClassName);
+      final String globalPermissionName = generateResourceClassPermission(resourceClassName);
+      final String parentDomain = generateDomain();
+      final String childDomain = generateChildDomain(parentDomain);
+      final String otherDomain = generateDomain();
+
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource donorResource = generateUnauthenticatableResource();
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  donorResource,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        resourceClassName,
+                                                        parentDomain,
+                                                        setOf(ResourcePermissions.getInstance(globalPermissionName)));
+
+      // create more resources than fit into a single batch, across domains, with direct and inherited permissions
+      final List<Resource> accessedResources = new ArrayList<>();
+      for (int i = 0; i < SQLStrings.IN_LIST_SIZE + 10; i++) {
+         final String domainName = i % 3 == 0 ? otherDomain : (i % 3 == 1 ? parentDomain : childDomain);
+         final Resource accessedResource = accessControlContext.createResource(resourceClassName,
+                                                                               domainName,
+                                                                               generateUniqueExternalId());
+         if (i % 2 == 0) {
+            accessControlContext.setResourcePermissions(accessorResource,
+                                                        accessedResource,
+                                                        setOf(ResourcePermissions.getInstance(directPermissionName)));
+         }
+         if (i % 5 == 0) {
+            accessControlContext.setResourcePermissions(donorResource,
+                                                        accessedResource,
+                                                        setOf(ResourcePermissions.getInstanceWithGrantOption(inheritedPermissionName)));
+         }
+         accessedResources.add(accessedResource);
+      }
+
+      // references by external id and repeated references should be mapped as they were specified
+      final Resource externalIdReference = Resources.getInstance(accessedResources.get(1).getExternalId());
+      final List<Resource> references = new ArrayList<>(accessedResources);
+      references.add(externalIdReference);
+      references.add(accessorResource);
+
+      // verify
+      final Map<Resource, Set<ResourcePermission>> permissionsMap
+            = accessControlContext.getEffectiveResourcePermissionsMap(accessorResource, references);
+      assertThat(new ArrayList<>(permissionsMap.keySet()), is(references));
+      for (Resource reference : references) {
+         assertThat(permissionsMap.get(reference),
+                    is(accessControlContext.getEffectiveResourcePermissions(accessorResource, reference)));
+      }
+      assertThat(permissionsMap.get(accessedResources.get(0)),
+                 is(setOf(ResourcePermissions.getInstance(directPermissionName),
+                          ResourcePermissions.getInstanceWithGrantOption(inheritedPermissionName))));
+      assertThat(permissionsMap.get(accessedResources.get(2)),
+                 is(setOf(ResourcePermissions.getInstance(directPermissionName),
+                          ResourcePermissions.getInstance(globalPermissionName))));
+      assertThat(permissionsMap.get(externalIdReference), is(setOf(ResourcePermissions.getInstance(globalPermissionName))));
+      assertThat(permissionsMap.get(accessorResource).isEmpty(), is(true));
+
+      assertThat(accessControlContext.getEffectiveResourcePermissionsMap(accessorResource,
+                                                                         Collections.<Resource>emptyList()).isEmpty(),
+                 is(true));
+   }
+
+   @Test
+   public void getEffectiveResourcePermissionsMap_superUser_validAsSystemResource() {
+      authenticateSystemResource();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String customPermissionName = generateResourceClassPermission(resourceClassName);
+      final String superUserDomain = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource superUserResource = accessControlContext.createResource(resourceClassName, superUserDomain);
+      final Resource otherResource = accessControlContext.createResource(resourceClassName, generateDomain());
+
+      accessControlContext.setDomainPermissions(accessorResource,
+                                                superUserDomain,
+                                                setOf(DomainPermissions.getInstance(DomainPermissions.SUPER_USER)));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  superUserResource,
+                                                  setOf(ResourcePermissions.getInstance(customPermissionName)));
+      accessControlContext.setResourcePermissions(accessorResource,
+                                                  otherResource,
+                                                  setOf(ResourcePermissions.getInstance(customPermissionName)));
+
+      // verify
+      final Map<Resource, Set<ResourcePermission>> permissionsMap
+            = accessControlContext.getEffectiveResourcePermissionsMap(accessorResource,
+                                                                      Arrays.asList(superUserResource, otherResource));
+      assertThat(permissionsMap.get(superUserResource),
+                 is(setOf(ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.DELETE),
+                          ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.INHERIT),
+                          ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.QUERY),
+                          ResourcePermissions.getInstanceWithGrantOption(customPermissionName))));
+      assertThat(permissionsMap.get(otherResource), is(setOf(ResourcePermissions.getInstance(customPermissionName))));
+   }
+
+   @Test
+   public void getEffectiveResourcePermissionsMap_withoutQueryAuthorization_shouldFailAsAuthenticated() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = generateUnauthenticatableResource();
+
+      generateResourceAndAuthenticate();
+
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(accessorResource, Arrays.asList(accessedResource));
+         fail("getting effective resource permissions map without query authorization should have failed");
+      }
+      catch (NotAuthorizedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("is not authorized to query resource"));
+      }
+   }
+
+   @Test
+   public void getEffectiveResourcePermissionsMap_nulls_shouldFail() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = generateUnauthenticatableResource();
+
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(null, Arrays.asList(accessedResource));
+         fail("getting effective resource permissions map with null accessor resource should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resource required"));
+      }
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(accessorResource, null);
+         fail("getting effective resource permissions map with null accessed resources should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resources required"));
+      }
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(accessorResource, Arrays.asList(accessedResource, null));
+         fail("getting effective resource permissions map with null accessed resource element should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("contains null element"));
+      }
+   }
+
+   @Test
+   public void getEffectiveResourcePermissionsMap_nonExistentReferences_shouldFail() {
+      authenticateSystemResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = generateUnauthenticatableResource();
+      final Resource invalidResource = Resources.getInstance(-999L);
+
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(invalidResource, Arrays.asList(accessedResource));
+         fail("getting effective resource permissions map with invalid accessor resource reference should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(invalidResource).toLowerCase() + " not found"));
+      }
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(accessorResource,
+                                                                 Arrays.asList(accessedResource, invalidResource));
+         fail("getting effective resource permissions map with invalid accessed resource reference should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString(String.valueOf(invalidResource).toLowerCase() + " not found"));
+      }
+   }
+}
@@ -1184,6 +1184,74 @@ public class TestAccessControl_getResourcesByResourcePermissionsAndDomain extend
       assertThat(resourcesByAuthenticatedAccessorAndPermissionAndChildDomain1, is(expectedResources_childDomain1));
    }
 
+   @Test
+   public void getResourcesByResourcePermissionsAndDomain_domainInherited_severalSubDomains_validAsAuthenticated() {
+      authenticateSystemResource();
+
+      final char[] password = generateUniquePassword();
+      final Resource accessorResource = generateAuthenticatableResource(password);
+
+      final String parentDomain = generateDomain();
+      final String childDomain1 = generateChildDomain(parentDomain);
+      final String grandChildDomain1 = generateChildDomain(childDomain1);
+      final String childDomain2 = generateChildDomain(parentDomain);
+      final String childDomain3 = generateChildDomain(parentDomain);
+      final String queriedResourceClass = generateResourceClass(false, false);
+      final ResourcePermission queriedPermission
+            = ResourcePermissions.getInstance(generateResourceClassPermission(queriedResourceClass));
+      final ResourcePermission queriedSysPermission = ResourcePermissions.getInstance(ResourcePermissions.DELETE);
+      accessControlContext.createResource(queriedResourceClass, parentDomain);
+      accessControlContext.createResource(queriedResourceClass, childDomain1);
+      final Resource resource_grandChildDomain1 = accessControlContext.createResource(queriedResourceClass, grandChildDomain1);
+      final Resource resource_childDomain2 = accessControlContext.createResource(queriedResourceClass, childDomain2);
+      accessControlContext.createResource(queriedResourceClass, childDomain3);
+
+      // set global permissions on two sub-domains of the queried domain that are at different levels
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        queriedResourceClass,
+                                                        grandChildDomain1,
+                                                        setOf(queriedPermission, queriedSysPermission));
+      accessControlContext.setGlobalResourcePermissions(accessorResource,
+                                                        queriedResourceClass,
+                                                        childDomain2,
+                                                        setOf(queriedPermission, queriedSysPermission));
+
+      // verify as system resource
+      final Set<Resource> expectedResources = setOf(resource_grandChildDomain1, resource_childDomain2);
+
+      assertThat(accessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                 queriedResourceClass,
+                                                                                 parentDomain,
+                                                                                 queriedPermission),
+                 is(expectedResources));
+      assertThat(accessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                 queriedResourceClass,
+                                                                                 parentDomain,
+                                                                                 queriedSysPermission),
+                 is(expectedResources));
+      assertThat(accessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                 queriedResourceClass,
+                                                                                 childDomain1,
+                                                                                 queriedPermission,
+                                                                                 queriedSysPermission),
+                 is(setOf(resource_grandChildDomain1)));
+
+      // authenticate as accessor and verify
+      accessControlContext.authenticate(accessorResource, PasswordCredentials.newInstance(password));
+
+      assertThat(accessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                 queriedResourceClass,
+                                                                                 parentDomain,
+                                                                                 queriedPermission,
+                                                                                 queriedSysPermission),
+                 is(expectedResources));
+      assertThat(accessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                 queriedResourceClass,
+                                                                                 childDomain3,
+                                                                                 queriedPermission),
+                 is(Collections.<Resource>emptySet()));
+   }
+
    @Test
    public void getResourcesByResourcePermissionsAndDomain_domainInherited_systemPermission_validAsAuthenticated() {
       authenticateSystemResource();
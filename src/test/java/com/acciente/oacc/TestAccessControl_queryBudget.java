@@ -0,0 +1,346 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
+import com.acciente.oacc.helper.StatementCountingDataSource;
+import com.acciente.oacc.helper.TestConfig;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLAccessControlContextOptions;
+import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.SQLResourceIndex;
+import com.acciente.oacc.sql.SQLResourceLocatorCache;
+import com.acciente.oacc.sql.SQLSuperUserDomainCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.runners.Parameterized.Parameter;
+import static org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Guards the number of SQL statements executed by the main query paths, so that refactorings cannot silently add
+ * database round trips.
+ * <p/>
+ * Each test sets up an authenticated (non-super-user) session resource that inherits its permissions through a chain
+ * of role resources, and an accessed resource in a domain at a specific depth of a domain hierarchy, and then asserts
+ * an upper bound on the statements executed by a single API call. For SQL profiles with recursive CTEs the bound is a
+ * constant, while for the non-recursive profiles it grows with the length of the inheritance chain and the depth of
+ * the domain hierarchy, because those are walked one level per statement.
+ * <p/>
+ * Unlike the other tests, this test does not use the database selected with the <code>dbconfig</code> system property,
+ * but always runs against the embedded databases, so that it is part of every test run: HSQLDB for the
+ * non-recursive profile, and SQLite for the recursive profiles with and without an upsert statement.
+ */
+@RunWith(Parameterized.class)
+public class TestAccessControl_queryBudget {
+   private static final String[][] DATABASES = {
+         // {dbconfig, SQL profile}
+         {"dbconfig_hsqldb_embedded.properties", "HSQLDB_2_3_NON_RECURSIVE"},
+         {"dbconfig_sqlite_embedded.properties", "SQLite_3_24_RECURSIVE"},
+         {"dbconfig_sqlite_embedded.properties", "SQLite_3_8_RECURSIVE"},
+   };
+
+   private static final int[][] SHAPES = {
+         // {inherit chain length, domain depth}
+         {0, 0},
+         {1, 2},
+         {3, 1},
+         {2, 4},
+   };
+
+   @Parameters(name = "{1}, inherit chain length {2}, domain depth {3}")
+   public static Collection<Object[]> data() {
+      final Collection<Object[]> data = new ArrayList<>();
+      for (String[] database : DATABASES) {
+         for (int[] shape : SHAPES) {
+            data.add(new Object[]{database[0], database[1], shape[0], shape[1]});
+         }
+      }
+      return data;
+   }
+
+   @Parameter(0)
+   public String dbConfig;
+
+   @Parameter(1)
+   public String sqlProfileName;
+
+   @Parameter(2)
+   public int inheritChainLength;
+
+   @Parameter(3)
+   public int domainDepth;
+
+   private TestConfig                  testConfig;
+   private SQLProfile                  sqlProfile;
+   private StatementCountingDataSource countingDataSource;
+   private AccessControlContext        countingAccessControlContext;
+
+   private Resource           sessionResource;
+   private char[]             sessionPassword;
+   private Resource           accessedResource;
+   private String             resourceClassName;
+   private ResourcePermission grantedPermission;
+   private ResourcePermission ungrantedPermission;
+
+   /**
+    * Sets up a session resource that inherits from a chain of roles, the last of which has a single permission to
+    * a resource in a domain at the configured depth, and authenticates the counting context as the session resource.
+    */
+   @Before
+   public void setUpFixture() throws Exception {
+      testConfig = TestConfig.load(dbConfig);
+      sqlProfile = SQLProfile.valueOf(sqlProfileName);
+      SQLAccessControlSystemResetUtil.resetOACC(testConfig.getDataSource(),
+                                                testConfig.getDatabaseSchema(),
+                                                testConfig.getOaccRootPassword(),
+                                                testConfig.getPasswordEncryptor());
+
+      final AccessControlContext systemAccessControlContext = newAccessControlContext(testConfig.getDataSource());
+      systemAccessControlContext.authenticate(Resources.getInstance(0),
+                                              PasswordCredentials.newInstance(testConfig.getOaccRootPassword()));
+
+      String domainName = generateUniqueName("d_");
+      systemAccessControlContext.createDomain(domainName);
+      for (int i = 0; i < domainDepth; i++) {
+         final String parentDomainName = domainName;
+         domainName = generateUniqueName("d_");
+         systemAccessControlContext.createDomain(domainName, parentDomainName);
+      }
+
+      resourceClassName = generateUniqueName("rc_");
+      systemAccessControlContext.createResourceClass(resourceClassName, false, false);
+      grantedPermission = ResourcePermissions.getInstance(generateUniqueName("p_"));
+      systemAccessControlContext.createResourcePermission(resourceClassName, grantedPermission.getPermissionName());
+      ungrantedPermission = ResourcePermissions.getInstance(generateUniqueName("p_"));
+      systemAccessControlContext.createResourcePermission(resourceClassName, ungrantedPermission.getPermissionName());
+      accessedResource = systemAccessControlContext.createResource(resourceClassName, domainName);
+
+      final String sessionClassName = generateUniqueName("rc_");
+      final String sessionDomainName = generateUniqueName("d_");
+      sessionPassword = generateUniqueName("pwd_").toCharArray();
+      systemAccessControlContext.createResourceClass(sessionClassName, true, false);
+      systemAccessControlContext.createDomain(sessionDomainName);
+      sessionResource = systemAccessControlContext.createResource(sessionClassName,
+                                                                  sessionDomainName,
+                                                                  PasswordCredentials.newInstance(sessionPassword));
+
+      final String roleClassName = generateUniqueName("rc_");
+      systemAccessControlContext.createResourceClass(roleClassName, false, false);
+      Resource grantHolder = sessionResource;
+      for (int i = 0; i < inheritChainLength; i++) {
+         final Resource role = systemAccessControlContext.createResource(roleClassName, sessionDomainName);
+         systemAccessControlContext.grantResourcePermissions(grantHolder,
+                                                             role,
+                                                             ResourcePermissions.getInstance(ResourcePermissions.INHERIT));
+         grantHolder = role;
+      }
+      systemAccessControlContext.grantResourcePermissions(grantHolder, accessedResource, grantedPermission);
+      systemAccessControlContext.unauthenticate();
+
+      countingDataSource = new StatementCountingDataSource(testConfig.getDataSource());
+      countingAccessControlContext = newAccessControlContext(countingDataSource);
+      countingAccessControlContext.authenticate(sessionResource, PasswordCredentials.newInstance(sessionPassword));
+      countingDataSource.reset();
+   }
+
+   @After
+   public void tearDownFixture() {
+      if (countingAccessControlContext != null) {
+         countingAccessControlContext.unauthenticate();
+      }
+   }
+
+   @Test
+   public void hasResourcePermissions_granted() {
+      final boolean hasPermission
+            = countingAccessControlContext.hasResourcePermissions(sessionResource, accessedResource, grantedPermission);
+
+      assertThat(hasPermission, is(true));
+      assertBudget("hasResourcePermissions (granted)", 7, 2 + 4 * a() + 3 * u());
+   }
+
+   @Test
+   public void hasResourcePermissions_denied() {
+      final boolean hasPermission
+            = countingAccessControlContext.hasResourcePermissions(sessionResource, accessedResource, ungrantedPermission);
+
+      assertThat(hasPermission, is(false));
+      assertBudget("hasResourcePermissions (denied)", 10, 4 + 4 * a() + 4 * u());
+   }
+
+   @Test
+   public void getEffectiveResourcePermissions() {
+      final Set<ResourcePermission> effectiveResourcePermissions
+            = countingAccessControlContext.getEffectiveResourcePermissions(sessionResource, accessedResource);
+
+      assertThat(effectiveResourcePermissions, is(Collections.singleton(grantedPermission)));
+      assertBudget("getEffectiveResourcePermissions", 6, 1 + 4 * a() + 3 * u());
+   }
+
+   @Test
+   public void getResourcesByResourcePermissions() {
+      final Set<Resource> resources
+            = countingAccessControlContext.getResourcesByResourcePermissions(sessionResource,
+                                                                             resourceClassName,
+                                                                             grantedPermission);
+
+      assertThat(resources, is(Collections.singleton(accessedResource)));
+      assertBudget("getResourcesByResourcePermissions", 7, 4 + 6 * a());
+   }
+
+   @Test
+   public void getResourcesByResourcePermissions_withResourceIndex() {
+      authenticateCountingContext(SQLAccessControlContextOptions.newInstance()
+                                        .withResourceIndex(SQLResourceIndex.newInstance()));
+      countingAccessControlContext.getResourcesByResourcePermissions(sessionResource, resourceClassName, grantedPermission);
+      countingDataSource.reset();
+
+      final Set<Resource> resources
+            = countingAccessControlContext.getResourcesByResourcePermissions(sessionResource,
+                                                                             resourceClassName,
+                                                                             grantedPermission);
+
+      assertThat(resources, is(Collections.singleton(accessedResource)));
+      // only the authorization and the resource class are looked up, the resources are answered by the index
+      assertBudget("getResourcesByResourcePermissions (indexed)", 3, 3);
+   }
+
+   @Test
+   public void grantResourcePermissions_withGrant() {
+      authenticateCountingContextAsSystem();
+
+      countingAccessControlContext.grantResourcePermissions(sessionResource,
+                                                            accessedResource,
+                                                            ResourcePermissions.getInstanceWithGrantOption(
+                                                                  ungrantedPermission.getPermissionName()));
+
+      // without an upsert statement the grant is read and diffed against the existing grants first
+      final int diffStatements = sqlProfile.isUpsertEnabled() ? 0 : 2;
+      assertBudget("grantResourcePermissions (with grant)", 7 + diffStatements, 9 + 2 * domainDepth);
+   }
+
+   @Test
+   public void hasResourcePermissions_withSuperUserDomainCache() {
+      authenticateCountingContext(SQLAccessControlContextOptions.newInstance()
+                                        .withSuperUserDomainCache(SQLSuperUserDomainCache.newInstance()));
+      countingAccessControlContext.hasResourcePermissions(sessionResource, accessedResource, grantedPermission);
+      countingDataSource.reset();
+
+      final boolean hasPermission
+            = countingAccessControlContext.hasResourcePermissions(sessionResource, accessedResource, grantedPermission);
+
+      assertThat(hasPermission, is(true));
+      // the super-user check of the session resource is answered by the cache
+      assertBudget("hasResourcePermissions (granted, cached super-user domains)", 5, 1 + 4 * a() + 2 * u());
+   }
+
+   @Test
+   public void hasResourcePermissions_withLocatorCache() {
+      authenticateCountingContext(SQLAccessControlContextOptions.newInstance()
+                                        .withLocatorCache(SQLResourceLocatorCache.newInstance(100)));
+      final Resource unresolvedAccessedResource = Resources.getInstance(accessedResource.getId());
+      countingAccessControlContext.hasResourcePermissions(sessionResource, unresolvedAccessedResource, grantedPermission);
+      countingDataSource.reset();
+
+      final boolean hasPermission
+            = countingAccessControlContext.hasResourcePermissions(sessionResource,
+                                                                  Resources.getInstance(accessedResource.getId()),
+                                                                  grantedPermission);
+
+      assertThat(hasPermission, is(true));
+      // the accessed resource is resolved from the cache, along with its resource class and domain
+      assertBudget("hasResourcePermissions (granted, cached resource location)", 5, 4 * a() + 3 * u());
+   }
+
+   @Test
+   public void deleteResources() {
+      authenticateCountingContextAsSystem();
+
+      final int deletedCount = countingAccessControlContext.deleteResources(Collections.singletonList(accessedResource));
+
+      assertThat(deletedCount, is(1));
+      // the authorization is checked once per domain, followed by one statement per grant table and the deletion
+      assertBudget("deleteResources", 14, 16 + 2 * domainDepth);
+   }
+
+   private void authenticateCountingContext(SQLAccessControlContextOptions options) {
+      countingAccessControlContext.unauthenticate();
+      countingAccessControlContext = SQLAccessControlContextFactory.getAccessControlContext(countingDataSource,
+                                                                                           testConfig.getDatabaseSchema(),
+                                                                                           sqlProfile,
+                                                                                           testConfig.getPasswordEncryptor(),
+                                                                                           options);
+      countingAccessControlContext.authenticate(sessionResource, PasswordCredentials.newInstance(sessionPassword));
+      countingDataSource.reset();
+   }
+
+   private void authenticateCountingContextAsSystem() {
+      countingAccessControlContext.unauthenticate();
+      countingAccessControlContext.authenticate(Resources.getInstance(0),
+                                                PasswordCredentials.newInstance(testConfig.getOaccRootPassword()));
+      countingDataSource.reset();
+   }
+
+   private AccessControlContext newAccessControlContext(DataSource dataSource) {
+      return SQLAccessControlContextFactory.getAccessControlContext(dataSource,
+                                                                    testConfig.getDatabaseSchema(),
+                                                                    sqlProfile,
+                                                                    testConfig.getPasswordEncryptor());
+   }
+
+   private void assertBudget(String apiName, int recursiveBudget, int nonRecursiveBudget) {
+      final int budget = sqlProfile.isRecursiveCTEEnabled() ? recursiveBudget : nonRecursiveBudget;
+
+      assertThat(apiName + " statements on " + SQLProfile.nameOf(sqlProfile)
+                       + " with inherit chain length " + inheritChainLength + " and domain depth " + domainDepth,
+                 countingDataSource.getStatementCount(),
+                 lessThanOrEqualTo((long) budget));
+   }
+
+   /**
+    * Returns the number of accessors the non-recursive profiles walk, i.e. the session resource and its roles.
+    */
+   private int a() {
+      return inheritChainLength + 1;
+   }
+
+   /**
+    * Returns the number of statements the non-recursive profiles need to look up the permissions that any
+    * of the accessors has on the domain of the accessed resource or any of its ancestors.
+    */
+   private int u() {
+      return a() + (domainDepth + 1) + a() * (domainDepth + 1);
+   }
+
+   private static String generateUniqueName(String prefix) {
+      return prefix + System.nanoTime();
+   }
+}
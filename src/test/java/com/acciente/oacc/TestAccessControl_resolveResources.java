@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.sql.internal.ResolvedResource;
+import com.acciente.oacc.sql.internal.ResourceClassInternalInfo;
+import com.acciente.oacc.sql.internal.persister.SQLStrings;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestAccessControl_resolveResources extends TestAccessControlBase {
+   @Test
+   public void resolveResources_validAsSystemResource() {
+      authenticateSystemResource();
+
+      // create more resources than fit into a single batch, half of them with an external id
+      final List<Resource> resources = new ArrayList<>();
+      final List<Resource> references = new ArrayList<>();
+      for (int i = 0; i < SQLStrings.IN_LIST_SIZE + 10; i++) {
+         if (i % 2 == 0) {
+            final Resource resource = generateUnauthenticatableResourceWithExtId(generateUniqueExternalId());
+            resources.add(resource);
+            references.add(i % 4 == 0
+                           ? Resources.getInstance(resource.getExternalId())
+                           : Resources.getInstance(resource.getId(), resource.getExternalId()));
+         }
+         else {
+            final Resource resource = generateUnauthenticatableResource();
+            resources.add(resource);
+            references.add(Resources.getInstance(resource.getId()));
+         }
+      }
+
+      // the session resource and repeated references should resolve as well
+      resources.add(SYS_RESOURCE);
+      references.add(SYS_RESOURCE);
+      resources.add(resources.get(0));
+      references.add(references.get(0));
+
+      assertThat(accessControlContext.resolveResources(references), is(resources));
+      assertThat(accessControlContext.resolveResources(Collections.<Resource>emptyList()).isEmpty(), is(true));
+   }
+
+   @Test
+   public void resolveResources_resolvedResources_shouldBeUsableAsReferences() {
+      authenticateSystemResource();
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final String permissionName = generateResourceClassPermission(resourceClassName);
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource
+            = accessControlContext.createResource(resourceClassName, domainName, generateUniqueExternalId());
+
+      final List<Resource> resolvedResources
+            = accessControlContext.resolveResources(Arrays.asList(Resources.getInstance(accessorResource.getId()),
+                                                                  Resources.getInstance(accessedResource.getExternalId())));
+      final Resource resolvedAccessorResource = resolvedResources.get(0);
+      final Resource resolvedAccessedResource = resolvedResources.get(1);
+
+      // resolved resources are interchangeable with the references callers build
+      assertThat(resolvedAccessedResource, is(accessedResource));
+      assertThat(accessedResource, is(resolvedAccessedResource));
+      assertThat(resolvedAccessedResource.hashCode(), is(accessedResource.hashCode()));
+      assertThat(resolvedAccessedResource.toString(), is(accessedResource.toString()));
+
+      // the resource class and domain carried by resolved resources are used instead of being looked up
+      assertThat(accessControlContext.getDomainNameByResource(resolvedAccessedResource), is(domainName));
+      assertThat(accessControlContext.getResourceClassInfoByResource(resolvedAccessedResource).getResourceClassName(),
+                 is(resourceClassName));
+
+      accessControlContext.grantResourcePermissions(resolvedAccessorResource,
+                                                    resolvedAccessedResource,
+                                                    ResourcePermissions.getInstance(permissionName));
+      assertThat(accessControlContext.hasResourcePermissions(accessorResource,
+                                                             accessedResource,
+                                                             ResourcePermissions.getInstance(permissionName)),
+                 is(true));
+   }
+
+   @Test
+   public void resolveResources_forgedResolvedResource_shouldNotBeTrusted() {
+      authenticateSystemResource();
+      final String domainName = generateDomain();
+      final String resourceClassName = generateResourceClass(false, false);
+      final Resource resource = accessControlContext.createResource(resourceClassName, domainName);
+
+      // a resolved resource built by the caller, which claims a different resource class and domain
+      final Resource forgedResource
+            = ResolvedResource.getInstance(resource.getId(),
+                                           null,
+                                           new ResourceClassInternalInfo(Id.<ResourceClassId>from(-999L),
+                                                                         "forged",
+                                                                         true,
+                                                                         true),
+                                           Id.<DomainId>from(-999L));
+
+      assertThat(accessControlContext.getDomainNameByResource(forgedResource), is(domainName));
+      assertThat(accessControlContext.getResourceClassInfoByResource(forgedResource).getResourceClassName(),
+                 is(resourceClassName));
+   }
+
+   @Test
+   public void resolveResources_resolvedResourceOfDeletedResource_shouldNotBeTrusted() {
+      authenticateSystemResource();
+      final Resource resource = generateUnauthenticatableResource();
+      final Resource resolvedResource
+            = accessControlContext.resolveResources(Collections.singletonList(resource)).get(0);
+
+      accessControlContext.deleteResource(resource);
+
+      try {
+         accessControlContext.getDomainNameByResource(resolvedResource);
+         fail("using the resolved resource of a deleted resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+   }
+
+   @Test
+   public void resolveResources_serializedResolvedResource_shouldBeDeserializedAsPlainResource() throws Exception {
+      authenticateSystemResource();
+      final Resource resource = generateUnauthenticatableResourceWithExtId(generateUniqueExternalId());
+      final Resource resolvedResource
+            = accessControlContext.resolveResources(Collections.singletonList(resource)).get(0);
+
+      final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+         objectOutputStream.writeObject(resolvedResource);
+      }
+      final Object deserializedResource;
+      try (ObjectInputStream objectInputStream
+                 = new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))) {
+         deserializedResource = objectInputStream.readObject();
+      }
+
+      assertThat(deserializedResource instanceof ResolvedResource, is(false));
+      assertThat(deserializedResource, is((Object) resource));
+   }
+
+   @Test
+   public void resolveResources_nonExistentReferences_shouldFail() {
+      authenticateSystemResource();
+      final Resource resource = generateUnauthenticatableResourceWithExtId(generateUniqueExternalId());
+
+      try {
+         accessControlContext.resolveResources(Arrays.asList(resource, Resources.getInstance(-999L)));
+         fail("resolving a non-existent resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+      try {
+         accessControlContext.resolveResources(Arrays.asList(Resources.getInstance("invalid"), resource));
+         fail("resolving a non-existent external id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not found"));
+      }
+      try {
+         accessControlContext.resolveResources(Arrays.asList(Resources.getInstance(resource.getId(), "invalid")));
+         fail("resolving a resource with mismatched id and external id should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("does not resolve"));
+      }
+   }
+
+   @Test
+   public void resolveResources_nulls_shouldFail() {
+      authenticateSystemResource();
+
+      try {
+         accessControlContext.resolveResources(null);
+         fail("resolving resources with null collection should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("resources required"));
+      }
+      try {
+         accessControlContext.resolveResources(Arrays.asList(SYS_RESOURCE, null));
+         fail("resolving resources with null element should have failed");
+      }
+      catch (NullPointerException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("contains null element"));
+      }
+   }
+}
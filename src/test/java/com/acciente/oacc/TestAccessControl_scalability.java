@@ -0,0 +1,302 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import com.acciente.oacc.helper.AuthorizationGraphGenerator;
+import com.acciente.oacc.helper.StatementCountingDataSource;
+import com.acciente.oacc.helper.TestConfigLoader;
+import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLProfile;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures how the latency and the number of SQL statements of the main query APIs grow with the shape of the
+ * authorization graph.
+ * <p/>
+ * Each test varies a single dimension of the graph produced by {@link AuthorizationGraphGenerator}, while the other
+ * dimensions keep their default value, and appends one CSV row per (dimension value, API) pair to the report file.
+ * <p/>
+ * The suite is slow and therefore only runs when the <code>scalability</code> system property is set to true,
+ * for example with <code>-Ddbconfig=dbconfig_hsqldb_embedded.properties -Dscalability=true</code>, which runs
+ * against an in-process database and needs no database server. The report is written to
+ * <code>target/oacc-scalability-report.csv</code>, unless a different path is specified in the
+ * <code>scalability.report</code> system property, and the number of timed invocations per API can be set
+ * with the <code>scalability.iterations</code> system property.
+ */
+public class TestAccessControl_scalability extends TestAccessControlBase {
+   private static final String PROP_ENABLED    = "scalability";
+   private static final String PROP_REPORT     = "scalability.report";
+   private static final String PROP_ITERATIONS = "scalability.iterations";
+
+   private static final String REPORT_HEADER
+         = "sqlProfile,dimension,value,api,iterations,medianMicros,p95Micros,statementsPerCall,connectionsPerCall";
+
+   private static PrintWriter reportWriter;
+   private static int         iterations;
+
+   @BeforeClass
+   public static void openReport() throws IOException {
+      if (!Boolean.getBoolean(PROP_ENABLED)) {
+         return;
+      }
+
+      iterations = Integer.getInteger(PROP_ITERATIONS, 20);
+
+      final File reportFile = new File(System.getProperty(PROP_REPORT, "target/oacc-scalability-report.csv"));
+      final boolean isNewReportFile = !reportFile.exists();
+      if (reportFile.getParentFile() != null) {
+         reportFile.getParentFile().mkdirs();
+      }
+      reportWriter = new PrintWriter(new OutputStreamWriter(new FileOutputStream(reportFile, true),
+                                                            StandardCharsets.UTF_8));
+      if (isNewReportFile) {
+         reportWriter.println(REPORT_HEADER);
+      }
+   }
+
+   @AfterClass
+   public static void closeReport() {
+      if (reportWriter != null) {
+         reportWriter.close();
+         reportWriter = null;
+      }
+   }
+
+   @Test
+   public void scaleDomainCount() throws Exception {
+      assumeScalabilityEnabled();
+
+      for (int domainCount : Arrays.asList(4, 16, 64, 256)) {
+         setUpTest();
+         measure("domainCount", domainCount, AuthorizationGraphGenerator.builder().domainCount(domainCount).build());
+      }
+   }
+
+   @Test
+   public void scaleDomainTreeDepth() throws Exception {
+      assumeScalabilityEnabled();
+
+      for (int domainTreeDepth : Arrays.asList(1, 2, 4, 8, 16)) {
+         setUpTest();
+         measure("domainTreeDepth",
+                 domainTreeDepth,
+                 AuthorizationGraphGenerator.builder().domainCount(32).domainTreeDepth(domainTreeDepth).build());
+      }
+   }
+
+   @Test
+   public void scaleResourcesPerClass() throws Exception {
+      assumeScalabilityEnabled();
+
+      for (int resourcesPerClass : Arrays.asList(10, 100, 1000)) {
+         setUpTest();
+         measure("resourcesPerClass",
+                 resourcesPerClass,
+                 AuthorizationGraphGenerator.builder()
+                       .resourcesPerClass(resourcesPerClass)
+                       .grantsPerAccessor(Math.max(20, resourcesPerClass / 5))
+                       .build());
+      }
+   }
+
+   @Test
+   public void scaleInheritChainLength() throws Exception {
+      assumeScalabilityEnabled();
+
+      for (int inheritChainLength : Arrays.asList(0, 1, 2, 4, 8, 16)) {
+         setUpTest();
+         measure("inheritChainLength",
+                 inheritChainLength,
+                 AuthorizationGraphGenerator.builder().inheritChainLength(inheritChainLength).build());
+      }
+   }
+
+   @Test
+   public void scaleGlobalGrantRatio() throws Exception {
+      assumeScalabilityEnabled();
+
+      for (double globalGrantRatio : Arrays.asList(0.0, 0.25, 0.5, 0.75, 1.0)) {
+         setUpTest();
+         measure("globalGrantRatio",
+                 globalGrantRatio,
+                 AuthorizationGraphGenerator.builder().globalGrantRatio(globalGrantRatio).build());
+      }
+   }
+
+   private static void assumeScalabilityEnabled() {
+      assumeTrue("scalability suite disabled; enable with -D" + PROP_ENABLED + "=true",
+                 Boolean.getBoolean(PROP_ENABLED));
+      assumeFalse("the scalability suite counts SQL statements; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+   }
+
+   private void measure(String dimension, Object value, AuthorizationGraphGenerator generator) throws Exception {
+      authenticateSystemAccessControlContext();
+      final AuthorizationGraphGenerator.Graph graph
+            = generator.generate(systemAccessControlContext,
+                                 TestConfigLoader.getDataSource(),
+                                 TestConfigLoader.getDatabaseSchema());
+
+      final StatementCountingDataSource countingDataSource
+            = new StatementCountingDataSource(TestConfigLoader.getDataSource());
+      final AccessControlContext measuredAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(countingDataSource,
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile(),
+                                                                     TestConfigLoader.getPasswordEncryptor());
+      measuredAccessControlContext.authenticate(getSystemResource(),
+                                                PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+
+      final Resource accessor = graph.getAccessors().get(0);
+      final String resourceClassName = graph.getResourceClassNames().get(0);
+      final Resource accessedResource = graph.getResources(resourceClassName).get(0);
+      final ResourcePermission permission
+            = ResourcePermissions.getInstance(graph.getPermissionNames(resourceClassName).get(0));
+
+      for (Api api : Api.values()) {
+         // warm up, so that the timings do not include class loading and statement preparation on the server
+         api.invoke(measuredAccessControlContext, graph, accessor, accessedResource, resourceClassName, permission);
+
+         final long[] durations = new long[iterations];
+         countingDataSource.reset();
+         for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            api.invoke(measuredAccessControlContext, graph, accessor, accessedResource, resourceClassName, permission);
+            durations[i] = System.nanoTime() - start;
+         }
+         Arrays.sort(durations);
+
+         reportWriter.println(String.format(Locale.ROOT,
+                                            "%s,%s,%s,%s,%d,%.1f,%.1f,%.2f,%.2f",
+                                            SQLProfile.nameOf(TestConfigLoader.getSQLProfile()),
+                                            dimension,
+                                            value,
+                                            api.name(),
+                                            iterations,
+                                            percentile(durations, 50) / 1000.0,
+                                            percentile(durations, 95) / 1000.0,
+                                            countingDataSource.getStatementCount() / (double) iterations,
+                                            countingDataSource.getConnectionCount() / (double) iterations));
+      }
+      reportWriter.flush();
+
+      measuredAccessControlContext.unauthenticate();
+   }
+
+   private static long percentile(long[] sortedValues, int percentile) {
+      final int index = (int) Math.ceil(percentile / 100.0 * sortedValues.length) - 1;
+      return sortedValues[Math.max(0, Math.min(index, sortedValues.length - 1))];
+   }
+
+   private enum Api {
+      hasResourcePermissions {
+         @Override
+         void invoke(AccessControlContext accessControlContext,
+                     AuthorizationGraphGenerator.Graph graph,
+                     Resource accessor,
+                     Resource accessedResource,
+                     String resourceClassName,
+                     ResourcePermission permission) {
+            accessControlContext.hasResourcePermissions(accessor, accessedResource, permission);
+         }
+      },
+      getEffectiveResourcePermissions {
+         @Override
+         void invoke(AccessControlContext accessControlContext,
+                     AuthorizationGraphGenerator.Graph graph,
+                     Resource accessor,
+                     Resource accessedResource,
+                     String resourceClassName,
+                     ResourcePermission permission) {
+            accessControlContext.getEffectiveResourcePermissions(accessor, accessedResource);
+         }
+      },
+      getEffectiveGlobalResourcePermissions {
+         @Override
+         void invoke(AccessControlContext accessControlContext,
+                     AuthorizationGraphGenerator.Graph graph,
+                     Resource accessor,
+                     Resource accessedResource,
+                     String resourceClassName,
+                     ResourcePermission permission) {
+            accessControlContext.getEffectiveGlobalResourcePermissions(accessor,
+                                                                       resourceClassName,
+                                                                       graph.getLeafDomainName());
+         }
+      },
+      getResourcesByResourcePermissions {
+         @Override
+         void invoke(AccessControlContext accessControlContext,
+                     AuthorizationGraphGenerator.Graph graph,
+                     Resource accessor,
+                     Resource accessedResource,
+                     String resourceClassName,
+                     ResourcePermission permission) {
+            accessControlContext.getResourcesByResourcePermissions(accessor, resourceClassName, permission);
+         }
+      },
+      getResourcesByResourcePermissionsAndDomain {
+         @Override
+         void invoke(AccessControlContext accessControlContext,
+                     AuthorizationGraphGenerator.Graph graph,
+                     Resource accessor,
+                     Resource accessedResource,
+                     String resourceClassName,
+                     ResourcePermission permission) {
+            accessControlContext.getResourcesByResourcePermissionsAndDomain(accessor,
+                                                                            resourceClassName,
+                                                                            graph.getRootDomainName(),
+                                                                            permission);
+         }
+      },
+      getAccessorResourcesByResourcePermissions {
+         @Override
+         void invoke(AccessControlContext accessControlContext,
+                     AuthorizationGraphGenerator.Graph graph,
+                     Resource accessor,
+                     Resource accessedResource,
+                     String resourceClassName,
+                     ResourcePermission permission) {
+            accessControlContext.getAccessorResourcesByResourcePermissions(accessedResource,
+                                                                           resourceClassName,
+                                                                           permission);
+         }
+      };
+
+      abstract void invoke(AccessControlContext accessControlContext,
+                           AuthorizationGraphGenerator.Graph graph,
+                           Resource accessor,
+                           Resource accessedResource,
+                           String resourceClassName,
+                           ResourcePermission permission);
+   }
+}
@@ -31,6 +31,8 @@ import java.io.ObjectOutputStream;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
 public class TestAccessControl_serialize extends TestAccessControlBase {
    @Test
@@ -49,6 +51,9 @@ public class TestAccessControl_serialize extends TestAccessControlBase {
 
    @Test
    public void serialize_deserializationWithoutPostDeserialize_shouldFail() throws IOException, ClassNotFoundException {
+      assumeFalse("the in-memory engine needs no re-initialization after deserialization",
+                  TestConfigLoader.isMemoryEngine());
+
       Resource systemAuthResource = getSystemResource();
       accessControlContext.authenticate(systemAuthResource,
                                         PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
@@ -129,6 +134,9 @@ public class TestAccessControl_serialize extends TestAccessControlBase {
 
    @Test
    public void serialize_deserializationWithPostDeserialize_shouldSucceed() throws IOException, ClassNotFoundException {
+      assumeFalse("the in-memory engine needs no re-initialization after deserialization",
+                  TestConfigLoader.isMemoryEngine());
+
       Resource systemAuthResource = getSystemResource();
       accessControlContext.authenticate(systemAuthResource,
                                         PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
@@ -187,4 +195,43 @@ public class TestAccessControl_serialize extends TestAccessControlBase {
                                                                                              .getOaccRootPassword()));
       }
    }
+
+   @Test
+   public void serialize_deserializationOfMemoryContext_shouldSucceed() throws IOException, ClassNotFoundException {
+      assumeTrue("only applicable to the in-memory engine", TestConfigLoader.isMemoryEngine());
+
+      Resource systemAuthResource = getSystemResource();
+      accessControlContext.authenticate(systemAuthResource,
+                                        PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+
+      // serialize and deserialize within the JVM that holds the store
+      final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+         objectOutputStream.writeObject(accessControlContext);
+      }
+      final AccessControlContext deserializedAccessControlContext;
+      try (ObjectInputStream objectInputStream
+                 = new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))) {
+         deserializedAccessControlContext = (AccessControlContext) objectInputStream.readObject();
+      }
+
+      // verify state hasn't changed, and that it is usable without re-initialization
+      Assert.assertThat(deserializedAccessControlContext.getAuthenticatedResource(), is(systemAuthResource));
+
+      final String domainName = generateUniqueDomainName();
+      deserializedAccessControlContext.createDomain(domainName);
+
+      final String resourceClassName = generateUniqueResourceClassName();
+      deserializedAccessControlContext.createResourceClass(resourceClassName, false, true);
+
+      final Resource resource = deserializedAccessControlContext.createResource(resourceClassName, domainName);
+
+      // verify it operates on the same store as the original
+      Assert.assertThat(accessControlContext.getResourceClassInfoByResource(resource).getResourceClassName(),
+                        is(resourceClassName));
+
+      deserializedAccessControlContext.authenticate(systemAuthResource,
+                                                    PasswordCredentials.newInstance(TestConfigLoader
+                                                                                          .getOaccRootPassword()));
+   }
 }
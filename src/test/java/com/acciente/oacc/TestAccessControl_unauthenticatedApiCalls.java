@@ -142,6 +142,20 @@ public class TestAccessControl_unauthenticatedApiCalls extends TestAccessControl
       catch (NotAuthenticatedException e) {
          assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
       }
+      try {
+         accessControlContext.deleteResources(null);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
+      try {
+         accessControlContext.resolveResources(null);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
 
       // verify getters
       try {
@@ -231,6 +245,13 @@ public class TestAccessControl_unauthenticatedApiCalls extends TestAccessControl
       catch (NotAuthenticatedException e) {
          assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
       }
+      try {
+         accessControlContext.getEffectiveResourcePermissionsMap(null, null);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
 
       try {
          accessControlContext.getGlobalResourcePermissions(null, null, null);
@@ -306,6 +327,14 @@ public class TestAccessControl_unauthenticatedApiCalls extends TestAccessControl
          assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
       }
 
+      try {
+         accessControlContext.getAccessorResourcesByResourcePermissionsPaged(null, null, false, null, 1);
+         fail("operation should have failed from unauthenticated context");
+      }
+      catch (NotAuthenticatedException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("not authenticated"));
+      }
+
       try {
          accessControlContext.getDomainNameByResource(null);
          fail("operation should have failed from unauthenticated context");
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestNotAuthorizedException {
+   private static final Resource           ACCESSOR_RESOURCE = Resources.getInstance(1L);
+   private static final Resource           ACCESSED_RESOURCE = Resources.getInstance(2L);
+   private static final ResourcePermission READ_PERMISSION   = ResourcePermissions.getInstance("READ");
+
+   @Test
+   public void newInstanceForResourcePermissions_shouldKeepStructuredFields() {
+      final NotAuthorizedException exception
+            = NotAuthorizedException.newInstanceForResourcePermissions(ACCESSOR_RESOURCE,
+                                                                       ACCESSED_RESOURCE,
+                                                                       READ_PERMISSION);
+
+      assertThat(exception.getAccessorResource(), is(ACCESSOR_RESOURCE));
+      assertThat(exception.getAccessedResource(), is(ACCESSED_RESOURCE));
+      assertThat(exception.getAction() == null, is(true));
+      assertThat(Arrays.asList(exception.getPermissions().toArray()),
+                 is(Arrays.<Object>asList(READ_PERMISSION)));
+      assertThat(exception.getMessage(),
+                 is("Resource " + ACCESSOR_RESOURCE + " does not have permission(s) [" + READ_PERMISSION
+                          + "] on resource " + ACCESSED_RESOURCE));
+      assertThat(exception.getStackTrace().length > 0, is(true));
+   }
+
+   @Test
+   public void newInstanceForDomainPermissions_setOfPermissions_shouldFormatSet() {
+      final DomainPermission superUserPermission = DomainPermissions.getInstance(DomainPermissions.SUPER_USER);
+      final NotAuthorizedException exception
+            = NotAuthorizedException.newInstanceForDomainPermissions(ACCESSOR_RESOURCE,
+                                                                     "domain",
+                                                                     Collections.singleton(superUserPermission));
+
+      assertThat(exception.getDomainName(), is("domain"));
+      assertThat(exception.getMessage(),
+                 is("Resource " + ACCESSOR_RESOURCE + " does not have domain permission(s) ["
+                          + superUserPermission + "] on domain domain"));
+   }
+
+   @Test
+   public void newInstanceForActionOnResource_stackTraceDisabled_shouldNotCaptureStackTrace() {
+      final NotAuthorizedException exception
+            = NotAuthorizedException.getFactory(false).newInstanceForActionOnResource(ACCESSOR_RESOURCE,
+                                                                                      "query",
+                                                                                      ACCESSED_RESOURCE);
+
+      assertThat(exception.getStackTrace().length, is(0));
+      assertThat(exception.getAction(), is("query"));
+      assertThat(exception.getPermissions().isEmpty(), is(true));
+      assertThat(exception.getMessage(),
+                 is("Resource " + ACCESSOR_RESOURCE + " is not authorized to query resource " + ACCESSED_RESOURCE));
+   }
+
+   @Test
+   public void newInstanceForResourcePermissions_modifiedSetOfPermissions_shouldKeepRequestedPermissions() {
+      final Set<ResourcePermission> resourcePermissions = new HashSet<>();
+      resourcePermissions.add(READ_PERMISSION);
+      final NotAuthorizedException exception
+            = NotAuthorizedException.newInstanceForResourcePermissions(ACCESSOR_RESOURCE,
+                                                                       ACCESSED_RESOURCE,
+                                                                       resourcePermissions);
+
+      resourcePermissions.add(ResourcePermissions.getInstance("WRITE"));
+
+      assertThat(Arrays.asList(exception.getPermissions().toArray()),
+                 is(Arrays.<Object>asList(READ_PERMISSION)));
+      assertThat(exception.getMessage(),
+                 is("Resource " + ACCESSOR_RESOURCE + " does not have permission(s) [" + READ_PERMISSION
+                          + "] on resource " + ACCESSED_RESOURCE));
+   }
+}
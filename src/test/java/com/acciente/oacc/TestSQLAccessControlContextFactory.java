@@ -20,20 +20,32 @@ package com.acciente.oacc;
 import com.acciente.oacc.encryptor.PasswordEncryptor;
 import com.acciente.oacc.helper.TestConfigLoader;
 import com.acciente.oacc.sql.SQLAccessControlContextFactory;
+import com.acciente.oacc.sql.SQLAccessControlContextOptions;
+import com.acciente.oacc.sql.SQLReadCoalescer;
+import com.acciente.oacc.sql.SQLResourceIndex;
+import com.acciente.oacc.sql.SQLResourceLocatorCache;
+import com.acciente.oacc.sql.SQLSuperUserDomainCache;
 import com.acciente.oacc.sql.internal.SQLPasswordAuthenticationProvider;
 import org.junit.Test;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
 
 public class TestSQLAccessControlContextFactory {
    @Test
    public void getAccessControlContext_invalidSchemaName_shouldFail() throws SQLException {
+      assumeFalse("schema names only apply to the SQL engine; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
       final String invalidSchemaName = "oacc.temp;drop database oaccdb;--";
 
       final DataSource dataSource = TestConfigLoader.getDataSource();
@@ -81,4 +93,106 @@ public class TestSQLAccessControlContextFactory {
          assertThat(e.getMessage().toLowerCase(), containsString("invalid database schema name"));
       }
    }
+
+   @Test
+   public void getAccessControlContext_nullOptions_shouldFail() {
+      assumeFalse("SQLAccessControlContextOptions only apply to the SQL engine; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      final DataSource dataSource = TestConfigLoader.getDataSource();
+
+      try {
+         SQLAccessControlContextFactory.getAccessControlContext(dataSource,
+                                                                TestConfigLoader.getDatabaseSchema(),
+                                                                TestConfigLoader.getSQLProfile(),
+                                                                TestConfigLoader.getPasswordEncryptor(),
+                                                                null);
+         fail("getting access control context with null options should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("sqlaccesscontrolcontextoptions required"));
+      }
+      try {
+         SQLAccessControlContextFactory.getAccessControlContext(dataSource,
+                                                                TestConfigLoader.getDatabaseSchema(),
+                                                                TestConfigLoader.getSQLProfile(),
+                                                                (SQLPasswordAuthenticationProvider) null,
+                                                                null);
+         fail("getting access control context with null options should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("sqlaccesscontrolcontextoptions required"));
+      }
+   }
+
+   @Test
+   public void options_nullServices_shouldFail() {
+      final SQLAccessControlContextOptions options = SQLAccessControlContextOptions.newInstance();
+
+      try {
+         options.withExecutor(null);
+         fail("enabling a null executor service should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("executorservice required"));
+      }
+      try {
+         options.withReadCoalescer(null);
+         fail("enabling a null read coalescer should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("sqlreadcoalescer required"));
+      }
+      try {
+         options.withResourceIndex(null);
+         fail("enabling a null resource index should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("sqlresourceindex required"));
+      }
+      try {
+         options.withLocatorCache(null);
+         fail("enabling a null resource locator cache should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("sqlresourcelocatorcache required"));
+      }
+      try {
+         options.withSuperUserDomainCache(null);
+         fail("enabling a null super-user domain cache should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase(), containsString("sqlsuperuserdomaincache required"));
+      }
+   }
+
+   @Test
+   public void getAccessControlContext_allOptions_shouldSucceed() {
+      assumeFalse("SQLAccessControlContextOptions only apply to the SQL engine; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      final ExecutorService queryExecutorService = Executors.newFixedThreadPool(2);
+      try {
+         final SQLAccessControlContextOptions options
+               = SQLAccessControlContextOptions.newInstance()
+               .withExecutor(queryExecutorService)
+               .withReadCoalescer(SQLReadCoalescer.newInstance())
+               .withResourceIndex(SQLResourceIndex.newInstance())
+               .withLocatorCache(SQLResourceLocatorCache.newInstance(100))
+               .withSuperUserDomainCache(SQLSuperUserDomainCache.newInstance());
+         final AccessControlContext accessControlContext
+               = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                        TestConfigLoader.getDatabaseSchema(),
+                                                                        TestConfigLoader.getSQLProfile(),
+                                                                        TestConfigLoader.getPasswordEncryptor(),
+                                                                        options);
+         accessControlContext.authenticate(Resources.getInstance(0),
+                                           PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+
+         assertThat(accessControlContext.getSessionResource(), is(Resources.getInstance(0)));
+      }
+      finally {
+         queryExecutorService.shutdown();
+      }
+   }
 }
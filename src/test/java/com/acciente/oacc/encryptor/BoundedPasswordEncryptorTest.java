@@ -0,0 +1,165 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.encryptor;
+
+import com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BoundedPasswordEncryptorTest {
+   @Test
+   public void checkPassword() throws Exception {
+      final BoundedPasswordEncryptor boundedEncryptor
+            = BoundedPasswordEncryptor.newInstance(BCryptPasswordEncryptor.newInstance(4), 2, 4, 10000);
+      final char[] testPassword = "SomePasswordHere".toCharArray();
+
+      final String encryptedPassword = boundedEncryptor.encryptPassword(testPassword);
+
+      assertThat(boundedEncryptor.checkPassword(testPassword, encryptedPassword), is(true));
+      assertThat(boundedEncryptor.checkPassword("OtherPassword".toCharArray(), encryptedPassword), is(false));
+      assertThat(boundedEncryptor.getCompletedCount(), is(3L));
+      boundedEncryptor.shutdown();
+   }
+
+   @Test
+   public void saturatedPool_shouldRejectFast() throws Exception {
+      final BlockingPasswordEncryptor blockingEncryptor = new BlockingPasswordEncryptor();
+      final BoundedPasswordEncryptor boundedEncryptor
+            = BoundedPasswordEncryptor.newInstance(blockingEncryptor, 1, 0, 10000);
+
+      final Thread blockedThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            boundedEncryptor.encryptPassword("first".toCharArray());
+         }
+      });
+      blockedThread.start();
+      assertThat(blockingEncryptor.started.await(10, TimeUnit.SECONDS), is(true));
+
+      try {
+         boundedEncryptor.encryptPassword("second".toCharArray());
+         fail("hashing on a saturated pool should have been rejected");
+      }
+      catch (PasswordHashingRejectedException e) {
+         assertThat(boundedEncryptor.getRejectedCount(), is(1L));
+      }
+      finally {
+         blockingEncryptor.release.countDown();
+         blockedThread.join();
+         boundedEncryptor.shutdown();
+      }
+   }
+
+   @Test
+   public void slowHashing_shouldTimeOut() throws Exception {
+      final BlockingPasswordEncryptor blockingEncryptor = new BlockingPasswordEncryptor();
+      final BoundedPasswordEncryptor boundedEncryptor
+            = BoundedPasswordEncryptor.newInstance(blockingEncryptor, 1, 1, 50);
+
+      try {
+         boundedEncryptor.encryptPassword("password".toCharArray());
+         fail("hashing that does not complete in time should have timed out");
+      }
+      catch (PasswordHashingRejectedException e) {
+         assertThat(boundedEncryptor.getTimedOutCount(), is(1L));
+      }
+      finally {
+         blockingEncryptor.release.countDown();
+         boundedEncryptor.shutdown();
+      }
+   }
+
+   @Test
+   public void timedOutQueuedRequest_shouldBeRemovedFromQueue() throws Exception {
+      final BlockingPasswordEncryptor blockingEncryptor = new BlockingPasswordEncryptor();
+      final BoundedPasswordEncryptor boundedEncryptor
+            = BoundedPasswordEncryptor.newInstance(blockingEncryptor, 1, 1, 200);
+
+      final Thread blockedThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               boundedEncryptor.encryptPassword("first".toCharArray());
+            }
+            catch (PasswordHashingRejectedException e) {
+               // expected, the first request keeps the pool thread busy beyond the timeout
+            }
+         }
+      });
+      blockedThread.start();
+      assertThat(blockingEncryptor.started.await(10, TimeUnit.SECONDS), is(true));
+
+      try {
+         boundedEncryptor.encryptPassword("second".toCharArray());
+         fail("hashing that waits beyond the timeout should have timed out");
+      }
+      catch (PasswordHashingRejectedException e) {
+         assertThat(boundedEncryptor.getQueueDepth(), is(0));
+      }
+      finally {
+         blockingEncryptor.release.countDown();
+         blockedThread.join();
+         boundedEncryptor.shutdown();
+      }
+   }
+
+   @Test
+   public void shutdown_shouldRejectWithoutStartingPool() throws Exception {
+      final BoundedPasswordEncryptor boundedEncryptor
+            = BoundedPasswordEncryptor.newInstance(new BlockingPasswordEncryptor(), 1, 4, 10000);
+
+      boundedEncryptor.shutdown();
+
+      try {
+         boundedEncryptor.encryptPassword("password".toCharArray());
+         fail("hashing after shutdown should have been rejected");
+      }
+      catch (PasswordHashingRejectedException e) {
+         assertThat(e.getMessage().contains("shut down"), is(true));
+         assertThat(boundedEncryptor.getRejectedCount(), is(1L));
+      }
+   }
+
+   private static class BlockingPasswordEncryptor implements PasswordEncryptor {
+      private final CountDownLatch started = new CountDownLatch(1);
+      private final CountDownLatch release = new CountDownLatch(1);
+
+      @Override
+      public String encryptPassword(char[] password) {
+         started.countDown();
+         try {
+            release.await();
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return new String(password);
+      }
+
+      @Override
+      public boolean checkPassword(char[] plainPassword, String encryptedPassword) {
+         return new String(plainPassword).equals(encryptedPassword);
+      }
+   }
+}
@@ -153,4 +153,47 @@ public class TransitioningPasswordEncryptorTest {
 
       assertThat(legacy2Jasypt2BcryptEncryptor.checkPassword(testPassword, encryptedPassword), is(true));
    }
-}
\ No newline at end of file
+
+   @Test
+   public void isRehashNeededForLegacyPassword() throws Exception {
+      final char[] testPassword = "SomePasswordHere".toCharArray();
+
+      final String legacyEncryptedPassword = legacyEncryptor.encryptPassword(testPassword);
+      final String encryptedPassword = transitioningEncryptor.encryptPassword(testPassword);
+
+      assertThat(transitioningEncryptor.isRehashNeeded(legacyEncryptedPassword), is(true));
+      assertThat(transitioningEncryptor.isRehashNeeded(encryptedPassword), is(false));
+   }
+
+   @Test
+   public void checkLegacyPasswordWithoutNewEncryptorAttempt() throws Exception {
+      final char[] testPassword = "SomePasswordHere".toCharArray();
+      final RehashAwarePasswordEncryptor strictEncryptor = new RehashAwarePasswordEncryptor() {
+         @Override
+         public String encryptPassword(char[] password) {
+            return bcryptEncryptor.encryptPassword(password);
+         }
+
+         @Override
+         public boolean checkPassword(char[] plainPassword, String encryptedPassword) {
+            throw new AssertionError("the new password encryptor should not check an unrecognized password format");
+         }
+
+         @Override
+         public boolean isPasswordFormatRecognized(String encryptedPassword) {
+            return bcryptEncryptor.isPasswordFormatRecognized(encryptedPassword);
+         }
+
+         @Override
+         public boolean isRehashNeeded(String encryptedPassword) {
+            return bcryptEncryptor.isRehashNeeded(encryptedPassword);
+         }
+      };
+      final TransitioningPasswordEncryptor legacy2StrictEncryptor
+            = TransitioningPasswordEncryptor.newInstance(strictEncryptor, legacyEncryptor);
+
+      final String encryptedPassword = legacyEncryptor.encryptPassword(testPassword);
+
+      assertThat(legacy2StrictEncryptor.checkPassword(testPassword, encryptedPassword), is(true));
+   }
+}
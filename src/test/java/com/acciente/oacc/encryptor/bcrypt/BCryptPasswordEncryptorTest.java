@@ -159,4 +159,30 @@ public class BCryptPasswordEncryptorTest {
 
       assertThat(encryptor.checkPassword(singleCharacterPwd, encryptedPasswordPass1), is(true));
    }
-}
\ No newline at end of file
+
+   @Test
+   public void isRehashNeededForDifferentCostFactor() throws Exception {
+      final char[] testPassword = "SomePasswordHere".toCharArray();
+
+      final String encryptedPassword = encryptor.encryptPassword(testPassword);
+
+      assertThat(encryptor.isPasswordFormatRecognized(encryptedPassword), is(true));
+      assertThat(encryptor.isRehashNeeded(encryptedPassword), is(false));
+      assertThat(BCryptPasswordEncryptor.newInstance(5).isRehashNeeded(encryptedPassword), is(true));
+   }
+
+   @Test
+   public void isRehashNeededForUnrecognizedFormat() throws Exception {
+      final String encryptedPassword = "jasypt:SHA-256$100000$16$c29tZURpZ2VzdA==";
+
+      assertThat(encryptor.isPasswordFormatRecognized(encryptedPassword), is(false));
+      assertThat(encryptor.isRehashNeeded(encryptedPassword), is(true));
+   }
+
+   @Test
+   public void calibrateCostFactor() throws Exception {
+      final int costFactor = BCryptCostFactorCalibrator.calibrateCostFactor(1);
+
+      assertThat(costFactor >= 4 && costFactor <= 31, is(true));
+   }
+}
@@ -101,4 +101,16 @@ public class JasyptPasswordEncryptorTest {
 
       assertThat(encryptor.checkPassword(singleCharacterPwd, encryptedPasswordPass1), is(true));
    }
-}
\ No newline at end of file
+
+   @Test
+   public void isRehashNeededForDifferentSettings() throws Exception {
+      final char[] testPassword = "SomePasswordHere".toCharArray();
+
+      final String encryptedPassword = encryptor.encryptPassword(testPassword);
+
+      assertThat(encryptor.isPasswordFormatRecognized(encryptedPassword), is(true));
+      assertThat(encryptor.isRehashNeeded(encryptedPassword), is(false));
+      assertThat(JasyptPasswordEncryptor.newInstance("SHA-256", 200000, 16).isRehashNeeded(encryptedPassword),
+                 is(true));
+   }
+}
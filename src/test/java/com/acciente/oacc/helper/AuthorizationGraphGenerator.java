@@ -0,0 +1,600 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.helper;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.Resources;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic authorization graphs of a configurable shape, for use in scalability measurements.
+ * <p/>
+ * A generated graph consists of
+ * <ul>
+ *    <li>a tree of <em>N</em> domains that is at most <em>D</em> levels deep,</li>
+ *    <li><em>C</em> resource classes with <em>P</em> permissions each, and <em>M</em> resources per class
+ *        spread randomly across the domains,</li>
+ *    <li>accessor resources that each inherit from a chain of <em>L</em> role resources
+ *        (accessor -> role 1 -> ... -> role L), and</li>
+ *    <li>a number of grants held by the last role of each chain (or by the accessor itself when <em>L</em> is zero),
+ *        of which the configured ratio are global grants and the rest are direct grants.</li>
+ * </ul>
+ * Domains, resource classes, permissions and resources are always created through the public
+ * {@link AccessControlContext} API. The (typically far more numerous) direct and inherit grants are written by
+ * default with JDBC batches straight into the OACC grant tables, which bypasses the per-grant authorization and
+ * cycle checks of the API and therefore must only be used on a freshly reset OACC instance; call
+ * {@link Builder#batchedSeeding(boolean) batchedSeeding(false)} to seed all grants through the API instead.
+ * <p/>
+ * The generator is deterministic for a given {@link Builder#seed(long) seed}.
+ */
+public class AuthorizationGraphGenerator {
+   private static final String ACCESSOR_CLASS_SUFFIX = "_accessor";
+   private static final String ROLE_CLASS_SUFFIX     = "_role";
+   private static final long   SYS_RESOURCE_ID       = 0L;
+   private static final long   SYS_PERMISSION_INHERIT_ID = -101L;
+
+   private final int     domainCount;
+   private final int     domainTreeDepth;
+   private final int     resourceClassCount;
+   private final int     permissionsPerClass;
+   private final int     resourcesPerClass;
+   private final int     accessorCount;
+   private final int     inheritChainLength;
+   private final int     grantsPerAccessor;
+   private final double  globalGrantRatio;
+   private final long    seed;
+   private final boolean batchedSeeding;
+
+   private AuthorizationGraphGenerator(Builder builder) {
+      this.domainCount = builder.domainCount;
+      this.domainTreeDepth = builder.domainTreeDepth;
+      this.resourceClassCount = builder.resourceClassCount;
+      this.permissionsPerClass = builder.permissionsPerClass;
+      this.resourcesPerClass = builder.resourcesPerClass;
+      this.accessorCount = builder.accessorCount;
+      this.inheritChainLength = builder.inheritChainLength;
+      this.grantsPerAccessor = builder.grantsPerAccessor;
+      this.globalGrantRatio = builder.globalGrantRatio;
+      this.seed = builder.seed;
+      this.batchedSeeding = builder.batchedSeeding;
+   }
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   public int getDomainCount() {
+      return domainCount;
+   }
+
+   public int getDomainTreeDepth() {
+      return domainTreeDepth;
+   }
+
+   public int getResourcesPerClass() {
+      return resourcesPerClass;
+   }
+
+   public int getInheritChainLength() {
+      return inheritChainLength;
+   }
+
+   public double getGlobalGrantRatio() {
+      return globalGrantRatio;
+   }
+
+   /**
+    * Generates a new authorization graph.
+    *
+    * @param systemAccessControlContext an access control context authenticated as the system resource
+    * @param dataSource                 the data source of the OACC instance, used for batched seeding
+    * @param schemaName                 the OACC schema name, or null
+    * @return the generated graph
+    */
+   public Graph generate(AccessControlContext systemAccessControlContext,
+                         DataSource dataSource,
+                         String schemaName) throws SQLException {
+      final Random random = new Random(seed);
+      final String namePrefix = "g" + System.nanoTime();
+      final Graph graph = new Graph();
+
+      // domain tree
+      final int fanOut = computeFanOut(domainCount, domainTreeDepth);
+      for (int i = 0; i < domainCount; i++) {
+         final String domainName = namePrefix + "_d" + i;
+         if (i == 0 || fanOut == 0) {
+            systemAccessControlContext.createDomain(domainName);
+         }
+         else {
+            systemAccessControlContext.createDomain(domainName, graph.domainNames.get((i - 1) / fanOut));
+         }
+         graph.domainNames.add(domainName);
+      }
+
+      // resource classes, permissions and resources
+      for (int c = 0; c < resourceClassCount; c++) {
+         final String resourceClassName = namePrefix + "_rc" + c;
+         systemAccessControlContext.createResourceClass(resourceClassName, false, false);
+         final List<String> permissionNames = new ArrayList<>(permissionsPerClass);
+         for (int p = 0; p < permissionsPerClass; p++) {
+            final String permissionName = "p" + p;
+            systemAccessControlContext.createResourcePermission(resourceClassName, permissionName);
+            permissionNames.add(permissionName);
+         }
+         final List<Resource> resources = new ArrayList<>(resourcesPerClass);
+         for (int r = 0; r < resourcesPerClass; r++) {
+            resources.add(systemAccessControlContext.createResource(resourceClassName, randomDomain(graph, random)));
+         }
+         graph.resourceClassNames.add(resourceClassName);
+         graph.permissionNamesByClass.put(resourceClassName, permissionNames);
+         graph.resourcesByClass.put(resourceClassName, resources);
+      }
+
+      // accessors and their role chains
+      graph.accessorClassName = namePrefix + ACCESSOR_CLASS_SUFFIX;
+      graph.roleClassName = namePrefix + ROLE_CLASS_SUFFIX;
+      systemAccessControlContext.createResourceClass(graph.accessorClassName, false, false);
+      systemAccessControlContext.createResourceClass(graph.roleClassName, false, false);
+
+      final List<Grant> grants = new ArrayList<>();
+      final Set<Grant> uniqueGrants = new HashSet<>();
+      for (int a = 0; a < accessorCount; a++) {
+         final Resource accessor = systemAccessControlContext.createResource(graph.accessorClassName,
+                                                                            randomDomain(graph, random));
+         graph.accessors.add(accessor);
+
+         Resource grantHolder = accessor;
+         for (int l = 0; l < inheritChainLength; l++) {
+            final Resource role = systemAccessControlContext.createResource(graph.roleClassName,
+                                                                           randomDomain(graph, random));
+            graph.roles.add(role);
+            grants.add(Grant.newInherit(grantHolder, role, graph.roleClassName));
+            grantHolder = role;
+         }
+
+         for (int g = 0; g < grantsPerAccessor; g++) {
+            final String resourceClassName = graph.resourceClassNames.get(random.nextInt(resourceClassCount));
+            final List<String> permissionNames = graph.permissionNamesByClass.get(resourceClassName);
+            final String permissionName = permissionNames.get(random.nextInt(permissionNames.size()));
+
+            final Grant grant;
+            if (random.nextDouble() < globalGrantRatio) {
+               grant = Grant.newGlobal(grantHolder, resourceClassName, randomDomain(graph, random), permissionName);
+            }
+            else {
+               final List<Resource> resources = graph.resourcesByClass.get(resourceClassName);
+               grant = Grant.newDirect(grantHolder,
+                                       resources.get(random.nextInt(resources.size())),
+                                       resourceClassName,
+                                       permissionName);
+            }
+            if (uniqueGrants.add(grant)) {
+               grants.add(grant);
+            }
+         }
+      }
+
+      if (batchedSeeding) {
+         seedGrantsInBatches(systemAccessControlContext, dataSource, schemaName, grants);
+      }
+      else {
+         seedGrantsIndividually(systemAccessControlContext, grants);
+      }
+
+      for (Grant grant : grants) {
+         if (grant.type == GrantType.INHERIT) {
+            graph.inheritGrantCount++;
+         }
+         else if (grant.type == GrantType.GLOBAL) {
+            graph.globalGrantCount++;
+         }
+         else {
+            graph.directGrantCount++;
+         }
+      }
+
+      return graph;
+   }
+
+   private static String randomDomain(Graph graph, Random random) {
+      return graph.domainNames.get(random.nextInt(graph.domainNames.size()));
+   }
+
+   /**
+    * Returns the smallest fan-out that fits the specified number of domains into a single tree of at most
+    * the specified depth, or zero if the depth is one (i.e. all domains are roots).
+    */
+   private static int computeFanOut(int domainCount, int depth) {
+      if (depth <= 1 || domainCount <= 1) {
+         return 0;
+      }
+      int fanOut = 1;
+      while (treeCapacity(fanOut, depth) < domainCount) {
+         fanOut++;
+      }
+      return fanOut;
+   }
+
+   private static long treeCapacity(int fanOut, int depth) {
+      long capacity = 0;
+      long levelSize = 1;
+      for (int level = 0; level < depth; level++) {
+         capacity += levelSize;
+         levelSize *= fanOut;
+      }
+      return capacity;
+   }
+
+   private static void seedGrantsIndividually(AccessControlContext systemAccessControlContext, List<Grant> grants) {
+      for (Grant grant : grants) {
+         switch (grant.type) {
+            case INHERIT:
+               systemAccessControlContext.grantResourcePermissions(grant.accessor,
+                                                                   grant.accessed,
+                                                                   ResourcePermissions.getInstance(ResourcePermissions.INHERIT));
+               break;
+            case DIRECT:
+               systemAccessControlContext.grantResourcePermissions(grant.accessor,
+                                                                   grant.accessed,
+                                                                   ResourcePermissions.getInstance(grant.permissionName));
+               break;
+            case GLOBAL:
+               systemAccessControlContext.grantGlobalResourcePermissions(grant.accessor,
+                                                                         grant.resourceClassName,
+                                                                         grant.domainName,
+                                                                         ResourcePermissions.getInstance(grant.permissionName));
+               break;
+         }
+      }
+   }
+
+   private static void seedGrantsInBatches(AccessControlContext systemAccessControlContext,
+                                           DataSource dataSource,
+                                           String schemaName,
+                                           List<Grant> grants) throws SQLException {
+      final String tablePrefix = DbBase.getSchemaAndTableNamePrefix(schemaName);
+      final Map<String, Long> resourceClassIds = new HashMap<>();
+
+      try (Connection connection = dataSource.getConnection();
+           PreparedStatement findResourceClassIdStatement
+                 = connection.prepareStatement("SELECT ResourceClassId FROM " + tablePrefix
+                                                     + "ResourceClass WHERE ResourceClassName = ?");
+           PreparedStatement inheritStatement
+                 = connection.prepareStatement("INSERT INTO " + tablePrefix
+                                                     + "Grant_ResPerm_Sys ( AccessorResourceId, GrantorResourceId, AccessedResourceId, IsWithGrant, ResourceClassId, SysPermissionId ) "
+                                                     + "VALUES ( ?, ?, ?, ?, ?, ? )");
+           PreparedStatement directStatement
+                 = connection.prepareStatement("INSERT INTO " + tablePrefix
+                                                     + "Grant_ResPerm ( AccessorResourceId, GrantorResourceId, AccessedResourceId, IsWithGrant, ResourceClassId, PermissionId ) "
+                                                     + "SELECT ?, ?, ?, ?, A.ResourceClassId, A.PermissionId FROM "
+                                                     + tablePrefix
+                                                     + "ResourceClassPermission A WHERE A.ResourceClassId = ? AND A.PermissionName = ?")) {
+         int inheritBatchSize = 0;
+         int directBatchSize = 0;
+
+         for (Grant grant : grants) {
+            switch (grant.type) {
+               case INHERIT: {
+                  final long resourceClassId
+                        = getResourceClassId(findResourceClassIdStatement, resourceClassIds, grant.resourceClassName);
+                  inheritStatement.setLong(1, grant.accessor.getId());
+                  inheritStatement.setLong(2, SYS_RESOURCE_ID);
+                  inheritStatement.setLong(3, grant.accessed.getId());
+                  inheritStatement.setInt(4, 0);
+                  inheritStatement.setLong(5, resourceClassId);
+                  inheritStatement.setLong(6, SYS_PERMISSION_INHERIT_ID);
+                  inheritStatement.addBatch();
+                  inheritBatchSize++;
+                  break;
+               }
+               case DIRECT: {
+                  final long resourceClassId
+                        = getResourceClassId(findResourceClassIdStatement, resourceClassIds, grant.resourceClassName);
+                  directStatement.setLong(1, grant.accessor.getId());
+                  directStatement.setLong(2, SYS_RESOURCE_ID);
+                  directStatement.setLong(3, grant.accessed.getId());
+                  directStatement.setInt(4, 0);
+                  directStatement.setLong(5, resourceClassId);
+                  directStatement.setString(6, grant.permissionName);
+                  directStatement.addBatch();
+                  directBatchSize++;
+                  break;
+               }
+               case GLOBAL:
+                  // global grants are comparatively few, so we let the API take care of them
+                  systemAccessControlContext.grantGlobalResourcePermissions(grant.accessor,
+                                                                            grant.resourceClassName,
+                                                                            grant.domainName,
+                                                                            ResourcePermissions.getInstance(grant.permissionName));
+                  break;
+            }
+         }
+
+         if (inheritBatchSize > 0) {
+            inheritStatement.executeBatch();
+         }
+         if (directBatchSize > 0) {
+            directStatement.executeBatch();
+         }
+      }
+   }
+
+   private static long getResourceClassId(PreparedStatement findResourceClassIdStatement,
+                                          Map<String, Long> resourceClassIds,
+                                          String resourceClassName) throws SQLException {
+      Long resourceClassId = resourceClassIds.get(resourceClassName);
+      if (resourceClassId == null) {
+         findResourceClassIdStatement.setString(1, resourceClassName);
+         try (ResultSet resultSet = findResourceClassIdStatement.executeQuery()) {
+            if (!resultSet.next()) {
+               throw new IllegalStateException("Could not find resource class " + resourceClassName);
+            }
+            resourceClassId = resultSet.getLong(1);
+         }
+         resourceClassIds.put(resourceClassName, resourceClassId);
+      }
+      return resourceClassId;
+   }
+
+   public static class Builder {
+      private int     domainCount         = 8;
+      private int     domainTreeDepth     = 3;
+      private int     resourceClassCount  = 3;
+      private int     permissionsPerClass = 4;
+      private int     resourcesPerClass   = 50;
+      private int     accessorCount       = 5;
+      private int     inheritChainLength  = 2;
+      private int     grantsPerAccessor   = 20;
+      private double  globalGrantRatio    = 0.25;
+      private long    seed                = 42L;
+      private boolean batchedSeeding      = true;
+
+      private Builder() {
+      }
+
+      public Builder domainCount(int domainCount) {
+         this.domainCount = assertPositive("domain count", domainCount);
+         return this;
+      }
+
+      public Builder domainTreeDepth(int domainTreeDepth) {
+         this.domainTreeDepth = assertPositive("domain tree depth", domainTreeDepth);
+         return this;
+      }
+
+      public Builder resourceClassCount(int resourceClassCount) {
+         this.resourceClassCount = assertPositive("resource class count", resourceClassCount);
+         return this;
+      }
+
+      public Builder permissionsPerClass(int permissionsPerClass) {
+         this.permissionsPerClass = assertPositive("permissions per class", permissionsPerClass);
+         return this;
+      }
+
+      public Builder resourcesPerClass(int resourcesPerClass) {
+         this.resourcesPerClass = assertPositive("resources per class", resourcesPerClass);
+         return this;
+      }
+
+      public Builder accessorCount(int accessorCount) {
+         this.accessorCount = assertPositive("accessor count", accessorCount);
+         return this;
+      }
+
+      public Builder inheritChainLength(int inheritChainLength) {
+         if (inheritChainLength < 0) {
+            throw new IllegalArgumentException("Inherit chain length cannot be negative");
+         }
+         this.inheritChainLength = inheritChainLength;
+         return this;
+      }
+
+      public Builder grantsPerAccessor(int grantsPerAccessor) {
+         this.grantsPerAccessor = assertPositive("grants per accessor", grantsPerAccessor);
+         return this;
+      }
+
+      public Builder globalGrantRatio(double globalGrantRatio) {
+         if (globalGrantRatio < 0.0 || globalGrantRatio > 1.0) {
+            throw new IllegalArgumentException("Global grant ratio must be between 0 and 1");
+         }
+         this.globalGrantRatio = globalGrantRatio;
+         return this;
+      }
+
+      public Builder seed(long seed) {
+         this.seed = seed;
+         return this;
+      }
+
+      public Builder batchedSeeding(boolean batchedSeeding) {
+         this.batchedSeeding = batchedSeeding;
+         return this;
+      }
+
+      public AuthorizationGraphGenerator build() {
+         return new AuthorizationGraphGenerator(this);
+      }
+
+      private static int assertPositive(String parameterName, int value) {
+         if (value < 1) {
+            throw new IllegalArgumentException("The " + parameterName + " must be positive");
+         }
+         return value;
+      }
+   }
+
+   /**
+    * The handles to the domains, resource classes and resources of a generated authorization graph.
+    */
+   public static class Graph {
+      private final List<String>              domainNames            = new ArrayList<>();
+      private final List<String>              resourceClassNames     = new ArrayList<>();
+      private final Map<String, List<String>> permissionNamesByClass = new HashMap<>();
+      private final Map<String, List<Resource>> resourcesByClass     = new HashMap<>();
+      private final List<Resource>            accessors              = new ArrayList<>();
+      private final List<Resource>            roles                  = new ArrayList<>();
+      private       String                    accessorClassName;
+      private       String                    roleClassName;
+      private       int                       inheritGrantCount;
+      private       int                       directGrantCount;
+      private       int                       globalGrantCount;
+
+      private Graph() {
+      }
+
+      /**
+       * Returns the domain names in breadth-first order, i.e. the first element is the root domain
+       * and the last element is a leaf domain at the deepest level.
+       */
+      public List<String> getDomainNames() {
+         return Collections.unmodifiableList(domainNames);
+      }
+
+      public String getRootDomainName() {
+         return domainNames.get(0);
+      }
+
+      public String getLeafDomainName() {
+         return domainNames.get(domainNames.size() - 1);
+      }
+
+      public List<String> getResourceClassNames() {
+         return Collections.unmodifiableList(resourceClassNames);
+      }
+
+      public List<String> getPermissionNames(String resourceClassName) {
+         return Collections.unmodifiableList(permissionNamesByClass.get(resourceClassName));
+      }
+
+      public List<Resource> getResources(String resourceClassName) {
+         return Collections.unmodifiableList(resourcesByClass.get(resourceClassName));
+      }
+
+      public String getAccessorClassName() {
+         return accessorClassName;
+      }
+
+      public String getRoleClassName() {
+         return roleClassName;
+      }
+
+      public List<Resource> getAccessors() {
+         return Collections.unmodifiableList(accessors);
+      }
+
+      public List<Resource> getRoles() {
+         return Collections.unmodifiableList(roles);
+      }
+
+      public int getInheritGrantCount() {
+         return inheritGrantCount;
+      }
+
+      public int getDirectGrantCount() {
+         return directGrantCount;
+      }
+
+      public int getGlobalGrantCount() {
+         return globalGrantCount;
+      }
+   }
+
+   private enum GrantType {INHERIT, DIRECT, GLOBAL}
+
+   private static class Grant {
+      private final GrantType type;
+      private final Resource  accessor;
+      private final Resource  accessed;
+      private final String    resourceClassName;
+      private final String    domainName;
+      private final String    permissionName;
+
+      private Grant(GrantType type,
+                    Resource accessor,
+                    Resource accessed,
+                    String resourceClassName,
+                    String domainName,
+                    String permissionName) {
+         this.type = type;
+         this.accessor = Resources.getInstance(accessor.getId());
+         this.accessed = accessed == null ? null : Resources.getInstance(accessed.getId());
+         this.resourceClassName = resourceClassName;
+         this.domainName = domainName;
+         this.permissionName = permissionName;
+      }
+
+      private static Grant newInherit(Resource accessor, Resource accessed, String resourceClassName) {
+         return new Grant(GrantType.INHERIT, accessor, accessed, resourceClassName, null, ResourcePermissions.INHERIT);
+      }
+
+      private static Grant newDirect(Resource accessor, Resource accessed, String resourceClassName, String permissionName) {
+         return new Grant(GrantType.DIRECT, accessor, accessed, resourceClassName, null, permissionName);
+      }
+
+      private static Grant newGlobal(Resource accessor, String resourceClassName, String domainName, String permissionName) {
+         return new Grant(GrantType.GLOBAL, accessor, null, resourceClassName, domainName, permissionName);
+      }
+
+      @Override
+      public boolean equals(Object other) {
+         if (this == other) {
+            return true;
+         }
+         if (other == null || getClass() != other.getClass()) {
+            return false;
+         }
+
+         Grant otherGrant = (Grant) other;
+
+         return type == otherGrant.type
+               && accessor.equals(otherGrant.accessor)
+               && (accessed != null ? accessed.equals(otherGrant.accessed) : otherGrant.accessed == null)
+               && (resourceClassName != null ? resourceClassName.equals(otherGrant.resourceClassName) : otherGrant.resourceClassName == null)
+               && (domainName != null ? domainName.equals(otherGrant.domainName) : otherGrant.domainName == null)
+               && permissionName.equals(otherGrant.permissionName);
+      }
+
+      @Override
+      public int hashCode() {
+         int result = type.hashCode();
+         result = 31 * result + accessor.hashCode();
+         result = 31 * result + (accessed != null ? accessed.hashCode() : 0);
+         result = 31 * result + (resourceClassName != null ? resourceClassName.hashCode() : 0);
+         result = 31 * result + (domainName != null ? domainName.hashCode() : 0);
+         result = 31 * result + permissionName.hashCode();
+         return result;
+      }
+   }
+}
@@ -26,24 +26,23 @@ import java.sql.SQLException;
 public class CaseSensitiveChecker {
    private static final String SENTINEL_VALUE__lower  = "test_domain_case_sensitivity";
    private static final String SENTINEL_VALUE__UPPER  = SENTINEL_VALUE__lower.toUpperCase();
-   private static final String INSERT_SENTINEL_VALUE  = "INSERT INTO "
-         + DbBase.getSchemaAndTableNamePrefix(TestConfigLoader.getDatabaseSchema())
-         + "Domain (DomainID, DomainName) VALUES (?, ?)";
-   private static final String SELECT_SENTINEL_VALUES = "SELECT DomainID, DomainName FROM "
-         + DbBase.getSchemaAndTableNamePrefix(TestConfigLoader.getDatabaseSchema())
-         + "Domain WHERE DomainName = ?";
-   private static final String DELETE_SENTINEL_VALUES = "DELETE FROM "
-         + DbBase.getSchemaAndTableNamePrefix(TestConfigLoader.getDatabaseSchema())
-         + "Domain WHERE DomainName = ? OR DomainName = ?";
 
-   public static boolean isDatabaseCaseSensitive(DataSource dataSource) throws SQLException {
+   public static boolean isDatabaseCaseSensitive(DataSource dataSource, String dbSchema) throws SQLException {
+      final String schemaAndTableNamePrefix = DbBase.getSchemaAndTableNamePrefix(dbSchema);
+      final String insertSentinelValue = "INSERT INTO " + schemaAndTableNamePrefix
+            + "Domain (DomainID, DomainName) VALUES (?, ?)";
+      final String selectSentinelValues = "SELECT DomainID, DomainName FROM " + schemaAndTableNamePrefix
+            + "Domain WHERE DomainName = ?";
+      final String deleteSentinelValues = "DELETE FROM " + schemaAndTableNamePrefix
+            + "Domain WHERE DomainName = ? OR DomainName = ?";
+
       boolean isSensitive = true;
       boolean hasSentinels = false;
 
       try (Connection connection = dataSource.getConnection();
-           PreparedStatement deleteSentinelsStmt = connection.prepareStatement(DELETE_SENTINEL_VALUES);
-           PreparedStatement insertSentinelStmt = connection.prepareStatement(INSERT_SENTINEL_VALUE);
-           PreparedStatement selectSentinelsStmt = connection.prepareStatement(SELECT_SENTINEL_VALUES);) {
+           PreparedStatement deleteSentinelsStmt = connection.prepareStatement(deleteSentinelValues);
+           PreparedStatement insertSentinelStmt = connection.prepareStatement(insertSentinelValue);
+           PreparedStatement selectSentinelsStmt = connection.prepareStatement(selectSentinelValues);) {
          deleteSentinelsStmt.setString(1, SENTINEL_VALUE__lower);
          deleteSentinelsStmt.setString(2, SENTINEL_VALUE__UPPER);
          deleteSentinelsStmt.executeUpdate();
@@ -66,7 +65,7 @@ public class CaseSensitiveChecker {
       finally {
          if (hasSentinels) {
             try (Connection connection = dataSource.getConnection();
-                 PreparedStatement deleteSentinelsStmt = connection.prepareStatement(DELETE_SENTINEL_VALUES);) {
+                 PreparedStatement deleteSentinelsStmt = connection.prepareStatement(deleteSentinelValues);) {
                deleteSentinelsStmt.setString(1, SENTINEL_VALUE__lower);
                deleteSentinelsStmt.setString(2, SENTINEL_VALUE__UPPER);
                deleteSentinelsStmt.executeUpdate();
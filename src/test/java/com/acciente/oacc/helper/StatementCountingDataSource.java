@@ -0,0 +1,184 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.helper;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A DataSource wrapper that counts the connections obtained and the SQL statements executed through it.
+ * <p/>
+ * Every connection handed out is a dynamic proxy of the connection obtained from the wrapped data source,
+ * and every statement prepared on such a connection is in turn a dynamic proxy that increments the
+ * execution counter before delegating. Counters are shared across threads and can be reset between
+ * measurements.
+ */
+public class StatementCountingDataSource implements DataSource {
+   private final DataSource dataSource;
+   private final AtomicLong connectionCount = new AtomicLong();
+   private final AtomicLong statementCount  = new AtomicLong();
+
+   public StatementCountingDataSource(DataSource dataSource) {
+      if (dataSource == null) {
+         throw new NullPointerException("Data source required, none specified");
+      }
+      this.dataSource = dataSource;
+   }
+
+   /**
+    * Returns the number of statement executions (queries, updates and batches) since the last reset.
+    */
+   public long getStatementCount() {
+      return statementCount.get();
+   }
+
+   /**
+    * Returns the number of connections obtained from this data source since the last reset.
+    */
+   public long getConnectionCount() {
+      return connectionCount.get();
+   }
+
+   public void reset() {
+      connectionCount.set(0);
+      statementCount.set(0);
+   }
+
+   @Override
+   public Connection getConnection() throws SQLException {
+      return wrapConnection(dataSource.getConnection());
+   }
+
+   @Override
+   public Connection getConnection(String username, String password) throws SQLException {
+      return wrapConnection(dataSource.getConnection(username, password));
+   }
+
+   /**
+    * Wraps a connection that was obtained elsewhere, so that the statements executed through it are counted, too.
+    */
+   public Connection wrapConnection(Connection connection) {
+      connectionCount.incrementAndGet();
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                 new Class<?>[]{Connection.class},
+                                                 new ConnectionHandler(connection));
+   }
+
+   @Override
+   public PrintWriter getLogWriter() throws SQLException {
+      return dataSource.getLogWriter();
+   }
+
+   @Override
+   public void setLogWriter(PrintWriter out) throws SQLException {
+      dataSource.setLogWriter(out);
+   }
+
+   @Override
+   public void setLoginTimeout(int seconds) throws SQLException {
+      dataSource.setLoginTimeout(seconds);
+   }
+
+   @Override
+   public int getLoginTimeout() throws SQLException {
+      return dataSource.getLoginTimeout();
+   }
+
+   @Override
+   public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      return dataSource.getParentLogger();
+   }
+
+   @Override
+   public <T> T unwrap(Class<T> iface) throws SQLException {
+      return dataSource.unwrap(iface);
+   }
+
+   @Override
+   public boolean isWrapperFor(Class<?> iface) throws SQLException {
+      return dataSource.isWrapperFor(iface);
+   }
+
+   private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+         return method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+         throw e.getCause();
+      }
+   }
+
+   private class ConnectionHandler implements InvocationHandler {
+      private final Connection connection;
+
+      private ConnectionHandler(Connection connection) {
+         this.connection = connection;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+         final Object result = StatementCountingDataSource.invoke(connection, method, args);
+
+         if (result instanceof Statement) {
+            final Class<?> statementInterface;
+            if (result instanceof CallableStatement) {
+               statementInterface = CallableStatement.class;
+            }
+            else if (result instanceof PreparedStatement) {
+               statementInterface = PreparedStatement.class;
+            }
+            else {
+               statementInterface = Statement.class;
+            }
+            return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                                          new Class<?>[]{statementInterface},
+                                          new StatementHandler((Statement) result));
+         }
+
+         return result;
+      }
+   }
+
+   private class StatementHandler implements InvocationHandler {
+      private final Statement statement;
+
+      private StatementHandler(Statement statement) {
+         this.statement = statement;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+         if (method.getName().startsWith("execute")) {
+            statementCount.incrementAndGet();
+         }
+         return StatementCountingDataSource.invoke(statement, method, args);
+      }
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.helper;
+
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor;
+import com.acciente.oacc.encryptor.jasypt.JasyptPasswordEncryptor;
+import com.acciente.oacc.sql.SQLProfile;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A test configuration loaded from a database configuration property file (<code>dbconfig_*.properties</code>).
+ * <p/>
+ * Each file is only loaded once per JVM, so that the schema of an embedded database is only created once, even when
+ * the same configuration is used by {@link TestConfigLoader} and by tests that run against a specific database.
+ */
+public class TestConfig {
+   public static final String PROP_ENGINE            = "engine";
+   public static final String PROP_DATA_SOURCE_CLASS = "dataSourceClass";
+   public static final String PROP_SQL_PROFILE       = "sqlProfile";
+   public static final String PROP_DB_SCHEMA         = "dbSchema";
+   public static final String PROP_PWD_ENCRYPTOR     = "pwdEncryptor";
+   public static final String PROP_OACC_ROOT_PWD     = "oaccRootPwd";
+   public static final String PROP_SCHEMA_SCRIPT     = "schemaScript";
+
+   public static final String ENGINE_MEMORY = "memory";
+
+   private static final Map<String, TestConfig> loadedConfigs = new HashMap<>();
+
+   private DataSource        dataSource;
+   private Boolean           isDatabaseCaseSensitive;
+   private SQLProfile        sqlProfile;
+   private String            databaseSchema;
+   private PasswordEncryptor passwordEncryptor;
+   private char[]            oaccRootPwd;
+   private boolean           isMemoryEngine;
+
+   public static synchronized TestConfig load(String dbConfigFilename) {
+      TestConfig testConfig = loadedConfigs.get(dbConfigFilename);
+      if (testConfig == null) {
+         try {
+            testConfig = new TestConfig(dbConfigFilename);
+         }
+         catch (RuntimeException e) {
+            throw e;
+         }
+         catch (Exception e) {
+            throw new RuntimeException(e);
+         }
+         loadedConfigs.put(dbConfigFilename, testConfig);
+      }
+      return testConfig;
+   }
+
+   private TestConfig(String dbConfigFilename) throws Exception {
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+      final InputStream inputStream = contextClassLoader.getResourceAsStream(dbConfigFilename);
+      if (inputStream == null) {
+         throw new RuntimeException("could not find resource " + dbConfigFilename);
+      }
+
+      final Properties properties = new Properties();
+      properties.load(inputStream);
+
+      // set password encryptor
+      final String pwdEncryptor = properties.getProperty(PROP_PWD_ENCRYPTOR);
+      if (pwdEncryptor == null) {
+         throw new RuntimeException("no " + PROP_PWD_ENCRYPTOR
+                                          + " property specified in database configuration property file");
+      }
+      passwordEncryptor = getPasswordEncryptor(pwdEncryptor);
+
+      if (properties.getProperty(PROP_OACC_ROOT_PWD) != null)
+      {
+         oaccRootPwd = properties.getProperty(PROP_OACC_ROOT_PWD).toCharArray();
+      }
+
+      // the in-memory engine does not use a database, and compares all names case-sensitively
+      isMemoryEngine = ENGINE_MEMORY.equalsIgnoreCase(properties.getProperty(PROP_ENGINE));
+      if (isMemoryEngine) {
+         isDatabaseCaseSensitive = true;
+      }
+      else {
+         loadDatabaseConfig(properties);
+      }
+   }
+
+   private void loadDatabaseConfig(Properties properties) throws Exception {
+      final Class<?> dataSourceClass = Class.forName(properties.getProperty(PROP_DATA_SOURCE_CLASS));
+      final DataSource vendorSpecificDataSource = (DataSource) dataSourceClass.getDeclaredConstructor().newInstance();
+
+      final String sqlTypeName = properties.getProperty(PROP_SQL_PROFILE);
+      if (sqlTypeName==null) {
+         throw new RuntimeException("no " + PROP_SQL_PROFILE
+                                          + " property specified in database configuration property file");
+      }
+      sqlProfile = SQLProfile.valueOf(sqlTypeName);
+
+      for (String propertyName : properties.stringPropertyNames()) {
+         if (!(PROP_ENGINE.equals(propertyName)
+               || PROP_DATA_SOURCE_CLASS.equals(propertyName)
+               || PROP_SQL_PROFILE.equals(propertyName)
+               || PROP_DB_SCHEMA.equals(propertyName)
+               || PROP_PWD_ENCRYPTOR.equals(propertyName)
+               || PROP_OACC_ROOT_PWD.equals(propertyName)
+               || PROP_SCHEMA_SCRIPT.equals(propertyName))) {
+            setDataSourceProperty(vendorSpecificDataSource, propertyName, properties.getProperty(propertyName));
+         }
+      }
+      dataSource = vendorSpecificDataSource;
+      databaseSchema = properties.getProperty(PROP_DB_SCHEMA);
+
+      // embedded databases start out empty, so their configuration names a script that (re)creates the OACC schema
+      final String schemaScript = properties.getProperty(PROP_SCHEMA_SCRIPT);
+      if (schemaScript != null) {
+         executeSchemaScript(dataSource, schemaScript);
+      }
+
+      isDatabaseCaseSensitive = CaseSensitiveChecker.isDatabaseCaseSensitive(dataSource, databaseSchema);
+   }
+
+   private static void executeSchemaScript(DataSource dataSource, String schemaScript) throws Exception {
+      final InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(schemaScript);
+      if (inputStream == null) {
+         throw new RuntimeException("could not find resource " + schemaScript);
+      }
+
+      // the script is a sequence of semicolon-terminated statements and whole-line "--" comments
+      final StringBuilder script = new StringBuilder();
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            if (!line.trim().startsWith("--")) {
+               script.append(line).append('\n');
+            }
+         }
+      }
+
+      try (Connection connection = dataSource.getConnection();
+           Statement statement = connection.createStatement()) {
+         for (String sql : script.toString().split(";")) {
+            if (!sql.trim().isEmpty()) {
+               try {
+                  statement.execute(sql);
+               }
+               catch (SQLException e) {
+                  throw new SQLException("could not execute statement from " + schemaScript + ": " + sql.trim(), e);
+               }
+            }
+         }
+      }
+   }
+
+   private static PasswordEncryptor getPasswordEncryptor(String encryptorName) {
+      if (encryptorName == null) {
+         throw new IllegalArgumentException("Encryptor name cannot be null");
+      }
+
+      if (encryptorName.equalsIgnoreCase(BCryptPasswordEncryptor.NAME)) {
+         return BCryptPasswordEncryptor.newInstance(4);
+      }
+
+      if (encryptorName.equalsIgnoreCase(JasyptPasswordEncryptor.NAME)) {
+         return JasyptPasswordEncryptor.newInstance("SHA-256", 100000, 16);
+      }
+
+      throw new IllegalArgumentException("Encryptor name " + encryptorName + " not recognized");
+   }
+
+   private static void setDataSourceProperty(DataSource vendorSpecificDataSource,
+                                             String propertyName,
+                                             String valueAsString) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+      Integer valueAsInteger;
+      Boolean valueAsBoolean = null;
+
+      try {
+         valueAsInteger = Integer.parseInt(valueAsString);
+         valueAsString = null;
+      }
+      catch (NumberFormatException e) {
+         valueAsInteger = null;
+      }
+
+      if (valueAsInteger == null && valueAsString != null) {
+         final String trimmedAndLowerCasedValue = valueAsString.trim().toLowerCase();
+         if (trimmedAndLowerCasedValue.equals("true")){
+            valueAsBoolean = Boolean.TRUE;
+            valueAsString = null;
+         }
+         else if (trimmedAndLowerCasedValue.equals("false")){
+            valueAsBoolean = Boolean.FALSE;
+            valueAsString = null;
+         }
+      }
+
+      final String methodName = "set"
+            + propertyName.substring(0, 1).toUpperCase()
+            + propertyName.substring(1);
+      final Method setMethod
+            = vendorSpecificDataSource.getClass().getMethod(methodName,
+                                                            valueAsInteger != null
+                                                            ? int.class
+                                                            : valueAsBoolean != null
+                                                              ? boolean.class
+                                                              : String.class);
+      setMethod.invoke(vendorSpecificDataSource,
+                       valueAsInteger!=null ? valueAsInteger : valueAsBoolean!=null ? valueAsBoolean : valueAsString);
+   }
+
+   public SQLProfile getSQLProfile() {
+      return sqlProfile;
+   }
+
+   public DataSource getDataSource() {
+      return dataSource;
+   }
+
+   public String getDatabaseSchema() {
+      return databaseSchema;
+   }
+
+   public char[] getOaccRootPassword() {
+      return oaccRootPwd;
+   }
+
+   public boolean isDatabaseCaseSensitive() {
+      return isDatabaseCaseSensitive;
+   }
+
+   public boolean isMemoryEngine() {
+      return isMemoryEngine;
+   }
+
+   public PasswordEncryptor getPasswordEncryptor() {
+      return passwordEncryptor;
+   }
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.DomainCreatePermissions;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.IncorrectCredentialsException;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor;
+import com.acciente.oacc.memory.internal.Grant;
+import com.acciente.oacc.memory.internal.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestMemoryAccessControlStore {
+   private static final Resource          SYS_RESOURCE       = Resources.getInstance(0);
+   private static final char[]            OACC_ROOT_PWD      = "toomanysecrets".toCharArray();
+   private static final char[]            USER_PWD           = "user-secret".toCharArray();
+   private static final PasswordEncryptor PASSWORD_ENCRYPTOR = BCryptPasswordEncryptor.newInstance(4);
+
+   private File journalFile;
+
+   @Before
+   public void setUp() throws IOException {
+      journalFile = File.createTempFile("oacc-journal", ".bin");
+      // the store initializes a new system only if the journal file does not exist yet
+      journalFile.delete();
+   }
+
+   @After
+   public void tearDown() {
+      journalFile.delete();
+   }
+
+   @Test
+   public void open_existingJournal_shouldRestoreState() {
+      final MemoryAccessControlStore store = open();
+      final AccessControlContext accessControlContext = getAuthenticatedSystemContext(store);
+
+      accessControlContext.createDomain("parent");
+      accessControlContext.createDomain("child", "parent");
+      accessControlContext.createDomain("obsolete");
+      accessControlContext.createResourceClass("document", false, false);
+      accessControlContext.createResourceClass("user", true, false);
+      accessControlContext.createResourceClass("role", false, false);
+      accessControlContext.createResourcePermission("document", "read");
+      accessControlContext.createResourcePermission("document", "write");
+
+      final Resource user = accessControlContext.createResource("user",
+                                                                "parent",
+                                                                "user-1",
+                                                                PasswordCredentials.newInstance(USER_PWD));
+      final Resource role = accessControlContext.createResource("role", "parent");
+      final Resource document = accessControlContext.createResource("document", "child");
+      final Resource obsoleteDocument = accessControlContext.createResource("document", "child");
+
+      accessControlContext.setResourcePermissions(role, document, setOf(ResourcePermissions.getInstance("read")));
+      accessControlContext.setResourcePermissions(user,
+                                                  role,
+                                                  setOf(ResourcePermissions.getInstance(ResourcePermissions.INHERIT)));
+      accessControlContext.setGlobalResourcePermissions(user,
+                                                        "document",
+                                                        "parent",
+                                                        setOf(ResourcePermissions.getInstance("write")));
+      accessControlContext.deleteResource(obsoleteDocument);
+      accessControlContext.deleteDomain("obsolete");
+      store.close();
+
+      // reopen the journal, with a different root password, which should be ignored
+      final MemoryAccessControlStore reopenedStore = open("ignored".toCharArray());
+      final AccessControlContext reopenedContext = getAuthenticatedSystemContext(reopenedStore);
+
+      assertThat(new HashSet<>(reopenedContext.getResourceClassNames()), is(setOf("document", "user", "role")));
+      assertThat(reopenedContext.getDomainDescendants("parent"), is(setOf("parent", "child")));
+      assertThat(reopenedContext.getDomainDescendants("obsolete").isEmpty(), is(true));
+      assertThat(reopenedContext.getEffectiveResourcePermissions(user, document),
+                 is(setOf(ResourcePermissions.getInstance("read"), ResourcePermissions.getInstance("write"))));
+      try {
+         reopenedContext.getDomainNameByResource(obsoleteDocument);
+         fail("getting the domain of a deleted resource should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase().contains("not found"), is(true));
+      }
+
+      // verify the resource password was restored
+      final AccessControlContext userContext
+            = MemoryAccessControlContextFactory.getAccessControlContext(reopenedStore, PASSWORD_ENCRYPTOR);
+      userContext.authenticate(Resources.getInstance("user-1"), PasswordCredentials.newInstance(USER_PWD));
+      assertThat(userContext.getAuthenticatedResource(), is(Resources.getInstance(user.getId(), "user-1")));
+
+      // verify new ids do not collide with the restored ones
+      final Resource newDocument = reopenedContext.createResource("document", "parent");
+      assertThat(newDocument.getId() > obsoleteDocument.getId(), is(true));
+      reopenedStore.close();
+   }
+
+   @Test
+   public void open_journalWithPartialTrailingRecord_shouldDiscardPartialRecord() throws IOException {
+      final MemoryAccessControlStore store = open();
+      getAuthenticatedSystemContext(store).createDomain("intact");
+      store.close();
+
+      // simulate a crash halfway through writing a record
+      try (FileOutputStream outputStream = new FileOutputStream(journalFile, true)) {
+         outputStream.write(new byte[]{0, 0, 0, 64, 3, 0});
+      }
+
+      final MemoryAccessControlStore reopenedStore = open();
+      final AccessControlContext reopenedContext = getAuthenticatedSystemContext(reopenedStore);
+      assertThat(reopenedContext.getDomainDescendants("intact"), is(setOf("intact")));
+
+      // verify that records appended after recovery are replayed as well
+      reopenedContext.createDomain("appended");
+      reopenedStore.close();
+
+      final AccessControlContext finalContext = getAuthenticatedSystemContext(open());
+      assertThat(finalContext.getDomainDescendants("appended"), is(setOf("appended")));
+   }
+
+   @Test
+   public void open_journalWithCorruptRecordLength_shouldDiscardCorruptTail() throws IOException {
+      final MemoryAccessControlStore store = open();
+      getAuthenticatedSystemContext(store).createDomain("intact");
+      store.close();
+
+      // a negative length and a length far beyond the end of the file must not be used to allocate a buffer
+      for (byte[] corruptTail : Arrays.asList(new byte[]{-1, -1, -1, -2, 3, 0, 0, 0},
+                                              new byte[]{127, -1, -1, -1, 3, 0, 0, 0})) {
+         try (FileOutputStream outputStream = new FileOutputStream(journalFile, true)) {
+            outputStream.write(corruptTail);
+         }
+
+         final MemoryAccessControlStore reopenedStore = open();
+         assertThat(getAuthenticatedSystemContext(reopenedStore).getDomainDescendants("intact"), is(setOf("intact")));
+         reopenedStore.close();
+      }
+   }
+
+   @Test
+   public void open_journalWithUpgradedGrant_shouldRestoreGrantOption() {
+      final MemoryAccessControlStore store = open();
+      final AccessControlContext accessControlContext = getAuthenticatedSystemContext(store);
+
+      accessControlContext.createDomain("domain");
+      accessControlContext.createResourceClass("document", false, false);
+      accessControlContext.createResourcePermission("document", "read");
+      final Resource accessor = accessControlContext.createResource("document", "domain");
+      final Resource document = accessControlContext.createResource("document", "domain");
+
+      // grant, upgrade to the grant option, then re-grant without it, which must not downgrade the grant
+      accessControlContext.grantResourcePermissions(accessor, document, ResourcePermissions.getInstance("read"));
+      accessControlContext.grantResourcePermissions(accessor,
+                                                    document,
+                                                    ResourcePermissions.getInstanceWithGrantOption("read"));
+      accessControlContext.grantResourcePermissions(accessor, document, ResourcePermissions.getInstance("read"));
+      assertThat(accessControlContext.getResourcePermissions(accessor, document),
+                 is(setOf(ResourcePermissions.getInstanceWithGrantOption("read"))));
+      store.close();
+
+      final MemoryAccessControlStore reopenedStore = open();
+      assertThat(getAuthenticatedSystemContext(reopenedStore).getResourcePermissions(accessor, document),
+                 is(setOf(ResourcePermissions.getInstanceWithGrantOption("read"))));
+      reopenedStore.close();
+   }
+
+   @Test
+   public void compact_shouldShrinkJournalAndRestoreState() {
+      final MemoryAccessControlStore store = open();
+      final AccessControlContext accessControlContext = getAuthenticatedSystemContext(store);
+
+      accessControlContext.createDomain("parent");
+      accessControlContext.createDomain("child", "parent");
+      accessControlContext.createResourceClass("document", false, false);
+      accessControlContext.createResourceClass("user", true, false);
+      accessControlContext.createResourcePermission("document", "read");
+      final Resource user = accessControlContext.createResource("user",
+                                                                "parent",
+                                                                "user-1",
+                                                                PasswordCredentials.newInstance(USER_PWD));
+      final Resource document = accessControlContext.createResource("document", "child", "document-1");
+
+      // churn, which leaves records in the journal that do not contribute to the contents of the store
+      for (int i = 0; i < 50; i++) {
+         accessControlContext.grantResourcePermissions(user, document, ResourcePermissions.getInstance("read"));
+         accessControlContext.revokeResourcePermissions(user, document, ResourcePermissions.getInstance("read"));
+         accessControlContext.deleteResource(accessControlContext.createResource("document", "child"));
+      }
+      accessControlContext.createDomain("obsolete");
+      accessControlContext.deleteDomain("obsolete");
+      accessControlContext.setGlobalResourcePermissions(user,
+                                                        "document",
+                                                        "parent",
+                                                        setOf(ResourcePermissions.getInstance("read")));
+
+      final long journalLength = journalFile.length();
+      store.compact();
+      assertThat(journalFile.length() < journalLength / 4, is(true));
+
+      // verify that changes after the compaction are journaled as well
+      final Resource appendedDocument = accessControlContext.createResource("document", "parent");
+      store.close();
+
+      final MemoryAccessControlStore reopenedStore = open("ignored".toCharArray());
+      final AccessControlContext reopenedContext = getAuthenticatedSystemContext(reopenedStore);
+
+      assertThat(new HashSet<>(reopenedContext.getResourceClassNames()), is(setOf("document", "user")));
+      assertThat(reopenedContext.getDomainDescendants("parent"), is(setOf("parent", "child")));
+      assertThat(reopenedContext.getDomainDescendants("obsolete").isEmpty(), is(true));
+      assertThat(reopenedContext.getResourcePermissions(user, document).isEmpty(), is(true));
+      assertThat(reopenedContext.getEffectiveResourcePermissions(user, document),
+                 is(setOf(ResourcePermissions.getInstance("read"))));
+      assertThat(reopenedContext.getEffectiveResourcePermissions(user, appendedDocument),
+                 is(setOf(ResourcePermissions.getInstance("read"))));
+      assertThat(reopenedContext.getDomainNameByResource(Resources.getInstance("document-1")), is("child"));
+
+      final AccessControlContext userContext
+            = MemoryAccessControlContextFactory.getAccessControlContext(reopenedStore, PASSWORD_ENCRYPTOR);
+      userContext.authenticate(Resources.getInstance("user-1"), PasswordCredentials.newInstance(USER_PWD));
+      assertThat(userContext.getAuthenticatedResource(), is(Resources.getInstance(user.getId(), "user-1")));
+
+      final Resource newDocument = reopenedContext.createResource("document", "parent");
+      assertThat(newDocument.getId() > appendedDocument.getId(), is(true));
+      reopenedContext.createDomain("new");
+      assertThat(reopenedContext.getDomainDescendants("new"), is(setOf("new")));
+      reopenedStore.close();
+   }
+
+   @Test
+   public void open_existingJournal_shouldCompactJournal() {
+      final MemoryAccessControlStore store = open();
+      final AccessControlContext accessControlContext = getAuthenticatedSystemContext(store);
+      accessControlContext.createDomain("domain");
+      accessControlContext.createResourceClass("document", false, false);
+      Resource obsoleteDocument = null;
+      for (int i = 0; i < 50; i++) {
+         accessControlContext.createDomain("obsolete");
+         accessControlContext.deleteDomain("obsolete");
+         obsoleteDocument = accessControlContext.createResource("document", "domain");
+         accessControlContext.deleteResource(obsoleteDocument);
+      }
+      store.close();
+      final long journalLength = journalFile.length();
+
+      final MemoryAccessControlStore reopenedStore = open();
+      assertThat(journalFile.length() < journalLength / 4, is(true));
+      assertThat(getAuthenticatedSystemContext(reopenedStore).getDomainDescendants("domain"), is(setOf("domain")));
+      reopenedStore.close();
+
+      // replay the compacted journal, and verify that the id of the deleted resource is not assigned again
+      final MemoryAccessControlStore compactedStore = open();
+      final Resource newDocument = getAuthenticatedSystemContext(compactedStore).createResource("document", "domain");
+      assertThat(newDocument.getId() > obsoleteDocument.getId(), is(true));
+      compactedStore.close();
+   }
+
+   @Test
+   public void newInstance_shouldBeInInitializedState() {
+      final MemoryAccessControlStore accessControlStore
+            = MemoryAccessControlStore.newInstance(OACC_ROOT_PWD, PASSWORD_ENCRYPTOR);
+      final MemoryStore store = accessControlStore.getMemoryStore();
+
+      // verify system-domain, system-resourceClass and system-resource
+      assertThat(store.getDomain(0).getName(), is(AccessControlContext.SYSTEM_DOMAIN));
+      assertThat(store.getDomain(0).getParentId(), is(MemoryStore.NO_PARENT_DOMAIN_ID));
+      assertThat(store.getDescendantDomainIds(0).length, is(1));
+      assertThat(store.getResourceClass(0).getName(), is(AccessControlContext.SYSTEM_RESOURCE_CLASS));
+      // the names of the resource classes do not include the system resource class
+      assertThat(store.getResourceClassNames().isEmpty(), is(true));
+      assertThat(store.getResourceClass(0).isAuthenticatable(), is(true));
+      assertThat(store.getResourceClass(0).isUnauthenticatedCreateAllowed(), is(false));
+      assertThat(store.getResourceClassPermissionNames(0).isEmpty(), is(true));
+      assertThat(store.getResource(0).getResourceClassId(), is(0L));
+      assertThat(store.getResource(0).getDomainId(), is(0L));
+      assertThat(store.getResource(1), is((MemoryStore.ResourceRecord) null));
+
+      // verify system-resource password
+      getAuthenticatedSystemContext(accessControlStore);
+
+      // verify system-resource's permissions on system-domain
+      final long superUserPermissionId = DomainPermissions.getInstance(DomainPermissions.SUPER_USER).getSystemPermissionId();
+      assertThat(toRows(store.getDomainPermissionSysGrants().getByAccessor(0)),
+                 is(toRows(new Grant(0, 0, 0, superUserPermissionId, 0, true, false))));
+
+      // verify system-resource's create-permissions on system-domain
+      final long createPermissionId
+            = DomainCreatePermissions.getInstance(DomainCreatePermissions.CREATE).getSystemPermissionId();
+      final long createChildDomainPermissionId
+            = DomainPermissions.getInstance(DomainPermissions.CREATE_CHILD_DOMAIN).getSystemPermissionId();
+      final long deletePermissionId = DomainPermissions.getInstance(DomainPermissions.DELETE).getSystemPermissionId();
+      assertThat(toRows(store.getDomainCreatePermissionSysGrants().getByAccessor(0)),
+                 is(toRows(new Grant(0, 0, 0, createPermissionId, 0, true, false))));
+      assertThat(toRows(store.getDomainCreatePermissionPostCreateSysGrants().getByAccessor(0)),
+                 is(toRows(new Grant(0, 0, 0, superUserPermissionId, 0, true, true),
+                           new Grant(0, 0, 0, createChildDomainPermissionId, 0, true, true),
+                           new Grant(0, 0, 0, deletePermissionId, 0, true, true))));
+
+      // verify all other grant tables are empty
+      assertThat(store.getResourceCreatePermissionSysGrants().getByAccessor(0).isEmpty(), is(true));
+      assertThat(store.getResourceCreatePermissionPostCreateSysGrants().getByAccessor(0).isEmpty(), is(true));
+      assertThat(store.getResourceCreatePermissionPostCreateGrants().getByAccessor(0).isEmpty(), is(true));
+      assertThat(store.getResourcePermissionSysGrants().getByAccessor(0).isEmpty(), is(true));
+      assertThat(store.getResourcePermissionGrants().getByAccessor(0).isEmpty(), is(true));
+      assertThat(store.getGlobalResourcePermissionSysGrants().getByAccessor(0).isEmpty(), is(true));
+      assertThat(store.getGlobalResourcePermissionGrants().getByAccessor(0).isEmpty(), is(true));
+   }
+
+   @Test
+   public void newInstance_nullArguments_shouldFail() {
+      try {
+         MemoryAccessControlStore.newInstance(OACC_ROOT_PWD, (PasswordEncryptor) null);
+         fail("creating a store without a password encryptor should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase().contains("passwordencryptor required"), is(true));
+      }
+      try {
+         MemoryAccessControlStore.newInstance(PasswordCredentials.newInstance(OACC_ROOT_PWD), null);
+         fail("creating a store without an authentication provider should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage().toLowerCase().contains("authenticationprovider required"), is(true));
+      }
+   }
+
+   @Test
+   public void newInstance_shouldNotShareState() {
+      final AccessControlContext firstContext
+            = getAuthenticatedSystemContext(MemoryAccessControlStore.newInstance(OACC_ROOT_PWD, PASSWORD_ENCRYPTOR));
+      final AccessControlContext secondContext
+            = getAuthenticatedSystemContext(MemoryAccessControlStore.newInstance(OACC_ROOT_PWD, PASSWORD_ENCRYPTOR));
+
+      firstContext.createDomain("first");
+      assertThat(firstContext.getDomainDescendants("first"), is(setOf("first")));
+      assertThat(secondContext.getDomainDescendants("first").isEmpty(), is(true));
+   }
+
+   @Test
+   public void authenticate_incorrectRootPassword_shouldFail() {
+      final AccessControlContext accessControlContext
+            = MemoryAccessControlContextFactory.getAccessControlContext(open(), PASSWORD_ENCRYPTOR);
+      try {
+         accessControlContext.authenticate(SYS_RESOURCE, PasswordCredentials.newInstance("wrong".toCharArray()));
+         fail("authenticating with an incorrect password should have failed");
+      }
+      catch (IncorrectCredentialsException e) {
+         assertThat(e.getMessage().toLowerCase().contains("invalid password"), is(true));
+      }
+   }
+
+   private MemoryAccessControlStore open() {
+      return open(OACC_ROOT_PWD);
+   }
+
+   private MemoryAccessControlStore open(char[] oaccRootPwd) {
+      return MemoryAccessControlStore.open(journalFile, oaccRootPwd, PASSWORD_ENCRYPTOR);
+   }
+
+   private static AccessControlContext getAuthenticatedSystemContext(MemoryAccessControlStore store) {
+      final AccessControlContext accessControlContext
+            = MemoryAccessControlContextFactory.getAccessControlContext(store, PASSWORD_ENCRYPTOR);
+      accessControlContext.authenticate(SYS_RESOURCE, PasswordCredentials.newInstance(OACC_ROOT_PWD));
+      return accessControlContext;
+   }
+
+   private static Set<List<Object>> toRows(List<Grant> grants) {
+      return toRows(grants.toArray(new Grant[grants.size()]));
+   }
+
+   private static Set<List<Object>> toRows(Grant... grants) {
+      final Set<List<Object>> rows = new HashSet<>();
+      for (Grant grant : grants) {
+         rows.add(Arrays.<Object>asList(grant.getAccessorId(),
+                                        grant.getTargetId(),
+                                        grant.getResourceClassId(),
+                                        grant.getPermissionId(),
+                                        grant.getGrantorId(),
+                                        grant.isWithGrant(),
+                                        grant.isPostCreateWithGrant()));
+      }
+      return rows;
+   }
+
+   @SafeVarargs
+   private static <T> Set<T> setOf(T... elements) {
+      final Set<T> set = new HashSet<>();
+      Collections.addAll(set, elements);
+      return set;
+   }
+}
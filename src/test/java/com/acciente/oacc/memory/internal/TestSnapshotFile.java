@@ -0,0 +1,100 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSnapshotFile {
+   private File snapshotFile;
+
+   @Before
+   public void setUp() throws IOException {
+      snapshotFile = File.createTempFile("oacc-snapshot", ".bin");
+   }
+
+   @After
+   public void tearDown() {
+      snapshotFile.delete();
+   }
+
+   @Test
+   public void read_writtenSnapshot_shouldRestoreState() throws IOException {
+      final MemoryStore store = new MemoryStore();
+      final long documentClassId = store.addResourceClass("document", false, false);
+      final long readPermissionId = store.addResourceClassPermission(documentClassId, "read");
+      final long parentDomainId = store.addDomain("parent", MemoryStore.NO_PARENT_DOMAIN_ID);
+      final long childDomainId = store.addDomain("child", parentDomainId);
+      final long userId = store.addResource(documentClassId, parentDomainId);
+      final long documentId = store.addResource(documentClassId, childDomainId);
+      store.setExternalId(userId, "user-1");
+      store.getResourcePermissionGrants()
+            .insert(new Grant(userId, documentId, documentClassId, readPermissionId, userId, true, false));
+
+      SnapshotFile.write(store, 42L, snapshotFile);
+      assertThat(SnapshotFile.readTimestamp(snapshotFile), is(42L));
+
+      final MemoryStore restoredStore = SnapshotFile.read(snapshotFile);
+      assertThat(restoredStore.getResourceClass("document").getId(), is(documentClassId));
+      assertThat(restoredStore.getResourceClassPermissionId(documentClassId, "read"), is(readPermissionId));
+      assertThat(restoredStore.getDomain("child").getParentId(), is(parentDomainId));
+      assertThat(restoredStore.getResourceByExternalId("user-1").getId(), is(userId));
+      assertThat(restoredStore.getResource(documentId).getExternalId(), is(nullValue()));
+      assertThat(restoredStore.getResource(documentId).getDomainId(), is(childDomainId));
+
+      final List<Grant> grants
+            = restoredStore.getResourcePermissionGrants().getByAccessorAndTarget(userId, documentId);
+      assertThat(grants.size(), is(1));
+      assertThat(grants.get(0).getPermissionId(), is(readPermissionId));
+      assertThat(grants.get(0).isWithGrant(), is(true));
+      assertThat(Arrays.equals(restoredStore.getDescendantDomainIds(parentDomainId),
+                               store.getDescendantDomainIds(parentDomainId)),
+                 is(true));
+   }
+
+   @Test
+   public void read_truncatedSnapshot_shouldFail() throws IOException {
+      final MemoryStore store = new MemoryStore();
+      store.addDomain("domain", MemoryStore.NO_PARENT_DOMAIN_ID);
+      SnapshotFile.write(store, 1L, snapshotFile);
+
+      try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+         file.setLength(file.length() - 2);
+      }
+
+      try {
+         SnapshotFile.read(snapshotFile);
+         fail("reading a truncated snapshot should have failed");
+      }
+      catch (IOException | IllegalStateException e) {
+         // expected
+      }
+   }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.memory.internal;
+
+import com.acciente.oacc.ResourcePermissions;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestTopologicalOrder {
+   private static final long INHERIT_PERMISSION_ID
+         = ResourcePermissions.getInstance(ResourcePermissions.INHERIT).getSystemPermissionId();
+
+   private GrantTable inheritGrants;
+
+   @Before
+   public void setUp() {
+      inheritGrants = new MemoryStore().getResourcePermissionSysGrants();
+   }
+
+   @Test
+   public void isReachable_edgesAddedAgainstOrder_shouldReorder() {
+      // build the chain 1 -> 2 -> 3 -> 4 backwards, and join two disjoint chains, so that most edges reorder nodes
+      addInherit(3, 4);
+      addInherit(2, 3);
+      addInherit(5, 6);
+      addInherit(6, 1);
+      addInherit(1, 2);
+
+      assertThat(inheritGrants.isReachable(5, 4), is(true));
+      assertThat(inheritGrants.isReachable(1, 4), is(true));
+      assertThat(inheritGrants.isReachable(2, 2), is(true));
+      assertThat(inheritGrants.isReachable(4, 1), is(false));
+      assertThat(inheritGrants.isReachable(3, 6), is(false));
+      assertThat(inheritGrants.isReachable(7, 1), is(false));
+
+      // an edge between existing nodes that is already ordered must keep all other paths intact
+      addInherit(4, 7);
+      addInherit(7, 8);
+      assertThat(inheritGrants.isReachable(5, 8), is(true));
+      assertThat(inheritGrants.isReachable(8, 5), is(false));
+   }
+
+   @Test
+   public void isReachable_removedEdges_shouldNotBeReachable() {
+      addInherit(1, 2);
+      addInherit(2, 3);
+      inheritGrants.removeByAccessorAndTarget(2, 3);
+
+      assertThat(inheritGrants.isReachable(1, 3), is(false));
+
+      // the removed nodes may be re-added in the opposite direction
+      addInherit(3, 1);
+      assertThat(inheritGrants.isReachable(3, 2), is(true));
+      assertThat(inheritGrants.isReachable(2, 3), is(false));
+
+      inheritGrants.removeByAccessorOrTarget(1);
+      assertThat(inheritGrants.isReachable(3, 2), is(false));
+   }
+
+   @Test
+   public void isReachable_cycle_shouldFallBackToUnboundedSearch() {
+      addInherit(1, 2);
+      addInherit(2, 3);
+      addInherit(3, 1);
+
+      assertThat(inheritGrants.isReachable(2, 1), is(true));
+      assertThat(inheritGrants.isReachable(3, 2), is(true));
+      assertThat(inheritGrants.isReachable(1, 4), is(false));
+   }
+
+   private void addInherit(long accessorId, long targetId) {
+      inheritGrants.insert(new Grant(accessorId, targetId, 1, INHERIT_PERMISSION_ID, 0, false, false));
+   }
+}
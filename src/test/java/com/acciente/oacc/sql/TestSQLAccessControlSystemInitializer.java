@@ -40,6 +40,7 @@ import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
 import com.acciente.oacc.helper.TestConfigLoader;
 import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.sql.Connection;
@@ -51,22 +52,25 @@ import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
 
 public class TestSQLAccessControlSystemInitializer {
    private static Connection con;
 
-   static {
-      try {
-         con = TestConfigLoader.getDataSource().getConnection();
-      }
-      catch (SQLException e) {
-         throw new RuntimeException(e);
-      }
+   @BeforeClass
+   public static void setUpOnce() throws Exception {
+      // the initialization of an in-memory store is covered by TestMemoryAccessControlStore
+      assumeFalse("verifies the OACC tables of a database; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      con = TestConfigLoader.getDataSource().getConnection();
    }
 
    @AfterClass
    public static void tearDownOnce() throws Exception {
-      con.close();
+      if (con != null) {
+         con.close();
+      }
    }
 
    @Before
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSQLReadCoalescer {
+   private static final int CALLER_COUNT = 8;
+
+   @Test
+   public void coalesce_identicalConcurrentLookups_shouldRunOnce() throws Exception {
+      final SQLReadCoalescer readCoalescer = SQLReadCoalescer.newInstance();
+      final BlockingLookup lookup = new BlockingLookup();
+      final ExecutorService executorService = Executors.newFixedThreadPool(CALLER_COUNT);
+
+      try {
+         final Future<String> firstResult = executorService.submit(coalescing(readCoalescer, lookup, "key"));
+         assertThat(lookup.startedLatch.await(5, TimeUnit.SECONDS), is(true));
+
+         final List<Future<String>> otherResults = new ArrayList<>();
+         for (int i = 1; i < CALLER_COUNT; i++) {
+            otherResults.add(executorService.submit(coalescing(readCoalescer, lookup, "key")));
+         }
+         // give the other callers a chance to join the lookup in flight before we let it complete
+         Thread.sleep(100);
+         lookup.releaseLatch.countDown();
+
+         assertThat(firstResult.get(5, TimeUnit.SECONDS), is("result-1"));
+         for (Future<String> otherResult : otherResults) {
+            assertThat(otherResult.get(5, TimeUnit.SECONDS), is("result-1"));
+         }
+         assertThat(lookup.runCount.get(), is(1));
+      }
+      finally {
+         executorService.shutdownNow();
+      }
+   }
+
+   @Test
+   public void coalesce_differentKeys_shouldNotShare() {
+      final SQLReadCoalescer readCoalescer = SQLReadCoalescer.newInstance();
+      final BlockingLookup lookup = new BlockingLookup();
+      lookup.releaseLatch.countDown();
+
+      assertThat(readCoalescer.coalesce(lookup, "key", 1L), is("result-1"));
+      assertThat(readCoalescer.coalesce(lookup, "key", 2L), is("result-2"));
+      assertThat(lookup.runCount.get(), is(2));
+   }
+
+   @Test
+   public void coalesce_afterInvalidation_shouldNotShareLookupInFlight() throws Exception {
+      final SQLReadCoalescer readCoalescer = SQLReadCoalescer.newInstance();
+      final BlockingLookup lookup = new BlockingLookup();
+      final ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+      try {
+         final Future<String> staleResult = executorService.submit(coalescing(readCoalescer, lookup, "key"));
+         assertThat(lookup.startedLatch.await(5, TimeUnit.SECONDS), is(true));
+
+         // a modification completes while the first lookup is still in flight
+         readCoalescer.invalidate();
+
+         final Future<String> freshResult = executorService.submit(coalescing(readCoalescer, lookup, "key"));
+         lookup.releaseLatch.countDown();
+
+         assertThat(staleResult.get(5, TimeUnit.SECONDS), is("result-1"));
+         assertThat(freshResult.get(5, TimeUnit.SECONDS), is("result-2"));
+         assertThat(lookup.runCount.get(), is(2));
+      }
+      finally {
+         executorService.shutdownNow();
+      }
+   }
+
+   @Test
+   public void coalesce_failedLookup_shouldRethrowAndNotBeRetained() {
+      final SQLReadCoalescer readCoalescer = SQLReadCoalescer.newInstance();
+      final SQLReadCoalescer.Lookup<String> failingLookup = new SQLReadCoalescer.Lookup<String>() {
+         @Override
+         public String run() {
+            throw new IllegalArgumentException("lookup failed");
+         }
+      };
+
+      try {
+         readCoalescer.coalesce(failingLookup, "key");
+         fail("coalescing a failing lookup should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         assertThat(e.getMessage(), is("lookup failed"));
+      }
+
+      final BlockingLookup lookup = new BlockingLookup();
+      lookup.releaseLatch.countDown();
+      assertThat(readCoalescer.coalesce(lookup, "key"), is("result-1"));
+   }
+
+   private static Callable<String> coalescing(final SQLReadCoalescer readCoalescer,
+                                              final SQLReadCoalescer.Lookup<String> lookup,
+                                              final Object key) {
+      return new Callable<String>() {
+         @Override
+         public String call() {
+            return readCoalescer.coalesce(lookup, key);
+         }
+      };
+   }
+
+   private static class BlockingLookup implements SQLReadCoalescer.Lookup<String> {
+      private final AtomicInteger  runCount     = new AtomicInteger();
+      private final CountDownLatch startedLatch = new CountDownLatch(1);
+      private final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+      @Override
+      public String run() {
+         final int run = runCount.incrementAndGet();
+         startedLatch.countDown();
+         try {
+            releaseLatch.await(5, TimeUnit.SECONDS);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return "result-" + run;
+      }
+   }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.TestAccessControlBase;
+import com.acciente.oacc.helper.TestConfigLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeFalse;
+
+public class TestSQLReadReplica extends TestAccessControlBase {
+   private static final long NEVER_STALE = Long.MAX_VALUE;
+
+   @Before
+   public void assumeDatabase() {
+      assumeFalse("the read replica is loaded from a database; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+   }
+
+   @Test
+   public void localModification_shouldBeVisibleImmediately() {
+      final SQLReadReplica readReplica = newReadReplica(NEVER_STALE);
+      final AccessControlContext replicaAccessControlContext = newReplicaAccessControlContext(readReplica);
+
+      final String domainName = generateUniqueDomainName();
+      final String resourceClassName = generateUniqueResourceClassName();
+      final String permissionName = generateUniquePermissionName();
+      replicaAccessControlContext.createDomain(domainName);
+      replicaAccessControlContext.createResourceClass(resourceClassName, false, false);
+      replicaAccessControlContext.createResourcePermission(resourceClassName, permissionName);
+      final Resource accessorResource = replicaAccessControlContext.createResource(resourceClassName, domainName);
+      final Resource accessedResource = replicaAccessControlContext.createResource(resourceClassName, domainName);
+
+      final ResourcePermission permission = ResourcePermissions.getInstance(permissionName);
+      replicaAccessControlContext.setResourcePermissions(accessorResource, accessedResource, setOf(permission));
+
+      assertThat(replicaAccessControlContext.getResourcePermissions(accessorResource, accessedResource),
+                 is(setOf(permission)));
+      assertThat(replicaAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, permission),
+                 is(true));
+   }
+
+   @Test
+   public void externalModification_shouldBeVisibleAfterRefresh() {
+      final SQLReadReplica readReplica = newReadReplica(NEVER_STALE);
+      final AccessControlContext replicaAccessControlContext = newReplicaAccessControlContext(readReplica);
+
+      authenticateSystemAccessControlContext();
+      final String domainName = generateDomain();
+      assertThat(replicaAccessControlContext.getDomainDescendants(domainName).isEmpty(), is(true));
+
+      readReplica.refresh();
+
+      assertThat(replicaAccessControlContext.getDomainDescendants(domainName), is(setOf(domainName)));
+   }
+
+   @Test
+   public void externalModification_shouldBeVisibleAfterBackgroundReloadWhenStale() throws InterruptedException {
+      final SQLReadReplica readReplica = newReadReplica(0);
+      final AccessControlContext replicaAccessControlContext = newReplicaAccessControlContext(readReplica);
+
+      authenticateSystemAccessControlContext();
+      final String domainName = generateDomain();
+
+      // a stale replica keeps answering queries while it reloads in the background
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (replicaAccessControlContext.getDomainDescendants(domainName).isEmpty()
+            && System.currentTimeMillis() < deadline) {
+         Thread.sleep(10);
+      }
+      assertThat(replicaAccessControlContext.getDomainDescendants(domainName), is(setOf(domainName)));
+   }
+
+   @Test
+   public void queries_shouldNotObtainConnection_andModificationsShouldUseOneConnectionPerCall() {
+      final AtomicInteger connectionCount = new AtomicInteger();
+      final DataSource dataSource = TestConfigLoader.getDataSource();
+      final DataSource countingDataSource
+            = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                                                  new Class<?>[]{DataSource.class},
+                                                  new InvocationHandler() {
+                                                     @Override
+                                                     public Object invoke(Object proxy, Method method, Object[] args)
+                                                           throws Throwable {
+                                                        if (method.getName().equals("getConnection")) {
+                                                           connectionCount.incrementAndGet();
+                                                        }
+                                                        try {
+                                                           return method.invoke(dataSource, args);
+                                                        }
+                                                        catch (InvocationTargetException e) {
+                                                           throw e.getCause();
+                                                        }
+                                                     }
+                                                  });
+      final SQLReadReplica readReplica = SQLReadReplica.newInstance(countingDataSource,
+                                                                    TestConfigLoader.getDatabaseSchema(),
+                                                                    TestConfigLoader.getSQLProfile(),
+                                                                    NEVER_STALE);
+      final AccessControlContext replicaAccessControlContext = newReplicaAccessControlContext(readReplica);
+      final String domainName = generateUniqueDomainName();
+      final String resourceClassName = generateUniqueResourceClassName();
+      replicaAccessControlContext.createDomain(domainName);
+      replicaAccessControlContext.createResourceClass(resourceClassName, false, false);
+
+      connectionCount.set(0);
+      assertThat(replicaAccessControlContext.getDomainDescendants(domainName), is(setOf(domainName)));
+      assertThat(replicaAccessControlContext.getResourceClassInfo(resourceClassName).isAuthenticatable(), is(false));
+      assertThat(connectionCount.get(), is(0));
+
+      // creating a resource takes several statements, which all run on the connection of the call
+      replicaAccessControlContext.createResource(resourceClassName, domainName);
+      assertThat(connectionCount.get(), is(1));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void newInstance_negativeMaxStaleness_shouldFail() {
+      SQLReadReplica.newInstance(TestConfigLoader.getDataSource(),
+                                 TestConfigLoader.getDatabaseSchema(),
+                                 TestConfigLoader.getSQLProfile(),
+                                 -1);
+   }
+
+   private static SQLReadReplica newReadReplica(long maxStalenessMillis) {
+      return SQLReadReplica.newInstance(TestConfigLoader.getDataSource(),
+                                        TestConfigLoader.getDatabaseSchema(),
+                                        TestConfigLoader.getSQLProfile(),
+                                        maxStalenessMillis);
+   }
+
+   private static AccessControlContext newReplicaAccessControlContext(SQLReadReplica readReplica) {
+      final AccessControlContext replicaAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(readReplica,
+                                                                     TestConfigLoader.getPasswordEncryptor());
+      replicaAccessControlContext.authenticate(getSystemResource(),
+                                               PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return replicaAccessControlContext;
+   }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.TestAccessControlBase;
+import com.acciente.oacc.helper.TestConfigLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeFalse;
+
+public class TestSQLResourceIndex extends TestAccessControlBase {
+   private static final ResourcePermission INHERIT = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
+
+   private SQLResourceIndex     resourceIndex;
+   private AccessControlContext indexedAccessControlContext;
+   private String               resourceClassName;
+   private String               domainName;
+   private ResourcePermission   permission1;
+   private ResourcePermission   permission2;
+   private Resource             accessorResource;
+   private Resource             accessedResource1;
+   private Resource             accessedResource2;
+
+   @Before
+   public void setUpIndexedAccessControlContext() {
+      assumeFalse("the resource index is an option of the SQL engine; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      resourceIndex = SQLResourceIndex.newInstance();
+      indexedAccessControlContext = newIndexedAccessControlContext();
+
+      resourceClassName = generateResourceClass(false, false);
+      domainName = generateDomain();
+      permission1 = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      permission2 = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+      accessorResource = generateUnauthenticatableResource();
+      accessedResource1 = indexedAccessControlContext.createResource(resourceClassName, domainName);
+      accessedResource2 = indexedAccessControlContext.createResource(resourceClassName, domainName);
+   }
+
+   @Test
+   public void getResourcesByResourcePermissions_shouldIntersectPermissions() {
+      indexedAccessControlContext.setResourcePermissions(accessorResource,
+                                                         accessedResource1,
+                                                         setOf(permission1, permission2));
+      indexedAccessControlContext.setResourcePermissions(accessorResource, accessedResource2, setOf(permission1));
+
+      assertResourcesByResourcePermissions(setOf(accessedResource1, accessedResource2), permission1);
+      assertResourcesByResourcePermissions(setOf(accessedResource1), permission2);
+      assertResourcesByResourcePermissions(setOf(accessedResource1), permission1, permission2);
+      assertThat(indexedAccessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                        resourceClassName,
+                                                                                        domainName,
+                                                                                        permission2,
+                                                                                        permission1),
+                 is(setOf(accessedResource1)));
+      assertThat(indexedAccessControlContext.getResourcesByResourcePermissionsAndDomain(accessorResource,
+                                                                                        resourceClassName,
+                                                                                        generateDomain(),
+                                                                                        permission1),
+                 is(Collections.<Resource>emptySet()));
+   }
+
+   @Test
+   public void grantAndRevokeResourcePermissions_shouldInvalidate() {
+      assertResourcesByResourcePermissions(Collections.<Resource>emptySet(), permission1, permission2);
+
+      indexedAccessControlContext.grantResourcePermissions(accessorResource, accessedResource1, permission1, permission2);
+      indexedAccessControlContext.grantResourcePermissions(accessorResource, accessedResource2, permission1);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource1), permission1, permission2);
+
+      indexedAccessControlContext.grantResourcePermissions(accessorResource, accessedResource2, permission2);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource1, accessedResource2), permission1, permission2);
+
+      indexedAccessControlContext.revokeResourcePermissions(accessorResource, accessedResource1, permission2);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource2), permission1, permission2);
+      assertResourcesByResourcePermissions(setOf(accessedResource1, accessedResource2), permission1);
+   }
+
+   @Test
+   public void grantAndRevokeGlobalResourcePermissions_shouldInvalidate() {
+      indexedAccessControlContext.grantResourcePermissions(accessorResource, accessedResource1, permission1);
+      assertResourcesByResourcePermissions(setOf(accessedResource1), permission1);
+
+      indexedAccessControlContext.grantGlobalResourcePermissions(accessorResource,
+                                                                 resourceClassName,
+                                                                 domainName,
+                                                                 permission1);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource1, accessedResource2), permission1);
+
+      indexedAccessControlContext.revokeGlobalResourcePermissions(accessorResource,
+                                                                  resourceClassName,
+                                                                  domainName,
+                                                                  permission1);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource1), permission1);
+   }
+
+   @Test
+   public void inheritedResourcePermissions_shouldInvalidate() {
+      final Resource donorResource = generateUnauthenticatableResource();
+      indexedAccessControlContext.grantResourcePermissions(donorResource, accessedResource2, permission1, permission2);
+      assertResourcesByResourcePermissions(Collections.<Resource>emptySet(), permission1, permission2);
+
+      indexedAccessControlContext.grantResourcePermissions(accessorResource, donorResource, INHERIT);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource2), permission1, permission2);
+
+      indexedAccessControlContext.revokeResourcePermissions(accessorResource, donorResource, INHERIT);
+
+      assertResourcesByResourcePermissions(Collections.<Resource>emptySet(), permission1, permission2);
+   }
+
+   @Test
+   public void superUserAndDeletion_shouldInvalidate() {
+      assertResourcesByResourcePermissions(Collections.<Resource>emptySet(), permission1);
+
+      indexedAccessControlContext.grantDomainPermissions(accessorResource,
+                                                         domainName,
+                                                         DomainPermissions.getInstance(DomainPermissions.SUPER_USER));
+
+      assertResourcesByResourcePermissions(setOf(accessedResource1, accessedResource2), permission1);
+
+      indexedAccessControlContext.deleteResource(accessedResource1);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource2), permission1);
+   }
+
+   @Test
+   public void modificationThroughSharingContext_shouldInvalidate() {
+      final AccessControlContext sharingAccessControlContext = newIndexedAccessControlContext();
+      assertResourcesByResourcePermissions(Collections.<Resource>emptySet(), permission1);
+
+      sharingAccessControlContext.grantResourcePermissions(accessorResource, accessedResource2, permission1);
+
+      assertResourcesByResourcePermissions(setOf(accessedResource2), permission1);
+   }
+
+   @Test
+   public void boundedIndex_shouldEvictAndKeepExternalIds() {
+      resourceIndex = SQLResourceIndex.newInstance(1);
+      indexedAccessControlContext = newIndexedAccessControlContext();
+      final Resource accessedResource3 = indexedAccessControlContext.createResource(resourceClassName,
+                                                                                    domainName,
+                                                                                    generateUniqueExternalId());
+      indexedAccessControlContext.setResourcePermissions(accessorResource,
+                                                         accessedResource3,
+                                                         setOf(permission1, permission2));
+      indexedAccessControlContext.setResourcePermissions(accessorResource, accessedResource1, setOf(permission1));
+
+      // each query needs more bitmaps than the index keeps
+      assertResourcesByResourcePermissions(setOf(accessedResource3), permission1, permission2);
+      assertResourcesByResourcePermissions(setOf(accessedResource1, accessedResource3), permission1);
+      assertResourcesByResourcePermissions(setOf(accessedResource3), permission2, permission1);
+
+      resourceIndex.invalidate();
+
+      assertResourcesByResourcePermissions(setOf(accessedResource3), permission2);
+   }
+
+   private void assertResourcesByResourcePermissions(Set<Resource> expectedResources,
+                                                     ResourcePermission resourcePermission,
+                                                     ResourcePermission... resourcePermissions) {
+      // the indexed query has to agree with the one of a context without the index
+      authenticateSystemAccessControlContext();
+      assertThat(systemAccessControlContext.getResourcesByResourcePermissions(accessorResource,
+                                                                              resourceClassName,
+                                                                              resourcePermission,
+                                                                              resourcePermissions),
+                 is(expectedResources));
+      assertThat(indexedAccessControlContext.getResourcesByResourcePermissions(accessorResource,
+                                                                               resourceClassName,
+                                                                               resourcePermission,
+                                                                               resourcePermissions),
+                 is(expectedResources));
+   }
+
+   private AccessControlContext newIndexedAccessControlContext() {
+      final AccessControlContext indexedAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile(),
+                                                                     TestConfigLoader.getPasswordEncryptor(),
+                                                                     SQLAccessControlContextOptions.newInstance()
+                                                                           .withResourceIndex(resourceIndex));
+      indexedAccessControlContext.authenticate(getSystemResource(),
+                                               PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return indexedAccessControlContext;
+   }
+}
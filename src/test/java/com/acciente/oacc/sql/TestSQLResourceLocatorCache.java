@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.TestAccessControlBase;
+import com.acciente.oacc.helper.TestConfigLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.anyOf;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+public class TestSQLResourceLocatorCache extends TestAccessControlBase {
+   private SQLResourceLocatorCache resourceLocatorCache;
+   private AccessControlContext    cachedAccessControlContext;
+   private String                  resourceClassName;
+   private String                  domainName;
+
+   @Before
+   public void setUpCachedAccessControlContext() {
+      assumeFalse("the resource locator cache is an option of the SQL engine; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      resourceLocatorCache = SQLResourceLocatorCache.newInstance(100);
+      cachedAccessControlContext = newCachedAccessControlContext();
+
+      resourceClassName = generateResourceClass(false, false);
+      domainName = generateDomain();
+   }
+
+   @Test
+   public void deleteResource_shouldInvalidate() {
+      final String externalId = generateUniqueExternalId();
+      final Resource resource = cachedAccessControlContext.createResource(resourceClassName, domainName, externalId);
+      assertThat(cachedAccessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(domainName));
+
+      cachedAccessControlContext.deleteResource(resource);
+
+      assertNotFound(cachedAccessControlContext, Resources.getInstance(externalId));
+      assertNotFound(cachedAccessControlContext, Resources.getInstance(resource.getId()));
+      assertNotFound(cachedAccessControlContext, resource);
+   }
+
+   @Test
+   public void deleteResources_shouldInvalidate() {
+      final String externalId = generateUniqueExternalId();
+      final Resource resource = cachedAccessControlContext.createResource(resourceClassName, domainName, externalId);
+      assertThat(cachedAccessControlContext.getDomainNameByResource(Resources.getInstance(externalId)), is(domainName));
+
+      cachedAccessControlContext.deleteResources(Collections.singletonList(Resources.getInstance(externalId)));
+
+      assertNotFound(cachedAccessControlContext, Resources.getInstance(externalId));
+      assertNotFound(cachedAccessControlContext, resource);
+   }
+
+   @Test
+   public void setExternalId_shouldInvalidate() {
+      final Resource resource = cachedAccessControlContext.createResource(resourceClassName, domainName);
+      final Resource resourceById = Resources.getInstance(resource.getId());
+      assertThat(cachedAccessControlContext.resolveResources(Collections.singletonList(resourceById)),
+                 is(Collections.singletonList(resource)));
+
+      final String externalId = generateUniqueExternalId();
+      final Resource resourceWithExternalId = cachedAccessControlContext.setExternalId(resource, externalId);
+
+      assertThat(resourceWithExternalId, is(Resources.getInstance(resource.getId(), externalId)));
+      assertThat(cachedAccessControlContext.resolveResources(Arrays.asList(resourceById,
+                                                                            Resources.getInstance(externalId),
+                                                                            resource)),
+                 is(Arrays.asList(resourceWithExternalId, resourceWithExternalId, resourceWithExternalId)));
+   }
+
+   @Test
+   public void modificationsThroughSharingContext_shouldInvalidate() {
+      final AccessControlContext sharingAccessControlContext = newCachedAccessControlContext();
+      final Resource renamedResource = cachedAccessControlContext.createResource(resourceClassName, domainName);
+      final String deletedExternalId = generateUniqueExternalId();
+      final Resource deletedResource
+            = cachedAccessControlContext.createResource(resourceClassName, domainName, deletedExternalId);
+
+      // resolve the resources in both contexts, so that both cache them and hold resolved handles to them
+      final Resource renamedResourceById = Resources.getInstance(renamedResource.getId());
+      final Resource deletedResourceByExternalId = Resources.getInstance(deletedExternalId);
+      for (AccessControlContext accessControlContext : Arrays.asList(cachedAccessControlContext,
+                                                                     sharingAccessControlContext)) {
+         assertThat(accessControlContext.resolveResources(Arrays.asList(renamedResourceById,
+                                                                         deletedResourceByExternalId)),
+                    is(Arrays.asList(renamedResource, deletedResource)));
+      }
+      final Resource sharedDeletedResource
+            = sharingAccessControlContext.resolveResources(Collections.singletonList(deletedResourceByExternalId)).get(0);
+
+      final String externalId = generateUniqueExternalId();
+      final Resource renamedResourceWithExternalId = sharingAccessControlContext.setExternalId(renamedResource,
+                                                                                             externalId);
+      sharingAccessControlContext.deleteResource(deletedResourceByExternalId);
+
+      assertThat(cachedAccessControlContext.resolveResources(Collections.singletonList(renamedResourceById)),
+                 is(Collections.singletonList(renamedResourceWithExternalId)));
+      assertNotFound(cachedAccessControlContext, deletedResourceByExternalId);
+      assertNotFound(cachedAccessControlContext, deletedResource);
+      assertNotFound(sharingAccessControlContext, sharedDeletedResource);
+   }
+
+   private static void assertNotFound(AccessControlContext accessControlContext, Resource resource) {
+      try {
+         accessControlContext.getDomainNameByResource(resource);
+         fail("getting domain name for resource after deletion should have failed");
+      }
+      catch (IllegalArgumentException e) {
+         // resources with both ids report that their ids no longer match
+         assertThat(e.getMessage().toLowerCase(), anyOf(containsString("not found"), containsString("does not resolve")));
+      }
+   }
+
+   private AccessControlContext newCachedAccessControlContext() {
+      final AccessControlContext cachedAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     TestConfigLoader.getSQLProfile(),
+                                                                     TestConfigLoader.getPasswordEncryptor(),
+                                                                     SQLAccessControlContextOptions.newInstance()
+                                                                           .withLocatorCache(resourceLocatorCache));
+      cachedAccessControlContext.authenticate(getSystemResource(),
+                                              PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return cachedAccessControlContext;
+   }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.TestAccessControlBase;
+import com.acciente.oacc.helper.TestConfigLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeFalse;
+
+public class TestSQLSuperUserDomainCache extends TestAccessControlBase {
+   private static final DomainPermission SUPER_USER = DomainPermissions.getInstance(DomainPermissions.SUPER_USER);
+   private static final ResourcePermission INHERIT = ResourcePermissions.getInstance(ResourcePermissions.INHERIT);
+
+   private SQLSuperUserDomainCache superUserDomainCache;
+   private AccessControlContext    cachedAccessControlContext;
+   private String                  resourceClassName;
+   private ResourcePermission      customPermission;
+
+   @Before
+   public void setUpCachedAccessControlContext() {
+      assumeFalse("the super-user domain cache is an option of the SQL engine; not applicable to the in-memory engine",
+                  TestConfigLoader.isMemoryEngine());
+
+      superUserDomainCache = SQLSuperUserDomainCache.newInstance();
+      cachedAccessControlContext = newCachedAccessControlContext(TestConfigLoader.getSQLProfile());
+
+      resourceClassName = generateResourceClass(false, false);
+      customPermission = ResourcePermissions.getInstance(generateResourceClassPermission(resourceClassName));
+   }
+
+   @Test
+   public void grantAndRevokeDomainPermissions_shouldInvalidate() {
+      final String domainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = cachedAccessControlContext.createResource(resourceClassName, domainName);
+      assertThat(isSuperUser(accessorResource, accessedResource), is(false));
+
+      cachedAccessControlContext.grantDomainPermissions(accessorResource, domainName, SUPER_USER);
+
+      assertThat(isSuperUser(accessorResource, accessedResource), is(true));
+
+      cachedAccessControlContext.revokeDomainPermissions(accessorResource, domainName, SUPER_USER);
+
+      assertThat(isSuperUser(accessorResource, accessedResource), is(false));
+   }
+
+   @Test
+   public void grantDomainPermissionsThroughSharingContext_shouldInvalidate() {
+      final AccessControlContext sharingAccessControlContext
+            = newCachedAccessControlContext(TestConfigLoader.getSQLProfile());
+      final String domainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = cachedAccessControlContext.createResource(resourceClassName, domainName);
+      assertThat(isSuperUser(accessorResource, accessedResource), is(false));
+
+      sharingAccessControlContext.setDomainPermissions(accessorResource, domainName, setOf(SUPER_USER));
+
+      assertThat(isSuperUser(accessorResource, accessedResource), is(true));
+   }
+
+   @Test
+   public void createChildDomain_shouldInvalidate() {
+      final String domainName = generateDomain();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      cachedAccessControlContext.grantDomainPermissions(accessorResource, domainName, SUPER_USER);
+      assertThat(isSuperUser(accessorResource, cachedAccessControlContext.createResource(resourceClassName, domainName)),
+                 is(true));
+
+      final String childDomainName = generateUniqueDomainName();
+      cachedAccessControlContext.createDomain(childDomainName, domainName);
+
+      assertThat(isSuperUser(accessorResource,
+                             cachedAccessControlContext.createResource(resourceClassName, childDomainName)),
+                 is(true));
+   }
+
+   @Test
+   public void deleteDomain_shouldInvalidate() {
+      final String domainName = generateDomain();
+      final String childDomainName = generateChildDomain(domainName);
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = cachedAccessControlContext.createResource(resourceClassName, childDomainName);
+      cachedAccessControlContext.grantDomainPermissions(accessorResource, domainName, SUPER_USER);
+      assertThat(isSuperUser(accessorResource, accessedResource), is(true));
+
+      // re-create the deleted domains with the same names, but the child domain as the parent of the other
+      cachedAccessControlContext.deleteResource(accessedResource);
+      cachedAccessControlContext.deleteDomain(domainName);
+      cachedAccessControlContext.createDomain(childDomainName);
+      cachedAccessControlContext.createDomain(domainName, childDomainName);
+
+      assertThat(isSuperUser(accessorResource, cachedAccessControlContext.createResource(resourceClassName, domainName)),
+                 is(false));
+      assertThat(isSuperUser(accessorResource,
+                             cachedAccessControlContext.createResource(resourceClassName, childDomainName)),
+                 is(false));
+   }
+
+   @Test
+   public void inheritedSuperUser_shouldBeCachedAndInvalidated() {
+      final String domainName = generateDomain();
+      final Resource donorResource = generateUnauthenticatableResource();
+      final Resource accessorResource = generateUnauthenticatableResource();
+      final Resource accessedResource = cachedAccessControlContext.createResource(resourceClassName, domainName);
+      cachedAccessControlContext.grantDomainPermissions(donorResource, domainName, SUPER_USER);
+      assertThat(isSuperUser(accessorResource, accessedResource), is(false));
+
+      cachedAccessControlContext.grantResourcePermissions(accessorResource, donorResource, INHERIT);
+
+      assertThat(isSuperUser(accessorResource, accessedResource), is(true));
+
+      cachedAccessControlContext.revokeResourcePermissions(accessorResource, donorResource, INHERIT);
+
+      assertThat(isSuperUser(accessorResource, accessedResource), is(false));
+   }
+
+   @Test
+   public void nonRecursiveProfile_shouldWalkInheritanceAndDomainLevels() {
+      final SQLProfile nonRecursiveSQLProfile = getNonRecursiveSQLProfile(TestConfigLoader.getSQLProfile());
+      assumeFalse("the configured database has no non-recursive SQL profile", nonRecursiveSQLProfile == null);
+      final AccessControlContext nonRecursiveAccessControlContext
+            = newCachedAccessControlContext(nonRecursiveSQLProfile);
+
+      // super-user at the top of a domain hierarchy, inherited through a chain of resources
+      final String domainName = generateDomain();
+      final String unrelatedDomainName = generateDomain();
+      String descendantDomainName = domainName;
+      for (int i = 0; i < 3; i++) {
+         descendantDomainName = generateChildDomain(descendantDomainName);
+      }
+      final Resource accessorResource = generateUnauthenticatableResource();
+      Resource inheritingResource = accessorResource;
+      for (int i = 0; i < 3; i++) {
+         final Resource inheritedResource = generateUnauthenticatableResource();
+         nonRecursiveAccessControlContext.grantResourcePermissions(inheritingResource, inheritedResource, INHERIT);
+         inheritingResource = inheritedResource;
+      }
+      nonRecursiveAccessControlContext.grantDomainPermissions(inheritingResource, domainName, SUPER_USER);
+
+      final Resource descendantResource
+            = nonRecursiveAccessControlContext.createResource(resourceClassName, descendantDomainName);
+      final Resource unrelatedResource
+            = nonRecursiveAccessControlContext.createResource(resourceClassName, unrelatedDomainName);
+      assertThat(nonRecursiveAccessControlContext.hasResourcePermissions(accessorResource,
+                                                                         descendantResource,
+                                                                         customPermission),
+                 is(true));
+      assertThat(nonRecursiveAccessControlContext.hasResourcePermissions(accessorResource,
+                                                                         unrelatedResource,
+                                                                         customPermission),
+                 is(false));
+
+      // the context configured with the test's SQL profile shares the cache, and has to agree
+      assertThat(isSuperUser(accessorResource, descendantResource), is(true));
+      assertThat(isSuperUser(accessorResource, unrelatedResource), is(false));
+   }
+
+   private boolean isSuperUser(Resource accessorResource, Resource accessedResource) {
+      // only super-users have the custom permission, because it is not granted to anyone
+      return cachedAccessControlContext.hasResourcePermissions(accessorResource, accessedResource, customPermission);
+   }
+
+   private AccessControlContext newCachedAccessControlContext(SQLProfile sqlProfile) {
+      final AccessControlContext cachedAccessControlContext
+            = SQLAccessControlContextFactory.getAccessControlContext(TestConfigLoader.getDataSource(),
+                                                                     TestConfigLoader.getDatabaseSchema(),
+                                                                     sqlProfile,
+                                                                     TestConfigLoader.getPasswordEncryptor(),
+                                                                     SQLAccessControlContextOptions.newInstance()
+                                                                           .withSuperUserDomainCache(superUserDomainCache));
+      cachedAccessControlContext.authenticate(getSystemResource(),
+                                              PasswordCredentials.newInstance(TestConfigLoader.getOaccRootPassword()));
+      return cachedAccessControlContext;
+   }
+
+   private static SQLProfile getNonRecursiveSQLProfile(SQLProfile sqlProfile) {
+      if (!sqlProfile.isRecursiveCTEEnabled()) {
+         return sqlProfile;
+      }
+      for (Field field : SQLProfile.class.getFields()) {
+         if (Modifier.isStatic(field.getModifiers()) && field.getType() == SQLProfile.class) {
+            try {
+               final SQLProfile candidateSQLProfile = (SQLProfile) field.get(null);
+               if (candidateSQLProfile.getSqlDialect() == sqlProfile.getSqlDialect()
+                     && !candidateSQLProfile.isRecursiveCTEEnabled()) {
+                  return candidateSQLProfile;
+               }
+            }
+            catch (IllegalAccessException e) {
+               throw new RuntimeException(e);
+            }
+         }
+      }
+      return null;
+   }
+}
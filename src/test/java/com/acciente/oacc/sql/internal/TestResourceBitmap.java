@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestResourceBitmap {
+   @Test
+   public void of_withDuplicatesAndUnsortedIds_shouldContainEachIdOnce() {
+      final ResourceBitmap resourceIds = ResourceBitmap.of(new long[]{70000L, 3L, 70000L, 1L, 3L});
+
+      assertThat(resourceIds.cardinality(), is(3));
+      assertThat(Arrays.equals(resourceIds.toArray(), new long[]{1L, 3L, 70000L}), is(true));
+      assertThat(resourceIds.contains(3L), is(true));
+      assertThat(resourceIds.contains(2L), is(false));
+   }
+
+   @Test
+   public void andOr_withSparseAndDenseChunks_shouldMatchSetOperations() {
+      final Random random = new Random(42);
+
+      for (int round = 0; round < 20; round++) {
+         final TreeSet<Long> ids = randomIds(random);
+         final TreeSet<Long> otherIds = randomIds(random);
+         final ResourceBitmap resourceIds = ResourceBitmap.of(toArray(ids));
+         final ResourceBitmap otherResourceIds = ResourceBitmap.of(toArray(otherIds));
+
+         final TreeSet<Long> expectedIntersection = new TreeSet<>(ids);
+         expectedIntersection.retainAll(otherIds);
+         final TreeSet<Long> expectedUnion = new TreeSet<>(ids);
+         expectedUnion.addAll(otherIds);
+
+         final ResourceBitmap intersection = resourceIds.and(otherResourceIds);
+         final ResourceBitmap union = resourceIds.or(otherResourceIds);
+
+         assertThat(Arrays.equals(intersection.toArray(), toArray(expectedIntersection)), is(true));
+         assertThat(intersection.cardinality(), is(expectedIntersection.size()));
+         assertThat(Arrays.equals(union.toArray(), toArray(expectedUnion)), is(true));
+         assertThat(union.cardinality(), is(expectedUnion.size()));
+      }
+   }
+
+   @Test
+   public void and_withDisjointIds_shouldBeEmpty() {
+      final ResourceBitmap resourceIds = ResourceBitmap.of(new long[]{1L, 2L, 3L});
+      final ResourceBitmap otherResourceIds = ResourceBitmap.of(new long[]{4L, 65536L});
+
+      assertThat(resourceIds.and(otherResourceIds).isEmpty(), is(true));
+      assertThat(resourceIds.and(ResourceBitmap.EMPTY).isEmpty(), is(true));
+      assertThat(resourceIds.or(ResourceBitmap.EMPTY).cardinality(), is(3));
+   }
+
+   private static TreeSet<Long> randomIds(Random random) {
+      final TreeSet<Long> ids = new TreeSet<>();
+      // a dense chunk that is stored as a bitmap container
+      final int denseCount = 3000 + random.nextInt(4000);
+      for (int i = 0; i < denseCount; i++) {
+         ids.add((long) random.nextInt(8192));
+      }
+      // sparse chunks that are stored as array containers
+      for (int i = 0; i < 500; i++) {
+         ids.add(65536L + random.nextInt(1 << 20));
+      }
+      return ids;
+   }
+
+   private static long[] toArray(TreeSet<Long> ids) {
+      final long[] array = new long[ids.size()];
+      int i = 0;
+      for (Long id : ids) {
+         array[i++] = id;
+      }
+      return array;
+   }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestResourceLocatorCache {
+   @Test
+   public void get_byIdOrExternalId_shouldReturnResolvedResource() {
+      final ResourceLocatorCache cache = new ResourceLocatorCache(10);
+      final Resource resource = Resources.getInstance(1L, "ext-1");
+      cache.put(resource);
+
+      assertThat(cache.get(Resources.getInstance(1L)), is(resource));
+      assertThat(cache.get(Resources.getInstance("ext-1")), is(resource));
+      assertThat(cache.get(Resources.getInstance(1L, "ext-1")), is(resource));
+      assertThat(cache.get(Resources.getInstance(1L, "ext-2")), is(nullValue()));
+      assertThat(cache.get(Resources.getInstance(2L, "ext-1")), is(nullValue()));
+   }
+
+   @Test
+   public void put_beyondMaximumSize_shouldEvictLeastRecentlyUsed() {
+      final ResourceLocatorCache cache = new ResourceLocatorCache(2);
+      cache.put(Resources.getInstance(1L, "ext-1"));
+      cache.put(Resources.getInstance(2L, "ext-2"));
+      cache.get(Resources.getInstance(1L));
+      cache.put(Resources.getInstance(3L));
+
+      assertThat(cache.get(Resources.getInstance(1L)), is(Resources.getInstance(1L, "ext-1")));
+      assertThat(cache.get(Resources.getInstance(2L)), is(nullValue()));
+      assertThat(cache.get(Resources.getInstance("ext-2")), is(nullValue()));
+      assertThat(cache.get(Resources.getInstance(3L)), is(Resources.getInstance(3L)));
+   }
+
+   @Test
+   public void remove_shouldRemoveBothMappings() {
+      final ResourceLocatorCache cache = new ResourceLocatorCache(10);
+      cache.put(Resources.getInstance(1L));
+      // setting the external id replaces the resolved resource
+      cache.put(Resources.getInstance(1L, "ext-1"));
+      assertThat(cache.get(Resources.getInstance("ext-1")), is(Resources.getInstance(1L, "ext-1")));
+
+      cache.remove(1L);
+      assertThat(cache.get(Resources.getInstance(1L)), is(nullValue()));
+      assertThat(cache.get(Resources.getInstance("ext-1")), is(nullValue()));
+   }
+
+   @Test
+   public void issuer_revoke_shouldOnlyRevokeResourcesWithRevokedId() {
+      final ResolvedResource.Issuer issuer = new ResourceLocatorCache(10).getIssuer();
+      final Resource resource1 = issuer.issue(ResolvedResource.getInstance(1L, null, null, Id.<DomainId>from(0L)));
+      final Resource resource2 = issuer.issue(ResolvedResource.getInstance(2L, null, null, Id.<DomainId>from(0L)));
+
+      issuer.revoke(1L);
+      assertThat(issuer.getIssued(resource1), is(nullValue()));
+      assertThat(issuer.getIssued(resource2), is(sameInstance(resource2)));
+
+      // a resource with the revoked id that is issued again is trusted
+      final Resource reissuedResource1 = issuer.issue(resource1);
+      assertThat(reissuedResource1, is(not(sameInstance(resource1))));
+      assertThat(issuer.getIssued(reissuedResource1), is(sameInstance(reissuedResource1)));
+
+      issuer.revokeAll();
+      assertThat(issuer.getIssued(reissuedResource1), is(nullValue()));
+      assertThat(issuer.getIssued(resource2), is(nullValue()));
+   }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import com.acciente.oacc.sql.internal.persister.SQLConnection;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestSQLQueryFanOut {
+   private JDBCDataSource  dataSource;
+   private ExecutorService executorService;
+   private CountDownLatch  executorBlocked;
+
+   @Before
+   public void setUpBlockedExecutor() {
+      dataSource = new JDBCDataSource();
+      dataSource.setUrl("jdbc:hsqldb:mem:fanout");
+
+      // a single thread that is kept busy, so that forked queries stay queued until the latch is released
+      executorService = Executors.newSingleThreadExecutor();
+      executorBlocked = new CountDownLatch(1);
+      executorService.execute(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               executorBlocked.await();
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      });
+   }
+
+   @After
+   public void tearDownExecutor() {
+      executorBlocked.countDown();
+      executorService.shutdownNow();
+   }
+
+   @Test
+   public void get_unstartedQuery_shouldRunOnCallerConnection() throws Exception {
+      final SQLQueryFanOut queryFanOut = new SQLQueryFanOut(null, dataSource, executorService);
+      final CountingQuery query = new CountingQuery();
+
+      final SQLQueryFanOut.Result<Integer> result = queryFanOut.fork(query);
+
+      assertThat(queryFanOut.isConcurrent(), is(true));
+      assertThat(result.get(), is(1));
+      assertThat(query.callerConnectionCount.get(), is(1));
+
+      awaitExecutor();
+      assertThat(query.executionCount.get(), is(1));
+   }
+
+   @Test
+   public void cancelOutstanding_afterEarlyReturn_shouldNotRunRemainingQueries() throws Exception {
+      final SQLQueryFanOut queryFanOut = new SQLQueryFanOut(null, dataSource, executorService);
+      final CountingQuery neededQuery = new CountingQuery();
+      final CountingQuery unneededQuery = new CountingQuery();
+
+      final SQLQueryFanOut.Result<Integer> neededResult = queryFanOut.fork(neededQuery);
+      queryFanOut.fork(unneededQuery);
+
+      try {
+         assertThat(neededResult.get(), is(1));
+      }
+      finally {
+         queryFanOut.cancelOutstanding();
+      }
+
+      awaitExecutor();
+      assertThat(neededQuery.executionCount.get(), is(1));
+      assertThat(unneededQuery.executionCount.get(), is(0));
+   }
+
+   @Test
+   public void withoutExecutor_shouldRunQueriesLazily() {
+      final SQLQueryFanOut queryFanOut = new SQLQueryFanOut(null, dataSource, null);
+      final CountingQuery query = new CountingQuery();
+
+      final SQLQueryFanOut.Result<Integer> result = queryFanOut.fork(query);
+
+      assertThat(queryFanOut.isConcurrent(), is(false));
+      assertThat(query.executionCount.get(), is(0));
+      assertThat(result.get(), is(1));
+      assertThat(result.get(), is(1));
+      assertThat(query.executionCount.get(), is(1));
+   }
+
+   private void awaitExecutor() throws InterruptedException {
+      executorBlocked.countDown();
+      executorService.shutdown();
+      assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS), is(true));
+   }
+
+   private static class CountingQuery implements SQLQueryFanOut.Query<Integer> {
+      private final AtomicInteger executionCount        = new AtomicInteger();
+      private final AtomicInteger callerConnectionCount = new AtomicInteger();
+
+      @Override
+      public Integer execute(SQLConnection connection) {
+         if (connection == null) {
+            // the tests pass no caller connection, so a null connection identifies the calling thread
+            callerConnectionCount.incrementAndGet();
+         }
+         return executionCount.incrementAndGet();
+      }
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestSuperUserDomainCache {
+   @Test
+   public void isSuperUserOfDomain_shouldLoadOncePerAccessor() {
+      final SuperUserDomainCache cache = new SuperUserDomainCache();
+      final CountingLoader loader = new CountingLoader(new long[]{2L, 5L, 9L});
+
+      assertThat(cache.isSuperUserOfDomain(1L, 5L, loader), is(true));
+      assertThat(cache.isSuperUserOfDomain(1L, 9L, loader), is(true));
+      assertThat(cache.isSuperUserOfDomain(1L, 3L, loader), is(false));
+      assertThat(loader.loadCount, is(1));
+
+      // another accessor has its own entry
+      final CountingLoader otherLoader = new CountingLoader(new long[0]);
+      assertThat(cache.isSuperUserOfDomain(7L, 5L, otherLoader), is(false));
+      assertThat(otherLoader.loadCount, is(1));
+   }
+
+   @Test
+   public void invalidate_shouldReload() {
+      final SuperUserDomainCache cache = new SuperUserDomainCache();
+      final CountingLoader loader = new CountingLoader(new long[]{5L});
+
+      assertThat(cache.isSuperUserOfDomain(1L, 5L, loader), is(true));
+      cache.invalidate();
+      loader.domainIds = new long[]{6L};
+
+      assertThat(cache.isSuperUserOfDomain(1L, 5L, loader), is(false));
+      assertThat(cache.isSuperUserOfDomain(1L, 6L, loader), is(true));
+      assertThat(loader.loadCount, is(2));
+   }
+
+   @Test
+   public void invalidate_duringLoad_shouldNotKeepLoadedDomains() {
+      final SuperUserDomainCache cache = new SuperUserDomainCache();
+      final CountingLoader loader = new CountingLoader(new long[]{5L}) {
+         @Override
+         public long[] load() {
+            // simulate a modification that completes while the domains are being loaded
+            if (loadCount == 0) {
+               cache.invalidate();
+            }
+            return super.load();
+         }
+      };
+
+      assertThat(cache.isSuperUserOfDomain(1L, 5L, loader), is(true));
+      assertThat(cache.isSuperUserOfDomain(1L, 5L, loader), is(true));
+      assertThat(loader.loadCount, is(2));
+   }
+
+   private static class CountingLoader implements SuperUserDomainCache.Loader {
+      long[] domainIds;
+      int    loadCount;
+
+      CountingLoader(long[] domainIds) {
+         this.domainIds = domainIds;
+      }
+
+      @Override
+      public long[] load() {
+         loadCount++;
+         return domainIds;
+      }
+   }
+}
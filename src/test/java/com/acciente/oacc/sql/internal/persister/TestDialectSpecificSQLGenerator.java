@@ -0,0 +1,81 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.sql.SQLDialect;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks the grant upsert statement generated for each dialect; the statements of the dialects with an embedded
+ * test database are also executed by {@link TestUpsertGrant}.
+ */
+public class TestDialectSpecificSQLGenerator {
+   private static final String   TABLE        = "S.OAC_Grant_T";
+   private static final String[] KEY_COLUMNS  = {"AccessorResourceId", "AccessedId"};
+   private static final String   SOURCE_QUERY = "SELECT ? AS AccessorResourceId, ? AS AccessedId, "
+         + "? AS GrantorResourceId, ? AS IsWithGrant WHERE 1 = 1";
+
+   @Test
+   public void upsertGrantStatement_onConflict() {
+      final String expected
+            = "INSERT INTO S.OAC_Grant_T AS T ( AccessorResourceId, AccessedId, GrantorResourceId, IsWithGrant ) "
+            + SOURCE_QUERY
+            + " ON CONFLICT ( AccessorResourceId, AccessedId ) DO UPDATE SET "
+            + "GrantorResourceId = EXCLUDED.GrantorResourceId, IsWithGrant = EXCLUDED.IsWithGrant "
+            + "WHERE T.IsWithGrant < EXCLUDED.IsWithGrant";
+
+      assertThat(upsertGrantStatement(SQLDialect.PostgreSQL_9_3), is(expected));
+      assertThat(upsertGrantStatement(SQLDialect.SQLite_3_8), is(expected));
+   }
+
+   @Test
+   public void upsertGrantStatement_onDuplicateKey() {
+      assertThat(upsertGrantStatement(SQLDialect.MySQL_5_6),
+                 is("INSERT INTO S.OAC_Grant_T ( AccessorResourceId, AccessedId, GrantorResourceId, IsWithGrant ) "
+                          + SOURCE_QUERY
+                          + " ON DUPLICATE KEY UPDATE "
+                          + "GrantorResourceId = IF( IsWithGrant < VALUES( IsWithGrant ), VALUES( GrantorResourceId ), GrantorResourceId ), "
+                          + "IsWithGrant = GREATEST( IsWithGrant, VALUES( IsWithGrant ) )"));
+   }
+
+   @Test
+   public void upsertGrantStatement_merge() {
+      final String expected
+            = "MERGE INTO S.OAC_Grant_T T USING ( " + SOURCE_QUERY + " ) S "
+            + "ON ( T.AccessorResourceId = S.AccessorResourceId AND T.AccessedId = S.AccessedId ) "
+            + "WHEN MATCHED THEN UPDATE SET "
+            + "GrantorResourceId = CASE WHEN T.IsWithGrant < S.IsWithGrant THEN S.GrantorResourceId ELSE T.GrantorResourceId END, "
+            + "IsWithGrant = CASE WHEN T.IsWithGrant < S.IsWithGrant THEN S.IsWithGrant ELSE T.IsWithGrant END "
+            + "WHEN NOT MATCHED THEN INSERT ( AccessorResourceId, AccessedId, GrantorResourceId, IsWithGrant ) "
+            + "VALUES ( S.AccessorResourceId, S.AccessedId, S.GrantorResourceId, S.IsWithGrant )";
+
+      assertThat(upsertGrantStatement(SQLDialect.DB2_10_5), is(expected));
+      assertThat(upsertGrantStatement(SQLDialect.Oracle_11_2), is(expected));
+      assertThat(upsertGrantStatement(SQLDialect.HSQLDB_2_3), is(expected));
+      // SQL Server requires a MERGE statement to be terminated, and its target to be locked until commit
+      assertThat(upsertGrantStatement(SQLDialect.SQLServer_12_0),
+                 is(expected.replace("OAC_Grant_T T", "OAC_Grant_T WITH ( HOLDLOCK ) T") + ";"));
+   }
+
+   private static String upsertGrantStatement(SQLDialect sqlDialect) {
+      return DialectSpecificSQLGenerator.getInstance(sqlDialect).upsertGrantStatement(TABLE, KEY_COLUMNS, SOURCE_QUERY);
+   }
+}
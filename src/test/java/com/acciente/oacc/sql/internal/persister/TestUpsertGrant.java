@@ -0,0 +1,203 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.sql.internal.persister;
+
+import com.acciente.oacc.DomainPermission;
+import com.acciente.oacc.DomainPermissions;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.ResourcePermission;
+import com.acciente.oacc.ResourcePermissions;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.helper.SQLAccessControlSystemResetUtil;
+import com.acciente.oacc.helper.TestConfig;
+import com.acciente.oacc.sql.SQLProfile;
+import com.acciente.oacc.sql.internal.persister.id.DomainId;
+import com.acciente.oacc.sql.internal.persister.id.Id;
+import com.acciente.oacc.sql.internal.persister.id.ResourceClassId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.runners.Parameterized.Parameter;
+import static org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the grant upsert of each upsert style against an embedded database: MERGE on HSQLDB and INSERT ... ON CONFLICT
+ * on SQLite 3.24.
+ */
+@RunWith(Parameterized.class)
+public class TestUpsertGrant {
+   private static final Resource     SYS_RESOURCE  = Resources.getInstance(0);
+   private static final Id<DomainId> SYS_DOMAIN_ID = Id.from(0L);
+   private static final Resource     GRANTOR_1     = Resources.getInstance(101);
+   private static final Resource     GRANTOR_2     = Resources.getInstance(102);
+   private static final Resource     GRANTOR_3     = Resources.getInstance(103);
+
+   @Parameters(name = "{1}")
+   public static Collection<Object[]> data() {
+      return Arrays.asList(new Object[][]{
+            {"dbconfig_hsqldb_embedded.properties", "HSQLDB_2_3_NON_RECURSIVE"},
+            {"dbconfig_sqlite_embedded.properties", "SQLite_3_24_RECURSIVE"},
+      });
+   }
+
+   @Parameter(0)
+   public String dbConfig;
+
+   @Parameter(1)
+   public String sqlProfileName;
+
+   private TestConfig      testConfig;
+   private Connection      connection;
+   private SQLConnection   sqlConnection;
+   private SQLPersisterSet persisterSet;
+
+   @Before
+   public void setUp() throws SQLException {
+      testConfig = TestConfig.load(dbConfig);
+      connection = testConfig.getDataSource().getConnection();
+      SQLAccessControlSystemResetUtil.resetOACC(connection,
+                                                testConfig.getDatabaseSchema(),
+                                                testConfig.getOaccRootPassword(),
+                                                testConfig.getPasswordEncryptor());
+      sqlConnection = new SQLConnection(connection);
+      persisterSet = new SQLPersisterSet(testConfig.getDatabaseSchema(), SQLProfile.valueOf(sqlProfileName));
+   }
+
+   @After
+   public void tearDown() throws SQLException {
+      if (connection != null) {
+         connection.close();
+      }
+   }
+
+   @Test
+   public void upsertDomainSysPermissions_absent_shouldInsert() throws SQLException {
+      upsertDomainSysPermission(DomainPermissions.getInstance(DomainPermissions.DELETE), GRANTOR_1);
+
+      assertDomainSysGrant(DomainPermissions.DELETE, GRANTOR_1, false);
+   }
+
+   @Test
+   public void upsertDomainSysPermissions_withGrantOption_shouldUpgrade() throws SQLException {
+      upsertDomainSysPermission(DomainPermissions.getInstance(DomainPermissions.DELETE), GRANTOR_1);
+      upsertDomainSysPermission(DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE), GRANTOR_2);
+
+      assertDomainSysGrant(DomainPermissions.DELETE, GRANTOR_2, true);
+   }
+
+   @Test
+   public void upsertDomainSysPermissions_withoutGrantOption_shouldNotDowngrade() throws SQLException {
+      upsertDomainSysPermission(DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE), GRANTOR_1);
+      upsertDomainSysPermission(DomainPermissions.getInstance(DomainPermissions.DELETE), GRANTOR_2);
+
+      assertDomainSysGrant(DomainPermissions.DELETE, GRANTOR_1, true);
+   }
+
+   @Test
+   public void upsertDomainSysPermissions_sameGrantOption_shouldKeepGrantor() throws SQLException {
+      upsertDomainSysPermission(DomainPermissions.getInstance(DomainPermissions.DELETE), GRANTOR_1);
+      upsertDomainSysPermission(DomainPermissions.getInstance(DomainPermissions.DELETE), GRANTOR_2);
+      upsertDomainSysPermission(DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE), GRANTOR_2);
+      upsertDomainSysPermission(DomainPermissions.getInstanceWithGrantOption(DomainPermissions.DELETE), GRANTOR_3);
+
+      assertDomainSysGrant(DomainPermissions.DELETE, GRANTOR_2, true);
+   }
+
+   @Test
+   public void upsertResourceSysPermissions_shouldInsertAndUpgrade() throws SQLException {
+      upsertResourceSysPermission(ResourcePermissions.getInstance(ResourcePermissions.QUERY), GRANTOR_1);
+      assertResourceSysGrant(ResourcePermissions.QUERY, GRANTOR_1, false);
+
+      upsertResourceSysPermission(ResourcePermissions.getInstanceWithGrantOption(ResourcePermissions.QUERY), GRANTOR_2);
+      assertResourceSysGrant(ResourcePermissions.QUERY, GRANTOR_2, true);
+
+      upsertResourceSysPermission(ResourcePermissions.getInstance(ResourcePermissions.QUERY), GRANTOR_3);
+      assertResourceSysGrant(ResourcePermissions.QUERY, GRANTOR_2, true);
+   }
+
+   private void upsertDomainSysPermission(DomainPermission domainPermission, Resource grantorResource) {
+      persisterSet.getGrantDomainPermissionSysPersister().upsertDomainSysPermissions(sqlConnection,
+                                                                                     SYS_RESOURCE,
+                                                                                     grantorResource,
+                                                                                     SYS_DOMAIN_ID,
+                                                                                     Collections.singleton(domainPermission));
+   }
+
+   private void upsertResourceSysPermission(ResourcePermission resourcePermission, Resource grantorResource) {
+      persisterSet.getGrantResourcePermissionSysPersister().upsertResourceSysPermissions(sqlConnection,
+                                                                                         SYS_RESOURCE,
+                                                                                         SYS_RESOURCE,
+                                                                                         Id.<ResourceClassId>from(0L),
+                                                                                         Collections.singleton(resourcePermission),
+                                                                                         grantorResource);
+   }
+
+   private void assertDomainSysGrant(String permissionName,
+                                     Resource expectedGrantorResource,
+                                     boolean expectedWithGrantOption) throws SQLException {
+      assertGrant("Grant_DomPerm_Sys",
+                  "AccessedDomainId",
+                  DomainPermissions.getInstance(permissionName).getSystemPermissionId(),
+                  expectedGrantorResource,
+                  expectedWithGrantOption);
+   }
+
+   private void assertResourceSysGrant(String permissionName,
+                                       Resource expectedGrantorResource,
+                                       boolean expectedWithGrantOption) throws SQLException {
+      assertGrant("Grant_ResPerm_Sys",
+                  "AccessedResourceId",
+                  ResourcePermissions.getInstance(permissionName).getSystemPermissionId(),
+                  expectedGrantorResource,
+                  expectedWithGrantOption);
+   }
+
+   private void assertGrant(String tableName,
+                            String accessedColumnName,
+                            long sysPermissionId,
+                            Resource expectedGrantorResource,
+                            boolean expectedWithGrantOption) throws SQLException {
+      final String schemaName = testConfig.getDatabaseSchema();
+      try (PreparedStatement statement
+                 = connection.prepareStatement("SELECT GrantorResourceId, IsWithGrant FROM "
+                                                     + (schemaName != null ? schemaName + ".OAC_" : "OAC_") + tableName
+                                                     + " WHERE AccessorResourceId = 0 AND " + accessedColumnName
+                                                     + " = 0 AND SysPermissionId = ?")) {
+         statement.setLong(1, sysPermissionId);
+         try (ResultSet resultSet = statement.executeQuery()) {
+            assertThat("grant exists", resultSet.next(), is(true));
+            assertThat(resultSet.getLong("GrantorResourceId"), is(expectedGrantorResource.getId()));
+            assertThat(resultSet.getBoolean("IsWithGrant"), is(expectedWithGrantOption));
+            assertThat("single grant", resultSet.next(), is(false));
+         }
+      }
+   }
+}
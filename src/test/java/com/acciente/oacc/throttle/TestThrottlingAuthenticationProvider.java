@@ -0,0 +1,283 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.throttle;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.AuthenticationProvider;
+import com.acciente.oacc.Credentials;
+import com.acciente.oacc.IncorrectCredentialsException;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor;
+import com.acciente.oacc.memory.MemoryAccessControlContextFactory;
+import com.acciente.oacc.memory.MemoryAccessControlStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestThrottlingAuthenticationProvider {
+   private static final Resource          SYS_RESOURCE       = Resources.getInstance(0);
+   private static final char[]            OACC_ROOT_PWD      = "toomanysecrets".toCharArray();
+   private static final char[]            USER_PWD           = "user-secret".toCharArray();
+   private static final char[]            WRONG_PWD          = "wrong-secret".toCharArray();
+   private static final PasswordEncryptor PASSWORD_ENCRYPTOR = BCryptPasswordEncryptor.newInstance(4);
+   private static final int               MAX_FAILURES       = 3;
+
+   private MemoryAccessControlStore         store;
+   private ThrottlingAuthenticationProvider throttlingAuthenticationProvider;
+   private AccessControlContext             systemContext;
+
+   @Before
+   public void setUp() {
+      store = MemoryAccessControlStore.newInstance(OACC_ROOT_PWD, PASSWORD_ENCRYPTOR);
+      throttlingAuthenticationProvider
+            = ThrottlingAuthenticationProvider.newInstance(MemoryAccessControlContextFactory
+                                                                 .getPasswordAuthenticationProvider(store,
+                                                                                                    PASSWORD_ENCRYPTOR),
+                                                           MAX_FAILURES,
+                                                           MAX_FAILURES,
+                                                           60000);
+
+      systemContext = newAccessControlContext();
+      systemContext.authenticate(SYS_RESOURCE, PasswordCredentials.newInstance(OACC_ROOT_PWD));
+      systemContext.createResourceClass("user", true, false);
+      systemContext.createDomain("domain");
+   }
+
+   @Test
+   public void authenticate_afterMaxFailures_shouldRejectCorrectPassword() {
+      final Resource user = createUser();
+
+      for (int i = 0; i < MAX_FAILURES; i++) {
+         assertIncorrect(user, PasswordCredentials.newInstance(WRONG_PWD));
+      }
+
+      assertThrottled(user, PasswordCredentials.newInstance(USER_PWD));
+
+      // resetting the password lifts the limit
+      systemContext.setCredentials(user, PasswordCredentials.newInstance(USER_PWD));
+      newAccessControlContext().authenticate(user, PasswordCredentials.newInstance(USER_PWD));
+   }
+
+   @Test
+   public void authenticate_success_shouldClearResourceFailures() {
+      final Resource user = createUser();
+
+      for (int i = 0; i < MAX_FAILURES - 1; i++) {
+         assertIncorrect(user, PasswordCredentials.newInstance(WRONG_PWD));
+      }
+      newAccessControlContext().authenticate(user, PasswordCredentials.newInstance(USER_PWD));
+
+      for (int i = 0; i < MAX_FAILURES - 1; i++) {
+         assertIncorrect(user, PasswordCredentials.newInstance(WRONG_PWD));
+      }
+      newAccessControlContext().authenticate(user, PasswordCredentials.newInstance(USER_PWD));
+   }
+
+   @Test
+   public void authenticate_afterMaxFailuresFromSource_shouldRejectOtherResources() {
+      // each attempt targets a different resource, so only the source limit applies
+      for (int i = 0; i < MAX_FAILURES; i++) {
+         assertIncorrect(createUser(),
+                         SourcedCredentials.newInstance(PasswordCredentials.newInstance(WRONG_PWD), "10.0.0.1"));
+      }
+
+      final Resource user = createUser();
+      assertThrottled(user, SourcedCredentials.newInstance(PasswordCredentials.newInstance(USER_PWD), "10.0.0.1"));
+
+      // other sources are not affected
+      newAccessControlContext().authenticate(user,
+                                             SourcedCredentials.newInstance(PasswordCredentials.newInstance(USER_PWD),
+                                                                            "10.0.0.2"));
+   }
+
+   @Test
+   public void authenticate_byExternalIdAndById_shouldShareResourceLimit() {
+      final String externalId = "user-" + System.nanoTime();
+      final Resource user = systemContext.createResource("user",
+                                                         "domain",
+                                                         externalId,
+                                                         PasswordCredentials.newInstance(USER_PWD));
+
+      assertIncorrect(Resources.getInstance(externalId), PasswordCredentials.newInstance(WRONG_PWD));
+      assertIncorrect(user, PasswordCredentials.newInstance(WRONG_PWD));
+      assertIncorrect(Resources.getInstance(externalId), PasswordCredentials.newInstance(WRONG_PWD));
+
+      assertThrottled(Resources.getInstance(user.getId()), PasswordCredentials.newInstance(USER_PWD));
+      assertThrottled(Resources.getInstance(externalId), PasswordCredentials.newInstance(USER_PWD));
+   }
+
+   @Test
+   public void authenticate_concurrentAttempts_shouldNotExceedLimit() throws Exception {
+      final CountDownLatch started = new CountDownLatch(MAX_FAILURES);
+      final CountDownLatch release = new CountDownLatch(1);
+      final ThrottlingAuthenticationProvider throttlingProvider
+            = ThrottlingAuthenticationProvider.newInstance(new BlockingAuthenticationProvider(started, release),
+                                                           MAX_FAILURES,
+                                                           0,
+                                                           60000);
+      final Resource user = Resources.getInstance(42L);
+
+      final Thread[] threads = new Thread[MAX_FAILURES];
+      for (int i = 0; i < threads.length; i++) {
+         threads[i] = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  throttlingProvider.authenticate(user, PasswordCredentials.newInstance(WRONG_PWD));
+               }
+               catch (IncorrectCredentialsException e) {
+                  // expected
+               }
+            }
+         });
+         threads[i].start();
+      }
+
+      try {
+         // the attempts in progress already take up the limit, before any of them has failed
+         assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+         try {
+            throttlingProvider.authenticate(user, PasswordCredentials.newInstance(USER_PWD));
+            fail("authenticating while the limit is taken up by attempts in progress should have been throttled");
+         }
+         catch (AuthenticationThrottledException e) {
+            // expected
+         }
+      }
+      finally {
+         release.countDown();
+         for (Thread thread : threads) {
+            thread.join();
+         }
+      }
+   }
+
+   @Test
+   public void inMemoryFailureCounter_shouldEvictLeastRecentlyUsedKeys() {
+      final InMemoryFailureCounter failureCounter = InMemoryFailureCounter.newInstance(60000, 16);
+
+      failureCounter.tryRecordFailure("first", MAX_FAILURES);
+      failureCounter.tryRecordFailure("first", MAX_FAILURES);
+      assertThat(failureCounter.getFailureCount("first"), is(2));
+
+      for (int i = 0; i < 1000; i++) {
+         failureCounter.tryRecordFailure("key-" + i, MAX_FAILURES);
+      }
+
+      assertThat(failureCounter.getFailureCount("first"), is(0));
+      assertThat(failureCounter.getFailureCount("key-999"), is(1));
+   }
+
+   @Test
+   public void inMemoryFailureCounter_shouldNotEvictThrottledKeys() {
+      final InMemoryFailureCounter failureCounter = InMemoryFailureCounter.newInstance(60000, 160);
+
+      for (int i = 0; i < MAX_FAILURES; i++) {
+         assertThat(failureCounter.tryRecordFailure("victim", MAX_FAILURES), is(true));
+      }
+      assertThat(failureCounter.tryRecordFailure("victim", MAX_FAILURES), is(false));
+
+      for (int i = 0; i < 1000; i++) {
+         failureCounter.tryRecordFailure("key-" + i, MAX_FAILURES);
+      }
+
+      assertThat(failureCounter.getFailureCount("victim"), is(MAX_FAILURES));
+      assertThat(failureCounter.tryRecordFailure("victim", MAX_FAILURES), is(false));
+   }
+
+   private Resource createUser() {
+      return systemContext.createResource("user", "domain", PasswordCredentials.newInstance(USER_PWD));
+   }
+
+   private void assertIncorrect(Resource resource, Credentials credentials) {
+      try {
+         newAccessControlContext().authenticate(resource, credentials);
+         fail("authenticating with an incorrect password should have failed");
+      }
+      catch (IncorrectCredentialsException e) {
+         assertThat(e.getMessage().toLowerCase().contains("invalid password"), is(true));
+      }
+   }
+
+   private void assertThrottled(Resource resource, Credentials credentials) {
+      try {
+         newAccessControlContext().authenticate(resource, credentials);
+         fail("authenticating after too many failures should have been throttled");
+      }
+      catch (AuthenticationThrottledException e) {
+         assertThat(e.getMessage().toLowerCase().contains("too many failed authentication attempts"), is(true));
+      }
+   }
+
+   private AccessControlContext newAccessControlContext() {
+      return MemoryAccessControlContextFactory.getAccessControlContext(store, throttlingAuthenticationProvider);
+   }
+
+   private static class BlockingAuthenticationProvider implements AuthenticationProvider {
+      private final CountDownLatch started;
+      private final CountDownLatch release;
+
+      private BlockingAuthenticationProvider(CountDownLatch started, CountDownLatch release) {
+         this.started = started;
+         this.release = release;
+      }
+
+      @Override
+      public void authenticate(Resource resource, Credentials credentials) {
+         started.countDown();
+         try {
+            release.await();
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         throw new IncorrectCredentialsException("Invalid password for resource " + resource);
+      }
+
+      @Override
+      public void authenticate(Resource resource) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Resource authenticate(Credentials credentials) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void validateCredentials(String resourceClassName, String domainName, Credentials credentials) {
+      }
+
+      @Override
+      public void setCredentials(Resource resource, Credentials credentials) {
+      }
+
+      @Override
+      public void deleteCredentials(Resource resource) {
+      }
+   }
+}
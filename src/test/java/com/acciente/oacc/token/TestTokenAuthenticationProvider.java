@@ -0,0 +1,165 @@
+/*
+ * Copyright 2009-2018, Acciente LLC
+ *
+ * Acciente LLC licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in
+ * writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.acciente.oacc.token;
+
+import com.acciente.oacc.AccessControlContext;
+import com.acciente.oacc.IncorrectCredentialsException;
+import com.acciente.oacc.PasswordCredentials;
+import com.acciente.oacc.Resource;
+import com.acciente.oacc.Resources;
+import com.acciente.oacc.encryptor.PasswordEncryptor;
+import com.acciente.oacc.encryptor.bcrypt.BCryptPasswordEncryptor;
+import com.acciente.oacc.memory.MemoryAccessControlContextFactory;
+import com.acciente.oacc.memory.MemoryAccessControlStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestTokenAuthenticationProvider {
+   private static final Resource          SYS_RESOURCE       = Resources.getInstance(0);
+   private static final char[]            OACC_ROOT_PWD      = "toomanysecrets".toCharArray();
+   private static final char[]            USER_PWD           = "user-secret".toCharArray();
+   private static final PasswordEncryptor PASSWORD_ENCRYPTOR = BCryptPasswordEncryptor.newInstance(4);
+   private static final byte[]            SIGNING_KEY        = new byte[32];
+
+   static {
+      Arrays.fill(SIGNING_KEY, (byte) 7);
+   }
+
+   private MemoryAccessControlStore    store;
+   private TokenAuthenticationProvider tokenAuthenticationProvider;
+   private AccessControlContext        systemContext;
+   private Resource                    user;
+
+   @Before
+   public void setUp() {
+      store = MemoryAccessControlStore.newInstance(OACC_ROOT_PWD, PASSWORD_ENCRYPTOR);
+      tokenAuthenticationProvider
+            = TokenAuthenticationProvider.newInstance(MemoryAccessControlContextFactory
+                                                            .getPasswordAuthenticationProvider(store, PASSWORD_ENCRYPTOR),
+                                                      SIGNING_KEY,
+                                                      60000);
+
+      systemContext = newAccessControlContext();
+      systemContext.authenticate(SYS_RESOURCE, PasswordCredentials.newInstance(OACC_ROOT_PWD));
+      systemContext.createResourceClass("user", true, false);
+      systemContext.createDomain("domain");
+      user = systemContext.createResource("user", "domain", PasswordCredentials.newInstance(USER_PWD));
+   }
+
+   @Test
+   public void authenticate_issuedToken_shouldSucceed() {
+      final TokenCredentials tokenCredentials = issueTokenForUser();
+
+      final AccessControlContext withResource = newAccessControlContext();
+      withResource.authenticate(user, tokenCredentials);
+      assertThat(withResource.getAuthenticatedResource().getId(), is(user.getId()));
+
+      final AccessControlContext withoutResource = newAccessControlContext();
+      withoutResource.authenticate(tokenCredentials);
+      assertThat(withoutResource.getAuthenticatedResource().getId(), is(user.getId()));
+   }
+
+   @Test
+   public void authenticate_tokenOfOtherResource_shouldFail() {
+      final TokenCredentials tokenCredentials = issueTokenForUser();
+
+      assertAuthenticationFails(SYS_RESOURCE, tokenCredentials);
+   }
+
+   @Test
+   public void authenticate_tamperedToken_shouldFail() {
+      final String token = issueTokenForUser().getToken();
+      final char lastChar = token.charAt(token.length() - 1);
+      final String tamperedToken = token.substring(0, token.length() - 1) + (lastChar == 'A' ? 'B' : 'A');
+
+      assertAuthenticationFails(user, TokenCredentials.newInstance(tamperedToken));
+      assertAuthenticationFails(user, TokenCredentials.newInstance("not a token"));
+   }
+
+   @Test
+   public void authenticate_afterCredentialsReset_shouldRejectOutstandingToken() {
+      final TokenCredentials tokenCredentials = issueTokenForUser();
+
+      // setting the same password again still revokes the token, since the password hash is salted
+      systemContext.setCredentials(user, PasswordCredentials.newInstance(USER_PWD));
+
+      assertAuthenticationFails(user, tokenCredentials);
+   }
+
+   @Test
+   public void authenticate_afterDeserialization_shouldRequireSigningKey() throws Exception {
+      final TokenCredentials tokenCredentials = issueTokenForUser();
+      tokenAuthenticationProvider = serializeAndDeserialize(tokenAuthenticationProvider);
+
+      try {
+         newAccessControlContext().authenticate(user, tokenCredentials);
+         fail("authenticating with a token before supplying the signing key again should have failed");
+      }
+      catch (IllegalStateException e) {
+         assertThat(e.getMessage().contains("postDeserialize"), is(true));
+      }
+
+      tokenAuthenticationProvider.postDeserialize(SIGNING_KEY);
+
+      final AccessControlContext accessControlContext = newAccessControlContext();
+      accessControlContext.authenticate(user, tokenCredentials);
+      assertThat(accessControlContext.getAuthenticatedResource().getId(), is(user.getId()));
+   }
+
+   private static TokenAuthenticationProvider serializeAndDeserialize(TokenAuthenticationProvider provider)
+         throws IOException, ClassNotFoundException {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(provider);
+      }
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         return (TokenAuthenticationProvider) in.readObject();
+      }
+   }
+
+   private TokenCredentials issueTokenForUser() {
+      final AccessControlContext userContext = newAccessControlContext();
+      userContext.authenticate(user, PasswordCredentials.newInstance(USER_PWD));
+      return tokenAuthenticationProvider.issueToken(userContext.getAuthenticatedResource());
+   }
+
+   private void assertAuthenticationFails(Resource resource, TokenCredentials tokenCredentials) {
+      try {
+         newAccessControlContext().authenticate(resource, tokenCredentials);
+         fail("authenticating with an invalid token should have failed");
+      }
+      catch (IncorrectCredentialsException e) {
+         assertThat(e.getMessage().toLowerCase().contains("token"), is(true));
+      }
+   }
+
+   private AccessControlContext newAccessControlContext() {
+      return MemoryAccessControlContextFactory.getAccessControlContext(store, tokenAuthenticationProvider);
+   }
+}
@@ -0,0 +1,184 @@
+-- OACC schema for the embedded HSQLDB test database (see dbconfig_hsqldb_embedded.properties);
+-- executed by com.acciente.oacc.helper.TestConfigLoader before the tests run
+
+DROP SCHEMA IF EXISTS OACC CASCADE;
+CREATE SCHEMA OACC;
+
+CREATE SEQUENCE OACC.OAC_ResourceClassId AS BIGINT START WITH 1;
+CREATE SEQUENCE OACC.OAC_PermissionId AS BIGINT START WITH 1;
+CREATE SEQUENCE OACC.OAC_DomainId AS BIGINT START WITH 1;
+CREATE SEQUENCE OACC.OAC_ResourceId AS BIGINT START WITH 1;
+
+CREATE TABLE OACC.OAC_ResourceClass (
+   ResourceClassId BIGINT NOT NULL,
+   ResourceClassName VARCHAR(128) NOT NULL,
+   IsAuthenticatable SMALLINT NOT NULL,
+   IsUnauthenticatedCreateAllowed SMALLINT NOT NULL,
+   CONSTRAINT OAC_ResourceClass_PK PRIMARY KEY (ResourceClassId),
+   CONSTRAINT OAC_ResourceClass_UK UNIQUE (ResourceClassName)
+);
+
+CREATE TABLE OACC.OAC_ResourceClassPermission (
+   ResourceClassId BIGINT NOT NULL,
+   PermissionId BIGINT NOT NULL,
+   PermissionName VARCHAR(64) NOT NULL,
+   CONSTRAINT OAC_ResourceClassPermission_PK PRIMARY KEY (ResourceClassId, PermissionId),
+   CONSTRAINT OAC_ResourceClassPermission_UK UNIQUE (ResourceClassId, PermissionName),
+   CONSTRAINT OAC_ResourceClassPermission_FK FOREIGN KEY (ResourceClassId) REFERENCES OACC.OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OACC.OAC_Domain (
+   DomainId BIGINT NOT NULL,
+   DomainName VARCHAR(64) NOT NULL,
+   ParentDomainId BIGINT,
+   CONSTRAINT OAC_Domain_PK PRIMARY KEY (DomainId),
+   CONSTRAINT OAC_Domain_UK UNIQUE (DomainName),
+   CONSTRAINT OAC_Domain_FK FOREIGN KEY (ParentDomainId) REFERENCES OACC.OAC_Domain (DomainId)
+);
+
+CREATE TABLE OACC.OAC_Resource (
+   ResourceId BIGINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   DomainId BIGINT NOT NULL,
+   CONSTRAINT OAC_Resource_PK PRIMARY KEY (ResourceId),
+   CONSTRAINT OAC_Resource_FK1 FOREIGN KEY (ResourceClassId) REFERENCES OACC.OAC_ResourceClass (ResourceClassId),
+   CONSTRAINT OAC_Resource_FK2 FOREIGN KEY (DomainId) REFERENCES OACC.OAC_Domain (DomainId)
+);
+
+CREATE TABLE OACC.OAC_ResourcePassword (
+   ResourceId BIGINT NOT NULL,
+   Password VARCHAR(128) NOT NULL,
+   CONSTRAINT OAC_ResourcePassword_PK PRIMARY KEY (ResourceId),
+   CONSTRAINT OAC_ResourcePassword_FK FOREIGN KEY (ResourceId) REFERENCES OACC.OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OACC.OAC_ResourceExternalID (
+   ResourceId BIGINT NOT NULL,
+   ExternalId VARCHAR(255) NOT NULL,
+   CONSTRAINT OAC_ResourceExternalID_PK PRIMARY KEY (ResourceId),
+   CONSTRAINT OAC_ResourceExternalID_UK UNIQUE (ExternalId),
+   CONSTRAINT OAC_ResourceExternalID_FK FOREIGN KEY (ResourceId) REFERENCES OACC.OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OACC.OAC_Grant_DomCrPerm_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   SysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_DomCrPerm_Sys_PK PRIMARY KEY (AccessorResourceId, SysPermissionId),
+   CONSTRAINT OAC_Grant_DomCrPerm_Sys_FK FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OACC.OAC_Grant_DomCrPerm_PostCr_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   PostCreateIsWithGrant SMALLINT NOT NULL,
+   PostCreateSysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_DomCrPerm_PostCr_Sys_PK PRIMARY KEY (AccessorResourceId, PostCreateSysPermissionId),
+   CONSTRAINT OAC_Grant_DomCrPerm_PostCr_Sys_FK FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OACC.OAC_Grant_DomPerm_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedDomainId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   SysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_DomPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, SysPermissionId),
+   CONSTRAINT OAC_Grant_DomPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_DomPerm_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OACC.OAC_Domain (DomainId)
+);
+
+CREATE TABLE OACC.OAC_Grant_ResCrPerm_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedDomainId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   SysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, SysPermissionId),
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OACC.OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OACC.OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OACC.OAC_Grant_ResCrPerm_PostCr_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedDomainId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   PostCreateIsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   PostCreateSysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, PostCreateSysPermissionId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OACC.OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OACC.OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OACC.OAC_Grant_ResCrPerm_PostCr (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedDomainId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   PostCreateIsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   PostCreatePermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, PostCreatePermissionId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OACC.OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_FK3 FOREIGN KEY (ResourceClassId, PostCreatePermissionId) REFERENCES OACC.OAC_ResourceClassPermission (ResourceClassId, PermissionId)
+);
+
+CREATE TABLE OACC.OAC_Grant_ResPerm_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedResourceId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   SysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_ResPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedResourceId, ResourceClassId, SysPermissionId),
+   CONSTRAINT OAC_Grant_ResPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_Sys_FK2 FOREIGN KEY (AccessedResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OACC.OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OACC.OAC_Grant_ResPerm (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedResourceId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   PermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_ResPerm_PK PRIMARY KEY (AccessorResourceId, AccessedResourceId, ResourceClassId, PermissionId),
+   CONSTRAINT OAC_Grant_ResPerm_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_FK2 FOREIGN KEY (AccessedResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_FK3 FOREIGN KEY (ResourceClassId, PermissionId) REFERENCES OACC.OAC_ResourceClassPermission (ResourceClassId, PermissionId)
+);
+
+CREATE TABLE OACC.OAC_Grant_Global_ResPerm_Sys (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedDomainId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   SysPermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, SysPermissionId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OACC.OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OACC.OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OACC.OAC_Grant_Global_ResPerm (
+   AccessorResourceId BIGINT NOT NULL,
+   GrantorResourceId BIGINT NOT NULL,
+   AccessedDomainId BIGINT NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId BIGINT NOT NULL,
+   PermissionId BIGINT NOT NULL,
+   CONSTRAINT OAC_Grant_Global_ResPerm_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, PermissionId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OACC.OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OACC.OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_FK3 FOREIGN KEY (ResourceClassId, PermissionId) REFERENCES OACC.OAC_ResourceClassPermission (ResourceClassId, PermissionId)
+);
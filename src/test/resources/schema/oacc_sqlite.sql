@@ -0,0 +1,190 @@
+-- OACC schema for the embedded SQLite test database (see dbconfig_sqlite_embedded.properties);
+-- executed by com.acciente.oacc.helper.TestConfigLoader before the tests run
+
+DROP TABLE IF EXISTS OAC_Grant_Global_ResPerm;
+DROP TABLE IF EXISTS OAC_Grant_Global_ResPerm_Sys;
+DROP TABLE IF EXISTS OAC_Grant_ResPerm;
+DROP TABLE IF EXISTS OAC_Grant_ResPerm_Sys;
+DROP TABLE IF EXISTS OAC_Grant_ResCrPerm_PostCr;
+DROP TABLE IF EXISTS OAC_Grant_ResCrPerm_PostCr_Sys;
+DROP TABLE IF EXISTS OAC_Grant_ResCrPerm_Sys;
+DROP TABLE IF EXISTS OAC_Grant_DomPerm_Sys;
+DROP TABLE IF EXISTS OAC_Grant_DomCrPerm_PostCr_Sys;
+DROP TABLE IF EXISTS OAC_Grant_DomCrPerm_Sys;
+DROP TABLE IF EXISTS OAC_ResourceExternalID;
+DROP TABLE IF EXISTS OAC_ResourcePassword;
+DROP TABLE IF EXISTS OAC_Resource;
+DROP TABLE IF EXISTS OAC_Domain;
+DROP TABLE IF EXISTS OAC_ResourceClassPermission;
+DROP TABLE IF EXISTS OAC_ResourceClass;
+
+CREATE TABLE OAC_ResourceClass (
+   ResourceClassId INTEGER PRIMARY KEY AUTOINCREMENT,
+   ResourceClassName VARCHAR(128) NOT NULL,
+   IsAuthenticatable SMALLINT NOT NULL,
+   IsUnauthenticatedCreateAllowed SMALLINT NOT NULL,
+   CONSTRAINT OAC_ResourceClass_UK UNIQUE (ResourceClassName)
+);
+
+CREATE TABLE OAC_ResourceClassPermission (
+   ResourceClassId INTEGER NOT NULL,
+   PermissionId INTEGER PRIMARY KEY AUTOINCREMENT,
+   PermissionName VARCHAR(64) NOT NULL,
+   CONSTRAINT OAC_ResourceClassPermission_UK1 UNIQUE (ResourceClassId, PermissionId),
+   CONSTRAINT OAC_ResourceClassPermission_UK2 UNIQUE (ResourceClassId, PermissionName),
+   CONSTRAINT OAC_ResourceClassPermission_FK FOREIGN KEY (ResourceClassId) REFERENCES OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OAC_Domain (
+   DomainId INTEGER PRIMARY KEY AUTOINCREMENT,
+   DomainName VARCHAR(64) NOT NULL,
+   ParentDomainId INTEGER,
+   CONSTRAINT OAC_Domain_UK UNIQUE (DomainName),
+   CONSTRAINT OAC_Domain_FK FOREIGN KEY (ParentDomainId) REFERENCES OAC_Domain (DomainId)
+);
+
+CREATE TABLE OAC_Resource (
+   ResourceId INTEGER PRIMARY KEY AUTOINCREMENT,
+   ResourceClassId INTEGER NOT NULL,
+   DomainId INTEGER NOT NULL,
+   CONSTRAINT OAC_Resource_FK1 FOREIGN KEY (ResourceClassId) REFERENCES OAC_ResourceClass (ResourceClassId),
+   CONSTRAINT OAC_Resource_FK2 FOREIGN KEY (DomainId) REFERENCES OAC_Domain (DomainId)
+);
+
+CREATE TABLE OAC_ResourcePassword (
+   ResourceId INTEGER NOT NULL,
+   Password VARCHAR(128) NOT NULL,
+   CONSTRAINT OAC_ResourcePassword_PK PRIMARY KEY (ResourceId),
+   CONSTRAINT OAC_ResourcePassword_FK FOREIGN KEY (ResourceId) REFERENCES OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OAC_ResourceExternalID (
+   ResourceId INTEGER NOT NULL,
+   ExternalId VARCHAR(255) NOT NULL,
+   CONSTRAINT OAC_ResourceExternalID_PK PRIMARY KEY (ResourceId),
+   CONSTRAINT OAC_ResourceExternalID_UK UNIQUE (ExternalId),
+   CONSTRAINT OAC_ResourceExternalID_FK FOREIGN KEY (ResourceId) REFERENCES OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OAC_Grant_DomCrPerm_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   SysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_DomCrPerm_Sys_PK PRIMARY KEY (AccessorResourceId, SysPermissionId),
+   CONSTRAINT OAC_Grant_DomCrPerm_Sys_FK FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OAC_Grant_DomCrPerm_PostCr_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   PostCreateIsWithGrant SMALLINT NOT NULL,
+   PostCreateSysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_DomCrPerm_PostCr_Sys_PK PRIMARY KEY (AccessorResourceId, PostCreateSysPermissionId),
+   CONSTRAINT OAC_Grant_DomCrPerm_PostCr_Sys_FK FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId)
+);
+
+CREATE TABLE OAC_Grant_DomPerm_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedDomainId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   SysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_DomPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, SysPermissionId),
+   CONSTRAINT OAC_Grant_DomPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_DomPerm_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OAC_Domain (DomainId)
+);
+
+CREATE TABLE OAC_Grant_ResCrPerm_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedDomainId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   SysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, SysPermissionId),
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_ResCrPerm_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OAC_Grant_ResCrPerm_PostCr_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedDomainId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   PostCreateIsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   PostCreateSysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, PostCreateSysPermissionId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OAC_Grant_ResCrPerm_PostCr (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedDomainId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   PostCreateIsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   PostCreatePermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, PostCreatePermissionId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_ResCrPerm_PostCr_FK3 FOREIGN KEY (ResourceClassId, PostCreatePermissionId) REFERENCES OAC_ResourceClassPermission (ResourceClassId, PermissionId)
+);
+
+CREATE TABLE OAC_Grant_ResPerm_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedResourceId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   SysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_ResPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedResourceId, ResourceClassId, SysPermissionId),
+   CONSTRAINT OAC_Grant_ResPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_Sys_FK2 FOREIGN KEY (AccessedResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OAC_Grant_ResPerm (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedResourceId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   PermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_ResPerm_PK PRIMARY KEY (AccessorResourceId, AccessedResourceId, ResourceClassId, PermissionId),
+   CONSTRAINT OAC_Grant_ResPerm_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_FK2 FOREIGN KEY (AccessedResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_ResPerm_FK3 FOREIGN KEY (ResourceClassId, PermissionId) REFERENCES OAC_ResourceClassPermission (ResourceClassId, PermissionId)
+);
+
+CREATE TABLE OAC_Grant_Global_ResPerm_Sys (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedDomainId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   SysPermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, SysPermissionId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_Sys_FK3 FOREIGN KEY (ResourceClassId) REFERENCES OAC_ResourceClass (ResourceClassId)
+);
+
+CREATE TABLE OAC_Grant_Global_ResPerm (
+   AccessorResourceId INTEGER NOT NULL,
+   GrantorResourceId INTEGER NOT NULL,
+   AccessedDomainId INTEGER NOT NULL,
+   IsWithGrant SMALLINT NOT NULL,
+   ResourceClassId INTEGER NOT NULL,
+   PermissionId INTEGER NOT NULL,
+   CONSTRAINT OAC_Grant_Global_ResPerm_PK PRIMARY KEY (AccessorResourceId, AccessedDomainId, ResourceClassId, PermissionId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_FK1 FOREIGN KEY (AccessorResourceId) REFERENCES OAC_Resource (ResourceId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_FK2 FOREIGN KEY (AccessedDomainId) REFERENCES OAC_Domain (DomainId),
+   CONSTRAINT OAC_Grant_Global_ResPerm_FK3 FOREIGN KEY (ResourceClassId, PermissionId) REFERENCES OAC_ResourceClassPermission (ResourceClassId, PermissionId)
+);